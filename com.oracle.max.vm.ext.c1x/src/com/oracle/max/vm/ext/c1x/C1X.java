@@ -251,10 +251,18 @@ public class C1X extends RuntimeCompiler.DefaultNameAdapter implements RuntimeCo
     }
 
     public TargetMethod compile(final ClassMethodActor method, boolean isDeopt, boolean install, CiStatistics stats) {
+        return compile(method, -1, install, stats);
+    }
+
+    public TargetMethod compileOSR(ClassMethodActor method, int bci) {
+        return compile(method, bci, true, null);
+    }
+
+    private TargetMethod compile(ClassMethodActor method, int osrBCI, boolean install, CiStatistics stats) {
         CiTargetMethod compiledMethod;
         do {
             DebugInfoLevel debugInfoLevel = method.isTemplate() ? DebugInfoLevel.REF_MAPS : DebugInfoLevel.FULL;
-            compiledMethod = compiler().compileMethod(method, -1, stats, debugInfoLevel).targetMethod();
+            compiledMethod = compiler().compileMethod(method, osrBCI, stats, debugInfoLevel).targetMethod();
 
             Dependencies deps = Dependencies.validateDependencies(compiledMethod.assumptions());
             if (deps != Dependencies.INVALID) {
@@ -140,6 +140,10 @@ public class C1XGraal implements RuntimeCompiler {
         return result;
     }
 
+    public TargetMethod compileOSR(ClassMethodActor method, int bci) {
+        return c1x.compileOSR(method, bci);
+    }
+
     public Nature nature() {
         return Nature.OPT;
     }
@@ -529,6 +529,11 @@ public class MaxGraal extends RuntimeCompiler.DefaultNameAdapter implements Runt
     }
 
 
+    @Override
+    public TargetMethod compileOSR(ClassMethodActor methodActor, int bci) {
+        return null;
+    }
+
     @Override
     public Nature nature() {
         return Nature.OPT;
@@ -616,6 +616,8 @@ public class JVMTI {
             boolean interest = JVMTIEvents.isEventSet(event);
             if (interest) {
                 interest = dispatchEvent(event, arg1); // did anyone actually get it?
+                // the frames an agent inspected on this thread may be popped once the event returns
+                VmThread.current().clearMaterializedObjects();
             }
             if (!interest) {
                 logEvent(event, null, JVMTIEventLogger.NO_INTEREST, arg1);
@@ -1094,13 +1094,15 @@ public class JVMTIThreadFunctions {
      * Visitor for getting/setting local variables in stack frames.
      */
     private static class GetSetStackTraceVisitor extends FindAppFramesStackTraceVisitor {
+        VmThread vmThread;
         int depth;
         int slot;
         TypedData typedData;
         boolean isSet;
         int returnCode = JVMTI_ERROR_NONE;
 
-        GetSetStackTraceVisitor(int depth, int slot, TypedData typedData, boolean isSet) {
+        GetSetStackTraceVisitor(VmThread vmThread, int depth, int slot, TypedData typedData, boolean isSet) {
+            this.vmThread = vmThread;
             this.depth = depth;
             this.slot = slot;
             this.typedData = typedData;
@@ -1124,6 +1126,10 @@ public class JVMTIThreadFunctions {
                 targetMethod.finalizeReferenceMaps();
                 int spi = targetMethod.findSafepointIndex(frameAccess.ip);
                 assert spi >= 0;
+                if (!isSet && !targetMethod.isBaseline()) {
+                    // repeated reads of a scalar-replaced object must yield the same object
+                    frameAccess.materializedObjects = vmThread.materializedObjects(frameAccess.sp, true);
+                }
                 CiFrame ciFrame = targetMethod.debugInfoAt(spi, isSet ? null : frameAccess).frame();
                 if (slot >= ciFrame.numLocals) {
                     returnCode = JVMTI_ERROR_INVALID_SLOT;
@@ -1237,7 +1243,7 @@ public class JVMTIThreadFunctions {
         if (vmThread == null) {
             return JVMTI_ERROR_THREAD_NOT_ALIVE;
         }
-        GetSetStackTraceVisitor stackTraceVisitor = new GetSetStackTraceVisitor(depth, slot, typedData, isSet);
+        GetSetStackTraceVisitor stackTraceVisitor = new GetSetStackTraceVisitor(vmThread, depth, slot, typedData, isSet);
         SingleThreadStackTraceVmOperation.invoke(vmThread, stackTraceVisitor);
         return stackTraceVisitor.returnCode;
     }
@@ -1386,6 +1392,10 @@ public class JVMTIThreadFunctions {
             JVMTICode.suspendThreadListNotify(jvmtiEnv, threadSet);
         } else {
             JVMTICode.resumeThreadListNotify(jvmtiEnv, threadSet);
+            for (VmThread vmThread : threadSet) {
+                // the inspected frames may be popped once the thread runs again
+                vmThread.clearMaterializedObjects();
+            }
             new VmOperation.ResumeThreadSet(threadSet).submit();
         }
         return JVMTI_ERROR_NONE;
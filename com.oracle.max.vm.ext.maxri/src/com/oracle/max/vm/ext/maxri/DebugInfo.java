@@ -42,6 +42,7 @@ import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.actor.member.*;
 import com.sun.max.vm.compiler.*;
 import com.sun.max.vm.compiler.target.TargetMethod.*;
+import com.sun.max.vm.heap.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.runtime.*;
 
@@ -385,9 +386,94 @@ public final class DebugInfo {
         CiBitMap regRefMap = regRefMapAt(index);
         CiBitMap frameRefMap = frameRefMapAt(index);
         CiFrame frame = decodeFrame(in, fpt, index, fa, regRefMap, frameRefMap, stackSlotAsAddress);
+        if (fa != null && frame != null) {
+            if (fa.materializedObjects == null) {
+                fa.materializedObjects = new HashMap<Integer, Object>();
+            }
+            materializeVirtualObjects(frame, fa, fa.materializedObjects);
+        }
         return new CiDebugInfo(frame, regRefMap, frameRefMap);
     }
 
+    /**
+     * Replaces the {@linkplain CiVirtualObject virtual objects} in a frame and its callers with objects allocated
+     * on demand. Virtual objects with the same id denote the same object, and objects already in {@code objects}
+     * are reused. The callers are processed first so
+     * that the objects locked in the frames are added to {@link FrameAccess#materializedLocks} in locking order.
+     */
+    private static void materializeVirtualObjects(CiFrame frame, FrameAccess fa, HashMap<Integer, Object> objects) {
+        if (frame.caller() != null) {
+            materializeVirtualObjects(frame.caller(), fa, objects);
+        }
+        CiValue[] values = frame.values;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] instanceof CiVirtualObject) {
+                Object object = materialize((CiVirtualObject) values[i], objects);
+                values[i] = CiConstant.forObject(object);
+                if (i >= frame.numLocals + frame.numStack) {
+                    if (fa.materializedLocks == null) {
+                        fa.materializedLocks = new ArrayList<Object>();
+                    }
+                    fa.materializedLocks.add(object);
+                }
+            }
+        }
+    }
+
+    /**
+     * Allocates the object denoted by a virtual object and initializes its fields. The values of the fields
+     * are ordered like the instance fields of the type, starting with those declared by the topmost superclass.
+     */
+    private static Object materialize(CiVirtualObject virtualObject, HashMap<Integer, Object> objects) {
+        Object object = objects.get(virtualObject.id());
+        if (object != null) {
+            return object;
+        }
+        ClassActor type = (ClassActor) virtualObject.type();
+        object = Heap.createTuple(type.dynamicHub());
+        objects.put(virtualObject.id(), object);
+
+        ArrayList<FieldActor> fields = new ArrayList<FieldActor>();
+        for (ClassActor c = type; c != null; c = c.superClassActor) {
+            RiResolvedField[] declared = c.declaredFields();
+            for (int i = declared.length - 1; i >= 0; i--) {
+                fields.add((FieldActor) declared[i]);
+            }
+        }
+        Collections.reverse(fields);
+        CiValue[] values = virtualObject.values();
+        FatalError.check(fields.size() == values.length, "field count mismatch for virtual object");
+
+        for (int i = 0; i < values.length; i++) {
+            FieldActor field = fields.get(i);
+            CiValue value = values[i];
+            if (value instanceof CiVirtualObject) {
+                field.setObject(object, materialize((CiVirtualObject) value, objects));
+                continue;
+            }
+            CiConstant c = (CiConstant) value;
+            if (field.kind.isReference) {
+                field.setObject(object, c.asObject());
+                continue;
+            }
+            long bits = c.asPrimitive();
+            // Checkstyle: stop
+            switch (field.kind.asEnum) {
+                case BYTE    : field.setByte(object, (byte) bits); break;
+                case BOOLEAN : field.setBoolean(object, bits != 0); break;
+                case CHAR    : field.setChar(object, (char) bits); break;
+                case SHORT   : field.setShort(object, (short) bits); break;
+                case INT     : field.setInt(object, (int) bits); break;
+                case FLOAT   : field.setFloat(object, Float.intBitsToFloat((int) bits)); break;
+                case LONG    : field.setLong(object, bits); break;
+                case DOUBLE  : field.setDouble(object, Double.longBitsToDouble(bits)); break;
+                default      : throw FatalError.unexpected("unexpected field kind: " + field);
+            }
+            // Checkstyle: resume
+        }
+        return object;
+    }
+
     /**
      * Gets the position at which a given frame is encoded in {@link #data}.
      *
@@ -528,6 +614,12 @@ public final class DebugInfo {
             }
         } else if (value.isIllegal()) {
             value = WordUtil.ZERO;
+        } else if (value instanceof CiVirtualObject) {
+            CiVirtualObject object = (CiVirtualObject) value;
+            CiValue[] values = object.values();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = toLiveSlot(fa, values[i]);
+            }
         } else {
             assert value.isConstant();
         }
@@ -28,12 +28,14 @@ import java.lang.reflect.*;
 
 import com.sun.cri.ci.*;
 import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.actor.holder.ClassActor;
 import com.sun.max.vm.actor.member.*;
 import com.sun.max.vm.classfile.constant.SymbolTable;
 import com.sun.max.vm.classfile.constant.Utf8Constant;
 import com.sun.max.vm.compiler.*;
+import com.sun.max.vm.compiler.deopt.*;
 import com.sun.max.vm.compiler.target.*;
 import com.sun.max.vm.heap.*;
 import com.sun.max.vm.object.*;
@@ -76,6 +78,7 @@ public class MaxRuntimeCalls {
         }
 
         MaxTargetMethod.initializeMaxRuntimeCallsRuntimeUnwindExceptionMethodActor(getRuntimeUnwindExceptionMethodActor());
+        Deoptimization.initializeSpeculationFailedMethodActor(getClassMethodActor(CiRuntimeCall.SpeculationFailed));
     }
 
     @MAX_RUNTIME_ENTRYPOINT(runtimeCall = CiRuntimeCall.UnwindException)
@@ -173,8 +176,19 @@ public class MaxRuntimeCalls {
     }
 
     @MAX_RUNTIME_ENTRYPOINT(runtimeCall = CiRuntimeCall.OSRMigrationEnd)
-    public static void runtimeOSRMigrationEnd() {
+    public static void runtimeOSRMigrationEnd(long buffer) {
         verifyRefMaps();
+        OnStackReplacement.releaseBuffer(Pointer.fromLong(buffer));
+    }
+
+    /**
+     * Called when a receiver type guard emitted by {@link com.sun.cri.xir.RiXirGenerator#genTypeCheck} fails.
+     * The calling optimized method is deoptimized when this method returns and re-executes the call in a baseline frame.
+     */
+    @MAX_RUNTIME_ENTRYPOINT(runtimeCall = CiRuntimeCall.SpeculationFailed)
+    public static void runtimeSpeculationFailed(Object method, int bci) {
+        verifyRefMaps();
+        Deoptimization.speculationFailed((ClassMethodActor) method, bci);
     }
 
     @MAX_RUNTIME_ENTRYPOINT(runtimeCall = CiRuntimeCall.JavaTimeMillis)
@@ -113,6 +113,11 @@ public class MaxTargetMethod extends TargetMethod implements Cloneable {
 
     private CiTargetMethod debugCiTargetMethod;
 
+    /**
+     * The code offset of the OSR entry point or -1 if this method was not compiled for OSR.
+     */
+    private int osrEntryOffset;
+
     public MaxTargetMethod(ClassMethodActor classMethodActor, CiTargetMethod ciTargetMethod, boolean install) {
         super(classMethodActor, CallEntryPoint.OPTIMIZED_ENTRY_POINT);
         assert classMethodActor != null;
@@ -141,6 +146,7 @@ public class MaxTargetMethod extends TargetMethod implements Cloneable {
             }
         }
 
+        osrEntryOffset = ciTargetMethod.osrEntryOffset();
         initCodeBuffer(ciTargetMethod, install);
         initFrameLayout(ciTargetMethod);
         CiDebugInfo[] debugInfos = initSafepoints(ciTargetMethod);
@@ -160,6 +166,11 @@ public class MaxTargetMethod extends TargetMethod implements Cloneable {
         return Lifespan.LONG;
     }
 
+    @Override
+    public CodePointer osrEntryPoint() {
+        return osrEntryOffset < 0 ? CodePointer.zero() : codeAt(osrEntryOffset);
+    }
+
     @Override
     public CodeAnnotation[] annotations() {
         return annotations;
@@ -129,6 +129,8 @@ public class MaxXirGenerator implements RiXirGenerator {
 
     private XirPair invokeVirtualTemplates;
     private XirPair invokeInterfaceTemplates;
+    private XirTemplate invokeInterfaceCachedTemplate;
+    private XirTemplate invokeVirtualCachedTemplate;
     private InvokeSpecialTemplates invokeSpecialTemplates;
     private XirPair invokeStaticTemplates;
     private XirPair[] newArrayTemplates;
@@ -139,6 +141,7 @@ public class MaxXirGenerator implements RiXirGenerator {
     private XirTemplate[] arrayStoreNoBoundsCheckTemplates;
     private XirTemplate arrayStoreNoStoreCheckTemplate;
     private XirTemplate arrayStoreNoBoundsOrStoreCheckTemplate;
+    private XirTemplate[] arrayCopyTemplates;
 
     private DynamicHub[] arrayHubs;
 
@@ -196,6 +199,26 @@ public class MaxXirGenerator implements RiXirGenerator {
         return FieldActor.findInstance(ClassActor.fromJava(Hub.class), "mTableLength").offset();
     }
 
+    @FOLD
+    int offsetOfInlineCacheState() {
+        return FieldActor.findInstance(ClassActor.fromJava(InlineCache.class), "state").offset();
+    }
+
+    @FOLD
+    int offsetOfInlineCacheHub() {
+        return FieldActor.findInstance(ClassActor.fromJava(InlineCache.State.class), "hub").offset();
+    }
+
+    @FOLD
+    int offsetOfInlineCacheIndex() {
+        return FieldActor.findInstance(ClassActor.fromJava(InlineCache.State.class), "index").offset();
+    }
+
+    @FOLD
+    int offsetOfInlineCacheHubs() {
+        return FieldActor.findInstance(ClassActor.fromJava(InlineCache.State.class), "hubs").offset();
+    }
+
     @FOLD
     int offsetOfTupleSize() {
         return FieldActor.findInstance(ClassActor.fromJava(Hub.class), "tupleSize").offset();
@@ -251,6 +274,7 @@ public class MaxXirGenerator implements RiXirGenerator {
         arrayStoreTemplates = new XirTemplate[kinds.length];
         arrayLoadNoBoundsCheckTemplates = new XirTemplate[kinds.length];
         arrayStoreNoBoundsCheckTemplates = new XirTemplate[kinds.length];
+        arrayCopyTemplates = new XirTemplate[kinds.length];
         arrayStoreNoBoundsOrStoreCheckTemplate = buildArrayStore(CiKind.Object, asm, false, false, true);
         arrayStoreNoStoreCheckTemplate = buildArrayStore(CiKind.Object, asm, true, false, true);
 
@@ -284,11 +308,16 @@ public class MaxXirGenerator implements RiXirGenerator {
                 arrayStoreNoBoundsCheckTemplates[index] = buildArrayStore(kind, asm, false, kind == CiKind.Object, kind == CiKind.Object);
                 newArrayTemplates[index] = buildNewArray(kind);
                 tlabNewArrayTemplates[index] = buildTLABNewArray(kind);
+                if (kind.isPrimitive()) {
+                    arrayCopyTemplates[index] = buildArrayCopy(kind);
+                }
             }
         }
 
         invokeVirtualTemplates = buildInvokeVirtual();
         invokeInterfaceTemplates = buildInvokeInterface();
+        invokeInterfaceCachedTemplate = buildInvokeInterfaceCached();
+        invokeVirtualCachedTemplate = buildInvokeVirtualCached();
         invokeSpecialTemplates = buildInvokeSpecial();
         invokeStaticTemplates = buildInvokeStatic();
 
@@ -432,6 +461,11 @@ public class MaxXirGenerator implements RiXirGenerator {
             InterfaceMethodActor methodActor = (InterfaceMethodActor) method;
             XirArgument interfaceID = XirArgument.forInt(methodActor.holder().id);
             XirArgument methodIndex = XirArgument.forInt(methodActor.iIndexInInterface());
+            if (InlineCache.UseInlineCaches && !MaxineVM.isHosted()) {
+                // Boot image code keeps the plain mtable search as it may run where a cache miss cannot allocate
+                XirArgument cache = XirArgument.forObject(new InterfaceInlineCache(methodActor));
+                return new XirSnippet(invokeInterfaceCachedTemplate, receiver, cache, interfaceID, methodIndex);
+            }
             return new XirSnippet(pair.resolved, receiver, interfaceID, methodIndex);
         }
         XirArgument guard = XirArgument.forObject(guardFor(method));
@@ -444,6 +478,11 @@ public class MaxXirGenerator implements RiXirGenerator {
         if (method instanceof RiResolvedMethod) {
             VirtualMethodActor methodActor = (VirtualMethodActor) method;
             XirArgument vtableOffset = XirArgument.forInt(methodActor.vTableIndex() * Word.size() + offsetOfFirstArrayElement());
+            if (InlineCache.UseInlineCaches && !MaxineVM.isHosted()) {
+                // Boot image code keeps the plain vtable dispatch as it may run where a cache miss cannot allocate
+                XirArgument cache = XirArgument.forObject(new VirtualInlineCache(methodActor));
+                return new XirSnippet(invokeVirtualCachedTemplate, receiver, cache, vtableOffset);
+            }
             return new XirSnippet(pair.resolved, receiver, vtableOffset);
         }
         XirArgument guard = XirArgument.forObject(guardFor(method));
@@ -716,10 +755,10 @@ public class MaxXirGenerator implements RiXirGenerator {
     }
 
     @Override
-    public XirSnippet genTypeCheck(XirSite site, XirArgument object, XirArgument hub, RiType type) {
+    public XirSnippet genTypeCheck(XirSite site, XirArgument object, XirArgument hub, RiType type, RiResolvedMethod method, int bci) {
         assert type instanceof RiResolvedType;
         assert site.isNonNull(object);
-        return new XirSnippet(typeAssertTemplate, object, hub);
+        return new XirSnippet(typeAssertTemplate, object, hub, XirArgument.forObject(method), XirArgument.forInt(bci));
     }
 
     @Override
@@ -913,6 +952,39 @@ public class MaxXirGenerator implements RiXirGenerator {
         return finishTemplate(asm, "arrayload<" + kind + ">");
     }
 
+    /**
+     * Builds the template for an arraycopy between two arrays of the same primitive element kind whose bounds have
+     * already been checked. The copy is performed by a runtime call specialized for the element size.
+     */
+    @HOSTED_ONLY
+    private XirTemplate buildArrayCopy(CiKind kind) {
+        asm.restart(CiKind.Void);
+        XirParameter src = asm.createInputParameter("src", CiKind.Object);
+        XirParameter srcPos = asm.createInputParameter("srcPos", CiKind.Int);
+        XirParameter dest = asm.createInputParameter("dest", CiKind.Object);
+        XirParameter destPos = asm.createInputParameter("destPos", CiKind.Int);
+        XirParameter length = asm.createInputParameter("length", CiKind.Int);
+        String runtimeCall;
+        switch (target().sizeInBytes(kind)) {
+            case 1:
+                runtimeCall = "arraycopyBytes";
+                break;
+            case 2:
+                runtimeCall = "arraycopyShorts";
+                break;
+            case 4:
+                runtimeCall = "arraycopyInts";
+                break;
+            case 8:
+                runtimeCall = "arraycopyLongs";
+                break;
+            default:
+                throw ProgramError.unknownCase(kind.toString());
+        }
+        callRuntimeThroughStub(asm, runtimeCall, null, src, srcPos, dest, destPos, length);
+        return finishTemplate(asm, "arraycopy<" + kind + ">");
+    }
+
     @HOSTED_ONLY
     private XirTemplate buildInvokeHandle() {
         asm.restart();
@@ -1025,6 +1097,94 @@ public class MaxXirGenerator implements RiXirGenerator {
         return new XirPair(resolved, unresolved);
     }
 
+    /**
+     * Builds the template for a resolved INVOKEINTERFACE with an {@linkplain InterfaceInlineCache inline cache}.
+     * A hit on the first hub recorded in the cache loads the target from the cached itable slot. A megamorphic
+     * cache falls back to the mtable search. Any other miss is handled by the runtime, which updates the cache.
+     */
+    @HOSTED_ONLY
+    private XirTemplate buildInvokeInterfaceCached() {
+        asm.restart();
+        XirParameter receiver = asm.createInputParameter("receiver", CiKind.Object);
+        XirParameter cache = asm.createConstantInputParameter("cache", CiKind.Object);
+        XirParameter interfaceID = asm.createConstantInputParameter("interfaceID", CiKind.Int);
+        XirParameter methodIndex = asm.createConstantInputParameter("methodIndex", CiKind.Int);
+        XirOperand hub = asm.createTemp("hub", CiKind.Object);
+        XirOperand state = asm.createTemp("state", CiKind.Object);
+        XirOperand cachedHub = asm.createTemp("cachedHub", CiKind.Object);
+        XirOperand a = asm.createTemp("a", CiKind.Int);
+        XirOperand mtableLengthOrStartIndex = asm.createTemp("mtableLength/StartIndex", CiKind.Int);
+        XirOperand result = asm.createTemp("result", WordUtil.archKind());
+        XirLabel done = asm.createInlineLabel("done");
+        XirLabel miss = asm.createOutOfLineLabel("miss");
+        XirLabel slowPath = asm.createOutOfLineLabel("slowPath");
+
+        asm.pload(CiKind.Object, hub, receiver, asm.i(hubOffset()), true);
+        asm.pload(CiKind.Object, state, cache, asm.i(offsetOfInlineCacheState()), false);
+        asm.pload(CiKind.Object, cachedHub, state, asm.i(offsetOfInlineCacheHub()), false);
+        asm.jneq(miss, hub, cachedHub);
+        asm.pload(CiKind.Int, a, state, asm.i(offsetOfInlineCacheIndex()), false);
+        asm.pload(WordUtil.archKind(), result, hub, a, offsetOfFirstArrayElement(), Scale.fromInt(Word.size()), false);
+        asm.bindInline(done);
+
+        asm.bindOutOfLine(miss);
+        asm.pload(CiKind.Object, cachedHub, state, asm.i(offsetOfInlineCacheHubs()), false);
+        asm.jneq(slowPath, cachedHub, asm.o(null));
+        // megamorphic
+        asm.pload(CiKind.Int, mtableLengthOrStartIndex, hub, asm.i(offsetOfMTableLength()), false);
+        asm.mod(a, interfaceID, mtableLengthOrStartIndex);
+        asm.pload(CiKind.Int, mtableLengthOrStartIndex, hub, asm.i(offsetOfMTableStartIndex()), false);
+        asm.add(a, a, mtableLengthOrStartIndex);
+        asm.pload(CiKind.Int, a, hub, a, offsetOfFirstArrayElement(), Scale.Times4, false);
+        asm.add(a, a, methodIndex);
+        asm.pload(WordUtil.archKind(), result, hub, a, offsetOfFirstArrayElement(), Scale.fromInt(Word.size()), false);
+        asm.jmp(done);
+
+        asm.bindOutOfLine(slowPath);
+        callRuntimeThroughStub(asm, "selectInterfaceMethodCached", result, cache, receiver);
+        asm.jmp(done);
+        return finishTemplate(asm, result, "invokeinterface-cached");
+    }
+
+    /**
+     * Builds the template for a resolved INVOKEVIRTUAL with an {@linkplain VirtualInlineCache inline cache}.
+     * A hit on the first hub recorded in the cache and a megamorphic cache both load the target from the vtable.
+     * Any other miss is handled by the runtime, which updates the cache.
+     */
+    @HOSTED_ONLY
+    private XirTemplate buildInvokeVirtualCached() {
+        asm.restart();
+        XirParameter receiver = asm.createInputParameter("receiver", CiKind.Object);
+        XirParameter cache = asm.createConstantInputParameter("cache", CiKind.Object);
+        XirParameter vtableOffset = asm.createConstantInputParameter("vtableOffset", CiKind.Int);
+        XirOperand hub = asm.createTemp("hub", CiKind.Object);
+        XirOperand state = asm.createTemp("state", CiKind.Object);
+        XirOperand cachedHub = asm.createTemp("cachedHub", CiKind.Object);
+        XirOperand result = asm.createTemp("result", WordUtil.archKind());
+        XirLabel done = asm.createInlineLabel("done");
+        XirLabel miss = asm.createOutOfLineLabel("miss");
+        XirLabel slowPath = asm.createOutOfLineLabel("slowPath");
+
+        asm.pload(CiKind.Object, hub, receiver, asm.i(hubOffset()), true);
+        asm.pload(CiKind.Object, state, cache, asm.i(offsetOfInlineCacheState()), false);
+        asm.pload(CiKind.Object, cachedHub, state, asm.i(offsetOfInlineCacheHub()), false);
+        asm.jneq(miss, hub, cachedHub);
+        asm.pload(WordUtil.archKind(), result, hub, vtableOffset, false);
+        asm.bindInline(done);
+
+        asm.bindOutOfLine(miss);
+        asm.pload(CiKind.Object, cachedHub, state, asm.i(offsetOfInlineCacheHubs()), false);
+        asm.jneq(slowPath, cachedHub, asm.o(null));
+        // megamorphic
+        asm.pload(WordUtil.archKind(), result, hub, vtableOffset, false);
+        asm.jmp(done);
+
+        asm.bindOutOfLine(slowPath);
+        callRuntimeThroughStub(asm, "selectVirtualMethodCached", result, cache, receiver);
+        asm.jmp(done);
+        return finishTemplate(asm, result, "invokevirtual-cached");
+    }
+
     @HOSTED_ONLY
     private XirPair buildInvokeVirtual() {
         XirTemplate resolved;
@@ -1842,6 +2002,8 @@ public class MaxXirGenerator implements RiXirGenerator {
         asm.restart();
         XirParameter object = asm.createInputParameter("object", CiKind.Object);
         XirOperand hub = asm.createConstantInputParameter("hub", CiKind.Object);
+        XirOperand method = asm.createConstantInputParameter("method", CiKind.Object);
+        XirOperand bci = asm.createConstantInputParameter("bci", CiKind.Int);
 
         XirOperand objHub = asm.createTemp("objHub", CiKind.Object);
         XirLabel slowPath = asm.createOutOfLineLabel("deopt");
@@ -1852,7 +2014,8 @@ public class MaxXirGenerator implements RiXirGenerator {
 
         // -- out of line -------------------------------------------------------
         asm.bindOutOfLine(slowPath);
-        asm.callRuntime(CiRuntimeCall.Deoptimize, null);
+        // the frame is deoptimized when the runtime call returns
+        asm.callRuntime(CiRuntimeCall.SpeculationFailed, null, method, bci);
         asm.shouldNotReachHere();
 
         return asm.finishTemplate(object, "typeCheck");
@@ -2051,7 +2214,11 @@ public class MaxXirGenerator implements RiXirGenerator {
 
     @Override
     public XirSnippet genArrayCopy(XirSite site, XirArgument src, XirArgument srcPos, XirArgument dest, XirArgument destPos, XirArgument length, RiType elementType, boolean inputsDifferent, boolean inputsSame) {
-        return null;
+        CiKind elementKind = elementType.kind(true);
+        if (!elementKind.isPrimitive()) {
+            return null;
+        }
+        return new XirSnippet(arrayCopyTemplates[elementKind.ordinal()], src, srcPos, dest, destPos, length);
     }
 
     @Override
@@ -2141,6 +2308,14 @@ public class MaxXirGenerator implements RiXirGenerator {
             return Snippets.resolveInterfaceMethod(guard).holder().id;
         }
 
+        public static Word selectInterfaceMethodCached(InterfaceInlineCache cache, Object receiver) {
+            return cache.select(receiver);
+        }
+
+        public static Word selectVirtualMethodCached(VirtualInlineCache cache, Object receiver) {
+            return cache.select(receiver);
+        }
+
         public static Word invokeHandle(ClassMethodActor actor) {
             return Snippets.makeEntrypoint(actor, OPTIMIZED_ENTRY_POINT);
         }
@@ -2374,6 +2549,22 @@ public class MaxXirGenerator implements RiXirGenerator {
             Throw.throwNegativeArraySizeException(length);
         }
 
+        public static void arraycopyBytes(Object src, int srcPos, Object dest, int destPos, int length) {
+            BulkArrayAccess.copy(Kind.BYTE, src, srcPos, dest, destPos, length);
+        }
+
+        public static void arraycopyShorts(Object src, int srcPos, Object dest, int destPos, int length) {
+            BulkArrayAccess.copy(Kind.SHORT, src, srcPos, dest, destPos, length);
+        }
+
+        public static void arraycopyInts(Object src, int srcPos, Object dest, int destPos, int length) {
+            BulkArrayAccess.copy(Kind.INT, src, srcPos, dest, destPos, length);
+        }
+
+        public static void arraycopyLongs(Object src, int srcPos, Object dest, int destPos, int length) {
+            BulkArrayAccess.copy(Kind.LONG, src, srcPos, dest, destPos, length);
+        }
+
         public static void monitorEnter(Object o) {
             vmConfig().monitorScheme().monitorEnter(o);
         }
@@ -149,6 +149,11 @@ public class T1X extends RuntimeCompiler.DefaultNameAdapter implements RuntimeCo
         return RuntimeCompiler.Nature.BASELINE;
     }
 
+    @Override
+    public TargetMethod compileOSR(ClassMethodActor method, int bci) {
+        return null;
+    }
+
     public TargetMethod compile(ClassMethodActor method, boolean isDeopt, boolean install, CiStatistics stats) {
         T1X t1x = this;
         if (!MaxineVM.isHosted() && useVMTITemplates(method)) {
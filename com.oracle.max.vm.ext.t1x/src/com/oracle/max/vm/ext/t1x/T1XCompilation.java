@@ -283,6 +283,42 @@ public abstract class T1XCompilation {
      */
     private int initializedArgs;
 
+    /**
+     * The BCIs that are the target of a branch or switch instruction.
+     */
+    boolean[] jumpTargetBCIs;
+
+    /**
+     * The register holding the value on top of the operand stack if that value has not been stored to the stack yet,
+     * otherwise {@code null}. The slots of such a value are not allocated on the stack either.
+     *
+     * @see #deferTOS(CiRegister, Kind)
+     */
+    private CiRegister tosReg;
+
+    /**
+     * The kind of the value in {@link #tosReg}.
+     */
+    private Kind tosKind;
+
+    /**
+     * The BCI of the instruction that pushed the value in {@link #tosReg}.
+     */
+    private int tosProducerBCI;
+
+    /**
+     * The number of operand stack slots of the current template's arguments that were taken from {@link #tosReg}
+     * instead of the stack.
+     */
+    private int tosConsumedSlots;
+
+    /**
+     * Records the instructions whose code relies on {@link #tosReg} holding the top of the operand stack. Each entry
+     * is a triple of the BCI of such an instruction, the BCI of the instruction that pushed the value and the number
+     * of stack slots occupied by the value.
+     */
+    final ArrayList<Integer> cachedTOSBCIs = new ArrayList<Integer>();
+
     /**
      * Map of BCIs to target code positions. Entries in the table corresponding to the start of a bytecode instruction
      * hold the position in the code buffer where the first byte of the template was emitted. This map
@@ -338,6 +374,8 @@ public abstract class T1XCompilation {
         initFrame(method, codeAttribute);
 
         initHandlers(method, code);
+
+        initJumpTargets(code);
     }
 
     static void startTimer(T1XTimer timer) {
@@ -364,6 +402,43 @@ public abstract class T1XCompilation {
         }
     }
 
+    /**
+     * Determines if the value pushed by a constant or local variable load may be kept in a register until it is
+     * needed, as described in {@link #deferTOS(CiRegister, Kind)}.
+     */
+    protected boolean useTOSCaching() {
+        return false;
+    }
+
+    /**
+     * Initializes {@link #jumpTargetBCIs} if {@linkplain #useTOSCaching() top of stack caching} is enabled.
+     * Code at a jump target cannot assume that a register holds the top of the operand stack.
+     */
+    void initJumpTargets(byte[] code) {
+        if (!T1XOptions.CacheTOS || T1XOptions.DebugMethods || !useTOSCaching()) {
+            jumpTargetBCIs = null;
+            return;
+        }
+        jumpTargetBCIs = new boolean[code.length];
+        BytecodeStream s = new BytecodeStream(code);
+        while (s.currentBCI() < s.endBCI()) {
+            int opcode = s.currentBC();
+            int bci = s.currentBCI();
+            if (opcode == Bytecodes.GOTO_W || opcode == Bytecodes.JSR_W) {
+                jumpTargetBCIs[s.readFarBranchDest()] = true;
+            } else if (Bytecodes.isBranch(opcode)) {
+                jumpTargetBCIs[s.readBranchDest()] = true;
+            } else if (opcode == Bytecodes.TABLESWITCH || opcode == Bytecodes.LOOKUPSWITCH) {
+                BytecodeSwitch sw = opcode == Bytecodes.TABLESWITCH ? new BytecodeTableSwitch(s, bci) : new BytecodeLookupSwitch(s, bci);
+                jumpTargetBCIs[sw.defaultTarget()] = true;
+                for (int i = 0; i < sw.numberOfCases(); i++) {
+                    jumpTargetBCIs[sw.targetAt(i)] = true;
+                }
+            }
+            s.next();
+        }
+    }
+
     /**
      * Initializes {@link #frame} and {@link #synchronizedReceiver}.
      */
@@ -401,6 +476,11 @@ public abstract class T1XCompilation {
         template = null;
         initializedArgs = 0;
         trampolines = null;
+
+        jumpTargetBCIs = null;
+        tosReg = null;
+        tosConsumedSlots = 0;
+        cachedTOSBCIs.clear();
     }
 
     /**
@@ -570,6 +650,12 @@ public abstract class T1XCompilation {
         int bci = stream.currentBCI();
         int pos = buf.position();
 
+        if (tosReg != null && (jumpTargetBCIs[bci] || (handlerBCIs != null && handlerBCIs[bci]) || !consumesTOS(representativeOpcode))) {
+            // this code still belongs to the previous instruction
+            storeTOS();
+            pos = buf.position();
+        }
+
         bciToPos[bci] = pos;
 
         if (Bytecodes.isBlockEnd(prevOpcode)) {
@@ -619,30 +705,59 @@ public abstract class T1XCompilation {
         assert template == null;
         this.template = startTemplate;
         initializedArgs = 0;
+        tosConsumedSlots = 0;
         Sig sig = template.sig;
+        if (tosReg != null) {
+            Arg tos = null;
+            for (Arg a : sig.in) {
+                if (a.isStack() && a.slot == 0) {
+                    tos = a;
+                }
+            }
+            if (tos != null && template.safepoints.length == 0 && tosKind == (tos.kind.isReference ? Kind.WORD : tos.kind)) {
+                // The template cannot stop at a safepoint, so the frame need not be complete while it runs
+                recordTOSUse();
+                if (tos.reg != tosReg) {
+                    if (tos.kind.isReference) {
+                        assignObjectReg(tos.reg, tosReg);
+                    } else {
+                        assignWordReg(tos.reg, tosReg);
+                    }
+                }
+                tosConsumedSlots = tosKind.stackSlots;
+                tosReg = null;
+                T1XMetrics.ElidedStackLoads++;
+            } else {
+                flushTOS();
+            }
+        }
         if (sig.stackArgs != 0) {
             for (int i = 0; i < sig.in.length; i++) {
                 Arg a = sig.in[i];
                 if (a.isStack()) {
                     initializedArgs |= 1 << i;
+                    if (a.slot == 0 && tosConsumedSlots != 0) {
+                        continue;
+                    }
+                    int slot = a.slot - tosConsumedSlots;
                     switch (a.kind.asEnum) {
                         case INT:
-                            peekInt(a.reg, a.slot);
+                            peekInt(a.reg, slot);
                             break;
                         case FLOAT:
-                            peekFloat(a.reg, a.slot);
+                            peekFloat(a.reg, slot);
                             break;
                         case LONG:
-                            peekLong(a.reg, a.slot);
+                            peekLong(a.reg, slot);
                             break;
                         case DOUBLE:
-                            peekDouble(a.reg, a.slot);
+                            peekDouble(a.reg, slot);
                             break;
                         case WORD:
-                            peekWord(a.reg, a.slot);
+                            peekWord(a.reg, slot);
                             break;
                         case REFERENCE:
-                            peekObject(a.reg, a.slot);
+                            peekObject(a.reg, slot);
                             break;
                         default:
                             assert false;
@@ -652,6 +767,103 @@ public abstract class T1XCompilation {
         }
     }
 
+    /**
+     * Pushes a value held in a register by the current instruction without storing it to the operand stack. The store
+     * (and the allocation of the stack slots) is deferred until it is known whether the next instruction can take
+     * the value directly from the register. That is the case for a local variable store and for a template that cannot
+     * stop at a safepoint and takes the value as its top of stack argument. Otherwise the value is
+     * {@linkplain #flushTOS() flushed} before the code of the next instruction or before the first template of that
+     * instruction, so the frame is complete at every safepoint, call and block boundary and the reference maps
+     * computed by {@link T1XReferenceMapEditor} remain valid.
+     * <p>
+     * This is only done for instructions that push a constant or a local variable, as the value is recomputed by
+     * re-executing such an instruction when {@linkplain T1XTargetMethod#createDeoptimizedFrame deoptimizing} to an
+     * instruction whose code expects the value in the register.
+     *
+     * @return {@code true} if the push was deferred, {@code false} if the caller must push the value
+     */
+    protected boolean deferTOS(CiRegister reg, Kind kind) {
+        assert tosReg == null;
+        if (jumpTargetBCIs == null) {
+            return false;
+        }
+        tosReg = reg;
+        tosKind = kind.isReference ? Kind.WORD : kind;
+        tosProducerBCI = stream.currentBCI();
+        return true;
+    }
+
+    /**
+     * Stores the value whose push was {@linkplain #deferTOS(CiRegister, Kind) deferred} (if any) to the operand stack.
+     */
+    protected void flushTOS() {
+        if (tosReg != null) {
+            recordTOSUse();
+            storeTOS();
+        }
+    }
+
+    /**
+     * Emits the code that stores {@link #tosReg} to the operand stack.
+     */
+    private void storeTOS() {
+        CiRegister reg = tosReg;
+        tosReg = null;
+        incStack(tosKind.stackSlots);
+        switch (tosKind.asEnum) {
+            case INT:
+                pokeInt(reg, 0);
+                break;
+            case LONG:
+                pokeLong(reg, 0);
+                break;
+            default:
+                pokeWord(reg, 0);
+        }
+    }
+
+    /**
+     * Records that the code of the current instruction expects the top of the operand stack in {@link #tosReg}.
+     */
+    private void recordTOSUse() {
+        int bci = stream.currentBCI();
+        if (bci != tosProducerBCI) {
+            int n = cachedTOSBCIs.size();
+            if (n == 0 || cachedTOSBCIs.get(n - 3) != bci) {
+                cachedTOSBCIs.add(bci);
+                cachedTOSBCIs.add(tosProducerBCI);
+                cachedTOSBCIs.add(tosKind.stackSlots);
+            }
+        }
+    }
+
+    /**
+     * Determines if the code for an instruction with a given opcode is prepared to find the top of the operand stack
+     * in {@link #tosReg}. This holds for the local variable stores and for the instructions translated to a single
+     * template with no other code before it.
+     */
+    protected boolean consumesTOS(int opcode) {
+        switch (opcode) {
+            // Checkstyle: stop
+            case Bytecodes.ISTORE: case Bytecodes.ISTORE_0: case Bytecodes.ISTORE_1: case Bytecodes.ISTORE_2: case Bytecodes.ISTORE_3:
+            case Bytecodes.LSTORE: case Bytecodes.LSTORE_0: case Bytecodes.LSTORE_1: case Bytecodes.LSTORE_2: case Bytecodes.LSTORE_3:
+            case Bytecodes.FSTORE: case Bytecodes.FSTORE_0: case Bytecodes.FSTORE_1: case Bytecodes.FSTORE_2: case Bytecodes.FSTORE_3:
+            case Bytecodes.DSTORE: case Bytecodes.DSTORE_0: case Bytecodes.DSTORE_1: case Bytecodes.DSTORE_2: case Bytecodes.DSTORE_3:
+            case Bytecodes.ASTORE: case Bytecodes.ASTORE_0: case Bytecodes.ASTORE_1: case Bytecodes.ASTORE_2: case Bytecodes.ASTORE_3:
+            case Bytecodes.IADD: case Bytecodes.ISUB: case Bytecodes.IMUL: case Bytecodes.IAND: case Bytecodes.IOR: case Bytecodes.IXOR:
+            case Bytecodes.ISHL: case Bytecodes.ISHR: case Bytecodes.IUSHR:
+            case Bytecodes.LADD: case Bytecodes.LSUB: case Bytecodes.LMUL: case Bytecodes.LAND: case Bytecodes.LOR: case Bytecodes.LXOR:
+            case Bytecodes.LSHL: case Bytecodes.LSHR: case Bytecodes.LUSHR: case Bytecodes.LCMP:
+            case Bytecodes.INEG: case Bytecodes.LNEG:
+            case Bytecodes.I2L: case Bytecodes.L2I: case Bytecodes.I2B: case Bytecodes.I2C: case Bytecodes.I2S:
+            case Bytecodes.IRETURN: case Bytecodes.LRETURN: case Bytecodes.ARETURN:
+                return true;
+            // Checkstyle: resume
+            default:
+                return false;
+        }
+    }
+
     /**
      * Completes the process of emitting the current template.
      */
@@ -670,12 +882,15 @@ public abstract class T1XCompilation {
         }
 
         // Adjust the stack to model the net effect of the template including
-        // the slot for the value pushed (if any) by the template.
+        // the slot for the value pushed (if any) by the template. The slots of
+        // an argument taken from a register were never allocated on the stack.
         Sig sig = template.sig;
-        if (sig.stackDelta < 0) {
-            decStack(-sig.stackDelta);
-        } else if (sig.stackDelta > 0) {
-            incStack(sig.stackDelta);
+        int stackDelta = sig.stackDelta + tosConsumedSlots;
+        tosConsumedSlots = 0;
+        if (stackDelta < 0) {
+            decStack(-stackDelta);
+        } else if (stackDelta > 0) {
+            incStack(stackDelta);
         }
 
         // The stack parameters to an invoke are popped by the callee so they should not also be
@@ -1858,32 +2073,42 @@ public abstract class T1XCompilation {
 
     protected void do_oconst(Object value) {
         assignObject(scratch, value);
-        incStack(1);
-        pokeObject(scratch, 0);
+        if (!deferTOS(scratch, Kind.REFERENCE)) {
+            incStack(1);
+            pokeObject(scratch, 0);
+        }
     }
 
     protected void do_iconst(int value) {
         assignInt(scratch, value);
-        incStack(1);
-        pokeInt(scratch, 0);
+        if (!deferTOS(scratch, Kind.INT)) {
+            incStack(1);
+            pokeInt(scratch, 0);
+        }
     }
 
     protected void do_dconst(double value) {
         assignLong(scratch, Double.doubleToRawLongBits(value));
-        incStack(2);
-        pokeLong(scratch, 0);
+        if (!deferTOS(scratch, Kind.LONG)) {
+            incStack(2);
+            pokeLong(scratch, 0);
+        }
     }
 
     protected void do_fconst(float value) {
         assignInt(scratch, Float.floatToRawIntBits(value));
-        incStack(1);
-        pokeInt(scratch, 0);
+        if (!deferTOS(scratch, Kind.INT)) {
+            incStack(1);
+            pokeInt(scratch, 0);
+        }
     }
 
     protected void do_lconst(long value) {
         assignLong(scratch, value);
-        incStack(2);
-        pokeLong(scratch, 0);
+        if (!deferTOS(scratch, Kind.LONG)) {
+            incStack(2);
+            pokeLong(scratch, 0);
+        }
     }
 
     protected void do_load(int index, Kind kind) {
@@ -1891,19 +2116,25 @@ public abstract class T1XCompilation {
             case INT:
             case FLOAT:
                 loadInt(scratch, index);
-                incStack(1);
-                pokeInt(scratch, 0);
+                if (!deferTOS(scratch, Kind.INT)) {
+                    incStack(1);
+                    pokeInt(scratch, 0);
+                }
                 break;
             case REFERENCE:
                 loadWord(scratch, index);
-                incStack(1);
-                pokeWord(scratch, 0);
+                if (!deferTOS(scratch, Kind.WORD)) {
+                    incStack(1);
+                    pokeWord(scratch, 0);
+                }
                 break;
             case LONG:
             case DOUBLE:
                 loadLong(scratch, index);
-                incStack(2);
-                pokeLong(scratch, 0);
+                if (!deferTOS(scratch, Kind.LONG)) {
+                    incStack(2);
+                    pokeLong(scratch, 0);
+                }
                 break;
             default:
                 throw new InternalError("Unexpected kind: " + kind);
@@ -1911,6 +2142,26 @@ public abstract class T1XCompilation {
     }
 
     protected void do_store(int index, Kind kind) {
+        if (tosReg != null) {
+            // the value to store was never pushed to the operand stack
+            assert tosKind.stackSlots == kind.stackSlots;
+            recordTOSUse();
+            CiRegister reg = tosReg;
+            tosReg = null;
+            T1XMetrics.ElidedStackLoads++;
+            switch (kind.asEnum) {
+                case INT:
+                case FLOAT:
+                    storeInt(reg, index);
+                    break;
+                case REFERENCE:
+                    storeWord(reg, index);
+                    break;
+                default:
+                    storeLong(reg, index);
+            }
+            return;
+        }
         switch (kind.asEnum) {
             case INT:
             case FLOAT:
@@ -2052,11 +2303,12 @@ public abstract class T1XCompilation {
         emitEpilogue();
     }
 
-    protected void do_profileBackwardBranch() {
+    protected void do_profileBackwardBranch(int targetBCI) {
         if (methodProfileBuilder != null) {
             // Profiling of backward branches.
             start(PROFILE_BACKWARD_BRANCH);
             assignObject(0, "mpo", methodProfileBuilder.methodProfileObject());
+            assignInt(1, "targetBCI", targetBCI);
             finish();
         }
     }
@@ -2136,7 +2388,7 @@ public abstract class T1XCompilation {
             finish();
 
             if (bci >= targetBCI) {
-                do_profileBackwardBranch();
+                do_profileBackwardBranch(targetBCI);
             }
         }
     }
@@ -2204,6 +2456,24 @@ public abstract class T1XCompilation {
         assignInvokeTemplatesProfileInstrumentationParameters();
     }
 
+    /**
+     * Assigns the parameters of an {@linkplain T1XTemplateTag#inlineCached inline cache} template for INVOKEVIRTUAL
+     * or INVOKEINTERFACE.
+     */
+    protected void assignInlineCacheTemplateParameters(InlineCache cache, int receiverStackIndex) {
+        assignObject(0, "cache", cache);
+        peekObject(1, "receiver", receiverStackIndex);
+        assignInvokeTemplatesProfileInstrumentationParameters();
+    }
+
+    /**
+     * Determines if resolved virtual and interface call sites dispatch through an {@linkplain InlineCache inline cache}.
+     * Boot image code keeps the plain dispatch, because a cache miss there may happen where allocation is not possible.
+     */
+    protected boolean useInlineCaches() {
+        return InlineCache.UseInlineCaches && !isHosted();
+    }
+
     /*
      * The following three methods exist to be overridden by the VMA extension.
      * They permit flexibility in the form of the templates for the INVOKE bytecodes
@@ -2336,11 +2606,17 @@ public abstract class T1XCompilation {
             }
 
             // emit a virtual dispatch
-            start(methodProfileBuilder == null ? tag.resolved : tag.instrumented);
+            T1XTemplateTag dispatchTag = methodProfileBuilder == null ? tag.resolved : tag.instrumented;
+            boolean inlineCache = useInlineCaches();
+            start(inlineCache ? dispatchTag.inlineCached : dispatchTag);
             CiRegister target = template.sig.scratch.reg;
             assert methodActor instanceof VirtualMethodActor;
             VirtualMethodActor virtualMethodActor = (VirtualMethodActor) methodActor;
-            assignInvokeVirtualTemplateParameters(virtualMethodActor, receiverStackIndex);
+            if (inlineCache) {
+                assignInlineCacheTemplateParameters(new VirtualInlineCache(virtualMethodActor), receiverStackIndex);
+            } else {
+                assignInvokeVirtualTemplateParameters(virtualMethodActor, receiverStackIndex);
+            }
             finish();
 
             int safepoint = callIndirect(target, receiverStackIndex);
@@ -2379,9 +2655,15 @@ public abstract class T1XCompilation {
                     if (processIntrinsic(interfaceMethod, index)) {
                         return;
                     }
-                    start(methodProfileBuilder == null ? tag.resolved : tag.instrumented);
+                    T1XTemplateTag dispatchTag = methodProfileBuilder == null ? tag.resolved : tag.instrumented;
+                    boolean inlineCache = useInlineCaches();
+                    start(inlineCache ? dispatchTag.inlineCached : dispatchTag);
                     CiRegister target = template.sig.scratch.reg;
-                    assignInvokeInterfaceTemplateParameters(interfaceMethod, receiverStackIndex);
+                    if (inlineCache) {
+                        assignInlineCacheTemplateParameters(new InterfaceInlineCache((InterfaceMethodActor) interfaceMethod), receiverStackIndex);
+                    } else {
+                        assignInvokeInterfaceTemplateParameters(interfaceMethod, receiverStackIndex);
+                    }
                     finish();
 
                     int safepoint = callIndirect(target, receiverStackIndex);
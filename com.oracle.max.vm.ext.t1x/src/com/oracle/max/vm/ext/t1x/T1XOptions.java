@@ -36,6 +36,8 @@ public final class T1XOptions {
 
     public static boolean EagerRefMaps                       = ____;
 
+    public static boolean CacheTOS                           = true;
+
     public static boolean TraceMethods                       = ____;
 
     public static boolean DebugMethods                       = ____;
@@ -81,6 +83,10 @@ public final class T1XOptions {
                 "Generate ref maps for methods compiled by T1X at compile time " +
                 "instead of lazily during a GC.");
 
+        map.put("CacheTOS",
+                "Keep a value pushed by a constant or local variable load in a register and only store it " +
+                "to the operand stack if the next instruction cannot take it from there.");
+
         map.put("TraceMethods",
                 "Trace calls to T1X compiled methods.");
         map.put("DebugMethods",
@@ -164,6 +164,13 @@ public class T1XTargetMethod extends TargetMethod {
 
     public final CiExceptionHandler[] handlers;
 
+    /**
+     * The instructions whose code expects the top of the operand stack in a register (see
+     * {@link T1XCompilation#deferTOS}) or {@code null} if there are none. Each entry is a triple of the BCI of such an
+     * instruction, the BCI of the instruction that pushed the value and the number of stack slots occupied by the value.
+     */
+    private final int[] cachedTOSBCIs;
+
     /**
      * The code annotations (if any) recorded when compiling this T1X method.
      */
@@ -188,6 +195,14 @@ public class T1XTargetMethod extends TargetMethod {
         super(comp.method, CallEntryPoint.BASELINE_ENTRY_POINT);
         codeAttribute = comp.codeAttribute;
         bciToPos = comp.bciToPos;
+        if (comp.cachedTOSBCIs.isEmpty()) {
+            cachedTOSBCIs = null;
+        } else {
+            cachedTOSBCIs = new int[comp.cachedTOSBCIs.size()];
+            for (int i = 0; i < cachedTOSBCIs.length; i++) {
+                cachedTOSBCIs[i] = comp.cachedTOSBCIs.get(i);
+            }
+        }
         frame = comp.frame;
         frameRefMapOffset = frame.frameReferenceMapOffset();
         setFrameSize(frame.frameSize());
@@ -1115,6 +1130,18 @@ public class T1XTargetMethod extends TargetMethod {
         int bci = frame.bci;
         ClassMethodActor method = classMethodActor;
         assert classMethodActor == frame.method : classMethodActor + " != " + frame.method;
+        int poppedStackSlots = 0;
+        if (reexecute && exception == null && cachedTOSBCIs != null) {
+            for (int i = 0; i < cachedTOSBCIs.length; i += 3) {
+                if (cachedTOSBCIs[i] == bci) {
+                    // The code for the instruction at 'bci' expects the top of the operand stack
+                    // in a register so re-execute the instruction that pushed it instead
+                    bci = cachedTOSBCIs[i + 1];
+                    poppedStackSlots = cachedTOSBCIs[i + 2];
+                    break;
+                }
+            }
+        }
         CodePointer ip = findContinuationIP(info, exception, bci, reexecute);
 
         // record continuation instruction pointer
@@ -1124,7 +1151,7 @@ public class T1XTargetMethod extends TargetMethod {
             // record continuation stack pointer
             cont.setSP(info, CiConstant.forJsr(info.slotsCount()));
             // add operand stack slots
-            for (int i = frame.numStack - 1; i >= 0; i--) {
+            for (int i = frame.numStack - 1 - poppedStackSlots; i >= 0; i--) {
                 CiConstant value = (CiConstant) frame.getStackValue(i);
                 info.addSlot(value, "ostack");
                 addSlotPadding(info, "ostack (pad)");
@@ -1126,6 +1126,8 @@ public class T1XTemplateGenerator {
                 generateUnresolvedInvokeVITemplate(k, "virtual");
                 generateInvokeVITemplate(k, "virtual", false);
                 generateInvokeVITemplate(k, "virtual", true);
+                generateInlineCacheInvokeVITemplate(k, "virtual", false);
+                generateInlineCacheInvokeVITemplate(k, "virtual", true);
             }
         }
     }
@@ -1139,6 +1141,8 @@ public class T1XTemplateGenerator {
                 generateUnresolvedInvokeVITemplate(k, "interface");
                 generateInvokeVITemplate(k, "interface", false);
                 generateInvokeVITemplate(k, "interface", true);
+                generateInlineCacheInvokeVITemplate(k, "interface", false);
+                generateInlineCacheInvokeVITemplate(k, "interface", true);
             }
         }
     }
@@ -1223,6 +1227,44 @@ public class T1XTemplateGenerator {
         endTemplateMethodGeneration();
     }
 
+    /**
+     * Generate a specific {@code INVOKE} template that dispatches through an
+     * {@linkplain com.sun.max.vm.runtime.InlineCache inline cache}.
+     *
+     * @param k type
+     * @param variant one of "virtual" or "interface"
+     */
+    public void generateInlineCacheInvokeVITemplate(Kind k, String variant, boolean instrumented) {
+        String params = variant.equals("interface") ? "InterfaceInlineCache cache" : "VirtualInlineCache cache";
+        String select = variant.equals("interface") ? "Snippets.selectInterfaceMethod" : "Snippets.selectNonPrivateVirtualMethod";
+        String extraParams = "";
+        if (instrumented) {
+            extraParams += ", MethodProfile mpo, int mpoIndex";
+        }
+        startMethodGeneration();
+        out.printf("    /**%n");
+        out.printf("     * Selects the correct implementation of a resolved method referenced by an INVOKE%s instruction%n", variant.toUpperCase());
+        out.printf("     * through the inline cache of the call site.%n");
+        out.printf("     *%n");
+        out.printf("     * @param cache the inline cache of the call site%n");
+        out.printf("     * @param receiver the receiver object of the invocation%n");
+        if (instrumented) {
+            out.printf("     * @param mpo the profile object for an instrumented invocation%n");
+            out.printf("     * @param mpoIndex a profile specific index%n");
+        }
+        out.printf("     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called%n");
+        out.printf("     */%n");
+        generateTemplateTag("INVOKE%s$%s$inlinecache%s", variant.toUpperCase(), lr(k), instrumented ? "$instrumented" : "");
+        out.printf("    @Slot(-1)%n");
+        out.printf("    public static Address invoke%s%s(%s, Reference receiver%s%s) {%n", variant, u(k), params, suffixParams(true), extraParams);
+        generateBeforeAdvice(k, variant);
+        out.printf("        return %s(receiver, cache%s).%n", select, instrumented ? ", mpo, mpoIndex" : "");
+        out.printf("            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());%n");
+        out.printf("    }%n");
+        newLine();
+        endTemplateMethodGeneration();
+    }
+
     public static final EnumSet<T1XTemplateTag> INVOKE_STATIC_TEMPLATE_TAGS = tags("INVOKESTATIC$");
 
     public static final EnumSet<T1XTemplateTag> INVOKE_SPECIAL_TEMPLATE_TAGS = tags("INVOKESPECIAL$");
@@ -1624,6 +1666,8 @@ public class T1XTemplateGenerator {
                     generateUnresolvedInvokeVITemplate(k, s);
                     generateInvokeVITemplate(k, s, false);
                     generateInvokeVITemplate(k, s, true);
+                    generateInlineCacheInvokeVITemplate(k, s, false);
+                    generateInlineCacheInvokeVITemplate(k, s, true);
                 }
                 for (String s : new String[] {"special", "static"}) {
                     generateInvokeSSTemplate(k, s);
@@ -71,10 +71,10 @@ public class T1XTemplateSource {
     }
 
     @T1X_TEMPLATE(PROFILE_BACKWARD_BRANCH)
-    public static void profileBackwardBranch(MethodProfile mpo) {
+    public static void profileBackwardBranch(MethodProfile mpo, int targetBCI) {
         // entrypoint counters count down to zero ("overflow")
         // Currently, there is no reason to use a separate counter for backward branches.
-        MethodInstrumentation.recordBackwardBranch(mpo);
+        MethodInstrumentation.recordBackwardBranch(mpo, targetBCI);
     }
 
     @T1X_TEMPLATE(PROFILE_TAKEN_BRANCH)
@@ -1042,6 +1042,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$float$inlinecache)
+    @Slot(-1)
+    public static Address invokevirtualFloat(VirtualInlineCache cache, Reference receiver) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$float$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokevirtualFloat(VirtualInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves and selects the correct implementation of a method referenced by an INVOKEINTERFACE instruction.
      *
@@ -1085,6 +1117,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$float$inlinecache)
+    @Slot(-1)
+    public static Address invokeinterfaceFloat(InterfaceInlineCache cache, Reference receiver) {
+        return Snippets.selectInterfaceMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$float$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokeinterfaceFloat(InterfaceInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectInterfaceMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves a method referenced by an INVOKESPECIAL instruction.
      *
@@ -1352,6 +1416,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$long$inlinecache)
+    @Slot(-1)
+    public static Address invokevirtualLong(VirtualInlineCache cache, Reference receiver) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$long$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokevirtualLong(VirtualInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves and selects the correct implementation of a method referenced by an INVOKEINTERFACE instruction.
      *
@@ -1395,6 +1491,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$long$inlinecache)
+    @Slot(-1)
+    public static Address invokeinterfaceLong(InterfaceInlineCache cache, Reference receiver) {
+        return Snippets.selectInterfaceMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$long$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokeinterfaceLong(InterfaceInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectInterfaceMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves a method referenced by an INVOKESPECIAL instruction.
      *
@@ -1638,6 +1766,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$double$inlinecache)
+    @Slot(-1)
+    public static Address invokevirtualDouble(VirtualInlineCache cache, Reference receiver) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$double$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokevirtualDouble(VirtualInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves and selects the correct implementation of a method referenced by an INVOKEINTERFACE instruction.
      *
@@ -1681,6 +1841,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$double$inlinecache)
+    @Slot(-1)
+    public static Address invokeinterfaceDouble(InterfaceInlineCache cache, Reference receiver) {
+        return Snippets.selectInterfaceMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$double$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokeinterfaceDouble(InterfaceInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectInterfaceMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves a method referenced by an INVOKESPECIAL instruction.
      *
@@ -1874,6 +2066,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$reference$inlinecache)
+    @Slot(-1)
+    public static Address invokevirtualObject(VirtualInlineCache cache, Reference receiver) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$reference$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokevirtualObject(VirtualInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves and selects the correct implementation of a method referenced by an INVOKEINTERFACE instruction.
      *
@@ -1917,6 +2141,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$reference$inlinecache)
+    @Slot(-1)
+    public static Address invokeinterfaceObject(InterfaceInlineCache cache, Reference receiver) {
+        return Snippets.selectInterfaceMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$reference$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokeinterfaceObject(InterfaceInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectInterfaceMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves a method referenced by an INVOKESPECIAL instruction.
      *
@@ -2083,6 +2339,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$word$inlinecache)
+    @Slot(-1)
+    public static Address invokevirtualWord(VirtualInlineCache cache, Reference receiver) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$word$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokevirtualWord(VirtualInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves and selects the correct implementation of a method referenced by an INVOKEINTERFACE instruction.
      *
@@ -2126,6 +2414,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$word$inlinecache)
+    @Slot(-1)
+    public static Address invokeinterfaceWord(InterfaceInlineCache cache, Reference receiver) {
+        return Snippets.selectInterfaceMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$word$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokeinterfaceWord(InterfaceInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectInterfaceMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves a method referenced by an INVOKESPECIAL instruction.
      *
@@ -2207,6 +2527,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$void$inlinecache)
+    @Slot(-1)
+    public static Address invokevirtualVoid(VirtualInlineCache cache, Reference receiver) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEVIRTUAL instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEVIRTUAL$void$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokevirtualVoid(VirtualInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectNonPrivateVirtualMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves and selects the correct implementation of a method referenced by an INVOKEINTERFACE instruction.
      *
@@ -2250,6 +2602,38 @@ public class T1XTemplateSource {
             plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
     }
 
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$void$inlinecache)
+    @Slot(-1)
+    public static Address invokeinterfaceVoid(InterfaceInlineCache cache, Reference receiver) {
+        return Snippets.selectInterfaceMethod(receiver, cache).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
+    /**
+     * Selects the correct implementation of a resolved method referenced by an INVOKEINTERFACE instruction
+     * through the inline cache of the call site.
+     *
+     * @param cache the inline cache of the call site
+     * @param receiver the receiver object of the invocation
+     * @param mpo the profile object for an instrumented invocation
+     * @param mpoIndex a profile specific index
+     * @return the {@link CallEntryPoint#BASELINE_ENTRY_POINT} to be called
+     */
+    @T1X_TEMPLATE(INVOKEINTERFACE$void$inlinecache$instrumented)
+    @Slot(-1)
+    public static Address invokeinterfaceVoid(InterfaceInlineCache cache, Reference receiver, MethodProfile mpo, int mpoIndex) {
+        return Snippets.selectInterfaceMethod(receiver, cache, mpo, mpoIndex).
+            plus(BASELINE_ENTRY_POINT.offset() - VTABLE_ENTRY_POINT.offset());
+    }
+
     /**
      * Resolves a method referenced by an INVOKESPECIAL instruction.
      *
@@ -291,6 +291,18 @@ public enum T1XTemplateTag {
     INVOKEVIRTUAL$double$instrumented,
     INVOKEVIRTUAL$reference$instrumented,
     INVOKEVIRTUAL$word$instrumented,
+    INVOKEVIRTUAL$void$inlinecache,
+    INVOKEVIRTUAL$float$inlinecache,
+    INVOKEVIRTUAL$long$inlinecache,
+    INVOKEVIRTUAL$double$inlinecache,
+    INVOKEVIRTUAL$reference$inlinecache,
+    INVOKEVIRTUAL$word$inlinecache,
+    INVOKEVIRTUAL$void$inlinecache$instrumented,
+    INVOKEVIRTUAL$float$inlinecache$instrumented,
+    INVOKEVIRTUAL$long$inlinecache$instrumented,
+    INVOKEVIRTUAL$double$inlinecache$instrumented,
+    INVOKEVIRTUAL$reference$inlinecache$instrumented,
+    INVOKEVIRTUAL$word$inlinecache$instrumented,
 
     INVOKESPECIAL$void,
     INVOKESPECIAL$float,
@@ -336,6 +348,18 @@ public enum T1XTemplateTag {
     INVOKEINTERFACE$double$instrumented,
     INVOKEINTERFACE$reference$instrumented,
     INVOKEINTERFACE$word$instrumented,
+    INVOKEINTERFACE$void$inlinecache,
+    INVOKEINTERFACE$float$inlinecache,
+    INVOKEINTERFACE$long$inlinecache,
+    INVOKEINTERFACE$double$inlinecache,
+    INVOKEINTERFACE$reference$inlinecache,
+    INVOKEINTERFACE$word$inlinecache,
+    INVOKEINTERFACE$void$inlinecache$instrumented,
+    INVOKEINTERFACE$float$inlinecache$instrumented,
+    INVOKEINTERFACE$long$inlinecache$instrumented,
+    INVOKEINTERFACE$double$inlinecache$instrumented,
+    INVOKEINTERFACE$reference$inlinecache$instrumented,
+    INVOKEINTERFACE$word$inlinecache$instrumented,
 
     INVOKEHANDLE(-1),
     LINKTOVIRTUAL(-1),
@@ -444,6 +468,13 @@ public enum T1XTemplateTag {
      */
     public T1XTemplateTag instrumented;
 
+    /**
+     * Denotes the version of this template that dispatches through an {@linkplain com.sun.max.vm.runtime.InlineCache
+     * inline cache}. This field is only non-null for the resolved and instrumented templates of INVOKEVIRTUAL and
+     * INVOKEINTERFACE.
+     */
+    public T1XTemplateTag inlineCached;
+
     // Checkstyle: stop
     @HOSTED_ONLY
     // Checkstyle: resume
@@ -478,7 +509,14 @@ public enum T1XTemplateTag {
     private static void initProps() {
         for (T1XTemplateTag bt : values()) {
             String name = bt.name();
-            if (name.contains("$init")) {
+            if (name.contains("$inlinecache")) {
+                if (name.endsWith("$instrumented")) {
+                    valueOf(name.replace("$inlinecache", "")).inlineCached = bt;
+                    valueOf(name.substring(0, name.indexOf("$instrumented"))).instrumented = bt;
+                } else {
+                    valueOf(name.replace("$inlinecache", "$resolved")).inlineCached = bt;
+                }
+            } else if (name.contains("$init")) {
                 String uninitName = name.replace("$init", "");
                 T1XTemplateTag uninit = valueOf(uninitName);
                 assert uninit != null;
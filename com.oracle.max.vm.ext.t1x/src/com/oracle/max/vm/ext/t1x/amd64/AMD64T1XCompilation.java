@@ -80,6 +80,11 @@ public class AMD64T1XCompilation extends T1XCompilation {
         frame = new AMD64JVMSFrameLayout(maxLocals, maxStack, maxParams, T1XTargetMethod.templateSlots());
     }
 
+    @Override
+    protected boolean useTOSCaching() {
+        return true;
+    }
+
     @Override
     public void decStack(int numberOfSlots) {
         assert numberOfSlots > 0;
@@ -622,7 +627,7 @@ public class AMD64T1XCompilation extends T1XCompilation {
             // Compute relative offset
             final int target = bciToPos[targetBCI];
             if (cc == null) {
-                do_profileBackwardBranch();
+                do_profileBackwardBranch(targetBCI);
                 do_safepointAtBackwardBranch(bci);
                 asm.jmp(target, false);
             } else {
@@ -636,7 +641,7 @@ public class AMD64T1XCompilation extends T1XCompilation {
                 assert buf.position() - jumpNotTakenPos == 2;
 
                 // Start of "taken" code
-                do_profileBackwardBranch();
+                do_profileBackwardBranch(targetBCI);
                 do_safepointAtBackwardBranch(bci);
                 asm.jmp(target, false);
 
@@ -155,6 +155,22 @@ public class VMAT1XCompilation extends AMD64T1XCompilation {
         }
     }
 
+    /**
+     * The advice templates dispatch on the method actor, so inline caches are only used with the default templates.
+     */
+    @Override
+    protected boolean useInlineCaches() {
+        return templates == defaultTemplates && super.useInlineCaches();
+    }
+
+    /**
+     * The advice for loads, stores and stack operations reads the operand stack directly, so pushes are never deferred.
+     */
+    @Override
+    protected boolean useTOSCaching() {
+        return false;
+    }
+
     @Override
     protected void assignInvokeVirtualTemplateParameters(VirtualMethodActor virtualMethodActor, int receiverStackIndex) {
         if (templates == defaultTemplates) {
@@ -25,6 +25,7 @@
 #include <maxve.h>
 /* No mmap function on MaxVE (yet)*/
 #else
+#include <stdio.h>
 #include <stdlib.h>
 #include <errno.h>
 #include <string.h>
@@ -195,6 +196,43 @@ Address virtualMemory_mapFileAtFixedAddress(Address address, Size size, jint fd,
     return check_mmap_result(mmap((void *) address, (size_t) size, PROT, MAP_PRIVATE | MAP_FIXED, fd, (off_t) offset));
 }
 
+/*
+ * Returns true if the kernel may back anonymous memory with transparent huge pages, i.e.,
+ * if transparent huge pages are supported and not disabled system-wide.
+ */
+jboolean virtualMemory_largePagesAvailable(void) {
+#if os_LINUX && defined(MADV_HUGEPAGE)
+    char mode[128];
+    FILE *file = fopen("/sys/kernel/mm/transparent_hugepage/enabled", "r");
+    if (file == NULL) {
+        return JNI_FALSE;
+    }
+    char *line = fgets(mode, sizeof(mode), file);
+    fclose(file);
+    return line != NULL && strstr(mode, "[never]") == NULL ? JNI_TRUE : JNI_FALSE;
+#else
+    return JNI_FALSE;
+#endif
+}
+
+/*
+ * Advises the kernel to back the specified range of anonymous memory with huge pages.
+ * Returns true if the advice was accepted.
+ */
+jboolean virtualMemory_adviseLargePages(Address address, Size size) {
+#if os_LINUX && defined(MADV_HUGEPAGE)
+    if (madvise((void *) address, (size_t) size, MADV_HUGEPAGE) != 0) {
+#if log_MMAP
+        log_println("madvise(%p, %p, MADV_HUGEPAGE) failed: %s", address, size, strerror(errno));
+#endif
+        return JNI_FALSE;
+    }
+    return JNI_TRUE;
+#else
+    return JNI_FALSE;
+#endif
+}
+
 // end of conditional exclusion of mmap stuff not available (or used) on MAXVE
 #endif // MAXVE
 
@@ -49,6 +49,9 @@ extern Size virtualMemory_getPhysicalMemorySize(void);
 
 extern Address virtualMemory_pageAlign(Address address);
 
+extern jboolean virtualMemory_largePagesAvailable(void);
+extern jboolean virtualMemory_adviseLargePages(Address address, Size size);
+
 extern void virtualMemory_protectPages(Address address, int count);
 extern void virtualMemory_unprotectPages(Address address, int count);
 #endif /*__virtualMemory_h__*/
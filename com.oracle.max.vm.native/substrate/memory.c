@@ -53,3 +53,20 @@ jint memory_deallocate(Address pointer) {
     free((void *) pointer);
     return 0;
 }
+
+/*
+ * The C library implementations of the following are tuned for the host
+ * processor (e.g. 'rep stosb'/'rep movsb' or AVX on AMD64, NEON on AArch64).
+ */
+
+void memory_setBytes(Address pointer, Size numberOfBytes, jint value) {
+    memset((void *) pointer, value, (size_t) numberOfBytes);
+}
+
+void memory_copyBytes(Address fromPointer, Address toPointer, Size numberOfBytes) {
+    memmove((void *) toPointer, (const void *) fromPointer, (size_t) numberOfBytes);
+}
+
+jint memory_compareBytes(Address pointer1, Address pointer2, Size numberOfBytes) {
+    return memcmp((const void *) pointer1, (const void *) pointer2, (size_t) numberOfBytes);
+}
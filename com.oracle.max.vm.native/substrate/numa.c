@@ -45,4 +45,11 @@ int numaNodeOfCPU(int cpuID) {
 
 int numaPageSize() {
     return numa_pagesize();
-}
\ No newline at end of file
+}
+int numaMaxNode() {
+    return numa_max_node();
+}
+
+void numaBindMemory(jlong address, jlong size, int node) {
+    numa_tonode_memory((void *) address, (size_t) size, node);
+}
@@ -360,6 +360,12 @@ public class MaxineTesterConfiguration {
         maxvmConfig("mx256m", "-Xmx256m");
         maxvmConfig("mx512m", "-Xmx512m");
 
+        // Configuration to stress aborts of concurrent marking (requires a gcx.gen.mse image, e.g. gmse or gmsed)
+        maxvmConfig("cmabort", "-Xmx512m", "-XX:+UseConcurrentMarking", "-XX:ConcurrentMarkingInitiatingOccupancy=10", "-XX:ConcurrentMarkingAbortInterval=5000");
+
+        // Configuration to run the parallel scavenge of the semi-space and generational semi-space heap schemes
+        maxvmConfig("pscavenge", "-Xmx256m", "-XX:+ParallelScavenge", "-XX:ParallelGCThreads=4");
+
         // VEE 2010 benchmarking configurations
         maxvmConfig("noGC", "-XX:+DisableGC", "-Xmx3g");
         maxvmConfig("GC", "-Xmx2g");
@@ -399,6 +399,7 @@ public class JTConfig {
         jtt.jasm.Invokevirtual_private00.class,
         jtt.jasm.Invokevirtual_private01.class,
         jtt.jasm.Loop00.class,
+        jtt.jasm.OSR_Stack02.class,
         jtt.jdk.AtomicIntegerFieldUpdater01.class,
         jtt.jdk.Class_getName.class,
         jtt.jdk.EnumMap01.class,
@@ -410,6 +411,8 @@ public class JTConfig {
         jtt.jdk.System_setOut.class,
         jtt.jdk.Thread_setName.class,
         jtt.jdk.UnsafeAccess01.class,
+        jtt.jdk.Unsafe_copyMemory01.class,
+        jtt.jdk.Unsafe_setMemory01.class,
         jtt.jni.JNI_FieldBoolean.class,
         jtt.jni.JNI_IdentityBoolean.class,
         jtt.jni.JNI_IdentityByte.class,
@@ -540,10 +543,16 @@ public class JTConfig {
         jtt.loop.Loop12.class,
         jtt.loop.Loop13.class,
         jtt.loop.Loop14.class,
+        jtt.loop.LoopHoist01.class,
+        jtt.loop.LoopHoist02.class,
+        jtt.loop.LoopHoist03.class,
         jtt.loop.LoopInline.class,
         jtt.loop.LoopNewInstance.class,
         jtt.loop.LoopPhi.class,
         jtt.loop.LoopSwitch01.class,
+        jtt.loop.LoopUnroll01.class,
+        jtt.loop.LoopUnroll02.class,
+        jtt.loop.LoopUnroll03.class,
         jtt.max.CodePointer01.class,
         jtt.max.CodePointer02.class,
         jtt.max.Fold01.class,
@@ -555,11 +564,15 @@ public class JTConfig {
         jtt.max.ImmortalHeap_switching.class,
         jtt.max.Inline01.class,
         jtt.max.Invoke_except01.class,
+        jtt.max.PinnedArray_gc.class,
         jtt.max.Prototyping01.class,
         jtt.max.Unsigned_idiv01.class,
         jtt.max.Unsigned_irem01.class,
         jtt.max.Unsigned_ldiv01.class,
         jtt.max.Unsigned_lrem01.class,
+        jtt.max.WorkStealingDeque_sequential.class,
+        jtt.max.WorkStealingDeque_steal.class,
+        jtt.max.WorkStealingDeque_termination.class,
         jtt.micro.ArrayCompare01.class,
         jtt.micro.ArrayCompare02.class,
         jtt.micro.BC_invokevirtual2.class,
@@ -601,6 +614,10 @@ public class JTConfig {
         jtt.optimize.ABCE_02.class,
         jtt.optimize.ABCE_03.class,
         jtt.optimize.ArrayCopy01.class,
+        jtt.optimize.ArrayCopy02.class,
+        jtt.optimize.ArrayCopy03.class,
+        jtt.optimize.ArrayCopy04.class,
+        jtt.optimize.ArrayFill01.class,
         jtt.optimize.ArrayLength01.class,
         jtt.optimize.BC_idiv_16.class,
         jtt.optimize.BC_idiv_4.class,
@@ -619,6 +636,8 @@ public class JTConfig {
         jtt.optimize.Conditional01.class,
         jtt.optimize.DeadCode01.class,
         jtt.optimize.DeadCode02.class,
+        jtt.optimize.EA_Deopt01.class,
+        jtt.optimize.EA_Lock01.class,
         jtt.optimize.Fold_Cast01.class,
         jtt.optimize.Fold_Convert01.class,
         jtt.optimize.Fold_Convert02.class,
@@ -637,6 +656,8 @@ public class JTConfig {
         jtt.optimize.Fold_Math01.class,
         jtt.optimize.Inline01.class,
         jtt.optimize.Inline02.class,
+        jtt.optimize.InlineCache_Interface01.class,
+        jtt.optimize.InlineCache_Virtual01.class,
         jtt.optimize.LLE_01.class,
         jtt.optimize.List_reorder_bug.class,
         jtt.optimize.NCE_01.class,
@@ -657,6 +678,9 @@ public class JTConfig {
         jtt.optimize.Narrow_short01.class,
         jtt.optimize.Narrow_short02.class,
         jtt.optimize.Narrow_short03.class,
+        jtt.optimize.OSR_Locals01.class,
+        jtt.optimize.OSR_Monitor01.class,
+        jtt.optimize.OSR_Stack01.class,
         jtt.optimize.Phi01.class,
         jtt.optimize.Phi02.class,
         jtt.optimize.Phi03.class,
@@ -675,6 +699,8 @@ public class JTConfig {
         jtt.optimize.Reduce_Long04.class,
         jtt.optimize.Reduce_LongShift01.class,
         jtt.optimize.Reduce_LongShift02.class,
+        jtt.optimize.Speculation_Interface01.class,
+        jtt.optimize.Speculation_Virtual01.class,
         jtt.optimize.Switch01.class,
         jtt.optimize.Switch02.class,
         jtt.optimize.TypeCastElem.class,
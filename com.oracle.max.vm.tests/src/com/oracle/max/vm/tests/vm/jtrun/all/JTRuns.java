@@ -451,391 +451,417 @@ public class JTRuns {
             case 366: jtt_jasm_Invokevirtual_private00(); break;
             case 367: jtt_jasm_Invokevirtual_private01(); break;
             case 368: jtt_jasm_Loop00(); break;
-            case 369: jtt_jdk_AtomicIntegerFieldUpdater01(); break;
-            case 370: jtt_jdk_Class_getName(); break;
-            case 371: jtt_jdk_EnumMap01(); break;
-            case 372: jtt_jdk_EnumMap02(); break;
-            case 373: jtt_jdk_System_currentTimeMillis01(); break;
-            case 374: jtt_jdk_System_currentTimeMillis02(); break;
-            case 375: jtt_jdk_System_nanoTime01(); break;
-            case 376: jtt_jdk_System_nanoTime02(); break;
-            case 377: jtt_jdk_System_setOut(); break;
-            case 378: jtt_jdk_Thread_setName(); break;
-            case 379: jtt_jdk_UnsafeAccess01(); break;
-            case 380: jtt_jni_JNI_FieldBoolean(); break;
-            case 381: jtt_jni_JNI_IdentityBoolean(); break;
-            case 382: jtt_jni_JNI_IdentityByte(); break;
-            case 383: jtt_jni_JNI_IdentityChar(); break;
-            case 384: jtt_jni_JNI_IdentityFloat(); break;
-            case 385: jtt_jni_JNI_IdentityInt(); break;
-            case 386: jtt_jni_JNI_IdentityLong(); break;
-            case 387: jtt_jni_JNI_IdentityObject(); break;
-            case 388: jtt_jni_JNI_IdentityShort(); break;
-            case 389: jtt_jni_JNI_ManyObjectParameters(); break;
-            case 390: jtt_jni_JNI_ManyParameters(); break;
-            case 391: jtt_jni_JNI_Nop(); break;
-            case 392: jtt_jni_JNI_OverflowArguments(); break;
-            case 393: jtt_jvmni_JVM_ArrayCopy01(); break;
-            case 394: jtt_jvmni_JVM_GetClassContext01(); break;
-            case 395: jtt_jvmni_JVM_GetClassContext02(); break;
-            case 396: jtt_jvmni_JVM_GetFreeMemory01(); break;
-            case 397: jtt_jvmni_JVM_GetMaxMemory01(); break;
-            case 398: jtt_jvmni_JVM_GetTotalMemory01(); break;
-            case 399: jtt_jvmni_JVM_IsNaN01(); break;
-            case 400: jtt_lang_Boxed_TYPE_01(); break;
-            case 401: jtt_lang_Bridge_method01(); break;
-            case 402: jtt_lang_ClassLoader_loadClass01(); break;
-            case 403: jtt_lang_Class_Literal01(); break;
-            case 404: jtt_lang_Class_asSubclass01(); break;
-            case 405: jtt_lang_Class_cast01(); break;
-            case 406: jtt_lang_Class_cast02(); break;
-            case 407: jtt_lang_Class_forName01(); break;
-            case 408: jtt_lang_Class_forName02(); break;
-            case 409: jtt_lang_Class_forName03(); break;
-            case 410: jtt_lang_Class_forName04(); break;
-            case 411: jtt_lang_Class_forName05(); break;
-            case 412: jtt_lang_Class_getAnnotation01(); break;
-            case 413: jtt_lang_Class_getComponentType01(); break;
-            case 414: jtt_lang_Class_getInterfaces01(); break;
-            case 415: jtt_lang_Class_getName01(); break;
-            case 416: jtt_lang_Class_getName02(); break;
-            case 417: jtt_lang_Class_getSimpleName01(); break;
-            case 418: jtt_lang_Class_getSimpleName02(); break;
-            case 419: jtt_lang_Class_getSuperClass01(); break;
-            case 420: jtt_lang_Class_isArray01(); break;
-            case 421: jtt_lang_Class_isAssignableFrom01(); break;
-            case 422: jtt_lang_Class_isAssignableFrom02(); break;
-            case 423: jtt_lang_Class_isAssignableFrom03(); break;
-            case 424: jtt_lang_Class_isInstance01(); break;
-            case 425: jtt_lang_Class_isInstance02(); break;
-            case 426: jtt_lang_Class_isInstance03(); break;
-            case 427: jtt_lang_Class_isInstance04(); break;
-            case 428: jtt_lang_Class_isInstance05(); break;
-            case 429: jtt_lang_Class_isInstance06(); break;
-            case 430: jtt_lang_Class_isInterface01(); break;
-            case 431: jtt_lang_Class_isPrimitive01(); break;
-            case 432: jtt_lang_Double_01(); break;
-            case 433: jtt_lang_Double_toString(); break;
-            case 434: jtt_lang_Float_01(); break;
-            case 435: jtt_lang_Float_02(); break;
-            case 436: jtt_lang_Float_03(); break;
-            case 437: jtt_lang_Int_greater01(); break;
-            case 438: jtt_lang_Int_greater02(); break;
-            case 439: jtt_lang_Int_greater03(); break;
-            case 440: jtt_lang_Int_greaterEqual01(); break;
-            case 441: jtt_lang_Int_greaterEqual02(); break;
-            case 442: jtt_lang_Int_greaterEqual03(); break;
-            case 443: jtt_lang_Int_less01(); break;
-            case 444: jtt_lang_Int_less02(); break;
-            case 445: jtt_lang_Int_less03(); break;
-            case 446: jtt_lang_Int_lessEqual01(); break;
-            case 447: jtt_lang_Int_lessEqual02(); break;
-            case 448: jtt_lang_Int_lessEqual03(); break;
-            case 449: jtt_lang_JDK_ClassLoaders01(); break;
-            case 450: jtt_lang_JDK_ClassLoaders02(); break;
-            case 451: jtt_lang_Long_greater01(); break;
-            case 452: jtt_lang_Long_greater02(); break;
-            case 453: jtt_lang_Long_greater03(); break;
-            case 454: jtt_lang_Long_greaterEqual01(); break;
-            case 455: jtt_lang_Long_greaterEqual02(); break;
-            case 456: jtt_lang_Long_greaterEqual03(); break;
-            case 457: jtt_lang_Long_less01(); break;
-            case 458: jtt_lang_Long_less02(); break;
-            case 459: jtt_lang_Long_less03(); break;
-            case 460: jtt_lang_Long_lessEqual01(); break;
-            case 461: jtt_lang_Long_lessEqual02(); break;
-            case 462: jtt_lang_Long_lessEqual03(); break;
-            case 463: jtt_lang_Long_reverseBytes01(); break;
-            case 464: jtt_lang_Long_reverseBytes02(); break;
-            case 465: jtt_lang_Math_abs(); break;
-            case 466: jtt_lang_Math_cos(); break;
-            case 467: jtt_lang_Math_log(); break;
-            case 468: jtt_lang_Math_log10(); break;
-            case 469: jtt_lang_Math_pow(); break;
-            case 470: jtt_lang_Math_sin(); break;
-            case 471: jtt_lang_Math_sqrt(); break;
-            case 472: jtt_lang_Math_tan(); break;
-            case 473: jtt_lang_Miranda_method01(); break;
-            case 474: jtt_lang_Object_clone01(); break;
-            case 475: jtt_lang_Object_clone02(); break;
-            case 476: jtt_lang_Object_equals01(); break;
-            case 477: jtt_lang_Object_getClass01(); break;
-            case 478: jtt_lang_Object_hashCode01(); break;
-            case 479: jtt_lang_Object_notify01(); break;
-            case 480: jtt_lang_Object_notify02(); break;
-            case 481: jtt_lang_Object_notifyAll01(); break;
-            case 482: jtt_lang_Object_notifyAll02(); break;
-            case 483: jtt_lang_Object_toString01(); break;
-            case 484: jtt_lang_Object_toString02(); break;
-            case 485: jtt_lang_Object_wait01(); break;
-            case 486: jtt_lang_Object_wait02(); break;
-            case 487: jtt_lang_Object_wait03(); break;
-            case 488: jtt_lang_ProcessEnvironment_init(); break;
-            case 489: jtt_lang_Runtime_exec01(); break;
-            case 490: jtt_lang_StringCoding_Scale(); break;
-            case 491: jtt_lang_String_intern01(); break;
-            case 492: jtt_lang_String_intern02(); break;
-            case 493: jtt_lang_String_intern03(); break;
-            case 494: jtt_lang_String_valueOf01(); break;
-            case 495: jtt_lang_System_identityHashCode01(); break;
-            case 496: jtt_loop_DegeneratedLoop(); break;
-            case 497: jtt_loop_Loop01(); break;
-            case 498: jtt_loop_Loop02(); break;
-            case 499: jtt_loop_Loop03(); break;
-            case 500: jtt_loop_Loop04(); break;
-            case 501: jtt_loop_Loop05(); break;
-            case 502: jtt_loop_Loop06(); break;
-            case 503: jtt_loop_Loop07(); break;
-            case 504: jtt_loop_Loop08(); break;
-            case 505: jtt_loop_Loop09(); break;
-            case 506: jtt_loop_Loop11(); break;
-            case 507: jtt_loop_Loop12(); break;
-            case 508: jtt_loop_Loop13(); break;
-            case 509: jtt_loop_Loop14(); break;
-            case 510: jtt_loop_LoopInline(); break;
-            case 511: jtt_loop_LoopNewInstance(); break;
-            case 512: jtt_loop_LoopPhi(); break;
-            case 513: jtt_loop_LoopSwitch01(); break;
-            case 514: jtt_max_CodePointer01(); break;
-            case 515: jtt_max_CodePointer02(); break;
-            case 516: jtt_max_Fold01(); break;
-            case 517: jtt_max_Fold02(); break;
-            case 518: jtt_max_Fold03(); break;
-            case 519: jtt_max_Hub_Subtype01(); break;
-            case 520: jtt_max_Hub_Subtype02(); break;
-            case 521: jtt_max_ImmortalHeap_allocation(); break;
-            case 522: jtt_max_ImmortalHeap_switching(); break;
-            case 523: jtt_max_Inline01(); break;
-            case 524: jtt_max_Invoke_except01(); break;
-            case 525: jtt_max_Prototyping01(); break;
-            case 526: jtt_max_Unsigned_idiv01(); break;
-            case 527: jtt_max_Unsigned_irem01(); break;
-            case 528: jtt_max_Unsigned_ldiv01(); break;
-            case 529: jtt_max_Unsigned_lrem01(); break;
-            case 530: jtt_micro_ArrayCompare01(); break;
-            case 531: jtt_micro_ArrayCompare02(); break;
-            case 532: jtt_micro_BC_invokevirtual2(); break;
-            case 533: jtt_micro_BigByteParams01(); break;
-            case 534: jtt_micro_BigDoubleParams02(); break;
-            case 535: jtt_micro_BigFloatParams01(); break;
-            case 536: jtt_micro_BigFloatParams02(); break;
-            case 537: jtt_micro_BigIntParams01(); break;
-            case 538: jtt_micro_BigIntParams02(); break;
-            case 539: jtt_micro_BigInterfaceParams01(); break;
-            case 540: jtt_micro_BigLongParams02(); break;
-            case 541: jtt_micro_BigMixedParams01(); break;
-            case 542: jtt_micro_BigMixedParams02(); break;
-            case 543: jtt_micro_BigMixedParams03(); break;
-            case 544: jtt_micro_BigObjectParams01(); break;
-            case 545: jtt_micro_BigObjectParams02(); break;
-            case 546: jtt_micro_BigParamsAlignment(); break;
-            case 547: jtt_micro_BigShortParams01(); break;
-            case 548: jtt_micro_BigVirtualParams01(); break;
-            case 549: jtt_micro_Bubblesort(); break;
-            case 550: jtt_micro_Fibonacci(); break;
-            case 551: jtt_micro_InvokeVirtual_01(); break;
-            case 552: jtt_micro_InvokeVirtual_02(); break;
-            case 553: jtt_micro_Matrix01(); break;
-            case 554: jtt_micro_ReferenceMap01(); break;
-            case 555: jtt_micro_StrangeFrames(); break;
-            case 556: jtt_micro_String_format01(); break;
-            case 557: jtt_micro_String_format02(); break;
-            case 558: jtt_micro_VarArgs_String01(); break;
-            case 559: jtt_micro_VarArgs_boolean01(); break;
-            case 560: jtt_micro_VarArgs_byte01(); break;
-            case 561: jtt_micro_VarArgs_char01(); break;
-            case 562: jtt_micro_VarArgs_double01(); break;
-            case 563: jtt_micro_VarArgs_float01(); break;
-            case 564: jtt_micro_VarArgs_int01(); break;
-            case 565: jtt_micro_VarArgs_long01(); break;
-            case 566: jtt_micro_VarArgs_short01(); break;
-            case 567: jtt_optimize_ABCE_01(); break;
-            case 568: jtt_optimize_ABCE_02(); break;
-            case 569: jtt_optimize_ABCE_03(); break;
-            case 570: jtt_optimize_ArrayCopy01(); break;
-            case 571: jtt_optimize_ArrayLength01(); break;
-            case 572: jtt_optimize_BC_idiv_16(); break;
-            case 573: jtt_optimize_BC_idiv_4(); break;
-            case 574: jtt_optimize_BC_imul_16(); break;
-            case 575: jtt_optimize_BC_imul_4(); break;
-            case 576: jtt_optimize_BC_ldiv_16(); break;
-            case 577: jtt_optimize_BC_ldiv_4(); break;
-            case 578: jtt_optimize_BC_lmul_16(); break;
-            case 579: jtt_optimize_BC_lmul_4(); break;
-            case 580: jtt_optimize_BC_lshr_C16(); break;
-            case 581: jtt_optimize_BC_lshr_C24(); break;
-            case 582: jtt_optimize_BC_lshr_C32(); break;
-            case 583: jtt_optimize_BlockSkip01(); break;
-            case 584: jtt_optimize_Cmov01(); break;
-            case 585: jtt_optimize_Cmov02(); break;
-            case 586: jtt_optimize_Conditional01(); break;
-            case 587: jtt_optimize_DeadCode01(); break;
-            case 588: jtt_optimize_DeadCode02(); break;
-            case 589: jtt_optimize_Fold_Cast01(); break;
-            case 590: jtt_optimize_Fold_Convert01(); break;
-            case 591: jtt_optimize_Fold_Convert02(); break;
-            case 592: jtt_optimize_Fold_Convert03(); break;
-            case 593: jtt_optimize_Fold_Convert04(); break;
-            case 594: jtt_optimize_Fold_Double01(); break;
-            case 595: jtt_optimize_Fold_Double02(); break;
-            case 596: jtt_optimize_Fold_Double03(); break;
-            case 597: jtt_optimize_Fold_Float01(); break;
-            case 598: jtt_optimize_Fold_Float02(); break;
-            case 599: jtt_optimize_Fold_InstanceOf01(); break;
-            case 600: jtt_optimize_Fold_Int01(); break;
-            case 601: jtt_optimize_Fold_Int02(); break;
-            case 602: jtt_optimize_Fold_Long01(); break;
-            case 603: jtt_optimize_Fold_Long02(); break;
-            case 604: jtt_optimize_Fold_Math01(); break;
-            case 605: jtt_optimize_Inline01(); break;
-            case 606: jtt_optimize_Inline02(); break;
-            case 607: jtt_optimize_LLE_01(); break;
-            case 608: jtt_optimize_List_reorder_bug(); break;
-            case 609: jtt_optimize_NCE_01(); break;
-            case 610: jtt_optimize_NCE_02(); break;
-            case 611: jtt_optimize_NCE_03(); break;
-            case 612: jtt_optimize_NCE_04(); break;
-            case 613: jtt_optimize_NCE_FlowSensitive01(); break;
-            case 614: jtt_optimize_NCE_FlowSensitive02(); break;
-            case 615: jtt_optimize_NCE_FlowSensitive03(); break;
-            case 616: jtt_optimize_NCE_FlowSensitive04(); break;
-            case 617: jtt_optimize_NCE_FlowSensitive05(); break;
-            case 618: jtt_optimize_Narrow_byte01(); break;
-            case 619: jtt_optimize_Narrow_byte02(); break;
-            case 620: jtt_optimize_Narrow_byte03(); break;
-            case 621: jtt_optimize_Narrow_char01(); break;
-            case 622: jtt_optimize_Narrow_char02(); break;
-            case 623: jtt_optimize_Narrow_char03(); break;
-            case 624: jtt_optimize_Narrow_short01(); break;
-            case 625: jtt_optimize_Narrow_short02(); break;
-            case 626: jtt_optimize_Narrow_short03(); break;
-            case 627: jtt_optimize_Phi01(); break;
-            case 628: jtt_optimize_Phi02(); break;
-            case 629: jtt_optimize_Phi03(); break;
-            case 630: jtt_optimize_Reduce_Convert01(); break;
-            case 631: jtt_optimize_Reduce_Double01(); break;
-            case 632: jtt_optimize_Reduce_Float01(); break;
-            case 633: jtt_optimize_Reduce_Int01(); break;
-            case 634: jtt_optimize_Reduce_Int02(); break;
-            case 635: jtt_optimize_Reduce_Int03(); break;
-            case 636: jtt_optimize_Reduce_Int04(); break;
-            case 637: jtt_optimize_Reduce_IntShift01(); break;
-            case 638: jtt_optimize_Reduce_IntShift02(); break;
-            case 639: jtt_optimize_Reduce_Long01(); break;
-            case 640: jtt_optimize_Reduce_Long02(); break;
-            case 641: jtt_optimize_Reduce_Long03(); break;
-            case 642: jtt_optimize_Reduce_Long04(); break;
-            case 643: jtt_optimize_Reduce_LongShift01(); break;
-            case 644: jtt_optimize_Reduce_LongShift02(); break;
-            case 645: jtt_optimize_Switch01(); break;
-            case 646: jtt_optimize_Switch02(); break;
-            case 647: jtt_optimize_TypeCastElem(); break;
-            case 648: jtt_optimize_VN_Cast01(); break;
-            case 649: jtt_optimize_VN_Cast02(); break;
-            case 650: jtt_optimize_VN_Convert01(); break;
-            case 651: jtt_optimize_VN_Convert02(); break;
-            case 652: jtt_optimize_VN_Double01(); break;
-            case 653: jtt_optimize_VN_Double02(); break;
-            case 654: jtt_optimize_VN_Field01(); break;
-            case 655: jtt_optimize_VN_Field02(); break;
-            case 656: jtt_optimize_VN_Float01(); break;
-            case 657: jtt_optimize_VN_Float02(); break;
-            case 658: jtt_optimize_VN_InstanceOf01(); break;
-            case 659: jtt_optimize_VN_InstanceOf02(); break;
-            case 660: jtt_optimize_VN_InstanceOf03(); break;
-            case 661: jtt_optimize_VN_Int01(); break;
-            case 662: jtt_optimize_VN_Int02(); break;
-            case 663: jtt_optimize_VN_Int03(); break;
-            case 664: jtt_optimize_VN_Long01(); break;
-            case 665: jtt_optimize_VN_Long02(); break;
-            case 666: jtt_optimize_VN_Long03(); break;
-            case 667: jtt_optimize_VN_Loop01(); break;
-            case 668: jtt_reflect_Array_get01(); break;
-            case 669: jtt_reflect_Array_get02(); break;
-            case 670: jtt_reflect_Array_get03(); break;
-            case 671: jtt_reflect_Array_getBoolean01(); break;
-            case 672: jtt_reflect_Array_getByte01(); break;
-            case 673: jtt_reflect_Array_getChar01(); break;
-            case 674: jtt_reflect_Array_getDouble01(); break;
-            case 675: jtt_reflect_Array_getFloat01(); break;
-            case 676: jtt_reflect_Array_getInt01(); break;
-            case 677: jtt_reflect_Array_getLength01(); break;
-            case 678: jtt_reflect_Array_getLong01(); break;
-            case 679: jtt_reflect_Array_getShort01(); break;
-            case 680: jtt_reflect_Array_newInstance01(); break;
-            case 681: jtt_reflect_Array_newInstance02(); break;
-            case 682: jtt_reflect_Array_newInstance03(); break;
-            case 683: jtt_reflect_Array_newInstance04(); break;
-            case 684: jtt_reflect_Array_newInstance05(); break;
-            case 685: jtt_reflect_Array_newInstance06(); break;
-            case 686: jtt_reflect_Array_set01(); break;
-            case 687: jtt_reflect_Array_set02(); break;
-            case 688: jtt_reflect_Array_set03(); break;
-            case 689: jtt_reflect_Array_setBoolean01(); break;
-            case 690: jtt_reflect_Array_setByte01(); break;
-            case 691: jtt_reflect_Array_setChar01(); break;
-            case 692: jtt_reflect_Array_setDouble01(); break;
-            case 693: jtt_reflect_Array_setFloat01(); break;
-            case 694: jtt_reflect_Array_setInt01(); break;
-            case 695: jtt_reflect_Array_setLong01(); break;
-            case 696: jtt_reflect_Array_setShort01(); break;
-            case 697: jtt_reflect_Class_getDeclaredField01(); break;
-            case 698: jtt_reflect_Class_getDeclaredMethod01(); break;
-            case 699: jtt_reflect_Class_getField01(); break;
-            case 700: jtt_reflect_Class_getField02(); break;
-            case 701: jtt_reflect_Class_getMethod01(); break;
-            case 702: jtt_reflect_Class_getMethod02(); break;
-            case 703: jtt_reflect_Class_newInstance01(); break;
-            case 704: jtt_reflect_Class_newInstance02(); break;
-            case 705: jtt_reflect_Class_newInstance03(); break;
-            case 706: jtt_reflect_Class_newInstance06(); break;
-            case 707: jtt_reflect_Class_newInstance07(); break;
-            case 708: jtt_reflect_Field_get01(); break;
-            case 709: jtt_reflect_Field_get02(); break;
-            case 710: jtt_reflect_Field_get03(); break;
-            case 711: jtt_reflect_Field_get04(); break;
-            case 712: jtt_reflect_Field_getType01(); break;
-            case 713: jtt_reflect_Field_set01(); break;
-            case 714: jtt_reflect_Field_set02(); break;
-            case 715: jtt_reflect_Field_set03(); break;
-            case 716: jtt_reflect_Invoke_except01(); break;
-            case 717: jtt_reflect_Invoke_main01(); break;
-            case 718: jtt_reflect_Invoke_main02(); break;
-            case 719: jtt_reflect_Invoke_main03(); break;
-            case 720: jtt_reflect_Invoke_virtual01(); break;
-            case 721: jtt_reflect_Method_getParameterTypes01(); break;
-            case 722: jtt_reflect_Method_getReturnType01(); break;
-            case 723: jtt_reflect_Reflection_getCallerClass01(); break;
-            case 724: jtt_reflect_Reflection_getCallerClass02(); break;
-            case 725: jtt_threads_Monitor_contended01(); break;
-            case 726: jtt_threads_Monitor_notowner01(); break;
-            case 727: jtt_threads_Monitorenter01(); break;
-            case 728: jtt_threads_Monitorenter02(); break;
-            case 729: jtt_threads_Object_wait01(); break;
-            case 730: jtt_threads_Object_wait02(); break;
-            case 731: jtt_threads_Object_wait03(); break;
-            case 732: jtt_threads_Object_wait04(); break;
-            case 733: jtt_threads_ThreadLocal01(); break;
-            case 734: jtt_threads_ThreadLocal02(); break;
-            case 735: jtt_threads_ThreadLocal03(); break;
-            case 736: jtt_threads_Thread_currentThread01(); break;
-            case 737: jtt_threads_Thread_getState01(); break;
-            case 738: jtt_threads_Thread_getState02(); break;
-            case 739: jtt_threads_Thread_holdsLock01(); break;
-            case 740: jtt_threads_Thread_isAlive01(); break;
-            case 741: jtt_threads_Thread_isInterrupted01(); break;
-            case 742: jtt_threads_Thread_isInterrupted02(); break;
-            case 743: jtt_threads_Thread_isInterrupted03(); break;
-            case 744: jtt_threads_Thread_isInterrupted04(); break;
-            case 745: jtt_threads_Thread_isInterrupted05(); break;
-            case 746: jtt_threads_Thread_join01(); break;
-            case 747: jtt_threads_Thread_join02(); break;
-            case 748: jtt_threads_Thread_join03(); break;
-            case 749: jtt_threads_Thread_new01(); break;
-            case 750: jtt_threads_Thread_new02(); break;
-            case 751: jtt_threads_Thread_setPriority01(); break;
-            case 752: jtt_threads_Thread_sleep01(); break;
-            case 753: jtt_threads_Thread_yield01(); break;
+            case 369: jtt_jasm_OSR_Stack02(); break;
+            case 370: jtt_jdk_AtomicIntegerFieldUpdater01(); break;
+            case 371: jtt_jdk_Class_getName(); break;
+            case 372: jtt_jdk_EnumMap01(); break;
+            case 373: jtt_jdk_EnumMap02(); break;
+            case 374: jtt_jdk_System_currentTimeMillis01(); break;
+            case 375: jtt_jdk_System_currentTimeMillis02(); break;
+            case 376: jtt_jdk_System_nanoTime01(); break;
+            case 377: jtt_jdk_System_nanoTime02(); break;
+            case 378: jtt_jdk_System_setOut(); break;
+            case 379: jtt_jdk_Thread_setName(); break;
+            case 380: jtt_jdk_UnsafeAccess01(); break;
+            case 381: jtt_jdk_Unsafe_copyMemory01(); break;
+            case 382: jtt_jdk_Unsafe_setMemory01(); break;
+            case 383: jtt_jni_JNI_FieldBoolean(); break;
+            case 384: jtt_jni_JNI_IdentityBoolean(); break;
+            case 385: jtt_jni_JNI_IdentityByte(); break;
+            case 386: jtt_jni_JNI_IdentityChar(); break;
+            case 387: jtt_jni_JNI_IdentityFloat(); break;
+            case 388: jtt_jni_JNI_IdentityInt(); break;
+            case 389: jtt_jni_JNI_IdentityLong(); break;
+            case 390: jtt_jni_JNI_IdentityObject(); break;
+            case 391: jtt_jni_JNI_IdentityShort(); break;
+            case 392: jtt_jni_JNI_ManyObjectParameters(); break;
+            case 393: jtt_jni_JNI_ManyParameters(); break;
+            case 394: jtt_jni_JNI_Nop(); break;
+            case 395: jtt_jni_JNI_OverflowArguments(); break;
+            case 396: jtt_jvmni_JVM_ArrayCopy01(); break;
+            case 397: jtt_jvmni_JVM_GetClassContext01(); break;
+            case 398: jtt_jvmni_JVM_GetClassContext02(); break;
+            case 399: jtt_jvmni_JVM_GetFreeMemory01(); break;
+            case 400: jtt_jvmni_JVM_GetMaxMemory01(); break;
+            case 401: jtt_jvmni_JVM_GetTotalMemory01(); break;
+            case 402: jtt_jvmni_JVM_IsNaN01(); break;
+            case 403: jtt_lang_Boxed_TYPE_01(); break;
+            case 404: jtt_lang_Bridge_method01(); break;
+            case 405: jtt_lang_ClassLoader_loadClass01(); break;
+            case 406: jtt_lang_Class_Literal01(); break;
+            case 407: jtt_lang_Class_asSubclass01(); break;
+            case 408: jtt_lang_Class_cast01(); break;
+            case 409: jtt_lang_Class_cast02(); break;
+            case 410: jtt_lang_Class_forName01(); break;
+            case 411: jtt_lang_Class_forName02(); break;
+            case 412: jtt_lang_Class_forName03(); break;
+            case 413: jtt_lang_Class_forName04(); break;
+            case 414: jtt_lang_Class_forName05(); break;
+            case 415: jtt_lang_Class_getAnnotation01(); break;
+            case 416: jtt_lang_Class_getComponentType01(); break;
+            case 417: jtt_lang_Class_getInterfaces01(); break;
+            case 418: jtt_lang_Class_getName01(); break;
+            case 419: jtt_lang_Class_getName02(); break;
+            case 420: jtt_lang_Class_getSimpleName01(); break;
+            case 421: jtt_lang_Class_getSimpleName02(); break;
+            case 422: jtt_lang_Class_getSuperClass01(); break;
+            case 423: jtt_lang_Class_isArray01(); break;
+            case 424: jtt_lang_Class_isAssignableFrom01(); break;
+            case 425: jtt_lang_Class_isAssignableFrom02(); break;
+            case 426: jtt_lang_Class_isAssignableFrom03(); break;
+            case 427: jtt_lang_Class_isInstance01(); break;
+            case 428: jtt_lang_Class_isInstance02(); break;
+            case 429: jtt_lang_Class_isInstance03(); break;
+            case 430: jtt_lang_Class_isInstance04(); break;
+            case 431: jtt_lang_Class_isInstance05(); break;
+            case 432: jtt_lang_Class_isInstance06(); break;
+            case 433: jtt_lang_Class_isInterface01(); break;
+            case 434: jtt_lang_Class_isPrimitive01(); break;
+            case 435: jtt_lang_Double_01(); break;
+            case 436: jtt_lang_Double_toString(); break;
+            case 437: jtt_lang_Float_01(); break;
+            case 438: jtt_lang_Float_02(); break;
+            case 439: jtt_lang_Float_03(); break;
+            case 440: jtt_lang_Int_greater01(); break;
+            case 441: jtt_lang_Int_greater02(); break;
+            case 442: jtt_lang_Int_greater03(); break;
+            case 443: jtt_lang_Int_greaterEqual01(); break;
+            case 444: jtt_lang_Int_greaterEqual02(); break;
+            case 445: jtt_lang_Int_greaterEqual03(); break;
+            case 446: jtt_lang_Int_less01(); break;
+            case 447: jtt_lang_Int_less02(); break;
+            case 448: jtt_lang_Int_less03(); break;
+            case 449: jtt_lang_Int_lessEqual01(); break;
+            case 450: jtt_lang_Int_lessEqual02(); break;
+            case 451: jtt_lang_Int_lessEqual03(); break;
+            case 452: jtt_lang_JDK_ClassLoaders01(); break;
+            case 453: jtt_lang_JDK_ClassLoaders02(); break;
+            case 454: jtt_lang_Long_greater01(); break;
+            case 455: jtt_lang_Long_greater02(); break;
+            case 456: jtt_lang_Long_greater03(); break;
+            case 457: jtt_lang_Long_greaterEqual01(); break;
+            case 458: jtt_lang_Long_greaterEqual02(); break;
+            case 459: jtt_lang_Long_greaterEqual03(); break;
+            case 460: jtt_lang_Long_less01(); break;
+            case 461: jtt_lang_Long_less02(); break;
+            case 462: jtt_lang_Long_less03(); break;
+            case 463: jtt_lang_Long_lessEqual01(); break;
+            case 464: jtt_lang_Long_lessEqual02(); break;
+            case 465: jtt_lang_Long_lessEqual03(); break;
+            case 466: jtt_lang_Long_reverseBytes01(); break;
+            case 467: jtt_lang_Long_reverseBytes02(); break;
+            case 468: jtt_lang_Math_abs(); break;
+            case 469: jtt_lang_Math_cos(); break;
+            case 470: jtt_lang_Math_log(); break;
+            case 471: jtt_lang_Math_log10(); break;
+            case 472: jtt_lang_Math_pow(); break;
+            case 473: jtt_lang_Math_sin(); break;
+            case 474: jtt_lang_Math_sqrt(); break;
+            case 475: jtt_lang_Math_tan(); break;
+            case 476: jtt_lang_Miranda_method01(); break;
+            case 477: jtt_lang_Object_clone01(); break;
+            case 478: jtt_lang_Object_clone02(); break;
+            case 479: jtt_lang_Object_equals01(); break;
+            case 480: jtt_lang_Object_getClass01(); break;
+            case 481: jtt_lang_Object_hashCode01(); break;
+            case 482: jtt_lang_Object_notify01(); break;
+            case 483: jtt_lang_Object_notify02(); break;
+            case 484: jtt_lang_Object_notifyAll01(); break;
+            case 485: jtt_lang_Object_notifyAll02(); break;
+            case 486: jtt_lang_Object_toString01(); break;
+            case 487: jtt_lang_Object_toString02(); break;
+            case 488: jtt_lang_Object_wait01(); break;
+            case 489: jtt_lang_Object_wait02(); break;
+            case 490: jtt_lang_Object_wait03(); break;
+            case 491: jtt_lang_ProcessEnvironment_init(); break;
+            case 492: jtt_lang_Runtime_exec01(); break;
+            case 493: jtt_lang_StringCoding_Scale(); break;
+            case 494: jtt_lang_String_intern01(); break;
+            case 495: jtt_lang_String_intern02(); break;
+            case 496: jtt_lang_String_intern03(); break;
+            case 497: jtt_lang_String_valueOf01(); break;
+            case 498: jtt_lang_System_identityHashCode01(); break;
+            case 499: jtt_loop_DegeneratedLoop(); break;
+            case 500: jtt_loop_Loop01(); break;
+            case 501: jtt_loop_Loop02(); break;
+            case 502: jtt_loop_Loop03(); break;
+            case 503: jtt_loop_Loop04(); break;
+            case 504: jtt_loop_Loop05(); break;
+            case 505: jtt_loop_Loop06(); break;
+            case 506: jtt_loop_Loop07(); break;
+            case 507: jtt_loop_Loop08(); break;
+            case 508: jtt_loop_Loop09(); break;
+            case 509: jtt_loop_Loop11(); break;
+            case 510: jtt_loop_Loop12(); break;
+            case 511: jtt_loop_Loop13(); break;
+            case 512: jtt_loop_Loop14(); break;
+            case 513: jtt_loop_LoopHoist01(); break;
+            case 514: jtt_loop_LoopHoist02(); break;
+            case 515: jtt_loop_LoopHoist03(); break;
+            case 516: jtt_loop_LoopInline(); break;
+            case 517: jtt_loop_LoopNewInstance(); break;
+            case 518: jtt_loop_LoopPhi(); break;
+            case 519: jtt_loop_LoopSwitch01(); break;
+            case 520: jtt_loop_LoopUnroll01(); break;
+            case 521: jtt_loop_LoopUnroll02(); break;
+            case 522: jtt_loop_LoopUnroll03(); break;
+            case 523: jtt_max_CodePointer01(); break;
+            case 524: jtt_max_CodePointer02(); break;
+            case 525: jtt_max_Fold01(); break;
+            case 526: jtt_max_Fold02(); break;
+            case 527: jtt_max_Fold03(); break;
+            case 528: jtt_max_Hub_Subtype01(); break;
+            case 529: jtt_max_Hub_Subtype02(); break;
+            case 530: jtt_max_ImmortalHeap_allocation(); break;
+            case 531: jtt_max_ImmortalHeap_switching(); break;
+            case 532: jtt_max_Inline01(); break;
+            case 533: jtt_max_Invoke_except01(); break;
+            case 534: jtt_max_PinnedArray_gc(); break;
+            case 535: jtt_max_Prototyping01(); break;
+            case 536: jtt_max_Unsigned_idiv01(); break;
+            case 537: jtt_max_Unsigned_irem01(); break;
+            case 538: jtt_max_Unsigned_ldiv01(); break;
+            case 539: jtt_max_Unsigned_lrem01(); break;
+            case 540: jtt_max_WorkStealingDeque_sequential(); break;
+            case 541: jtt_max_WorkStealingDeque_steal(); break;
+            case 542: jtt_max_WorkStealingDeque_termination(); break;
+            case 543: jtt_micro_ArrayCompare01(); break;
+            case 544: jtt_micro_ArrayCompare02(); break;
+            case 545: jtt_micro_BC_invokevirtual2(); break;
+            case 546: jtt_micro_BigByteParams01(); break;
+            case 547: jtt_micro_BigDoubleParams02(); break;
+            case 548: jtt_micro_BigFloatParams01(); break;
+            case 549: jtt_micro_BigFloatParams02(); break;
+            case 550: jtt_micro_BigIntParams01(); break;
+            case 551: jtt_micro_BigIntParams02(); break;
+            case 552: jtt_micro_BigInterfaceParams01(); break;
+            case 553: jtt_micro_BigLongParams02(); break;
+            case 554: jtt_micro_BigMixedParams01(); break;
+            case 555: jtt_micro_BigMixedParams02(); break;
+            case 556: jtt_micro_BigMixedParams03(); break;
+            case 557: jtt_micro_BigObjectParams01(); break;
+            case 558: jtt_micro_BigObjectParams02(); break;
+            case 559: jtt_micro_BigParamsAlignment(); break;
+            case 560: jtt_micro_BigShortParams01(); break;
+            case 561: jtt_micro_BigVirtualParams01(); break;
+            case 562: jtt_micro_Bubblesort(); break;
+            case 563: jtt_micro_Fibonacci(); break;
+            case 564: jtt_micro_InvokeVirtual_01(); break;
+            case 565: jtt_micro_InvokeVirtual_02(); break;
+            case 566: jtt_micro_Matrix01(); break;
+            case 567: jtt_micro_ReferenceMap01(); break;
+            case 568: jtt_micro_StrangeFrames(); break;
+            case 569: jtt_micro_String_format01(); break;
+            case 570: jtt_micro_String_format02(); break;
+            case 571: jtt_micro_VarArgs_String01(); break;
+            case 572: jtt_micro_VarArgs_boolean01(); break;
+            case 573: jtt_micro_VarArgs_byte01(); break;
+            case 574: jtt_micro_VarArgs_char01(); break;
+            case 575: jtt_micro_VarArgs_double01(); break;
+            case 576: jtt_micro_VarArgs_float01(); break;
+            case 577: jtt_micro_VarArgs_int01(); break;
+            case 578: jtt_micro_VarArgs_long01(); break;
+            case 579: jtt_micro_VarArgs_short01(); break;
+            case 580: jtt_optimize_ABCE_01(); break;
+            case 581: jtt_optimize_ABCE_02(); break;
+            case 582: jtt_optimize_ABCE_03(); break;
+            case 583: jtt_optimize_ArrayCopy01(); break;
+            case 584: jtt_optimize_ArrayCopy02(); break;
+            case 585: jtt_optimize_ArrayCopy03(); break;
+            case 586: jtt_optimize_ArrayCopy04(); break;
+            case 587: jtt_optimize_ArrayFill01(); break;
+            case 588: jtt_optimize_ArrayLength01(); break;
+            case 589: jtt_optimize_BC_idiv_16(); break;
+            case 590: jtt_optimize_BC_idiv_4(); break;
+            case 591: jtt_optimize_BC_imul_16(); break;
+            case 592: jtt_optimize_BC_imul_4(); break;
+            case 593: jtt_optimize_BC_ldiv_16(); break;
+            case 594: jtt_optimize_BC_ldiv_4(); break;
+            case 595: jtt_optimize_BC_lmul_16(); break;
+            case 596: jtt_optimize_BC_lmul_4(); break;
+            case 597: jtt_optimize_BC_lshr_C16(); break;
+            case 598: jtt_optimize_BC_lshr_C24(); break;
+            case 599: jtt_optimize_BC_lshr_C32(); break;
+            case 600: jtt_optimize_BlockSkip01(); break;
+            case 601: jtt_optimize_Cmov01(); break;
+            case 602: jtt_optimize_Cmov02(); break;
+            case 603: jtt_optimize_Conditional01(); break;
+            case 604: jtt_optimize_DeadCode01(); break;
+            case 605: jtt_optimize_DeadCode02(); break;
+            case 606: jtt_optimize_EA_Deopt01(); break;
+            case 607: jtt_optimize_EA_Lock01(); break;
+            case 608: jtt_optimize_Fold_Cast01(); break;
+            case 609: jtt_optimize_Fold_Convert01(); break;
+            case 610: jtt_optimize_Fold_Convert02(); break;
+            case 611: jtt_optimize_Fold_Convert03(); break;
+            case 612: jtt_optimize_Fold_Convert04(); break;
+            case 613: jtt_optimize_Fold_Double01(); break;
+            case 614: jtt_optimize_Fold_Double02(); break;
+            case 615: jtt_optimize_Fold_Double03(); break;
+            case 616: jtt_optimize_Fold_Float01(); break;
+            case 617: jtt_optimize_Fold_Float02(); break;
+            case 618: jtt_optimize_Fold_InstanceOf01(); break;
+            case 619: jtt_optimize_Fold_Int01(); break;
+            case 620: jtt_optimize_Fold_Int02(); break;
+            case 621: jtt_optimize_Fold_Long01(); break;
+            case 622: jtt_optimize_Fold_Long02(); break;
+            case 623: jtt_optimize_Fold_Math01(); break;
+            case 624: jtt_optimize_Inline01(); break;
+            case 625: jtt_optimize_Inline02(); break;
+            case 626: jtt_optimize_InlineCache_Interface01(); break;
+            case 627: jtt_optimize_InlineCache_Virtual01(); break;
+            case 628: jtt_optimize_LLE_01(); break;
+            case 629: jtt_optimize_List_reorder_bug(); break;
+            case 630: jtt_optimize_NCE_01(); break;
+            case 631: jtt_optimize_NCE_02(); break;
+            case 632: jtt_optimize_NCE_03(); break;
+            case 633: jtt_optimize_NCE_04(); break;
+            case 634: jtt_optimize_NCE_FlowSensitive01(); break;
+            case 635: jtt_optimize_NCE_FlowSensitive02(); break;
+            case 636: jtt_optimize_NCE_FlowSensitive03(); break;
+            case 637: jtt_optimize_NCE_FlowSensitive04(); break;
+            case 638: jtt_optimize_NCE_FlowSensitive05(); break;
+            case 639: jtt_optimize_Narrow_byte01(); break;
+            case 640: jtt_optimize_Narrow_byte02(); break;
+            case 641: jtt_optimize_Narrow_byte03(); break;
+            case 642: jtt_optimize_Narrow_char01(); break;
+            case 643: jtt_optimize_Narrow_char02(); break;
+            case 644: jtt_optimize_Narrow_char03(); break;
+            case 645: jtt_optimize_Narrow_short01(); break;
+            case 646: jtt_optimize_Narrow_short02(); break;
+            case 647: jtt_optimize_Narrow_short03(); break;
+            case 648: jtt_optimize_OSR_Locals01(); break;
+            case 649: jtt_optimize_OSR_Monitor01(); break;
+            case 650: jtt_optimize_OSR_Stack01(); break;
+            case 651: jtt_optimize_Phi01(); break;
+            case 652: jtt_optimize_Phi02(); break;
+            case 653: jtt_optimize_Phi03(); break;
+            case 654: jtt_optimize_Reduce_Convert01(); break;
+            case 655: jtt_optimize_Reduce_Double01(); break;
+            case 656: jtt_optimize_Reduce_Float01(); break;
+            case 657: jtt_optimize_Reduce_Int01(); break;
+            case 658: jtt_optimize_Reduce_Int02(); break;
+            case 659: jtt_optimize_Reduce_Int03(); break;
+            case 660: jtt_optimize_Reduce_Int04(); break;
+            case 661: jtt_optimize_Reduce_IntShift01(); break;
+            case 662: jtt_optimize_Reduce_IntShift02(); break;
+            case 663: jtt_optimize_Reduce_Long01(); break;
+            case 664: jtt_optimize_Reduce_Long02(); break;
+            case 665: jtt_optimize_Reduce_Long03(); break;
+            case 666: jtt_optimize_Reduce_Long04(); break;
+            case 667: jtt_optimize_Reduce_LongShift01(); break;
+            case 668: jtt_optimize_Reduce_LongShift02(); break;
+            case 669: jtt_optimize_Speculation_Interface01(); break;
+            case 670: jtt_optimize_Speculation_Virtual01(); break;
+            case 671: jtt_optimize_Switch01(); break;
+            case 672: jtt_optimize_Switch02(); break;
+            case 673: jtt_optimize_TypeCastElem(); break;
+            case 674: jtt_optimize_VN_Cast01(); break;
+            case 675: jtt_optimize_VN_Cast02(); break;
+            case 676: jtt_optimize_VN_Convert01(); break;
+            case 677: jtt_optimize_VN_Convert02(); break;
+            case 678: jtt_optimize_VN_Double01(); break;
+            case 679: jtt_optimize_VN_Double02(); break;
+            case 680: jtt_optimize_VN_Field01(); break;
+            case 681: jtt_optimize_VN_Field02(); break;
+            case 682: jtt_optimize_VN_Float01(); break;
+            case 683: jtt_optimize_VN_Float02(); break;
+            case 684: jtt_optimize_VN_InstanceOf01(); break;
+            case 685: jtt_optimize_VN_InstanceOf02(); break;
+            case 686: jtt_optimize_VN_InstanceOf03(); break;
+            case 687: jtt_optimize_VN_Int01(); break;
+            case 688: jtt_optimize_VN_Int02(); break;
+            case 689: jtt_optimize_VN_Int03(); break;
+            case 690: jtt_optimize_VN_Long01(); break;
+            case 691: jtt_optimize_VN_Long02(); break;
+            case 692: jtt_optimize_VN_Long03(); break;
+            case 693: jtt_optimize_VN_Loop01(); break;
+            case 694: jtt_reflect_Array_get01(); break;
+            case 695: jtt_reflect_Array_get02(); break;
+            case 696: jtt_reflect_Array_get03(); break;
+            case 697: jtt_reflect_Array_getBoolean01(); break;
+            case 698: jtt_reflect_Array_getByte01(); break;
+            case 699: jtt_reflect_Array_getChar01(); break;
+            case 700: jtt_reflect_Array_getDouble01(); break;
+            case 701: jtt_reflect_Array_getFloat01(); break;
+            case 702: jtt_reflect_Array_getInt01(); break;
+            case 703: jtt_reflect_Array_getLength01(); break;
+            case 704: jtt_reflect_Array_getLong01(); break;
+            case 705: jtt_reflect_Array_getShort01(); break;
+            case 706: jtt_reflect_Array_newInstance01(); break;
+            case 707: jtt_reflect_Array_newInstance02(); break;
+            case 708: jtt_reflect_Array_newInstance03(); break;
+            case 709: jtt_reflect_Array_newInstance04(); break;
+            case 710: jtt_reflect_Array_newInstance05(); break;
+            case 711: jtt_reflect_Array_newInstance06(); break;
+            case 712: jtt_reflect_Array_set01(); break;
+            case 713: jtt_reflect_Array_set02(); break;
+            case 714: jtt_reflect_Array_set03(); break;
+            case 715: jtt_reflect_Array_setBoolean01(); break;
+            case 716: jtt_reflect_Array_setByte01(); break;
+            case 717: jtt_reflect_Array_setChar01(); break;
+            case 718: jtt_reflect_Array_setDouble01(); break;
+            case 719: jtt_reflect_Array_setFloat01(); break;
+            case 720: jtt_reflect_Array_setInt01(); break;
+            case 721: jtt_reflect_Array_setLong01(); break;
+            case 722: jtt_reflect_Array_setShort01(); break;
+            case 723: jtt_reflect_Class_getDeclaredField01(); break;
+            case 724: jtt_reflect_Class_getDeclaredMethod01(); break;
+            case 725: jtt_reflect_Class_getField01(); break;
+            case 726: jtt_reflect_Class_getField02(); break;
+            case 727: jtt_reflect_Class_getMethod01(); break;
+            case 728: jtt_reflect_Class_getMethod02(); break;
+            case 729: jtt_reflect_Class_newInstance01(); break;
+            case 730: jtt_reflect_Class_newInstance02(); break;
+            case 731: jtt_reflect_Class_newInstance03(); break;
+            case 732: jtt_reflect_Class_newInstance06(); break;
+            case 733: jtt_reflect_Class_newInstance07(); break;
+            case 734: jtt_reflect_Field_get01(); break;
+            case 735: jtt_reflect_Field_get02(); break;
+            case 736: jtt_reflect_Field_get03(); break;
+            case 737: jtt_reflect_Field_get04(); break;
+            case 738: jtt_reflect_Field_getType01(); break;
+            case 739: jtt_reflect_Field_set01(); break;
+            case 740: jtt_reflect_Field_set02(); break;
+            case 741: jtt_reflect_Field_set03(); break;
+            case 742: jtt_reflect_Invoke_except01(); break;
+            case 743: jtt_reflect_Invoke_main01(); break;
+            case 744: jtt_reflect_Invoke_main02(); break;
+            case 745: jtt_reflect_Invoke_main03(); break;
+            case 746: jtt_reflect_Invoke_virtual01(); break;
+            case 747: jtt_reflect_Method_getParameterTypes01(); break;
+            case 748: jtt_reflect_Method_getReturnType01(); break;
+            case 749: jtt_reflect_Reflection_getCallerClass01(); break;
+            case 750: jtt_reflect_Reflection_getCallerClass02(); break;
+            case 751: jtt_threads_Monitor_contended01(); break;
+            case 752: jtt_threads_Monitor_notowner01(); break;
+            case 753: jtt_threads_Monitorenter01(); break;
+            case 754: jtt_threads_Monitorenter02(); break;
+            case 755: jtt_threads_Object_wait01(); break;
+            case 756: jtt_threads_Object_wait02(); break;
+            case 757: jtt_threads_Object_wait03(); break;
+            case 758: jtt_threads_Object_wait04(); break;
+            case 759: jtt_threads_ThreadLocal01(); break;
+            case 760: jtt_threads_ThreadLocal02(); break;
+            case 761: jtt_threads_ThreadLocal03(); break;
+            case 762: jtt_threads_Thread_currentThread01(); break;
+            case 763: jtt_threads_Thread_getState01(); break;
+            case 764: jtt_threads_Thread_getState02(); break;
+            case 765: jtt_threads_Thread_holdsLock01(); break;
+            case 766: jtt_threads_Thread_isAlive01(); break;
+            case 767: jtt_threads_Thread_isInterrupted01(); break;
+            case 768: jtt_threads_Thread_isInterrupted02(); break;
+            case 769: jtt_threads_Thread_isInterrupted03(); break;
+            case 770: jtt_threads_Thread_isInterrupted04(); break;
+            case 771: jtt_threads_Thread_isInterrupted05(); break;
+            case 772: jtt_threads_Thread_join01(); break;
+            case 773: jtt_threads_Thread_join02(); break;
+            case 774: jtt_threads_Thread_join03(); break;
+            case 775: jtt_threads_Thread_new01(); break;
+            case 776: jtt_threads_Thread_new02(); break;
+            case 777: jtt_threads_Thread_setPriority01(); break;
+            case 778: jtt_threads_Thread_sleep01(); break;
+            case 779: jtt_threads_Thread_yield01(); break;
         }
         return true;
     }
@@ -13307,6 +13333,34 @@ public class JTRuns {
             }
             pass();
         }
+        static void jtt_jasm_OSR_Stack02() {
+            begin("jtt.jasm.OSR_Stack02");
+            String runString = null;
+            try {
+            // (0) == 5L
+                runString = "(0)";
+                if (5L != jtt.jasm.OSR_Stack02.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (10) == 50L
+                runString = "(10)";
+                if (50L != jtt.jasm.OSR_Stack02.test(10)) {
+                    fail(runString);
+                    return;
+                }
+            // (200000) == 19999900005L
+                runString = "(200000)";
+                if (19999900005L != jtt.jasm.OSR_Stack02.test(200000)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
         static void jtt_jdk_AtomicIntegerFieldUpdater01() {
             begin("jtt.jdk.AtomicIntegerFieldUpdater01");
             String runString = null;
@@ -13525,6 +13579,182 @@ public class JTRuns {
             }
             pass();
         }
+        static void jtt_jdk_Unsafe_copyMemory01() {
+            begin("jtt.jdk.Unsafe_copyMemory01");
+            String runString = null;
+            try {
+            // (0) == true
+                runString = "(0)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == true
+                runString = "(1)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == true
+                runString = "(2)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (3) == true
+                runString = "(3)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(3)) {
+                    fail(runString);
+                    return;
+                }
+            // (4) == true
+                runString = "(4)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(4)) {
+                    fail(runString);
+                    return;
+                }
+            // (5) == true
+                runString = "(5)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(5)) {
+                    fail(runString);
+                    return;
+                }
+            // (6) == true
+                runString = "(6)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(6)) {
+                    fail(runString);
+                    return;
+                }
+            // (7) == true
+                runString = "(7)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(7)) {
+                    fail(runString);
+                    return;
+                }
+            // (8) == true
+                runString = "(8)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(8)) {
+                    fail(runString);
+                    return;
+                }
+            // (9) == true
+                runString = "(9)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(9)) {
+                    fail(runString);
+                    return;
+                }
+            // (10) == true
+                runString = "(10)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(10)) {
+                    fail(runString);
+                    return;
+                }
+            // (11) == true
+                runString = "(11)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(11)) {
+                    fail(runString);
+                    return;
+                }
+            // (12) == true
+                runString = "(12)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(12)) {
+                    fail(runString);
+                    return;
+                }
+            // (13) == true
+                runString = "(13)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(13)) {
+                    fail(runString);
+                    return;
+                }
+            // (14) == true
+                runString = "(14)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(14)) {
+                    fail(runString);
+                    return;
+                }
+            // (15) == true
+                runString = "(15)";
+                if (true != jtt.jdk.Unsafe_copyMemory01.test(15)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_jdk_Unsafe_setMemory01() {
+            begin("jtt.jdk.Unsafe_setMemory01");
+            String runString = null;
+            try {
+            // (0) == true
+                runString = "(0)";
+                if (true != jtt.jdk.Unsafe_setMemory01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == true
+                runString = "(1)";
+                if (true != jtt.jdk.Unsafe_setMemory01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == true
+                runString = "(2)";
+                if (true != jtt.jdk.Unsafe_setMemory01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (3) == true
+                runString = "(3)";
+                if (true != jtt.jdk.Unsafe_setMemory01.test(3)) {
+                    fail(runString);
+                    return;
+                }
+            // (4) == true
+                runString = "(4)";
+                if (true != jtt.jdk.Unsafe_setMemory01.test(4)) {
+                    fail(runString);
+                    return;
+                }
+            // (5) == true
+                runString = "(5)";
+                if (true != jtt.jdk.Unsafe_setMemory01.test(5)) {
+                    fail(runString);
+                    return;
+                }
+            // (6) == true
+                runString = "(6)";
+                if (true != jtt.jdk.Unsafe_setMemory01.test(6)) {
+                    fail(runString);
+                    return;
+                }
+            // (7) == true
+                runString = "(7)";
+                if (true != jtt.jdk.Unsafe_setMemory01.test(7)) {
+                    fail(runString);
+                    return;
+                }
+            // (8) == true
+                runString = "(8)";
+                if (true != jtt.jdk.Unsafe_setMemory01.test(8)) {
+                    fail(runString);
+                    return;
+                }
+            // (9) == true
+                runString = "(9)";
+                if (true != jtt.jdk.Unsafe_setMemory01.test(9)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
         static void jtt_jni_JNI_FieldBoolean() {
             begin("jtt.jni.JNI_FieldBoolean");
             String runString = null;
@@ -18533,6 +18763,120 @@ public class JTRuns {
             }
             pass();
         }
+        static void jtt_loop_LoopHoist01() {
+            begin("jtt.loop.LoopHoist01");
+            String runString = null;
+            try {
+            // (0) == 0
+                runString = "(0)";
+                if (0 != jtt.loop.LoopHoist01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == 40
+                runString = "(1)";
+                if (40 != jtt.loop.LoopHoist01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 82
+                runString = "(2)";
+                if (82 != jtt.loop.LoopHoist01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (10) == 490
+                runString = "(10)";
+                if (490 != jtt.loop.LoopHoist01.test(10)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_loop_LoopHoist02() {
+            begin("jtt.loop.LoopHoist02");
+            String runString = null;
+            try {
+            // (0) == 0
+                runString = "(0)";
+                if (0 != jtt.loop.LoopHoist02.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == !java.lang.NullPointerException
+                try {
+                    runString = "(1)";
+                    jtt.loop.LoopHoist02.test(1);
+                    fail(runString);
+                    return;
+                } catch (Throwable e) {
+                    if (e.getClass() != java.lang.NullPointerException.class) {
+                        fail(runString, e);
+                        return;
+                    }
+                }
+            // (2) == 0
+                runString = "(2)";
+                if (0 != jtt.loop.LoopHoist02.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (3) == 12
+                runString = "(3)";
+                if (12 != jtt.loop.LoopHoist02.test(3)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_loop_LoopHoist03() {
+            begin("jtt.loop.LoopHoist03");
+            String runString = null;
+            try {
+            // (0) == 0
+                runString = "(0)";
+                if (0 != jtt.loop.LoopHoist03.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (3) == 15
+                runString = "(3)";
+                if (15 != jtt.loop.LoopHoist03.test(3)) {
+                    fail(runString);
+                    return;
+                }
+            // (5) == 40
+                runString = "(5)";
+                if (40 != jtt.loop.LoopHoist03.test(5)) {
+                    fail(runString);
+                    return;
+                }
+            // (6) == -35
+                runString = "(6)";
+                if (-35 != jtt.loop.LoopHoist03.test(6)) {
+                    fail(runString);
+                    return;
+                }
+            // (100) == -35
+                runString = "(100)";
+                if (-35 != jtt.loop.LoopHoist03.test(100)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
         static void jtt_loop_LoopInline() {
             begin("jtt.loop.LoopInline");
             String runString = null;
@@ -18621,35 +18965,167 @@ public class JTRuns {
             }
             pass();
         }
-        static void jtt_max_CodePointer01() {
-            begin("jtt.max.CodePointer01");
+        static void jtt_loop_LoopUnroll01() {
+            begin("jtt.loop.LoopUnroll01");
             String runString = null;
             try {
-            // (0) == true
+            // (0) == 1L
                 runString = "(0)";
-                if (true != jtt.max.CodePointer01.test(0)) {
+                if (1L != jtt.loop.LoopUnroll01.test(0)) {
                     fail(runString);
                     return;
                 }
-            // (1) == true
+            // (1) == 2L
                 runString = "(1)";
-                if (true != jtt.max.CodePointer01.test(1)) {
+                if (2L != jtt.loop.LoopUnroll01.test(1)) {
                     fail(runString);
                     return;
                 }
-            // (2) == true
+            // (2) == 4L
                 runString = "(2)";
-                if (true != jtt.max.CodePointer01.test(2)) {
+                if (4L != jtt.loop.LoopUnroll01.test(2)) {
                     fail(runString);
                     return;
                 }
-            // (3) == false
+            // (3) == 8L
                 runString = "(3)";
-                if (false != jtt.max.CodePointer01.test(3)) {
+                if (8L != jtt.loop.LoopUnroll01.test(3)) {
                     fail(runString);
                     return;
                 }
-            } catch (Throwable t) {
+            // (10) == 189L
+                runString = "(10)";
+                if (189L != jtt.loop.LoopUnroll01.test(10)) {
+                    fail(runString);
+                    return;
+                }
+            // (11) == 288L
+                runString = "(11)";
+                if (288L != jtt.loop.LoopUnroll01.test(11)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_loop_LoopUnroll02() {
+            begin("jtt.loop.LoopUnroll02");
+            String runString = null;
+            try {
+            // (0) == -1
+                runString = "(0)";
+                if (-1 != jtt.loop.LoopUnroll02.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == -1
+                runString = "(1)";
+                if (-1 != jtt.loop.LoopUnroll02.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (5) == 20
+                runString = "(5)";
+                if (20 != jtt.loop.LoopUnroll02.test(5)) {
+                    fail(runString);
+                    return;
+                }
+            // (6) == 20
+                runString = "(6)";
+                if (20 != jtt.loop.LoopUnroll02.test(6)) {
+                    fail(runString);
+                    return;
+                }
+            // (7) == 42
+                runString = "(7)";
+                if (42 != jtt.loop.LoopUnroll02.test(7)) {
+                    fail(runString);
+                    return;
+                }
+            // (20) == 42
+                runString = "(20)";
+                if (42 != jtt.loop.LoopUnroll02.test(20)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_loop_LoopUnroll03() {
+            begin("jtt.loop.LoopUnroll03");
+            String runString = null;
+            try {
+            // (-5) == 1005
+                runString = "(-5)";
+                if (1005 != jtt.loop.LoopUnroll03.test(-5)) {
+                    fail(runString);
+                    return;
+                }
+            // (0) == 1000
+                runString = "(0)";
+                if (1000 != jtt.loop.LoopUnroll03.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == 2001
+                runString = "(1)";
+                if (2001 != jtt.loop.LoopUnroll03.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 3004
+                runString = "(2)";
+                if (3004 != jtt.loop.LoopUnroll03.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (7) == 8049
+                runString = "(7)";
+                if (8049 != jtt.loop.LoopUnroll03.test(7)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_max_CodePointer01() {
+            begin("jtt.max.CodePointer01");
+            String runString = null;
+            try {
+            // (0) == true
+                runString = "(0)";
+                if (true != jtt.max.CodePointer01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == true
+                runString = "(1)";
+                if (true != jtt.max.CodePointer01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == true
+                runString = "(2)";
+                if (true != jtt.max.CodePointer01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (3) == false
+                runString = "(3)";
+                if (false != jtt.max.CodePointer01.test(3)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
                 fail(runString, t);
                 return;
             }
@@ -18965,6 +19441,28 @@ public class JTRuns {
             }
             pass();
         }
+        static void jtt_max_PinnedArray_gc() {
+            begin("jtt.max.PinnedArray_gc");
+            String runString = null;
+            try {
+            // (256) == true
+                runString = "(256)";
+                if (true != jtt.max.PinnedArray_gc.test(256)) {
+                    fail(runString);
+                    return;
+                }
+            // (4096) == true
+                runString = "(4096)";
+                if (true != jtt.max.PinnedArray_gc.test(4096)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
         static void jtt_max_Prototyping01() {
             begin("jtt.max.Prototyping01");
             String runString = null;
@@ -19111,6 +19609,78 @@ public class JTRuns {
             }
             pass();
         }
+        static void jtt_max_WorkStealingDeque_sequential() {
+            begin("jtt.max.WorkStealingDeque_sequential");
+            String runString = null;
+            try {
+            // (5) == true
+                runString = "(5)";
+                if (true != jtt.max.WorkStealingDeque_sequential.test(5)) {
+                    fail(runString);
+                    return;
+                }
+            // (8) == true
+                runString = "(8)";
+                if (true != jtt.max.WorkStealingDeque_sequential.test(8)) {
+                    fail(runString);
+                    return;
+                }
+            // (64) == true
+                runString = "(64)";
+                if (true != jtt.max.WorkStealingDeque_sequential.test(64)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_max_WorkStealingDeque_steal() {
+            begin("jtt.max.WorkStealingDeque_steal");
+            String runString = null;
+            try {
+            // (1) == true
+                runString = "(1)";
+                if (true != jtt.max.WorkStealingDeque_steal.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (3) == true
+                runString = "(3)";
+                if (true != jtt.max.WorkStealingDeque_steal.test(3)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_max_WorkStealingDeque_termination() {
+            begin("jtt.max.WorkStealingDeque_termination");
+            String runString = null;
+            try {
+            // (2) == true
+                runString = "(2)";
+                if (true != jtt.max.WorkStealingDeque_termination.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (4) == true
+                runString = "(4)";
+                if (true != jtt.max.WorkStealingDeque_termination.test(4)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
         static void jtt_micro_ArrayCompare01() {
             begin("jtt.micro.ArrayCompare01");
             String runString = null;
@@ -20829,71 +21399,609 @@ public class JTRuns {
                         return;
                     }
                 }
-            // (-1,0,0) == !java.lang.IndexOutOfBoundsException
-                try {
-                    runString = "(-1,0,0)";
-                    jtt.optimize.ArrayCopy01.test(-1, 0, 0);
+            // (-1,0,0) == !java.lang.IndexOutOfBoundsException
+                try {
+                    runString = "(-1,0,0)";
+                    jtt.optimize.ArrayCopy01.test(-1, 0, 0);
+                    fail(runString);
+                    return;
+                } catch (Throwable e) {
+                    if (e.getClass() != java.lang.IndexOutOfBoundsException.class) {
+                        fail(runString, e);
+                        return;
+                    }
+                }
+            // (0,-1,0) == !java.lang.IndexOutOfBoundsException
+                try {
+                    runString = "(0,-1,0)";
+                    jtt.optimize.ArrayCopy01.test(0, -1, 0);
+                    fail(runString);
+                    return;
+                } catch (Throwable e) {
+                    if (e.getClass() != java.lang.IndexOutOfBoundsException.class) {
+                        fail(runString, e);
+                        return;
+                    }
+                }
+            // (0,0,2) == 0
+                runString = "(0,0,2)";
+                if (0 != jtt.optimize.ArrayCopy01.test(0, 0, 2)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,1,2) == !java.lang.IndexOutOfBoundsException
+                try {
+                    runString = "(0,1,2)";
+                    jtt.optimize.ArrayCopy01.test(0, 1, 2);
+                    fail(runString);
+                    return;
+                } catch (Throwable e) {
+                    if (e.getClass() != java.lang.IndexOutOfBoundsException.class) {
+                        fail(runString, e);
+                        return;
+                    }
+                }
+            // (1,0,2) == !java.lang.IndexOutOfBoundsException
+                try {
+                    runString = "(1,0,2)";
+                    jtt.optimize.ArrayCopy01.test(1, 0, 2);
+                    fail(runString);
+                    return;
+                } catch (Throwable e) {
+                    if (e.getClass() != java.lang.IndexOutOfBoundsException.class) {
+                        fail(runString, e);
+                        return;
+                    }
+                }
+            // (1,1,-1) == !java.lang.IndexOutOfBoundsException
+                try {
+                    runString = "(1,1,-1)";
+                    jtt.optimize.ArrayCopy01.test(1, 1, -1);
+                    fail(runString);
+                    return;
+                } catch (Throwable e) {
+                    if (e.getClass() != java.lang.IndexOutOfBoundsException.class) {
+                        fail(runString, e);
+                        return;
+                    }
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_optimize_ArrayCopy02() {
+            begin("jtt.optimize.ArrayCopy02");
+            String runString = null;
+            try {
+            // (0,0,1,30) == -4878374416493779403L
+                runString = "(0,0,1,30)";
+                if (-4878374416493779403L != jtt.optimize.ArrayCopy02.test(0, 0, 1, 30)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,1,0,30) == -4163577243662736843L
+                runString = "(0,1,0,30)";
+                if (-4163577243662736843L != jtt.optimize.ArrayCopy02.test(0, 1, 0, 30)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,3,11,25) == -6350854959035320547L
+                runString = "(0,3,11,25)";
+                if (-6350854959035320547L != jtt.optimize.ArrayCopy02.test(0, 3, 11, 25)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,11,3,25) == -8030802432161079027L
+                runString = "(0,11,3,25)";
+                if (-8030802432161079027L != jtt.optimize.ArrayCopy02.test(0, 11, 3, 25)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,5,5,10) == 908570518191425557L
+                runString = "(0,5,5,10)";
+                if (908570518191425557L != jtt.optimize.ArrayCopy02.test(0, 5, 5, 10)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,0,0,0) == 908570518191425557L
+                runString = "(0,0,0,0)";
+                if (908570518191425557L != jtt.optimize.ArrayCopy02.test(0, 0, 0, 0)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,0,8,33) == 4991698399543777293L
+                runString = "(0,0,8,33)";
+                if (4991698399543777293L != jtt.optimize.ArrayCopy02.test(0, 0, 8, 33)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,8,0,33) == -2768348062821339107L
+                runString = "(0,8,0,33)";
+                if (-2768348062821339107L != jtt.optimize.ArrayCopy02.test(0, 8, 0, 33)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,1,2,39) == -5823724871048354188L
+                runString = "(0,1,2,39)";
+                if (-5823724871048354188L != jtt.optimize.ArrayCopy02.test(0, 1, 2, 39)) {
+                    fail(runString);
+                    return;
+                }
+            // (1,0,1,30) == -4878374416493779403L
+                runString = "(1,0,1,30)";
+                if (-4878374416493779403L != jtt.optimize.ArrayCopy02.test(1, 0, 1, 30)) {
+                    fail(runString);
+                    return;
+                }
+            // (1,1,0,30) == -4163577243662736843L
+                runString = "(1,1,0,30)";
+                if (-4163577243662736843L != jtt.optimize.ArrayCopy02.test(1, 1, 0, 30)) {
+                    fail(runString);
+                    return;
+                }
+            // (1,3,11,25) == -6350854959035320547L
+                runString = "(1,3,11,25)";
+                if (-6350854959035320547L != jtt.optimize.ArrayCopy02.test(1, 3, 11, 25)) {
+                    fail(runString);
+                    return;
+                }
+            // (1,11,3,25) == -8030802432161079027L
+                runString = "(1,11,3,25)";
+                if (-8030802432161079027L != jtt.optimize.ArrayCopy02.test(1, 11, 3, 25)) {
+                    fail(runString);
+                    return;
+                }
+            // (1,5,5,10) == 908570518191425557L
+                runString = "(1,5,5,10)";
+                if (908570518191425557L != jtt.optimize.ArrayCopy02.test(1, 5, 5, 10)) {
+                    fail(runString);
+                    return;
+                }
+            // (1,0,0,0) == 908570518191425557L
+                runString = "(1,0,0,0)";
+                if (908570518191425557L != jtt.optimize.ArrayCopy02.test(1, 0, 0, 0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1,0,8,33) == 4991698399543777293L
+                runString = "(1,0,8,33)";
+                if (4991698399543777293L != jtt.optimize.ArrayCopy02.test(1, 0, 8, 33)) {
+                    fail(runString);
+                    return;
+                }
+            // (1,8,0,33) == -2768348062821339107L
+                runString = "(1,8,0,33)";
+                if (-2768348062821339107L != jtt.optimize.ArrayCopy02.test(1, 8, 0, 33)) {
+                    fail(runString);
+                    return;
+                }
+            // (1,1,2,39) == -5823724871048354188L
+                runString = "(1,1,2,39)";
+                if (-5823724871048354188L != jtt.optimize.ArrayCopy02.test(1, 1, 2, 39)) {
+                    fail(runString);
+                    return;
+                }
+            // (2,0,1,30) == -4878374416493779403L
+                runString = "(2,0,1,30)";
+                if (-4878374416493779403L != jtt.optimize.ArrayCopy02.test(2, 0, 1, 30)) {
+                    fail(runString);
+                    return;
+                }
+            // (2,1,0,30) == -4163577243662736843L
+                runString = "(2,1,0,30)";
+                if (-4163577243662736843L != jtt.optimize.ArrayCopy02.test(2, 1, 0, 30)) {
+                    fail(runString);
+                    return;
+                }
+            // (2,3,11,25) == -6350854959035320547L
+                runString = "(2,3,11,25)";
+                if (-6350854959035320547L != jtt.optimize.ArrayCopy02.test(2, 3, 11, 25)) {
+                    fail(runString);
+                    return;
+                }
+            // (2,11,3,25) == -8030802432161079027L
+                runString = "(2,11,3,25)";
+                if (-8030802432161079027L != jtt.optimize.ArrayCopy02.test(2, 11, 3, 25)) {
+                    fail(runString);
+                    return;
+                }
+            // (2,5,5,10) == 908570518191425557L
+                runString = "(2,5,5,10)";
+                if (908570518191425557L != jtt.optimize.ArrayCopy02.test(2, 5, 5, 10)) {
+                    fail(runString);
+                    return;
+                }
+            // (2,0,0,0) == 908570518191425557L
+                runString = "(2,0,0,0)";
+                if (908570518191425557L != jtt.optimize.ArrayCopy02.test(2, 0, 0, 0)) {
+                    fail(runString);
+                    return;
+                }
+            // (2,0,8,33) == 4991698399543777293L
+                runString = "(2,0,8,33)";
+                if (4991698399543777293L != jtt.optimize.ArrayCopy02.test(2, 0, 8, 33)) {
+                    fail(runString);
+                    return;
+                }
+            // (2,8,0,33) == -2768348062821339107L
+                runString = "(2,8,0,33)";
+                if (-2768348062821339107L != jtt.optimize.ArrayCopy02.test(2, 8, 0, 33)) {
+                    fail(runString);
+                    return;
+                }
+            // (2,1,2,39) == -5823724871048354188L
+                runString = "(2,1,2,39)";
+                if (-5823724871048354188L != jtt.optimize.ArrayCopy02.test(2, 1, 2, 39)) {
+                    fail(runString);
+                    return;
+                }
+            // (3,0,1,30) == -4878374416493779403L
+                runString = "(3,0,1,30)";
+                if (-4878374416493779403L != jtt.optimize.ArrayCopy02.test(3, 0, 1, 30)) {
+                    fail(runString);
+                    return;
+                }
+            // (3,1,0,30) == -4163577243662736843L
+                runString = "(3,1,0,30)";
+                if (-4163577243662736843L != jtt.optimize.ArrayCopy02.test(3, 1, 0, 30)) {
+                    fail(runString);
+                    return;
+                }
+            // (3,3,11,25) == -6350854959035320547L
+                runString = "(3,3,11,25)";
+                if (-6350854959035320547L != jtt.optimize.ArrayCopy02.test(3, 3, 11, 25)) {
+                    fail(runString);
+                    return;
+                }
+            // (3,11,3,25) == -8030802432161079027L
+                runString = "(3,11,3,25)";
+                if (-8030802432161079027L != jtt.optimize.ArrayCopy02.test(3, 11, 3, 25)) {
+                    fail(runString);
+                    return;
+                }
+            // (3,5,5,10) == 908570518191425557L
+                runString = "(3,5,5,10)";
+                if (908570518191425557L != jtt.optimize.ArrayCopy02.test(3, 5, 5, 10)) {
+                    fail(runString);
+                    return;
+                }
+            // (3,0,0,0) == 908570518191425557L
+                runString = "(3,0,0,0)";
+                if (908570518191425557L != jtt.optimize.ArrayCopy02.test(3, 0, 0, 0)) {
+                    fail(runString);
+                    return;
+                }
+            // (3,0,8,33) == 4991698399543777293L
+                runString = "(3,0,8,33)";
+                if (4991698399543777293L != jtt.optimize.ArrayCopy02.test(3, 0, 8, 33)) {
+                    fail(runString);
+                    return;
+                }
+            // (3,8,0,33) == -2768348062821339107L
+                runString = "(3,8,0,33)";
+                if (-2768348062821339107L != jtt.optimize.ArrayCopy02.test(3, 8, 0, 33)) {
+                    fail(runString);
+                    return;
+                }
+            // (3,1,2,39) == -5823724871048354188L
+                runString = "(3,1,2,39)";
+                if (-5823724871048354188L != jtt.optimize.ArrayCopy02.test(3, 1, 2, 39)) {
+                    fail(runString);
+                    return;
+                }
+            // (4,0,1,30) == -4878374416493779403L
+                runString = "(4,0,1,30)";
+                if (-4878374416493779403L != jtt.optimize.ArrayCopy02.test(4, 0, 1, 30)) {
+                    fail(runString);
+                    return;
+                }
+            // (4,1,0,30) == -4163577243662736843L
+                runString = "(4,1,0,30)";
+                if (-4163577243662736843L != jtt.optimize.ArrayCopy02.test(4, 1, 0, 30)) {
+                    fail(runString);
+                    return;
+                }
+            // (4,3,11,25) == -6350854959035320547L
+                runString = "(4,3,11,25)";
+                if (-6350854959035320547L != jtt.optimize.ArrayCopy02.test(4, 3, 11, 25)) {
+                    fail(runString);
+                    return;
+                }
+            // (4,11,3,25) == -8030802432161079027L
+                runString = "(4,11,3,25)";
+                if (-8030802432161079027L != jtt.optimize.ArrayCopy02.test(4, 11, 3, 25)) {
+                    fail(runString);
+                    return;
+                }
+            // (4,5,5,10) == 908570518191425557L
+                runString = "(4,5,5,10)";
+                if (908570518191425557L != jtt.optimize.ArrayCopy02.test(4, 5, 5, 10)) {
+                    fail(runString);
+                    return;
+                }
+            // (4,0,0,0) == 908570518191425557L
+                runString = "(4,0,0,0)";
+                if (908570518191425557L != jtt.optimize.ArrayCopy02.test(4, 0, 0, 0)) {
+                    fail(runString);
+                    return;
+                }
+            // (4,0,8,33) == 4991698399543777293L
+                runString = "(4,0,8,33)";
+                if (4991698399543777293L != jtt.optimize.ArrayCopy02.test(4, 0, 8, 33)) {
+                    fail(runString);
+                    return;
+                }
+            // (4,8,0,33) == -2768348062821339107L
+                runString = "(4,8,0,33)";
+                if (-2768348062821339107L != jtt.optimize.ArrayCopy02.test(4, 8, 0, 33)) {
+                    fail(runString);
+                    return;
+                }
+            // (4,1,2,39) == -5823724871048354188L
+                runString = "(4,1,2,39)";
+                if (-5823724871048354188L != jtt.optimize.ArrayCopy02.test(4, 1, 2, 39)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_optimize_ArrayCopy03() {
+            begin("jtt.optimize.ArrayCopy03");
+            String runString = null;
+            try {
+            // (0,0,8) == 1120932L
+                runString = "(0,0,8)";
+                if (1120932L != jtt.optimize.ArrayCopy03.test(0, 0, 8)) {
+                    fail(runString);
+                    return;
+                }
+            // (2,1,5) == 82789730L
+                runString = "(2,1,5)";
+                if (82789730L != jtt.optimize.ArrayCopy03.test(2, 1, 5)) {
+                    fail(runString);
+                    return;
+                }
+            // (8,8,0) == 96240132L
+                runString = "(8,8,0)";
+                if (96240132L != jtt.optimize.ArrayCopy03.test(8, 8, 0)) {
+                    fail(runString);
+                    return;
+                }
+            // (9,0,0) == -5764704759868L
+                runString = "(9,0,0)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(9, 0, 0)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,9,0) == -5764704759868L
+                runString = "(0,9,0)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(0, 9, 0)) {
+                    fail(runString);
+                    return;
+                }
+            // (-1,0,1) == -5764704759868L
+                runString = "(-1,0,1)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(-1, 0, 1)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,-1,1) == -5764704759868L
+                runString = "(0,-1,1)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(0, -1, 1)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,0,-1) == -5764704759868L
+                runString = "(0,0,-1)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(0, 0, -1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2147483647,0,1) == -5764704759868L
+                runString = "(2147483647,0,1)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(2147483647, 0, 1)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,2147483647,1) == -5764704759868L
+                runString = "(0,2147483647,1)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(0, 2147483647, 1)) {
+                    fail(runString);
+                    return;
+                }
+            // (1,0,2147483647) == -5764704759868L
+                runString = "(1,0,2147483647)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(1, 0, 2147483647)) {
+                    fail(runString);
+                    return;
+                }
+            // (2147483646,0,2) == -5764704759868L
+                runString = "(2147483646,0,2)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(2147483646, 0, 2)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,2147483646,2) == -5764704759868L
+                runString = "(0,2147483646,2)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(0, 2147483646, 2)) {
+                    fail(runString);
+                    return;
+                }
+            // (7,0,2) == -5764704759868L
+                runString = "(7,0,2)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(7, 0, 2)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,7,2) == -5764704759868L
+                runString = "(0,7,2)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(0, 7, 2)) {
+                    fail(runString);
+                    return;
+                }
+            // (-2147483648,0,1) == -5764704759868L
+                runString = "(-2147483648,0,1)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(-2147483648, 0, 1)) {
+                    fail(runString);
+                    return;
+                }
+            // (0,0,-2147483648) == -5764704759868L
+                runString = "(0,0,-2147483648)";
+                if (-5764704759868L != jtt.optimize.ArrayCopy03.test(0, 0, -2147483648)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_optimize_ArrayCopy04() {
+            begin("jtt.optimize.ArrayCopy04");
+            String runString = null;
+            try {
+            // (0) == -1003
+                runString = "(0)";
+                if (-1003 != jtt.optimize.ArrayCopy04.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == 2
+                runString = "(1)";
+                if (2 != jtt.optimize.ArrayCopy04.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 2
+                runString = "(2)";
+                if (2 != jtt.optimize.ArrayCopy04.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (3) == -1000
+                runString = "(3)";
+                if (-1000 != jtt.optimize.ArrayCopy04.test(3)) {
+                    fail(runString);
+                    return;
+                }
+            // (4) == -1000
+                runString = "(4)";
+                if (-1000 != jtt.optimize.ArrayCopy04.test(4)) {
+                    fail(runString);
+                    return;
+                }
+            // (5) == -1000
+                runString = "(5)";
+                if (-1000 != jtt.optimize.ArrayCopy04.test(5)) {
+                    fail(runString);
+                    return;
+                }
+            // (6) == -1000
+                runString = "(6)";
+                if (-1000 != jtt.optimize.ArrayCopy04.test(6)) {
+                    fail(runString);
+                    return;
+                }
+            // (7) == 60
+                runString = "(7)";
+                if (60 != jtt.optimize.ArrayCopy04.test(7)) {
+                    fail(runString);
+                    return;
+                }
+            // (8) == -1000
+                runString = "(8)";
+                if (-1000 != jtt.optimize.ArrayCopy04.test(8)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_optimize_ArrayFill01() {
+            begin("jtt.optimize.ArrayFill01");
+            String runString = null;
+            try {
+            // (0) == 27
+                runString = "(0)";
+                if (27 != jtt.optimize.ArrayFill01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == 27
+                runString = "(1)";
+                if (27 != jtt.optimize.ArrayFill01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 27
+                runString = "(2)";
+                if (27 != jtt.optimize.ArrayFill01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (3) == 27
+                runString = "(3)";
+                if (27 != jtt.optimize.ArrayFill01.test(3)) {
+                    fail(runString);
+                    return;
+                }
+            // (4) == 27
+                runString = "(4)";
+                if (27 != jtt.optimize.ArrayFill01.test(4)) {
+                    fail(runString);
+                    return;
+                }
+            // (5) == 27
+                runString = "(5)";
+                if (27 != jtt.optimize.ArrayFill01.test(5)) {
+                    fail(runString);
+                    return;
+                }
+            // (6) == 27
+                runString = "(6)";
+                if (27 != jtt.optimize.ArrayFill01.test(6)) {
                     fail(runString);
                     return;
-                } catch (Throwable e) {
-                    if (e.getClass() != java.lang.IndexOutOfBoundsException.class) {
-                        fail(runString, e);
-                        return;
-                    }
                 }
-            // (0,-1,0) == !java.lang.IndexOutOfBoundsException
-                try {
-                    runString = "(0,-1,0)";
-                    jtt.optimize.ArrayCopy01.test(0, -1, 0);
+            // (7) == 27
+                runString = "(7)";
+                if (27 != jtt.optimize.ArrayFill01.test(7)) {
                     fail(runString);
                     return;
-                } catch (Throwable e) {
-                    if (e.getClass() != java.lang.IndexOutOfBoundsException.class) {
-                        fail(runString, e);
-                        return;
-                    }
                 }
-            // (0,0,2) == 0
-                runString = "(0,0,2)";
-                if (0 != jtt.optimize.ArrayCopy01.test(0, 0, 2)) {
+            // (8) == -2
+                runString = "(8)";
+                if (-2 != jtt.optimize.ArrayFill01.test(8)) {
                     fail(runString);
                     return;
                 }
-            // (0,1,2) == !java.lang.IndexOutOfBoundsException
-                try {
-                    runString = "(0,1,2)";
-                    jtt.optimize.ArrayCopy01.test(0, 1, 2);
+            // (9) == -3
+                runString = "(9)";
+                if (-3 != jtt.optimize.ArrayFill01.test(9)) {
                     fail(runString);
                     return;
-                } catch (Throwable e) {
-                    if (e.getClass() != java.lang.IndexOutOfBoundsException.class) {
-                        fail(runString, e);
-                        return;
-                    }
                 }
-            // (1,0,2) == !java.lang.IndexOutOfBoundsException
-                try {
-                    runString = "(1,0,2)";
-                    jtt.optimize.ArrayCopy01.test(1, 0, 2);
+            // (10) == 0
+                runString = "(10)";
+                if (0 != jtt.optimize.ArrayFill01.test(10)) {
                     fail(runString);
                     return;
-                } catch (Throwable e) {
-                    if (e.getClass() != java.lang.IndexOutOfBoundsException.class) {
-                        fail(runString, e);
-                        return;
-                    }
                 }
-            // (1,1,-1) == !java.lang.IndexOutOfBoundsException
-                try {
-                    runString = "(1,1,-1)";
-                    jtt.optimize.ArrayCopy01.test(1, 1, -1);
+            // (11) == 1
+                runString = "(11)";
+                if (1 != jtt.optimize.ArrayFill01.test(11)) {
                     fail(runString);
                     return;
-                } catch (Throwable e) {
-                    if (e.getClass() != java.lang.IndexOutOfBoundsException.class) {
-                        fail(runString, e);
-                        return;
-                    }
                 }
             } catch (Throwable t) {
                 fail(runString, t);
@@ -21693,6 +22801,62 @@ public class JTRuns {
             }
             pass();
         }
+        static void jtt_optimize_EA_Deopt01() {
+            begin("jtt.optimize.EA_Deopt01");
+            String runString = null;
+            try {
+            // (0) == 2042180000L
+                runString = "(0)";
+                if (2042180000L != jtt.optimize.EA_Deopt01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == 2148170000L
+                runString = "(1)";
+                if (2148170000L != jtt.optimize.EA_Deopt01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 1827170000L
+                runString = "(2)";
+                if (1827170000L != jtt.optimize.EA_Deopt01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_optimize_EA_Lock01() {
+            begin("jtt.optimize.EA_Lock01");
+            String runString = null;
+            try {
+            // (0) == 1630000000L
+                runString = "(0)";
+                if (1630000000L != jtt.optimize.EA_Lock01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == 1841980000L
+                runString = "(1)";
+                if (1841980000L != jtt.optimize.EA_Lock01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 1199980000L
+                runString = "(2)";
+                if (1199980000L != jtt.optimize.EA_Lock01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
         static void jtt_optimize_Fold_Cast01() {
             begin("jtt.optimize.Fold_Cast01");
             String runString = null;
@@ -22413,6 +23577,86 @@ public class JTRuns {
             }
             pass();
         }
+        static void jtt_optimize_InlineCache_Interface01() {
+            begin("jtt.optimize.InlineCache_Interface01");
+            String runString = null;
+            try {
+            // (1) == 100
+                runString = "(1)";
+                if (100 != jtt.optimize.InlineCache_Interface01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 300
+                runString = "(2)";
+                if (300 != jtt.optimize.InlineCache_Interface01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (4) == 1000
+                runString = "(4)";
+                if (1000 != jtt.optimize.InlineCache_Interface01.test(4)) {
+                    fail(runString);
+                    return;
+                }
+            // (6) == 2100
+                runString = "(6)";
+                if (2100 != jtt.optimize.InlineCache_Interface01.test(6)) {
+                    fail(runString);
+                    return;
+                }
+            // (7) == 2700
+                runString = "(7)";
+                if (2700 != jtt.optimize.InlineCache_Interface01.test(7)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_optimize_InlineCache_Virtual01() {
+            begin("jtt.optimize.InlineCache_Virtual01");
+            String runString = null;
+            try {
+            // (1) == 100
+                runString = "(1)";
+                if (100 != jtt.optimize.InlineCache_Virtual01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 300
+                runString = "(2)";
+                if (300 != jtt.optimize.InlineCache_Virtual01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (4) == 1000
+                runString = "(4)";
+                if (1000 != jtt.optimize.InlineCache_Virtual01.test(4)) {
+                    fail(runString);
+                    return;
+                }
+            // (6) == 2100
+                runString = "(6)";
+                if (2100 != jtt.optimize.InlineCache_Virtual01.test(6)) {
+                    fail(runString);
+                    return;
+                }
+            // (7) == 2700
+                runString = "(7)";
+                if (2700 != jtt.optimize.InlineCache_Virtual01.test(7)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
         static void jtt_optimize_LLE_01() {
             begin("jtt.optimize.LLE_01");
             String runString = null;
@@ -22949,6 +24193,102 @@ public class JTRuns {
             }
             pass();
         }
+        static void jtt_optimize_OSR_Locals01() {
+            begin("jtt.optimize.OSR_Locals01");
+            String runString = null;
+            try {
+            // (0) == "0 0 0.0 0.0 x"
+                runString = "(0)";
+                if (!"0 0 0.0 0.0 x".equals(jtt.optimize.OSR_Locals01.test(0))) {
+                    fail(runString);
+                    return;
+                }
+            // (10) == "45 285 22.5 10.0 x0123456789"
+                runString = "(10)";
+                if (!"45 285 22.5 10.0 x0123456789".equals(jtt.optimize.OSR_Locals01.test(10))) {
+                    fail(runString);
+                    return;
+                }
+            // (200000) == "19999900000 2666646666700000 9.99995E9 200000.0 x0123456789"
+                runString = "(200000)";
+                if (!"19999900000 2666646666700000 9.99995E9 200000.0 x0123456789".equals(jtt.optimize.OSR_Locals01.test(200000))) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_optimize_OSR_Monitor01() {
+            begin("jtt.optimize.OSR_Monitor01");
+            String runString = null;
+            try {
+            // (0) == 0L
+                runString = "(0)";
+                if (0L != jtt.optimize.OSR_Monitor01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == 0L
+                runString = "(1)";
+                if (0L != jtt.optimize.OSR_Monitor01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 0L
+                runString = "(2)";
+                if (0L != jtt.optimize.OSR_Monitor01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (10) == 135L
+                runString = "(10)";
+                if (135L != jtt.optimize.OSR_Monitor01.test(10)) {
+                    fail(runString);
+                    return;
+                }
+            // (200000) == 59999700000L
+                runString = "(200000)";
+                if (59999700000L != jtt.optimize.OSR_Monitor01.test(200000)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_optimize_OSR_Stack01() {
+            begin("jtt.optimize.OSR_Stack01");
+            String runString = null;
+            try {
+            // (0) == 1007L
+                runString = "(0)";
+                if (1007L != jtt.optimize.OSR_Stack01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (10) == 1157L
+                runString = "(10)";
+                if (1157L != jtt.optimize.OSR_Stack01.test(10)) {
+                    fail(runString);
+                    return;
+                }
+            // (200000) == 3001007L
+                runString = "(200000)";
+                if (3001007L != jtt.optimize.OSR_Stack01.test(200000)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
         static void jtt_optimize_Phi01() {
             begin("jtt.optimize.Phi01");
             String runString = null;
@@ -23753,6 +25093,62 @@ public class JTRuns {
             }
             pass();
         }
+        static void jtt_optimize_Speculation_Interface01() {
+            begin("jtt.optimize.Speculation_Interface01");
+            String runString = null;
+            try {
+            // (0) == 800000000L
+                runString = "(0)";
+                if (800000000L != jtt.optimize.Speculation_Interface01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == 499990000L
+                runString = "(1)";
+                if (499990000L != jtt.optimize.Speculation_Interface01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 799990000L
+                runString = "(2)";
+                if (799990000L != jtt.optimize.Speculation_Interface01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
+        static void jtt_optimize_Speculation_Virtual01() {
+            begin("jtt.optimize.Speculation_Virtual01");
+            String runString = null;
+            try {
+            // (0) == 2855100000L
+                runString = "(0)";
+                if (2855100000L != jtt.optimize.Speculation_Virtual01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == 2961090000L
+                runString = "(1)";
+                if (2961090000L != jtt.optimize.Speculation_Virtual01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 2640090000L
+                runString = "(2)";
+                if (2640090000L != jtt.optimize.Speculation_Virtual01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
         static void jtt_optimize_Switch01() {
             begin("jtt.optimize.Switch01");
             String runString = null;
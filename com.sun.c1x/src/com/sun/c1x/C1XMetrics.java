@@ -39,7 +39,13 @@ public class C1XMetrics {
     public static int MethodsFolded;
     public static int InlineForcedMethods;
     public static int InlineForbiddenMethods;
+    public static int InlineSpeculatedMethods;
     public static int InlinedJsrs;
+    public static int EscapeAnalysisScalarReplaced;
+    public static int EscapeAnalysisLocksEliminated;
+    public static int LoopInvariantsHoisted;
+    public static int RangeChecksHoisted;
+    public static int LoopsUnrolled;
     public static int NullCheckIterations;
     public static int NullCheckEliminations;
     public static int NullChecksRedundant;
@@ -119,9 +119,17 @@ public final class C1XOptions {
     public static boolean OptDeadCodeElimination2;
     public static boolean OptControlFlow;
     public static boolean OptMoveElimination;
+    public static boolean OptEscapeAnalysis;
+    public static boolean OptLoopInvariantCodeMotion;
+    public static boolean OptRangeCheckElimination;
+    public static boolean OptLoopUnrolling;
 
     // optimistic optimization settings
     public static boolean UseAssumptions                = true;
+    public static boolean OptSpeculativeInlining        = ____;
+    public static boolean OptRangeCheckHoisting         = ____;
+    public static int     SpeculativeInliningMinCount   = 100;
+    public static float   SpeculativeInliningMinRatio   = 0.90f;
 
     // state merging settings
     public static boolean AssumeVerifiedBytecode        = ____;
@@ -222,6 +230,7 @@ public final class C1XOptions {
         OptInlineSynchronized           = lll;
         UseStackMapTableLiveness        = lll;
         UseAssumptions                  = lll;
+        OptSpeculativeInlining          = lll;
         OptIterativeNCE                 = lll;
         OptFlowSensitiveNCE             = lll;
         OptDeadCodeElimination1         = lll;
@@ -230,5 +239,10 @@ public final class C1XOptions {
         OptDiamondElimination           = lll;
         OptCEElimination                = lll;
         OptBlockSkipping                = lll;
+        OptEscapeAnalysis               = lll;
+        OptLoopInvariantCodeMotion      = lll;
+        OptRangeCheckElimination        = lll;
+        OptRangeCheckHoisting           = lll;
+        OptLoopUnrolling                = lll;
     }
 }
@@ -2082,6 +2082,14 @@ public final class LinearScan {
     }
 
     CiValue toCiValue(int opId, Value value) {
+        if (value instanceof VirtualObject) {
+            VirtualObject object = (VirtualObject) value;
+            CiValue[] values = new CiValue[object.fieldCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = toCiValue(opId, object.fieldAt(i));
+            }
+            return CiVirtualObject.get(object.type, values, object.id);
+        }
         if (value != null && value.operand() != CiValue.IllegalValue) {
             CiValue operand = value.operand();
             Constant con = null;
@@ -435,7 +435,7 @@ public abstract class LIRGenerator extends ValueVisitor {
         if (currentBlock.next() instanceof OsrEntry) {
             // need to free up storage used for OSR entry point
             CiValue osrBuffer = currentBlock.next().operand();
-            callRuntime(CiRuntimeCall.OSRMigrationEnd, null, osrBuffer);
+            callRuntime(CiRuntimeCall.OSRMigrationEnd, stateFor(x, x.stateAfter()), osrBuffer);
             emitXir(xir.genSafepointPoll(site(x)), x, stateFor(x, x.stateAfter()), null, false);
         } else if (x.isSafepointPoll()) {
             emitXir(xir.genSafepointPoll(site(x)), x, stateFor(x, x.stateAfter()), null, false);
@@ -1022,6 +1022,11 @@ public abstract class LIRGenerator extends ValueVisitor {
         Util.shouldNotReachHere();
     }
 
+    @Override
+    public void visitVirtualObject(VirtualObject i) {
+        Util.shouldNotReachHere();
+    }
+
     @Override
     public void visitReturn(Return x) {
         if (x.kind.isVoid()) {
@@ -2003,6 +2008,19 @@ public abstract class LIRGenerator extends ValueVisitor {
 
         while (s != null) {
             IRScope scope = s.scope();
+            if (s != state) {
+                // the values on the stacks of callers already have operands, unless they are virtual objects
+                for (int index = 0; index < s.stackSize(); index++) {
+                    if (s.stackAt(index) instanceof VirtualObject) {
+                        walkStateValue(s.stackAt(index));
+                    }
+                }
+            }
+            for (int index = 0; index < s.locksSize(); index++) {
+                if (s.lockAt(index) instanceof VirtualObject) {
+                    walkStateValue(s.lockAt(index));
+                }
+            }
             if (bci == Instruction.SYNCHRONIZATION_ENTRY_BCI) {
                 assert x instanceof ExceptionObject ||
                        x instanceof Throw ||
@@ -2030,6 +2048,12 @@ public abstract class LIRGenerator extends ValueVisitor {
             if (value instanceof Phi && !value.isIllegal()) {
                 // phi's are special
                 operandForPhi((Phi) value);
+            } else if (value instanceof VirtualObject) {
+                // the object is not allocated, but its fields must be available for deoptimization
+                VirtualObject object = (VirtualObject) value;
+                for (int i = 0; i < object.fieldCount(); i++) {
+                    walkStateValue(object.fieldAt(i));
+                }
             } else if (value.operand().isIllegal() && !(value instanceof UnsafeCast)) {
                 // instruction doesn't have an operand yet
                 CiValue operand = makeOperand(value);
@@ -2251,8 +2275,10 @@ public abstract class LIRGenerator extends ValueVisitor {
                 arrayCopy.setFlag(Flag.NoStoreCheck);
             }
             XirSnippet snippet = xir.genArrayCopy(site(arrayCopy), toXirArgument(src), toXirArgument(srcPos), toXirArgument(dest), toXirArgument(destPos), toXirArgument(length), type.componentType(), inputsSame, inputsDifferent);
-            arrayCopy(type, arrayCopy, snippet);
-            return;
+            if (snippet != null) {
+                arrayCopy(type, arrayCopy, snippet);
+                return;
+            }
         }
         arrayCopySlow(arrayCopy);
     }
@@ -2278,4 +2304,13 @@ public abstract class LIRGenerator extends ValueVisitor {
         lir.cmp(typeEqualityCheck.condition.negate(), leftValue, rightValue);
         emitGuard(typeEqualityCheck);
     }
+
+    @Override
+    public void visitTypeGuard(TypeGuard x) {
+        FrameState stateBefore = x.stateBefore();
+        XirArgument obj = toXirArgument(x.object());
+        XirArgument hub = XirArgument.forObject(x.type.getEncoding(RiType.Representation.ObjectHub).asObject());
+        XirSnippet snippet = xir.genTypeCheck(site(x), obj, hub, x.type, stateBefore.scope().method, stateBefore.bci);
+        emitXir(snippet, x, stateFor(x), null, false);
+    }
 }
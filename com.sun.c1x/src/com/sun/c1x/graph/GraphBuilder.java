@@ -123,7 +123,12 @@ public final class GraphBuilder {
         // 2. compute the block map and get the entrypoint(s)
         BlockMap blockMap = compilation.getBlockMap(scope.method, compilation.osrBCI);
         BlockBegin stdEntry = blockMap.get(0);
-        BlockBegin osrEntry = compilation.osrBCI < 0 ? null : blockMap.get(compilation.osrBCI);
+        BlockBegin osrEntry = null;
+        if (compilation.osrBCI >= 0) {
+            osrEntry = new BlockBegin(compilation.osrBCI, ir.nextBlockNumber());
+            osrEntry.setOsrEntry(true);
+            ir.osrEntryBlock = osrEntry;
+        }
         pushRootScope(scope, blockMap, startBlock);
         MutableFrameState initialState = stateAtEntry(rootMethod);
         startBlock.mergeOrClone(initialState);
@@ -205,13 +210,61 @@ public final class GraphBuilder {
             fillSyncHandler(rootMethodSynchronizedObject, syncHandler, false);
         }
 
-        if (compilation.osrBCI >= 0) {
-            BlockBegin osrBlock = blockMap.get(compilation.osrBCI);
-            assert osrBlock.wasVisited();
-            if (!osrBlock.stateBefore().stackEmpty()) {
-                throw new CiBailout("cannot OSR with non-empty stack");
+        if (osrEntry != null) {
+            fillOsrEntry(osrEntry, blockMap.get(compilation.osrBCI));
+        }
+    }
+
+    /**
+     * Fills in the OSR entry block. The block loads the value of each live local from the OSR buffer
+     * (see {@link OsrEntry}) and then jumps to the block at the OSR bytecode index. The latter must be
+     * a loop header so that each local flowing in from the buffer is merged by a phi.
+     *
+     * @param osrEntry the OSR entry block
+     * @param target the block at the OSR bytecode index
+     */
+    private void fillOsrEntry(BlockBegin osrEntry, BlockBegin target) {
+        if (target == null || !target.wasVisited()) {
+            throw new CiBailout("OSR target is not reachable");
+        }
+        FrameState targetState = target.stateBefore();
+        if (!targetState.stackEmpty()) {
+            throw new CiBailout("cannot OSR with non-empty stack");
+        }
+        if (targetState.locksSize() != 0 || rootMethodSynchronizedObject != null) {
+            throw new CiBailout("cannot OSR with locked objects");
+        }
+        if (!target.isParserLoopHeader() || target.isExceptionEntry()) {
+            throw new CiBailout("OSR target is not a loop header");
+        }
+
+        int bci = compilation.osrBCI;
+        killMemoryMap();
+        osrEntry.mergeOrClone(targetState);
+        curBlock = osrEntry;
+        curState = osrEntry.stateBefore().copy();
+        lastInstr = osrEntry;
+        osrEntry.setNext(null, -1);
+
+        Value buffer = appendWithoutOptimization(new OsrEntry(compilation.target.wordKind), bci);
+        int wordSize = compilation.target.wordSize;
+        for (int i = 0; i < curState.localsSize(); i++) {
+            Value local = curState.localAt(i);
+            if (local != null) {
+                if (!(local instanceof Phi) || ((Phi) local).block() != target || local.kind.isJsr()) {
+                    throw new CiBailout("cannot OSR with local " + i + " defined outside of the loop");
+                }
+                Value offset = appendWithoutOptimization(Constant.forInt(i * wordSize), bci);
+                Value value = appendWithoutOptimization(new UnsafeGetRaw(local.kind, buffer, offset, 0, false), bci);
+                curState.storeLocal(i, value);
             }
         }
+
+        FrameState stateAfter = curState.immutableCopy(bci);
+        Goto end = new Goto(target, stateAfter, false);
+        appendWithoutOptimization(end, bci);
+        osrEntry.setEnd(end);
+        target.mergeOrClone(stateAfter);
     }
 
     private void closeAccessorScope(RiType accessor) {
@@ -924,9 +977,10 @@ public final class GraphBuilder {
         if (target == null) {
             return;
         }
+        FrameState stateBefore = C1XOptions.OptSpeculativeInlining ? curState.immutableCopy(bci()) : null;
         Value[] args = curState.popArguments(target.signature().argumentSlots(true));
         if (!tryRemoveCall(target, args, false)) {
-            genInvokeIndirect(INVOKEINTERFACE, target, args, cpi, constantPool);
+            genInvokeIndirect(INVOKEINTERFACE, target, args, cpi, constantPool, stateBefore);
         }
     }
 
@@ -964,9 +1018,10 @@ public final class GraphBuilder {
             }
         }
 
+        FrameState stateBefore = C1XOptions.OptSpeculativeInlining ? curState.immutableCopy(bci()) : null;
         Value[] args = curState.popArguments(target.signature().argumentSlots(true));
         if (!tryRemoveCall(target, args, false)) {
-            genInvokeIndirect(INVOKEVIRTUAL, target, args, cpi, constantPool);
+            genInvokeIndirect(INVOKEVIRTUAL, target, args, cpi, constantPool, stateBefore);
         }
     }
 
@@ -1039,7 +1094,11 @@ public final class GraphBuilder {
         return false;
     }
 
-    private void genInvokeIndirect(int opcode, RiMethod target, Value[] args, int cpi, RiConstantPool constantPool) {
+    /**
+     * @param stateBefore the state before the arguments were popped, used to re-execute the call if a
+     *            speculation on the receiver type fails ({@code null} to disable such speculation)
+     */
+    private void genInvokeIndirect(int opcode, RiMethod target, Value[] args, int cpi, RiConstantPool constantPool, FrameState stateBefore) {
         Value receiver = args[0];
 
         assert target.holder().kind(false) == CiKind.Object;
@@ -1098,12 +1157,51 @@ public final class GraphBuilder {
                 assert result : "Inlining must succeed";
                 return;
             }
+            // 4. speculate on the receiver type that dominates the profile of the call site
+            if (stateBefore != null) {
+                exact = getProfiledReceiverType(klass);
+                if (exact != null) {
+                    RiResolvedMethod profiledTarget = exact.resolveMethodImpl(resolvedTarget);
+                    if (profiledTarget != null && !isAbstract(profiledTarget.accessFlags()) && checkInliningConditions(profiledTarget)) {
+                        if (C1XOptions.PrintAssumptions) {
+                            TTY.println("Speculative invoke direct because of profiled receiver type " + exact + " to " + profiledTarget);
+                        }
+                        if (!receiver.isNonNull()) {
+                            args[0] = append(new NullCheck(receiver, null));
+                        }
+                        append(new TypeGuard(args[0], exact, stateBefore));
+                        C1XMetrics.InlineSpeculatedMethods++;
+                        invokeDirect(profiledTarget, args, exact, cpi, constantPool);
+                        return;
+                    }
+                }
+            }
         }
 
         // devirtualization failed, produce an actual invokevirtual
         appendInvoke(opcode, target, args, false, cpi, constantPool);
     }
 
+    /**
+     * Gets the receiver type recorded in the type profile of the current call site if it is the only significant one.
+     *
+     * @param holder the holder of the method being called
+     * @return {@code null} if there is no such profile or no receiver type dominates it
+     */
+    private RiResolvedType getProfiledReceiverType(RiResolvedType holder) {
+        RiTypeProfile profile = method().typeProfile(bci());
+        if (profile == null || profile.types == null || profile.count < C1XOptions.SpeculativeInliningMinCount) {
+            return null;
+        }
+        for (int i = 0; i < profile.types.length; i++) {
+            RiResolvedType type = profile.types[i];
+            if (profile.probabilities[i] >= C1XOptions.SpeculativeInliningMinRatio && type.isInstanceClass() && type.isSubtypeOf(holder)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
     private CiKind returnKind(RiMethod target) {
         return target.signature().returnKind(false);
     }
@@ -1622,8 +1720,12 @@ public final class GraphBuilder {
                 break;
             case java_lang_Thread$currentThread:
                 break;
+            case java_lang_System$arraycopy:
+                if (!isPrimitiveArrayCopy(args[0], args[2])) {
+                    return false;
+                }
+                break;
             case java_util_Arrays$copyOf: // fall through
-            case java_lang_System$arraycopy: // fall through
             case java_lang_Object$init: // fall through
             case java_lang_String$equals: // fall through
             case java_lang_String$compareTo: // fall through
@@ -1747,6 +1849,21 @@ public final class GraphBuilder {
         return (Instruction) newArray;
     }
 
+    /**
+     * Determines if a call to {@link System#arraycopy} can be replaced by an {@link ArrayCopy} instruction.
+     * This is the case if both arrays are statically known to have the same primitive element kind, so that
+     * the copy needs neither a type check nor a store check.
+     */
+    private static boolean isPrimitiveArrayCopy(Value src, Value dest) {
+        RiResolvedType srcType = src.declaredType();
+        RiResolvedType destType = dest.declaredType();
+        if (srcType == null || destType == null || !srcType.isArrayClass() || !destType.isArrayClass()) {
+            return false;
+        }
+        CiKind elementKind = srcType.componentType().kind(true);
+        return elementKind.isPrimitive() && elementKind == destType.componentType().kind(true);
+    }
+
     private Instruction genArrayCopy(RiResolvedMethod target, Value[] args) {
         FrameState state = curState.immutableCopy(bci());
         Instruction result;
@@ -1767,14 +1884,14 @@ public final class GraphBuilder {
 
         // Check src end pos.
         Value srcEndPos = append(new ArithmeticOp(IADD, CiKind.Int, srcPos, length, false, null));
-        append(new BoundsCheck(srcEndPos, srcLength, state, Condition.LE));
+        append(new BoundsCheck(srcEndPos, srcLength, state, Condition.BE));
 
         // Check dest end pos.
         Value destEndPos = srcEndPos;
         if (destPos != srcPos) {
             destEndPos = append(new ArithmeticOp(IADD, CiKind.Int, destPos, length, false, null));
         }
-        append(new BoundsCheck(destEndPos, destLength, state, Condition.LE));
+        append(new BoundsCheck(destEndPos, destLength, state, Condition.BE));
 
         Value zero = append(Constant.forInt(0));
         append(new BoundsCheck(length, zero, state, Condition.GE));
@@ -2101,10 +2218,7 @@ public final class GraphBuilder {
         BlockBegin b;
         while ((b = scopeData.removeFromWorkList()) != null) {
             if (!b.wasVisited()) {
-                if (b.isOsrEntry()) {
-                    // OSR not yet supported
-                    Util.shouldNotReachHere();
-                }
+                assert !b.isOsrEntry() : "OSR entry is filled in after parsing";
                 b.setWasVisited(true);
                 // now parse the block
                 killMemoryMap();
@@ -135,6 +135,14 @@ public class IR {
             new DiamondEliminator(this);
             observeCompilationEvent("After Diamond elimination");
         }
+        if (C1XOptions.OptEscapeAnalysis) {
+            new EscapeAnalyzer(this);
+            observeCompilationEvent("After escape analysis");
+        }
+        if (C1XOptions.OptLoopInvariantCodeMotion || C1XOptions.OptRangeCheckElimination || C1XOptions.OptLoopUnrolling) {
+            new LoopOptimizer(this);
+            observeCompilationEvent("After loop optimization");
+        }
     }
 
     private void computeLinearScanOrder() {
@@ -95,6 +95,7 @@ public class DefaultValueVisitor extends ValueVisitor {
     @Override public void visitStoreRegister(StoreRegister i) { visit(i); }
     @Override public void visitTableSwitch(TableSwitch i) { visit(i); }
     @Override public void visitTypeEqualityCheck(TypeEqualityCheck i) { visit(i); }
+    @Override public void visitTypeGuard(TypeGuard i) { visit(i); }
     @Override public void visitThrow(Throw i) { visit(i); }
     @Override public void visitUnsafeCast(UnsafeCast i) { visit(i); }
     @Override public void visitUnsafeGetObject(UnsafeGetObject i) { visit(i); }
@@ -104,6 +105,7 @@ public class DefaultValueVisitor extends ValueVisitor {
     @Override public void visitUnsafePutObject(UnsafePutObject i) { visit(i); }
     @Override public void visitUnsafePutRaw(UnsafePutRaw i) { visit(i); }
     @Override public void visitUnsignedCompareOp(UnsignedCompareOp i) { visit(i); }
+    @Override public void visitVirtualObject(VirtualObject i) { visit(i); }
     @Override public void visitIfBit(IfBit i) { visit(i); }
     @Override public void visitGetTicks(GetTicks i) { visit(i); }
     @Override public void visitGetCpuID(GetCpuID i) { visit(i); }
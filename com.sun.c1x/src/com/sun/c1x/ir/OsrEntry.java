@@ -26,16 +26,20 @@ import com.oracle.max.criutils.*;
 import com.sun.cri.ci.*;
 
 /**
- * The {@code OsrEntry} instruction represents the buffer for an OSR.
+ * The {@code OsrEntry} instruction represents the buffer for an OSR. The buffer is allocated and filled
+ * by the runtime before it jumps to the OSR entry point. It holds one word per local variable, the value
+ * of local {@code i} being stored at offset {@code i * wordSize}. The buffer is released by the
+ * {@link CiRuntimeCall#OSRMigrationEnd} runtime call at the end of the OSR entry block.
  */
 public final class OsrEntry extends Instruction {
 
     /**
      * Constructs a new OsrEntry instruction.
+     * @param wordKind the kind of a pointer to the OSR buffer
      */
-    public OsrEntry() {
-        // TODO: this should be a CiKind.Word
-        super(CiKind.Jsr);
+    public OsrEntry(CiKind wordKind) {
+        super(wordKind);
+        setFlag(Flag.LiveSideEffect);
     }
 
     @Override
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.c1x.ir;
+
+import static com.sun.c1x.util.Util.*;
+
+import com.oracle.max.criutils.*;
+import com.sun.c1x.value.*;
+import com.sun.cri.ci.*;
+import com.sun.cri.ri.*;
+
+/**
+ * The {@code TypeGuard} instruction checks that a non-null object is exactly of a given type and deoptimizes
+ * if it is not. It protects code that was specialized for the receiver type recorded in the profile of a call
+ * site, so its {@linkplain #stateBefore() state} is the state before the call, allowing the call to be
+ * re-executed after deoptimization.
+ */
+public final class TypeGuard extends StateSplit {
+
+    Value object;
+
+    /**
+     * The type the object is expected to be.
+     */
+    public final RiResolvedType type;
+
+    /**
+     * Constructs a new TypeGuard instruction.
+     * @param object the instruction producing the object to check
+     * @param type the exact type the object is expected to be
+     * @param stateBefore the state before the speculated instruction
+     */
+    public TypeGuard(Value object, RiResolvedType type, FrameState stateBefore) {
+        super(CiKind.Illegal, stateBefore);
+        assert object.isNonNull();
+        this.object = object;
+        this.type = type;
+        setFlag(Flag.LiveSideEffect);
+    }
+
+    /**
+     * Gets the instruction that produces the object whose type is checked.
+     * @return the instruction producing the object
+     */
+    public Value object() {
+        return object;
+    }
+
+    @Override
+    public void inputValuesDo(ValueClosure closure) {
+        object = closure.apply(object);
+    }
+
+    @Override
+    public void accept(ValueVisitor v) {
+        v.visitTypeGuard(this);
+    }
+
+    @Override
+    public void print(LogStream out) {
+        out.print("type_guard ").print(valueString(object)).print(" ").print(CiUtil.toJavaName(type));
+    }
+}
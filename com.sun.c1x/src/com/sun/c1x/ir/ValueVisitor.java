@@ -86,6 +86,7 @@ public abstract class ValueVisitor {
     public abstract void visitTableSwitch(TableSwitch i);
     public abstract void visitThrow(Throw i);
     public abstract void visitTypeEqualityCheck(TypeEqualityCheck typeEqualityCheck);
+    public abstract void visitTypeGuard(TypeGuard typeGuard);
     public abstract void visitUnsafeCast(UnsafeCast i);
     public abstract void visitUnsafeGetObject(UnsafeGetObject i);
     public abstract void visitUnsafeGetRaw(UnsafeGetRaw i);
@@ -94,6 +95,7 @@ public abstract class ValueVisitor {
     public abstract void visitUnsafePutObject(UnsafePutObject i);
     public abstract void visitUnsafePutRaw(UnsafePutRaw i);
     public abstract void visitUnsignedCompareOp(UnsignedCompareOp i);
+    public abstract void visitVirtualObject(VirtualObject i);
     public abstract void visitIfBit(IfBit i);
     public abstract void visitGetTicks(GetTicks i);
     public abstract void visitGetCpuID(GetCpuID i);
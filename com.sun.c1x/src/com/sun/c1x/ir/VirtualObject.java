@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.c1x.ir;
+
+import static com.sun.c1x.util.Util.*;
+
+import com.oracle.max.criutils.*;
+import com.sun.cri.ci.*;
+import com.sun.cri.ri.*;
+
+/**
+ * The {@code VirtualObject} value stands in the frame states for an allocation that was removed by
+ * {@linkplain com.sun.c1x.opt.EscapeAnalyzer escape analysis}. It records the values the fields of the
+ * object have at that point, so that the object can be recreated if the frame is deoptimized.
+ * Like {@link Local} and {@link Phi}, it is never added to a basic block.
+ */
+public final class VirtualObject extends Value {
+
+    /**
+     * The type of the object that was not allocated.
+     */
+    public final RiResolvedType type;
+
+    /**
+     * The values of the instance fields of the object, in the order of {@link RiResolvedType#declaredFields()}
+     * starting with the fields of the topmost superclass.
+     */
+    final Value[] fieldValues;
+
+    /**
+     * Identifies the allocation this object stands for. All virtual objects with the same id in the
+     * frame states of one compilation denote the same object.
+     */
+    public final int id;
+
+    /**
+     * Constructs a new VirtualObject.
+     * @param type the type of the object
+     * @param fieldValues the values of the fields of the object
+     * @param id the identity of the allocation that was removed
+     */
+    public VirtualObject(RiResolvedType type, Value[] fieldValues, int id) {
+        super(CiKind.Object);
+        this.type = type;
+        this.fieldValues = fieldValues;
+        this.id = id;
+        setFlag(Flag.NonNull);
+    }
+
+    @Override
+    public BlockBegin block() {
+        return null;
+    }
+
+    /**
+     * Gets the number of fields of this object.
+     * @return the number of field values
+     */
+    public int fieldCount() {
+        return fieldValues.length;
+    }
+
+    /**
+     * Gets the value of a field of this object.
+     * @param index the index of the field
+     * @return the value of the field
+     */
+    public Value fieldAt(int index) {
+        return fieldValues[index];
+    }
+
+    @Override
+    public RiResolvedType declaredType() {
+        return type;
+    }
+
+    @Override
+    public RiResolvedType exactType() {
+        return type;
+    }
+
+    @Override
+    public void inputValuesDo(ValueClosure closure) {
+        for (int i = 0; i < fieldValues.length; i++) {
+            fieldValues[i] = closure.apply(fieldValues[i]);
+        }
+    }
+
+    @Override
+    public void accept(ValueVisitor v) {
+        v.visitVirtualObject(this);
+    }
+
+    @Override
+    public void print(LogStream out) {
+        out.print("virtual_object ").print(CiUtil.toJavaName(type)).print(" #").print(id).print(" {");
+        for (int i = 0; i < fieldValues.length; i++) {
+            if (i > 0) {
+                out.print(", ");
+            }
+            out.print(valueString(fieldValues[i]));
+        }
+        out.print('}');
+    }
+}
@@ -1513,6 +1513,13 @@ public class Canonicalizer extends DefaultValueVisitor {
         }
     }
 
+    @Override
+    public void visitTypeGuard(TypeGuard i) {
+        if (i.type.equals(i.object().exactType())) {
+            setCanonical(null);
+        }
+    }
+
     @Override
     public void visitBoundsCheck(BoundsCheck b) {
         Value index = b.index();
@@ -1520,7 +1527,7 @@ public class Canonicalizer extends DefaultValueVisitor {
 
         if (index.isConstant() && length.isConstant()) {
             int i = index.asConstant().asInt();
-            int l = index.asConstant().asInt();
+            int l = length.asConstant().asInt();
             Condition c = b.condition;
             if (c.check(i, l)) {
                 setCanonical(null);
@@ -0,0 +1,430 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.c1x.opt;
+
+import java.util.*;
+
+import com.sun.c1x.*;
+import com.sun.c1x.graph.*;
+import com.sun.c1x.ir.*;
+import com.sun.c1x.value.*;
+import com.sun.cri.ci.*;
+import com.sun.cri.ri.*;
+
+/**
+ * This class implements a simple escape analysis that removes object allocations whose objects do not escape
+ * the basic block in which they are allocated. The fields of such an object are replaced by the values last
+ * stored into them (scalar replacement) and any locking of the object is removed. In the frame states in
+ * which the object is still live, it is represented by a {@link VirtualObject} holding the current field
+ * values, so that the object can be recreated if the code is deoptimized at that point.
+ *
+ * An allocation is a candidate if its type is a resolved and initialized instance class without a finalizer
+ * that is not a {@link java.lang.ref.Reference}. The object escapes if it is used by anything other than
+ * field accesses, monitor operations and null checks in its own block, if it is live in a frame state of
+ * another block or of an exception handler, or if it flows into a phi at the end of its block.
+ */
+public final class EscapeAnalyzer implements BlockClosure {
+
+    /**
+     * The analysis information for a single allocation.
+     */
+    static final class Candidate {
+        final NewInstance allocation;
+        final BlockBegin block;
+        final RiResolvedType type;
+        final RiResolvedField[] fields;
+        final int id;
+        boolean escapes;
+
+        Candidate(NewInstance allocation, BlockBegin block, RiResolvedType type, RiResolvedField[] fields, int id) {
+            this.allocation = allocation;
+            this.block = block;
+            this.type = type;
+            this.fields = fields;
+            this.id = id;
+        }
+
+        /**
+         * Gets the index of a field of this candidate.
+         * @return the index of {@code field} in {@link #fields} or {@code -1} if it is not an instance field of this object
+         */
+        int fieldIndex(RiField field) {
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] == field) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Determines whether a field access to this object can be replaced.
+         */
+        boolean canReplace(AccessField access) {
+            return access.isLoaded() && !access.isStatic() && !access.isVolatile() && fieldIndex(access.field()) >= 0;
+        }
+    }
+
+    final IR ir;
+    final RiResolvedType referenceType;
+    final InstructionSubstituter subst;
+
+    /**
+     * Maps each candidate allocation and each null check of a candidate to the candidate.
+     */
+    final HashMap<Value, Candidate> candidates = new HashMap<Value, Candidate>();
+    final ArrayList<Candidate> candidateList = new ArrayList<Candidate>();
+
+    public EscapeAnalyzer(IR ir) {
+        this.ir = ir;
+        this.referenceType = ir.compilation.runtime.getType(java.lang.ref.Reference.class);
+        this.subst = new InstructionSubstituter(ir);
+
+        ir.startBlock.iterateAnyOrder(this, false);
+        if (candidateList.isEmpty()) {
+            return;
+        }
+        ir.startBlock.iterateAnyOrder(new BlockClosure() {
+            public void apply(BlockBegin block) {
+                checkUses(block);
+                checkStates(block);
+            }
+        }, false);
+
+        for (Candidate c : candidateList) {
+            if (!c.escapes && hasInconsistentCallerStates(c)) {
+                c.escapes = true;
+            }
+            if (!c.escapes) {
+                scalarReplace(c);
+                C1XMetrics.EscapeAnalysisScalarReplaced++;
+            }
+        }
+        subst.finish();
+    }
+
+    /**
+     * Finds the candidate allocations in a block, together with the null checks of these allocations.
+     */
+    public void apply(BlockBegin block) {
+        for (Instruction i = block.next(); i != null; i = i.next()) {
+            if (i instanceof NewInstance) {
+                NewInstance n = (NewInstance) i;
+                if (n.instanceClass() instanceof RiResolvedType) {
+                    RiResolvedType type = (RiResolvedType) n.instanceClass();
+                    if (type.isInstanceClass() && type.isInitialized() && !type.hasFinalizer() && (referenceType == null || !type.isSubtypeOf(referenceType))) {
+                        RiResolvedField[] fields = instanceFields(type);
+                        if (fields != null) {
+                            Candidate c = new Candidate(n, block, type, fields, candidateList.size());
+                            candidates.put(n, c);
+                            candidateList.add(c);
+                        }
+                    }
+                }
+            } else if (i instanceof NullCheck) {
+                Candidate c = candidates.get(((NullCheck) i).object());
+                if (c != null && c.block == block) {
+                    candidates.put(i, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets all the instance fields of a type, starting with the fields declared by the topmost superclass.
+     * @return the fields or {@code null} if the type has a field that is not a plain Java value
+     */
+    private static RiResolvedField[] instanceFields(RiResolvedType type) {
+        ArrayList<RiResolvedField> fields = new ArrayList<RiResolvedField>();
+        for (RiResolvedType t = type; t != null; t = t.superType()) {
+            RiResolvedField[] declared = t.declaredFields();
+            for (int i = declared.length - 1; i >= 0; i--) {
+                RiResolvedField field = declared[i];
+                if (field.kind(false) != field.kind(true)) {
+                    return null;
+                }
+                fields.add(field);
+            }
+        }
+        Collections.reverse(fields);
+        return fields.toArray(new RiResolvedField[fields.size()]);
+    }
+
+    private Candidate candidate(Value value) {
+        return value == null ? null : candidates.get(value);
+    }
+
+    /**
+     * Marks the candidates used by an instruction as escaping unless the use is one that can be removed.
+     */
+    void checkUses(final BlockBegin block) {
+        ValueClosure escape = new ValueClosure() {
+            public Value apply(Value value) {
+                Candidate c = candidate(value);
+                if (c != null) {
+                    c.escapes = true;
+                }
+                return value;
+            }
+        };
+        for (Instruction i = block.next(); i != null; i = i.next()) {
+            if (i instanceof LoadField) {
+                LoadField load = (LoadField) i;
+                Candidate c = candidate(load.object());
+                if (c != null && (c.block != block || !c.canReplace(load))) {
+                    c.escapes = true;
+                }
+            } else if (i instanceof StoreField) {
+                StoreField store = (StoreField) i;
+                Candidate c = candidate(store.object());
+                if (c != null && (c.block != block || !c.canReplace(store))) {
+                    c.escapes = true;
+                }
+                escape.apply(store.value());
+            } else if (i instanceof AccessMonitor) {
+                AccessMonitor monitor = (AccessMonitor) i;
+                Candidate c = candidate(monitor.object());
+                if (c != null && (c.block != block || monitor.lockAddress() != null)) {
+                    c.escapes = true;
+                }
+            } else if (i instanceof NullCheck && candidate(i) != null) {
+                // a null check of a candidate in its own block is always removable
+            } else {
+                i.inputValuesDo(escape);
+            }
+        }
+    }
+
+    /**
+     * Marks the candidates that are live in frame states from which they cannot be recreated.
+     */
+    void checkStates(final BlockBegin block) {
+        ValueClosure escape = new ValueClosure() {
+            public Value apply(Value value) {
+                Candidate c = candidate(value);
+                if (c != null) {
+                    c.escapes = true;
+                }
+                return value;
+            }
+        };
+        ValueClosure escapeOtherBlock = new ValueClosure() {
+            public Value apply(Value value) {
+                Candidate c = candidate(value);
+                if (c != null && c.block != block) {
+                    c.escapes = true;
+                }
+                return value;
+            }
+        };
+        if (block.exceptionHandlerStates() != null) {
+            for (FrameState state : block.exceptionHandlerStates()) {
+                state.valuesDo(escape);
+            }
+        }
+        for (Instruction i = block; i != null; i = i.next()) {
+            if (i.stateBefore() != null) {
+                i.stateBefore().valuesDo(escapeOtherBlock);
+            }
+            if (i.stateAfter() != null) {
+                i.stateAfter().valuesDo(escapeOtherBlock);
+            }
+        }
+
+        // a candidate may only be live at the end of its block if no successor uses the slot holding it
+        FrameState end = block.end().stateAfter();
+        if (end != null) {
+            for (int j = 0; j < block.numberOfSux(); j++) {
+                checkSuccessorState(end, block.suxAt(j).stateBefore(), escape);
+            }
+        }
+    }
+
+    private void checkSuccessorState(FrameState state, FrameState suxState, ValueClosure escape) {
+        for (FrameState s = state, t = suxState; s != null; s = s.callerState(), t = t.callerState()) {
+            if (t == null || s.scope() != t.scope() || s.valuesSize() != t.valuesSize() || s.locksSize() != t.locksSize()) {
+                s.valuesDo(escape);
+                return;
+            }
+            for (int i = 0; i < s.valuesSize(); i++) {
+                if (candidate(s.valueAt(i)) != null) {
+                    Value suxValue = t.valueAt(i);
+                    if (suxValue != null && !suxValue.isDeadPhi()) {
+                        escape.apply(s.valueAt(i));
+                    }
+                }
+            }
+            for (int i = 0; i < s.locksSize(); i++) {
+                if (candidate(s.lockAt(i)) != null) {
+                    escape.apply(s.lockAt(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines if a candidate is live in a caller frame state that is shared by frame states on both sides of a
+     * store to the candidate. The frame states of an inlined method share the states of its callers, so such a
+     * caller state cannot hold a single consistent copy of the object's fields.
+     */
+    private boolean hasInconsistentCallerStates(Candidate c) {
+        IdentityHashMap<FrameState, Integer> versions = new IdentityHashMap<FrameState, Integer>();
+        int version = 0;
+        for (Instruction i = c.allocation.next(); i != null; i = i.next()) {
+            if (!checkCallerStates(c, i.stateBefore(), versions, version) || !checkCallerStates(c, i.stateAfter(), versions, version)) {
+                return true;
+            }
+            if (i instanceof StoreField && candidate(((StoreField) i).object()) == c) {
+                version++;
+            }
+        }
+        return false;
+    }
+
+    private boolean checkCallerStates(Candidate c, FrameState state, IdentityHashMap<FrameState, Integer> versions, int version) {
+        if (state != null) {
+            for (FrameState s = state.callerState(); s != null; s = s.callerState()) {
+                if (contains(s, c)) {
+                    Integer v = versions.get(s);
+                    if (v == null) {
+                        versions.put(s, version);
+                    } else if (v != version) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean contains(FrameState s, Candidate c) {
+        for (int i = 0; i < s.valuesSize(); i++) {
+            if (candidate(s.valueAt(i)) == c) {
+                return true;
+            }
+        }
+        for (int i = 0; i < s.locksSize(); i++) {
+            if (candidate(s.lockAt(i)) == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces a candidate in frame states with a virtual object holding the current values of its fields.
+     */
+    final class Virtualizer implements ValueClosure {
+        final Candidate candidate;
+        final Value[] fieldValues;
+        VirtualObject current;
+
+        Virtualizer(Candidate candidate, Value[] fieldValues) {
+            this.candidate = candidate;
+            this.fieldValues = fieldValues;
+        }
+
+        public Value apply(Value value) {
+            if (candidate(value) == candidate) {
+                if (current == null) {
+                    current = new VirtualObject(candidate.type, fieldValues.clone(), candidate.id);
+                }
+                return current;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Removes a non-escaping allocation, forwarding the values of its fields and recording them
+     * in the frame states in which the object is live.
+     */
+    void scalarReplace(Candidate c) {
+        final Value[] fieldValues = new Value[c.fields.length];
+        for (int i = 0; i < fieldValues.length; i++) {
+            fieldValues[i] = new Constant(CiConstant.defaultValue(c.fields[i].kind(true)));
+        }
+
+        Virtualizer virtualize = new Virtualizer(c, fieldValues);
+
+        Instruction prev = c.block;
+        while (prev.next() != c.allocation) {
+            prev = prev.next();
+        }
+        prev.resetNext(c.allocation.next());
+
+        for (Instruction i = c.allocation.next(); i != null; i = i.next()) {
+            if (i.stateBefore() != null) {
+                i.stateBefore().valuesDo(virtualize);
+            }
+            if (i.stateAfter() != null) {
+                i.stateAfter().valuesDo(virtualize);
+            }
+
+            if (i instanceof LoadField && candidate(((LoadField) i).object()) == c) {
+                LoadField load = (LoadField) i;
+                int index = c.fieldIndex(load.field());
+                Value value = narrow(fieldValues[index], load.field().kind(true));
+                if (value instanceof Convert) {
+                    Convert convert = (Convert) value;
+                    convert.setBCI(load.bci());
+                    prev.resetNext(convert);
+                    convert.resetNext(load.next());
+                    prev = convert;
+                } else {
+                    prev.resetNext(load.next());
+                }
+                subst.setSubst(load, value);
+            } else if (i instanceof StoreField && candidate(((StoreField) i).object()) == c) {
+                StoreField store = (StoreField) i;
+                fieldValues[c.fieldIndex(store.field())] = store.value();
+                virtualize.current = null;
+                prev.resetNext(store.next());
+            } else if (i instanceof AccessMonitor && candidate(((AccessMonitor) i).object()) == c) {
+                prev.resetNext(i.next());
+                C1XMetrics.EscapeAnalysisLocksEliminated++;
+            } else if (i instanceof NullCheck && candidate(i) == c) {
+                prev.resetNext(i.next());
+            } else {
+                prev = i;
+            }
+        }
+    }
+
+    /**
+     * Applies the implicit narrowing of a store to a sub-word field to a forwarded value, since the
+     * canonicalizer may have removed the explicit conversion preceding the store.
+     */
+    private static Value narrow(Value value, CiKind fieldKind) {
+        Convert.Op op;
+        switch (fieldKind) {
+            case Byte:  op = Convert.Op.I2B; break;
+            case Short: op = Convert.Op.I2S; break;
+            case Char:  op = Convert.Op.I2C; break;
+            default:    return value;
+        }
+        if (value.isConstant()) {
+            int v = value.asConstant().asInt();
+            int narrowed = fieldKind == CiKind.Byte ? (byte) v : fieldKind == CiKind.Short ? (short) v : (char) v;
+            return narrowed == v ? value : new Constant(CiConstant.forInt(narrowed));
+        }
+        return new Convert(op, value, CiKind.Int);
+    }
+}
@@ -0,0 +1,843 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.c1x.opt;
+
+import static com.sun.cri.bytecode.Bytecodes.*;
+
+import java.util.*;
+
+import com.sun.c1x.*;
+import com.sun.c1x.graph.*;
+import com.sun.c1x.ir.*;
+import com.sun.c1x.ir.Value.Flag;
+import com.sun.c1x.util.*;
+import com.sun.c1x.value.*;
+import com.sun.cri.ci.*;
+import com.sun.cri.ri.*;
+
+/**
+ * This class implements optimizations of natural loops. Loops are found in the control flow graph built from the
+ * block map: a block is a loop header if it has predecessors that can only be reached through the block itself.
+ * Only loops that are entered from a single pre-header block ending in a {@link Goto} are optimized, since the
+ * pre-header is where loop-invariant instructions and hoisted range checks are placed.
+ *
+ * The following optimizations are performed, innermost loops first:
+ * <ul>
+ * <li>Loop-invariant code motion of instructions that have no side effects and cannot trap.</li>
+ * <li>Range check elimination for array accesses indexed by the induction variable of a counted loop. Checks
+ * that are implied by the loop test are removed. Otherwise, a single {@link BoundsCheck} guard that deoptimizes
+ * if the loop bounds do not fit the array is placed in the pre-header and the checks in the loop are removed.</li>
+ * <li>Unrolling of small loops consisting of a header block with the loop test and a single body block. The
+ * body is duplicated together with the loop test so that only every second iteration executes the back edge.</li>
+ * </ul>
+ */
+public final class LoopOptimizer {
+
+    /**
+     * A natural loop.
+     */
+    static final class Loop {
+        final BlockBegin header;
+        final BlockBegin preHeader;
+        final List<BlockBegin> backEdgeSources;
+        final List<BlockBegin> blocks;
+        final HashSet<BlockBegin> members;
+
+        /**
+         * The instructions in the blocks of this loop, updated as instructions are hoisted out of the loop.
+         */
+        HashSet<Value> definitions;
+
+        Loop(BlockBegin header, BlockBegin preHeader, List<BlockBegin> backEdgeSources, HashSet<BlockBegin> members) {
+            this.header = header;
+            this.preHeader = preHeader;
+            this.backEdgeSources = backEdgeSources;
+            this.members = members;
+            this.blocks = new ArrayList<BlockBegin>(members);
+        }
+
+        boolean contains(BlockBegin block) {
+            return members.contains(block);
+        }
+
+        /**
+         * Determines whether a value has the same value in all iterations of this loop.
+         */
+        boolean isInvariant(Value value) {
+            if (value instanceof Phi) {
+                return !contains(((Phi) value).block());
+            }
+            return !definitions().contains(value);
+        }
+
+        HashSet<Value> definitions() {
+            if (definitions == null) {
+                definitions = new HashSet<Value>();
+                for (BlockBegin block : blocks) {
+                    for (Instruction i = block.next(); i != null; i = i.next()) {
+                        definitions.add(i);
+                    }
+                }
+            }
+            return definitions;
+        }
+    }
+
+    /**
+     * The flags that are copied from an instruction to its copy when a loop is unrolled.
+     */
+    private static final Flag[] COPIED_FLAGS = {Flag.NonNull, Flag.NoNullCheck, Flag.NoStoreCheck, Flag.NoBoundsCheck, Flag.NoZeroCheck,
+        Flag.NoReadBarrier, Flag.NoWriteBarrier, Flag.NoDivSpecialCase, Flag.DirectCompare, Flag.IsStrictFP};
+
+    final IR ir;
+    final List<Loop> loops = new ArrayList<Loop>();
+
+    public LoopOptimizer(IR ir) {
+        this.ir = ir;
+        findLoops();
+        for (Loop loop : loops) {
+            if (C1XOptions.OptLoopInvariantCodeMotion) {
+                hoistInvariants(loop);
+            }
+            if (C1XOptions.OptRangeCheckElimination) {
+                eliminateRangeChecks(loop);
+            }
+        }
+        if (C1XOptions.OptLoopUnrolling) {
+            // unrolling changes the control flow graph, so it is only done once the other optimizations
+            // are complete. Only loops consisting of two blocks are unrolled, so the loops are disjoint.
+            for (Loop loop : loops) {
+                if (loop.blocks.size() == 2 && unroll(loop)) {
+                    C1XMetrics.LoopsUnrolled++;
+                }
+            }
+        }
+    }
+
+    private void findLoops() {
+        final List<BlockBegin> blocks = new ArrayList<BlockBegin>();
+        ir.startBlock.iterateAnyOrder(new BlockClosure() {
+            public void apply(BlockBegin block) {
+                blocks.add(block);
+            }
+        }, false);
+
+        for (BlockBegin block : blocks) {
+            if (block.numberOfPreds() >= 2 && !block.isExceptionEntry()) {
+                Loop loop = findLoop(block);
+                if (loop != null) {
+                    loops.add(loop);
+                }
+            }
+        }
+
+        // process inner loops before the loops that contain them
+        Collections.sort(loops, new Comparator<Loop>() {
+            public int compare(Loop o1, Loop o2) {
+                return o1.members.size() - o2.members.size();
+            }
+        });
+    }
+
+    /**
+     * Finds the loop with a given header.
+     * @return the loop or {@code null} if {@code header} is not the header of a loop with a single pre-header
+     */
+    private Loop findLoop(BlockBegin header) {
+        HashSet<BlockBegin> members = new HashSet<BlockBegin>();
+        members.add(header);
+        List<BlockBegin> backEdgeSources = new ArrayList<BlockBegin>();
+        BlockBegin preHeader = null;
+        for (BlockBegin pred : header.predecessors()) {
+            HashSet<BlockBegin> body = loopBody(header, pred);
+            if (body != null) {
+                backEdgeSources.add(pred);
+                members.addAll(body);
+            } else if (preHeader == null && pred != header) {
+                preHeader = pred;
+            } else {
+                return null;
+            }
+        }
+        if (preHeader == null || backEdgeSources.isEmpty() || !(preHeader.end() instanceof Goto) || preHeader.end().stateAfter() == null) {
+            return null;
+        }
+        return new Loop(header, preHeader, backEdgeSources, members);
+    }
+
+    /**
+     * Computes the blocks from which a predecessor of a loop header can be reached without passing through the
+     * header, i.e. the body of the loop if the edge from {@code pred} to {@code header} is a back edge.
+     * @return the blocks or {@code null} if the edge is not a back edge
+     */
+    private HashSet<BlockBegin> loopBody(BlockBegin header, BlockBegin pred) {
+        HashSet<BlockBegin> body = new HashSet<BlockBegin>();
+        ArrayList<BlockBegin> worklist = new ArrayList<BlockBegin>();
+        body.add(pred);
+        worklist.add(pred);
+        while (!worklist.isEmpty()) {
+            BlockBegin block = worklist.remove(worklist.size() - 1);
+            if (block == header) {
+                continue;
+            }
+            if (block == ir.startBlock || block.isExceptionEntry()) {
+                // the block can be reached without passing through the header
+                return null;
+            }
+            for (BlockBegin p : block.predecessors()) {
+                if (body.add(p)) {
+                    worklist.add(p);
+                }
+            }
+        }
+        body.remove(header);
+        return body;
+    }
+
+    /**
+     * Inserts an instruction at the end of the pre-header of a loop.
+     */
+    private static void appendToPreHeader(Loop loop, Instruction i) {
+        BlockBegin preHeader = loop.preHeader;
+        BlockEnd end = preHeader.end();
+        Instruction prev = end.prev(preHeader);
+        prev.resetNext(i);
+        i.resetNext(end);
+    }
+
+    // Loop-invariant code motion -------------------------------------------------------------------------------
+
+    /**
+     * Moves the instructions of a loop that compute the same value in every iteration and that have no side
+     * effects to the pre-header of the loop. Instructions are moved in order and only once their inputs are
+     * outside the loop, so each instruction is placed after the instructions it depends on.
+     */
+    private void hoistInvariants(Loop loop) {
+        HashSet<RiField> storedFields = new HashSet<RiField>();
+        boolean killsMemory = false;
+        for (BlockBegin block : loop.blocks) {
+            for (Instruction i = block.next(); i != null; i = i.next()) {
+                if (i instanceof StoreField) {
+                    StoreField store = (StoreField) i;
+                    if (store.isVolatile() || !store.isLoaded()) {
+                        killsMemory = true;
+                    }
+                    storedFields.add(store.field());
+                } else if (i instanceof LoadField) {
+                    LoadField load = (LoadField) i;
+                    if (load.isVolatile() || !load.isLoaded()) {
+                        killsMemory = true;
+                    }
+                } else if (!preservesFields(i)) {
+                    killsMemory = true;
+                }
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BlockBegin block : loop.blocks) {
+                Instruction prev = block;
+                Instruction i = block.next();
+                while (!(i instanceof BlockEnd)) {
+                    Instruction next = i.next();
+                    if (isHoistable(loop, i, killsMemory, storedFields)) {
+                        if (i instanceof AccessField || i instanceof AccessArray) {
+                            // the object is known to be non-null in the pre-header
+                            i.eliminateNullCheck();
+                        }
+                        prev.resetNext(next);
+                        appendToPreHeader(loop, i);
+                        loop.definitions().remove(i);
+                        C1XMetrics.LoopInvariantsHoisted++;
+                        changed = true;
+                    } else {
+                        prev = i;
+                    }
+                    i = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether an instruction leaves the values of all fields unchanged.
+     */
+    private static boolean preservesFields(Instruction i) {
+        return i instanceof Op2 || i instanceof Convert || i instanceof NegateOp || i instanceof Constant ||
+               i instanceof AccessArray || i instanceof NullCheck || i instanceof Guard || i instanceof TypeCheck ||
+               i instanceof Goto || i instanceof If || i instanceof Switch;
+    }
+
+    /**
+     * Determines if an instruction of a loop can be moved to the pre-header of the loop. Field loads and array
+     * lengths are only hoisted if their object is known to be non-null in the pre-header, in which case their
+     * null check (and the frame state kept for it) can be removed. Whether or not the null check of such an
+     * instruction was already eliminated, it may have been because of a check in the loop.
+     */
+    private static boolean isHoistable(final Loop loop, Instruction i, boolean killsMemory, HashSet<RiField> storedFields) {
+        if (i instanceof LoadField) {
+            LoadField load = (LoadField) i;
+            if (killsMemory || !load.isLoaded() || load.isVolatile() || load.needsPatching() || storedFields.contains(load.field())) {
+                return false;
+            }
+            if (!isNonNullBeforeLoop(loop, load.object())) {
+                return false;
+            }
+        } else if (i instanceof ArrayLength) {
+            if (!isNonNullBeforeLoop(loop, ((ArrayLength) i).array())) {
+                return false;
+            }
+        } else if (i.stateBefore() != null || i.canTrap()) {
+            return false;
+        } else if (i instanceof CompareOp) {
+            if (i.kind.isVoid()) {
+                return false;
+            }
+        } else if (!(i instanceof ArithmeticOp || i instanceof LogicOp || i instanceof ShiftOp || i instanceof Convert ||
+                     i instanceof NegateOp || i instanceof Constant)) {
+            return false;
+        }
+        final boolean[] invariant = {true};
+        i.inputValuesDo(new ValueClosure() {
+            public Value apply(Value value) {
+                if (!loop.isInvariant(value)) {
+                    invariant[0] = false;
+                }
+                return value;
+            }
+        });
+        return invariant[0];
+    }
+
+    // Range check elimination ----------------------------------------------------------------------------------
+
+    /**
+     * Eliminates the bounds checks of array accesses indexed by an induction variable of a loop. The induction
+     * variable is a phi of the loop header that is incremented or decremented by one in the single back edge of
+     * the loop and that is tested against a loop-invariant limit by the branch that ends the header.
+     */
+    private void eliminateRangeChecks(Loop loop) {
+        BlockBegin header = loop.header;
+        if (!(header.end() instanceof If) || loop.backEdgeSources.size() != 1) {
+            return;
+        }
+        If test = (If) header.end();
+        Condition cond;
+        if (loop.contains(test.trueSuccessor()) && !loop.contains(test.falseSuccessor())) {
+            cond = test.condition();
+        } else if (loop.contains(test.falseSuccessor()) && !loop.contains(test.trueSuccessor())) {
+            cond = test.condition().negate();
+        } else {
+            return;
+        }
+        if (test.x().kind != CiKind.Int || test.y().kind != CiKind.Int) {
+            return;
+        }
+        // normalize the test to the form 'phi cond limit'
+        if (isPhiOf(test.x(), header) && loop.isInvariant(test.y())) {
+            eliminateRangeChecks(loop, (Phi) test.x(), cond, test.y());
+        } else if (isPhiOf(test.y(), header) && loop.isInvariant(test.x())) {
+            eliminateRangeChecks(loop, (Phi) test.y(), cond.mirror(), test.x());
+        } else if (isPhiOf(test.x(), header) && test.y() instanceof ArrayLength) {
+            eliminateRangeChecks(loop, (Phi) test.x(), cond, test.y());
+        } else if (isPhiOf(test.y(), header) && test.x() instanceof ArrayLength) {
+            eliminateRangeChecks(loop, (Phi) test.y(), cond.mirror(), test.x());
+        }
+    }
+
+    private void eliminateRangeChecks(Loop loop, Phi phi, Condition cond, Value limit) {
+        FrameState entryState = loop.preHeader.end().stateAfter();
+        FrameState backEdgeState = loop.backEdgeSources.get(0).end().stateAfter();
+        if (backEdgeState == null || phi.checkFlag(Flag.PhiDead)) {
+            return;
+        }
+        Value init = phi.inputIn(entryState);
+        int step = step(phi, phi.inputIn(backEdgeState));
+        if (init == null || step == 0) {
+            return;
+        }
+
+        // The test of the header holds for every execution of the other blocks of the loop, since the
+        // value of the phi only changes when control reaches the header.
+        List<AccessIndexed> accesses = new ArrayList<AccessIndexed>();
+        for (BlockBegin block : loop.blocks) {
+            if (block != loop.header) {
+                for (Instruction i = block.next(); i != null; i = i.next()) {
+                    if (i instanceof AccessIndexed) {
+                        AccessIndexed access = (AccessIndexed) i;
+                        if (access.index() == phi && access.needsBoundsCheck() && loop.isInvariant(access.array())) {
+                            accesses.add(access);
+                        }
+                    }
+                }
+            }
+        }
+        if (accesses.isEmpty()) {
+            return;
+        }
+
+        HashSet<Value> guarded = new HashSet<Value>();
+        if (step == 1 && (cond == Condition.LT || cond == Condition.LE) && init.isConstant() && init.asConstant().asInt() >= 0) {
+            // the index is in the range [init .. limit)
+            for (AccessIndexed access : accesses) {
+                Value array = access.array();
+                if (cond == Condition.LT && isLengthOf(limit, array, loop)) {
+                    access.eliminateBoundsCheck();
+                } else if (init.asConstant().asInt() == 0 && loop.isInvariant(limit)) {
+                    // guard that 'limit <= array.length' (or 'limit < array.length' for an inclusive limit)
+                    if (guarded.contains(array) || insertGuard(loop, limit, array, cond == Condition.LT ? Condition.LE : Condition.LT)) {
+                        guarded.add(array);
+                        access.eliminateBoundsCheck();
+                    }
+                }
+            }
+        } else if (step == -1 && ((cond == Condition.GE && isIntConstant(limit, 0)) || (cond == Condition.GT && isIntConstant(limit, -1)))) {
+            // the index is in the range [0 .. init]
+            for (AccessIndexed access : accesses) {
+                Value array = access.array();
+                if (isLengthOf(decremented(init), array, loop)) {
+                    access.eliminateBoundsCheck();
+                } else if (guarded.contains(array) || insertGuard(loop, init, array, Condition.LT)) {
+                    guarded.add(array);
+                    access.eliminateBoundsCheck();
+                }
+            }
+        }
+    }
+
+    private static boolean isPhiOf(Value value, BlockBegin block) {
+        return value instanceof Phi && ((Phi) value).block() == block;
+    }
+
+    private static boolean isIntConstant(Value value, int i) {
+        return value.isConstant() && value.kind == CiKind.Int && value.asConstant().asInt() == i;
+    }
+
+    /**
+     * Gets the amount by which the value of a phi is changed in each iteration.
+     * @return {@code 1} or {@code -1}, or {@code 0} if the phi is not incremented or decremented by one
+     */
+    private static int step(Phi phi, Value next) {
+        if (next instanceof ArithmeticOp) {
+            ArithmeticOp op = (ArithmeticOp) next;
+            if (op.opcode == IADD) {
+                if (op.x() == phi && op.y().isConstant()) {
+                    return step(op.y().asConstant().asInt());
+                } else if (op.y() == phi && op.x().isConstant()) {
+                    return step(op.x().asConstant().asInt());
+                }
+            } else if (op.opcode == ISUB && op.x() == phi && op.y().isConstant()) {
+                return step(-op.y().asConstant().asInt());
+            }
+        }
+        return 0;
+    }
+
+    private static int step(int increment) {
+        return increment == 1 || increment == -1 ? increment : 0;
+    }
+
+    /**
+     * Gets the value {@code x} if a given value is of the form {@code x - 1}.
+     */
+    private static Value decremented(Value value) {
+        if (value instanceof ArithmeticOp) {
+            ArithmeticOp op = (ArithmeticOp) value;
+            if (op.opcode == ISUB && isIntConstant(op.y(), 1)) {
+                return op.x();
+            } else if (op.opcode == IADD && isIntConstant(op.y(), -1)) {
+                return op.x();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determines whether a value is the length of an array that does not change in a loop.
+     */
+    private static boolean isLengthOf(Value value, Value array, Loop loop) {
+        return value instanceof ArrayLength && ((ArrayLength) value).array() == array && loop.isInvariant(array);
+    }
+
+    /**
+     * Inserts a guard in the pre-header of a loop that deoptimizes unless {@code bound cond array.length}.
+     * @return {@code true} if the guard was inserted, {@code false} if the array may be null at the end of the pre-header
+     */
+    private boolean insertGuard(Loop loop, Value bound, Value array, Condition cond) {
+        if (!C1XOptions.OptRangeCheckHoisting || !isNonNullBeforeLoop(loop, array)) {
+            return false;
+        }
+        BlockEnd end = loop.preHeader.end();
+        ArrayLength length = new ArrayLength(array, end.stateAfter());
+        length.eliminateNullCheck();
+        length.setBCI(end.bci());
+        appendToPreHeader(loop, length);
+        BoundsCheck guard = new BoundsCheck(bound, length, end.stateAfter(), cond);
+        guard.setBCI(end.bci());
+        appendToPreHeader(loop, guard);
+        C1XMetrics.RangeChecksHoisted++;
+        return true;
+    }
+
+    /**
+     * Determines whether an object is known to be non-null at the end of the pre-header of a loop, either
+     * because the value is non-null or because it is dereferenced in the pre-header or in the blocks
+     * through which the pre-header is always reached.
+     */
+    private static boolean isNonNullBeforeLoop(Loop loop, Value object) {
+        if (object.isNonNull()) {
+            return true;
+        }
+        BlockBegin block = loop.preHeader;
+        for (int depth = 0; depth < 8; depth++) {
+            for (Instruction i = block.next(); i != null; i = i.next()) {
+                if (i instanceof NullCheck && ((NullCheck) i).object() == object) {
+                    return true;
+                }
+                if (i instanceof AccessArray && ((AccessArray) i).array() == object) {
+                    return true;
+                }
+                if (i instanceof AccessField && !((AccessField) i).isStatic() && ((AccessField) i).object() == object) {
+                    return true;
+                }
+            }
+            if (block.numberOfPreds() != 1 || block.isExceptionEntry()) {
+                break;
+            }
+            block = block.predecessors().get(0);
+        }
+        return false;
+    }
+
+    // Loop unrolling -------------------------------------------------------------------------------------------
+
+    /**
+     * Unrolls a loop that consists of a header {@code H} ending with the loop test and a single body block
+     * {@code B}. The loop is transformed as follows, where {@code E} is the exit of the loop:
+     * <pre>
+     *     H: ... if (test) B else E         H:  ... if (test) B else E
+     *     B: ... goto H              ==>    B:  ... goto H'
+     *                                       H': ... if (test') B' else E
+     *                                       B': ... goto H
+     * </pre>
+     * The values computed by the loop that are used after the loop are merged by phis in {@code E}.
+     * @return {@code true} if the loop was unrolled
+     */
+    private boolean unroll(Loop loop) {
+        final BlockBegin header = loop.header;
+        final BlockBegin body = loop.backEdgeSources.get(0);
+        if (loop.backEdgeSources.size() != 1 || body == header || body.numberOfPreds() != 1) {
+            return false;
+        }
+        if (!(header.end() instanceof If) || !(body.end() instanceof Goto)) {
+            return false;
+        }
+        If test = (If) header.end();
+        BlockBegin exit;
+        if (test.trueSuccessor() == body) {
+            exit = test.falseSuccessor();
+        } else if (test.falseSuccessor() == body) {
+            exit = test.trueSuccessor();
+        } else {
+            return false;
+        }
+        FrameState testState = test.stateAfter();
+        FrameState exitState = exit.stateBefore();
+        FrameState backEdgeState = body.end().stateAfter();
+        IRScope scope = header.stateBefore().scope();
+        if (exit == header || exit == body || exit.numberOfPreds() != 1 || exit.isExceptionEntry() || testState == null || backEdgeState == null) {
+            return false;
+        }
+        if (exitState == null || exitState == testState || exitState.scope() != scope ||
+            exitState.localsSize() != testState.localsSize() || exitState.stackSize() != testState.stackSize()) {
+            return false;
+        }
+
+        // check the size of the loop and that all its instructions can be copied
+        final HashSet<Value> loopValues = new HashSet<Value>();
+        int size = 0;
+        for (BlockBegin block : loop.blocks) {
+            if (!block.exceptionHandlerBlocks().isEmpty() || !isInScope(block.stateBefore(), scope)) {
+                return false;
+            }
+            for (Instruction i = block.next(); i != null; i = i.next()) {
+                if (!isInScope(i.stateBefore(), scope) || !isInScope(i.stateAfter(), scope)) {
+                    return false;
+                }
+                if (!(i instanceof BlockEnd) && !(i instanceof Constant)) {
+                    if (!isCopyable(i)) {
+                        return false;
+                    }
+                    size++;
+                }
+                loopValues.add(i);
+            }
+        }
+        if (size > C1XOptions.MaximumShortLoopSize) {
+            return false;
+        }
+
+        // the value of each phi of the header at the start of the second iteration is its input from the back edge
+        final IdentityHashMap<Value, Value> map = new IdentityHashMap<Value, Value>();
+        FrameState headerState = header.stateBefore();
+        for (int i = 0; i < headerState.valuesSize(); i++) {
+            Value value = headerState.valueAt(i);
+            if (isPhiOf(value, header)) {
+                Phi phi = (Phi) value;
+                Value input = phi.inputIn(backEdgeState);
+                if (input == null) {
+                    if (!phi.checkFlag(Flag.PhiDead)) {
+                        return false;
+                    }
+                    input = phi;
+                }
+                map.put(phi, input);
+                loopValues.add(phi);
+            }
+        }
+
+        // the values of the loop used after the loop must be in the state at the exit,
+        // so that they can be merged with the values of the second iteration
+        final HashSet<Value> exitValues = new HashSet<Value>();
+        for (int i = 0; i < exitState.localsSize(); i++) {
+            Value value = exitState.localAt(i);
+            if (loopValues.contains(value)) {
+                if (testState.localAt(i) != value) {
+                    return false;
+                }
+                exitValues.add(value);
+            }
+        }
+        for (int i = 0; i < exitState.stackSize(); i++) {
+            Value value = exitState.stackAt(i);
+            if (loopValues.contains(value)) {
+                if (testState.stackAt(i) != value) {
+                    return false;
+                }
+                exitValues.add(value);
+            }
+        }
+        final List<BlockBegin> outside = new ArrayList<BlockBegin>();
+        ir.startBlock.iterateAnyOrder(new BlockClosure() {
+            public void apply(BlockBegin block) {
+                if (block != header && block != body) {
+                    outside.add(block);
+                }
+            }
+        }, false);
+        final boolean[] escapes = {false};
+        ValueClosure escapeChecker = new ValueClosure() {
+            public Value apply(Value value) {
+                if (loopValues.contains(value) && !exitValues.contains(value)) {
+                    escapes[0] = true;
+                }
+                return value;
+            }
+        };
+        for (BlockBegin block : outside) {
+            allValuesDo(block, escapeChecker);
+        }
+        if (escapes[0]) {
+            return false;
+        }
+
+        // copy the header and the body
+        ValueClosure mapper = new ValueClosure() {
+            public Value apply(Value value) {
+                Value mapped = map.get(value);
+                return mapped == null ? value : mapped;
+            }
+        };
+        BlockBegin header2 = new BlockBegin(header.bci(), ir.nextBlockNumber());
+        BlockBegin body2 = new BlockBegin(body.bci(), ir.nextBlockNumber());
+        header2.setStateBefore(backEdgeState);
+        Instruction last = copyInstructions(header, header2, map, mapper);
+        If test2 = new If(mapper.apply(test.x()), test.condition(), test.unorderedIsTrue(), mapper.apply(test.y()),
+                          test.trueSuccessor() == body ? body2 : exit, test.falseSuccessor() == body ? body2 : exit,
+                          copyState(testState, mapper), test.isSafepointPoll());
+        last.setNext(test2, test.bci());
+        header2.setEnd(test2);
+
+        body2.setStateBefore(copyState(body.stateBefore(), mapper));
+        last = copyInstructions(body, body2, map, mapper);
+        Goto backEdge = (Goto) body.end();
+        Goto backEdge2 = new Goto(header, copyState(backEdgeState, mapper), backEdge.isSafepointPoll());
+        last.setNext(backEdge2, backEdge.bci());
+        body2.setEnd(backEdge2);
+
+        // redirect the original back edge to the copy of the header, keeping the order of the header's predecessors
+        int index = header.predecessors().indexOf(body);
+        Goto gotoHeader2 = new Goto(header2, backEdgeState, false);
+        backEdge.prev(body).setNext(gotoHeader2, backEdge.bci());
+        body.setEnd(gotoHeader2);
+        header.predecessors().remove(body2);
+        header.predecessors().add(index, body2);
+
+        // merge the values used after the loop in the exit block
+        final IdentityHashMap<Value, Value> exitPhis = new IdentityHashMap<Value, Value>();
+        for (int i = 0; i < exitState.localsSize(); i++) {
+            Value value = exitState.localAt(i);
+            if (exitValues.contains(value)) {
+                exitState.setupPhiForLocal(exit, i);
+                if (!exitPhis.containsKey(value)) {
+                    exitPhis.put(value, exitState.localAt(i));
+                }
+            }
+        }
+        for (int i = 0; i < exitState.stackSize(); i++) {
+            Value value = exitState.stackAt(i);
+            if (exitValues.contains(value)) {
+                exitState.setupPhiForStack(exit, i);
+                if (!exitPhis.containsKey(value)) {
+                    exitPhis.put(value, exitState.stackAt(i));
+                }
+            }
+        }
+        if (!exitPhis.isEmpty()) {
+            ValueClosure exitMapper = new ValueClosure() {
+                public Value apply(Value value) {
+                    Value phi = exitPhis.get(value);
+                    return phi == null ? value : phi;
+                }
+            };
+            for (BlockBegin block : outside) {
+                allValuesDo(block, exitMapper);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether a state is the state of a given scope that can be copied for unrolling.
+     */
+    private static boolean isInScope(FrameState state, IRScope scope) {
+        if (state == null) {
+            return true;
+        }
+        if (state.scope() != scope) {
+            return false;
+        }
+        // the values of a virtual object would be updated in place when the state is copied
+        for (int i = 0; i < state.valuesSize(); i++) {
+            if (state.valueAt(i) instanceof VirtualObject) {
+                return false;
+            }
+        }
+        for (int i = 0; i < state.locksSize(); i++) {
+            if (state.lockAt(i) instanceof VirtualObject) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void allValuesDo(BlockBegin block, ValueClosure closure) {
+        for (Instruction i = block; i != null; i = i.next()) {
+            i.allValuesDo(closure);
+        }
+        if (block.exceptionHandlerStates() != null) {
+            for (FrameState state : block.exceptionHandlerStates()) {
+                state.valuesDo(closure);
+            }
+        }
+    }
+
+    private static boolean isCopyable(Instruction i) {
+        if (i instanceof ArithmeticOp) {
+            return i.stateBefore() == null;
+        } else if (i instanceof CompareOp) {
+            return !i.kind.isVoid();
+        } else if (i instanceof AccessField) {
+            return !((AccessField) i).needsPatching();
+        }
+        return i instanceof LogicOp || i instanceof ShiftOp || i instanceof Convert || i instanceof NegateOp ||
+               i instanceof ArrayLength || i instanceof LoadIndexed || i instanceof StoreIndexed;
+    }
+
+    private static FrameState copyState(FrameState state, ValueClosure mapper) {
+        if (state == null) {
+            return null;
+        }
+        FrameState copy = state.copy();
+        copy.valuesDo(mapper);
+        return copy;
+    }
+
+    /**
+     * Appends copies of the instructions of a block to another block.
+     * Constants are not copied since the original block dominates the copy.
+     * @return the last instruction appended
+     */
+    private static Instruction copyInstructions(BlockBegin block, BlockBegin copy, IdentityHashMap<Value, Value> map, ValueClosure mapper) {
+        Instruction last = copy;
+        for (Instruction i = block.next(); !(i instanceof BlockEnd); i = i.next()) {
+            if (!(i instanceof Constant)) {
+                Instruction c = copyInstruction(i, mapper);
+                for (Flag flag : COPIED_FLAGS) {
+                    if (i.checkFlag(flag)) {
+                        c.setFlag(flag);
+                    }
+                }
+                map.put(i, c);
+                last = last.setNext(c, i.bci());
+            }
+        }
+        return last;
+    }
+
+    private static Instruction copyInstruction(Instruction i, ValueClosure m) {
+        FrameState state = copyState(i.stateBefore(), m);
+        if (i instanceof ArithmeticOp) {
+            ArithmeticOp op = (ArithmeticOp) i;
+            return new ArithmeticOp(op.opcode, op.kind, m.apply(op.x()), m.apply(op.y()), op.isStrictFP(), null);
+        } else if (i instanceof LogicOp) {
+            LogicOp op = (LogicOp) i;
+            return new LogicOp(op.kind, op.opcode, m.apply(op.x()), m.apply(op.y()));
+        } else if (i instanceof ShiftOp) {
+            ShiftOp op = (ShiftOp) i;
+            return new ShiftOp(op.opcode, m.apply(op.x()), m.apply(op.y()));
+        } else if (i instanceof CompareOp) {
+            CompareOp op = (CompareOp) i;
+            return new CompareOp(op.opcode, op.kind, m.apply(op.x()), m.apply(op.y()));
+        } else if (i instanceof Convert) {
+            Convert op = (Convert) i;
+            return new Convert(op.opcode, m.apply(op.value()), op.kind);
+        } else if (i instanceof NegateOp) {
+            return new NegateOp(m.apply(((NegateOp) i).x()));
+        } else if (i instanceof ArrayLength) {
+            return new ArrayLength(m.apply(((ArrayLength) i).array()), state);
+        } else if (i instanceof LoadIndexed) {
+            LoadIndexed load = (LoadIndexed) i;
+            return new LoadIndexed(m.apply(load.array()), m.apply(load.index()), load.elementKind(), state);
+        } else if (i instanceof StoreIndexed) {
+            StoreIndexed store = (StoreIndexed) i;
+            return new StoreIndexed(m.apply(store.array()), m.apply(store.index()), store.elementKind(), m.apply(store.value()), state);
+        } else if (i instanceof LoadField) {
+            LoadField load = (LoadField) i;
+            return new LoadField(m.apply(load.object()), load.field(), load.isStatic(), state, load.isLoaded());
+        } else if (i instanceof StoreField) {
+            StoreField store = (StoreField) i;
+            return new StoreField(m.apply(store.object()), store.field(), m.apply(store.value()), store.isStatic(), state, store.isLoaded());
+        }
+        throw Util.shouldNotReachHere();
+    }
+}
@@ -76,7 +76,23 @@ public final class AMD64LIRAssembler extends LIRAssembler {
 
     @Override
     protected void emitOsrEntry() {
-        throw Util.unimplemented();
+        // The runtime enters here with the return address of the replaced frame on top of the
+        // stack and the OSR buffer in the return register. Build the frame the same way as
+        // the standard prologue does.
+        tasm.targetMethod.setOsrEntryOffset(codePos());
+        emitStackOverflowCheck();
+        masm.decrementq(AMD64.rsp, initialFrameSizeInBytes());
+    }
+
+    private void emitStackOverflowCheck() {
+        int frameSize = initialFrameSizeInBytes();
+        int lastFramePage = frameSize / target.pageSize;
+        // emit multiple stack bangs for methods with frames larger than a page
+        for (int i = 0; i <= lastFramePage; i++) {
+            int offset = (i + C1XOptions.StackShadowPages) * target.pageSize;
+            // Deduct 'frameSize' to handle frames larger than the shadow
+            bangStackWithOffset(offset - frameSize);
+        }
     }
 
     @Override
@@ -2056,14 +2072,7 @@ public final class AMD64LIRAssembler extends LIRAssembler {
                     break;
                 }
                 case StackOverflowCheck: {
-                    int frameSize = initialFrameSizeInBytes();
-                    int lastFramePage = frameSize / target.pageSize;
-                    // emit multiple stack bangs for methods with frames larger than a page
-                    for (int i = 0; i <= lastFramePage; i++) {
-                        int offset = (i + C1XOptions.StackShadowPages) * target.pageSize;
-                        // Deduct 'frameSize' to handle frames larger than the shadow
-                        bangStackWithOffset(offset - frameSize);
-                    }
+                    emitStackOverflowCheck();
                     break;
                 }
                 case PushFrame: {
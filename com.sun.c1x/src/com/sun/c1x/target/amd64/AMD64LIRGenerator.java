@@ -692,7 +692,8 @@ public class AMD64LIRGenerator extends LIRGenerator {
 
     @Override
     protected CiValue osrBufferPointer() {
-        return Util.nonFatalUnimplemented(null);
+        // the runtime passes the OSR buffer in the return register
+        return resultOperandFor(compilation.target.wordKind);
     }
 
     @Override
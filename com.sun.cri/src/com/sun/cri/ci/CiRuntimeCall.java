@@ -38,12 +38,13 @@ public enum CiRuntimeCall {
     arithmeticludiv(Long, Long, Long),
     UnwindException(Void, Object),
     Deoptimize(Void),
+    SpeculationFailed(Void, Object, Int),
     RegisterFinalizer(Void, Object),
     HandleException(Void, Object),
     SetDeoptInfo(Void, Object),
     CreateNullPointerException(Object),
     CreateOutOfBoundsException(Object, Int),
-    OSRMigrationEnd(Void),
+    OSRMigrationEnd(Void, Long),
     JavaTimeMillis(Long),
     JavaTimeNanos(Long),
     Debug(Void),
@@ -360,6 +360,7 @@ public class CiTargetMethod implements Serializable {
     private int frameSize = -1;
     private int customStackAreaOffset = -1;
     private int registerRestoreEpilogueOffset = -1;
+    private int osrEntryOffset = -1;
     private int deoptReturnAddressOffset;
 
     /**
@@ -500,6 +501,25 @@ public class CiTargetMethod implements Serializable {
         this.registerRestoreEpilogueOffset = registerRestoreEpilogueOffset;
     }
 
+    /**
+     * Sets the offset of the entry point used for on-stack replacement. Must be called iff the method
+     * was compiled for OSR.
+     *
+     * @param osrEntryOffset the offset in the machine code of the OSR entry point
+     */
+    public void setOsrEntryOffset(int osrEntryOffset) {
+        assert this.osrEntryOffset == -1;
+        this.osrEntryOffset = osrEntryOffset;
+    }
+
+    /**
+     * @return the code offset of the entry point used for on-stack replacement, or -1 if this method
+     *         was not compiled for OSR
+     */
+    public int osrEntryOffset() {
+        return osrEntryOffset;
+    }
+
     /**
      * The frame size of the method in bytes.
      *
@@ -116,12 +116,17 @@ public interface RiXirGenerator {
      * an object is identical to a given hub constant. In pseudo code:
      * <pre>
      *     if (object.getHub() != hub) {
-     *         uncommonTrap();
+     *         speculationFailed(method, bci);
      *     }
      * </pre>
+     * The failure path invalidates the compiled code and resumes execution by re-executing the
+     * bytecode at {@code bci} in {@code method} in the interpreter or baseline code.
      * This snippet should only be used when the object is guaranteed not to be null.
+     *
+     * @param method the method containing the bytecode whose type speculation is being checked
+     * @param bci the bytecode index of the speculated instruction in {@code method}
      */
-    XirSnippet genTypeCheck(XirSite site, XirArgument object, XirArgument hub, RiType type);
+    XirSnippet genTypeCheck(XirSite site, XirArgument object, XirArgument hub, RiType type, RiResolvedMethod method, int bci);
 
     /**
      * Gets the list of XIR templates, using the given XIR assembler to create them if
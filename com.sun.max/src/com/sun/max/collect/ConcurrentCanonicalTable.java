@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.collect;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A hash table used to canonicalize values (e.g. symbols and descriptors) that is safe for concurrent use without
+ * a global lock. Lookups never block: they walk immutable bucket chains read from an {@link AtomicReferenceArray}.
+ * Insertions publish a new chain head with a compare-and-swap on the bucket. Growing the table is serialized by a
+ * lock that only resizing threads take; the old table stays readable throughout as each of its buckets is replaced
+ * by a forwarding node once that bucket has been copied into the new table.
+ * <p>
+ * Entries can never be removed, which is what canonicalization tables need and what keeps the above simple.
+ * <p>
+ * Counters recording the contention seen on the slow paths are maintained so that they can be reported with
+ * {@code -XX:+PrintSymbolTableStats}.
+ */
+public final class ConcurrentCanonicalTable<K, V> {
+
+    private static class Node<K, V> {
+        final int hash;
+        final K key;
+        final V value;
+        final Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Installed in every bucket of a table that has been copied into a larger table.
+     */
+    private static final class Forward<K, V> extends Node<K, V> {
+        final AtomicReferenceArray<Node<K, V>> table;
+
+        Forward(AtomicReferenceArray<Node<K, V>> table) {
+            super(0, null, null, null);
+            this.table = table;
+        }
+    }
+
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final Object resizeLock = new Object();
+
+    private final AtomicInteger casFailures = new AtomicInteger();
+    private final AtomicInteger lostRaces = new AtomicInteger();
+    private final AtomicInteger forwardedAccesses = new AtomicInteger();
+    private final AtomicInteger resizes = new AtomicInteger();
+
+    /**
+     * Creates a table whose bucket array can hold at least {@code initialCapacity} entries before it is grown.
+     */
+    public ConcurrentCanonicalTable(int initialCapacity) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < initialCapacity) {
+            capacity <<= 1;
+        }
+        table = new AtomicReferenceArray<Node<K, V>>(capacity);
+    }
+
+    private static int hash(Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the value associated with a given key. This never blocks.
+     *
+     * @return the canonical value for {@code key} or {@code null} if there is none
+     */
+    public V get(K key) {
+        final int hash = hash(key);
+        AtomicReferenceArray<Node<K, V>> t = table;
+        while (true) {
+            final Node<K, V> head = t.get(hash & (t.length() - 1));
+            if (head instanceof Forward) {
+                forwardedAccesses.incrementAndGet();
+                t = ((Forward<K, V>) head).table;
+                continue;
+            }
+            for (Node<K, V> e = head; e != null; e = e.next) {
+                if (e.hash == hash && key.equals(e.key)) {
+                    return e.value;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Makes {@code value} the canonical value for {@code key} unless some value is already associated with it.
+     *
+     * @return the canonical value for {@code key}: either {@code value} or the value that was installed first
+     */
+    public V intern(K key, V value) {
+        final int hash = hash(key);
+        AtomicReferenceArray<Node<K, V>> t = table;
+        boolean retried = false;
+        while (true) {
+            final int index = hash & (t.length() - 1);
+            final Node<K, V> head = t.get(index);
+            if (head instanceof Forward) {
+                forwardedAccesses.incrementAndGet();
+                t = ((Forward<K, V>) head).table;
+                continue;
+            }
+            for (Node<K, V> e = head; e != null; e = e.next) {
+                if (e.hash == hash && key.equals(e.key)) {
+                    if (retried) {
+                        lostRaces.incrementAndGet();
+                    }
+                    return e.value;
+                }
+            }
+            if (t.compareAndSet(index, head, new Node<K, V>(hash, key, value, head))) {
+                break;
+            }
+            casFailures.incrementAndGet();
+            retried = true;
+        }
+        if (size.incrementAndGet() > t.length() * 3 / 4) {
+            resize(t);
+        }
+        return value;
+    }
+
+    /**
+     * Doubles the size of the bucket array, unless another thread already grew {@code oldTable}.
+     * Readers and inserters keep going during the copy; they follow forwarding nodes to the new array.
+     */
+    private void resize(AtomicReferenceArray<Node<K, V>> oldTable) {
+        synchronized (resizeLock) {
+            if (table != oldTable) {
+                return;
+            }
+            final int n = oldTable.length();
+            final AtomicReferenceArray<Node<K, V>> newTable = new AtomicReferenceArray<Node<K, V>>(n << 1);
+            final Forward<K, V> forward = new Forward<K, V>(newTable);
+            for (int i = 0; i < n; i++) {
+                while (true) {
+                    final Node<K, V> head = oldTable.get(i);
+                    Node<K, V> low = null;
+                    Node<K, V> high = null;
+                    for (Node<K, V> e = head; e != null; e = e.next) {
+                        if ((e.hash & n) == 0) {
+                            low = new Node<K, V>(e.hash, e.key, e.value, low);
+                        } else {
+                            high = new Node<K, V>(e.hash, e.key, e.value, high);
+                        }
+                    }
+                    // The new buckets are not reachable until the forwarding node is installed
+                    newTable.set(i, low);
+                    newTable.set(i + n, high);
+                    if (oldTable.compareAndSet(i, head, forward)) {
+                        break;
+                    }
+                    casFailures.incrementAndGet();
+                }
+            }
+            table = newTable;
+            resizes.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of entries in this table.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Gets the number of times a bucket update failed because another thread changed the bucket first.
+     */
+    public int casFailures() {
+        return casFailures.get();
+    }
+
+    /**
+     * Gets the number of insertions that found, after retrying, that another thread had installed the same key.
+     */
+    public int lostRaces() {
+        return lostRaces.get();
+    }
+
+    /**
+     * Gets the number of times a lookup or insertion had to follow a forwarding node into a grown table.
+     */
+    public int forwardedAccesses() {
+        return forwardedAccesses.get();
+    }
+
+    /**
+     * Gets the number of times this table has been grown.
+     */
+    public int resizes() {
+        return resizes.get();
+    }
+}
@@ -28,9 +28,13 @@ import java.nio.*;
 import java.util.*;
 
 import com.sun.max.annotate.*;
+import com.sun.max.lang.*;
 import com.sun.max.program.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
+import com.sun.max.vm.jni.*;
+import com.sun.max.vm.object.*;
+import com.sun.max.vm.reference.*;
 import com.sun.max.vm.runtime.*;
 
 /**
@@ -139,10 +143,74 @@ public final class Memory {
         }
     }
 
+    /**
+     * Operations on at least this many bytes are delegated to the C library, whose {@code memset}, {@code memmove}
+     * and {@code memcmp} are tuned for the host processor (e.g. {@code rep stosb}/{@code rep movsb} or AVX on AMD64
+     * and NEON on AArch64). Smaller operations are done inline, a word at a time, to avoid the cost of the native call.
+     */
+    public static final int NATIVE_BULK_THRESHOLD = 256;
+
+    /**
+     * The number of bytes that callers of the bulk operations below should process between two safepoint polls.
+     * The bulk operations themselves have no safepoint polls, so a caller that can tolerate a safepoint should split
+     * long operations into chunks of this size (see {@link #setBytes(Object, long, long, byte)} and
+     * {@link #copyBytes(Object, long, Object, long, long)}).
+     */
+    public static final int BULK_CHUNK_SIZE = 1024 * 1024;
+
+    @C_FUNCTION
+    private static native void memory_setBytes(Pointer pointer, Size numberOfBytes, int value);
+
+    @C_FUNCTION
+    private static native void memory_copyBytes(Pointer fromPointer, Pointer toPointer, Size numberOfBytes);
+
+    @C_FUNCTION
+    private static native int memory_compareBytes(Pointer pointer1, Pointer pointer2, Size numberOfBytes);
+
+    /**
+     * Determines if a bulk operation on a given number of bytes should be delegated to the C library.
+     * This is not possible before the critical native methods are linked.
+     */
+    @INLINE
+    private static boolean useNativeBulk(Size numberOfBytes) {
+        return !isHosted() && numberOfBytes.greaterEqual(NATIVE_BULK_THRESHOLD) && DynamicLinker.isCriticalLinked();
+    }
+
     @NO_SAFEPOINT_POLLS("speed")
     public static void setBytes(Pointer pointer, Size numberOfBytes, byte value) {
-        for (Offset i = Offset.zero(); i.lessThan(numberOfBytes.asOffset()); i = i.plus(1)) {
+        if (useNativeBulk(numberOfBytes)) {
+            memory_setBytes(pointer, numberOfBytes, value);
+            return;
+        }
+        long pattern = value & 0xffL;
+        pattern |= pattern << 8;
+        pattern |= pattern << 16;
+        pattern |= pattern << 32;
+        final Offset end = numberOfBytes.asOffset();
+        final Offset longBounds = numberOfBytes.alignDown(Longs.SIZE).asOffset();
+        Offset i = Offset.zero();
+        while (i.lessThan(longBounds)) {
+            pointer.writeLong(i, pattern);
+            i = i.plus(Longs.SIZE);
+        }
+        while (i.lessThan(end)) {
             pointer.writeByte(i, value);
+            i = i.plus(1);
+        }
+    }
+
+    /**
+     * Sets a range of bytes that may be arbitrarily long, with a safepoint poll after every {@link #BULK_CHUNK_SIZE}
+     * bytes. The range is specified the same way as for {@link sun.misc.Unsafe#setMemory(Object, long, long, byte)}:
+     * if {@code base} is {@code null}, {@code offset} is an absolute address, otherwise it is an offset from the
+     * origin of {@code base}, which may move at a safepoint.
+     */
+    public static void setBytes(Object base, long offset, long numberOfBytes, byte value) {
+        long done = 0;
+        while (done < numberOfBytes) {
+            final long chunk = Math.min(numberOfBytes - done, BULK_CHUNK_SIZE);
+            setBytes(pointer(base, offset + done), Size.fromLong(chunk), value);
+            done += chunk;
         }
     }
 
@@ -156,16 +224,12 @@ public final class Memory {
     @NO_SAFEPOINT_POLLS("speed, and used in code that shouldn't be interrupted by GC")
     public static void clearWords(Pointer start, int length) {
         FatalError.check(start.isWordAligned(), "Can only zero word-aligned region");
-        for (int i = 0; i < length; i++) {
-            start.setWord(i, Address.zero());
-        }
+        setBytes(start, Size.fromInt(length).times(Word.size()), (byte) 0);
     }
 
     @NO_SAFEPOINT_POLLS("speed")
     public static void setBytes(Pointer pointer, int numberOfBytes, byte value) {
-        for (int i = 0; i < numberOfBytes; i++) {
-            pointer.writeByte(i, value);
-        }
+        setBytes(pointer, Size.fromInt(numberOfBytes), value);
     }
 
     @NO_SAFEPOINT_POLLS("speed")
@@ -175,26 +239,63 @@ public final class Memory {
 
     @NO_SAFEPOINT_POLLS("speed")
     public static boolean equals(Pointer pointer1, Pointer pointer2, Size numberOfBytes) {
-        for (Offset i = Offset.zero(); i.lessThan(numberOfBytes.asOffset()); i = i.plus(1)) {
+        if (useNativeBulk(numberOfBytes)) {
+            return memory_compareBytes(pointer1, pointer2, numberOfBytes) == 0;
+        }
+        final Offset end = numberOfBytes.asOffset();
+        final Offset wordBounds = numberOfBytes.alignDown(Word.size()).asOffset();
+        Offset i = Offset.zero();
+        while (i.lessThan(wordBounds)) {
+            if (!pointer1.readWord(i).equals(pointer2.readWord(i))) {
+                return false;
+            }
+            i = i.plus(Word.size());
+        }
+        while (i.lessThan(end)) {
             if (pointer1.readByte(i) != pointer2.readByte(i)) {
                 return false;
             }
+            i = i.plus(1);
         }
         return true;
     }
 
     @NO_SAFEPOINT_POLLS("speed")
     public static boolean equals(Pointer pointer1, byte[] bytes) {
-        for (int i = 0; i < bytes.length; i++) {
-            if (pointer1.readByte(i) != bytes[i]) {
-                return false;
+        if (isHosted()) {
+            for (int i = 0; i < bytes.length; i++) {
+                if (pointer1.readByte(i) != bytes[i]) {
+                    return false;
+                }
             }
+            return true;
         }
-        return true;
+        return equals(pointer1, ArrayAccess.elementPointer(bytes, 0), Size.fromInt(bytes.length));
     }
 
+    /**
+     * Copies bytes from one memory range to another. The ranges may overlap.
+     */
     @NO_SAFEPOINT_POLLS("speed")
     public static void copyBytes(Pointer fromPointer, Pointer toPointer, Size numberOfBytes) {
+        if (useNativeBulk(numberOfBytes)) {
+            memory_copyBytes(fromPointer, toPointer, numberOfBytes);
+            return;
+        }
+        if (toPointer.greaterThan(fromPointer) && toPointer.lessThan(fromPointer.plus(numberOfBytes))) {
+            // the destination overlaps the end of the source: copy backwards
+            Offset i = numberOfBytes.asOffset();
+            final Offset wordBounds = numberOfBytes.alignDown(Word.size()).asOffset();
+            while (i.greaterThan(wordBounds)) {
+                i = i.minus(1);
+                toPointer.writeByte(i, fromPointer.readByte(i));
+            }
+            while (i.greaterThan(Offset.zero())) {
+                i = i.minus(Word.size());
+                toPointer.writeWord(i, fromPointer.readWord(i));
+            }
+            return;
+        }
         Offset i = Offset.zero();
         Size wordBounds = numberOfBytes.alignDown(Word.size());
         while (i.lessThan(wordBounds.asOffset())) {
@@ -208,11 +309,56 @@ public final class Memory {
         assert i.equals(numberOfBytes);
     }
 
+    /**
+     * Copies a range of bytes that may be arbitrarily long, with a safepoint poll after every {@link #BULK_CHUNK_SIZE}
+     * bytes. The ranges are specified the same way as for
+     * {@link sun.misc.Unsafe#copyMemory(Object, long, Object, long, long)} and may overlap.
+     *
+     * @see #setBytes(Object, long, long, byte)
+     */
+    public static void copyBytes(Object fromBase, long fromOffset, Object toBase, long toOffset, long numberOfBytes) {
+        if (fromBase == toBase && toOffset > fromOffset && toOffset < fromOffset + numberOfBytes) {
+            // the destination overlaps the end of the source: copy the chunks backwards
+            long remaining = numberOfBytes;
+            while (remaining > 0) {
+                final long chunk = Math.min(remaining, BULK_CHUNK_SIZE);
+                remaining -= chunk;
+                copyBytes(pointer(fromBase, fromOffset + remaining), pointer(toBase, toOffset + remaining), Size.fromLong(chunk));
+            }
+        } else {
+            long done = 0;
+            while (done < numberOfBytes) {
+                final long chunk = Math.min(numberOfBytes - done, BULK_CHUNK_SIZE);
+                copyBytes(pointer(fromBase, fromOffset + done), pointer(toBase, toOffset + done), Size.fromLong(chunk));
+                done += chunk;
+            }
+        }
+    }
+
+    /**
+     * Gets the address denoted by an object and an offset, as used by the {@code sun.misc.Unsafe} memory accessors.
+     * The result is only valid until the next safepoint.
+     */
+    @INLINE
+    private static Pointer pointer(Object base, long offset) {
+        if (base == null) {
+            return Pointer.fromLong(offset);
+        }
+        return Reference.fromJava(base).toOrigin().plus(offset);
+    }
+
     @NO_SAFEPOINT_POLLS("speed")
     public static void readBytes(Pointer fromPointer, int numberOfBytes, byte[] toArray, int startIndex) {
-        for (int i = 0; i < numberOfBytes; i++) {
-            toArray[startIndex + i] = fromPointer.readByte(i);
+        if (isHosted()) {
+            for (int i = 0; i < numberOfBytes; i++) {
+                toArray[startIndex + i] = fromPointer.readByte(i);
+            }
+            return;
+        }
+        if (startIndex < 0 || numberOfBytes < 0 || startIndex > toArray.length - numberOfBytes) {
+            throw new ArrayIndexOutOfBoundsException();
         }
+        copyBytes(fromPointer, ArrayAccess.elementPointer(toArray, startIndex), Size.fromInt(numberOfBytes));
     }
 
     @NO_SAFEPOINT_POLLS("speed")
@@ -244,9 +390,16 @@ public final class Memory {
 
     @NO_SAFEPOINT_POLLS("speed")
     public static void writeBytes(byte[] fromArray, int startIndex, int numberOfBytes, Pointer toPointer) {
-        for (int i = 0; i < numberOfBytes; i++) {
-            toPointer.writeByte(i, fromArray[startIndex + i]);
+        if (isHosted()) {
+            for (int i = 0; i < numberOfBytes; i++) {
+                toPointer.writeByte(i, fromArray[startIndex + i]);
+            }
+            return;
+        }
+        if (startIndex < 0 || numberOfBytes < 0 || startIndex > fromArray.length - numberOfBytes) {
+            throw new ArrayIndexOutOfBoundsException();
         }
+        copyBytes(ArrayAccess.elementPointer(fromArray, startIndex), toPointer, Size.fromInt(numberOfBytes));
     }
 
     @NO_SAFEPOINT_POLLS("speed")
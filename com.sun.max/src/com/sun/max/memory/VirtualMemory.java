@@ -50,6 +50,16 @@ public final class VirtualMemory {
         VMOptions.addFieldOption("-XX:", "TraceAnonOperations", VirtualMemory.class, "TraceAnonOperations", Phase.PRISTINE);
     }
 
+    private static boolean UseLargePages = false;
+    static {
+        VMOptions.addFieldOption("-XX:", "UseLargePages", VirtualMemory.class, "Back heap and code memory with large pages when the platform supports it.", Phase.PRISTINE);
+    }
+
+    /**
+     * Indicates whether the platform's support for large pages has been checked.
+     */
+    private static boolean largePagesChecked;
+
     public enum Type {
         HEAP,   // for the garbage collected heap
         STACK,  // for thread stacks
@@ -71,6 +81,9 @@ public final class VirtualMemory {
         allocateMemoryTime.start();
         final Pointer allocated = virtualMemory_allocate(size, type.ordinal());
         allocateMemoryTime.stop();
+        if (!allocated.isZero()) {
+            adviseLargePages(allocated, size, type);
+        }
         return allocated;
     }
 
@@ -105,6 +118,9 @@ public final class VirtualMemory {
         allocateAtFixedAddressTime.start();
         final boolean allocated = virtualMemory_allocateAtFixedAddress(address, size, type.ordinal());
         allocateAtFixedAddressTime.stop();
+        if (allocated) {
+            adviseLargePages(address, size, type);
+        }
         return allocated;
     }
 
@@ -209,7 +225,11 @@ public final class VirtualMemory {
         commitMemoryTime.start();
         final Pointer committed = virtualMemory_allocatePrivateAnon(address, size, true, false, type.ordinal());
         commitMemoryTime.stop();
-        return committed.equals(address);
+        if (committed.equals(address)) {
+            adviseLargePages(address, size, type);
+            return true;
+        }
+        return false;
     }
 
     public static boolean uncommitMemory(Address address, Size size, Type type) {
@@ -226,6 +246,50 @@ public final class VirtualMemory {
         return !uncommitted.isZero();
     }
 
+    /**
+     * Advises the underlying operating system to back a range of memory with large pages if {@code -XX:+UseLargePages} is specified.
+     * Only {@linkplain Type#HEAP heap} and {@linkplain Type#CODE code} memory is backed with large pages.
+     * The advice is attached to the current mapping of the range; memory that is re-mapped afterwards (e.g., when
+     * {@linkplain #commitMemory(Address, Size, Type) committed}) must be advised again.
+     * <p>
+     * If large pages aren't available, a warning is reported the first time and large pages are no longer used.
+     *
+     * @param address page aligned start of the range
+     * @param size size of the range
+     * @param type type of memory in the range
+     */
+    public static void adviseLargePages(Address address, Size size, Type type) {
+        if (!UseLargePages || (type != Type.HEAP && type != Type.CODE)) {
+            return;
+        }
+        if (!largePagesChecked) {
+            largePagesChecked = true;
+            if (!virtualMemory_largePagesAvailable()) {
+                disableLargePages("large pages are not available on this platform");
+                return;
+            }
+        }
+        if (TraceAnonOperations) {
+            traceRange("adviseLargePages", address, size);
+        }
+        if (!virtualMemory_adviseLargePages(address, size)) {
+            disableLargePages("could not back memory with large pages");
+        }
+    }
+
+    private static void disableLargePages(String reason) {
+        UseLargePages = false;
+        Log.print("WARNING: ");
+        Log.print(reason);
+        Log.println(", -XX:+UseLargePages is ignored");
+    }
+
+    @C_FUNCTION
+    private static native boolean virtualMemory_largePagesAvailable();
+
+    @C_FUNCTION
+    private static native boolean virtualMemory_adviseLargePages(Address address, Size size);
+
     /**
      * Return the amount of physical memory (in bytes) of the underlying platform.
      * @return amount of physical memory in bytes
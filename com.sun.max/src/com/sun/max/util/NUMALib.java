@@ -71,4 +71,13 @@ public class NUMALib {
 
     @C_FUNCTION
     public static native int numaPageSize();
+
+    @C_FUNCTION
+    public static native int numaMaxNode();
+
+    /**
+     * Bind a range of virtual memory to a NUMA node. Pages of the range are allocated on that node when first touched.
+     */
+    @C_FUNCTION
+    public static native void numaBindMemory(long address, long size, int node);
 }
@@ -41,6 +41,7 @@ import com.sun.max.vm.compiler.RuntimeCompiler.*;
 import com.sun.max.vm.compiler.target.*;
 import com.sun.max.vm.jni.*;
 import com.sun.max.vm.object.ObjectAccess;
+import com.sun.max.vm.profile.*;
 import com.sun.max.vm.runtime.FatalError;
 import com.sun.max.vm.type.*;
 import com.sun.max.vm.verifier.*;
@@ -405,6 +406,26 @@ public abstract class ClassMethodActor extends MethodActor {
         return Compilations.currentTargetMethod(compiledState, null);
     }
 
+    /**
+     * Gets the profile collected by the current baseline version of this method.
+     *
+     * @return {@code null} if there is no baseline version of this method or it is not profiled
+     */
+    public final MethodProfile profile() {
+        TargetMethod baseline = Compilations.currentTargetMethod(compiledState, Nature.BASELINE);
+        return baseline == null ? null : baseline.profile();
+    }
+
+    @Override
+    public RiTypeProfile typeProfile(int bci) {
+        if (isHosted()) {
+            // code in the boot image is not speculated on as it is not deoptimized
+            return null;
+        }
+        MethodProfile profile = profile();
+        return profile == null ? null : profile.typeProfile(bci);
+    }
+
     /**
      * Records if this object returned {@code true} for a call to {@link #canBePermanentlyLinked()} during
      * boot image building.
@@ -25,8 +25,8 @@ package com.sun.max.vm.classfile.constant;
 import java.io.*;
 
 import com.sun.max.collect.*;
-import com.sun.max.collect.ChainedHashMapping.Entry;
 import com.sun.max.vm.*;
+import com.sun.max.vm.type.*;
 
 /**
  * Implementation of symbol and String interning, the latter of which is a Java language requirement.
@@ -39,36 +39,14 @@ public final class SymbolTable {
 
     /**
      * The only concrete subclass of {@link Utf8Constant}.
-     * Using a subclass hides the details of storing Utf8Constants in a {@link ChainedHashMapping}.
+     * Using a subclass ensures that Utf8Constants are only created by {@link SymbolTable#makeSymbol(String)}.
      */
-    static final class Utf8ConstantEntry extends Utf8Constant implements ChainedHashMapping.Entry<String, Utf8ConstantEntry> {
+    static final class Utf8ConstantEntry extends Utf8Constant {
 
         Utf8ConstantEntry(String value) {
             super(value);
         }
 
-        public String key() {
-            return toString();
-        }
-
-        private Entry<String, Utf8ConstantEntry> next;
-
-        public Entry<String, Utf8ConstantEntry> next() {
-            return next;
-        }
-
-        public void setNext(Entry<String, Utf8ConstantEntry> next) {
-            this.next = next;
-        }
-
-        public void setValue(Utf8ConstantEntry value) {
-            assert value == this;
-        }
-
-        public Utf8ConstantEntry value() {
-            return this;
-        }
-
         @Override
         public void writeOn(DataOutputStream stream, ConstantPoolEditor editor, int index) throws IOException {
             super.writeOn(stream, editor, index);
@@ -77,24 +55,38 @@ public final class SymbolTable {
     }
 
     /**
-     * Searching and adding entries to this map is only performed by {@linkplain #makeSymbol(String) one method} which
-     * is synchronized.
+     * Lookups in this table do not take a lock. Two threads making the same new symbol may both create an entry but
+     * only the one that is {@linkplain ConcurrentCanonicalTable#intern(Object, Object) interned} first is returned to either.
      */
-    private static final ChainingValueChainedHashMapping<String, Utf8ConstantEntry> symbolTable = new ChainingValueChainedHashMapping<String, Utf8ConstantEntry>(40000);
+    private static final ConcurrentCanonicalTable<String, Utf8ConstantEntry> symbolTable = new ConcurrentCanonicalTable<String, Utf8ConstantEntry>(40000);
 
     public static final Utf8Constant INIT = makeSymbol("<init>");
     public static final Utf8Constant CLINIT = makeSymbol("<clinit>");
     public static final Utf8Constant FINALIZE = makeSymbol("finalize");
 
+    static {
+        VMOptions.register(new VMBooleanOption("-XX:-PrintSymbolTableStats",
+                "Report the size of and the contention seen on the symbol and descriptor tables.") {
+            @Override
+            protected void beforeExit() {
+                if (getValue()) {
+                    printStatistics("Symbols", symbolTable);
+                    TypeDescriptor.printStatistics();
+                    SignatureDescriptor.printStatistics();
+                }
+            }
+        }, MaxineVM.Phase.STARTING);
+    }
+
     public static int length() {
-        return symbolTable.length();
+        return symbolTable.size();
     }
 
-    public static synchronized Utf8Constant lookupSymbol(String value) {
+    public static Utf8Constant lookupSymbol(String value) {
         return symbolTable.get(value);
     }
 
-    public static synchronized Utf8Constant makeSymbol(String value) {
+    public static Utf8Constant makeSymbol(String value) {
         Utf8ConstantEntry utf8 = symbolTable.get(value);
         if (utf8 == null) {
             if (MaxineVM.isHosted()) {
@@ -103,11 +95,28 @@ public final class SymbolTable {
             } else {
                 utf8 = new Utf8ConstantEntry(value);
             }
-            symbolTable.put(value, utf8);
+            utf8 = symbolTable.intern(value, utf8);
         }
         return utf8;
     }
 
+    /**
+     * Prints the size of a canonicalization table and the contention counters it maintains to the {@link Log}.
+     */
+    public static void printStatistics(String name, ConcurrentCanonicalTable<?, ?> table) {
+        Log.print(name);
+        Log.print(": size=");
+        Log.print(table.size());
+        Log.print(", resizes=");
+        Log.print(table.resizes());
+        Log.print(", CAS failures=");
+        Log.print(table.casFailures());
+        Log.print(", lost insert races=");
+        Log.print(table.lostRaces());
+        Log.print(", forwarded accesses=");
+        Log.println(table.forwardedAccesses());
+    }
+
     public static String intern(String value) {
         return makeSymbol(value).toString();
     }
@@ -152,6 +152,16 @@ public final class Code {
         codeManager.visitCells(cellVisitor, includeBootCode);
     }
 
+    /**
+     * Visits each cell of a single code region.
+     *
+     * @param cellVisitor the cell visitor to call back for each cell
+     * @param codeRegion the code region whose cells are visited
+     */
+    public static void visitCells(CellVisitor cellVisitor, CodeRegion codeRegion) {
+        codeManager.visitAllIn(cellVisitor, codeRegion);
+    }
+
     public static Size getRuntimeCodeRegionSize() {
         return codeManager.getRuntimeBaselineCodeRegionSize().plus(codeManager.getRuntimeOptCodeRegionSize());
     }
@@ -54,6 +54,10 @@ public class NearBootRegionCodeManager extends CodeManager {
         if (!Heap.AvoidsAnonOperations && !VirtualMemory.allocateAtFixedAddress(address, size, VirtualMemory.Type.CODE)) {
             throw ProgramError.unexpected("could not allocate " + cr.regionName());
         }
+        if (Heap.AvoidsAnonOperations) {
+            // The region is carved out of the virtual space reserved at boot, which is already mapped.
+            VirtualMemory.adviseLargePages(address, size, VirtualMemory.Type.CODE);
+        }
         cr.bind(address, size);
     }
 }
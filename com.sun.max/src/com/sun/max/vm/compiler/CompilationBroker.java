@@ -106,9 +106,28 @@ public class CompilationBroker {
     @HOSTED_ONLY
     private static boolean needOfflineAdapters = false;
 
-    private static boolean BackgroundCompilation = false;
+    /**
+     * Recompile hot methods on the {@linkplain CompilationThreadPool compilation threads} while the
+     * mutator threads continue executing the baseline code.
+     */
+    private static boolean BackgroundCompilation = true;
     private static boolean backgroundCompilationInitialized = false;
 
+    /**
+     * Enables on-stack replacement of baseline frames by optimized code when a back-edge counter overflows.
+     */
+    public static boolean UseOSR = false;
+
+    /**
+     * The file backing the {@linkplain PersistentCodeCache persistent code cache}, if any.
+     */
+    private static String CodeCacheFile;
+
+    /**
+     * The persistent code cache or {@code null} if {@link #CodeCacheFile} is not set.
+     */
+    private PersistentCodeCache persistentCodeCache;
+
     static {
         addFieldOption("-X", "opt", CompilationBroker.class, "Select optimizing compiler whenever possible.");
         addFieldOption("-XX:", "RCT", CompilationBroker.class, "Set the recompilation threshold for methods. Use 0 to disable recompilation. (default: " + RCT + ").");
@@ -119,7 +138,10 @@ public class CompilationBroker {
         addFieldOption("-XX:", "NUMAProfilerEntryPoint", CompilationBroker.class, "Define the method upon whose invocation profiling should start");
         addFieldOption("-XX:", "NUMAProfilerExitPoint", CompilationBroker.class, "Define the method upon whose invocation profiling should end");
         addFieldOption("-XX:", "LogCompiledMethods", CompilationBroker.class, "Log the names of compiled methods (default: false)");
-        addFieldOption("-XX:", "BackgroundCompilation", CompilationBroker.class, "Enable background compilation (default: false)");
+        addFieldOption("-XX:", "BackgroundCompilation", CompilationBroker.class, "Recompile hot methods in background compilation threads (default: true)");
+        addFieldOption("-XX:", "UseOSR", CompilationBroker.class, "Replace long running baseline frames with optimized code at loop headers (AMD64 only, default: false)");
+        addFieldOption("-XX:", "CodeCacheFile", CompilationBroker.class, "Record the methods compiled by the optimizing compiler in the specified file " +
+                       "at VM exit and compile them with the optimizing compiler when they are first invoked in later runs.");
     }
 
     @RESET
@@ -364,6 +386,17 @@ public class CompilationBroker {
                 compilationThreadPool.setDaemon(true);
                 compilationThreadPool.startThreads();
             }
+            if (CodeCacheFile != null && baselineCompiler != null) {
+                final PersistentCodeCache codeCache = new PersistentCodeCache(CodeCacheFile);
+                codeCache.load();
+                persistentCodeCache = codeCache;
+                Runtime.getRuntime().addShutdownHook(new Thread("PersistentCodeCacheWriter") {
+                    @Override
+                    public void run() {
+                        codeCache.save();
+                    }
+                });
+            }
             if (PrintCodeCacheMetrics != 0) {
                 Runtime.getRuntime().addShutdownHook(new Thread("CodeCacheMetricsPrinter") {
                     @Override
@@ -375,6 +408,15 @@ public class CompilationBroker {
         }
     }
 
+    /**
+     * Gets the persistent code cache.
+     *
+     * @return {@code null} if the VM was not started with {@code -XX:CodeCacheFile}
+     */
+    public PersistentCodeCache persistentCodeCache() {
+        return persistentCodeCache;
+    }
+
     /**
      * Default compilation, not for deopt.
      *
@@ -482,14 +524,8 @@ public class CompilationBroker {
 
             try {
                 if (doCompile) {
-                    TargetMethod tm = null;
-                    if (backgroundCompilationInitialized && nature == Nature.OPT) {
-                        compilationThreadPool.addCompilationToQueue(compilation);
-                        compilation.relinquishOwnership();
-                    } else {
-                        tm = compilation.compile();
-                        VMTI.handler().methodCompiled(cma);
-                    }
+                    TargetMethod tm = compilation.compile();
+                    VMTI.handler().methodCompiled(cma);
                     if (MaxineVM.isRunning() && LogCompiledMethods) {
                         Log.println("TargetMethod(" + tmCounter++ + ")(" +
                                  selectCompiler(cma, nature, isDeopt) + "): " + tm);
@@ -594,6 +630,9 @@ public class CompilationBroker {
                             // compile VM extensions with the opt compiler (cf isHosted)
                             reason = "vm";
                             compiler = optimizingCompiler;
+                        } else if (!isDeopt && persistentCodeCache != null && persistentCodeCache.validate(cma)) {
+                            reason = "code cache";
+                            compiler = optimizingCompiler;
                         } else {
                             compiler = defaultCompiler;
                         }
@@ -648,6 +687,50 @@ public class CompilationBroker {
         cma.compiledState = Compilations.EMPTY;
     }
 
+    /**
+     * Requests an optimized compilation of a method by the {@linkplain CompilationThreadPool compilation threads}.
+     * If such a compilation is already queued, its priority is raised to {@code hotness}.
+     *
+     * @param cma the method to compile
+     * @param hotness the priority of the compilation
+     */
+    private void compileInBackground(ClassMethodActor cma, long hotness) {
+        if (cma.compiledState instanceof Compilation) {
+            // Already being compiled
+            return;
+        }
+        compilationThreadPool.addCompilationToQueue(cma, hotness);
+    }
+
+    /**
+     * Starts the optimized compilation of a method requested by {@link #compileInBackground(ClassMethodActor, long)}.
+     * Called by the compilation thread that dequeued the request, which must then {@linkplain Compilation#compile() perform}
+     * the returned compilation. The compilation is installed as the compiled state of the method only now, so that it
+     * reflects the state of the method when the compilation starts rather than when it was requested.
+     *
+     * @param cma the method to compile
+     * @return the compilation to perform, or {@code null} if the method was optimized, or is being compiled, since it was queued
+     */
+    Compilation startBackgroundCompilation(ClassMethodActor cma) {
+        synchronized (cma) {
+            Object compiledState = cma.compiledState;
+            if (compiledState instanceof Compilation) {
+                return null;
+            }
+            final Compilations compilations = (Compilations) compiledState;
+            if (compilations.currentTargetMethod(Nature.OPT) != null) {
+                return null;
+            }
+            final TargetMethod current = compilations.currentTargetMethod(null);
+            if (current != null && current.profile() != null && current.profile().compilationDisabled) {
+                return null;
+            }
+            final Compilation compilation = new Compilation(selectCompiler(cma, Nature.OPT, false), cma, compilations, Thread.currentThread(), Nature.OPT, false);
+            cma.compiledState = compilation;
+            return compilation;
+        }
+    }
+
     /**
      * Handles an instrumentation counter overflow upon entry to a profiled method.
      * This method must be called on the thread that overflowed the counter.
@@ -666,7 +749,7 @@ public class CompilationBroker {
             mpo.entryBackedgeCount = 1000;
             return;
         }
-        if (!backgroundCompilationInitialized && Compilation.isCompilationRunningInCurrentThread()) {
+        if (Compilation.isCompilationRunningInCurrentThread()) {
             logCounterOverflow(mpo, "Stopped recompilation because compilation is running in current thread");
             // We don't want to see another counter overflow in the near future
             mpo.entryBackedgeCount = 1000;
@@ -678,7 +761,11 @@ public class CompilationBroker {
         TargetMethod newMethod = Compilations.currentTargetMethod(cma.compiledState, null);
 
         if (oldMethod == newMethod || newMethod == null) {
-            if (!(cma.compiledState instanceof Compilation)) {
+            if (backgroundCompilationInitialized) {
+                // Keep executing the old method; a later counter overflow patches in the result
+                logCounterOverflow(mpo, "background compilation");
+                vm().compilationBroker.compileInBackground(cma, mpo.hotness());
+            } else if (!(cma.compiledState instanceof Compilation)) {
                 // There is no newer compiled version available yet that we could just patch to, so recompile
                 logCounterOverflow(mpo, "");
                 try {
@@ -737,6 +824,60 @@ public class CompilationBroker {
         }
     }
 
+    /**
+     * Handles an instrumentation counter overflow at a backward branch of a profiled baseline method by
+     * {@linkplain OnStackReplacement migrating} the current activation into a method compiled for OSR
+     * at the target of the branch. The OSR method is cached in {@code mpo}.
+     * Once background compilation is running, the OSR method is compiled by the compilation queue and
+     * the migration happens at a later overflow of the counter, after the compilation completed.
+     * This method must be called on the thread that overflowed the counter. It does not return if
+     * the migration takes place.
+     *
+     * @param mpo profiling object (including the method itself)
+     * @param bci the bytecode index of the target of the backward branch
+     */
+    public static void backEdgeCounterOverflow(MethodProfile mpo, int bci) {
+        if (mpo.compilationDisabled) {
+            mpo.entryBackedgeCount = Integer.MAX_VALUE;
+            return;
+        }
+        if (!OnStackReplacement.isSupported() || SafepointPoll.isDisabled() || Heap.isAllocationDisabledForCurrentThread() ||
+            (!backgroundCompilationInitialized && Compilation.isCompilationRunningInCurrentThread())) {
+            // We don't want to see another counter overflow in the near future
+            mpo.entryBackedgeCount = 1000;
+            return;
+        }
+
+        TargetMethod osrMethod = mpo.osrMethod(bci);
+        if (osrMethod == null && backgroundCompilationInitialized) {
+            if (mpo.requestOSRMethod(bci)) {
+                logCounterOverflow(mpo, "Queueing OSR compilation");
+                vm().compilationBroker.compilationThreadPool.addOSRCompilationToQueue(mpo, bci, mpo.hotness());
+            }
+        } else if (osrMethod == null && !mpo.osrFailed(bci)) {
+            logCounterOverflow(mpo, "OSR compilation");
+            ClassMethodActor cma = mpo.method.classMethodActor;
+            try {
+                osrMethod = vm().compilationBroker.optimizingCompiler.compileOSR(cma, bci);
+            } catch (Throwable t) {
+                if (VMOptions.verboseOption.verboseCompilation) {
+                    t.printStackTrace(Log.out);
+                }
+                osrMethod = null;
+            }
+            mpo.setOSRMethod(bci, osrMethod);
+        }
+
+        if (osrMethod == null) {
+            // Stay in the baseline frame. We don't want to see another counter overflow in the near future.
+            mpo.entryBackedgeCount = 1000;
+            return;
+        }
+        // Leave the counter at zero so that the next invocation triggers a normal recompilation
+        mpo.entryBackedgeCount = 0;
+        OnStackReplacement.migrate(mpo.method, osrMethod);
+    }
+
     public static void logCounterOverflow(MethodProfile mpo, String msg) {
         if (VMOptions.verboseOption.verboseCompilation) {
             boolean lockDisabledSafepoints = Log.lock();
@@ -999,6 +1140,10 @@ public class CompilationBroker {
             return null;
         }
 
+        public TargetMethod compileOSR(ClassMethodActor classMethodActor, int bci) {
+            return null;
+        }
+
         public Nature nature() {
             return nature;
         }
@@ -20,64 +20,269 @@
  */
 package com.sun.max.vm.compiler;
 
+import static com.sun.max.vm.MaxineVM.*;
 import static com.sun.max.vm.VMOptions.*;
 
-import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import com.sun.max.vm.*;
 import com.sun.max.vm.actor.member.*;
 import com.sun.max.vm.Log;
 import com.sun.max.vm.compiler.target.*;
-import com.sun.max.vm.thread.*;
+import com.sun.max.vm.profile.*;
+import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.ti.*;
 
 /**
  * This class implements a thread pool that maintains a variable number of compilation threads.
+ * <p>
+ * Pending compilations are kept in a lock-free queue ordered by the {@linkplain MethodProfile#hotness() hotness}
+ * of the method being compiled, so that the hottest methods are compiled first. There is at most one request per
+ * method in the queue; a repeated request for a method replaces the queued one if the method has become hotter.
+ * Requests that have been waiting for longer than {@link #CompileQueueTimeout} milliseconds are considered stale and
+ * are abandoned when dequeued, leaving the method running its current code until it overflows its counter again.
+ * <p>
+ * A queued request is not a {@link Compilation}: the compilation is only created and installed as the
+ * {@linkplain ClassMethodActor#compiledState compiled state} of the method once a thread dequeues the request
+ * (see {@link CompilationBroker#startBackgroundCompilation(ClassMethodActor)}). Hence, threads that need the method
+ * compiled never wait for a request to be dequeued, and a request made obsolete while queued is simply dropped.
+ * <p>
+ * The pool starts {@link #CTPSMin} threads and grows up to {@link #CTPS} threads whenever a request is queued while
+ * no thread is idle.
+ * <p>
+ * {@linkplain #addOSRCompilationToQueue(MethodProfile, int, long) OSR compilations} go through the same queue. Their
+ * result is recorded in the {@link MethodProfile} of the method, from where the next overflow of the back-edge
+ * counter at the loop header picks it up (see {@link CompilationBroker#backEdgeCounterOverflow(MethodProfile, int)}).
  */
 public class CompilationThreadPool {
 
     /**
-     * A queue of pending compilations.
+     * A request in the compilation queue.
      */
-    private final LinkedList<Compilation> pending = new LinkedList<Compilation>();
+    private static final class Request implements Comparable<Request> {
+        final ClassMethodActor method;
+        final long hotness;
+        final long sequence;
+        final long timestamp;
 
-    private CompilationThread[] threadPool;
+        /**
+         * The profile recording the result of an OSR compilation, or {@code null} for a normal compilation.
+         */
+        final MethodProfile osrProfile;
+
+        /**
+         * The bytecode index of the loop header for an OSR compilation.
+         */
+        final int osrBci;
+
+        /**
+         * The key of this request in {@link CompilationThreadPool#requests}. OSR requests are de-duplicated by
+         * {@link MethodProfile#requestOSRMethod(int)} and are keyed by themselves.
+         */
+        final Object key;
+
+        Request(ClassMethodActor method, long hotness, long sequence, long timestamp) {
+            this.method = method;
+            this.hotness = hotness;
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.osrProfile = null;
+            this.osrBci = -1;
+            this.key = method;
+        }
+
+        Request(MethodProfile osrProfile, int osrBci, long hotness, long sequence, long timestamp) {
+            this.method = osrProfile.method.classMethodActor;
+            this.hotness = hotness;
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.osrProfile = osrProfile;
+            this.osrBci = osrBci;
+            this.key = this;
+        }
+
+        /**
+         * Orders requests by decreasing hotness. Requests of equal hotness are ordered by their arrival.
+         */
+        public int compareTo(Request other) {
+            if (hotness != other.hotness) {
+                return hotness > other.hotness ? -1 : 1;
+            }
+            if (sequence != other.sequence) {
+                return sequence < other.sequence ? -1 : 1;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * The queue of pending compilations, hottest first.
+     */
+    private final ConcurrentSkipListSet<Request> pending = new ConcurrentSkipListSet<Request>();
+
+    /**
+     * The request in {@link #pending} for each {@linkplain Request#key key}. A request is owned by the thread that
+     * removes it from this map.
+     */
+    private final ConcurrentHashMap<Object, Request> requests = new ConcurrentHashMap<Object, Request>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The number of threads waiting on {@link #idleLock} for a request to be queued.
+     */
+    private final AtomicInteger idleThreads = new AtomicInteger();
+
+    /**
+     * The number of threads that have been started.
+     */
+    private final AtomicInteger liveThreads = new AtomicInteger();
+
+    private final Object idleLock = new Object();
+
+    private final CompilationThread[] threadPool;
+
+    private boolean daemon;
 
     /**
-     * Default size of compilation thread pool.  
+     * Maximum size of compilation thread pool.
      */
     private static int CTPS = 4;
 
+    /**
+     * Number of compilation threads started with the pool.
+     */
+    private static int CTPSMin = 0;
+
+    /**
+     * Time in milliseconds after which a queued compilation is abandoned.
+     */
+    private static int CompileQueueTimeout = 10000;
+
     private static boolean GCOnRecompilation;
 
     static {
         addFieldOption("-XX:", "GCOnRecompilation", CompilationThreadPool.class, "Force GC before every re-compilation.");
-        addFieldOption("-XX:", "CTPS", CompilationThreadPool.class, "Compilation threadpool size (Default: 4)");
+        addFieldOption("-XX:", "CTPS", CompilationThreadPool.class, "Maximum compilation threadpool size (Default: 4)");
+        addFieldOption("-XX:", "CTPSMin", CompilationThreadPool.class, "Number of compilation threads started eagerly, more are started on demand (Default: 0)");
+        addFieldOption("-XX:", "CompileQueueTimeout", CompilationThreadPool.class, "Abandon queued compilations older than <n> milliseconds, 0 to disable (Default: 10000)");
     }
 
     public CompilationThreadPool() {
-        threadPool = new CompilationThread[CTPS];
-        for (int i = 0; i < CTPS; i++) {
-            threadPool[i] = new CompilationThread();
-        }
+        threadPool = new CompilationThread[Math.max(CTPS, 1)];
     }
 
     public void setDaemon(boolean on) {
-        for (int i = 0; i < CTPS; i++) {
-            threadPool[i].setDaemon(on);
-        }
+        daemon = on;
     }
 
     public void startThreads() {
-        for (int i = 0; i < CTPS; i++) {
-            threadPool[i].start();
+        for (int i = 0; i < Math.min(CTPSMin, threadPool.length); i++) {
+            startThread();
         }
     }
 
-    public void addCompilationToQueue(Compilation compilation) {
-        synchronized (pending) {
-            pending.add(compilation);
-            pending.notify();
+    /**
+     * Starts another compilation thread unless the pool is at its maximum size.
+     *
+     * @return {@code true} if a thread was started
+     */
+    private boolean startThread() {
+        int index;
+        do {
+            index = liveThreads.get();
+            if (index == threadPool.length) {
+                return false;
+            }
+        } while (!liveThreads.compareAndSet(index, index + 1));
+        CompilationThread thread = new CompilationThread();
+        thread.setDaemon(daemon);
+        threadPool[index] = thread;
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Queues an optimizing compilation of a method, or raises the priority of the queued request for the same method.
+     *
+     * @param cma the method to be compiled by one of the compilation threads
+     * @param hotness the priority of the compilation
+     */
+    public void addCompilationToQueue(ClassMethodActor cma, long hotness) {
+        long now = System.currentTimeMillis();
+        Request request = new Request(cma, hotness, sequence.getAndIncrement(), now);
+        while (true) {
+            Request queued = requests.putIfAbsent(cma, request);
+            if (queued == null) {
+                pending.add(request);
+                break;
+            }
+            if (queued.hotness >= hotness) {
+                return;
+            }
+            // Re-queue with the new priority, keeping the position among requests of equal hotness.
+            // If a compilation thread dequeues the old request in the meantime, it will fail to claim it
+            // and pick up the new one instead.
+            Request raised = new Request(cma, hotness, queued.sequence, now);
+            if (requests.replace(cma, queued, raised)) {
+                pending.add(raised);
+                pending.remove(queued);
+                return;
+            }
+        }
+
+        wakeThread();
+    }
+
+    /**
+     * Queues an OSR compilation of a method. The caller must have been granted the request by
+     * {@link MethodProfile#requestOSRMethod(int)}. The result of the compilation is recorded with
+     * {@link MethodProfile#setOSRMethod(int, TargetMethod)}.
+     *
+     * @param mpo the profile of the method to be compiled
+     * @param bci the bytecode index of the loop header at which the OSR method is entered
+     * @param hotness the priority of the compilation
+     */
+    public void addOSRCompilationToQueue(MethodProfile mpo, int bci, long hotness) {
+        Request request = new Request(mpo, bci, hotness, sequence.getAndIncrement(), System.currentTimeMillis());
+        requests.put(request.key, request);
+        pending.add(request);
+        wakeThread();
+    }
+
+    private void wakeThread() {
+        if (idleThreads.get() > 0) {
+            synchronized (idleLock) {
+                idleLock.notify();
+            }
+        } else {
+            startThread();
+        }
+    }
+
+    /**
+     * Removes the hottest request from the queue, waiting for one if the queue is empty.
+     */
+    private Request take() throws InterruptedException {
+        while (true) {
+            Request request = pending.pollFirst();
+            if (request == null) {
+                synchronized (idleLock) {
+                    idleThreads.incrementAndGet();
+                    try {
+                        while ((request = pending.pollFirst()) == null) {
+                            idleLock.wait();
+                        }
+                    } finally {
+                        idleThreads.decrementAndGet();
+                    }
+                }
+            }
+            if (requests.remove(request.key, request)) {
+                return request;
+            }
+            // superseded by a request with a higher priority
         }
     }
 
@@ -106,9 +311,18 @@ public class CompilationThreadPool {
                 try {
                     compileOne();
                 } catch (InterruptedException e) {
-                    // do nothing.  
+                    // do nothing.
                 } catch (Throwable t) {
+                    if (compilation == null) {
+                        throw FatalError.unexpected("Error in compilation thread", t);
+                    }
                     logCompilationError(compilation.classMethodActor, t);
+                    // Stay with the current code of the method and don't try optimizing it again
+                    TargetMethod current = compilation.prevCompilations.currentTargetMethod(null);
+                    if (current != null && current.profile() != null) {
+                        current.profile().compilationDisabled = true;
+                    }
+                    compilation.abandon();
                 }
             }
         }
@@ -119,15 +333,23 @@ public class CompilationThreadPool {
          */
         void compileOne() throws InterruptedException {
             compilation = null;
-            synchronized (pending) {
-                while (compilation == null) {
-                    compilation = pending.poll();
-                    if (compilation == null) {
-                        pending.wait();
-                    }
+            Request request = take();
+            if (CompileQueueTimeout > 0 && System.currentTimeMillis() - request.timestamp > CompileQueueTimeout) {
+                logStaleCompilation(request.method);
+                if (request.osrProfile != null) {
+                    request.osrProfile.cancelOSRRequest(request.osrBci);
                 }
+                return;
+            }
+            if (request.osrProfile != null) {
+                compileOSR(request);
+                return;
+            }
+            compilation = vm().compilationBroker.startBackgroundCompilation(request.method);
+            if (compilation == null) {
+                // The method was compiled, or is being compiled, since it was queued
+                return;
             }
-            compilation.compilingThread = Thread.currentThread();
             if (GCOnRecompilation) {
                 System.gc();
             }
@@ -136,6 +358,29 @@ public class CompilationThreadPool {
         }
     }
 
+    /**
+     * Performs a dequeued OSR compilation and records its result in the profile of the method.
+     * A failed compilation is recorded as such and not retried.
+     */
+    private void compileOSR(Request request) {
+        TargetMethod osrMethod = null;
+        try {
+            osrMethod = vm().compilationBroker.optimizingCompiler.compileOSR(request.method, request.osrBci);
+        } catch (Throwable t) {
+            logCompilationError(request.method, t);
+        }
+        request.osrProfile.setOSRMethod(request.osrBci, osrMethod);
+    }
+
+    private void logStaleCompilation(ClassMethodActor cma) {
+        if (VMOptions.verboseOption.verboseCompilation) {
+            boolean lockDisabledSafepoints = Log.lock();
+            Log.printCurrentThread(false);
+            Log.println(": Abandoned stale compilation of " + cma);
+            Log.unlock(lockDisabledSafepoints);
+        }
+    }
+
     private void logCompilationError(ClassMethodActor cma, Throwable t) {
         if (VMOptions.verboseOption.verboseCompilation) {
             boolean lockDisabledSafepoints = Log.lock();
@@ -146,4 +391,3 @@ public class CompilationThreadPool {
         }
     }
 }
-
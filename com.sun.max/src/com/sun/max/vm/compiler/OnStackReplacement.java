@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.compiler;
+
+import static com.sun.max.platform.Platform.*;
+import static com.sun.max.vm.intrinsics.Infopoints.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.lang.*;
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Migrates an activation of a baseline method into a method compiled for on-stack replacement (OSR).
+ * <p>
+ * The protocol between the VM and an OSR method is the one used by C1: the values of the local variables
+ * of the baseline frame are copied into a buffer allocated with {@link Memory#allocate(Size)}, one word per
+ * local. The baseline frame is then removed and the OSR method is entered at its
+ * {@linkplain TargetMethod#osrEntryPoint() OSR entry point} with the buffer in the return register.
+ * The OSR method loads the locals from the buffer and releases it with {@link #releaseBuffer(Pointer)}.
+ * <p>
+ * References are held in the (unscanned) buffer from the time the locals are copied until the OSR
+ * method has loaded them. Safepoints are disabled for that period.
+ */
+public final class OnStackReplacement {
+
+    private OnStackReplacement() {
+    }
+
+    /**
+     * Determines if OSR is supported on the current platform.
+     */
+    public static boolean isSupported() {
+        return platform().isa == ISA.AMD64;
+    }
+
+    /**
+     * Locates the frame of a given baseline method on the current thread's stack.
+     */
+    static final class FrameLocator extends RawStackFrameVisitor {
+        final TargetMethod baseline;
+        Pointer fp = Pointer.zero();
+        Pointer returnAddressPointer = Pointer.zero();
+
+        FrameLocator(TargetMethod baseline) {
+            this.baseline = baseline;
+        }
+
+        @Override
+        public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+            if (current.targetMethod() == baseline) {
+                fp = current.fp();
+                returnAddressPointer = baseline.returnAddressPointer(current);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Replaces the most recent activation of {@code baseline} on the current thread's stack with an
+     * activation of {@code osrMethod}. This method does not return.
+     *
+     * @param baseline the baseline method whose frame is being replaced. The frame must be stopped at a
+     *            backward branch to the loop header for which {@code osrMethod} was compiled.
+     * @param osrMethod the method compiled for OSR at the target of the backward branch
+     */
+    @NEVER_INLINE
+    public static void migrate(TargetMethod baseline, TargetMethod osrMethod) {
+        FatalError.check(baseline.isBaseline(), "can only migrate baseline frames");
+        FatalError.check(!osrMethod.osrEntryPoint().isZero(), "not an OSR method");
+
+        FrameLocator locator = new FrameLocator(baseline);
+        new VmStackFrameWalker(VmThread.current().tla()).inspect(Pointer.fromLong(here()),
+                                                                 VMRegister.getCpuStackPointer(),
+                                                                 VMRegister.getCpuFramePointer(),
+                                                                 locator);
+        if (locator.fp.isZero()) {
+            throw FatalError.unexpected("no frame for " + baseline + " on the stack");
+        }
+
+        JVMSFrameLayout layout = (JVMSFrameLayout) baseline.frameLayout();
+        int numberOfLocals = layout.numberOfLocalSlots();
+        Pointer buffer = Memory.allocate(Size.fromInt(Math.max(numberOfLocals, 1) * Word.size()));
+        if (buffer.isZero()) {
+            throw new OutOfMemoryError("OSR buffer");
+        }
+
+        // Safepoints are re-enabled by releaseBuffer() once the OSR method has loaded the locals.
+        SafepointPoll.disable();
+
+        // A local occupies the lower address(es) of its JVMS slot
+        Pointer fp = locator.fp;
+        for (int i = 0; i < numberOfLocals; i++) {
+            buffer.setWord(i, fp.readWord(layout.localVariableOffset(i)));
+        }
+
+        // The baseline callee pops its parameters on return, the OSR method does not. The return
+        // address is therefore moved up by the size of the parameters so that the caller sees the
+        // same stack pointer when the OSR method returns.
+        Pointer ra = locator.returnAddressPointer;
+        Pointer callerFP = ra.readWord(-Word.size()).asPointer();
+        Word returnAddress = ra.readWord(0);
+        Pointer entrySP = ra.plus(layout.sizeOfParameters());
+        entrySP.writeWord(0, returnAddress);
+
+        Stubs.unwindLong(osrMethod.osrEntryPoint().toAddress(), entrySP, callerFP, buffer.toLong());
+        throw FatalError.unexpected("should not reach here");
+    }
+
+    /**
+     * Releases an OSR buffer once the OSR method has loaded the locals from it, and re-enables safepoints.
+     *
+     * @param buffer the buffer allocated by {@link #migrate(TargetMethod, TargetMethod)}
+     */
+    public static void releaseBuffer(Pointer buffer) {
+        Memory.deallocate(buffer);
+        SafepointPoll.enable();
+    }
+}
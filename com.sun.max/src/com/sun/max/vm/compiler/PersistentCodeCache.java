@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.compiler;
+
+import static com.sun.max.vm.compiler.deps.DependenciesManager.*;
+
+import java.io.*;
+import java.util.*;
+
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.classfile.constant.*;
+import com.sun.max.vm.compiler.deps.*;
+import com.sun.max.vm.compiler.deps.ConcreteMethodDependencyProcessor.*;
+import com.sun.max.vm.compiler.deps.ConcreteTypeDependencyProcessor.*;
+import com.sun.max.vm.compiler.deps.Dependencies.*;
+import com.sun.max.vm.compiler.deps.InlinedMethodDependencyProcessor.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Persists the set of methods compiled by the optimizing compiler across VM runs, together with the
+ * {@linkplain Dependencies dependencies} each was compiled under.
+ * <p>
+ * The file is read when the VM starts running. The first time a recorded method is compiled, its dependencies are
+ * validated against the currently loaded class hierarchy. If they still hold, the method is compiled straight away
+ * by the optimizing compiler instead of going through the baseline compiler and a profiling phase. Otherwise the
+ * method is compiled as usual. The file is rewritten when the VM shuts down or when {@link #save()} is called.
+ * <p>
+ * The file is a text file where a method is denoted by its holder's type descriptor, its name and its signature,
+ * all separated by a single space. Each record starts with a line {@code "M <method>"} followed by one line per
+ * dependency:
+ * <pre>
+ *     T &lt;context type&gt; &lt;unique concrete subtype&gt;
+ *     C &lt;context type&gt; &lt;method&gt; &lt;holder of unique concrete implementation&gt;
+ *     I &lt;context type&gt; &lt;inlined method&gt;
+ * </pre>
+ * Machine code is not saved, as the code installed by the compilers embeds the addresses of objects, stubs and
+ * trampolines that differ from one run to the next.
+ */
+public final class PersistentCodeCache {
+
+    private static final String HEADER = "# Maxine persistent code cache";
+
+    private final File file;
+
+    /**
+     * The records read from {@link #file} that have not yet been used, keyed by method.
+     */
+    private final HashMap<String, String[]> pending = new HashMap<String, String[]>();
+
+    /**
+     * The methods compiled by the optimizing compiler in this run, keyed by method. The code of a method is looked up
+     * when the cache is saved, so that only its current optimized code is recorded.
+     */
+    private final LinkedHashMap<String, ClassMethodActor> compiled = new LinkedHashMap<String, ClassMethodActor>();
+
+    public PersistentCodeCache(String path) {
+        this.file = new File(path);
+    }
+
+    /**
+     * Reads the records from the file backing this cache, if it exists.
+     */
+    public void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                String method = null;
+                ArrayList<String> deps = new ArrayList<String>();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("M ")) {
+                        addPending(method, deps);
+                        method = line.substring(2);
+                        deps.clear();
+                    } else if (method != null && line.length() > 2 && line.charAt(1) == ' ') {
+                        deps.add(line);
+                    }
+                }
+                addPending(method, deps);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            Log.println("Error reading code cache " + file + ": " + e);
+        }
+        if (VMOptions.verboseOption.verboseCompilation) {
+            Log.println("Read " + pending.size() + " methods from code cache " + file);
+        }
+    }
+
+    private synchronized void addPending(String method, ArrayList<String> deps) {
+        if (method != null) {
+            pending.put(method, deps.toArray(new String[deps.size()]));
+        }
+    }
+
+    /**
+     * Records a method compiled by the optimizing compiler so that it is written to the cache by {@link #save()}.
+     */
+    public synchronized void add(ClassMethodActor cma) {
+        compiled.put(key(cma), cma);
+    }
+
+    /**
+     * Determines if there is a record for a given method in this cache and if the dependencies it was compiled under
+     * are valid for the current class hierarchy. A record is only consulted once.
+     *
+     * @return {@code true} if {@code cma} should be compiled by the optimizing compiler
+     */
+    public boolean validate(ClassMethodActor cma) {
+        String[] deps;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return false;
+            }
+            deps = pending.remove(key(cma));
+        }
+        if (deps == null) {
+            return false;
+        }
+        ClassLoader classLoader = cma.holder().classLoader;
+        for (String dep : deps) {
+            if (!isValid(classLoader, dep.split(" "))) {
+                if (VMOptions.verboseOption.verboseCompilation) {
+                    Log.println("Code cache entry for " + cma + " is invalid: " + dep);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isValid(ClassLoader classLoader, String[] dep) {
+        try {
+            ClassActor context = resolveType(classLoader, dep[1]);
+            if (context == null) {
+                return false;
+            }
+            switch (dep[0].charAt(0)) {
+                case 'T': {
+                    ClassActor subtype = resolveType(classLoader, dep[2]);
+                    return subtype != null && ConcreteTypeDependencyProcessor.getUniqueConcreteSubtype(context) == subtype;
+                }
+                case 'C': {
+                    MethodActor method = resolveMethod(classLoader, dep[2], dep[3], dep[4]);
+                    ClassActor implHolder = resolveType(classLoader, dep[5]);
+                    if (method == null || implHolder == null || !context.isSubtypeOf(method.holder())) {
+                        return false;
+                    }
+                    MethodActor impl = implHolder.findLocalMethodActor(method.name, method.descriptor());
+                    return impl != null && ConcreteMethodDependencyProcessor.getUniqueConcreteMethod(context, method) == impl;
+                }
+                case 'I':
+                    return resolveMethod(classLoader, dep[2], dep[3], dep[4]) != null;
+                default:
+                    return false;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return false;
+        } catch (ClassFormatError e) {
+            return false;
+        }
+    }
+
+    private static ClassActor resolveType(ClassLoader classLoader, String typeDescriptor) {
+        TypeDescriptor descriptor = TypeDescriptor.lookup(typeDescriptor);
+        if (descriptor == null) {
+            // no class of this name can have been loaded
+            return null;
+        }
+        return ClassRegistry.get(classLoader, descriptor, true);
+    }
+
+    private static MethodActor resolveMethod(ClassLoader classLoader, String holder, String name, String signature) {
+        ClassActor holderActor = resolveType(classLoader, holder);
+        Utf8Constant symbol = SymbolTable.lookupSymbol(name);
+        if (holderActor == null || symbol == null) {
+            return null;
+        }
+        return holderActor.findLocalMethodActor(symbol, SignatureDescriptor.create(signature));
+    }
+
+    private static String key(MethodActor method) {
+        return method.holder().typeDescriptor + " " + method.name + " " + method.descriptor();
+    }
+
+    /**
+     * Converts the dependencies of a target method to the textual form used in the cache file.
+     */
+    private static final class DependencyWriter extends DependencyVisitor implements
+        ConcreteTypeDependencyProcessorVisitor, ConcreteMethodDependencyProcessorVisitor, InlinedMethodDependencyProcessorVisitor {
+
+        final ArrayList<String> lines = new ArrayList<String>();
+        boolean invalidated;
+
+        @Override
+        protected void doInvalidated() {
+            invalidated = true;
+        }
+
+        public boolean doConcreteSubtype(TargetMethod targetMethod, ClassActor context, ClassActor ignore) {
+            ClassActor subtype = ConcreteTypeDependencyProcessor.getUniqueConcreteSubtype(context);
+            if (subtype == null) {
+                invalidated = true;
+                return false;
+            }
+            lines.add("T " + context.typeDescriptor + " " + subtype.typeDescriptor);
+            return true;
+        }
+
+        public boolean doConcreteMethod(TargetMethod targetMethod, MethodActor method, MethodActor impl, ClassActor context) {
+            lines.add("C " + context.typeDescriptor + " " + key(method) + " " + impl.holder().typeDescriptor);
+            return true;
+        }
+
+        public boolean doInlinedMethod(TargetMethod targetMethod, ClassMethodActor method, ClassMethodActor inlinee, ClassActor context) {
+            lines.add("I " + context.typeDescriptor + " " + key(inlinee));
+            return true;
+        }
+    }
+
+    /**
+     * Writes the methods compiled by the optimizing compiler in this run that are still valid, as well as the
+     * records read at startup that were not used, to the file backing this cache.
+     */
+    public void save() {
+        ClassMethodActor[] methods;
+        LinkedHashMap<String, String[]> records = new LinkedHashMap<String, String[]>();
+        synchronized (this) {
+            methods = compiled.values().toArray(new ClassMethodActor[compiled.size()]);
+            records.putAll(pending);
+        }
+
+        HashMap<TargetMethod, Dependencies> depsMap = new HashMap<TargetMethod, Dependencies>();
+        classHierarchyLock.readLock().lock();
+        try {
+            for (Dependencies deps : Dependencies.registered()) {
+                depsMap.put(deps.targetMethod(), deps);
+            }
+            for (ClassMethodActor method : methods) {
+                TargetMethod targetMethod = Compilations.currentTargetMethod(method.compiledState, RuntimeCompiler.Nature.OPT);
+                if (targetMethod == null) {
+                    // deoptimized since it was compiled
+                    continue;
+                }
+                DependencyWriter writer = new DependencyWriter();
+                Dependencies deps = depsMap.get(targetMethod);
+                if (deps != null) {
+                    deps.visit(writer);
+                }
+                if (!writer.invalidated) {
+                    records.put(key(method), writer.lines.toArray(new String[writer.lines.size()]));
+                }
+            }
+        } finally {
+            classHierarchyLock.readLock().unlock();
+        }
+
+        try {
+            PrintStream out = new PrintStream(new FileOutputStream(file));
+            try {
+                out.println(HEADER);
+                for (Map.Entry<String, String[]> e : records.entrySet()) {
+                    out.println("M " + e.getKey());
+                    for (String dep : e.getValue()) {
+                        out.println(dep);
+                    }
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.println("Error writing code cache " + file + ": " + e);
+        }
+        if (VMOptions.verboseOption.verboseCompilation) {
+            Log.println("Wrote " + records.size() + " methods to code cache " + file);
+        }
+    }
+}
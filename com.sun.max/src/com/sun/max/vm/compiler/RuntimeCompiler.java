@@ -89,6 +89,18 @@ public interface RuntimeCompiler {
      */
     TargetMethod compile(ClassMethodActor classMethodActor, boolean isDeopt, boolean install, CiStatistics stats);
 
+    /**
+     * Compiles a method for {@linkplain OnStackReplacement on-stack replacement} at a given loop header.
+     * The returned target method is installed in the code cache but is not made the current
+     * compiled state of {@code classMethodActor}; it is only entered via its {@linkplain TargetMethod#osrEntryPoint() OSR entry point}.
+     *
+     * @param classMethodActor the method to compile
+     * @param bci the bytecode index of the loop header at which execution is migrated
+     * @return the OSR target method or {@code null} if this compiler does not support OSR
+     * @throws CiBailout if the method cannot be compiled for OSR at {@code bci}
+     */
+    TargetMethod compileOSR(ClassMethodActor classMethodActor, int bci);
+
     /**
      * Determines the type of target method produced by this compiler.
      */
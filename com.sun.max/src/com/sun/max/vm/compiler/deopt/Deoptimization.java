@@ -36,6 +36,7 @@ import com.sun.max.vm.compiler.target.TargetMethod.FrameAccess;
 import com.sun.max.vm.compiler.target.amd64.AMD64TargetMethodUtil;
 import com.sun.max.vm.log.VMLog.Record;
 import com.sun.max.vm.log.hosted.*;
+import com.sun.max.vm.monitor.*;
 import com.sun.max.vm.profile.MethodProfile;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.runtime.*;
@@ -49,6 +50,7 @@ import static com.sun.max.platform.Platform.target;
 import static com.sun.max.vm.MaxineVM.vm;
 import static com.sun.max.vm.compiler.CallEntryPoint.VTABLE_ENTRY_POINT;
 import static com.sun.max.vm.compiler.target.Stub.Type.*;
+import static com.sun.max.vm.intrinsics.Infopoints.here;
 import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.UNSAFE_CAST;
 import static com.sun.max.vm.stack.JVMSFrameLayout.JVMS_SLOT_SIZE;
 import static com.sun.max.vm.stack.VMFrameLayout.STACK_SLOT_SIZE;
@@ -117,6 +119,12 @@ public class Deoptimization extends VmOperation {
      */
     private static StaticMethodActor MaxMiscLoweringsDeoptimizeMethodActor;
 
+    /**
+     * Method actor of the runtime entry point called by optimized code when a receiver type speculation fails.
+     * A frame stopped at a call to this method is deoptimized so that it re-executes the speculated bytecode.
+     */
+    private static ClassMethodActor SpeculationFailedMethodActor;
+
     /**
      * The set of target methods to be deoptimized.
      */
@@ -155,6 +163,11 @@ public class Deoptimization extends VmOperation {
         MaxMiscLoweringsDeoptimizeMethodActor = methodActor;
     }
 
+    @HOSTED_ONLY
+    public static void initializeSpeculationFailedMethodActor(ClassMethodActor methodActor) {
+        SpeculationFailedMethodActor = methodActor;
+    }
+
     /**
      * Mark methods for deoptimization.
      */
@@ -766,10 +779,20 @@ public class Deoptimization extends VmOperation {
         }
 
         FrameAccess fa = new FrameAccess(csl, csa, sp, fp, info.callerSP, info.callerFP);
+        // reuse the objects a debugger may already have seen for the scalar-replaced allocations of this frame
+        fa.materializedObjects = VmThread.current().materializedObjects(sp, false);
+        VmThread.current().clearMaterializedObjects(sp);
         CiDebugInfo debugInfo = tm.debugInfoAt(safepointIndex, fa);
         CiFrame topFrame = debugInfo.frame();
         FatalError.check(topFrame != null, "No frame info found at deopt site: " + tm.posFor(ip));
 
+        if (fa.materializedLocks != null) {
+            // the optimized code did not lock the objects it did not allocate, but the deoptimized frames will unlock them
+            for (Object lock : fa.materializedLocks) {
+                Monitor.enter(lock);
+            }
+        }
+
         Throwable pendingException = null;
         if (topFrame.rethrowException) {
             pendingException = (Throwable) ((CiConstant) topFrame.getStackValue(0)).asObject();
@@ -822,7 +845,7 @@ public class Deoptimization extends VmOperation {
                 if (Safepoints.isDirectCall(safepoints.safepointAt(safepointIndex))) {
                     final int callPos = safepoints.causePosAt(safepointIndex);
                     ClassMethodActor callee = tm.callPosToCallee(callPos);
-                    if (callee == MaxMiscLoweringsDeoptimizeMethodActor) {
+                    if (callee == MaxMiscLoweringsDeoptimizeMethodActor || callee == SpeculationFailedMethodActor) {
                         reexecute = true;
                     }
                 }
@@ -949,6 +972,52 @@ public class Deoptimization extends VmOperation {
         deoptimize(CodePointer.from(ip), sp, fp, csa, vm().registerConfigs.uncommonTrapStub.getCalleeSaveLayout(), null);
     }
 
+    /**
+     * Locates the frame of the optimized method that called the {@linkplain #SpeculationFailedMethodActor speculation
+     * failure} runtime entry point.
+     */
+    static final class SpeculatingFrameLocator extends RawStackFrameVisitor {
+        TargetMethod tm;
+
+        @Override
+        public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+            TargetMethod calleeTM = callee.targetMethod();
+            if (calleeTM != null && calleeTM.classMethodActor == SpeculationFailedMethodActor) {
+                tm = current.targetMethod();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Handles the failure of a receiver type guard in optimized code. The failure is recorded in the profile of
+     * {@code method} so that the call site is not speculated on again and the optimized method containing the guard
+     * is deoptimized. The deoptimization takes effect when the runtime entry point returns to the optimized frame,
+     * which is then converted to baseline frames that re-execute the call.
+     *
+     * @param method the method containing the speculated call site (may be inlined into the optimized method)
+     * @param bci the bytecode index of the speculated call site
+     */
+    @NEVER_INLINE
+    public static void speculationFailed(ClassMethodActor method, int bci) {
+        MethodProfile profile = method.profile();
+        if (profile != null) {
+            profile.speculationFailed(bci);
+        }
+        SpeculatingFrameLocator locator = new SpeculatingFrameLocator();
+        new VmStackFrameWalker(VmThread.current().tla()).inspect(Pointer.fromLong(here()),
+                                                                 VMRegister.getCpuStackPointer(),
+                                                                 VMRegister.getCpuFramePointer(),
+                                                                 locator);
+        if (locator.tm == null) {
+            throw FatalError.unexpected("no optimized frame for failed speculation in " + method + " at bci " + bci);
+        }
+        ArrayList<TargetMethod> methods = new ArrayList<TargetMethod>(1);
+        methods.add(locator.tm);
+        new Deoptimization(methods).go();
+    }
+
     @NEVER_INLINE // makes inspecting easier
     static void logPatchITable(ClassActor classActor, int iIndex) {
         if (deoptLogger.enabled()) {
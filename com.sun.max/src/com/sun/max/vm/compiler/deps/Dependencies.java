@@ -542,6 +542,23 @@ public final class Dependencies {
      */
     public static final IDMap idMap = new IDMap(MINIMAL_DEPENDENT_TARGET_METHOD);
 
+    /**
+     * Gets all the currently registered sets of dependencies that are associated with a target method.
+     * The caller should hold {@link DependenciesManager#classHierarchyLock} to get a consistent result.
+     */
+    public static ArrayList<Dependencies> registered() {
+        ArrayList<Dependencies> result = new ArrayList<Dependencies>();
+        synchronized (idMap) {
+            for (int id = 0; id <= idMap.maxID(); id++) {
+                Dependencies deps = idMap.get(id);
+                if (deps != null && deps.targetMethod != null) {
+                    result.add(deps);
+                }
+            }
+        }
+        return result;
+    }
+
     static Dependencies fromId(int depsID) {
         Dependencies deps = idMap.get(depsID);
         assert deps != null : "invalid dependencies id: " + depsID;
@@ -21,6 +21,7 @@
  */
 package com.sun.max.vm.compiler.target;
 
+import static com.sun.max.vm.MaxineVM.*;
 import static com.sun.max.vm.VMOptions.*;
 
 import java.util.concurrent.*;
@@ -301,6 +302,8 @@ public class Compilation {
 
             stopCompilationMetricsCollection();
 
+            recordInPersistentCodeCache();
+
             logAfterCompilation();
         } catch (RuntimeException t) {
             error = t;
@@ -344,6 +347,38 @@ public class Compilation {
         return result;
     }
 
+    /**
+     * Records an optimized compilation in the {@linkplain CompilationBroker#persistentCodeCache() persistent code cache},
+     * whether it was requested by a thread that needs the method compiled or made by a compilation thread.
+     */
+    private void recordInPersistentCodeCache() {
+        if (!MaxineVM.isHosted() && !isDeopt && !result.isBaseline()) {
+            final PersistentCodeCache persistentCodeCache = vm().compilationBroker.persistentCodeCache();
+            if (persistentCodeCache != null) {
+                persistentCodeCache.add(classMethodActor);
+            }
+        }
+    }
+
+    /**
+     * Abandons this compilation without producing a new target method. The compilation state of the method
+     * is reverted to the state it had when this compilation was created and any threads waiting for the result
+     * receive the target method that was current at that time.
+     */
+    public void abandon() {
+        synchronized (classMethodActor) {
+            if (done) {
+                return;
+            }
+            if (classMethodActor.compiledState == this) {
+                classMethodActor.compiledState = prevCompilations;
+            }
+            result = prevCompilations.currentTargetMethod(null);
+            done = true;
+            classMethodActor.notifyAll();
+        }
+    }
+
     /**
      * Allows a thread to relinquish ownership of a compilation
      * if another thread is to compile it.
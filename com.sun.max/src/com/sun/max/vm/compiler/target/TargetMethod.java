@@ -339,6 +339,22 @@ public abstract class TargetMethod extends MemoryRegion {
          */
         public Pointer callerFP;
 
+        /**
+         * The objects that were recreated while decoding the debug info for this frame and that are locked in the
+         * decoded frames, in the order in which they were locked. Since the compiled code removed the locking of
+         * these objects, they must be locked by the client of the debug info if execution continues in other code.
+         */
+        public ArrayList<Object> materializedLocks;
+
+        /**
+         * The objects recreated for the virtual objects in the decoded frames, keyed by virtual object id. If this is
+         * non-null when the debug info is decoded, the objects it contains are reused instead of allocating new ones so
+         * that a frame decoded several times always denotes the same objects.
+         *
+         * @see VmThread#materializedObjects(Pointer, boolean)
+         */
+        public HashMap<Integer, Object> materializedObjects;
+
         public FrameAccess(CiCalleeSaveLayout csl, Pointer csa, Pointer sp, Pointer fp, Pointer callerSP, Pointer callerFP) {
             this.csl = csl;
             this.csa = csa;
@@ -1331,6 +1347,16 @@ public abstract class TargetMethod extends MemoryRegion {
         return false;
     }
 
+    /**
+     * Gets the address at which this method is entered when an activation of the baseline version of the
+     * method is migrated into it by {@linkplain com.sun.max.vm.compiler.OnStackReplacement on-stack replacement}.
+     *
+     * @return the OSR entry point or {@link CodePointer#zero()} if this method was not compiled for OSR
+     */
+    public CodePointer osrEntryPoint() {
+        return CodePointer.zero();
+    }
+
     /**
      * Determines if this method has been instrumented by a {@link VMTIHandler tooling interface}.
      */
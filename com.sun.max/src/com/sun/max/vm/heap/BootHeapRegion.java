@@ -84,6 +84,25 @@ public final class BootHeapRegion extends LinearAllocatorRegion {
         }
     }
 
+    /**
+     * Number of words of the reference map of the boot heap region.
+     */
+    public int referenceMapWords() {
+        return UnsignedMath.divide(referenceMapBytes.length, Word.size());
+    }
+
+    /**
+     * Visit references of the boot heap region whose bits are in the specified range of words of the reference map.
+     * This lets multiple GC threads share the scanning of the boot heap region. Special references aren't discovered.
+     *
+     * @param firstRefMapWord index of the first word (inclusive) of the reference map to scan
+     * @param endRefMapWord index of the last word (exclusive) of the reference map to scan
+     * @param pointerIndexVisitor
+     */
+    public void visitReferences(int firstRefMapWord, int endRefMapWord, PointerIndexVisitor pointerIndexVisitor) {
+        scanReferenceMap(pointerIndexVisitor, referenceMapBytes, firstRefMapWord, endRefMapWord, Heap.logRootScanning());
+    }
+
     public int referenceMapIndex(Address referenceLocation) {
         if (contains(referenceLocation)) {
             return referenceLocation.minus(start).unsignedShiftedRight(Word.widthValue().log2numberOfBytes).toInt();
@@ -105,7 +105,7 @@ public final class Heap {
     public static boolean OptimizeJNICritical = true;
 
     static {
-        VMOptions.addFieldOption("-XX:", "OptimizeJNICritical", Heap.class, "Use GC disabling to optimize JNI 'critical' functions when heap scheme doesn't support object pinning.", MaxineVM.Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "OptimizeJNICritical", Heap.class, "Use GC disabling to optimize JNI 'critical' functions when the heap scheme doesn't pin the object.", MaxineVM.Phase.PRISTINE);
         VMOptions.addFieldOption("-XX:", "AvoidsAnonOperations", Heap.class, "Avoids using Anonymous Memory operations as much as possible.", MaxineVM.Phase.PRISTINE);
     }
 
@@ -514,7 +514,7 @@ public final class Heap {
      * @see Heap#disableGC()
      * @see Heap#enableGC()
      */
-    private static int disableGCThreadCount = 0;
+    private static volatile int disableGCThreadCount = 0;
 
     /**
      * Flag indicating that the GC is waiting for GC-disabling threads.
@@ -575,15 +575,38 @@ public final class Heap {
         gcWaitForDisablingThreads = false;
     }
 
+    /**
+     * Determines if some thread currently disables GC to hold a direct pointer to an object.
+     */
+    public static boolean hasGCDisablingThreads() {
+        return disableGCThreadCount > 0;
+    }
+
+    /**
+     * Requests direct access to an object for a short period, e.g. between a JNI {@code Get<Type>Critical} call and the
+     * matching release. The object is pinned if the heap scheme agrees to; otherwise, GC is disabled if
+     * {@link #OptimizeJNICritical} is set.
+     * <p>
+     * A heap scheme that may refuse a pin must be {@linkplain PIN_SUPPORT_FLAG#IS_QUERYABLE queryable} so that
+     * {@link #releasedDirectPointer(Object)} can tell which of the two was done. A heap scheme doesn't pin new cells
+     * while a thread disables GC, so the only case to handle here is a pin taken by another thread between the failed
+     * pin and the GC disabling request: the object is then pinned by nesting and GC re-enabled.
+     *
+     * @return {@code true} if {@code object} may be accessed directly until {@link #releasedDirectPointer(Object)} is
+     *         called
+     */
     @INLINE
     public static boolean useDirectPointer(Object object) {
         HeapScheme heapScheme = heapScheme();
-        if (heapScheme.supportsPinning(PIN_SUPPORT_FLAG.CAN_NEST)) {
-            heapScheme.pin(object);
+        final boolean canPin = heapScheme.supportsPinning(PIN_SUPPORT_FLAG.CAN_NEST);
+        if (canPin && heapScheme.pin(object)) {
             return true;
         }
         if (OptimizeJNICritical) {
             disableGC();
+            if (canPin && heapScheme.supportsPinning(PIN_SUPPORT_FLAG.IS_QUERYABLE) && heapScheme.isPinned(object) && heapScheme.pin(object)) {
+                enableGC();
+            }
             return true;
         }
         return false;
@@ -592,7 +615,8 @@ public final class Heap {
     @INLINE
     public static boolean releasedDirectPointer(Object object) {
         HeapScheme heapScheme = VMConfiguration.vmConfig().heapScheme();
-        if (heapScheme.supportsPinning(PIN_SUPPORT_FLAG.CAN_NEST)) {
+        if (heapScheme.supportsPinning(PIN_SUPPORT_FLAG.CAN_NEST) &&
+                        (!heapScheme.supportsPinning(PIN_SUPPORT_FLAG.IS_QUERYABLE) || heapScheme.isPinned(object))) {
             heapScheme.unpin(object);
             return true;
         }
@@ -603,6 +627,29 @@ public final class Heap {
         return false;
     }
 
+    /**
+     * Pins an object that native code may access directly for an unbounded period, e.g. between
+     * a JNI {@code Get<Type>ArrayElements} call and the matching release. This only succeeds
+     * if the heap scheme supports nested pinning and agrees to pin the object. Unlike {@link #useDirectPointer(Object)},
+     * this never falls back to disabling GC, as the pinning thread may run arbitrary code (including allocation)
+     * before unpinning.
+     *
+     * @return {@code true} if {@code object} was pinned and must be released with {@link #releaseLongLivedDirectPointer(Object)}
+     */
+    @INLINE
+    public static boolean useLongLivedDirectPointer(Object object) {
+        HeapScheme heapScheme = heapScheme();
+        return heapScheme.supportsPinning(PIN_SUPPORT_FLAG.CAN_NEST) && heapScheme.pin(object);
+    }
+
+    /**
+     * Releases a pin taken by a successful call to {@link #useLongLivedDirectPointer(Object)}.
+     */
+    @INLINE
+    public static void releaseLongLivedDirectPointer(Object object) {
+        heapScheme().unpin(object);
+    }
+
     /**
      * Determines if a given object is in the boot image.
      *
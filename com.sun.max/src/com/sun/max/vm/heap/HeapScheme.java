@@ -326,6 +326,17 @@ public interface HeapScheme extends VMScheme {
 
     void postWriteBarrier(Reference ref,  int displacement, int index, Reference value);
 
+    /**
+     * Post write barrier for a range of consecutive reference elements of an array that were stored in bulk
+     * (e.g., by {@link System#arraycopy}) without going through the per-element barrier.
+     *
+     * @param ref the array whose elements were updated
+     * @param displacement the displacement from the origin of the array to its first element
+     * @param index the index of the first updated element
+     * @param length the number of updated elements
+     */
+    void postWriteBarrierRange(Reference ref, int displacement, int index, int length);
+
     enum PIN_SUPPORT_FLAG {
         /**
          * Just to indicate that the pin support flag has been initialized (makes the pinningSupportFlags treated as constant when not zero).
@@ -410,7 +421,7 @@ public interface HeapScheme extends VMScheme {
     void unpin(Object object);
 
     /**
-     * Return true if the given object is already pinned. This method must be called only when IS_QUERYABLE is false.
+     * Return true if the given object is already pinned. This method must be called only when IS_QUERYABLE is set.
      * @param object
      */
     boolean isPinned(Object object);
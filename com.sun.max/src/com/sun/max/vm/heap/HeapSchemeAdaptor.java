@@ -320,6 +320,13 @@ public abstract class HeapSchemeAdaptor extends AbstractVMScheme implements Heap
         // do nothing
     }
 
+    @NO_SAFEPOINT_POLLS("the updated elements must be recorded before the next safepoint")
+    public void postWriteBarrierRange(Reference ref, int displacement, int index, int length) {
+        for (int i = index; i < index + length; i++) {
+            postWriteBarrier(ref, displacement, i, ref.getReference(displacement, i));
+        }
+    }
+
     public boolean isPinned(Object object) {
         FatalError.check(supportsPinning(PIN_SUPPORT_FLAG.IS_QUERYABLE), "Object pinning support doesn't support querying");
         FatalError.unexpected("Must be overriden if supported");
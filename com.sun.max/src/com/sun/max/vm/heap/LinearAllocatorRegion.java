@@ -205,4 +205,13 @@ public class LinearAllocatorRegion extends LinearAllocationMemoryRegion {
             scanReferences(pointerIndexVisitor, refMap, refMapWordIndex++, logging);
         }
     }
+
+    @INLINE
+    protected final void scanReferenceMap(PointerIndexVisitor pointerIndexVisitor, byte [] referenceMapBytes, int firstRefMapWord, int endRefMapWord, boolean logging) {
+        final Pointer refMap =  ArrayAccess.elementPointer(referenceMapBytes, 0);
+        int refMapWordIndex = firstRefMapWord;
+        while (refMapWordIndex < endRefMapWord) {
+            scanReferences(pointerIndexVisitor, refMap, refMapWordIndex++, logging);
+        }
+    }
 }
@@ -54,8 +54,17 @@ public class SequentialHeapRootsScanner {
 
     private final VmThreadLocalsScanner tlaScanner = new VmThreadLocalsScanner();
 
+    /**
+     * Filters out GC worker threads. These aren't stopped by the GC and hold no references to the heap.
+     */
+    public static final Pointer.Predicate mutatorThreadPredicate = new Pointer.Predicate() {
+        public boolean evaluate(Pointer tla) {
+            return !VmThread.fromTLA(tla).isGCWorkerThread();
+        }
+    };
+
     public void run() {
-        VmThreadMap.ACTIVE.forAllThreadLocals(null, tlaScanner);
+        VmThreadMap.ACTIVE.forAllThreadLocals(mutatorThreadPredicate, tlaScanner);
         vmConfig().monitorScheme().scanReferences(pointerIndexVisitor);
     }
 
@@ -306,6 +306,11 @@ public class DebugHeap {
          * {@linkplain Code#bootCodeRegion code} regions. This value is ignored if {@code null}.
          */
         MemoryRegion space2;
+        /**
+         * A third address space in which valid objects can be found apart from the boot {@linkplain Heap#bootHeapRegion heap} and
+         * {@linkplain Code#bootCodeRegion code} regions. This value is ignored if {@code null}.
+         */
+        MemoryRegion space3;
         /**
          * Array holding references values (other than {@code null}  that must be excluded from verification.
          */
@@ -358,6 +363,9 @@ public class DebugHeap {
             if (space2 != null && space2.contains(origin)) {
                 return;
             }
+            if (space3 != null && space3.contains(origin)) {
+                return;
+            }
             if (exclusions != null) {
                 for (int i = 0; i < exclusions.length; i++) {
                     if (origin.equals(Pointer.fromLong(exclusions[i]))) {
@@ -390,6 +398,7 @@ public class DebugHeap {
         public void setValidHeapSpace(MemoryRegion space) {
             this.space1 = space;
             this.space2 = null;
+            this.space3 = null;
         }
 
         /**
@@ -401,6 +410,17 @@ public class DebugHeap {
         public void setValidSpaces(MemoryRegion space1, MemoryRegion space2) {
             this.space1 = space1;
             this.space2 = space2;
+            this.space3 = null;
+        }
+
+        /**
+         * Set the verifier to include three extra valid memory region in addition to the boot, code and immortal heap regions.
+         * This replaces all previous heap space (except for the default ones).
+         */
+        public void setValidSpaces(MemoryRegion space1, MemoryRegion space2, MemoryRegion space3) {
+            this.space1 = space1;
+            this.space2 = space2;
+            this.space3 = space3;
         }
 
         public void setExclusions(long [] exclusions) {
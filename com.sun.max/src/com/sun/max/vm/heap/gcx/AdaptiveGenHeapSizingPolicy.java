@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.HeapScheme.GCRequest;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Heap sizing policy for a generational heap that resizes the young and old generations between collections to meet a pause time goal
+ * ({@link #MaxGCPauseMillis}) and a throughput goal ({@link #GCTimeRatio}). Initial and maximum sizes are those of the fixed ratio policy.
+ *
+ * The policy keeps decaying averages of the pause of minor collections, of the GC time per collection cycle (including full collections),
+ * and of the time mutators run between collections. After each collection:
+ * <ul>
+ * <li>The young generation shrinks if the average minor pause exceeds the pause goal, as minor pauses grow with the amount of survivors,
+ * hence with the young generation's size. Otherwise, it grows if the fraction of time spent in GC exceeds the throughput goal,
+ * which makes minor collections less frequent.</li>
+ * <li>The old generation grows if full collections alone exceed the throughput goal, or if its free space falls below
+ * {@link #minFreePercent}. It shrinks back to {@link #maxFreePercent} of free space otherwise.</li>
+ * </ul>
+ * When {@link #HeapIdleUncommitMillis} is set, a daemon thread requests a collection if no collection took place for that long.
+ * The heap is then considered idle: both generations shrink to their initial size, or to what their live data requires,
+ * and the memory of the regions given up is uncommitted.
+ */
+public class AdaptiveGenHeapSizingPolicy extends FixedRatioGenHeapSizingPolicy {
+    static int MaxGCPauseMillis = 200;
+    static int GCTimeRatio = 19;
+    static int HeapIdleUncommitMillis = 0;
+    static boolean TraceAdaptiveSizing = false;
+    static {
+        VMOptions.addFieldOption("-XX:", "MaxGCPauseMillis", AdaptiveGenHeapSizingPolicy.class, "Goal for the pause time of minor collections, in milliseconds", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "GCTimeRatio", AdaptiveGenHeapSizingPolicy.class,
+                        "Goal for the ratio of mutator time to GC time. The time spent in GC should not exceed 1 / (1 + GCTimeRatio)", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "HeapIdleUncommitMillis", AdaptiveGenHeapSizingPolicy.class,
+                        "Shrink the heap and uncommit its free memory if no collection took place for that many milliseconds (0 to disable)", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "TraceAdaptiveSizing", AdaptiveGenHeapSizingPolicy.class, "Trace the decisions of the adaptive heap sizing policy", Phase.PRISTINE);
+    }
+
+    /**
+     * Weight, in percent, of the last sample in the decaying averages.
+     */
+    private static final int SAMPLE_WEIGHT = 25;
+
+    /**
+     * Maximum growth of a generation at a single resizing, in percent of its current size.
+     */
+    private static final int MAX_GROWTH_PERCENT = 20;
+
+    /**
+     * Maximum shrinkage of a generation at a single resizing, in percent of its current size.
+     */
+    private static final int MAX_SHRINK_PERCENT = 25;
+
+    /**
+     * Percentage of free space in the old generation below which it is grown.
+     */
+    final int minFreePercent = 40;
+
+    /**
+     * Percentage of free space in the old generation above which it is shrunk.
+     */
+    final int maxFreePercent = 70;
+
+    private long avgMinorPauseNanos;
+    private long avgGCNanosPerCycle;
+    private long avgMutatorNanos;
+    private long gcStartNanos;
+    private long lastGCEndNanos;
+    private boolean hasSamples;
+
+    /**
+     * Number of collections completed. Used by the {@link IdleHeapMonitor} to detect an idle heap.
+     */
+    private volatile int numCollections;
+
+    /**
+     * Set by the {@link IdleHeapMonitor} to request that the next collection shrinks the heap.
+     */
+    private volatile boolean idle;
+
+    /**
+     * Indicates whether the heap was shrunk because idle and didn't collect since.
+     */
+    private boolean shrunkWhileIdle;
+
+    public AdaptiveGenHeapSizingPolicy(Size initHeapSize, Size maxHeapSize, int youngGenFixedHeapPercentage, int log2Alignment) {
+        super(initHeapSize, maxHeapSize, youngGenFixedHeapPercentage, log2Alignment);
+    }
+
+    /**
+     * Start monitoring the heap for idleness, if requested. Must be called once the VM is {@linkplain Phase#RUNNING running}.
+     */
+    public void start() {
+        lastGCEndNanos = System.nanoTime();
+        if (HeapIdleUncommitMillis > 0) {
+            new IdleHeapMonitor().start();
+        }
+    }
+
+    private static long average(long average, long sample) {
+        return average + ((sample - average) * SAMPLE_WEIGHT) / 100;
+    }
+
+    /**
+     * Record the start of a collection. The time elapsed since the end of the previous one is mutator time.
+     */
+    public void notifyGCStart() {
+        gcStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Record the end of a collection.
+     *
+     * @param fullGC indicates whether the collection included a full collection
+     * @param minorPauseNanos duration of the minor collection, in nanoseconds
+     */
+    public void notifyGCEnd(boolean fullGC, long minorPauseNanos) {
+        final long now = System.nanoTime();
+        final long mutatorNanos = gcStartNanos - lastGCEndNanos;
+        final long gcNanos = now - gcStartNanos;
+        if (hasSamples) {
+            avgMinorPauseNanos = average(avgMinorPauseNanos, minorPauseNanos);
+            avgGCNanosPerCycle = average(avgGCNanosPerCycle, gcNanos);
+            avgMutatorNanos = average(avgMutatorNanos, mutatorNanos);
+        } else {
+            avgMinorPauseNanos = minorPauseNanos;
+            avgGCNanosPerCycle = gcNanos;
+            avgMutatorNanos = mutatorNanos;
+            hasSamples = true;
+        }
+        lastGCEndNanos = now;
+        numCollections++;
+    }
+
+    /**
+     * Indicates whether the next resizing should shrink the heap because it is idle.
+     */
+    public boolean isIdle() {
+        return idle;
+    }
+
+    /**
+     * Indicates whether the fraction of time spent in GC exceeds the throughput goal.
+     */
+    private boolean exceedsGCTimeGoal() {
+        return avgGCNanosPerCycle * (1 + GCTimeRatio) > avgGCNanosPerCycle + avgMutatorNanos;
+    }
+
+    private static Size percent(Size size, int percentage) {
+        return size.times(percentage).dividedBy(100);
+    }
+
+    /**
+     * Compute the size the young generation should be resized to after a collection.
+     *
+     * @param youngGenSize current size of the young generation
+     * @return the desired size of the young generation, aligned
+     */
+    public Size desiredYoungGenSize(Size youngGenSize) {
+        Size desiredSize = youngGenSize;
+        if (idle) {
+            final Size initialSize = initialYoungGenSize();
+            if (initialSize.lessThan(youngGenSize)) {
+                desiredSize = initialSize;
+            }
+        } else if (hasSamples) {
+            final long pauseGoalNanos = MaxGCPauseMillis * 1000000L;
+            if (avgMinorPauseNanos > pauseGoalNanos) {
+                // Scale down in proportion to the pause overshoot.
+                desiredSize = Size.fromLong(youngGenSize.toLong() * (pauseGoalNanos / 1000) / (avgMinorPauseNanos / 1000));
+                final Size minSize = youngGenSize.minus(percent(youngGenSize, MAX_SHRINK_PERCENT));
+                if (desiredSize.lessThan(minSize)) {
+                    desiredSize = minSize;
+                }
+            } else if (exceedsGCTimeGoal()) {
+                // Collect less often, without exceeding the pause goal.
+                desiredSize = youngGenSize.plus(percent(youngGenSize, MAX_GROWTH_PERCENT));
+                if (avgMinorPauseNanos > 0) {
+                    final Size maxSizeForPauseGoal = Size.fromLong(youngGenSize.toLong() * (pauseGoalNanos / 1000) / (avgMinorPauseNanos / 1000 + 1));
+                    if (desiredSize.greaterThan(maxSizeForPauseGoal)) {
+                        desiredSize = maxSizeForPauseGoal;
+                    }
+                }
+            }
+        }
+        desiredSize = alignUp(desiredSize);
+        if (desiredSize.greaterThan(maxYoungGenSize())) {
+            desiredSize = maxYoungGenSize();
+        }
+        if (desiredSize.lessThan(unitSize)) {
+            desiredSize = unitSize;
+        }
+        if (TraceAdaptiveSizing && !desiredSize.equals(youngGenSize)) {
+            traceResizing("young", youngGenSize, desiredSize);
+        }
+        return desiredSize;
+    }
+
+    /**
+     * Compute the size the old generation should be resized to after a collection.
+     *
+     * @param oldGenSize current size of the old generation
+     * @param oldGenUsedSpace space used in the old generation
+     * @return the desired size of the old generation, aligned
+     */
+    public Size desiredOldGenSize(Size oldGenSize, Size oldGenUsedSpace) {
+        Size desiredSize = oldGenSize;
+        final Size freeSpace = oldGenSize.minus(oldGenUsedSpace);
+        if (idle) {
+            desiredSize = oldGenUsedSpace.times(100).dividedBy(100 - minFreePercent);
+            if (desiredSize.lessThan(initialOldGenSize())) {
+                desiredSize = initialOldGenSize();
+            }
+            if (desiredSize.greaterThan(oldGenSize)) {
+                desiredSize = oldGenSize;
+            }
+        } else if (freeSpace.lessThan(percent(oldGenSize, minFreePercent))) {
+            desiredSize = oldGenUsedSpace.times(100).dividedBy(100 - minFreePercent);
+        } else if (hasSamples && exceedsGCTimeGoal()) {
+            desiredSize = oldGenSize.plus(percent(oldGenSize, MAX_GROWTH_PERCENT));
+        } else if (freeSpace.greaterThan(percent(oldGenSize, maxFreePercent))) {
+            desiredSize = oldGenUsedSpace.times(100).dividedBy(100 - maxFreePercent);
+            final Size minSize = oldGenSize.minus(percent(oldGenSize, MAX_SHRINK_PERCENT));
+            if (desiredSize.lessThan(minSize)) {
+                desiredSize = minSize;
+            }
+            if (desiredSize.lessThan(initialOldGenSize())) {
+                desiredSize = initialOldGenSize().lessThan(oldGenSize) ? initialOldGenSize() : oldGenSize;
+            }
+        }
+        desiredSize = alignUp(desiredSize);
+        if (desiredSize.greaterThan(maxOldGenSize())) {
+            desiredSize = maxOldGenSize();
+        }
+        if (TraceAdaptiveSizing && !desiredSize.equals(oldGenSize)) {
+            traceResizing("old", oldGenSize, desiredSize);
+        }
+        return desiredSize;
+    }
+
+    /**
+     * Record the completion of the resizing that followed a collection.
+     */
+    public void notifyResized() {
+        if (idle) {
+            shrunkWhileIdle = true;
+            idle = false;
+        } else {
+            shrunkWhileIdle = false;
+        }
+    }
+
+    private void traceResizing(String generation, Size currentSize, Size desiredSize) {
+        final boolean lockDisabledSafepoints = Log.lock();
+        Log.print("Adaptive sizing: resize ");
+        Log.print(generation);
+        Log.print(" generation from ");
+        Log.printToPowerOfTwoUnits(currentSize);
+        Log.print(" to ");
+        Log.printToPowerOfTwoUnits(desiredSize);
+        Log.print(idle ? " (idle)" : "");
+        Log.print(", avg minor pause (us) = ");
+        Log.print(avgMinorPauseNanos / 1000);
+        Log.print(", avg GC time per cycle (us) = ");
+        Log.print(avgGCNanosPerCycle / 1000);
+        Log.print(", avg mutator time (us) = ");
+        Log.println(avgMutatorNanos / 1000);
+        Log.unlock(lockDisabledSafepoints);
+    }
+
+    /**
+     * Daemon thread requesting a collection that shrinks the heap when no collection took place during {@link #HeapIdleUncommitMillis}.
+     */
+    final class IdleHeapMonitor extends Thread {
+        IdleHeapMonitor() {
+            super(VmThread.systemThreadGroup, "IdleHeapMonitor");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            final GCRequest gcRequest = VmThread.current().gcRequest;
+            int lastNumCollections = numCollections;
+            while (true) {
+                try {
+                    Thread.sleep(HeapIdleUncommitMillis);
+                } catch (InterruptedException e) {
+                }
+                final int n = numCollections;
+                if (n == lastNumCollections && !shrunkWhileIdle) {
+                    idle = true;
+                    gcRequest.explicit = true;
+                    Heap.collectGarbage();
+                }
+                lastNumCollections = numCollections;
+            }
+        }
+    }
+}
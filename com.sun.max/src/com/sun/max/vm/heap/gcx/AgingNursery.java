@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import static com.sun.max.vm.heap.HeapSchemeAdaptor.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.runtime.*;
+
+/**
+ * A nursery made of an eden, where mutators allocate, and two survivor spaces of equal size.
+ * Minor collections evacuate live objects of the eden and of the from-survivor space either to the to-survivor space or
+ * to the next generation, depending on their age. The survivor spaces are flipped after each minor collection.
+ *
+ * The age of the objects in the survivor spaces is kept in a side table with one byte per minimum object size granule
+ * of the survivor spaces. Objects in the eden are of age zero.
+ * The header's misc word cannot hold the age: all its bits are used by the lock word (hash code, owner thread,
+ * recursion count, biased-lock epoch, or a pointer to an inflated monitor).
+ */
+public final class AgingNursery implements EvacuatingSpace {
+    /**
+     * Space where mutators allocate.
+     */
+    private final NoAgingRegionalizedNursery eden;
+
+    /**
+     * The heap account the survivor spaces are allocated from.
+     */
+    private final HeapAccount<? extends HeapAccountOwner> heapAccount;
+
+    private final int regionTag;
+
+    /**
+     * List of regions allocated to the survivor spaces.
+     */
+    private HeapRegionList survivorRegionsList;
+
+    /**
+     * Size of one survivor space.
+     */
+    private Size survivorSpaceSize;
+
+    /**
+     * Start of the contiguous range of virtual memory holding the two survivor spaces. The age table is indexed relative to this address.
+     */
+    private Address survivorsStart;
+
+    @INSPECTED
+    private Address fromStart;
+
+    /**
+     * End of the objects held in the from-survivor space.
+     */
+    @INSPECTED
+    private Address fromTop;
+
+    @INSPECTED
+    private Address toStart;
+
+    /**
+     * Allocation hand in the to-survivor space.
+     */
+    @INSPECTED
+    private Address toTop;
+
+    /**
+     * Table of object ages. One byte per granule of {@link #log2AgeGranule} bytes of the survivor spaces.
+     */
+    private Pointer ageTable;
+
+    private int log2AgeGranule;
+
+    private final SpaceBounds bounds;
+
+    public AgingNursery(NoAgingRegionalizedNursery eden, HeapAccount<? extends HeapAccountOwner> heapAccount, int regionTag) {
+        this.eden = eden;
+        this.heapAccount = heapAccount;
+        this.regionTag = regionTag;
+        final SpaceBounds edenBounds = eden.bounds();
+        this.bounds = new SpaceBounds() {
+            @Override
+            Address lowestAddress() {
+                final Address edenStart = edenBounds.lowestAddress();
+                return edenStart.lessThan(survivorsStart) ? edenStart : survivorsStart;
+            }
+
+            @Override
+            boolean isIn(Address address) {
+                return edenBounds.isIn(address) || inFromSurvivor(address);
+            }
+
+            @Override
+            boolean isContiguous() {
+                return false;
+            }
+
+            @Override
+            Address highestAddress() {
+                final Address edenEnd = edenBounds.highestAddress();
+                final Address survivorsEnd = survivorsStart.plus(survivorSpaceSize.times(2));
+                return edenEnd.greaterThan(survivorsEnd) ? edenEnd : survivorsEnd;
+            }
+        };
+    }
+
+    /**
+     * Initialize the nursery. The survivor spaces are carved out of the young generation's budget: each survivor space is a
+     * {@code survivorRatio + 2}th of the initial young generation size, rounded to a whole number of regions.
+     *
+     * @param genSizingPolicy the sizing policy of the generational heap
+     * @param survivorRatio ratio of the eden size to the size of one survivor space
+     */
+    public void initialize(GenHeapSizingPolicy genSizingPolicy, int survivorRatio) {
+        final Size initialYoungGenSize = genSizingPolicy.initialYoungGenSize();
+        final int numSurvivorRegions = Math.max(1, HeapRegionConstants.numberOfRegions(initialYoungGenSize) / (survivorRatio + 2));
+        survivorSpaceSize = Size.fromInt(HeapRegionConstants.regionSizeInBytes).times(numSurvivorRegions);
+        final Size survivorsSize = survivorSpaceSize.times(2);
+        if (initialYoungGenSize.lessEqual(survivorsSize)) {
+            FatalError.unexpected("Young generation too small for survivor spaces");
+        }
+        eden.initialize(initialYoungGenSize.minus(survivorsSize), genSizingPolicy.maxYoungGenSize().minus(survivorsSize));
+
+        survivorRegionsList = HeapRegionList.RegionListUse.OWNERSHIP.createList();
+        if (!heapAccount.allocateContiguous(2 * numSurvivorRegions, survivorRegionsList, false, true, regionTag)) {
+            FatalError.unexpected("Couldn't allocate contiguous range to the survivor spaces");
+        }
+        survivorsStart = RegionTable.theRegionTable().regionAddress(survivorRegionsList.head());
+        fromStart = survivorsStart;
+        fromTop = fromStart;
+        toStart = survivorsStart.plus(survivorSpaceSize);
+        toTop = toStart;
+
+        log2AgeGranule = Integer.numberOfTrailingZeros(minObjectSize().toInt());
+        final Size ageTableSize = survivorsSize.unsignedShiftedRight(log2AgeGranule);
+        ageTable = Memory.allocate(ageTableSize);
+        if (ageTable.isZero()) {
+            MaxineVM.reportPristineMemoryFailure("survivor age table", "allocate", ageTableSize);
+        }
+        Memory.setBytes(ageTable, ageTableSize, (byte) 0);
+        HeapFreeChunk.format(fromStart, survivorSpaceSize);
+        HeapFreeChunk.format(toStart, survivorSpaceSize);
+    }
+
+    public NoAgingRegionalizedNursery eden() {
+        return eden;
+    }
+
+    /**
+     * Size of one survivor space.
+     */
+    public Size survivorSpaceSize() {
+        return survivorSpaceSize;
+    }
+
+    /**
+     * Amount of bytes held in the from-survivor space.
+     */
+    public Size survivorUsedSpace() {
+        return fromTop.minus(fromStart).asSize();
+    }
+
+    @INLINE
+    public boolean inFromSurvivor(Address address) {
+        return address.greaterEqual(fromStart) && address.lessThan(fromTop);
+    }
+
+    @INLINE
+    public boolean inToSurvivor(Address address) {
+        return address.greaterEqual(toStart) && address.lessThan(toTop);
+    }
+
+    /**
+     * Start of the to-survivor space.
+     */
+    public Address toSurvivorStart() {
+        return toStart;
+    }
+
+    /**
+     * Current allocation hand of the to-survivor space.
+     */
+    public Address toSurvivorTop() {
+        return toTop;
+    }
+
+    /**
+     * Allocate space in the to-survivor space. This isn't thread-safe and must only be used by a single evacuator.
+     *
+     * @param size number of bytes to allocate
+     * @return a pointer to the allocated space, or zero if the to-survivor space is full
+     */
+    public Pointer allocateInSurvivor(Size size) {
+        final Address cell = toTop;
+        final Address newTop = cell.plus(size);
+        // Keep room for formatting the end of the space as a free chunk after evacuation.
+        if (newTop.greaterThan(toStart.plus(survivorSpaceSize).minus(HeapFreeChunk.heapFreeChunkHeaderSize()))) {
+            return Pointer.zero();
+        }
+        toTop = newTop;
+        return cell.asPointer();
+    }
+
+    @INLINE
+    private int ageIndex(Address cell) {
+        return cell.minus(survivorsStart).unsignedShiftedRight(log2AgeGranule).toInt();
+    }
+
+    /**
+     * Age of a cell, i.e., the number of minor collections it survived.
+     *
+     * @param cell a cell in the nursery
+     * @return the age of the cell
+     */
+    public int age(Pointer cell) {
+        if (inFromSurvivor(cell)) {
+            return ageTable.getByte(ageIndex(cell));
+        }
+        return 0;
+    }
+
+    /**
+     * Set the age of a cell of the to-survivor space.
+     */
+    public void setAge(Pointer cell, int age) {
+        ageTable.setByte(ageIndex(cell), (byte) age);
+    }
+
+    @Override
+    public SpaceBounds bounds() {
+        return bounds;
+    }
+
+    /**
+     * Test whether an address is in the eden. Objects in the survivor spaces aren't included, as references to them are
+     * legitimate after a minor collection.
+     */
+    @Override
+    public boolean contains(Address address) {
+        return eden.contains(address);
+    }
+
+    @Override
+    public void doBeforeGC() {
+        eden.doBeforeGC();
+        toTop = toStart;
+    }
+
+    @Override
+    public void doAfterGC() {
+        eden.doAfterGC();
+        // Flip the survivor spaces. What is left in the from-space is dead.
+        final Address deadStart = fromStart;
+        fromStart = toStart;
+        fromTop = toTop;
+        toStart = deadStart;
+        toTop = deadStart;
+        HeapFreeChunk.format(toStart, survivorSpaceSize);
+        HeapFreeChunk.format(fromTop, fromStart.plus(survivorSpaceSize).minus(fromTop).asSize());
+    }
+}
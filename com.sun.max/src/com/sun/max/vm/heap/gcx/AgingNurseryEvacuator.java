@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.gcx.rset.ctbl.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.reference.*;
+
+/**
+ * Evacuator for an {@link AgingNursery}. Live objects younger than the tenuring threshold are copied to the to-survivor space,
+ * others are promoted to the next generation. Objects are also promoted when the to-survivor space overflows.
+ *
+ * The tenuring threshold is adapted after each evacuation so that the survivors of the next evacuation are expected to
+ * fill no more than {@link #TargetSurvivorRatio} percent of a survivor space.
+ * References from the next generation and the boot heap to survivors are kept in the card table: cards holding them are dirtied back after being cleaned.
+ */
+public final class AgingNurseryEvacuator extends NoAgingNurseryEvacuator {
+    /**
+     * Maximum age recorded in the age table.
+     */
+    private static final int MAX_AGE = 15;
+
+    static int MaxTenuringThreshold = MAX_AGE;
+    static int TargetSurvivorRatio = 50;
+    static boolean TraceTenuring = false;
+    static {
+        VMOptions.addFieldOption("-XX:", "MaxTenuringThreshold", AgingNurseryEvacuator.class,
+                        "Maximum number of minor collections an object survives before being promoted (at most 15)", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "TargetSurvivorRatio", AgingNurseryEvacuator.class, "Desired percentage of survivor space used after a minor collection", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "TraceTenuring", AgingNurseryEvacuator.class, "Trace the age distribution of survivors and the tenuring threshold", Phase.PRISTINE);
+    }
+
+    private final AgingNursery nursery;
+
+    /**
+     * Objects of age greater or equal to the threshold are promoted.
+     */
+    private int tenuringThreshold;
+
+    /**
+     * Number of bytes copied to the to-survivor space during the current evacuation, indexed by age.
+     */
+    private final long [] survivorBytesByAge = new long[MAX_AGE + 1];
+
+    /**
+     * Address of the next cell of the to-survivor space to scan for references to evacuatees.
+     */
+    private Pointer survivorScanMark;
+
+    public AgingNurseryEvacuator(AgingNursery nursery, HeapSpace toSpace, EvacuationBufferProvider evacuationBufferProvider, CardTableRSet rset, String name) {
+        super(nursery, toSpace, evacuationBufferProvider, rset, name);
+        this.nursery = nursery;
+    }
+
+    @Override
+    public void initialize(int maxSurvivorRanges, boolean alwaysRefill, Size minRefillThreshold, boolean retireAfterEvacuation) {
+        super.initialize(maxSurvivorRanges, alwaysRefill, minRefillThreshold, retireAfterEvacuation);
+        if (MaxTenuringThreshold > MAX_AGE) {
+            MaxTenuringThreshold = MAX_AGE;
+        } else if (MaxTenuringThreshold < 0) {
+            MaxTenuringThreshold = 0;
+        }
+        tenuringThreshold = MaxTenuringThreshold;
+    }
+
+    public int tenuringThreshold() {
+        return tenuringThreshold;
+    }
+
+    @Override
+    protected void doBeforeEvacuation() {
+        super.doBeforeEvacuation();
+        survivorScanMark = nursery.toSurvivorStart().asPointer();
+        for (int age = 0; age <= MAX_AGE; age++) {
+            survivorBytesByAge[age] = 0L;
+        }
+    }
+
+    @Override
+    protected void doAfterEvacuation() {
+        super.doAfterEvacuation();
+        updateTenuringThreshold();
+    }
+
+    @Override
+    Pointer evacuate(Pointer fromOrigin) {
+        final Pointer fromCell = Layout.originToCell(fromOrigin);
+        final int age = nursery.age(fromCell);
+        if (age < tenuringThreshold) {
+            final Size size = Layout.size(fromOrigin);
+            final Pointer toCell = nursery.allocateInSurvivor(size);
+            if (!toCell.isZero()) {
+                Memory.copyBytes(fromCell, toCell, size);
+                nursery.setAge(toCell, age + 1);
+                survivorBytesByAge[age + 1] += size.toLong();
+                return Layout.cellToOrigin(toCell);
+            }
+            // The to-survivor space overflowed. Promote.
+        }
+        return super.evacuate(fromOrigin);
+    }
+
+    /**
+     * Scan the cells copied to the to-survivor space since the last scan.
+     * @return true if any cells were scanned
+     */
+    private boolean scanSurvivors() {
+        if (survivorScanMark.greaterEqual(nursery.toSurvivorTop())) {
+            return false;
+        }
+        do {
+            // The to-survivor space's top may move while scanning.
+            final Pointer end = nursery.toSurvivorTop().asPointer();
+            evacuateRange(survivorScanMark, end);
+            survivorScanMark = end;
+        } while (survivorScanMark.lessThan(nursery.toSurvivorTop()));
+        return true;
+    }
+
+    @Override
+    protected void evacuateReachables() {
+        do {
+            super.evacuateReachables();
+        } while (scanSurvivors());
+    }
+
+    /**
+     * Survivors may be referenced from cards that were cleaned when scanning the remembered set.
+     * Dirty the card of the reference holder again so that the reference is found at the next evacuation.
+     */
+    @Override
+    void updateRSet(Pointer refHolderOrigin, int wordIndex, Reference ref) {
+        if (nursery.inToSurvivor(ref.toOrigin()) && !nursery.inToSurvivor(refHolderOrigin) && isCoveredByRSet(refHolderOrigin)) {
+            rset.record(Reference.fromOrigin(refHolderOrigin), Offset.fromInt(wordIndex << Word.widthValue().log2numberOfBytes));
+        }
+    }
+
+    /**
+     * Test whether a reference holder is covered by the card table. Roots (e.g., thread stacks) and the immortal heap aren't,
+     * and are scanned in full at every evacuation anyway.
+     */
+    private static boolean isCoveredByRSet(Pointer refHolderOrigin) {
+        return Heap.bootHeapRegion.contains(refHolderOrigin) || HeapRegionManager.theHeapRegionManager().contains(refHolderOrigin);
+    }
+
+    /**
+     * Compute the tenuring threshold for the next evacuation from the age distribution of the survivors of the last one.
+     * The threshold is the lowest age at which the cumulated size of the survivors exceeds the target survivor space occupancy.
+     */
+    private void updateTenuringThreshold() {
+        final long desiredSurvivorSize = nursery.survivorSpaceSize().toLong() / 100 * TargetSurvivorRatio;
+        long total = 0L;
+        int age = 1;
+        while (age < MaxTenuringThreshold) {
+            total += survivorBytesByAge[age];
+            if (total > desiredSurvivorSize) {
+                break;
+            }
+            age++;
+        }
+        tenuringThreshold = age < MaxTenuringThreshold ? age : MaxTenuringThreshold;
+        if (TraceTenuring) {
+            final boolean lockDisabledSafepoints = Log.lock();
+            Log.print("Survivors by age:");
+            for (int a = 1; a <= MaxTenuringThreshold; a++) {
+                if (survivorBytesByAge[a] != 0L) {
+                    Log.print(" [");
+                    Log.print(a);
+                    Log.print("] ");
+                    Log.print(survivorBytesByAge[a]);
+                }
+            }
+            Log.print(", survivor space used: ");
+            Log.print(nursery.survivorUsedSpace().toLong());
+            Log.print(", new tenuring threshold: ");
+            Log.println(tenuringThreshold);
+            Log.unlock(lockDisabledSafepoints);
+        }
+    }
+}
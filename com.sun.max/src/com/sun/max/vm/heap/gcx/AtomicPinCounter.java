@@ -38,6 +38,13 @@ public final class AtomicPinCounter {
         return ClassActor.fromJava(AtomicPinCounter.class).findLocalInstanceFieldActor("pinnedCounter").offset();
     }
 
+    /**
+     * Number of pin requests not yet matched by an unpin request.
+     */
+    public int value() {
+        return pinnedCounter;
+    }
+
     public void increment() {
         int newValue;
         int oldValue;
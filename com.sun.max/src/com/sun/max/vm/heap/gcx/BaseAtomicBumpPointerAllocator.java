@@ -97,7 +97,7 @@ public abstract class BaseAtomicBumpPointerAllocator<T extends Refiller> {
     }
 
     public final void unsafeSetTop(Address newTop) {
-        FatalError.check(inCurrentContiguousChunk(newTop), "top must be within allocating chunk");
+        FatalError.check(newTop.greaterEqual(start) && newTop.lessEqual(end), "top must be within allocating chunk");
         top = newTop;
     }
 
@@ -389,6 +389,28 @@ public abstract class BaseAtomicBumpPointerAllocator<T extends Refiller> {
         return cell;
     }
 
+    /**
+     * Allocate a space of the specified size out of the current chunk, without refilling the allocator.
+     *
+     * @param size size requested in bytes.
+     * @return pointer to uncleared allocated cell, or zero if the current chunk doesn't have enough space left
+     */
+    @INLINE
+    @NO_SAFEPOINT_POLLS("object allocation and initialization must be atomic")
+    public final Pointer tryBumpAllocate(Size size) {
+        Pointer thisAddress = Reference.fromJava(this).toOrigin();
+        Pointer cell;
+        Pointer newTop;
+        do {
+            cell = top.asPointer();
+            newTop = cell.plus(size);
+            if (newTop.greaterThan(end)) {
+                return Pointer.zero();
+            }
+        } while (!thisAddress.compareAndSwapWord(topOffset(), cell, newTop).equals(cell));
+        return cell;
+    }
+
     @INLINE
     protected final boolean isLarge(Size size) {
         return size.greaterThan(sizeLimit);
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.gcx.rset.ctbl.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Cleans, concurrently with mutators, the dirty cards of an old generation that hold no references to the young generation,
+ * so that fewer dirty cards are left for the next minor collection to scan.
+ * <p>
+ * A background thread periodically walks the regions of the old generation and refines their cards with an
+ * {@link EvacuatedAreaCardRefiner}. Each region is refined atomically with respect to allocation, sweeping and GC (see
+ * {@link FirstFitMarkSweepSpace#visitRegionLocked(int, CellRangeVisitor)}). Mutators don't allocate directly in the old
+ * generation; cells allocated there by the GC are always parsable once the GC is over.
+ * <p>
+ * Refinement is suspended during a concurrent marking cycle, as the dirty cards are needed by the
+ * {@linkplain ConcurrentHeapMarker#rescanDirtyCards() rescan} of the cells updated during the cycle.
+ */
+public final class ConcurrentCardRefiner implements CellRangeVisitor {
+    /**
+     * Interval, in milliseconds, between two refinements of the old generation's cards. Zero disables concurrent refinement.
+     */
+    static int ConcurrentCardRefinementInterval = 0;
+    static boolean TraceConcurrentCardRefinement = false;
+    static {
+        VMOptions.addFieldOption("-XX:", "ConcurrentCardRefinementInterval", ConcurrentCardRefiner.class,
+                        "Interval (in milliseconds) between two concurrent refinements of the old generation's dirty cards (0 = disabled)", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "TraceConcurrentCardRefinement", ConcurrentCardRefiner.class, "Trace concurrent card refinement", Phase.PRISTINE);
+    }
+
+    public static boolean isEnabled() {
+        return ConcurrentCardRefinementInterval > 0;
+    }
+
+    private final CardTableRSet cardTableRSet;
+
+    /**
+     * The old generation whose cards are refined.
+     */
+    private final FirstFitMarkSweepSpace<?> refinedSpace;
+
+    /**
+     * The concurrent marker of the old generation, or null if concurrent marking isn't used.
+     */
+    private final ConcurrentHeapMarker concurrentMarker;
+
+    private final EvacuatedAreaCardRefiner refiner = new EvacuatedAreaCardRefiner();
+
+    /**
+     * Number of cards cleaned by the current refinement.
+     */
+    private int numCleanedCards;
+
+    @HOSTED_ONLY
+    public ConcurrentCardRefiner(CardTableRSet cardTableRSet, FirstFitMarkSweepSpace<?> refinedSpace, ConcurrentHeapMarker concurrentMarker) {
+        this.cardTableRSet = cardTableRSet;
+        this.refinedSpace = refinedSpace;
+        this.concurrentMarker = concurrentMarker;
+    }
+
+    /**
+     * Start the refinement thread. Must be called once the VM is {@linkplain Phase#RUNNING running}.
+     *
+     * @param youngSpace the young generation
+     */
+    public void start(EvacuatingSpace youngSpace) {
+        refiner.initialize(youngSpace.bounds(), Address.zero(), Address.zero());
+        new ConcurrentCardRefinementThread().start();
+    }
+
+    /**
+     * Refine the dirty cards of a range of the old generation. Called with safepoints disabled, so no GC can start a concurrent marking cycle meanwhile.
+     */
+    public void visitCells(Address start, Address end) {
+        if (concurrentMarker == null || !concurrentMarker.isActive()) {
+            numCleanedCards += cardTableRSet.refineCards(start, end, refiner);
+        }
+    }
+
+    private void refine() {
+        numCleanedCards = 0;
+        final int numRegions = RegionTable.theRegionTable().length();
+        for (int regionID = 0; regionID < numRegions; regionID++) {
+            refinedSpace.visitRegionLocked(regionID, this);
+        }
+        if (TraceConcurrentCardRefinement) {
+            Log.print("Concurrent card refinement cleaned ");
+            Log.print(numCleanedCards);
+            Log.println(" cards");
+        }
+    }
+
+    /**
+     * Background thread running the refinement. It is a regular VM thread, i.e., it is stopped during GC and its stack is scanned.
+     */
+    final class ConcurrentCardRefinementThread extends Thread {
+        ConcurrentCardRefinementThread() {
+            super(VmThread.systemThreadGroup, "ConcurrentCardRefinement");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    Thread.sleep(ConcurrentCardRefinementInterval);
+                } catch (InterruptedException e) {
+                }
+                refine();
+            }
+        }
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import static com.sun.max.vm.heap.gcx.rset.ctbl.CardState.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.gcx.rset.ctbl.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Mostly-concurrent marking of a mark-sweep space of a generational heap, built on the color map of a {@link TricolorHeapMarker}.
+ * The young generation must be empty at the initial-mark and remark pauses (i.e., these pauses must follow a nursery evacuation).
+ * <p>
+ * Marking proceeds as follows:
+ * <ul>
+ * <li>Initial mark (stop-the-world): the color map is cleared and roots are marked grey.</li>
+ * <li>Concurrent tracing: a background thread repeatedly scans the color map for grey cells of the marked space, turns them black
+ * and greys their white references to the marked space, until a scan finds no grey cell to trace. Special references are left grey:
+ * they are discovered and traced during the remark pause. The thread is a regular VM thread that is stopped during GC,
+ * and references to the young generation are ignored since young objects may move.</li>
+ * <li>Incremental update: the post-write barrier of the generational scheme dirties the card of every updated reference slot.
+ * Before each nursery evacuation (which cleans the cards of the old generation), the references of black cells overlapping dirty
+ * cards of the marked space are greyed. Cells evacuated to the marked space are greyed (see
+ * {@link EvacuatorToCardSpace#setEvacuatedCellMarker(TricolorHeapMarker)}).</li>
+ * <li>Remark (stop-the-world): roots are marked again and remaining grey cells are traced by the heap marker's serial forward scan,
+ * then special references are processed (see {@link TricolorHeapMarker#remark(HeapRegionRangeIterable)}). The space can be swept
+ * afterwards.</li>
+ * </ul>
+ * A concurrent marking in progress can be {@linkplain #abort() aborted} at any time, e.g., to run a full stop-the-world marking when
+ * the marked space runs out of space before the concurrent marking completes.
+ */
+public final class ConcurrentHeapMarker {
+
+    static int ConcurrentMarkingPollInterval = 20;
+    static int ConcurrentMarkingStackSize = 8192;
+    static boolean TraceConcurrentMarking = false;
+    static int ConcurrentMarkingAbortInterval = 0;
+    static {
+        VMOptions.addFieldOption("-XX:", "ConcurrentMarkingPollInterval", ConcurrentHeapMarker.class,
+                        "Interval (in milliseconds) at which the idle concurrent marking thread checks for a new marking cycle", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "ConcurrentMarkingStackSize", ConcurrentHeapMarker.class,
+                        "Capacity (in number of references) of the concurrent marking thread's marking stack", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "TraceConcurrentMarking", ConcurrentHeapMarker.class, "Trace concurrent marking cycles", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "ConcurrentMarkingAbortInterval", ConcurrentHeapMarker.class,
+                        "Abort each concurrent marking cycle with a full GC requested by the concurrent marking thread after it greyed " +
+                        "this number of references (for testing). Zero means never", Phase.PRISTINE);
+    }
+
+    private static final int IDLE = 0;
+    private static final int MARKING = 1;
+    private static final int READY_FOR_REMARK = 2;
+    private static final int STATE_MASK = 3;
+    private static final int LOG2_CYCLE_SHIFT = 2;
+
+    final TricolorHeapMarker heapMarker;
+    private final FirstFitMarkSweepSpace<?> markedSpace;
+    private final CardTableRSet cardTableRSet;
+
+    /**
+     * Marking stack private to the concurrent marking thread. Cells that don't fit are left grey for the next scan of the color map.
+     */
+    private final WorkStealingDeque markingStack = new WorkStealingDeque();
+    private final ConcurrentTracer tracer = new ConcurrentTracer();
+    private final DirtyCardRescanner dirtyCardRescanner = new DirtyCardRescanner();
+
+    /**
+     * State of the concurrent marking, combined with the number of the current marking cycle so that a marking thread
+     * resuming after an aborted cycle can't update the state of a subsequent cycle.
+     */
+    private volatile int status;
+
+    /**
+     * Set by GC operations that may have greyed cells behind the concurrent marking thread's scan of the color map
+     * (see {@link #rescanDirtyCards()}), so that it scans the color map again before handing over to the remark.
+     */
+    private volatile boolean rescanRequested;
+
+    /**
+     * Set by the concurrent marking thread to request a full GC that aborts the current cycle (see {@link #ConcurrentMarkingAbortInterval}).
+     */
+    private volatile boolean abortRequested;
+
+    private ConcurrentMarkingThread thread;
+
+    @FOLD
+    private static int statusOffset() {
+        return ClassActor.fromJava(ConcurrentHeapMarker.class).findLocalInstanceFieldActor("status").offset();
+    }
+
+    @HOSTED_ONLY
+    public ConcurrentHeapMarker(TricolorHeapMarker heapMarker, FirstFitMarkSweepSpace<?> markedSpace, CardTableRSet cardTableRSet) {
+        this.heapMarker = heapMarker;
+        this.markedSpace = markedSpace;
+        this.cardTableRSet = cardTableRSet;
+    }
+
+    /**
+     * Allocate the marking stack. Must be called once the heap marker is initialized.
+     */
+    public void initialize() {
+        markingStack.initialize(ConcurrentMarkingStackSize);
+    }
+
+    /**
+     * Start the concurrent marking thread. Must be called once the VM is {@linkplain Phase#RUNNING running}.
+     */
+    public void start() {
+        thread = new ConcurrentMarkingThread();
+        thread.start();
+    }
+
+    private static int state(int status) {
+        return status & STATE_MASK;
+    }
+
+    private static int cycle(int status) {
+        return status >>> LOG2_CYCLE_SHIFT;
+    }
+
+    private void setStatus(int cycle, int state) {
+        status = (cycle << LOG2_CYCLE_SHIFT) | state;
+    }
+
+    /**
+     * Indicates whether a concurrent marking cycle is in progress, i.e., an initial mark was done and the remark wasn't.
+     */
+    public boolean isActive() {
+        return state(status) != IDLE;
+    }
+
+    /**
+     * Indicates whether the concurrent tracing is completed and the marking can be completed with a remark pause.
+     */
+    public boolean isReadyForRemark() {
+        return state(status) == READY_FOR_REMARK;
+    }
+
+    /**
+     * Indicates whether the concurrent marking thread requested the current cycle to be aborted by a full GC.
+     */
+    public boolean isAbortRequested() {
+        return abortRequested;
+    }
+
+    /**
+     * Begin a concurrent marking cycle. Must be called during a stop-the-world GC operation, after evacuation of the young generation.
+     */
+    public void initialMark() {
+        FatalError.check(!isActive(), "Concurrent marking already in progress");
+        heapMarker.markRootsForConcurrentMarking();
+        setStatus(cycle(status) + 1, MARKING);
+        if (TraceConcurrentMarking) {
+            Log.print("Concurrent marking: initial mark of cycle ");
+            Log.println(cycle(status));
+        }
+    }
+
+    /**
+     * Grey the white references to the marked space held by black cells overlapping dirty cards. Must be called during a
+     * stop-the-world GC operation, before the cards are cleaned by the evacuation of the young generation.
+     */
+    public void rescanDirtyCards() {
+        if (isActive()) {
+            markedSpace.visit(dirtyCardRescanner);
+            // Cells evacuated to the marked space are also greyed after this.
+            rescanRequested = true;
+        }
+    }
+
+    /**
+     * Complete the current concurrent marking cycle. Must be called during a stop-the-world GC operation, after evacuation of the
+     * young generation. On return, the heap marker's color map can be used to sweep the marked space.
+     *
+     * @param regionsRanges ranges of heap regions holding the objects to trace
+     */
+    public void remark(HeapRegionRangeIterable regionsRanges) {
+        FatalError.check(isActive(), "No concurrent marking in progress");
+        if (TraceConcurrentMarking) {
+            Log.print("Concurrent marking: remark of cycle ");
+            Log.println(cycle(status));
+        }
+        heapMarker.remark(regionsRanges);
+        setStatus(cycle(status), IDLE);
+    }
+
+    /**
+     * Abort the current concurrent marking cycle. Must be called during a stop-the-world GC operation.
+     * The color map must be cleared before it is used again (e.g., by a full {@link TricolorHeapMarker#markAll(HeapRegionRangeIterable)}).
+     */
+    public void abort() {
+        if (isActive()) {
+            if (TraceConcurrentMarking) {
+                Log.print("Concurrent marking: abort cycle ");
+                Log.println(cycle(status));
+            }
+            // Bump the cycle number so the concurrent marking thread gives up the aborted cycle.
+            setStatus(cycle(status) + 1, IDLE);
+        }
+        abortRequested = false;
+    }
+
+    @INLINE
+    private boolean isMarkedSpaceCell(Pointer cell) {
+        return heapMarker.isCovered(cell) && markedSpace.contains(cell);
+    }
+
+    /**
+     * Marks grey the white cells of the marked space referenced from visited cells.
+     * Used by the stop-the-world rescan of dirty cards, and as the base of the concurrent tracer.
+     */
+    class CellGreyer extends PointerIndexVisitor {
+        /**
+         * Indicates whether a grey cell couldn't be pushed on the marking stack.
+         */
+        boolean overflowed;
+
+        void markRefGrey(Reference ref) {
+            final Pointer cell = Layout.originToCell(ref.toOrigin());
+            if (isMarkedSpaceCell(cell) && heapMarker.markGreyIfWhiteAtomic(cell)) {
+                pushGreyCell(cell);
+            }
+        }
+
+        void pushGreyCell(Pointer cell) {
+        }
+
+        @Override
+        public void visit(Pointer pointer, int wordIndex) {
+            markRefGrey(pointer.getReference(wordIndex));
+        }
+
+        /**
+         * Visit the references of a cell.
+         * @param cell the cell to visit
+         * @param hubRef the hub of the cell
+         * @param start address of the first reference of an array to visit
+         * @param end address past the last reference of an array to visit
+         */
+        final void visitReferences(Pointer cell, Reference hubRef, Address start, Address end) {
+            final Pointer origin = Layout.cellToOrigin(cell);
+            markRefGrey(hubRef);
+            final Hub hub = UnsafeCast.asHub(hubRef.toJava());
+            final SpecificLayout specificLayout = hub.specificLayout;
+            if (specificLayout.isTupleLayout() || specificLayout.isHybridLayout()) {
+                TupleReferenceMap.visitReferences(hub, origin, this);
+            } else if (specificLayout.isReferenceArrayLayout()) {
+                // Only visit the elements within [start, end).
+                final int length = Layout.readArrayLength(origin);
+                final Pointer firstElement = origin.plus(Layout.referenceArrayLayout().getElementOffsetFromOrigin(0));
+                if (end.lessEqual(firstElement)) {
+                    return;
+                }
+                int index = 0;
+                int endIndex = length;
+                if (start.greaterThan(firstElement)) {
+                    index = start.minus(firstElement).unsignedShiftedRight(Word.widthValue().log2numberOfBytes).toInt();
+                }
+                if (end.lessThan(firstElement.plusWords(length))) {
+                    endIndex = end.minus(firstElement).unsignedShiftedRight(Word.widthValue().log2numberOfBytes).toInt();
+                }
+                while (index < endIndex) {
+                    markRefGrey(Layout.getReference(origin, index++));
+                }
+            }
+        }
+    }
+
+    /**
+     * Visitor of the dirty cards of the marked space. References of black cells overlapping dirty cards may have been updated after
+     * the cells were traced, and are therefore greyed. Grey cells are left to the tracer.
+     */
+    final class DirtyCardRescanner extends CellGreyer implements CellRangeVisitor, OverlappingCellVisitor {
+        public void visitCells(Address start, Address end) {
+            cardTableRSet.visitCards(start, end, DIRTY_CARD, this);
+        }
+
+        public Pointer visitCell(Pointer cell, Address start, Address end) {
+            final Pointer origin = Layout.cellToOrigin(cell);
+            final Reference hubRef = Layout.readHubReference(origin);
+            final int bitIndex = heapMarker.bitIndexOf(cell);
+            if (!heapMarker.isWhite(bitIndex) && !heapMarker.isGrey(bitIndex)) {
+                visitReferences(cell, hubRef, start, end);
+            }
+            return cell.plus(Layout.size(origin));
+        }
+    }
+
+    /**
+     * Tracer run by the concurrent marking thread.
+     * <p>
+     * The marking thread is a regular VM thread: it may be stopped at any safepoint poll, including those on return from the
+     * non-inlined methods it calls, and a GC operation may then abort the cycle and run a full GC that frees the cells the tracer
+     * was working on. The tracer therefore never holds on to a cell address across a call or a loop back edge: it checks that the
+     * cycle wasn't aborted first, and re-derives the cell and the bounds of its scan from the cell's index in the color map.
+     */
+    final class ConcurrentTracer extends CellGreyer {
+        /**
+         * The cycle the tracer is working on.
+         */
+        int cycle;
+
+        /**
+         * Number of references greyed by the tracer since the beginning of the cycle.
+         */
+        int greyedCount;
+
+        @Override
+        void pushGreyCell(Pointer cell) {
+            if (!markingStack.push(cell)) {
+                // Left grey for the next scan of the color map.
+                overflowed = true;
+            }
+        }
+
+        @INLINE
+        private boolean isAborted() {
+            return cycle(status) != cycle;
+        }
+
+        @INLINE
+        private Pointer originOf(int bitIndex) {
+            return Layout.cellToOrigin(heapMarker.addressOf(bitIndex).asPointer());
+        }
+
+        @Override
+        void markRefGrey(Reference ref) {
+            // The referenced cell is held by a reference (and therefore live), but the color map may have been reused by a full GC.
+            final Pointer cell = Layout.originToCell(ref.toOrigin());
+            if (isMarkedSpaceCell(cell) && !isAborted() && heapMarker.markGreyIfWhiteAtomic(cell)) {
+                pushGreyCell(cell);
+                if (ConcurrentMarkingAbortInterval > 0 && ++greyedCount == ConcurrentMarkingAbortInterval) {
+                    abortRequested = true;
+                    Heap.collectGarbage();
+                }
+            }
+        }
+
+        /**
+         * Visit a grey cell, unless it is a special reference.
+         *
+         * @param bitIndex index of the cell in the color map
+         * @return true if the cell was visited, false if it wasn't, or if the cycle was aborted
+         */
+        private boolean visitGreyCell(int bitIndex) {
+            if (isAborted()) {
+                return false;
+            }
+            final Hub hub = UnsafeCast.asHub(Layout.readHubReference(originOf(bitIndex)).toJava());
+            if (hub.isJLRReference) {
+                // Leave special references grey. They will be discovered and traced by the remark.
+                return false;
+            }
+            if (!heapMarker.markBlackFromGreyAtomic(heapMarker.addressOf(bitIndex).asPointer())) {
+                return false;
+            }
+            markRefGrey(Reference.fromJava(hub));
+            final SpecificLayout specificLayout = hub.specificLayout;
+            if (specificLayout.isTupleLayout() || specificLayout.isHybridLayout()) {
+                final int n = hub.referenceMapStartIndex + hub.referenceMapLength;
+                for (int i = hub.referenceMapStartIndex; i < n; i++) {
+                    if (isAborted()) {
+                        return false;
+                    }
+                    markRefGrey(originOf(bitIndex).getReference(hub.getInt(i)));
+                }
+            } else if (specificLayout.isReferenceArrayLayout()) {
+                int index = 0;
+                while (true) {
+                    if (isAborted()) {
+                        return false;
+                    }
+                    final Pointer origin = originOf(bitIndex);
+                    if (index >= Layout.readArrayLength(origin)) {
+                        break;
+                    }
+                    markRefGrey(Layout.getReference(origin, index++));
+                }
+            }
+            return true;
+        }
+
+        private void drain() {
+            Pointer cell = markingStack.pop();
+            while (!cell.isZero()) {
+                // Only the bit index of the cell is carried over to the visit, which checks for an abort first.
+                if (!visitGreyCell(heapMarker.bitIndexOf(cell)) && isAborted()) {
+                    return;
+                }
+                cell = markingStack.pop();
+            }
+        }
+
+        /**
+         * Scan the color map for grey cells and trace them.
+         * Marks are iterated in address order: a lead bit is always followed by the grey bit of the same cell, and the next lead bit
+         * is at least two bits further since every cell has at least two bits in the color map.
+         *
+         * @return true if some grey cell was traced, or if a grey cell was left behind because of a marking stack overflow
+         */
+        boolean scanColorMap() {
+            boolean tracedSome = false;
+            overflowed = false;
+            final Pointer colorMapBase = heapMarker.base.asPointer();
+            final int endBitIndex = heapMarker.bitIndexOf(heapMarker.coveredAreaEnd);
+            int bitIndex = 0;
+            while (bitIndex < endBitIndex) {
+                if (isAborted()) {
+                    return false;
+                }
+                final int bitmapWordIndex = heapMarker.bitmapWordIndex(bitIndex);
+                final long bitmapWord = colorMapBase.getLong(bitmapWordIndex) & (-1L << (bitIndex & TricolorHeapMarker.LAST_BIT_INDEX_IN_WORD));
+                if (bitmapWord == 0L) {
+                    bitIndex = (bitmapWordIndex + 1) << Word.widthValue().log2numberOfBits;
+                    continue;
+                }
+                final int markBitIndex = (bitmapWordIndex << Word.widthValue().log2numberOfBits) + Pointer.fromLong(bitmapWord).leastSignificantBitSet();
+                if (heapMarker.isGrey(markBitIndex) && visitGreyCell(markBitIndex)) {
+                    tracedSome = true;
+                    drain();
+                }
+                bitIndex = markBitIndex + 2;
+            }
+            return tracedSome || overflowed;
+        }
+
+        void run(int cycle) {
+            this.cycle = cycle;
+            greyedCount = 0;
+            markingStack.reset();
+            rescanRequested = false;
+            boolean rescan = true;
+            while (rescan && !isAborted()) {
+                rescan = scanColorMap();
+                if (rescanRequested) {
+                    rescanRequested = false;
+                    rescan = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Background thread running the concurrent tracing. It is a regular VM thread, i.e., it is stopped during GC and its stack is scanned.
+     */
+    final class ConcurrentMarkingThread extends Thread {
+        ConcurrentMarkingThread() {
+            super(VmThread.systemThreadGroup, "ConcurrentMarking");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final int s = status;
+                if (state(s) != MARKING) {
+                    try {
+                        Thread.sleep(ConcurrentMarkingPollInterval);
+                    } catch (InterruptedException e) {
+                    }
+                    continue;
+                }
+                tracer.run(cycle(s));
+                // Hand over to the remark pause, unless the cycle was aborted in the meantime.
+                if (Reference.fromJava(ConcurrentHeapMarker.this).compareAndSwapInt(statusOffset(), s, (s & ~STATE_MASK) | READY_FOR_REMARK) == s) {
+                    if (TraceConcurrentMarking) {
+                        Log.print("Concurrent marking: tracing completed for cycle ");
+                        Log.println(cycle(s));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -122,6 +122,9 @@ public class ContiguousHeapSpace extends MemoryRegion implements EvacuatingSpace
         }
         final boolean committed = Heap.AvoidsAnonOperations || VirtualMemory.commitMemory(committedEnd, delta, VirtualMemory.Type.HEAP);
         if (committed) {
+            if (Heap.AvoidsAnonOperations) {
+                VirtualMemory.adviseLargePages(committedEnd, delta, VirtualMemory.Type.HEAP);
+            }
             committedEnd = newCommittedEnd;
             return true;
         }
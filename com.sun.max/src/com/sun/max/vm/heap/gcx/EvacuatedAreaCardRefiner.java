@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import static com.sun.max.vm.heap.gcx.HeapFreeChunk.*;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.gcx.rset.ctbl.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Card refiner that only keeps dirty the cards overlapping cells with references to an evacuated area.
+ * Used to clean the dirty cards of the space a young generation is evacuated to, either in parallel at the beginning of a minor
+ * collection (see {@link ParallelCardRefinement}), or concurrently with mutators between collections (see {@link ConcurrentCardRefiner}).
+ * <p>
+ * Cells are scanned the same way as {@link Evacuator#scanCellForEvacuatees(Pointer, Address, Address)}: all the references of
+ * tuples and hybrids, but only the elements of reference arrays that lie on the card. The refiner is conservative and keeps the card
+ * dirty when it overlaps a {@link java.lang.ref.Reference} (whose referent must be discovered by the evacuator), or a cell it cannot
+ * parse (e.g., an object being allocated whose hub isn't set yet).
+ */
+public final class EvacuatedAreaCardRefiner extends PointerIndexVisitor implements CardTableRSet.CardRefiner {
+    /**
+     * Bounds of the evacuated area.
+     */
+    private EvacuatingSpace.SpaceBounds evacuatedAreaBounds;
+
+    /**
+     * Start of a range of unparsable memory skipped by the refiner (e.g., an evacuator's allocation buffer).
+     */
+    private Address holeStart = Address.zero();
+
+    /**
+     * End of the range of unparsable memory skipped by the refiner.
+     */
+    private Address holeEnd = Address.zero();
+
+    /**
+     * Set when a reference to the evacuated area is found in the card being refined.
+     */
+    private boolean foundEvacuatedAreaRef;
+
+    /**
+     * Set the evacuated area and the unparsable range the refiner skips.
+     *
+     * @param evacuatedAreaBounds bounds of the evacuated area
+     * @param holeStart first cell of the unparsable range, or zero if there is none
+     * @param holeEnd end of the unparsable range
+     */
+    void initialize(EvacuatingSpace.SpaceBounds evacuatedAreaBounds, Address holeStart, Address holeEnd) {
+        this.evacuatedAreaBounds = evacuatedAreaBounds;
+        this.holeStart = holeStart;
+        this.holeEnd = holeEnd;
+    }
+
+    @Override
+    public void visit(Pointer pointer, int wordIndex) {
+        if (evacuatedAreaBounds.isIn(pointer.getReference(wordIndex).toOrigin())) {
+            foundEvacuatedAreaRef = true;
+        }
+    }
+
+    private void visitReferenceArray(Pointer refArrayOrigin, Address start, Address end) {
+        final int endOfArrayIndex = Layout.readArrayLength(refArrayOrigin) + Layout.firstElementIndex();
+        final Address firstElementAddr = refArrayOrigin.plusWords(Layout.firstElementIndex());
+        final Address endOfArrayAddr = refArrayOrigin.plusWords(endOfArrayIndex);
+        final int firstIndex = start.greaterThan(firstElementAddr) ? start.minus(refArrayOrigin).unsignedShiftedRight(Kind.REFERENCE.width.log2numberOfBytes).toInt() : Layout.firstElementIndex();
+        final int endIndex = endOfArrayAddr.greaterThan(end) ? end.minus(refArrayOrigin).unsignedShiftedRight(Kind.REFERENCE.width.log2numberOfBytes).toInt() : endOfArrayIndex;
+        for (int index = firstIndex; index < endIndex && !foundEvacuatedAreaRef; index++) {
+            visit(refArrayOrigin, index);
+        }
+    }
+
+    public boolean canClean(Pointer firstCell, Address start, Address end) {
+        foundEvacuatedAreaRef = false;
+        Pointer cell = firstCell;
+        do {
+            if (cell.equals(holeStart)) {
+                cell = holeEnd.asPointer();
+                continue;
+            }
+            final Pointer origin = Layout.cellToOrigin(cell);
+            final Reference hubRef = origin.getReference(Layout.hubIndex());
+            if (hubRef.isZero()) {
+                // Cell not formatted yet.
+                return false;
+            }
+            final Hub hub = UnsafeCast.asHub(hubRef.toJava());
+            final Pointer nextCell;
+            if (hub == heapFreeChunkHub()) {
+                nextCell = cell.plus(HeapFreeChunk.getFreechunkSize(cell));
+            } else {
+                final SpecificLayout specificLayout = hub.specificLayout;
+                if (specificLayout == Layout.tupleLayout()) {
+                    if (hub.isJLRReference) {
+                        return false;
+                    }
+                    hub.visitMappedReferences(origin, this);
+                    nextCell = cell.plus(hub.tupleSize);
+                } else {
+                    if (specificLayout == Layout.referenceArrayLayout()) {
+                        visitReferenceArray(origin, start, end);
+                    } else if (specificLayout == Layout.hybridLayout()) {
+                        hub.visitMappedReferences(origin, this);
+                    }
+                    nextCell = cell.plus(Layout.size(origin));
+                }
+            }
+            if (foundEvacuatedAreaRef || nextCell.lessEqual(cell)) {
+                return false;
+            }
+            cell = nextCell;
+        } while (cell.lessThan(end));
+        return true;
+    }
+}
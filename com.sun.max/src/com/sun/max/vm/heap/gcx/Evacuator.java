@@ -144,6 +144,12 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
     protected HeapRangeDumper dumper;
     protected DebugHeap.ReferenceFinder referenceFinder = new ReferenceFinder(false);
 
+    /**
+     * Cells of the evacuated area that must not move, or {@code null} if the heap scheme doesn't pin cells in that area.
+     * Pinned cells are scanned as roots and promoted in place.
+     */
+    protected PinnedCells pinnedCells;
+
     protected Evacuator() {
     }
 
@@ -155,6 +161,15 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
         this.timers = timers;
     }
 
+    public void setPinnedCells(PinnedCells pinnedCells) {
+        this.pinnedCells = pinnedCells;
+    }
+
+    @INLINE
+    protected final boolean isPinned(Pointer origin) {
+        return pinnedCells != null && pinnedCells.contains(origin);
+    }
+
     /**
      * Set the phase logger for this evacuator.
      * HeapScheme using multiple evacuator instances might have to share a single phase logger
@@ -203,6 +218,7 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
 
     /**
      * Evacuate a cell of the evacuated area if not already done, and return the reference to the evacuated cell new location.
+     * A pinned cell isn't evacuated: the reference to it is returned unchanged.
      *
      * @param origin origin of the cell in the evacuated area
      * @return a reference to the evacuated cell's new location
@@ -210,6 +226,9 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
     protected final Reference getForwardRef(Pointer origin) {
         Reference forwardRef = Layout.readForwardRef(origin);
         if (forwardRef.isZero()) {
+            if (isPinned(origin)) {
+                return Reference.fromOrigin(origin);
+            }
             final Pointer toOrigin = evacuate(origin);
             forwardRef = Reference.fromOrigin(toOrigin);
             Layout.writeForwardRef(origin, forwardRef);
@@ -241,6 +260,9 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
     protected final Reference getForwardRef(Pointer origin, Pointer at) {
         Reference forwardRef = Layout.readForwardRef(origin);
         if (forwardRef.isZero()) {
+            if (isPinned(origin)) {
+                return Reference.fromOrigin(origin);
+            }
             final Pointer toOrigin = evacuate(origin);
             forwardRef = Reference.fromOrigin(toOrigin);
             Layout.writeForwardRef(origin, forwardRef);
@@ -289,7 +311,7 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
     public boolean isReachable(Reference ref) {
         final Pointer origin = ref.toOrigin();
         if (inEvacuatedArea(origin)) {
-            return !Layout.readForwardRef(origin).isZero();
+            return !Layout.readForwardRef(origin).isZero() || isPinned(origin);
         }
         return true;
     }
@@ -309,10 +331,13 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
     }
 
     /**
-     * Evacuate all objects of the evacuated area directly reachable from roots (thread stacks, monitors, etc.).
+     * Evacuate all objects of the evacuated area directly reachable from roots (thread stacks, monitors, pinned cells, etc.).
      */
     void evacuateFromRoots() {
         heapRootsScanner.run();
+        if (pinnedCells != null) {
+            pinnedCells.visitCells(this);
+        }
     }
     /**
      * Evacuate all objects of the evacuated area directly reachable from the remembered sets of the evacuated area. By default, this does nothing
@@ -545,7 +570,7 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
             phaseLogger.logScanningCode(VMLogger.Interval.END);
         }
 
-        if (Heap.logGCPhases()) {
+        if (logPhases) {
             phaseLogger.logScanningImmortalHeap(VMLogger.Interval.BEGIN);
         }
         currentEvacuationOperation = IMMORTAL_SCAN;
@@ -553,7 +578,7 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
         evacuateFromImmortalHeap();
         timers.stop(IMMORTAL_SCAN);
         doAfterOperation(IMMORTAL_SCAN);
-        if (Heap.logGCPhases()) {
+        if (logPhases) {
             phaseLogger.logScanningImmortalHeap(VMLogger.Interval.END);
         }
 
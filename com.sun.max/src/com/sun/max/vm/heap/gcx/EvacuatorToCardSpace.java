@@ -149,6 +149,12 @@ public class EvacuatorToCardSpace extends Evacuator {
 
     private final EvacuationLogger logger;
 
+    /**
+     * Heap marker whose color map the evacuated cells are marked grey in, or null if evacuated cells aren't marked.
+     * Set while a {@link ConcurrentHeapMarker} marks the space cells are evacuated to.
+     */
+    private TricolorHeapMarker evacuatedCellMarker;
+
     private long [] opEvacuationMarks = new long[TIMED_OPERATION.values().length];
 
     @Override
@@ -187,6 +193,14 @@ public class EvacuatorToCardSpace extends Evacuator {
         this.retireAfterEvacuation = retireAfterEvacuation;
     }
 
+    /**
+     * Set the heap marker evacuated cells are marked grey with.
+     * @param heapMarker a heap marker, or null to stop marking evacuated cells
+     */
+    public void setEvacuatedCellMarker(TricolorHeapMarker heapMarker) {
+        evacuatedCellMarker = heapMarker;
+    }
+
     /**
      * Number of bytes evacuated in the last evacuation.
      * @return a number of bytes
@@ -367,6 +381,13 @@ public class EvacuatorToCardSpace extends Evacuator {
         lastOverflowAllocatedRangeEnd = cell.plus(size);
         return cell;
     }
+    /**
+     * Bounds of the evacuated area.
+     */
+    final EvacuatingSpace.SpaceBounds evacuatedAreaBounds() {
+        return evacuatedAreaBounds;
+    }
+
     @INLINE
     @Override
     final boolean inEvacuatedArea(Pointer origin) {
@@ -396,7 +417,7 @@ public class EvacuatorToCardSpace extends Evacuator {
     }
 
     @Override
-    final Pointer evacuate(Pointer fromOrigin) {
+    Pointer evacuate(Pointer fromOrigin) {
         if (MaxineVM.isDebug() && checkDarkMatterRefs) {
             DarkMatter.scanCellForDarkMatter(fromOrigin);
         }
@@ -404,6 +425,9 @@ public class EvacuatorToCardSpace extends Evacuator {
         final Size size = Layout.size(fromOrigin);
         final Pointer toCell = allocate(size);
         Memory.copyBytes(fromCell, toCell, size);
+        if (evacuatedCellMarker != null) {
+            evacuatedCellMarker.markGreyIfWhite(toCell);
+        }
         return toCell;
     }
 
@@ -413,7 +437,7 @@ public class EvacuatorToCardSpace extends Evacuator {
     }
 
     @Override
-    final protected void evacuateReachables() {
+    protected void evacuateReachables() {
         updateSurvivorRanges();
         while (!survivorRanges.isEmpty()) {
             final Pointer start = survivorRanges.start();
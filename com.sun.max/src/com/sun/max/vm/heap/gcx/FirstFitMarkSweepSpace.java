@@ -36,6 +36,7 @@ import com.sun.max.vm.heap.gcx.HeapRegionInfo.Flag;
 import com.sun.max.vm.heap.gcx.rset.*;
 import com.sun.max.vm.layout.*;
 import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.thread.*;
 /**
  * A region-based, mark-sweep heap space, with bump pointer allocation only.
  * Each partially occupied region has a list of addressed ordered free chunks, used to allocate TLAB refills.
@@ -47,8 +48,11 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
     private static final OutOfMemoryError outOfMemoryError = new OutOfMemoryError();
 
     public static boolean TraceLargeObjectAllocations = false;
+    public static boolean LazySweep = false;
     static {
         VMOptions.addFieldOption("-XX:", "TraceLargeObjectAllocations", FirstFitMarkSweepSpace.class, "Trace allocation of large multi-regions objects", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "LazySweep", FirstFitMarkSweepSpace.class,
+                        "Only sweep regions needed to satisfy the heap scheme's free space goal during GC, and sweep the others on demand", Phase.PRISTINE);
     }
 
     /**
@@ -84,6 +88,18 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
      */
     private HeapRegionList sweepList;
 
+    /**
+     * Heap marker whose color map the regions remaining in the {@link #sweepList} must be swept with, or null if all regions are swept.
+     * Regions are left unswept after a GC when {@link #LazySweep} is enabled. They are swept on demand, when allocators run
+     * out of regions, and at the latest before the next GC.
+     */
+    private TricolorHeapMarker lazySweepMarker;
+
+    /**
+     * Indicates whether unswept regions must be swept imprecisely.
+     */
+    private boolean lazySweepImprecise;
+
     /**
      * Total number of regions currently allocated to this heap space.
      */
@@ -294,7 +310,7 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
                 if (MaxineVM.isDebug()) {
                     checkForSuspisciousGC(gcCount++);
                 }
-            } while (Heap.collectGarbage()); // Always collect for at least one region.
+            } while (completeSweepOnDemand() || Heap.collectGarbage()); // Always collect for at least one region.
             // Not enough freed memory.
             throw outOfMemoryError;
         }
@@ -440,6 +456,31 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
         return regionInfo.owner() == heapAccount.owner && regionInfo.tag == regionTag;
     }
 
+    /**
+     * Visit the cells of a region of this space on behalf of a thread running concurrently with mutators.
+     * The region is visited with the refill lock held and safepoints disabled, so that neither allocators nor the sweeper nor a GC
+     * change it during the visit. The visit must therefore be short, and must neither allocate nor block.
+     *
+     * @param regionID identifier of a heap region
+     * @param visitor the visitor to apply to the region
+     * @return true if the region was visited, false if it doesn't belong to this space, isn't iterable, or may hold unswept cells
+     */
+    public boolean visitRegionLocked(int regionID, CellRangeVisitor visitor) {
+        synchronized (refillLock()) {
+            final HeapRegionInfo regionInfo = fromRegionID(regionID);
+            if (regionInfo.owner() != heapAccount.owner || regionInfo.tag != regionTag || !regionInfo.isIterable() || lazySweepMarker != null) {
+                return false;
+            }
+            final boolean wasDisabled = SafepointPoll.disable();
+            final Address start = regionInfo.regionStart();
+            visitor.visitCells(start, start.plus(regionSizeInBytes));
+            if (!wasDisabled) {
+                SafepointPoll.enable();
+            }
+            return true;
+        }
+    }
+
     public boolean canSatisfyAllocation(Size size) {
         // FIXME: this is used to avoid redundant GC operation when a race occurred
         // to trigger a GC. This is called with heap lock protection.
@@ -465,6 +506,8 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
     }
 
     public void doBeforeGC() {
+        // Unswept regions must be swept before the heap marker's color map is reused.
+        completeSweep();
         overflowAllocator.doBeforeGC();
         tlabAllocator.doBeforeGC();
         FatalError.check(tlabAllocator.refillManager.allocatingRegion() == INVALID_REGION_ID, "TLAB allocating region must have been retired");
@@ -486,13 +529,100 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
 
 
     public void sweep(TricolorHeapMarker heapMarker, boolean doImprecise) {
+        sweep(heapMarker, doImprecise, Size.fromLong(Long.MAX_VALUE));
+    }
+
+    /**
+     * Sweep the space after marking.
+     * If {@link #LazySweep} is enabled, sweeping stops as soon as the specified amount of free space is available.
+     * The remaining regions are swept on demand.
+     *
+     * @param heapMarker the heap marker that marked the space
+     * @param doImprecise if true, sweep imprecisely
+     * @param minFreeSpace amount of free space that must be available on return, unless all regions were swept
+     */
+    public void sweep(TricolorHeapMarker heapMarker, boolean doImprecise, Size minFreeSpace) {
         if (MaxineVM.isDebug()) {
             sweepList.checkIsAddressOrdered();
         }
         allocationRegionsFreeSpace = Size.zero();
         csrIsLiveMultiRegionObjectTail = false;
-        heapMarker.sweep(this, doImprecise);
-        FatalError.check(sweepList.isEmpty(), "Sweeping list must be empty");
+        if (!LazySweep) {
+            heapMarker.sweep(this, doImprecise);
+            FatalError.check(sweepList.isEmpty(), "Sweeping list must be empty");
+            return;
+        }
+        lazySweepMarker = heapMarker;
+        lazySweepImprecise = doImprecise;
+        sweepUntil(minFreeSpace);
+    }
+
+    /**
+     * Indicates whether regions were left unswept by the last GC.
+     */
+    public boolean hasUnsweptRegions() {
+        return lazySweepMarker != null;
+    }
+
+    private void sweepNextRegion() {
+        if (!lazySweepMarker.sweepNextRegion(this, lazySweepImprecise)) {
+            FatalError.check(sweepList.isEmpty(), "Sweeping list must be empty");
+            lazySweepMarker = null;
+        }
+    }
+
+    /**
+     * Sweep unswept regions until the specified amount of free space is available or all regions are swept.
+     * Must only be called during GC.
+     *
+     * @param minFreeSpace amount of free space to reach
+     */
+    public void sweepUntil(Size minFreeSpace) {
+        while (lazySweepMarker != null && freeSpace().lessThan(minFreeSpace)) {
+            sweepNextRegion();
+        }
+    }
+
+    /**
+     * Sweep all unswept regions. Must only be called during GC, before the color map of the heap marker is modified.
+     */
+    public void completeSweep() {
+        while (lazySweepMarker != null) {
+            sweepNextRegion();
+        }
+    }
+
+    /**
+     * Sweep the next unswept region on behalf of an allocator that ran out of regions. Must be called with the refill lock held.
+     *
+     * @return true if there was a region to sweep, false otherwise
+     */
+    private boolean sweepOnDemand() {
+        if (lazySweepMarker == null) {
+            return false;
+        }
+        if (VmThread.current().isVmOperationThread()) {
+            // Refill during a GC operation (e.g., evacuation to this space).
+            sweepNextRegion();
+        } else {
+            // A GC must not find a region halfway swept.
+            synchronized (Heap.HEAP_LOCK) {
+                if (lazySweepMarker != null) {
+                    sweepNextRegion();
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean completeSweepOnDemand() {
+        if (lazySweepMarker == null) {
+            return false;
+        }
+        while (sweepOnDemand()) {
+            // Sweep all remaining regions.
+        }
+        return true;
     }
 
     private HeapRegionInfo nextRegionToSweep() {
@@ -663,14 +793,42 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
         if (numRegions == 0) {
             numRegions = 1;
         }
+        if (numRegions > maxRegionsInSpace - numRegionsInSpace) {
+            numRegions = maxRegionsInSpace - numRegionsInSpace;
+        }
         int allocated = heapAccount.allocate(numRegions, allocationRegions, false, true, true, regionTag);
-        return Size.fromInt(allocated).shiftedLeft(log2RegionSizeInBytes);
+        numRegionsInSpace += allocated;
+        final Size growth = Size.fromInt(allocated).shiftedLeft(log2RegionSizeInBytes);
+        allocationRegionsFreeSpace = allocationRegionsFreeSpace.plus(growth);
+        return growth;
     }
 
+    /**
+     * Shrink the space by releasing empty regions to the heap account, which uncommits their memory.
+     * Only regions already swept are considered. Must be called during GC.
+     *
+     * @param delta number of bytes to shrink the space with. Rounded down to a number of regions.
+     * @return the number of bytes the space actually shrunk by
+     */
     @Override
     public Size decreaseSize(Size delta) {
-        // TODO
-        return Size.zero();
+        final int numRegions = delta.unsignedShiftedRight(log2RegionSizeInBytes).toInt();
+        int numReleased = 0;
+        regionInfoIterable.initialize(allocationRegions);
+        regionInfoIterable.reset();
+        for (HeapRegionInfo regionInfo : regionInfoIterable) {
+            if (numReleased >= numRegions) {
+                break;
+            }
+            if (regionInfo.isEmpty()) {
+                regionInfoIterable.remove();
+                allocationRegionsFreeSpace = allocationRegionsFreeSpace.minus(regionSizeInBytes);
+                heapAccount.free(regionInfo.toRegionID());
+                numRegionsInSpace--;
+                numReleased++;
+            }
+        }
+        return Size.fromInt(numReleased).shiftedLeft(log2RegionSizeInBytes);
     }
 
     private void iterateRegions(CellRangeVisitor visitor) {
@@ -710,6 +868,7 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
         balance += tlabAllocationRegions.size();
         balance += allocationRegions.size();
         balance += unavailableRegions.size();
+        balance += sweepList.size();
         FatalError.check(balance == numRegionsInSpace, "incorrect balance of regions in space");
     }
 
@@ -734,7 +893,10 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
     }
 
     public int getAllocatingRegion() {
-        final int regionID = tlabAllocationRegionList().removeHead();
+        int regionID = tlabAllocationRegionList().removeHead();
+        while (regionID == INVALID_REGION_ID && sweepOnDemand()) {
+            regionID = tlabAllocationRegionList().removeHead();
+        }
         if (regionID != INVALID_REGION_ID) {
             final HeapRegionInfo regionInfo = fromRegionID(regionID);
             final int numFreeBytes = regionInfo.isEmpty() ?  regionSizeInBytes : regionInfo.freeBytesInChunks();
@@ -745,23 +907,114 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
 
     public int getAllocatingRegion(Size minFreeBytes, int maxFreeChunks) {
         final int minFreeSpace = minFreeBytes.toInt();
+        do {
+            regionInfoIterable.initialize(allocationRegions);
+            regionInfoIterable.reset();
+            for (HeapRegionInfo regionInfo : regionInfoIterable) {
+                if (regionInfo.isEmpty()) {
+                    allocationRegionsFreeSpace = allocationRegionsFreeSpace.minus(regionSizeInBytes);
+                } else if (regionInfo.freeBytesInChunks() >= minFreeSpace && regionInfo.numFreeChunks() == maxFreeChunks) {
+                    allocationRegionsFreeSpace = allocationRegionsFreeSpace.minus(regionInfo.freeBytesInChunks());
+                } else {
+                    continue;
+                }
+                // Found a refill.
+                regionInfoIterable.remove();
+                return  regionInfo.toRegionID();
+            }
+        } while (sweepOnDemand());
+        return INVALID_REGION_ID;
+    }
+
+
+    /**
+     * Number of empty regions this space can use as evacuation targets without exceeding its capacity.
+     * Must be called during GC, after sweeping completed.
+     */
+    private int numAvailableEmptyRegions() {
+        int numEmptyRegions = 0;
         regionInfoIterable.initialize(allocationRegions);
         regionInfoIterable.reset();
         for (HeapRegionInfo regionInfo : regionInfoIterable) {
             if (regionInfo.isEmpty()) {
-                allocationRegionsFreeSpace = allocationRegionsFreeSpace.minus(regionSizeInBytes);
-            } else if (regionInfo.freeBytesInChunks() >= minFreeSpace && regionInfo.numFreeChunks() == maxFreeChunks) {
-                allocationRegionsFreeSpace = allocationRegionsFreeSpace.minus(regionInfo.freeBytesInChunks());
-            } else {
-                continue;
+                numEmptyRegions++;
             }
-            // Found a refill.
-            regionInfoIterable.remove();
-            return  regionInfo.toRegionID();
         }
-        return INVALID_REGION_ID;
+        return numEmptyRegions + Math.min(maxRegionsInSpace - numRegionsInSpace, heapAccount.reserve() - heapAccount.used());
+    }
+
+    /**
+     * Select regions of this space for evacuation, favoring the sparsest ones. Must be called during GC, after marking.
+     * Selected regions are removed from the allocation lists and appended to the specified collection set.
+     * The amount of live bytes selected is bounded by the specified budget and by the number of empty regions
+     * available to evacuate them to.
+     *
+     * @param stats region statistics used to compute the live space histogram of the space
+     * @param collectionSet the list the selected regions are appended to
+     * @param maxLiveBytes maximum amount of live bytes of a selected region
+     * @param liveBytesBudget maximum amount of live bytes of all the selected regions
+     * @return the number of regions selected
+     */
+    public int selectEvacuatedRegions(HeapRegionStatistics stats, HeapRegionList collectionSet, int maxLiveBytes, long liveBytesBudget) {
+        completeSweep();
+        // Each target region may waste up to maxLiveBytes at its end, and one target region is left partially filled.
+        final int numTargetRegions = numAvailableEmptyRegions();
+        if (numTargetRegions <= 1) {
+            return 0;
+        }
+        final long maxEvacuatedBytes = (long) (numTargetRegions - 1) * (regionSizeInBytes - maxLiveBytes);
+        stats.clearLiveStats();
+        stats.doLiveStats(allocationRegions);
+        stats.doLiveStats(tlabAllocationRegions);
+        final int threshold = stats.evacuationLiveBytesThreshold(maxLiveBytes, Math.min(liveBytesBudget, maxEvacuatedBytes));
+        if (threshold == 0) {
+            return 0;
+        }
+        return selectEvacuatedRegions(allocationRegions, collectionSet, threshold) + selectEvacuatedRegions(tlabAllocationRegions, collectionSet, threshold);
+    }
+
+    private int selectEvacuatedRegions(HeapRegionList regionList, HeapRegionList collectionSet, int threshold) {
+        int numSelected = 0;
+        regionInfoIterable.initialize(regionList);
+        regionInfoIterable.reset();
+        for (HeapRegionInfo regionInfo : regionInfoIterable) {
+            if (HeapRegionStatistics.isEvacuationCandidate(regionInfo) && HeapRegionStatistics.liveBytes(regionInfo) <= threshold) {
+                regionInfoIterable.remove();
+                allocationRegionsFreeSpace = allocationRegionsFreeSpace.minus(regionInfo.freeBytes());
+                collectionSet.append(regionInfo.toRegionID());
+                numSelected++;
+            }
+        }
+        return numSelected;
+    }
+
+    /**
+     * Return an evacuated region of this space to the heap account. The region must not hold any live objects.
+     *
+     * @param regionID identifier of a region selected by {@link #selectEvacuatedRegions(HeapRegionStatistics, HeapRegionList, int, long)}
+     */
+    public void releaseEvacuatedRegion(int regionID) {
+        final HeapRegionInfo regionInfo = fromRegionID(regionID);
+        EMPTY_REGION.setState(regionInfo);
+        regionInfo.resetOccupancy();
+        heapAccount.free(regionID);
+        numRegionsInSpace--;
     }
 
+    /**
+     * Get an empty region to evacuate objects to, growing the space if it has no empty regions left.
+     * The caller must hand the region back with {@link #retireAllocatingRegion(int)}.
+     *
+     * @return the identifier of an empty region, or {@link HeapRegionConstants#INVALID_REGION_ID} if none is available
+     */
+    public int getEmptyRegion() {
+        final Size regionSize = Size.fromInt(regionSizeInBytes);
+        int regionID = getAllocatingRegion(regionSize, 1);
+        if (regionID == INVALID_REGION_ID && !increaseSize(regionSize).isZero()) {
+            regionID = getAllocatingRegion(regionSize, 1);
+        }
+        return regionID;
+    }
 
     public Size minRetiredFreeChunkSize() {
         return minReclaimableSpace;
@@ -428,6 +428,7 @@ class FixedSizeRegionAllocator {
             final Size size = Size.fromInt(numRegions).shiftedLeft(log2RegionSizeInBytes);
             if (VirtualMemory.uncommitMemory(regionStart(firstRegionId), size, VirtualMemory.Type.HEAP)) {
                 committed.clear(firstRegionId, firstRegionId + numRegions);
+                committedSize -= numRegions;
                 return true;
             }
         }
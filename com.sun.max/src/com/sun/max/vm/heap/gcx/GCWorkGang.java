@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.monitor.modal.sync.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * A gang of GC worker threads that execute a {@link GCTask} together with the {@link VmOperationThread} during a
+ * stop-the-world garbage collection.
+ * <p>
+ * Components of a heap scheme that want to run in parallel {@linkplain #request() request} the gang while the VM is
+ * initializing. The gang's threads are started when the VM reaches the {@link Phase#RUNNING} phase. Until then, and
+ * whenever the gang isn't requested, tasks are run by the VM operation thread alone with worker identifier 0.
+ * <p>
+ * GC worker threads are never frozen by {@link GCOperation}s and their stacks aren't scanned for roots (see
+ * {@link VmThread#isGCWorkerThread()}). To keep this safe with relocating collectors, the threads and their
+ * {@link VmThread} are allocated in the immortal heap, and a worker never holds references to movable objects
+ * between tasks. Tasks must not allocate.
+ */
+public final class GCWorkGang {
+
+    /**
+     * Upper bound on the number of participants (including the VM operation thread) to a parallel GC task.
+     */
+    public static final int MAX_WORKERS = 64;
+
+    static int ParallelGCThreads = 0;
+    static boolean TraceGCWorkGang = false;
+    static {
+        VMOptions.addFieldOption("-XX:", "ParallelGCThreads", GCWorkGang.class,
+                        "Number of threads, including the VM operation thread, that run parallel GC phases (0 = number of processors)", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "TraceGCWorkGang", GCWorkGang.class, "Trace GC work gang activity", Phase.PRISTINE);
+    }
+
+    /**
+     * A unit of GC work run by every participant of the gang.
+     */
+    public abstract static class GCTask {
+        /**
+         * Run the task on behalf of a participant of the gang.
+         *
+         * @param workerId identifier of the participant, in [0, numWorkers[. The VM operation thread is always participant 0.
+         * @param numWorkers number of participants running the task
+         */
+        public abstract void run(int workerId, int numWorkers);
+    }
+
+    private static final GCWorkGang theGang = new GCWorkGang();
+
+    public static GCWorkGang theGang() {
+        return theGang;
+    }
+
+    /**
+     * Lock used by idle workers to wait for the next task.
+     */
+    private static final Object LOCK = JavaMonitorManager.newVmLock("GC_WORK_GANG_LOCK");
+
+    private boolean requested;
+
+    /**
+     * Number of participants the gang will have once all worker threads are started.
+     */
+    private int numWorkers = 1;
+
+    /**
+     * Number of participants whose threads have been started (including the VM operation thread).
+     */
+    private int numStartedWorkers = 1;
+
+    private GCWorkerThread[] workerThreads;
+
+    private GCTask currentTask;
+
+    /**
+     * Counts the tasks handed to the gang. Used by the workers to detect new tasks.
+     */
+    private int taskSequenceNumber;
+
+    /**
+     * Number of workers yet to complete the current task.
+     */
+    private volatile int pendingWorkers;
+
+    @FOLD
+    private static int pendingWorkersOffset() {
+        return ClassActor.fromJava(GCWorkGang.class).findLocalInstanceFieldActor("pendingWorkers").offset();
+    }
+
+    @HOSTED_ONLY
+    private GCWorkGang() {
+    }
+
+    /**
+     * Request the gang. Must be called before the VM reaches the {@link Phase#RUNNING} phase.
+     * @return the number of participants that will run the gang's tasks once the gang is started.
+     */
+    public int request() {
+        if (!requested) {
+            requested = true;
+            int n = ParallelGCThreads;
+            if (n <= 0) {
+                n = Runtime.getRuntime().availableProcessors();
+            }
+            numWorkers = n > MAX_WORKERS ? MAX_WORKERS : n;
+        }
+        return numWorkers;
+    }
+
+    /**
+     * Maximum number of participants to a task of this gang.
+     */
+    public int maxWorkers() {
+        return numWorkers;
+    }
+
+    /**
+     * Number of participants to the next task.
+     */
+    public int activeWorkers() {
+        return numStartedWorkers;
+    }
+
+    /**
+     * Start the worker threads of the gang if it was requested.
+     * The threads and their VM thread objects are allocated in the immortal heap.
+     */
+    public void start() {
+        if (!requested || workerThreads != null) {
+            return;
+        }
+        Heap.enableImmortalMemoryAllocation();
+        try {
+            workerThreads = new GCWorkerThread[numWorkers];
+            for (int i = 1; i < numWorkers; i++) {
+                GCWorkerThread worker = new GCWorkerThread(i);
+                workerThreads[i] = worker;
+                // Calling VmThread.start0 instead of Thread.start lets the thread be marked
+                // as a GC worker before it can run (and be seen by a GC operation).
+                final VmThread vmThread = VmThreadFactory.create(worker);
+                vmThread.setAsGCWorkerThread();
+                vmThread.start0();
+            }
+        } finally {
+            Heap.disableImmortalMemoryAllocation();
+        }
+        numStartedWorkers = numWorkers;
+        if (TraceGCWorkGang) {
+            Log.print("GC work gang started with ");
+            Log.print(numWorkers);
+            Log.println(" workers");
+        }
+    }
+
+    /**
+     * Run a task with all the participants of the gang. Must be called by the VM operation thread.
+     * Returns when all participants have completed the task.
+     *
+     * @param task the task to run
+     */
+    public void run(GCTask task) {
+        final int n = numStartedWorkers;
+        if (n == 1) {
+            task.run(0, 1);
+            return;
+        }
+        FatalError.check(VmThread.current().isVmOperationThread(), "GC tasks must be submitted by the VM operation thread");
+        pendingWorkers = n - 1;
+        synchronized (LOCK) {
+            currentTask = task;
+            taskSequenceNumber++;
+            LOCK.notifyAll();
+        }
+        task.run(0, n);
+        while (pendingWorkers != 0) {
+            Thread.yield();
+        }
+        currentTask = null;
+    }
+
+    private GCTask awaitTask(GCWorkerThread worker) {
+        synchronized (LOCK) {
+            while (taskSequenceNumber == worker.lastTaskSequenceNumber) {
+                try {
+                    LOCK.wait();
+                } catch (InterruptedException e) {
+                }
+            }
+            worker.lastTaskSequenceNumber = taskSequenceNumber;
+            return currentTask;
+        }
+    }
+
+    private void taskDone() {
+        final Reference thisRef = Reference.fromJava(this);
+        int oldValue;
+        do {
+            oldValue = pendingWorkers;
+        } while (thisRef.compareAndSwapInt(pendingWorkersOffset(), oldValue, oldValue - 1) != oldValue);
+    }
+
+    /**
+     * A daemon thread that runs the tasks handed to the gang.
+     */
+    static final class GCWorkerThread extends Thread {
+        final int workerId;
+
+        /**
+         * Sequence number of the last task this worker ran.
+         */
+        int lastTaskSequenceNumber;
+
+        GCWorkerThread(int workerId) {
+            super(VmThread.systemThreadGroup, "GCWorker-" + workerId);
+            this.workerId = workerId;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            final GCWorkGang gang = theGang;
+            while (true) {
+                final GCTask task = gang.awaitTask(this);
+                Heap.disableAllocationForCurrentThread();
+                task.run(workerId, gang.numStartedWorkers);
+                Heap.enableAllocationForCurrentThread();
+                gang.taskDone();
+            }
+        }
+    }
+}
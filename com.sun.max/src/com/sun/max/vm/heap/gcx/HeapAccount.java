@@ -299,6 +299,23 @@ public class HeapAccount<T extends HeapAccountOwner>{
         add(regionID, uncommitted);
     }
 
+    /**
+     * Give back a committed region to the heap region manager. The region's memory is uncommitted.
+     * The region must hold no live objects. It remains in the account's reserve and may be allocated again later.
+     * This throws a FatalError if the region isn't allocated and committed to this account.
+     *
+     * @param regionID the region from this account to free
+     */
+    public synchronized void free(int regionID) {
+        FatalError.check(committed.contains(regionID), "The region must be allocated and committed to this account");
+        theHeapRegionManager.regionAllocator().uncommit(regionID, 1);
+        committed.remove(regionID);
+        theHeapRegionManager.free(regionID, 1);
+        final HeapRegionInfo rinfo = RegionTable.theRegionTable().regionInfo(regionID);
+        rinfo.setOwner(null);
+        rinfo.setTag(0);
+    }
+
     /**
      * Commit the memory of the specified contiguous range of regions in virtual space.
      *
@@ -25,12 +25,17 @@ package com.sun.max.vm.heap.gcx;
 import static com.sun.max.vm.heap.gcx.HeapRegionConstants.*;
 
 import com.sun.max.annotate.*;
+import com.sun.max.lang.*;
 import com.sun.max.memory.*;
+import com.sun.max.platform.*;
 import com.sun.max.unsafe.*;
+import com.sun.max.util.*;
 import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
 import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.heap.*;
 import com.sun.max.vm.heap.gcx.rset.*;
+import com.sun.max.vm.intrinsics.*;
 import com.sun.max.vm.layout.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.runtime.*;
@@ -45,6 +50,14 @@ import com.sun.max.vm.type.*;
  * regions.
  */
 public final class HeapRegionManager implements HeapAccountOwner {
+    /**
+     * Place heap spaces on NUMA nodes. Only supported on Linux/AMD64, when the NUMA library is available.
+     */
+    static boolean UseNUMA = false;
+    static {
+        VMOptions.addFieldOption("-XX:", "UseNUMA", HeapRegionManager.class, "Bind heap regions to NUMA nodes and allocate TLABs from regions local to the allocating thread", Phase.PRISTINE);
+    }
+
     /**
      * The single instance of the heap region manager.
      */
@@ -102,6 +115,11 @@ public final class HeapRegionManager implements HeapAccountOwner {
      */
     private int unreserved;
 
+    /**
+     * Number of NUMA nodes heap regions are bound to. One if {@link #UseNUMA} is disabled or not supported.
+     */
+    private int numNUMANodes = 1;
+
     /**
      *
      */
@@ -139,6 +157,45 @@ public final class HeapRegionManager implements HeapAccountOwner {
         return regionAllocator.contains(address);
     }
 
+    /**
+     * Number of NUMA nodes heap spaces may bind their regions to.
+     */
+    public int numNUMANodes() {
+        return numNUMANodes;
+    }
+
+    /**
+     * NUMA node of the CPU the current thread runs on.
+     */
+    @INLINE
+    public static int currentNUMANode() {
+        return Intrinsics.getCpuID() >> MaxineIntrinsicIDs.NUMA_NODE_SHIFT;
+    }
+
+    /**
+     * Bind contiguous regions to a NUMA node. Pages of the regions are allocated on that node when they are first touched.
+     * Pages already touched stay where they are.
+     *
+     * @param firstRegionId identifier of the first region
+     * @param numRegions number of regions
+     * @param node a NUMA node, in [0, {@link #numNUMANodes()}[
+     */
+    void bindToNUMANode(int firstRegionId, int numRegions, int node) {
+        FatalError.check(node < numNUMANodes, "Invalid NUMA node");
+        final Address start = RegionTable.theRegionTable().regionAddress(firstRegionId);
+        NUMALib.numaBindMemory(start.toLong(), Size.fromInt(numRegions).shiftedLeft(log2RegionSizeInBytes).toLong(), node);
+    }
+
+    private void initializeNUMA() {
+        if (UseNUMA) {
+            if (Platform.platform().os == OS.LINUX && Platform.platform().isa == ISA.AMD64 && NUMALib.numalib_available() != -1) {
+                numNUMANodes = NUMALib.numaMaxNode() + 1;
+            } else {
+                Log.println("NUMA not supported on this platform; -XX:+UseNUMA ignored");
+            }
+        }
+    }
+
     public MemoryRegion bounds() {
         return regionAllocator.bounds();
     }
@@ -246,6 +303,7 @@ public final class HeapRegionManager implements HeapAccountOwner {
         }
 
         unreserved = numTotalRegions;
+        initializeNUMA();
         final HeapScheme heapScheme = VMConfiguration.vmConfig().heapScheme();
         if (heapScheme instanceof RSetCoverage) {
             ((RSetCoverage) heapScheme).initializeCoverage(startOfManagedSpace, managedSpaceSize);
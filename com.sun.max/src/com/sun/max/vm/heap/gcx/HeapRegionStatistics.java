@@ -54,6 +54,17 @@ public final class HeapRegionStatistics {
      */
     final int [] regionsFragmentation;
 
+    /**
+     * Histogram of live space within regions that may be evacuated.
+     * Entry at index i records the number of regions with an amount of live bytes comprised between 2^i and 2^(i+1) -1.
+     */
+    final int [] liveSpaceSizes;
+
+    /**
+     * Total amount of live bytes of the regions counted in each entry of {@link #liveSpaceSizes}.
+     */
+    final long [] liveSpaceBytes;
+
     /**
      * Private region info iterator.
      */
@@ -78,6 +89,78 @@ public final class HeapRegionStatistics {
         fragmentSizes = new int[log2LargestChunkSize + 1];
         freeSpaceSizes = new int[log2LargestChunkSize + 1];
         regionsFragmentation = new int[maxFragmentation + 1];
+        liveSpaceSizes = new int[log2LargestChunkSize + 1];
+        liveSpaceBytes = new long[log2LargestChunkSize + 1];
+    }
+
+    /**
+     * Amount of live bytes in a swept region. This is an upper bound, as dead space too small to be reclaimed is counted as live.
+     *
+     * @param rinfo a heap region info
+     * @return a number of bytes
+     */
+    public static int liveBytes(HeapRegionInfo rinfo) {
+        return HeapRegionConstants.regionSizeInBytes - rinfo.freeBytes();
+    }
+
+    /**
+     * Indicates whether a swept region is a candidate for evacuation, i.e., it holds both live objects and free space, and no part of a large object.
+     */
+    public static boolean isEvacuationCandidate(HeapRegionInfo rinfo) {
+        return HeapRegionState.FREE_CHUNKS_REGION.isInState(rinfo);
+    }
+
+    public void clearLiveStats() {
+        for (int i = 0; i < liveSpaceSizes.length; i++) {
+            liveSpaceSizes[i] = 0;
+            liveSpaceBytes[i] = 0L;
+        }
+    }
+
+    /**
+     * Add the live space of the evacuation candidates of a region list to the live space histogram.
+     * @param regionList a list of swept regions
+     */
+    public void doLiveStats(HeapRegionList regionList) {
+        regionInfoIterable.initialize(regionList);
+        regionInfoIterable.reset();
+        while (regionInfoIterable.hasNext()) {
+            final HeapRegionInfo rinfo = regionInfoIterable.next();
+            if (isEvacuationCandidate(rinfo)) {
+                final int liveBytes = liveBytes(rinfo);
+                final int bin = sizeBin(liveBytes);
+                liveSpaceSizes[bin]++;
+                liveSpaceBytes[bin] += liveBytes;
+            }
+        }
+    }
+
+    /**
+     * Computes from the live space histogram the largest amount of live bytes a region may have to be evacuated, such that
+     * evacuating all the candidates with at most that many live bytes copies no more than the specified budget.
+     * The sparsest regions are favored.
+     *
+     * @param maxLiveBytes upper bound on the amount of live bytes of an evacuated region
+     * @param liveBytesBudget maximum amount of bytes to copy
+     * @return a number of live bytes, or zero if no region can be evacuated within the budget
+     */
+    public int evacuationLiveBytesThreshold(int maxLiveBytes, long liveBytesBudget) {
+        long total = 0L;
+        int threshold = 0;
+        for (int i = 0; i < liveSpaceSizes.length; i++) {
+            final int binLimit = (int) Math.min((2L << i) - 1, maxLiveBytes);
+            if (liveSpaceSizes[i] > 0) {
+                total += liveSpaceBytes[i];
+                if (total > liveBytesBudget) {
+                    break;
+                }
+                threshold = binLimit;
+            }
+            if (binLimit == maxLiveBytes) {
+                break;
+            }
+        }
+        return threshold;
     }
 
     public void clear() {
@@ -36,6 +36,13 @@ public class HeapResizingPolicy {
      */
     final int maxFreeSpaceRatioForShrinking = 70;
 
+    /**
+     * Amount of free space below which the heap space is expanded after GC.
+     */
+    public Size minFreeSpaceAfterGC(ResizableSpace heapSpace) {
+        return Size.fromLong((heapSpace.totalSpace().toLong() * minFreeSpaceRatioForExpansion) / 100);
+    }
+
     /**
      * Resize the heap according to policy.
      *
@@ -101,6 +101,9 @@ public abstract class HeapSchemeWithTLABAdaptor extends HeapSchemeWithTLAB {
             heapStartupTime.start();
             allocateHeapAndGCStorage();
             heapStartupTime.stop();
+        } else if (phase == MaxineVM.Phase.RUNNING) {
+            // Start the GC worker threads if some component of the heap scheme requested them.
+            GCWorkGang.theGang().start();
         } else if (phase == MaxineVM.Phase.TERMINATING) {
             if (Heap.logGCTime()) {
                 heapStartupTime.report("allocateHeapAndGCStorage", Log.out);
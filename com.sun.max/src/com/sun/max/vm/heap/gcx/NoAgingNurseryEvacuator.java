@@ -28,14 +28,22 @@ import com.sun.max.vm.*;
 import com.sun.max.vm.MaxineVM.Phase;
 import com.sun.max.vm.heap.*;
 import com.sun.max.vm.heap.gcx.rset.ctbl.*;
+import com.sun.max.vm.reference.*;
 import com.sun.max.vm.runtime.*;
 
 
 public class NoAgingNurseryEvacuator extends EvacuatorToCardSpace {
     public static boolean TraceDirtyCardWalk = false;
     private static boolean traceDirtyCardWalk = false;
+    /**
+     * Clean in parallel the dirty cards that hold no references to the evacuated area before walking the dirty cards.
+     * @see ParallelCardRefinement
+     */
+    static boolean UseParallelCardScanning = false;
     static {
         VMOptions.addFieldOption("-XX:", "TraceDirtyCardWalk", NoAgingNurseryEvacuator.class, "Trace Dirty Card Walk", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "UseParallelCardScanning", NoAgingNurseryEvacuator.class,
+                        "Scan the dirty cards of the old generation in parallel with GC worker threads", Phase.PRISTINE);
     }
 
     @INLINE
@@ -112,11 +120,21 @@ public class NoAgingNurseryEvacuator extends EvacuatorToCardSpace {
 
     private final DirtyCardEvacuationClosure heapSpaceDirtyCardClosure;
     private final BootRegionDirtyCardEvacuationClosure bootRegionDirtyCardClosure;
+    private final ParallelCardRefinement parallelCardRefinement;
 
     public NoAgingNurseryEvacuator(EvacuatingSpace fromSpace, HeapSpace toSpace, EvacuationBufferProvider evacuationBufferProvider, CardTableRSet rset, String name) {
         super(fromSpace, toSpace, evacuationBufferProvider, rset, name);
         this.heapSpaceDirtyCardClosure = new DirtyCardEvacuationClosure();
         this.bootRegionDirtyCardClosure = new BootRegionDirtyCardEvacuationClosure();
+        this.parallelCardRefinement = new ParallelCardRefinement(rset);
+    }
+
+    @Override
+    public void initialize(int maxSurvivorRanges, boolean alwaysRefill, Size minRefillThreshold, boolean retireAfterEvacuation) {
+        super.initialize(maxSurvivorRanges, alwaysRefill, minRefillThreshold, retireAfterEvacuation);
+        if (UseParallelCardScanning) {
+            parallelCardRefinement.initialize();
+        }
     }
 
     @Override
@@ -126,6 +144,16 @@ public class NoAgingNurseryEvacuator extends EvacuatorToCardSpace {
             traceDirtyCardWalk = TraceDirtyCardWalk && TraceFromGCInvocation <= gcOperation.invocationCount();
         }
     }
+    /**
+     * A pinned cell stays in the nursery, so the card of a reference to it must remain dirty until the cell is evacuated.
+     */
+    @Override
+    void updateRSet(Pointer refHolderOrigin, int wordIndex, Reference ref) {
+        if (inEvacuatedArea(ref.toOrigin()) && !inEvacuatedArea(refHolderOrigin) && rset.isCovered(refHolderOrigin)) {
+            rset.record(Reference.fromOrigin(refHolderOrigin), Offset.fromInt(wordIndex << Word.widthValue().log2numberOfBytes));
+        }
+    }
+
     @Override
     protected void evacuateFromBootHeap() {
         // NOTE: if immortal region happens to grow very large, it may be sensible to also scan it using the
@@ -143,6 +171,15 @@ public class NoAgingNurseryEvacuator extends EvacuatorToCardSpace {
         if (traceDirtyCardWalk()) {
             CardTableRSet.setTraceCardTableRSet(true);
         }
+        if (UseParallelCardScanning) {
+            // Leave dirty only the cards the serial walk below must visit. The allocating area of the evacuator isn't parsable.
+            final int numCleanedCards = parallelCardRefinement.refine(toSpace, evacuatedAreaBounds(), ptop, pend);
+            if (traceDirtyCardWalk()) {
+                Log.print("Parallel card scanning cleaned ");
+                Log.print(numCleanedCards);
+                Log.println(" cards");
+            }
+        }
         toSpace.visit(heapSpaceDirtyCardClosure);
         if (traceDirtyCardWalk()) {
             CardTableRSet.setTraceCardTableRSet(traceRSet);
@@ -22,7 +22,10 @@
  */
 package com.sun.max.vm.heap.gcx;
 
+import static com.sun.max.vm.heap.gcx.HeapRegionManager.*;
+
 import com.sun.max.annotate.*;
+import com.sun.max.memory.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.heap.*;
@@ -32,6 +35,10 @@ import com.sun.max.vm.runtime.*;
 /**
  * A simple nursery implementation that allocates objects in a single contiguous space and evacuate all survivors to the next generation on minor collections.
  * The next generation is responsible for keeping a reserve large enough to accommodate the worst-case evacuation.
+ * <p>
+ * When the heap region manager {@linkplain HeapRegionManager#numNUMANodes() uses several NUMA nodes}, the nursery is split in
+ * one contiguous partition per node, each bound to its node and allocated with its own bump pointer allocator. Threads allocate
+ * from the partition of the node they run on, and fall back to the partitions of the other nodes when it is full.
  */
 public final class NoAgingRegionalizedNursery implements HeapSpace {
 
@@ -79,6 +86,17 @@ public final class NoAgingRegionalizedNursery implements HeapSpace {
     @INSPECTED
     private final AtomicBumpPointerAllocator<NurseryRefiller> allocator = new AtomicBumpPointerAllocator<NurseryRefiller>(new NurseryRefiller());
 
+    /**
+     * Allocators over the per NUMA node partitions of the nursery, or null if the nursery isn't split. When the nursery is split, the
+     * {@link #allocator} is only used to keep track of the nursery's bounds and size.
+     */
+    private AtomicBumpPointerAllocator<?>[] nodeAllocators;
+
+    /**
+     * Number of partitions the nursery is currently split in. May be less than the number of NUMA nodes for very small nurseries.
+     */
+    private int numPartitions;
+
     private final SpaceBounds bounds;
 
     public NoAgingRegionalizedNursery(HeapAccount<? extends HeapAccountOwner> heapAccount, int regionTag) {
@@ -110,38 +128,135 @@ public final class NoAgingRegionalizedNursery implements HeapSpace {
     }
 
     public void initialize(GenHeapSizingPolicy genSizingPolicy) {
+        initialize(genSizingPolicy.initialYoungGenSize(), genSizingPolicy.maxYoungGenSize());
+    }
+
+    /**
+     * Initialize the nursery with explicit sizes. Used when part of the young generation's space is set aside for other purposes (e.g., survivor spaces).
+     *
+     * @param initialSize initial size of the nursery
+     * @param maxSize maximum size of the nursery
+     */
+    public void initialize(Size initialSize, Size maxSize) {
         nurseryRegionsList = HeapRegionList.RegionListUse.OWNERSHIP.createList();
         uncommitedNurseryRegionsList = HeapRegionList.RegionListUse.OWNERSHIP.createList();
-        if (!heapAccount.allocateContiguous(HeapRegionConstants.numberOfRegions(genSizingPolicy.maxYoungGenSize()), nurseryRegionsList, false, false, regionTag)) {
+        if (!heapAccount.allocateContiguous(HeapRegionConstants.numberOfRegions(maxSize), nurseryRegionsList, false, false, regionTag)) {
             FatalError.unexpected("Couldn't allocate contiguous range to the nursery");
         }
         int regionID = nurseryRegionsList.head();
-        int numCommittedRegions = HeapRegionConstants.numberOfRegions(genSizingPolicy.initialYoungGenSize());
+        int numCommittedRegions = HeapRegionConstants.numberOfRegions(initialSize);
         heapAccount.commit(RegionRange.from(regionID, numCommittedRegions));
 
         int lastCommittedRegion = regionID + numCommittedRegions - 1;
         while (nurseryRegionsList.tail() != lastCommittedRegion) {
             uncommitedNurseryRegionsList.prepend(nurseryRegionsList.removeTail());
         }
-        allocator.initialize(RegionTable.theRegionTable().regionAddress(nurseryRegionsList.head()), genSizingPolicy.initialYoungGenSize(), Size.fromInt(HeapRegionConstants.regionSizeInBytes));
+        allocator.initialize(RegionTable.theRegionTable().regionAddress(nurseryRegionsList.head()), initialSize, Size.fromInt(HeapRegionConstants.regionSizeInBytes));
+        final int numNUMANodes = theHeapRegionManager().numNUMANodes();
+        if (numNUMANodes > 1) {
+            nodeAllocators = new AtomicBumpPointerAllocator<?>[numNUMANodes];
+            for (int node = 0; node < numNUMANodes; node++) {
+                nodeAllocators[node] = new AtomicBumpPointerAllocator<NurseryRefiller>(new NurseryRefiller());
+            }
+            partition();
+        }
+    }
+
+    /**
+     * Split the committed regions of the nursery among the NUMA nodes. Must only be called when the nursery is empty.
+     */
+    private void partition() {
+        final int numRegions = nurseryRegionsList.size();
+        numPartitions = Math.min(nodeAllocators.length, numRegions);
+        final Size regionSize = Size.fromInt(HeapRegionConstants.regionSizeInBytes);
+        int regionID = nurseryRegionsList.head();
+        for (int node = 0; node < numPartitions; node++) {
+            final int numPartitionRegions = (numRegions * (node + 1)) / numPartitions - (numRegions * node) / numPartitions;
+            theHeapRegionManager().bindToNUMANode(regionID, numPartitionRegions, node);
+            nodeAllocators[node].initialize(RegionTable.theRegionTable().regionAddress(regionID), regionSize.times(numPartitionRegions), regionSize);
+            regionID += numPartitionRegions;
+        }
+    }
+
+    /**
+     * Allocate space from the partition of the NUMA node the current thread runs on, or from the partition of another node if that one is full.
+     * A GC is triggered if all the partitions are full.
+     */
+    private Pointer allocateOnCurrentNode(Size size) {
+        final int homeNode = currentNUMANode() % numPartitions;
+        int node = homeNode;
+        do {
+            final Pointer cell = nodeAllocators[node].tryBumpAllocate(size);
+            if (!cell.isZero()) {
+                return cell;
+            }
+            if (++node == numPartitions) {
+                node = 0;
+            }
+        } while (node != homeNode);
+        return nodeAllocators[homeNode].allocateRaw(size);
     }
 
     public Pointer allocate(Size size) {
+        if (nodeAllocators != null) {
+            final Pointer cell = allocateOnCurrentNode(size);
+            Memory.clearWords(cell, size.unsignedShiftedRight(Word.widthValue().log2numberOfBytes).toInt());
+            return cell;
+        }
         return allocator.allocateCleared(size);
     }
 
+    /**
+     * Grow the nursery by committing regions reserved to it. Must only be called when the nursery is empty, i.e., after a GC.
+     *
+     * @param delta number of bytes to grow the nursery with. Rounded up to a number of regions.
+     * @return the number of bytes the nursery actually grew by
+     */
     @Override
     public Size increaseSize(Size delta) {
-        // TODO
-        FatalError.unimplemented();
-        return Size.zero();
+        int numRegions = HeapRegionConstants.numberOfRegions(delta);
+        if (numRegions > uncommitedNurseryRegionsList.size()) {
+            numRegions = uncommitedNurseryRegionsList.size();
+        }
+        for (int i = 0; i < numRegions; i++) {
+            final int regionID = uncommitedNurseryRegionsList.removeHead();
+            heapAccount.commit(regionID);
+            nurseryRegionsList.append(regionID);
+        }
+        final Size growth = Size.fromInt(numRegions).shiftedLeft(HeapRegionConstants.log2RegionSizeInBytes);
+        allocator.grow(growth);
+        if (nodeAllocators != null) {
+            partition();
+        }
+        return growth;
     }
 
+    /**
+     * Shrink the nursery by uncommitting its last regions. The nursery keeps at least one region.
+     * Must only be called when the nursery is empty, i.e., after a GC.
+     *
+     * @param delta number of bytes to shrink the nursery with. Rounded down to a number of regions.
+     * @return the number of bytes the nursery actually shrunk by
+     */
     @Override
     public Size decreaseSize(Size delta) {
-        // TODO
-        FatalError.unimplemented();
-        return Size.zero();
+        int numRegions = delta.unsignedShiftedRight(HeapRegionConstants.log2RegionSizeInBytes).toInt();
+        if (numRegions >= nurseryRegionsList.size()) {
+            numRegions = nurseryRegionsList.size() - 1;
+        }
+        final Size shrinkage = Size.fromInt(numRegions).shiftedLeft(HeapRegionConstants.log2RegionSizeInBytes);
+        if (numRegions <= 0 || !allocator.shrink(shrinkage)) {
+            return Size.zero();
+        }
+        for (int i = 0; i < numRegions; i++) {
+            final int regionID = nurseryRegionsList.removeTail();
+            heapAccount.uncommit(regionID);
+            uncommitedNurseryRegionsList.prepend(regionID);
+        }
+        if (nodeAllocators != null) {
+            partition();
+        }
+        return shrinkage;
     }
 
     @Override
@@ -156,14 +271,23 @@ public final class NoAgingRegionalizedNursery implements HeapSpace {
 
     @Override
     public Pointer allocateTLAB(Size size) {
-        final Pointer tlab = allocator.allocateRaw(size);
+        final Pointer tlab = nodeAllocators != null ? allocateOnCurrentNode(size) : allocator.allocateRaw(size);
         HeapFreeChunk.format(tlab, size);
         return tlab;
     }
 
     public void retireTLAB(Pointer start, Size size) {
         FatalError.check(allocator.inCurrentContiguousChunk(start), "Retired TLAB Space must be in allocating space");
-        if (!allocator.retireTop(start, size)) {
+        BaseAtomicBumpPointerAllocator<?> tlabAllocator = allocator;
+        if (nodeAllocators != null) {
+            for (int node = 0; node < numPartitions; node++) {
+                if (nodeAllocators[node].inCurrentContiguousChunk(start)) {
+                    tlabAllocator = nodeAllocators[node];
+                    break;
+                }
+            }
+        }
+        if (!tlabAllocator.retireTop(start, size)) {
             DarkMatter.format(start, size);
         }
     }
@@ -175,11 +299,26 @@ public final class NoAgingRegionalizedNursery implements HeapSpace {
 
     @Override
     public void doBeforeGC() {
+        if (nodeAllocators != null) {
+            for (int node = 0; node < numPartitions; node++) {
+                nodeAllocators[node].doBeforeGC();
+            }
+            return;
+        }
         allocator.doBeforeGC();
     }
 
     @Override
     public void doAfterGC() {
+        if (nodeAllocators != null) {
+            for (int node = 0; node < numPartitions; node++) {
+                if (MaxineVM.isDebug()) {
+                    nodeAllocators[node].zap();
+                }
+                nodeAllocators[node].reset();
+            }
+            return;
+        }
         if (MaxineVM.isDebug()) {
             allocator.zap();
         }
@@ -188,16 +327,36 @@ public final class NoAgingRegionalizedNursery implements HeapSpace {
 
     @Override
     public Size freeSpace() {
+        if (nodeAllocators != null) {
+            Size freeSpace = Size.zero();
+            for (int node = 0; node < numPartitions; node++) {
+                freeSpace = freeSpace.plus(nodeAllocators[node].freeSpace());
+            }
+            return freeSpace;
+        }
         return allocator.freeSpace();
     }
 
     @Override
     public Size usedSpace() {
+        if (nodeAllocators != null) {
+            Size usedSpace = Size.zero();
+            for (int node = 0; node < numPartitions; node++) {
+                usedSpace = usedSpace.plus(nodeAllocators[node].usedSpace());
+            }
+            return usedSpace;
+        }
         return allocator.usedSpace();
     }
 
     @Override
     public void visit(CellRangeVisitor visitor) {
+        if (nodeAllocators != null) {
+            for (int node = 0; node < numPartitions; node++) {
+                visitor.visitCells(nodeAllocators[node].start(), nodeAllocators[node].unsafeTop());
+            }
+            return;
+        }
         visitor.visitCells(allocator.start(), allocator.top);
     }
 
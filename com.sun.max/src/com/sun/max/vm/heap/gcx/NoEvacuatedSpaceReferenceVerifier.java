@@ -35,6 +35,10 @@ import static com.sun.max.vm.heap.gcx.HeapFreeChunk.*;
 public final class NoEvacuatedSpaceReferenceVerifier extends PointerIndexVisitor implements CellRangeVisitor, OverlappingCellVisitor {
     final CardTableRSet cardTableRSet;
     EvacuatingSpace evacuatedSpace;
+    /**
+     * Cells that the evacuation left in the evacuated space, or {@code null}.
+     */
+    PinnedCells pinnedCells;
     /**
      * Controls whether the whole iterable range passed to {@link #visitCells(Address, Address)} is verified or only dirty cards in the range.
      */
@@ -49,6 +53,10 @@ public final class NoEvacuatedSpaceReferenceVerifier extends PointerIndexVisitor
         this.evacuatedSpace = evacuatedSpace;
     }
 
+    public void setPinnedCells(PinnedCells pinnedCells) {
+        this.pinnedCells = pinnedCells;
+    }
+
     @Override
     public void visitCells(Address start, Address end) {
         if (dirtyCardsOnly) {
@@ -139,7 +147,7 @@ public final class NoEvacuatedSpaceReferenceVerifier extends PointerIndexVisitor
 
     private void checkNoRef(Pointer pointer, int wordIndex) {
         final Pointer cell = pointer.getReference(wordIndex).toOrigin();
-        if (evacuatedSpace.contains(cell)) {
+        if (evacuatedSpace.contains(cell) && (pinnedCells == null || !pinnedCells.contains(cell))) {
             Log.print("Reference in ");
             Log.print(pointer);
             Log.print(" at ");
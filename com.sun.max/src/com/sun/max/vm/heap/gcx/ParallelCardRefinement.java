@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.gcx.rset.ctbl.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+
+/**
+ * Parallel cleaning of the dirty cards of a card-table covered space that hold no references to an evacuated area, run by the
+ * {@link GCWorkGang} at the beginning of the remembered set scanning of a minor collection.
+ * <p>
+ * The ranges of the space are cut into stripes of {@link #ParallelCardScanStripeSize} bytes that workers claim with a compare-and-swap
+ * of a shared stripe index. A worker cleans the dirty cards of its stripes with an {@link EvacuatedAreaCardRefiner}, which finds the first
+ * cell overlapping a card with the card first object table, the same way {@link RefineDumpRangeToCard} does. Hence, a worker never
+ * needs to parse the stripe from its start, and cells straddling stripe boundaries are handled by the workers of both stripes.
+ * <p>
+ * Evacuation remains serial: the evacuator's walk over the dirty cards that follows only visits the cards left dirty, i.e., those
+ * overlapping cells with references to the evacuated area.
+ */
+public final class ParallelCardRefinement extends GCWorkGang.GCTask implements CellRangeVisitor {
+    /**
+     * Size of the stripes claimed by the workers.
+     */
+    static int ParallelCardScanStripeSize = 64 * 1024;
+    static {
+        VMOptions.addFieldOption("-XX:", "ParallelCardScanStripeSize", ParallelCardRefinement.class,
+                        "Size (in bytes) of the stripes of the card table scanned by each GC worker", Phase.PRISTINE);
+    }
+
+    private final CardTableRSet rset;
+
+    private final EvacuatedAreaCardRefiner[] refiners;
+
+    private int log2StripeSize;
+
+    /**
+     * Start and end of the ranges of the refined space, and index of the first stripe of each range.
+     */
+    private long[] rangeStarts;
+    private long[] rangeEnds;
+    private int[] firstStripes;
+
+    private int numRanges;
+
+    private int numStripes;
+
+    private volatile int nextStripe;
+
+    /**
+     * Number of cards cleaned by each worker during the last refinement.
+     */
+    private final int[] numCleanedCards;
+
+    @FOLD
+    private static int nextStripeOffset() {
+        return ClassActor.fromJava(ParallelCardRefinement.class).findLocalInstanceFieldActor("nextStripe").offset();
+    }
+
+    @HOSTED_ONLY
+    public ParallelCardRefinement(CardTableRSet rset) {
+        this.rset = rset;
+        refiners = new EvacuatedAreaCardRefiner[GCWorkGang.MAX_WORKERS];
+        for (int i = 0; i < refiners.length; i++) {
+            refiners[i] = new EvacuatedAreaCardRefiner();
+        }
+        numCleanedCards = new int[GCWorkGang.MAX_WORKERS];
+    }
+
+    /**
+     * Request the GC work gang and allocate the range table. Must be called once the region table is initialized.
+     */
+    public void initialize() {
+        GCWorkGang.theGang().request();
+        final int stripeSize = Math.max(ParallelCardScanStripeSize, 1 << CardTableRSet.LOG2_CARD_SIZE);
+        log2StripeSize = Integer.numberOfTrailingZeros(Integer.highestOneBit(stripeSize));
+        // A heap space is visited one range of contiguous regions at a time.
+        final int maxRanges = RegionTable.theRegionTable().length();
+        rangeStarts = new long[maxRanges];
+        rangeEnds = new long[maxRanges];
+        firstStripes = new int[maxRanges];
+    }
+
+    /**
+     * Clean the dirty cards of a space that hold no references to an evacuated area. Must be called by the VM operation thread.
+     *
+     * @param space the space whose dirty cards are refined
+     * @param evacuatedAreaBounds the bounds of the evacuated area
+     * @param holeStart start of an unparsable range of the space the refiner must skip, or zero if there is none
+     * @param holeEnd end of the unparsable range
+     * @return the number of cards cleaned
+     */
+    public int refine(HeapSpace space, EvacuatingSpace.SpaceBounds evacuatedAreaBounds, Address holeStart, Address holeEnd) {
+        numRanges = 0;
+        numStripes = 0;
+        space.visit(this);
+        if (numStripes == 0) {
+            return 0;
+        }
+        final int numWorkers = GCWorkGang.theGang().activeWorkers();
+        for (int i = 0; i < numWorkers; i++) {
+            refiners[i].initialize(evacuatedAreaBounds, holeStart, holeEnd);
+            numCleanedCards[i] = 0;
+        }
+        nextStripe = 0;
+        GCWorkGang.theGang().run(this);
+        int numCleaned = 0;
+        for (int i = 0; i < numWorkers; i++) {
+            numCleaned += numCleanedCards[i];
+        }
+        return numCleaned;
+    }
+
+    public void visitCells(Address start, Address end) {
+        FatalError.check(numRanges < rangeStarts.length, "Too many ranges to refine");
+        final Address stripesStart = start.alignDown(1 << log2StripeSize);
+        final Address stripesEnd = end.alignUp(1 << log2StripeSize);
+        rangeStarts[numRanges] = start.toLong();
+        rangeEnds[numRanges] = end.toLong();
+        firstStripes[numRanges] = numStripes;
+        numStripes += stripesEnd.minus(stripesStart).unsignedShiftedRight(log2StripeSize).toInt();
+        numRanges++;
+    }
+
+    private int claimStripe() {
+        final Reference thisRef = Reference.fromJava(this);
+        int stripe;
+        do {
+            stripe = nextStripe;
+            if (stripe >= numStripes) {
+                return -1;
+            }
+        } while (thisRef.compareAndSwapInt(nextStripeOffset(), stripe, stripe + 1) != stripe);
+        return stripe;
+    }
+
+    @Override
+    public void run(int workerId, int numWorkers) {
+        final EvacuatedAreaCardRefiner refiner = refiners[workerId];
+        int numCleaned = 0;
+        // Stripes are claimed in increasing order, so the range of a claimed stripe is always at or after the range of the previous one.
+        int range = 0;
+        int stripe = claimStripe();
+        while (stripe >= 0) {
+            while (range + 1 < numRanges && firstStripes[range + 1] <= stripe) {
+                range++;
+            }
+            final Address rangeStart = Address.fromLong(rangeStarts[range]);
+            final Address rangeEnd = Address.fromLong(rangeEnds[range]);
+            final Address stripeStart = rangeStart.alignDown(1 << log2StripeSize).plus(Address.fromInt(stripe - firstStripes[range]).shiftedLeft(log2StripeSize));
+            final Address stripeEnd = stripeStart.plus(1 << log2StripeSize);
+            final Address start = stripeStart.lessThan(rangeStart) ? rangeStart : stripeStart;
+            final Address end = stripeEnd.greaterThan(rangeEnd) ? rangeEnd : stripeEnd;
+            numCleaned += rset.refineCards(start, end, refiner);
+            stripe = claimStripe();
+        }
+        numCleanedCards[workerId] = numCleaned;
+    }
+}
@@ -0,0 +1,655 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import static com.sun.max.vm.VMConfiguration.*;
+import static com.sun.max.vm.heap.HeapSchemeAdaptor.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.debug.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Base class for the parallel evacuation of the live objects of a contiguous evacuated area, run by the {@link GCWorkGang}.
+ * Sub-classes define where evacuated objects are copied to, and the roots specific to a heap scheme
+ * (e.g., the boot heap region and remembered sets).
+ * <p>
+ * Each participant owns a {@link Worker} that copies objects into a private promotion-local allocation buffer (PLAB).
+ * Objects larger than a quarter of a PLAB are allocated directly. Workers race to install the forwarding reference of an
+ * object with a compare-and-swap of its hub word: the loser undoes its copy and uses the winner's. The copies a worker wins
+ * are grey and are pushed on the worker's {@link WorkStealingDeque}. Workers that run out of grey objects steal from the
+ * other workers' deques, and the evacuation completes when all workers agree to terminate (see {@link ParallelTaskTerminator}).
+ * <p>
+ * Thread stacks are striped across workers, and each of the other root sets is claimed by a single worker.
+ * When a worker's deque is full, the grey copy is linked to the worker's overflow list through the misc word of the
+ * forwarded object in the evacuated area, which is dead once the forwarding reference is installed.
+ * <p>
+ * Special references are discovered under a spin lock. They can be processed serially once the parallel evacuation
+ * completed (see {@link #processSpecialReferences()}).
+ */
+public abstract class ParallelEvacuator extends GCWorkGang.GCTask implements SpecialReferenceManager.GC {
+
+    /**
+     * A VM option for evacuating live objects in parallel with the {@link GCWorkGang}.
+     * The number of threads is set with the -XX:ParallelGCThreads option.
+     */
+    public static boolean ParallelScavenge;
+
+    /**
+     * Capacity of each worker's deque, in number of references.
+     */
+    static int ParallelScavengeDequeSize = 8192;
+
+    /**
+     * Size of the promotion-local allocation buffers.
+     */
+    static int ParallelScavengePLABSize = 32 * 1024;
+    static {
+        VMOptions.addFieldOption("-XX:", "ParallelScavenge", ParallelEvacuator.class,
+            "Copy live objects in parallel with GC worker threads (see -XX:ParallelGCThreads).", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "ParallelScavengeDequeSize", ParallelEvacuator.class,
+                        "Capacity (in number of references) of each parallel scavenge worker's deque", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "ParallelScavengePLABSize", ParallelEvacuator.class,
+                        "Size (in bytes) of the buffers parallel scavenge workers copy objects to", Phase.PRISTINE);
+    }
+
+    /**
+     * One-off root scanning jobs, claimed by a single worker each.
+     */
+    private static final int MONITORS_JOB = 0;
+    private static final int BASELINE_CODE_JOB = 1;
+    private static final int OPT_CODE_JOB = 2;
+    private static final int IMMORTAL_HEAP_JOB = 3;
+    private static final int BOOT_SPECIAL_REFERENCES_JOB = 4;
+    private static final int PINNED_CELLS_JOB = 5;
+    private static final int NUM_ROOT_JOBS = 6;
+
+    private final Worker[] workers;
+    private final WorkStealingDeque[] deques;
+    private final ParallelTaskTerminator terminator = new ParallelTaskTerminator();
+
+    /**
+     * Number of workers that are initialized, i.e., whose deque is allocated.
+     */
+    private int numInitializedWorkers;
+
+    protected Size plabSize;
+    private Size largeObjectSize;
+
+    /**
+     * Bounds of the area evacuated by the current evacuation.
+     */
+    private Address evacuatedAreaStart;
+    private Address evacuatedAreaEnd;
+
+    /**
+     * Cells of the evacuated area that must not move, or {@code null} if the heap scheme doesn't pin cells in that area.
+     * Pinned cells are scanned as roots and promoted in place.
+     */
+    private PinnedCells pinnedCells;
+
+    private volatile int nextRootJob;
+
+    /**
+     * Spin lock serializing calls to the {@link SpecialReferenceManager}.
+     */
+    private volatile int specialReferenceLock;
+
+    /**
+     * Indicates whether special references are discovered, or their referent treated as a strong reference.
+     */
+    private boolean refDiscoveryEnabled = true;
+
+    @FOLD
+    private static int nextRootJobOffset() {
+        return ClassActor.fromJava(ParallelEvacuator.class).findLocalInstanceFieldActor("nextRootJob").offset();
+    }
+
+    @FOLD
+    private static int specialReferenceLockOffset() {
+        return ClassActor.fromJava(ParallelEvacuator.class).findLocalInstanceFieldActor("specialReferenceLock").offset();
+    }
+
+    protected ParallelEvacuator() {
+        workers = new Worker[GCWorkGang.MAX_WORKERS];
+        deques = new WorkStealingDeque[GCWorkGang.MAX_WORKERS];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(this, i);
+            deques[i] = workers[i].deque;
+        }
+    }
+
+    /**
+     * Request the GC work gang and allocate the deques of the workers.
+     */
+    public void initialize() {
+        plabSize = Size.fromInt(ParallelScavengePLABSize).alignUp(Word.size());
+        largeObjectSize = plabSize.unsignedShiftedRight(2);
+        numInitializedWorkers = GCWorkGang.theGang().request();
+        for (int i = 0; i < numInitializedWorkers; i++) {
+            if (!deques[i].isInitialized()) {
+                deques[i].initialize(ParallelScavengeDequeSize);
+            }
+        }
+    }
+
+    public void setPinnedCells(PinnedCells pinnedCells) {
+        this.pinnedCells = pinnedCells;
+    }
+
+    @INLINE
+    protected final boolean inEvacuatedArea(Pointer origin) {
+        return origin.greaterEqual(evacuatedAreaStart) && origin.lessThan(evacuatedAreaEnd);
+    }
+
+    @INLINE
+    private boolean isPinned(Pointer origin) {
+        return pinnedCells != null && pinnedCells.contains(origin);
+    }
+
+    /**
+     * Allocate space for evacuated objects on behalf of a worker. Called concurrently by the workers.
+     * Space left unused is given back with {@link #retireSpace(Pointer, Pointer)}.
+     *
+     * @param size the size of the space to allocate
+     * @return the start of the allocated space
+     */
+    protected abstract Pointer allocateSpace(Size size);
+
+    /**
+     * Make a range of the space allocated with {@link #allocateSpace(Size)} that holds no object parsable.
+     * The range is either empty or at least {@linkplain HeapSchemeAdaptor#minObjectSize() a minimum object size} large.
+     */
+    protected abstract void retireSpace(Pointer start, Pointer end);
+
+    /**
+     * Notification that an object was evacuated by a worker. Default is to do nothing.
+     *
+     * @param fromCell the cell of the object in the evacuated area
+     * @param toCell the cell of the copy of the object
+     * @param size the size of the cell
+     */
+    protected void notifyEvacuated(Pointer fromCell, Pointer toCell, Size size) {
+    }
+
+    /**
+     * Notifies that a reference to a pinned cell of the evacuated area was found. The cell stays where it is, so the
+     * reference may need to be remembered. Default is to do nothing.
+     *
+     * @param refHolderOrigin origin of the reference holder
+     * @param offset offset from the reference holder's origin of the reference to the pinned cell
+     */
+    protected void recordPinnedReference(Pointer refHolderOrigin, Offset offset) {
+    }
+
+    /**
+     * Scan the roots specific to the heap scheme, e.g., the boot heap region and the remembered sets.
+     * Called by every worker once the other roots are claimed.
+     */
+    protected abstract void scanHeapRoots(Worker worker, int numWorkers);
+
+    /**
+     * Prepare the workers for the evacuation of the specified area. Must be called by the VM operation thread before running the task.
+     */
+    protected final void reset(Address evacuatedAreaStart, Address evacuatedAreaEnd) {
+        final int numWorkers = GCWorkGang.theGang().activeWorkers();
+        FatalError.check(numWorkers <= numInitializedWorkers, "Parallel evacuator not initialized for all GC workers");
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i].reset();
+        }
+        terminator.reset(numWorkers);
+        this.evacuatedAreaStart = evacuatedAreaStart;
+        this.evacuatedAreaEnd = evacuatedAreaEnd;
+        nextRootJob = 0;
+    }
+
+    @Override
+    public void run(int workerId, int numWorkers) {
+        final Worker worker = workers[workerId];
+        worker.scanRoots(numWorkers);
+        worker.trace(numWorkers);
+        worker.retirePLAB();
+    }
+
+    /**
+     * Number of bytes evacuated in the last evacuation.
+     */
+    public Size evacuatedBytes() {
+        final int numWorkers = GCWorkGang.theGang().activeWorkers();
+        Size evacuatedBytes = Size.zero();
+        for (int i = 0; i < numWorkers; i++) {
+            evacuatedBytes = evacuatedBytes.plus(workers[i].evacuatedBytes);
+        }
+        return evacuatedBytes;
+    }
+
+    /**
+     * Process the special references discovered during the last evacuation, then evacuate the objects they preserved.
+     * Done serially by the VM operation thread, using the first worker.
+     */
+    public void processSpecialReferences() {
+        refDiscoveryEnabled = false;
+        SpecialReferenceManager.processDiscoveredSpecialReferences(this);
+        workers[0].drain();
+        workers[0].retirePLAB();
+        refDiscoveryEnabled = true;
+    }
+
+    @Override
+    public boolean isReachable(Reference ref) {
+        final Pointer origin = ref.toOrigin();
+        if (inEvacuatedArea(origin)) {
+            return Layout.readHubReference(origin).isMarked() || isPinned(origin);
+        }
+        return true;
+    }
+
+    @Override
+    public Reference preserve(Reference ref) {
+        final Pointer origin = ref.toOrigin();
+        if (inEvacuatedArea(origin)) {
+            return workers[0].forward(origin);
+        }
+        return ref;
+    }
+
+    @Override
+    public boolean mayRelocateLiveObjects() {
+        return true;
+    }
+
+    protected final int fetchAndIncrement(int fieldOffset) {
+        final Reference thisRef = Reference.fromJava(this);
+        int oldValue;
+        do {
+            oldValue = thisRef.readInt(fieldOffset);
+        } while (thisRef.compareAndSwapInt(fieldOffset, oldValue, oldValue + 1) != oldValue);
+        return oldValue;
+    }
+
+    /**
+     * Discover a special reference, or the special references of the boot heap region if {@code origin} is zero.
+     */
+    protected final void discoverSpecialReference(Pointer origin) {
+        final Reference thisRef = Reference.fromJava(this);
+        while (thisRef.compareAndSwapInt(specialReferenceLockOffset(), 0, 1) != 0) {
+            Thread.yield();
+        }
+        if (origin.isZero()) {
+            Heap.bootHeapRegion.discoverSpecialReference();
+        } else {
+            SpecialReferenceManager.discoverSpecialReference(origin);
+        }
+        specialReferenceLock = 0;
+    }
+
+    /**
+     * Size of the cell of an object, computed from a hub read beforehand. The hub word of an object in the evacuated area may
+     * be overwritten with a forwarding reference by another worker at any time, so it must be read only once.
+     */
+    @INLINE
+    private static Size cellSize(Pointer origin, Hub hub) {
+        switch (hub.layoutCategory) {
+            case TUPLE:
+                return hub.tupleSize;
+            case ARRAY:
+                return Layout.getArraySize(hub.classActor.componentClassActor().kind, Layout.readArrayLength(origin));
+            default:
+                return Layout.hybridLayout().getArraySize(Layout.readArrayLength(origin));
+        }
+    }
+
+    /**
+     * Per-participant state of the parallel evacuation.
+     * The worker visits the references held by roots, by remembered sets, and by the grey objects it scans.
+     */
+    public static final class Worker extends PointerIndexVisitor implements CellVisitor, OverlappingCellVisitor {
+        final ParallelEvacuator evacuator;
+        final int workerId;
+        final WorkStealingDeque deque = new WorkStealingDeque();
+        final ThreadRootsScanner threadRootsScanner;
+
+        private Pointer plabStart;
+        private Pointer plabTop;
+        private Pointer plabEnd;
+
+        /**
+         * Origin of the evacuated area copy of the first grey object that couldn't be pushed on the deque, or zero.
+         */
+        private Pointer overflowList;
+
+        /**
+         * Number of bytes of the objects this worker evacuated.
+         */
+        private Size evacuatedBytes;
+
+        Worker(ParallelEvacuator evacuator, int workerId) {
+            this.evacuator = evacuator;
+            this.workerId = workerId;
+            threadRootsScanner = new ThreadRootsScanner(this);
+        }
+
+        public int id() {
+            return workerId;
+        }
+
+        void reset() {
+            deque.reset();
+            plabStart = Pointer.zero();
+            plabTop = Pointer.zero();
+            plabEnd = Pointer.zero();
+            overflowList = Pointer.zero();
+            evacuatedBytes = Size.zero();
+        }
+
+        /**
+         * Allocate a cell, refilling the PLAB if needed. Space for the debug tag is reserved before the cell.
+         * The space left in the PLAB is either zero or large enough to be retired as a dead object.
+         */
+        private Pointer allocate(Size size) {
+            Pointer cell = DebugHeap.adjustForDebugTag(plabTop);
+            Pointer end = cell.plus(size);
+            if (end.greaterThan(plabEnd.minus(minObjectSize())) && !end.equals(plabEnd)) {
+                if (size.greaterEqual(evacuator.largeObjectSize)) {
+                    final Size tagSize = DebugHeap.adjustForDebugTag(Pointer.zero()).asSize();
+                    return DebugHeap.adjustForDebugTag(evacuator.allocateSpace(size.plus(tagSize)));
+                }
+                retirePLAB();
+                plabStart = evacuator.allocateSpace(evacuator.plabSize);
+                plabEnd = plabStart.plus(evacuator.plabSize);
+                cell = DebugHeap.adjustForDebugTag(plabStart);
+                end = cell.plus(size);
+            }
+            plabTop = end;
+            return cell;
+        }
+
+        /**
+         * Undo the allocation of a cell whose copy lost the race to forward an object.
+         */
+        private void undoAllocation(Pointer cell, Size size) {
+            final Pointer start = cell.minus(DebugHeap.adjustForDebugTag(Pointer.zero()));
+            if (start.greaterEqual(plabStart) && cell.plus(size).equals(plabTop)) {
+                plabTop = start;
+            } else {
+                evacuator.retireSpace(start, cell.plus(size));
+            }
+        }
+
+        void retirePLAB() {
+            if (plabEnd.greaterThan(plabTop)) {
+                evacuator.retireSpace(plabTop, plabEnd);
+            }
+            plabStart = Pointer.zero();
+            plabTop = Pointer.zero();
+            plabEnd = Pointer.zero();
+        }
+
+        /**
+         * Maps a reference to the reference of an object out of the evacuated area, copying the object if no worker did it already.
+         */
+        @INLINE
+        private Reference mapRef(Reference ref) {
+            final Pointer fromOrigin = ref.toOrigin();
+            if (evacuator.inEvacuatedArea(fromOrigin)) {
+                return forward(fromOrigin);
+            }
+            return ref;
+        }
+
+        Reference forward(Pointer fromOrigin) {
+            // The hub word holds the forwarding reference once the object is copied.
+            final Reference hubRef = Layout.readHubReference(fromOrigin);
+            if (hubRef.isMarked()) {
+                return hubRef.unmarked();
+            }
+            if (evacuator.isPinned(fromOrigin)) {
+                return Reference.fromOrigin(fromOrigin);
+            }
+            final Hub hub = UnsafeCast.asHub(hubRef.toJava());
+            final Size size = cellSize(fromOrigin, hub);
+            final Pointer toCell = allocate(size);
+            Memory.copyBytes(Layout.originToCell(fromOrigin), toCell, size);
+            final Pointer toOrigin = Layout.cellToOrigin(toCell);
+            // Another worker may have forwarded the object while it was being copied.
+            Layout.writeHubReference(toOrigin, hubRef);
+            final Reference toRef = Reference.fromOrigin(toOrigin);
+            final Reference witness = Layout.compareAndSwapForwardRef(fromOrigin, hubRef, toRef);
+            if (witness != hubRef) {
+                undoAllocation(toCell, size);
+                return witness.unmarked();
+            }
+            DebugHeap.writeCellTag(toCell);
+            evacuator.notifyEvacuated(Layout.originToCell(fromOrigin), toCell, size);
+            evacuatedBytes = evacuatedBytes.plus(size);
+            if (!deque.push(toCell)) {
+                Layout.writeMisc(fromOrigin, overflowList);
+                overflowList = fromOrigin;
+            }
+            return toRef;
+        }
+
+        @Override
+        public void visit(Pointer pointer, int wordIndex) {
+            final Reference oldRef = pointer.getReference(wordIndex);
+            final Reference newRef = mapRef(oldRef);
+            if (newRef != oldRef) {
+                pointer.setReference(wordIndex, newRef);
+            } else if (evacuator.pinnedCells != null && evacuator.inEvacuatedArea(oldRef.toOrigin())) {
+                evacuator.recordPinnedReference(pointer, Offset.fromInt(wordIndex << Word.widthValue().log2numberOfBytes));
+            }
+        }
+
+        private void visitReferenceArray(Pointer origin, int firstIndex, int endIndex) {
+            for (int index = firstIndex; index < endIndex; index++) {
+                final Reference oldRef = Layout.getReference(origin, index);
+                final Reference newRef = mapRef(oldRef);
+                if (newRef != oldRef) {
+                    Layout.setReference(origin, index, newRef);
+                } else if (evacuator.pinnedCells != null && evacuator.inEvacuatedArea(oldRef.toOrigin())) {
+                    evacuator.recordPinnedReference(origin, Layout.referenceArrayLayout().getElementOffsetFromOrigin(index));
+                }
+            }
+        }
+
+        private void visitSpecialReference(Pointer origin) {
+            if (evacuator.refDiscoveryEnabled) {
+                evacuator.discoverSpecialReference(origin);
+            } else {
+                // Treat the referent as a strong reference.
+                visit(origin, SpecialReferenceManager.referentIndex());
+            }
+        }
+
+        /**
+         * Update the references of a grey object, or of a root object outside of the heap.
+         */
+        @Override
+        public Pointer visitCell(Pointer cell) {
+            final Pointer origin = Layout.cellToOrigin(cell);
+            final Reference oldHubRef = Layout.readHubReference(origin);
+            final Reference newHubRef = mapRef(oldHubRef);
+            if (newHubRef != oldHubRef) {
+                Layout.writeHubReference(origin, newHubRef);
+            }
+            final Hub hub = UnsafeCast.asHub(newHubRef.toJava());
+            final SpecificLayout specificLayout = hub.specificLayout;
+            if (specificLayout == Layout.tupleLayout()) {
+                TupleReferenceMap.visitReferences(hub, origin, this);
+                if (hub.isJLRReference) {
+                    visitSpecialReference(origin);
+                }
+                return cell.plus(hub.tupleSize);
+            }
+            if (specificLayout == Layout.referenceArrayLayout()) {
+                visitReferenceArray(origin, 0, Layout.readArrayLength(origin));
+            } else if (specificLayout == Layout.hybridLayout()) {
+                TupleReferenceMap.visitReferences(hub, origin, this);
+            }
+            return cell.plus(Layout.size(origin));
+        }
+
+        /**
+         * Update the references of a cell overlapping a range of dirty cards of a remembered set, evacuating the objects they refer to.
+         * The same cell may be visited by several workers when it overlaps ranges scanned by different workers: updates of its
+         * references are idempotent, and its special reference, if any, is discovered by the worker whose range holds the cell's origin.
+         */
+        @Override
+        public Pointer visitCell(Pointer cell, Address start, Address end) {
+            final Pointer origin = Layout.cellToOrigin(cell);
+            if (origin.plus(Layout.hubIndex()).greaterEqual(start)) {
+                visit(origin, Layout.hubIndex());
+            }
+            final Hub hub = UnsafeCast.asHub(Layout.readHubReference(origin).toJava());
+            if (hub == HeapFreeChunk.heapFreeChunkHub()) {
+                return cell.plus(HeapFreeChunk.toHeapFreeChunk(origin).size);
+            }
+            final SpecificLayout specificLayout = hub.specificLayout;
+            if (specificLayout == Layout.tupleLayout()) {
+                // Visit all the references of the object: the write barrier dirties the card holding the header of the tuple,
+                // which may not be the card of the updated reference.
+                TupleReferenceMap.visitReferences(hub, origin, this);
+                if (hub.isJLRReference && origin.greaterEqual(start) && origin.lessThan(end)) {
+                    visitSpecialReference(origin);
+                }
+                return cell.plus(hub.tupleSize);
+            }
+            if (specificLayout == Layout.referenceArrayLayout()) {
+                final int length = Layout.readArrayLength(origin);
+                final Pointer firstElement = origin.plus(Layout.referenceArrayLayout().getElementOffsetFromOrigin(0));
+                final int log2ReferenceSize = Word.widthValue().log2numberOfBytes;
+                final int firstIndex = start.greaterThan(firstElement) ? start.minus(firstElement).unsignedShiftedRight(log2ReferenceSize).toInt() : 0;
+                final Address endOfArray = firstElement.plusWords(length);
+                final int endIndex = end.lessThan(endOfArray) ? end.minus(firstElement).unsignedShiftedRight(log2ReferenceSize).toInt() : length;
+                visitReferenceArray(origin, firstIndex, endIndex);
+            } else if (specificLayout == Layout.hybridLayout()) {
+                TupleReferenceMap.visitReferences(hub, origin, this);
+            }
+            return cell.plus(Layout.size(origin));
+        }
+
+        void drain() {
+            while (true) {
+                Pointer cell = deque.pop();
+                if (cell.isZero()) {
+                    if (overflowList.isZero()) {
+                        return;
+                    }
+                    final Pointer fromOrigin = overflowList;
+                    overflowList = Layout.readMisc(Reference.fromOrigin(fromOrigin)).asPointer();
+                    cell = Layout.originToCell(Layout.readForwardRef(fromOrigin).toOrigin());
+                }
+                visitCell(cell);
+            }
+        }
+
+        private boolean steal(int numWorkers) {
+            final WorkStealingDeque[] deques = evacuator.deques;
+            for (int i = 1; i < numWorkers; i++) {
+                final Pointer cell = deques[(workerId + i) % numWorkers].steal();
+                if (!cell.isZero()) {
+                    visitCell(cell);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void scanRoots(int numWorkers) {
+            threadRootsScanner.reset(numWorkers);
+            VmThreadMap.ACTIVE.forAllThreadLocals(SequentialHeapRootsScanner.mutatorThreadPredicate, threadRootsScanner);
+
+            int job = evacuator.fetchAndIncrement(nextRootJobOffset());
+            while (job < NUM_ROOT_JOBS) {
+                switch (job) {
+                    case MONITORS_JOB:
+                        vmConfig().monitorScheme().scanReferences(this);
+                        break;
+                    case BASELINE_CODE_JOB:
+                        // References in the boot code region are immutable and only ever refer to objects in the boot heap region.
+                        Code.visitCells(this, Code.getCodeManager().getRuntimeBaselineCodeRegion());
+                        break;
+                    case OPT_CODE_JOB:
+                        Code.visitCells(this, Code.getCodeManager().getRuntimeOptCodeRegion());
+                        break;
+                    case IMMORTAL_HEAP_JOB:
+                        ImmortalHeap.visitCells(this);
+                        break;
+                    case BOOT_SPECIAL_REFERENCES_JOB:
+                        evacuator.discoverSpecialReference(Pointer.zero());
+                        break;
+                    case PINNED_CELLS_JOB:
+                        if (evacuator.pinnedCells != null) {
+                            evacuator.pinnedCells.visitCells(this);
+                        }
+                        break;
+                }
+                job = evacuator.fetchAndIncrement(nextRootJobOffset());
+            }
+            evacuator.scanHeapRoots(this, numWorkers);
+        }
+
+        void trace(int numWorkers) {
+            do {
+                do {
+                    drain();
+                } while (steal(numWorkers));
+            } while (!evacuator.terminator.offerTermination(evacuator.deques));
+        }
+    }
+
+    /**
+     * Scans the stacks of the mutator threads assigned to a worker. Threads are striped across workers by their position in
+     * the list of active threads.
+     */
+    static final class ThreadRootsScanner implements Pointer.Procedure {
+        final Worker worker;
+        int numWorkers;
+        int threadIndex;
+
+        ThreadRootsScanner(Worker worker) {
+            this.worker = worker;
+        }
+
+        void reset(int numWorkers) {
+            this.numWorkers = numWorkers;
+            threadIndex = 0;
+        }
+
+        public void run(Pointer tla) {
+            if (threadIndex++ % numWorkers == worker.workerId) {
+                if (Heap.logGCPhases()) {
+                    Heap.phaseLogger.logScanningThreadRoots(VmThread.fromTLA(tla));
+                }
+                VmThreadLocal.scanReferences(tla, worker);
+            }
+        }
+    }
+}
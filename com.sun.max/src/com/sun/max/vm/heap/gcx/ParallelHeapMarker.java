@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import static com.sun.max.vm.VMConfiguration.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Parallel marking for a {@link TricolorHeapMarker}, run by the {@link GCWorkGang}.
+ * <p>
+ * Each participant owns a {@link MarkingWorker} with a {@link WorkStealingDeque} of grey cells. Root marking is
+ * shared between the participants: thread stacks are striped across workers, the boot heap region is scanned by
+ * chunks of its reference map claimed atomically, and each of the remaining root sets (monitors, code regions,
+ * immortal heap) is claimed by a single worker. A cell is greyed with an atomic update of the color map, and only the
+ * worker that successfully greys a cell pushes it on its deque. Cells are visited by the worker that atomically
+ * turns them black. Workers that run out of work steal from the other workers' deques, and the marking completes when
+ * all workers agree to terminate (see {@link ParallelTaskTerminator}).
+ * <p>
+ * When a worker's deque is full, the cell is left grey and the leftmost such cell is recorded. After the parallel phase,
+ * the {@link TricolorHeapMarker}'s serial forward scan is resumed from the leftmost overflowed cell to trace them.
+ */
+final class ParallelHeapMarker extends GCWorkGang.GCTask {
+
+    /**
+     * Capacity of each worker's deque, in number of references.
+     */
+    static int ParallelMarkingDequeSize = 8192;
+    static {
+        VMOptions.addFieldOption("-XX:", "ParallelMarkingDequeSize", ParallelHeapMarker.class,
+                        "Capacity (in number of references) of each parallel marking worker's deque", Phase.PRISTINE);
+    }
+
+    /**
+     * Number of words of the boot heap reference map claimed at once by a worker.
+     */
+    private static final int BOOT_HEAP_REFERENCE_MAP_CHUNK = 256;
+
+    /**
+     * One-off root marking jobs, claimed by a single worker each.
+     */
+    private static final int MONITORS_JOB = 0;
+    private static final int BASELINE_CODE_JOB = 1;
+    private static final int OPT_CODE_JOB = 2;
+    private static final int IMMORTAL_HEAP_JOB = 3;
+    private static final int BOOT_SPECIAL_REFERENCES_JOB = 4;
+    private static final int NUM_ROOT_JOBS = 5;
+
+    final TricolorHeapMarker heapMarker;
+
+    private final MarkingWorker[] workers;
+    private final WorkStealingDeque[] deques;
+    private final ParallelTaskTerminator terminator = new ParallelTaskTerminator();
+
+    /**
+     * Number of workers that are initialized, i.e., whose deque is allocated.
+     */
+    private int numInitializedWorkers;
+
+    private volatile int nextRootJob;
+    private volatile int nextBootHeapChunk;
+    private int bootHeapReferenceMapWords;
+
+    /**
+     * Spin lock serializing calls to the {@link SpecialReferenceManager}.
+     */
+    private volatile int specialReferenceLock;
+
+    /**
+     * Rightmost cell marked during the last parallel marking.
+     */
+    Address rightmost;
+
+    /**
+     * Leftmost cell left grey because of a deque overflow during the last parallel marking, or zero if no deque overflowed.
+     */
+    Address leftmostOverflowed;
+
+    @FOLD
+    private static int nextRootJobOffset() {
+        return ClassActor.fromJava(ParallelHeapMarker.class).findLocalInstanceFieldActor("nextRootJob").offset();
+    }
+
+    @FOLD
+    private static int nextBootHeapChunkOffset() {
+        return ClassActor.fromJava(ParallelHeapMarker.class).findLocalInstanceFieldActor("nextBootHeapChunk").offset();
+    }
+
+    @FOLD
+    private static int specialReferenceLockOffset() {
+        return ClassActor.fromJava(ParallelHeapMarker.class).findLocalInstanceFieldActor("specialReferenceLock").offset();
+    }
+
+    @HOSTED_ONLY
+    ParallelHeapMarker(TricolorHeapMarker heapMarker) {
+        this.heapMarker = heapMarker;
+        workers = new MarkingWorker[GCWorkGang.MAX_WORKERS];
+        deques = new WorkStealingDeque[GCWorkGang.MAX_WORKERS];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new MarkingWorker(this, i);
+            deques[i] = workers[i].deque;
+        }
+    }
+
+    /**
+     * Request the GC work gang and allocate the deques of the workers.
+     */
+    void initialize() {
+        numInitializedWorkers = GCWorkGang.theGang().request();
+        for (int i = 0; i < numInitializedWorkers; i++) {
+            if (!deques[i].isInitialized()) {
+                deques[i].initialize(ParallelMarkingDequeSize);
+            }
+        }
+    }
+
+    /**
+     * Mark all objects reachable from the roots in parallel. Must be called by the VM operation thread with a cleared
+     * color map and with the {@linkplain TricolorHeapMarker#rootCellVisitor() root cell visitor} reset.
+     */
+    void markAll() {
+        final int numWorkers = GCWorkGang.theGang().activeWorkers();
+        FatalError.check(numWorkers <= numInitializedWorkers, "Parallel marker not initialized for all GC workers");
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i].reset();
+        }
+        terminator.reset(numWorkers);
+        nextRootJob = 0;
+        nextBootHeapChunk = 0;
+        bootHeapReferenceMapWords = Heap.bootHeapRegion.referenceMapWords();
+
+        GCWorkGang.theGang().run(this);
+
+        rightmost = heapMarker.coveredAreaStart;
+        leftmostOverflowed = Address.zero();
+        for (int i = 0; i < numWorkers; i++) {
+            final MarkingWorker worker = workers[i];
+            if (worker.rightmost.greaterThan(rightmost)) {
+                rightmost = worker.rightmost;
+            }
+            if (!worker.leftmostOverflowed.isZero() && (leftmostOverflowed.isZero() || worker.leftmostOverflowed.lessThan(leftmostOverflowed))) {
+                leftmostOverflowed = worker.leftmostOverflowed;
+            }
+        }
+    }
+
+    @Override
+    public void run(int workerId, int numWorkers) {
+        final MarkingWorker worker = workers[workerId];
+        worker.markRoots(numWorkers);
+        worker.trace(numWorkers);
+    }
+
+    private int fetchAndIncrement(int fieldOffset) {
+        final Reference thisRef = Reference.fromJava(this);
+        int oldValue;
+        do {
+            oldValue = thisRef.readInt(fieldOffset);
+        } while (thisRef.compareAndSwapInt(fieldOffset, oldValue, oldValue + 1) != oldValue);
+        return oldValue;
+    }
+
+    int claimRootJob() {
+        return fetchAndIncrement(nextRootJobOffset());
+    }
+
+    int claimBootHeapChunk() {
+        return fetchAndIncrement(nextBootHeapChunkOffset());
+    }
+
+    void discoverSpecialReference(Pointer cell) {
+        final Reference thisRef = Reference.fromJava(this);
+        while (thisRef.compareAndSwapInt(specialReferenceLockOffset(), 0, 1) != 0) {
+            Thread.yield();
+        }
+        if (cell.isZero()) {
+            Heap.bootHeapRegion.discoverSpecialReference();
+        } else {
+            SpecialReferenceManager.discoverSpecialReference(cell);
+        }
+        specialReferenceLock = 0;
+    }
+
+    /**
+     * Per-participant state of the parallel marking.
+     * The worker itself visits the references of the cells it traces; its {@link RootMarker} visits roots.
+     */
+    static final class MarkingWorker extends PointerIndexVisitor {
+        final ParallelHeapMarker parallelMarker;
+        final TricolorHeapMarker heapMarker;
+        final int workerId;
+        final WorkStealingDeque deque = new WorkStealingDeque();
+        final RootMarker rootMarker;
+        final ThreadRootsScanner threadRootsScanner;
+
+        /**
+         * Rightmost cell marked grey by this worker.
+         */
+        Address rightmost;
+
+        /**
+         * Leftmost cell that couldn't be pushed on the deque, or zero.
+         */
+        Address leftmostOverflowed;
+
+        /**
+         * Set when tracing. Before that, a full deque is drained to make room for more roots.
+         */
+        boolean tracing;
+
+        MarkingWorker(ParallelHeapMarker parallelMarker, int workerId) {
+            this.parallelMarker = parallelMarker;
+            this.heapMarker = parallelMarker.heapMarker;
+            this.workerId = workerId;
+            rootMarker = new RootMarker(this);
+            threadRootsScanner = new ThreadRootsScanner(this);
+        }
+
+        void reset() {
+            deque.reset();
+            rightmost = heapMarker.coveredAreaStart;
+            leftmostOverflowed = Address.zero();
+            tracing = false;
+        }
+
+        /**
+         * Mark a cell grey if it is white, and schedule it for visiting.
+         */
+        @INLINE
+        void markAndPush(Pointer cell) {
+            if (heapMarker.markGreyIfWhiteAtomic(cell)) {
+                if (cell.greaterThan(rightmost)) {
+                    rightmost = cell;
+                }
+                if (!deque.push(cell)) {
+                    if (tracing) {
+                        // Leave the cell grey. It will be traced by the serial forward scan that follows the parallel marking.
+                        if (leftmostOverflowed.isZero() || cell.lessThan(leftmostOverflowed)) {
+                            leftmostOverflowed = cell;
+                        }
+                    } else {
+                        // Make room for more roots by tracing the cells already on the deque.
+                        tracing = true;
+                        drain();
+                        tracing = false;
+                        deque.push(cell);
+                    }
+                }
+            }
+        }
+
+        @INLINE
+        private void markRefGrey(Reference ref) {
+            final Pointer cell = Layout.originToCell(ref.toOrigin());
+            if (cell.greaterEqual(heapMarker.coveredAreaStart)) {
+                markAndPush(cell);
+            }
+        }
+
+        @Override
+        public void visit(Pointer pointer, int wordIndex) {
+            markRefGrey(pointer.getReference(wordIndex));
+        }
+
+        /**
+         * Visit a grey cell if this worker is the one that turns it black.
+         */
+        private void visitGreyCell(Pointer cell) {
+            if (!heapMarker.markBlackFromGreyAtomic(cell)) {
+                return;
+            }
+            if (MaxineVM.isDebug() && Heap.logAllGC()) {
+                TricolorHeapMarker.printVisitedCell(cell, "Visiting grey cell ");
+            }
+            final Pointer origin = Layout.cellToOrigin(cell);
+            final Reference hubRef = Layout.readHubReference(origin);
+            markRefGrey(hubRef);
+            final Hub hub = UnsafeCast.asHub(hubRef.toJava());
+            if (MaxineVM.isDebug()) {
+                heapMarker.checkGreyCellHub(origin, hub);
+            }
+            final SpecificLayout specificLayout = hub.specificLayout;
+            if (specificLayout.isTupleLayout()) {
+                TupleReferenceMap.visitReferences(hub, origin, this);
+                if (hub.isJLRReference) {
+                    parallelMarker.discoverSpecialReference(cell);
+                }
+            } else if (specificLayout.isReferenceArrayLayout()) {
+                final int length = Layout.readArrayLength(origin);
+                for (int index = 0; index < length; index++) {
+                    markRefGrey(Layout.getReference(origin, index));
+                }
+            } else if (specificLayout.isHybridLayout()) {
+                TupleReferenceMap.visitReferences(hub, origin, this);
+            }
+        }
+
+        private void drain() {
+            Pointer cell = deque.pop();
+            while (!cell.isZero()) {
+                visitGreyCell(cell);
+                cell = deque.pop();
+            }
+        }
+
+        private boolean steal(int numWorkers) {
+            final WorkStealingDeque[] deques = parallelMarker.deques;
+            for (int i = 1; i < numWorkers; i++) {
+                final Pointer cell = deques[(workerId + i) % numWorkers].steal();
+                if (!cell.isZero()) {
+                    visitGreyCell(cell);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void markRoots(int numWorkers) {
+            rootMarker.bottom = heapMarker.rootCellVisitor().bottom;
+            threadRootsScanner.reset(numWorkers);
+            VmThreadMap.ACTIVE.forAllThreadLocals(SequentialHeapRootsScanner.mutatorThreadPredicate, threadRootsScanner);
+
+            int job = parallelMarker.claimRootJob();
+            while (job < NUM_ROOT_JOBS) {
+                switch (job) {
+                    case MONITORS_JOB:
+                        vmConfig().monitorScheme().scanReferences(rootMarker);
+                        break;
+                    case BASELINE_CODE_JOB:
+                        // References in the boot code region are immutable and only ever refer to objects in the boot heap region.
+                        Code.visitCells(rootMarker, Code.getCodeManager().getRuntimeBaselineCodeRegion());
+                        break;
+                    case OPT_CODE_JOB:
+                        Code.visitCells(rootMarker, Code.getCodeManager().getRuntimeOptCodeRegion());
+                        break;
+                    case IMMORTAL_HEAP_JOB:
+                        ImmortalHeap.visitCells(rootMarker);
+                        break;
+                    case BOOT_SPECIAL_REFERENCES_JOB:
+                        parallelMarker.discoverSpecialReference(Pointer.zero());
+                        break;
+                }
+                job = parallelMarker.claimRootJob();
+            }
+
+            final int bootHeapReferenceMapWords = parallelMarker.bootHeapReferenceMapWords;
+            int firstRefMapWord = parallelMarker.claimBootHeapChunk() * BOOT_HEAP_REFERENCE_MAP_CHUNK;
+            while (firstRefMapWord < bootHeapReferenceMapWords) {
+                final int endRefMapWord = Math.min(firstRefMapWord + BOOT_HEAP_REFERENCE_MAP_CHUNK, bootHeapReferenceMapWords);
+                Heap.bootHeapRegion.visitReferences(firstRefMapWord, endRefMapWord, rootMarker);
+                firstRefMapWord = parallelMarker.claimBootHeapChunk() * BOOT_HEAP_REFERENCE_MAP_CHUNK;
+            }
+        }
+
+        void trace(int numWorkers) {
+            tracing = true;
+            do {
+                do {
+                    drain();
+                } while (steal(numWorkers));
+            } while (!parallelMarker.terminator.offerTermination(parallelMarker.deques));
+        }
+    }
+
+    /**
+     * Visitor of the references held by roots. Same filtering as the {@link RootCellVisitor}, but marks atomically
+     * on behalf of a {@link MarkingWorker}.
+     */
+    static final class RootMarker extends PointerIndexVisitor implements CellVisitor {
+        final MarkingWorker worker;
+        final RootCellVisitor rootCellVisitor;
+        Address bottom;
+
+        RootMarker(MarkingWorker worker) {
+            this.worker = worker;
+            this.rootCellVisitor = worker.heapMarker.rootCellVisitor();
+        }
+
+        @INLINE
+        private void markExternalRoot(Pointer cell) {
+            // Note: the first test also acts as a null pointer filter.
+            if (cell.greaterEqual(bottom) && rootCellVisitor.isNonNullCovered(cell)) {
+                worker.markAndPush(cell);
+            }
+        }
+
+        @Override
+        public void visit(Pointer pointer, int wordIndex) {
+            markExternalRoot(Layout.originToCell(pointer.getReference(wordIndex).toOrigin()));
+        }
+
+        @Override
+        public Pointer visitCell(Pointer cell) {
+            if (MaxineVM.isDebug() && Heap.logRootScanning()) {
+                TricolorHeapMarker.printVisitedCell(cell, "Visiting root cell ");
+            }
+            final Pointer origin = Layout.cellToOrigin(cell);
+            final Reference hubRef = Layout.readHubReference(origin);
+            markExternalRoot(Layout.originToCell(hubRef.toOrigin()));
+            final Hub hub = UnsafeCast.asHub(hubRef.toJava());
+            final SpecificLayout specificLayout = hub.specificLayout;
+            if (specificLayout == Layout.tupleLayout()) {
+                TupleReferenceMap.visitReferences(hub, origin, this);
+                if (hub.isJLRReference) {
+                    worker.parallelMarker.discoverSpecialReference(cell);
+                }
+                return cell.plus(hub.tupleSize);
+            }
+            if (specificLayout == Layout.hybridLayout()) {
+                TupleReferenceMap.visitReferences(hub, origin, this);
+            } else if (specificLayout == Layout.referenceArrayLayout()) {
+                final int length = Layout.readArrayLength(origin);
+                for (int index = 0; index < length; index++) {
+                    markExternalRoot(Layout.originToCell(Layout.getReference(origin, index).toOrigin()));
+                }
+            }
+            return cell.plus(Layout.size(origin));
+        }
+    }
+
+    /**
+     * Scans the stacks of the mutator threads assigned to a worker. Threads are striped across workers by their position in
+     * the list of active threads.
+     */
+    static final class ThreadRootsScanner implements Pointer.Procedure {
+        final MarkingWorker worker;
+        int numWorkers;
+        int threadIndex;
+
+        ThreadRootsScanner(MarkingWorker worker) {
+            this.worker = worker;
+        }
+
+        void reset(int numWorkers) {
+            this.numWorkers = numWorkers;
+            threadIndex = 0;
+        }
+
+        public void run(Pointer tla) {
+            if (threadIndex++ % numWorkers == worker.workerId) {
+                if (Heap.logGCPhases()) {
+                    Heap.phaseLogger.logScanningThreadRoots(VmThread.fromTLA(tla));
+                }
+                VmThreadLocal.scanReferences(tla, worker.rootMarker);
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.gcx.rset.ctbl.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+
+/**
+ * Parallel evacuation of a contiguous nursery to a card-table covered old space allocated with a {@link BaseAtomicBumpPointerAllocator}.
+ * This is the parallel counterpart of the {@link NoAgingNurseryEvacuator}.
+ * <p>
+ * Workers carve their PLABs from the old space allocator with {@link BaseAtomicBumpPointerAllocator#tryBumpAllocate(Size)} and
+ * record the evacuated cells in the card first object table. The dirty cards of the boot heap region and of the old space below the
+ * allocator's top at the start of the evacuation are cut into stripes of {@link ParallelCardRefinement#ParallelCardScanStripeSize} bytes
+ * that workers claim with a compare-and-swap of a shared stripe index. Hence, the PLABs, which aren't parsable during evacuation, are never scanned.
+ * <p>
+ * The evacuation cannot overflow the old space: the caller must check that the old space allocator has enough space left for the worst case
+ * (see {@link #worstCaseEvacuation(Size)}), and use the serial evacuator otherwise.
+ */
+public final class ParallelNurseryEvacuator extends ParallelEvacuator {
+
+    private final EvacuatingSpace fromSpace;
+    private final BaseAtomicBumpPointerAllocator<? extends Refiller> toSpaceAllocator;
+    private final CardTableRSet rset;
+    private final CardFirstObjectTable cfoTable;
+
+    /**
+     * Per-worker visitors of the dirty cards of the boot heap region.
+     */
+    private final BootRegionDirtyCardVisitor[] bootRegionVisitors;
+
+    private int log2StripeSize;
+
+    /**
+     * Bounds of the boot heap region and of the old space scanned for dirty cards, and index of their first stripe.
+     */
+    private Address bootHeapStart;
+    private Address bootHeapEnd;
+    private Address oldSpaceStart;
+    private Address oldSpaceEnd;
+    private int firstOldSpaceStripe;
+    private int numStripes;
+
+    private volatile int nextStripe;
+
+    @FOLD
+    private static int nextStripeOffset() {
+        return ClassActor.fromJava(ParallelNurseryEvacuator.class).findLocalInstanceFieldActor("nextStripe").offset();
+    }
+
+    @HOSTED_ONLY
+    public ParallelNurseryEvacuator(EvacuatingSpace fromSpace, BaseAtomicBumpPointerAllocator<? extends Refiller> toSpaceAllocator, CardTableRSet rset) {
+        this.fromSpace = fromSpace;
+        this.toSpaceAllocator = toSpaceAllocator;
+        this.rset = rset;
+        this.cfoTable = rset.cfoTable;
+        bootRegionVisitors = new BootRegionDirtyCardVisitor[GCWorkGang.MAX_WORKERS];
+        for (int i = 0; i < bootRegionVisitors.length; i++) {
+            bootRegionVisitors[i] = new BootRegionDirtyCardVisitor();
+        }
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        final int stripeSize = Math.max(ParallelCardRefinement.ParallelCardScanStripeSize, 1 << CardTableRSet.LOG2_CARD_SIZE);
+        log2StripeSize = Integer.numberOfTrailingZeros(Integer.highestOneBit(stripeSize));
+    }
+
+    /**
+     * Space the old space allocator must have left for a parallel evacuation of the specified number of bytes to never overflow.
+     * Besides the evacuated bytes, this accounts for the unused tails of the PLABs, for the PLABs left partially used by the workers,
+     * and for the copies of the workers that lose the race to forward an object.
+     */
+    public Size worstCaseEvacuation(Size evacuatedBytes) {
+        final int numWorkers = GCWorkGang.theGang().activeWorkers();
+        return evacuatedBytes.plus(evacuatedBytes.dividedBy(2)).plus(plabSize.times(numWorkers + 1));
+    }
+
+    /**
+     * Evacuate the live objects of the nursery to the old space and update all references to them.
+     * Must be called by the VM operation thread.
+     *
+     * @param oldSpaceStart start of the old space, whose dirty cards are scanned up to the old space allocator's top
+     */
+    public void evacuate(Address oldSpaceStart) {
+        final EvacuatingSpace.SpaceBounds bounds = fromSpace.bounds();
+        FatalError.check(bounds.isContiguous(), "Parallel nursery evacuation requires a contiguous nursery");
+        FatalError.check(toSpaceAllocator.start().greaterEqual(oldSpaceStart), "Old space allocator must be within the old space");
+        fromSpace.doBeforeGC();
+        reset(bounds.lowestAddress(), bounds.highestAddress());
+
+        final BootHeapRegion bootHeapRegion = Heap.bootHeapRegion;
+        final Address mutableBootReferencesLimit = bootHeapRegion.lastMutableReferenceAddress().plus(Word.size());
+        bootHeapStart = bootHeapRegion.start();
+        bootHeapEnd = bootHeapRegion.end();
+        for (int i = 0; i < bootRegionVisitors.length; i++) {
+            bootRegionVisitors[i].mutableBootReferencesLimit = mutableBootReferencesLimit;
+        }
+        this.oldSpaceStart = oldSpaceStart;
+        oldSpaceEnd = toSpaceAllocator.unsafeTop();
+        firstOldSpaceStripe = numStripes(bootHeapStart, bootHeapEnd);
+        numStripes = firstOldSpaceStripe + numStripes(oldSpaceStart, oldSpaceEnd);
+        nextStripe = 0;
+
+        GCWorkGang.theGang().run(this);
+    }
+
+    /**
+     * Evacuate the referents of the special references discovered during the last evacuation that are still reachable, and
+     * complete the evacuation.
+     */
+    @Override
+    public void processSpecialReferences() {
+        super.processSpecialReferences();
+        fromSpace.doAfterGC();
+    }
+
+    private int numStripes(Address start, Address end) {
+        if (end.lessEqual(start)) {
+            return 0;
+        }
+        return end.alignUp(1 << log2StripeSize).minus(start.alignDown(1 << log2StripeSize)).unsignedShiftedRight(log2StripeSize).toInt();
+    }
+
+    private int claimStripe() {
+        final Reference thisRef = Reference.fromJava(this);
+        int stripe;
+        do {
+            stripe = nextStripe;
+            if (stripe >= numStripes) {
+                return -1;
+            }
+        } while (thisRef.compareAndSwapInt(nextStripeOffset(), stripe, stripe + 1) != stripe);
+        return stripe;
+    }
+
+    @Override
+    protected Pointer allocateSpace(Size size) {
+        final Pointer space = toSpaceAllocator.tryBumpAllocate(size);
+        FatalError.check(!space.isZero(), "Parallel nursery evacuation overflow");
+        return space;
+    }
+
+    @Override
+    protected void retireSpace(Pointer start, Pointer end) {
+        if (end.greaterThan(start)) {
+            final Size size = end.minus(start).asSize();
+            if (!toSpaceAllocator.retireTop(start, size)) {
+                DarkMatter.format(start, size);
+                rset.notifyRetireDeadSpace(start, size);
+            }
+        }
+    }
+
+    @Override
+    protected void notifyEvacuated(Pointer fromCell, Pointer toCell, Size size) {
+        cfoTable.set(toCell, size);
+    }
+
+    /**
+     * A pinned cell stays in the nursery, so the card of a reference to it must remain dirty until the cell is evacuated.
+     */
+    @Override
+    protected void recordPinnedReference(Pointer refHolderOrigin, Offset offset) {
+        if (!inEvacuatedArea(refHolderOrigin) && rset.isCovered(refHolderOrigin)) {
+            rset.record(Reference.fromOrigin(refHolderOrigin), offset);
+        }
+    }
+
+    @Override
+    protected void scanHeapRoots(Worker worker, int numWorkers) {
+        int stripe = claimStripe();
+        while (stripe >= 0) {
+            if (stripe < firstOldSpaceStripe) {
+                final Address start = stripeStart(bootHeapStart, stripe);
+                final Address end = stripeEnd(bootHeapEnd, start);
+                final BootRegionDirtyCardVisitor visitor = bootRegionVisitors[worker.id()];
+                visitor.worker = worker;
+                rset.cleanAndVisitCards(start.lessThan(bootHeapStart) ? bootHeapStart : start, end, visitor);
+            } else {
+                final Address start = stripeStart(oldSpaceStart, stripe - firstOldSpaceStripe);
+                final Address end = stripeEnd(oldSpaceEnd, start);
+                rset.cleanAndVisitCards(start.lessThan(oldSpaceStart) ? oldSpaceStart : start, end, worker);
+            }
+            stripe = claimStripe();
+        }
+    }
+
+    private Address stripeStart(Address rangeStart, int stripe) {
+        return rangeStart.alignDown(1 << log2StripeSize).plus(Address.fromInt(stripe).shiftedLeft(log2StripeSize));
+    }
+
+    private Address stripeEnd(Address rangeEnd, Address stripeStart) {
+        final Address stripeEnd = stripeStart.plus(1 << log2StripeSize);
+        return stripeEnd.greaterThan(rangeEnd) ? rangeEnd : stripeEnd;
+    }
+
+    /**
+     * Visits the references of the dirty cards of the boot heap region on behalf of a worker.
+     * Only the part of the boot heap region that holds mutable references is visited.
+     */
+    static final class BootRegionDirtyCardVisitor extends CardTableRSet.CardRangeVisitor {
+        Worker worker;
+        Address mutableBootReferencesLimit = Address.zero();
+
+        @Override
+        public void visitCards(Address start, Address end) {
+            if (end.greaterThan(mutableBootReferencesLimit)) {
+                if (start.greaterThan(mutableBootReferencesLimit)) {
+                    return;
+                }
+                end = mutableBootReferencesLimit;
+            }
+            Heap.bootHeapRegion.visitReferences(start, end, worker);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.reference.*;
+
+/**
+ * Termination protocol for GC workers balancing load with {@link WorkStealingDeque}s.
+ * A worker that runs out of work and fails to steal offers termination. The task is terminated once every worker has
+ * offered termination; until then, a worker that sees some work available in a deque withdraws its offer and goes
+ * back to stealing.
+ */
+public final class ParallelTaskTerminator {
+    private volatile int offeredTermination;
+    private int numWorkers;
+
+    @FOLD
+    private static int offeredTerminationOffset() {
+        return ClassActor.fromJava(ParallelTaskTerminator.class).findLocalInstanceFieldActor("offeredTermination").offset();
+    }
+
+    public ParallelTaskTerminator() {
+    }
+
+    /**
+     * Reset the terminator for a new task. Must be called before the task is handed to the workers.
+     * @param numWorkers number of workers participating to the task
+     */
+    public void reset(int numWorkers) {
+        this.numWorkers = numWorkers;
+        offeredTermination = 0;
+    }
+
+    /**
+     * Offer termination on behalf of a worker that ran out of work.
+     *
+     * @param deques the deques of all the workers participating to the task
+     * @return true if all workers have terminated, false if the caller should go back to stealing work
+     */
+    public boolean offerTermination(WorkStealingDeque[] deques) {
+        final Reference thisRef = Reference.fromJava(this);
+        int oldValue;
+        do {
+            oldValue = offeredTermination;
+        } while (thisRef.compareAndSwapInt(offeredTerminationOffset(), oldValue, oldValue + 1) != oldValue);
+
+        while (true) {
+            if (offeredTermination == numWorkers) {
+                return true;
+            }
+            if (hasWork(deques)) {
+                // Withdraw the offer unless every worker has terminated in the meantime.
+                do {
+                    oldValue = offeredTermination;
+                    if (oldValue == numWorkers) {
+                        return true;
+                    }
+                } while (thisRef.compareAndSwapInt(offeredTerminationOffset(), oldValue, oldValue - 1) != oldValue);
+                return false;
+            }
+            Thread.yield();
+        }
+    }
+
+    private boolean hasWork(WorkStealingDeque[] deques) {
+        for (int i = 0; i < numWorkers; i++) {
+            if (!deques[i].isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2011, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+
+/**
+ * Table of the cells pinned in a space that a copying collector evacuates. Each entry records the origin of a pinned
+ * cell and the number of pin requests not yet matched by an unpin request, so pins nest. Entries are kept sorted by
+ * origin so that the collector can look up a cell with a binary search and walk the pinned cells of a space in address
+ * order.
+ * <p>
+ * Mutators update the table under a spin lock, with safepoints disabled so that a GC cannot start while the lock is
+ * held. The collector reads the table without the lock since all mutators are stopped at a safepoint.
+ * <p>
+ * A collector doesn't move a pinned cell: it treats it as a root and promotes it in place. When the last pin of a cell
+ * is released, the cell may still be in a space the collector is about to reclaim. The collector marks such entries as
+ * retained so that they remain in the table, and the cells remain reachable, until the next GC.
+ * <p>
+ * The capacity of the table is fixed when the boot image is built. Once it is full, pin requests are refused and the
+ * caller falls back to copying.
+ */
+public final class PinnedCells {
+    /**
+     * Capacity of the tables of the heap schemes.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final long[] origins;
+    private final int[] pinCounts;
+    private final boolean[] retained;
+    private int size;
+
+    private volatile int lock = 0;
+
+    @FOLD
+    private static int lockOffset() {
+        return ClassActor.fromJava(PinnedCells.class).findLocalInstanceFieldActor("lock").offset();
+    }
+
+    @HOSTED_ONLY
+    public PinnedCells(int capacity) {
+        origins = new long[capacity];
+        pinCounts = new int[capacity];
+        retained = new boolean[capacity];
+    }
+
+    private void acquireLock() {
+        while (Reference.fromJava(this).compareAndSwapInt(lockOffset(), 0, 1) != 0) {
+            while (lock != 0) {
+                // spin
+            }
+        }
+    }
+
+    private void releaseLock() {
+        lock = 0;
+    }
+
+    /**
+     * Index of the entry for the specified origin, or {@code -(insertion point) - 1} if the origin isn't in the table.
+     */
+    private int indexOf(long origin) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midOrigin = origins[mid];
+            if (midOrigin < origin) {
+                low = mid + 1;
+            } else if (midOrigin > origin) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void remove(int index) {
+        final int last = size - 1;
+        for (int i = index; i < last; i++) {
+            origins[i] = origins[i + 1];
+            pinCounts[i] = pinCounts[i + 1];
+            retained[i] = retained[i + 1];
+        }
+        size = last;
+    }
+
+    /**
+     * Increments the pin count of a cell. The caller must have disabled safepoints.
+     * <p>
+     * No new entry is added while some thread {@linkplain Heap#hasGCDisablingThreads() disables GC}: such a thread may
+     * be holding a direct pointer to a cell it failed to pin, and {@link Heap#releasedDirectPointer(Object)} relies on
+     * that cell not being pinned by another thread in the meantime to tell how the direct pointer was obtained.
+     *
+     * @param origin origin of the cell to pin
+     * @return true if the cell is pinned, false if the table is full or GC is disabled
+     */
+    public boolean pin(Pointer origin) {
+        final long key = origin.toLong();
+        acquireLock();
+        try {
+            int index = indexOf(key);
+            if (index >= 0) {
+                pinCounts[index]++;
+                return true;
+            }
+            if (size == origins.length || Heap.hasGCDisablingThreads()) {
+                return false;
+            }
+            index = -(index + 1);
+            for (int i = size; i > index; i--) {
+                origins[i] = origins[i - 1];
+                pinCounts[i] = pinCounts[i - 1];
+                retained[i] = retained[i - 1];
+            }
+            origins[index] = key;
+            pinCounts[index] = 1;
+            retained[index] = false;
+            size++;
+            return true;
+        } finally {
+            releaseLock();
+        }
+    }
+
+    /**
+     * Decrements the pin count of a cell. The entry is removed when its count drops to zero, unless the collector
+     * retains it. The caller must have disabled safepoints.
+     *
+     * @param origin origin of a cell previously pinned with {@link #pin(Pointer)}
+     */
+    public void unpin(Pointer origin) {
+        acquireLock();
+        try {
+            final int index = indexOf(origin.toLong());
+            FatalError.check(index >= 0 && pinCounts[index] > 0, "Unbalance pinned request");
+            if (--pinCounts[index] == 0 && !retained[index]) {
+                remove(index);
+            }
+        } finally {
+            releaseLock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Pointer origin(int index) {
+        return Pointer.fromLong(origins[index]);
+    }
+
+    public int pinCount(int index) {
+        return pinCounts[index];
+    }
+
+    /**
+     * Determines if a cell is pinned, i.e., is in the table with a non-zero pin count. Unlike {@link #contains(Pointer)},
+     * this may be used by a mutator while other mutators update the table. The caller must have disabled safepoints.
+     */
+    public boolean isPinned(Pointer origin) {
+        if (size == 0) {
+            return false;
+        }
+        acquireLock();
+        try {
+            final int index = indexOf(origin.toLong());
+            return index >= 0 && pinCounts[index] > 0;
+        } finally {
+            releaseLock();
+        }
+    }
+
+    /**
+     * Determines if a cell is in the table, either because it is pinned or because it is retained.
+     */
+    public boolean contains(Pointer origin) {
+        return size != 0 && indexOf(origin.toLong()) >= 0;
+    }
+
+    /**
+     * Gets the lowest origin in the table above an address. Unlike the other queries, this one may be used by a mutator
+     * while other mutators update the table.
+     *
+     * @return the lowest origin greater than {@code address}, or zero if there is none
+     */
+    public Pointer firstOriginAbove(Address address) {
+        if (size == 0) {
+            return Pointer.zero();
+        }
+        acquireLock();
+        try {
+            final int index = indexOf(address.toLong());
+            final int above = index >= 0 ? index + 1 : -(index + 1);
+            return above < size ? origin(above) : Pointer.zero();
+        } finally {
+            releaseLock();
+        }
+    }
+
+    /**
+     * Applies a visitor to all the cells in the table.
+     */
+    public void visitCells(CellVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.visitCell(Layout.originToCell(origin(i)));
+        }
+    }
+
+    /**
+     * Retains the entries of the cells in the specified range so that they remain in the table after their last pin is
+     * released. Called by the collector when it leaves pinned cells behind in a space it doesn't reclaim yet.
+     *
+     * @return the number of entries in the range
+     */
+    public int retain(Address start, Address end) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            final Pointer origin = origin(i);
+            if (origin.greaterEqual(start) && origin.lessThan(end)) {
+                retained[i] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Drops the retention of the entries of the cells in the specified range, and removes the ones that are no longer
+     * pinned.
+     */
+    public void release(Address start, Address end) {
+        int i = 0;
+        while (i < size) {
+            final Pointer origin = origin(i);
+            if (origin.greaterEqual(start) && origin.lessThan(end)) {
+                retained[i] = false;
+                if (pinCounts[i] == 0) {
+                    remove(i);
+                    continue;
+                }
+            }
+            i++;
+        }
+    }
+}
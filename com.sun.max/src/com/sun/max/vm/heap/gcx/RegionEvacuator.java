@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import static com.sun.max.vm.heap.gcx.HeapRegionConstants.*;
+
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.runtime.*;
+
+/**
+ * Evacuator used to compact a {@link FirstFitMarkSweepSpace} after a mark-sweep collection.
+ * The evacuated area is a collection set of sparsely occupied regions selected by the space.
+ * Live objects of the collection set are copied into empty regions of the space, which are bump-allocated
+ * and handed back to the space once evacuation completes. Regions of the collection set are then released to the heap account.
+ *
+ * The space has no remembered sets. References to the collection set from the rest of the space are found by scanning the
+ * objects the heap marker found live in all the other regions of the space. Hence, evacuation must take place after marking
+ * and sweeping completed, and before the heap marker's color map is reused.
+ * Special references are treated as strong since they were already processed by the mark-sweep collection.
+ */
+public final class RegionEvacuator extends Evacuator {
+    private static final byte NOT_EVACUATED = 0;
+    private static final byte IN_COLLECTION_SET = 1;
+    private static final byte EVACUATION_TARGET = 2;
+
+    /**
+     * The space whose regions are evacuated.
+     */
+    private final FirstFitMarkSweepSpace<?> space;
+
+    /**
+     * Heap marker that marked the space. Its color map tells apart live from dead objects in regions that aren't evacuated.
+     */
+    private final TricolorHeapMarker heapMarker;
+
+    /**
+     * Role of each region of the heap in the current evacuation, indexed by region identifier.
+     */
+    private byte[] regionRoles;
+
+    /**
+     * Regions being evacuated.
+     */
+    private HeapRegionList collectionSet;
+
+    /**
+     * Regions evacuated cells are copied to, in the order they were allocated.
+     */
+    private HeapRegionList targetRegions;
+
+    /**
+     * Support for iterating over the regions of the space that aren't evacuated.
+     */
+    private final HeapRegionRangeIterable regionsRangeIterable = new HeapRegionRangeIterable();
+
+    /**
+     * Target region evacuated cells are currently copied to.
+     */
+    private int currentTarget = INVALID_REGION_ID;
+
+    /**
+     * Allocation mark in the current target region.
+     */
+    private Pointer top = Pointer.zero();
+
+    /**
+     * End of the current target region.
+     */
+    private Pointer end = Pointer.zero();
+
+    /**
+     * Target region being scanned for references to the collection set.
+     */
+    private int scanRegion = INVALID_REGION_ID;
+
+    /**
+     * Next cell to scan in the {@link #scanRegion}.
+     */
+    private Pointer scanMark = Pointer.zero();
+
+    /**
+     * Number of bytes evacuated by the last evacuation.
+     */
+    private long evacuatedBytes;
+
+    /**
+     * Number of bytes of the regions scanned for references to the collection set by the last evacuation.
+     */
+    private long scannedBytes;
+
+    /**
+     * Time spent by the last evacuation scanning the regions for references to the collection set, in nanoseconds.
+     */
+    private long scanNanos;
+
+    public RegionEvacuator(FirstFitMarkSweepSpace<?> space, TricolorHeapMarker heapMarker) {
+        this.space = space;
+        this.heapMarker = heapMarker;
+    }
+
+    /**
+     * Initialization of those elements that relies on parameters available at VM start only.
+     * Must be called after the region table is initialized.
+     */
+    public void initialize() {
+        regionRoles = new byte[RegionTable.theRegionTable().length()];
+        collectionSet = HeapRegionList.RegionListUse.OWNERSHIP.createList();
+        targetRegions = HeapRegionList.RegionListUse.OWNERSHIP.createList();
+    }
+
+    /**
+     * List the regions of the next evacuation are appended to.
+     */
+    public HeapRegionList collectionSet() {
+        return collectionSet;
+    }
+
+    public long evacuatedBytes() {
+        return evacuatedBytes;
+    }
+
+    public long scannedBytes() {
+        return scannedBytes;
+    }
+
+    public long scanNanos() {
+        return scanNanos;
+    }
+
+    @Override
+    boolean inEvacuatedArea(Pointer origin) {
+        final int regionID = RegionTable.theRegionTable().regionID(origin);
+        return regionID != INVALID_REGION_ID && regionRoles[regionID] == IN_COLLECTION_SET;
+    }
+
+    private void retireCurrentTarget() {
+        if (currentTarget == INVALID_REGION_ID) {
+            return;
+        }
+        final HeapRegionInfo rinfo = HeapRegionInfo.fromRegionID(currentTarget);
+        final Size spaceLeft = end.minus(top).asSize();
+        if (spaceLeft.greaterEqual(space.minReclaimableSpace())) {
+            HeapFreeChunk.format(top, spaceLeft);
+            rinfo.setFreeChunks(top, spaceLeft, 1);
+            HeapRegionState.toFreeChunkState(rinfo);
+        } else {
+            if (!spaceLeft.isZero()) {
+                DarkMatter.format(top, spaceLeft);
+            }
+            HeapRegionState.toFullState(rinfo);
+        }
+        currentTarget = INVALID_REGION_ID;
+    }
+
+    private Pointer nextTarget() {
+        retireCurrentTarget();
+        final int regionID = space.getEmptyRegion();
+        if (regionID == INVALID_REGION_ID) {
+            FatalError.unexpected("Out of regions to evacuate to");
+        }
+        final HeapRegionInfo rinfo = HeapRegionInfo.fromRegionID(regionID);
+        HeapRegionState.toAllocatingState(rinfo);
+        regionRoles[regionID] = EVACUATION_TARGET;
+        targetRegions.append(regionID);
+        currentTarget = regionID;
+        top = rinfo.regionStart().asPointer();
+        end = top.plus(regionSizeInBytes);
+        if (scanRegion == INVALID_REGION_ID) {
+            scanRegion = regionID;
+            scanMark = top;
+        }
+        return top;
+    }
+
+    @Override
+    Pointer evacuate(Pointer origin) {
+        final Pointer fromCell = Layout.originToCell(origin);
+        final Size size = Layout.size(origin);
+        Pointer toCell = top;
+        if (toCell.plus(size).greaterThan(end)) {
+            toCell = nextTarget();
+        }
+        top = toCell.plus(size);
+        Memory.copyBytes(fromCell, toCell, size);
+        evacuatedBytes += size.toLong();
+        return Layout.cellToOrigin(toCell);
+    }
+
+    @Override
+    protected void evacuateFromRSets() {
+        final long start = System.nanoTime();
+        final RegionTable regionTable = RegionTable.theRegionTable();
+        regionsRangeIterable.initialize(space.heapAccount().committedRegions());
+        regionsRangeIterable.resetToFirstIterable();
+        while (regionsRangeIterable.hasNext()) {
+            final RegionRange range = regionsRangeIterable.nextIterableRange();
+            Pointer cell = regionTable.regionAddress(range.firstRegion()).asPointer();
+            final Pointer rangeEnd = cell.plus(Size.fromInt(range.numRegions()).shiftedLeft(log2RegionSizeInBytes));
+            while (cell.lessThan(rangeEnd)) {
+                if (cell.and(regionAlignmentMask).isZero()) {
+                    if (regionRoles[regionTable.regionID(cell)] != NOT_EVACUATED) {
+                        cell = cell.plus(regionSizeInBytes);
+                        continue;
+                    }
+                    scannedBytes += regionSizeInBytes;
+                }
+                final Pointer origin = Layout.cellToOrigin(cell);
+                if (HeapFreeChunk.isHeapFreeChunkOrigin(origin)) {
+                    cell = cell.plus(HeapFreeChunk.getFreechunkSize(cell));
+                } else if (heapMarker.isWhite(cell)) {
+                    cell = cell.plus(Layout.size(origin));
+                } else {
+                    cell = scanCellForEvacuatees(cell);
+                }
+            }
+        }
+        scanNanos = System.nanoTime() - start;
+    }
+
+    @Override
+    protected void evacuateReachables() {
+        while (scanRegion != INVALID_REGION_ID) {
+            final Pointer scanEnd = scanRegion == currentTarget ? top : HeapRegionInfo.fromRegionID(scanRegion).regionStart().plus(regionSizeInBytes).asPointer();
+            if (scanMark.lessThan(scanEnd)) {
+                scanMark = scanCellForEvacuatees(scanMark);
+            } else if (scanRegion == currentTarget) {
+                // Caught up with the copies.
+                return;
+            } else {
+                scanRegion = targetRegions.next(scanRegion);
+                scanMark = HeapRegionInfo.fromRegionID(scanRegion).regionStart().asPointer();
+            }
+        }
+    }
+
+    @Override
+    protected void doBeforeEvacuation() {
+        FatalError.check(targetRegions.isEmpty(), "Target regions must have been handed back to the space");
+        evacuatedBytes = 0L;
+        scannedBytes = 0L;
+        scanNanos = 0L;
+        int regionID = collectionSet.head();
+        while (regionID != INVALID_REGION_ID) {
+            regionRoles[regionID] = IN_COLLECTION_SET;
+            regionID = collectionSet.next(regionID);
+        }
+        // Special references were already processed by the mark-sweep collection.
+        disableSpecialRefDiscovery();
+    }
+
+    @Override
+    protected void doAfterEvacuation() {
+        retireCurrentTarget();
+        scanRegion = INVALID_REGION_ID;
+        top = Pointer.zero();
+        end = Pointer.zero();
+        scanMark = Pointer.zero();
+        int regionID = targetRegions.removeHead();
+        while (regionID != INVALID_REGION_ID) {
+            regionRoles[regionID] = NOT_EVACUATED;
+            space.retireAllocatingRegion(regionID);
+            regionID = targetRegions.removeHead();
+        }
+        regionID = collectionSet.removeHead();
+        while (regionID != INVALID_REGION_ID) {
+            regionRoles[regionID] = NOT_EVACUATED;
+            space.releaseEvacuatedRegion(regionID);
+            regionID = collectionSet.removeHead();
+        }
+    }
+}
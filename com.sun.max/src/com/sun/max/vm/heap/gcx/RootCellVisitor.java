@@ -58,6 +58,12 @@ abstract class RootCellVisitor extends PointerIndexVisitor implements CellVisito
 
     protected Address bottom;
 
+    /**
+     * Indicates whether special references found in root cells are discovered. Turned off when marking roots for
+     * a concurrent marking, since discovered special references are only processed at the end of a stop-the-world marking.
+     */
+    boolean discoverSpecialReferences = true;
+
     RootCellVisitor() {
     }
 
@@ -110,7 +116,7 @@ abstract class RootCellVisitor extends PointerIndexVisitor implements CellVisito
         final SpecificLayout specificLayout = hub.specificLayout;
         if (specificLayout == Layout.tupleLayout()) {
             TupleReferenceMap.visitReferences(hub, origin, this);
-            if (hub.isJLRReference) {
+            if (hub.isJLRReference && discoverSpecialReferences) {
                 SpecialReferenceManager.discoverSpecialReference(cell);
             }
             return cell.plus(hub.tupleSize);
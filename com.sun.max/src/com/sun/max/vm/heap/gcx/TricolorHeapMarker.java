@@ -178,6 +178,12 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
      */
     static boolean VerifyGreyLessAreas = false;
 
+    /**
+     * Mark roots and trace grey objects in parallel with the {@link GCWorkGang}.
+     * @see ParallelHeapMarker
+     */
+    static boolean UseParallelMarking = false;
+
     /**
      * A ready-to-use option to try new code.
      */
@@ -188,6 +194,7 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         VMOptions.addFieldOption("-XX:", "UseDeepMarkStackFlush", TricolorHeapMarker.class, "Visit flushed cells and mark their reference grey when flushing the mark stack", Phase.PRISTINE);
         VMOptions.addFieldOption("-XX:", "VerifyAfterMarking", TricolorHeapMarker.class, "Verify absence of grey bits after marking is completed", Phase.PRISTINE);
         VMOptions.addFieldOption("-XX:", "VerifyGreyLessAreas", TricolorHeapMarker.class, "Verify absence of grey bits in areas that shouldn't have any grey objects", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "UseParallelMarking", TricolorHeapMarker.class, "Mark the heap in parallel with GC worker threads", Phase.PRISTINE);
 
         VMOptions.addFieldOption("-XX:", "UseNewCode", TricolorHeapMarker.class, "Use new refactored code)", Phase.PRISTINE);
     }
@@ -197,6 +204,7 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         SCAN_BOOT_HEAP("B", "Marking roots from boot heap"),
         SCAN_CODE("C", "Marking roots from code"),
         SCAN_IMMORTAL("I", "Marking roots from immortal heap"),
+        PARALLEL_MARK("P", "Marking roots and tracing grey objects in parallel"),
         VISIT_GREY_FORWARD("V", "Tracing grey objects"),
         SPECIAL_REF("W", "Processing special references"),
         DONE("D", "");
@@ -317,6 +325,11 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
      */
     final MarkingStack markingStack;
 
+    /**
+     * The parallel marker, used instead of root marking and forward scan when {@link #UseParallelMarking} is enabled.
+     */
+    private final ParallelHeapMarker parallelMarker;
+
     private final TimerMetric rootScanTimer = new TimerMetric(new SingleUseTimer(HeapScheme.GC_TIMING_CLOCK));
     private final TimerMetric bootHeapScanTimer = new TimerMetric(new SingleUseTimer(HeapScheme.GC_TIMING_CLOCK));
     private final TimerMetric codeScanTimer = new TimerMetric(new SingleUseTimer(HeapScheme.GC_TIMING_CLOCK));
@@ -522,6 +535,7 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         bitmapWordBoundaryMask = Address.fromInt(1).shiftedLeft(log2BytesCoveredPerBit + Word.widthValue().log2numberOfBits).minus(1).not();
         colorMap = new MemoryRegion("Mark Bitmap");
         markingStack = null;
+        parallelMarker = null;
         rootCellVisitor = null;
         heapRootsScanner = null;
         overflowLinearScanState = null;
@@ -544,6 +558,7 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         this.rootCellVisitor = rootCellVisitor;
         rootCellVisitor.initialize(this);
         heapRootsScanner = new SequentialHeapRootsScanner(rootCellVisitor);
+        parallelMarker = new ParallelHeapMarker(this);
         overflowLinearScanState = new OverflowLinearScanState(this);
         overflowScanWithRescanMapState = new OverflowScanWithRescanMapState(this);
     }
@@ -585,6 +600,9 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
                 overflowScanState = overflowLinearScanState;
             }
             overflowScanState.initialize();
+            if (UseParallelMarking) {
+                parallelMarker.initialize();
+            }
         }
     }
 
@@ -727,6 +745,79 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         return false;
     }
 
+    /**
+     * Atomically set bits of a word of the color map.
+     *
+     * @param wordIndex index of a word of the color map
+     * @param bits bits to set
+     */
+    @INLINE
+    private void atomicSetBits(int wordIndex, long bits) {
+        final Pointer basePointer = base.asPointer();
+        final int offset = wordIndex << Word.widthValue().log2numberOfBytes;
+        long bitmapWord;
+        do {
+            bitmapWord = basePointer.getLong(wordIndex);
+        } while (basePointer.compareAndSwapLong(offset, bitmapWord, bitmapWord | bits) != bitmapWord);
+    }
+
+    /**
+     * Paint grey a white cell. Safe for use by multiple concurrent markers: exactly one of the markers racing for
+     * the same white cell will succeed.
+     * When the color spans two words of the color map, the cell is claimed with its first bit and looks
+     * momentarily black to other markers. The method has no safepoint polls so that a marker running concurrently with
+     * mutators (see {@link ConcurrentHeapMarker}) can't be stopped for GC with such a half-painted cell.
+     *
+     * @param cell a cell in the covered area
+     * @return true if the cell was white and painted grey by this call, false otherwise.
+     */
+    @NO_SAFEPOINT_POLLS("a cell must not be left half-painted at a safepoint")
+    final boolean markGreyIfWhiteAtomic(Pointer cell) {
+        final int bitIndex = bitIndexOf(cell);
+        final Pointer basePointer = base.asPointer();
+        final int wordIndex = bitmapWordIndex(bitIndex);
+        final int offset = wordIndex << Word.widthValue().log2numberOfBytes;
+        final long blackBit = bitmaskFor(bitIndex);
+        final long bits = colorSpanWords(bitIndex) ? blackBit : GREY << bitIndexInWord(bitIndex);
+        long bitmapWord;
+        do {
+            bitmapWord = basePointer.getLong(wordIndex);
+            if ((bitmapWord & blackBit) != 0L) {
+                return false;
+            }
+        } while (basePointer.compareAndSwapLong(offset, bitmapWord, bitmapWord | bits) != bitmapWord);
+        if (colorSpanWords(bitIndex)) {
+            atomicSetBits(wordIndex + 1, 1L);
+        }
+        traceGreyMark(cell, bitIndex);
+        return true;
+    }
+
+    /**
+     * Paint black a grey cell. Safe for use by multiple concurrent markers: exactly one of the markers racing for
+     * the same grey cell will succeed, and is thereby responsible for visiting the cell's references.
+     *
+     * @param cell a cell in the covered area
+     * @return true if the cell was grey and painted black by this call, false otherwise.
+     */
+    final boolean markBlackFromGreyAtomic(Pointer cell) {
+        final int bitIndex = bitIndexOf(cell);
+        final int greyBitIndex = bitIndex + 1;
+        final Pointer basePointer = base.asPointer();
+        final int wordIndex = bitmapWordIndex(greyBitIndex);
+        final int offset = wordIndex << Word.widthValue().log2numberOfBytes;
+        final long greyBit = bitmaskFor(greyBitIndex);
+        long bitmapWord;
+        do {
+            bitmapWord = basePointer.getLong(wordIndex);
+            if ((bitmapWord & greyBit) == 0L) {
+                return false;
+            }
+        } while (basePointer.compareAndSwapLong(offset, bitmapWord, bitmapWord & ~greyBit) != bitmapWord);
+        traceBlackMark(cell, bitIndex);
+        return true;
+    }
+
     @INLINE
     final void markBlackFromGrey(int bitIndex) {
         final Pointer basePointer = base.asPointer();
@@ -1263,7 +1354,11 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
     private final SequentialHeapRootsScanner heapRootsScanner;
 
     void markBootHeap() {
-        Heap.bootHeapRegion.visitReferences(rootCellVisitor);
+        if (rootCellVisitor.discoverSpecialReferences) {
+            Heap.bootHeapRegion.visitReferences(rootCellVisitor);
+        } else {
+            Heap.bootHeapRegion.visitReferences(0, Heap.bootHeapRegion.referenceMapWords(), rootCellVisitor);
+        }
     }
 
 
@@ -1335,6 +1430,122 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         markPhase.traceEnd(traceGCPhases);
     }
 
+    /**
+     * Initial marking of a {@linkplain ConcurrentHeapMarker concurrent marking}: clear the color map and mark roots grey.
+     * Special references aren't discovered, since they can't be processed before the remark.
+     */
+    void markRootsForConcurrentMarking() {
+        markingStack.reset();
+        clearColorMap();
+        rootCellVisitor.discoverSpecialReferences = false;
+        markRoots();
+        rootCellVisitor.discoverSpecialReferences = true;
+        markPhase = MARK_PHASE.DONE;
+    }
+
+    /**
+     * Find the rightmost marked cell of the covered area, or the start of the covered area if there are no marks.
+     * Since a black mark is always followed by a clear bit, the rightmost set bit of the color map is either the lead bit of a
+     * black cell or the second bit of a grey cell. Which one is told by the parity of the run of set bits that ends there:
+     * all the cells marked in the run but the last one are black and contribute a single bit, and the last one contributes one
+     * bit if black, or two if grey.
+     */
+    private Address rightmostMarkedCell() {
+        final Pointer colorMapBase = base.asPointer();
+        int bitmapWordIndex = bitmapWordIndex(coveredAreaEnd.minus(1));
+        while (bitmapWordIndex >= 0) {
+            final long bitmapWord = colorMapBase.getLong(bitmapWordIndex);
+            if (bitmapWord != 0L) {
+                final int lastSetBitIndex = (bitmapWordIndex << Word.widthValue().log2numberOfBits) + Pointer.fromLong(bitmapWord).mostSignificantBitSet();
+                int runLength = 1;
+                while (lastSetBitIndex >= runLength && isSet(lastSetBitIndex - runLength)) {
+                    runLength++;
+                }
+                return addressOf((runLength & 1) == 0 ? lastSetBitIndex - 1 : lastSetBitIndex);
+            }
+            bitmapWordIndex--;
+        }
+        return coveredAreaStart;
+    }
+
+    /**
+     * Remark of a {@linkplain ConcurrentHeapMarker concurrent marking}: mark roots again, then trace all grey objects
+     * left in the heap region ranges, and process special references. On return, the color map can be used for sweeping.
+     * Must be called after the young generation is evacuated.
+     *
+     * @param regionsRanges enumerate ranges of heap regions holding objects to trace
+     */
+    void remark(HeapRegionRangeIterable regionsRanges) {
+        final boolean traceGCPhases = Heap.logGCPhases();
+        traceGCTimes = Heap.logGCTime();
+        if (traceGCTimes) {
+            recoveryScanTimer.reset();
+        }
+        markingStack.reset();
+        overflowScanState.setHeapRegionsRanges(regionsRanges);
+        markRoots();
+
+        // Black cells may lie anywhere, so the scan starts at the first region.
+        regionsRanges.reset();
+        final Address firstRegionStart = coveredAreaStart.plus(Address.fromInt(regionsRanges.next().firstRegion()).shiftedLeft(HeapRegionConstants.log2RegionSizeInBytes));
+        regionsRanges.reset();
+        forwardScanState.rightmost = rightmostMarkedCell();
+        forwardScanState.finger = firstRegionStart;
+        forwardScanState.numMarkinkgStackOverflow = 0;
+        overflowScanState.numMarkinkgStackOverflow = 0;
+
+        markPhase = MARK_PHASE.VISIT_GREY_FORWARD;
+        markPhase.traceBegin(traceGCPhases);
+        startTimer(heapMarkingTimer);
+        visitGreyObjects(regionsRanges);
+        stopTimer(heapMarkingTimer);
+        markPhase.traceEnd(traceGCPhases);
+
+        if (traceGCTimes) {
+            totalRecoveryScanCount += recoveryScanTimer.getCount();
+            totalRecoveryElapsedTime += recoveryScanTimer.getElapsedTime();
+        }
+        FatalError.check(markingStack.isEmpty(), "Marking Stack must be empty after visiting grey objects.");
+        processSpecialReferences(regionsRanges);
+    }
+
+    /**
+     * Mark roots and trace grey objects with the {@link ParallelHeapMarker}. Grey objects left behind by the overflow of
+     * a parallel marking worker's deque are then traced by the serial forward scan, starting from the leftmost of them.
+     * On return, the forward scan state is set as if the serial forward scan had completed.
+     *
+     * @param regionsRanges the heap region ranges holding objects to trace, or null if the covered area is contiguous
+     */
+    private void markInParallel(HeapRegionRangeIterable regionsRanges) {
+        final boolean traceGCPhases = Heap.logGCPhases();
+        rootCellVisitor.reset();
+        markPhase = MARK_PHASE.PARALLEL_MARK;
+        markPhase.traceBegin(traceGCPhases);
+        startTimer(heapMarkingTimer);
+        parallelMarker.markAll();
+        stopTimer(heapMarkingTimer);
+        markPhase.traceEnd(traceGCPhases);
+
+        forwardScanState.rightmost = parallelMarker.rightmost;
+        forwardScanState.numMarkinkgStackOverflow = 0;
+        overflowScanState.numMarkinkgStackOverflow = 0;
+        if (parallelMarker.leftmostOverflowed.isZero()) {
+            forwardScanState.finger = parallelMarker.rightmost;
+            return;
+        }
+        forwardScanState.finger = parallelMarker.leftmostOverflowed;
+        markPhase = MARK_PHASE.VISIT_GREY_FORWARD;
+        markPhase.traceBegin(traceGCPhases);
+        startTimer(heapMarkingTimer);
+        if (regionsRanges == null) {
+            visitGreyObjects();
+        } else {
+            visitGreyObjects(regionsRanges);
+        }
+        stopTimer(heapMarkingTimer);
+        markPhase.traceEnd(traceGCPhases);
+    }
+
     /*
      * Helper instance variables for debugging purposes only.
      * Easier to track than local variables when under the inspector.
@@ -1635,18 +1846,33 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
      * This can server region-based heap as well as contiguous heap, wherein a single region is passed in this case.
      */
     public void sweep(HeapRegionSweeper regionsSweeper, boolean doImprecise) {
-        final Address endOfRightmostLiveObject = endOfCell(forwardScanState.rightmost);
-        do {
-            assert regionsSweeper.hasNextSweepingRegion();
-            regionsSweeper.beginSweep();
-            if (doImprecise) {
-                impreciseRegionSweep(regionsSweeper);
-            } else {
-                preciseRegionSweep(regionsSweeper);
-            }
-            regionsSweeper.endSweep();
-        } while (regionsSweeper.endOfSweepingRegion().lessThan(endOfRightmostLiveObject));
+        while (sweepNextRegion(regionsSweeper, doImprecise)) {
+            // Sweep until the rightmost live region.
+        }
+    }
+
+    /**
+     * Sweep the next region of a region sweeper. This allows the sweeper to sweep regions lazily, i.e., after the end of the GC
+     * that marked them, as long as the color map isn't modified in between.
+     *
+     * @param regionsSweeper the sweeper
+     * @param doImprecise if true, sweep imprecisely
+     * @return true if regions with live objects remain to be swept, false if the sweeper reached the rightmost live region
+     */
+    public boolean sweepNextRegion(HeapRegionSweeper regionsSweeper, boolean doImprecise) {
+        assert regionsSweeper.hasNextSweepingRegion();
+        regionsSweeper.beginSweep();
+        if (doImprecise) {
+            impreciseRegionSweep(regionsSweeper);
+        } else {
+            preciseRegionSweep(regionsSweeper);
+        }
+        regionsSweeper.endSweep();
+        if (regionsSweeper.endOfSweepingRegion().lessThan(endOfCell(forwardScanState.rightmost))) {
+            return true;
+        }
         regionsSweeper.reachedRightmostLiveRegion();
+        return false;
     }
 
     /**
@@ -1784,14 +2010,18 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         FatalError.check(markingStack.isEmpty(), "Marking stack must be empty");
 
         clearColorMap();
-        markRoots();
+        if (UseParallelMarking) {
+            markInParallel(null);
+        } else {
+            markRoots();
 
-        markPhase = MARK_PHASE.VISIT_GREY_FORWARD;
-        markPhase.traceBegin(traceGCPhases);
-        startTimer(heapMarkingTimer);
-        visitGreyObjectsAfterRootMarking();
-        stopTimer(heapMarkingTimer);
-        markPhase.traceEnd(traceGCPhases);
+            markPhase = MARK_PHASE.VISIT_GREY_FORWARD;
+            markPhase.traceBegin(traceGCPhases);
+            startTimer(heapMarkingTimer);
+            visitGreyObjectsAfterRootMarking();
+            stopTimer(heapMarkingTimer);
+            markPhase.traceEnd(traceGCPhases);
+        }
 
         if (traceGCTimes) {
             totalRecoveryScanCount += recoveryScanTimer.getCount();
@@ -1830,14 +2060,18 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         clearColorMap();
         overflowScanState.setHeapRegionsRanges(regionsRanges);
 
-        markRoots();
+        if (UseParallelMarking) {
+            markInParallel(regionsRanges);
+        } else {
+            markRoots();
 
-        markPhase = MARK_PHASE.VISIT_GREY_FORWARD;
-        markPhase.traceBegin(traceGCPhases);
-        startTimer(heapMarkingTimer);
-        visitGreyObjectsAfterRootMarking(regionsRanges);
-        stopTimer(heapMarkingTimer);
-        markPhase.traceEnd(traceGCPhases);
+            markPhase = MARK_PHASE.VISIT_GREY_FORWARD;
+            markPhase.traceBegin(traceGCPhases);
+            startTimer(heapMarkingTimer);
+            visitGreyObjectsAfterRootMarking(regionsRanges);
+            stopTimer(heapMarkingTimer);
+            markPhase.traceEnd(traceGCPhases);
+        }
 
         if (traceGCTimes) {
             totalRecoveryScanCount += recoveryScanTimer.getCount();
@@ -1893,7 +2127,11 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         } else {
             mark(regionsRanges);
         }
+        processSpecialReferences(regionsRanges);
+    }
 
+    private void processSpecialReferences(HeapRegionRangeIterable regionsRanges) {
+        final boolean traceGCPhases = Heap.logGCPhases();
         markPhase = MARK_PHASE.SPECIAL_REF;
         markPhase.traceBegin(traceGCPhases);
         startTimer(weakRefTimer);
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.oracle.max.cri.intrinsics.*;
+import com.sun.max.annotate.*;
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.reference.*;
+
+/**
+ * Fixed-size work-stealing deque of words for parallel GC tasks (after Chase and Lev, SPAA 2005, without growing).
+ * The owner of the deque pushes and pops at the bottom; other GC workers steal from the top.
+ * Pushing to a full deque fails: the caller is responsible for recording the overflowed work somewhere else
+ * (e.g., leaving it grey in a mark bitmap).
+ * <p>
+ * The backing storage is allocated outside of the heap, like the {@link MarkingStack}'s.
+ */
+public final class WorkStealingDeque {
+    private Pointer storage = Pointer.zero();
+    private int mask;
+
+    /**
+     * Index of the next slot to steal from. Only ever increases, and only via compare-and-swap.
+     */
+    private volatile int top;
+
+    /**
+     * Index of the next slot the owner pushes to.
+     */
+    private volatile int bottom;
+
+    @FOLD
+    private static int topOffset() {
+        return ClassActor.fromJava(WorkStealingDeque.class).findLocalInstanceFieldActor("top").offset();
+    }
+
+    public WorkStealingDeque() {
+    }
+
+    /**
+     * Allocate the backing storage of the deque.
+     * @param capacity number of words the deque can hold; rounded up to a power of 2
+     */
+    public void initialize(int capacity) {
+        int length = Integer.highestOneBit(capacity);
+        if (length < capacity) {
+            length <<= 1;
+        }
+        final Size size = Size.fromInt(length).shiftedLeft(Word.widthValue().log2numberOfBytes);
+        storage = Memory.allocate(size);
+        if (storage.isZero()) {
+            MaxineVM.reportPristineMemoryFailure("work stealing deque", "allocate", size);
+        }
+        mask = length - 1;
+        top = 0;
+        bottom = 0;
+    }
+
+    public boolean isInitialized() {
+        return !storage.isZero();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Approximation of the emptiness of the deque, as seen by thieves.
+     */
+    public boolean isEmpty() {
+        return bottom - top <= 0;
+    }
+
+    /**
+     * Reset the deque. Must only be called when no other thread accesses it.
+     */
+    public void reset() {
+        top = 0;
+        bottom = 0;
+    }
+
+    /**
+     * Push a word at the bottom of the deque. Only called by the owner of the deque.
+     * @param word the word to push
+     * @return false if the deque is full, true otherwise
+     */
+    public boolean push(Word word) {
+        final int b = bottom;
+        if (b - top >= mask) {
+            return false;
+        }
+        storage.setWord(b & mask, word);
+        MemoryBarriers.barrier(MemoryBarriers.STORE_STORE);
+        bottom = b + 1;
+        return true;
+    }
+
+    /**
+     * Pop a word from the bottom of the deque. Only called by the owner of the deque.
+     * @return the popped word, or zero if the deque is empty
+     */
+    public Pointer pop() {
+        final int b = bottom - 1;
+        bottom = b;
+        MemoryBarriers.barrier(MemoryBarriers.STORE_LOAD);
+        final int t = top;
+        if (b - t < 0) {
+            bottom = t;
+            return Pointer.zero();
+        }
+        Pointer word = storage.getWord(b & mask).asPointer();
+        if (b - t > 0) {
+            return word;
+        }
+        // Last element: race against thieves for it.
+        if (Reference.fromJava(this).compareAndSwapInt(topOffset(), t, t + 1) != t) {
+            word = Pointer.zero();
+        }
+        bottom = t + 1;
+        return word;
+    }
+
+    /**
+     * Steal a word from the top of the deque. May be called by any thread.
+     * @return the stolen word, or zero if the deque was empty or if the steal lost a race with another thread
+     */
+    public Pointer steal() {
+        final int t = top;
+        MemoryBarriers.barrier(MemoryBarriers.LOAD_LOAD);
+        final int b = bottom;
+        if (b - t <= 0) {
+            return Pointer.zero();
+        }
+        final Pointer word = storage.getWord(t & mask).asPointer();
+        if (Reference.fromJava(this).compareAndSwapInt(topOffset(), t, t + 1) != t) {
+            return Pointer.zero();
+        }
+        return word;
+    }
+}
@@ -59,9 +59,22 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
      */
     static int YoungGenHeapPercent = 30;
     static Size ELABSize = Size.K.times(64);
+    static boolean UseConcurrentMarking = false;
+    static int ConcurrentMarkingInitiatingOccupancy = 45;
+    static boolean UseAgingNursery = false;
+    static int SurvivorRatio = 8;
+    static boolean UseAdaptiveSizePolicy = false;
     static {
         VMOptions.addFieldOption("-XX:", "YoungGenHeapPercent", GenMSEHeapScheme.class, "Fixed percentage of heap size that must be used by young gen", Phase.PRISTINE);
         VMOptions.addFieldOption("-XX:", "ELABSize", GenMSEHeapScheme.class, "Size of evacuation buffers for young gen evacuation to old gen", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "UseConcurrentMarking", GenMSEHeapScheme.class, "Mark the old generation concurrently with the application", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "ConcurrentMarkingInitiatingOccupancy", GenMSEHeapScheme.class,
+                        "Percentage of old generation space in use that starts a concurrent marking", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "UseAgingNursery", GenMSEHeapScheme.class,
+                        "Keep young objects in survivor spaces until they reach a tenuring threshold instead of promoting them at their first minor collection", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "SurvivorRatio", GenMSEHeapScheme.class, "Ratio of eden size to the size of one survivor space", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "UseAdaptiveSizePolicy", GenMSEHeapScheme.class,
+                        "Resize the generations between collections to meet pause time and throughput goals", Phase.PRISTINE);
     }
 
     public enum GenMSEHeapRegionTag {
@@ -96,15 +109,31 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
      */
     private GenHeapSizingPolicy heapResizingPolicy;
 
+    /**
+     * The {@link #heapResizingPolicy} when {@link #UseAdaptiveSizePolicy} is enabled, null otherwise.
+     */
+    private AdaptiveGenHeapSizingPolicy adaptiveSizingPolicy;
+
     /**
      * Card-table based remembered set for the nursery.
      */
     @INSPECTED
     private final CardTableRSet cardTableRSet;
+    /**
+     * Young generation made of the {@link #youngSpace} and of two survivor spaces. Used instead of the {@link #youngSpace} alone when {@link #UseAgingNursery} is enabled.
+     */
+    private final AgingNursery agingNursery;
+
     /**
      * Implementation of young space evacuation. Used by minor collection operations.
+     * Set to the {@link #agingNurseryEvacuator} when {@link #UseAgingNursery} is enabled.
+     */
+    private NoAgingNurseryEvacuator youngSpaceEvacuator;
+
+    /**
+     * Evacuator of the {@link #agingNursery}.
      */
-    private final NoAgingNurseryEvacuator youngSpaceEvacuator;
+    private final AgingNurseryEvacuator agingNurseryEvacuator;
 
     /**
      * Operation to submit to the {@link VmOperationThread} to perform a generational collection.
@@ -116,6 +145,16 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
      */
     private final TricolorHeapMarker heapMarker;
 
+    /**
+     * Concurrent marking of the old generation, used instead of the stop-the-world marking when {@link #UseConcurrentMarking} is enabled.
+     */
+    private final ConcurrentHeapMarker concurrentMarker;
+
+    /**
+     * Cleaning of the old generation's dirty cards concurrently with mutators, when {@link ConcurrentCardRefiner#isEnabled()}.
+     */
+    private final ConcurrentCardRefiner concurrentCardRefiner;
+
     /**
      * Support for heap verification.
      */
@@ -136,6 +175,13 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
 
         oldSpace = new FirstFitMarkSweepSpace<GenMSEHeapScheme>(heapAccount, tlabAllocator, overflowAllocator, true, cardTableRSet, OLD.tag());
         youngSpaceEvacuator = new NoAgingNurseryEvacuator(youngSpace, oldSpace, this, cardTableRSet, "Young");
+        agingNursery = new AgingNursery(youngSpace, heapAccount, YOUNG.tag());
+        agingNurseryEvacuator = new AgingNurseryEvacuator(agingNursery, oldSpace, this, cardTableRSet, "Young");
+        final EvacuationTimers evacTimers = new EvacuationTimers();
+        youngSpaceEvacuator.setTimers(evacTimers);
+        agingNurseryEvacuator.setTimers(evacTimers);
+        concurrentMarker = new ConcurrentHeapMarker(heapMarker, oldSpace, cardTableRSet);
+        concurrentCardRefiner = new ConcurrentCardRefiner(cardTableRSet, oldSpace, concurrentMarker);
         noYoungReferencesVerifier = new NoEvacuatedSpaceReferenceVerifier(cardTableRSet, youngSpace);
         fotVerifier = new FOTVerifier(cardTableRSet);
         genCollection = new GenCollection();
@@ -145,6 +191,15 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
     public void initialize(MaxineVM.Phase phase) {
         super.initialize(phase);
         cardTableRSet.initialize(phase);
+        if (phase == MaxineVM.Phase.RUNNING && UseConcurrentMarking) {
+            concurrentMarker.start();
+        }
+        if (phase == MaxineVM.Phase.RUNNING && ConcurrentCardRefiner.isEnabled()) {
+            concurrentCardRefiner.start(UseAgingNursery ? agingNursery : youngSpace);
+        }
+        if (phase == MaxineVM.Phase.RUNNING && adaptiveSizingPolicy != null) {
+            adaptiveSizingPolicy.start();
+        }
     }
 
     /**
@@ -220,6 +275,14 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
                 }
             }
             heapMarker.initialize(heapBounds.start(), heapBounds.end(), heapMarkerDataStart, heapMarkerDatasize);
+            if (UseAgingNursery && UseConcurrentMarking) {
+                // Concurrent marking starts and ends with an empty young generation, which survivor spaces defeat.
+                Log.println("Concurrent marking is not supported with an aging nursery: disabling it");
+                UseConcurrentMarking = false;
+            }
+            if (UseConcurrentMarking) {
+                concurrentMarker.initialize();
+            }
 
             // Free reserved space we will not be using.
             Size leftoverSize = endOfReservedSpace.minus(unusedReservedSpaceStart).asSize();
@@ -234,11 +297,21 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
                 MaxineVM.reportPristineMemoryFailure("reserved space leftover", "deallocate", leftoverSize);
             }
 
-            heapResizingPolicy = new FixedRatioGenHeapSizingPolicy(initSize, maxSize, YoungGenHeapPercent, log2RegionSizeInBytes);
+            if (UseAdaptiveSizePolicy) {
+                adaptiveSizingPolicy = new AdaptiveGenHeapSizingPolicy(initSize, maxSize, YoungGenHeapPercent, log2RegionSizeInBytes);
+                heapResizingPolicy = adaptiveSizingPolicy;
+            } else {
+                heapResizingPolicy = new FixedRatioGenHeapSizingPolicy(initSize, maxSize, YoungGenHeapPercent, log2RegionSizeInBytes);
+            }
             if (!heapAccount().open(numberOfRegions(applicationHeapMaxSize))) {
                 FatalError.unexpected("Failed to create application heap");
             }
-            youngSpace.initialize(heapResizingPolicy);
+            if (UseAgingNursery) {
+                agingNursery.initialize(heapResizingPolicy, SurvivorRatio);
+                youngSpaceEvacuator = agingNurseryEvacuator;
+            } else {
+                youngSpace.initialize(heapResizingPolicy);
+            }
             oldSpace.initialize(heapResizingPolicy.initialOldGenSize(), heapResizingPolicy.maxOldGenSize());
 
             // FIXME: the capacity of the survivor range queues should be dynamic. Its upper bound could be computed based on the
@@ -298,22 +371,102 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
 
         /**
          * Perform old generation collection. This is done after the young generation has been fully evacuated.
+         *
+         * @param remark if true, complete the concurrent marking in progress, otherwise mark the old generation from scratch
          */
-        private void doOldGenCollection() {
+        private void doOldGenCollection(boolean remark) {
             youngSpaceEvacuator.doBeforeGC();
             youngSpace.doBeforeGC();
             oldSpace.doBeforeGC();
             regionsRangeIterable.initialize(heapAccount.committedRegions());
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.ANALYZING);
-            heapMarker.markAll(regionsRangeIterable);
+            if (UseConcurrentMarking) {
+                youngSpaceEvacuator.setEvacuatedCellMarker(null);
+                if (remark) {
+                    concurrentMarker.remark(regionsRangeIterable);
+                } else {
+                    concurrentMarker.abort();
+                    heapMarker.markAll(regionsRangeIterable);
+                }
+            } else {
+                heapMarker.markAll(regionsRangeIterable);
+            }
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.RECLAIMING);
-            oldSpace.sweep(heapMarker, false);
+            // Sweep at least enough to accommodate the next nursery evacuation. Regions left unswept are swept on demand.
+            oldSpace.sweep(heapMarker, false, youngSpace.totalSpace());
             oldSpace.doAfterGC();
             youngSpaceEvacuator.doAfterGC();
             fullCollectionCount++;
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.MUTATING);
         }
 
+        /**
+         * Worst case amount of space a minor collection evacuates to the old generation.
+         */
+        private Size worstCaseEvacuation() {
+            final Size worstCaseEvac = youngSpace.totalSpace();
+            if (UseAgingNursery) {
+                // All survivors may be promoted at the next evacuation.
+                return worstCaseEvac.plus(agingNursery.survivorSpaceSize());
+            }
+            return worstCaseEvac;
+        }
+
+        /**
+         * Resize the generations as decided by the {@link #adaptiveSizingPolicy}. Must be called at the end of a collection,
+         * when the young generation is empty. The old generation is never left with less free space than the worst case evacuation.
+         */
+        private void resizeGenerations() {
+            final Size youngGenSize = youngSpace.totalSpace();
+            final Size desiredYoungGenSize = adaptiveSizingPolicy.desiredYoungGenSize(youngGenSize);
+            if (desiredYoungGenSize.greaterThan(youngGenSize)) {
+                final Size growth = desiredYoungGenSize.minus(youngGenSize);
+                if (oldSpace.freeSpace().greaterEqual(worstCaseEvacuation().plus(growth))) {
+                    youngSpace.increaseSize(growth);
+                }
+            } else if (desiredYoungGenSize.lessThan(youngGenSize)) {
+                youngSpace.decreaseSize(youngGenSize.minus(desiredYoungGenSize));
+            }
+
+            if (adaptiveSizingPolicy.isIdle()) {
+                // Only swept regions can be given up.
+                oldSpace.completeSweep();
+            }
+            final Size oldGenSize = oldSpace.totalSpace();
+            final Size desiredOldGenSize = adaptiveSizingPolicy.desiredOldGenSize(oldGenSize, oldSpace.usedSpace());
+            if (desiredOldGenSize.greaterThan(oldGenSize)) {
+                oldSpace.increaseSize(desiredOldGenSize.minus(oldGenSize));
+            } else if (desiredOldGenSize.lessThan(oldGenSize)) {
+                final Size freeSpace = oldSpace.freeSpace();
+                final Size worstCaseEvac = worstCaseEvacuation();
+                if (freeSpace.greaterThan(worstCaseEvac)) {
+                    Size shrinkage = oldGenSize.minus(desiredOldGenSize);
+                    final Size maxShrinkage = freeSpace.minus(worstCaseEvac);
+                    if (shrinkage.greaterThan(maxShrinkage)) {
+                        shrinkage = maxShrinkage;
+                    }
+                    oldSpace.decreaseSize(shrinkage);
+                }
+            }
+            adaptiveSizingPolicy.notifyResized();
+        }
+
+        private boolean isOldGenOccupancyAboveThreshold() {
+            return oldSpace.usedSpace().times(100).greaterEqual(oldSpace.totalSpace().times(ConcurrentMarkingInitiatingOccupancy));
+        }
+
+        private boolean shouldStartConcurrentMarking() {
+            if (!UseConcurrentMarking || concurrentMarker.isActive() || !isOldGenOccupancyAboveThreshold()) {
+                return false;
+            }
+            if (oldSpace.hasUnsweptRegions()) {
+                // Unswept regions inflate the occupancy. They must be swept before marking anyway, so sweep them and check again.
+                oldSpace.completeSweep();
+                return isOldGenOccupancyAboveThreshold();
+            }
+            return true;
+        }
+
         @Override
         protected void collect(int invocationCount) {
             // Collector proceeds as follows:
@@ -326,14 +479,23 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
             // This requires evacuating all of its objects somehow. Rather that doing a full GC covering both
             // the old and young gen and somehow reclaim enough regions for a fresh nursery, we just perform a nursery evacuation.
             // The full GC is thereafter just a old gen GC with an empty young gen.
+            if (adaptiveSizingPolicy != null) {
+                adaptiveSizingPolicy.notifyGCStart();
+            }
             VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
             vmConfig().monitorScheme().beforeGarbageCollection();
             if (Heap.verbose()) {
                 Log.println("--Begin nursery evacuation");
             }
+            if (UseConcurrentMarking) {
+                // Must be done before the evacuation cleans the cards.
+                concurrentMarker.rescanDirtyCards();
+            }
             youngSpaceEvacuator.setGCOperation(this);
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.ANALYZING);
+            final long minorStartNanos = System.nanoTime();
             youngSpaceEvacuator.evacuate(Heap.logGCPhases());
+            final long minorPauseNanos = System.nanoTime() - minorStartNanos;
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.RECLAIMING);
             youngSpaceEvacuator.setGCOperation(null);
             if (Heap.verbose()) {
@@ -342,14 +504,33 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
             if (VerifyAfterGC) {
                 verifyAfterEvacuation();
             }
-            Size worstCaseEvac = youngSpace.totalSpace();
+            Size worstCaseEvac = worstCaseEvacuation();
+            // An idle heap is fully collected so that the old generation can give up all the space it doesn't need.
+            final boolean idle = adaptiveSizingPolicy != null && adaptiveSizingPolicy.isIdle();
+            boolean fullGC = false;
             Size freeSpace = oldSpace.freeSpace();
+            if (worstCaseEvac.greaterThan(freeSpace) && oldSpace.hasUnsweptRegions()) {
+                oldSpace.sweepUntil(worstCaseEvac);
+                freeSpace = oldSpace.freeSpace();
+            }
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.MUTATING);
-            if (worstCaseEvac.greaterThan(freeSpace)) {
+            if (UseConcurrentMarking && concurrentMarker.isReadyForRemark()) {
+                if (Heap.verbose()) {
+                    Log.println("--Begin old generation remark");
+                }
+                doOldGenCollection(true);
+                if (Heap.verbose()) {
+                    Log.println("--End   old generation remark");
+                }
+                freeSpace = oldSpace.freeSpace();
+            }
+            // A full collection also aborts a concurrent marking whose thread requested it.
+            if (worstCaseEvac.greaterThan(freeSpace) || idle || (UseConcurrentMarking && concurrentMarker.isAbortRequested())) {
                 if (Heap.verbose()) {
                     Log.println("--Begin old geneneration collection");
                 }
-                doOldGenCollection();
+                doOldGenCollection(false);
+                fullGC = true;
                 if (Heap.verbose()) {
                     Log.println("--End   old geneneration collection");
                 }
@@ -358,10 +539,31 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
                     verifyAfterEvacuation();
                 }
                 freeSpace = oldSpace.freeSpace();
+                if (worstCaseEvac.greaterThan(freeSpace) && oldSpace.hasUnsweptRegions()) {
+                    oldSpace.sweepUntil(worstCaseEvac);
+                    freeSpace = oldSpace.freeSpace();
+                }
+                if (worstCaseEvac.greaterThan(freeSpace)) {
+                    // Grow the old generation, then shrink the young generation, to cover the worst case evacuation.
+                    oldSpace.increaseSize(worstCaseEvac.minus(freeSpace));
+                    freeSpace = oldSpace.freeSpace();
+                    if (worstCaseEvac.greaterThan(freeSpace)) {
+                        youngSpace.decreaseSize(worstCaseEvac.minus(freeSpace));
+                        worstCaseEvac = worstCaseEvacuation();
+                    }
+                }
                 if (worstCaseEvac.greaterThan(freeSpace)) {
-                    // TODO: 3 and 4.
+                    // TODO: 4.
                     FatalError.unimplemented();
                 }
+            } else if (shouldStartConcurrentMarking()) {
+                // The young generation is empty: start a concurrent marking of the old generation.
+                concurrentMarker.initialMark();
+                youngSpaceEvacuator.setEvacuatedCellMarker(heapMarker);
+            }
+            if (adaptiveSizingPolicy != null) {
+                adaptiveSizingPolicy.notifyGCEnd(fullGC, minorPauseNanos);
+                resizeGenerations();
             }
             final GCRequest gcRequest = callingThread().gcRequest;
             gcRequest.lastInvocationCount = invocationCount;
@@ -386,7 +588,8 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
 
     @Override
     public Size reportUsedSpace() {
-        return oldSpace.usedSpace().plus(youngSpace.usedSpace());
+        final Size usedSpace = oldSpace.usedSpace().plus(youngSpace.usedSpace());
+        return UseAgingNursery ? usedSpace.plus(agingNursery.survivorUsedSpace()) : usedSpace;
     }
 
     @Override
@@ -422,6 +625,11 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
         cardTableRSet.record(ref, displacement, index);
     }
 
+    @Override
+    public void postWriteBarrierRange(Reference ref, int displacement, int index, int length) {
+        cardTableRSet.record(ref, displacement, index, length);
+    }
+
     /**
      * Allocate a chunk of memory of the specified size and refill a thread's TLAB with it.
      * @param etla the thread whose TLAB will be refilled
@@ -34,6 +34,7 @@ import com.sun.max.vm.*;
 import com.sun.max.vm.MaxineVM.Phase;
 import com.sun.max.vm.code.*;
 import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.debug.*;
 import com.sun.max.vm.heap.gcx.*;
 import com.sun.max.vm.heap.gcx.rset.*;
 import com.sun.max.vm.layout.*;
@@ -50,10 +51,21 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
     static boolean DumpFragStatsAfterGC = false;
     static boolean DumpFragStatsAtGCFailure = false;
     static boolean DoImpreciseSweep = false;
+    static boolean EvacuationCompaction = false;
+    static int MaxCompactionPauseMillis = 10;
+    static int CompactionLiveThreshold = 50;
+    static boolean TraceCompaction = false;
     static {
         VMOptions.addFieldOption("-XX:", "DumpFragStatsAfterGC", MSEHeapScheme.class, "Dump region fragmentation stats after GC", Phase.PRISTINE);
         VMOptions.addFieldOption("-XX:", "DumpFragStatsAtGCFailure", MSEHeapScheme.class, "Dump region fragmentation when GC failed to reclaim enough space", Phase.PRISTINE);
         VMOptions.addFieldOption("-XX:", "DoImpreciseSweep", MSEHeapScheme.class, "Control whether to do precise or imprecise sweep", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "EvacuationCompaction", MSEHeapScheme.class,
+                        "Compact the heap after sweeping by evacuating its sparsest regions and releasing them", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "MaxCompactionPauseMillis", MSEHeapScheme.class,
+                        "Pause time budget for evacuation compaction, in milliseconds", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "CompactionLiveThreshold", MSEHeapScheme.class,
+                        "Maximum percentage of live data of a region evacuated by compaction", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "TraceCompaction", MSEHeapScheme.class, "Trace evacuation compaction", Phase.PRISTINE);
     }
 
     /**
@@ -66,7 +78,34 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
      */
     private final FirstFitMarkSweepSpace<MSEHeapScheme> markSweepSpace;
 
-    private final AtomicPinCounter pinnedCounter = MaxineVM.isDebug() ? new AtomicPinCounter() : null;
+    /**
+     * Count of pinned objects. Maintained in debug mode, and when {@link #EvacuationCompaction} is enabled as objects may only be
+     * relocated when none is pinned.
+     */
+    private final AtomicPinCounter pinnedCounter = new AtomicPinCounter();
+
+    /**
+     * Evacuator used to compact the {@link #markSweepSpace} when {@link #EvacuationCompaction} is enabled.
+     */
+    private final RegionEvacuator regionEvacuator;
+
+    /**
+     * Region statistics used to select the regions evacuated by compaction.
+     */
+    private HeapRegionStatistics compactionStats;
+
+    /**
+     * Estimated compaction rate, in bytes evacuated per millisecond. Used to bound the amount of live data evacuated
+     * to the {@link #MaxCompactionPauseMillis} budget. Starts conservatively, then tracks the rate observed by past compactions.
+     */
+    private long compactionBytesPerMillis = 32 * 1024;
+
+    /**
+     * Estimated rate, in bytes per millisecond, at which compaction scans the regions that aren't evacuated for references to
+     * the evacuated ones. Every committed region of the space is scanned whatever the number of evacuated regions, so this cost is
+     * deducted from the {@link #MaxCompactionPauseMillis} budget first. Tracks the rate observed by past compactions.
+     */
+    private long compactionScanBytesPerMillis = 1024 * 1024;
 
     final MarkSweepCollection collect = new MarkSweepCollection();
 
@@ -94,6 +133,11 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
         markSweepSpace = new FirstFitMarkSweepSpace<MSEHeapScheme>(heapAccount, tlabAllocator, overflowAllocator, false, NullDeadSpaceListener.nullDeadSpaceListener(), 0);
         heapMarker = new TricolorHeapMarker(WORDS_COVERED_PER_BIT, new HeapAccounRootCellVisitor(this));
         afterGCVerifier = new AfterMarkSweepVerifier(heapMarker, markSweepSpace, AfterMarkSweepBootHeapVerifier.makeVerifier(heapMarker, this));
+        regionEvacuator = new RegionEvacuator(markSweepSpace, heapMarker);
+        regionEvacuator.setTimers(new EvacuationTimers());
+        if (MaxineVM.isDebug()) {
+            regionEvacuator.setDetailLogger(new DebugHeap.DetailLogger());
+        }
         pinningSupportFlags = PIN_SUPPORT_FLAG.makePinSupportFlags(true, false, true);
     }
 
@@ -156,6 +200,10 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
             if (DumpFragStatsAfterGC || DumpFragStatsAtGCFailure) {
                 fragmentationStats = new HeapRegionStatistics(markSweepSpace.minReclaimableSpace());
             }
+            if (EvacuationCompaction) {
+                compactionStats = new HeapRegionStatistics(markSweepSpace.minReclaimableSpace());
+                regionEvacuator.initialize();
+            }
             // Free leftover of reserved space we will not be using.
             Size leftoverSize = endOfReservedSpace.minus(unusedReservedSpaceStart).asSize();
             if (VirtualMemory.deallocate(unusedReservedSpaceStart, leftoverSize, VirtualMemory.Type.DATA).isZero()) {
@@ -241,8 +289,8 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
 
     @INLINE
     public boolean pin(Object object) {
-        // Objects never relocate. So this is always safe.
-        if (MaxineVM.isDebug()) {
+        // Objects only relocate during compaction, which is skipped while objects are pinned. So this is always safe.
+        if (MaxineVM.isDebug() || EvacuationCompaction) {
             pinnedCounter.increment();
         }
         return true;
@@ -250,7 +298,7 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
 
     @INLINE
     public void unpin(Object object) {
-        if (MaxineVM.isDebug()) {
+        if (MaxineVM.isDebug() || EvacuationCompaction) {
             pinnedCounter.decrement();
         }
     }
@@ -311,6 +359,74 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
 
         private HeapResizingPolicy heapResizingPolicy = new HeapResizingPolicy();
 
+        /**
+         * Evacuate the sparsest regions of the mark-sweep space, within the {@link #MaxCompactionPauseMillis} budget,
+         * and return them to the heap region manager. Skipped if any object is pinned, or if the scan of the space for
+         * references to the evacuated regions alone is estimated to exceed the budget.
+         */
+        private void compact() {
+            if (pinnedCounter.value() > 0) {
+                if (TraceCompaction) {
+                    Log.println("Compaction skipped: pinned objects");
+                }
+                return;
+            }
+            final long committedBytes = (long) markSweepSpace.heapAccount().committedRegions().size() << HeapRegionConstants.log2RegionSizeInBytes;
+            final long scanMillis = committedBytes / compactionScanBytesPerMillis;
+            if (scanMillis >= MaxCompactionPauseMillis) {
+                if (TraceCompaction) {
+                    final boolean lockDisabledSafepoints = Log.lock();
+                    Log.print("Compaction skipped: scanning ");
+                    Log.print(committedBytes);
+                    Log.print(" bytes is estimated to take ");
+                    Log.print(scanMillis);
+                    Log.println(" ms");
+                    Log.unlock(lockDisabledSafepoints);
+                }
+                return;
+            }
+            final long liveBytesBudget = compactionBytesPerMillis * (MaxCompactionPauseMillis - scanMillis);
+            final int maxLiveBytes = (HeapRegionConstants.regionSizeInBytes / 100) * Math.min(CompactionLiveThreshold, 90);
+            final int numEvacuatedRegions = markSweepSpace.selectEvacuatedRegions(compactionStats, regionEvacuator.collectionSet(), maxLiveBytes, liveBytesBudget);
+            if (numEvacuatedRegions == 0) {
+                return;
+            }
+            final long start = System.nanoTime();
+            regionEvacuator.setGCOperation(this);
+            regionEvacuator.evacuate(false);
+            regionEvacuator.setGCOperation(null);
+            final long elapsedNanos = System.nanoTime() - start;
+            final long evacuatedBytes = regionEvacuator.evacuatedBytes();
+            final long scannedBytes = regionEvacuator.scannedBytes();
+            final long scanNanos = regionEvacuator.scanNanos();
+            final long copyNanos = elapsedNanos - scanNanos;
+            if (evacuatedBytes > 0L && copyNanos > 0L) {
+                final long observedBytesPerMillis = Math.max(1L, (evacuatedBytes * 1000000L) / copyNanos);
+                compactionBytesPerMillis = (compactionBytesPerMillis + observedBytesPerMillis) / 2;
+            }
+            if (scannedBytes > 0L && scanNanos > 0L) {
+                final long observedScanBytesPerMillis = Math.max(1L, (scannedBytes * 1000000L) / scanNanos);
+                compactionScanBytesPerMillis = (compactionScanBytesPerMillis + observedScanBytesPerMillis) / 2;
+            }
+            if (TraceCompaction) {
+                final boolean lockDisabledSafepoints = Log.lock();
+                Log.print("Compaction released ");
+                Log.print(numEvacuatedRegions);
+                Log.print(" regions, evacuated ");
+                Log.print(evacuatedBytes);
+                Log.print(" bytes in ");
+                Log.print(elapsedNanos / 1000L);
+                Log.print(" us (scanned ");
+                Log.print(scannedBytes);
+                Log.print(" bytes in ");
+                Log.print(scanNanos / 1000L);
+                Log.print(" us), budget ");
+                Log.print(liveBytesBudget);
+                Log.println(" bytes");
+                Log.unlock(lockDisabledSafepoints);
+            }
+        }
+
         @Override
         protected void collect(int invocationCount) {
             final boolean traceGCPhases = Heap.logGCPhases();
@@ -334,8 +450,8 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
                 Log.println("BEGIN: Sweeping");
             }
             startTimer(reclaimTimer);
-            markSweepSpace.sweep(heapMarker, DoImpreciseSweep);
-            Size freeSpaceAfterGC = markSweepSpace.freeSpace();
+            // With lazy sweeping, only sweep what's needed to make the heap resizing decision.
+            markSweepSpace.sweep(heapMarker, DoImpreciseSweep, heapResizingPolicy.minFreeSpaceAfterGC(markSweepSpace));
             stopTimer(reclaimTimer);
             if (traceGCPhases) {
                 Log.println("END: Sweeping");
@@ -344,6 +460,11 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
             if (VerifyAfterGC) {
                 afterGCVerifier.run();
             }
+            if (EvacuationCompaction) {
+                // Must be done after verification, as evacuated objects aren't marked.
+                compact();
+            }
+            Size freeSpaceAfterGC = markSweepSpace.freeSpace();
             vmConfig().monitorScheme().afterGarbageCollection();
 
             heapResizingPolicy.resizeAfterCollection(freeSpaceAfterGC, markSweepSpace);
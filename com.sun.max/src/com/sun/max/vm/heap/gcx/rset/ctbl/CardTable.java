@@ -24,6 +24,7 @@ package com.sun.max.vm.heap.gcx.rset.ctbl;
 
 import static com.sun.max.vm.heap.gcx.rset.ctbl.CardState.*;
 
+import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
 /**
  * Card table implementation, when cards can have two states only: clean and dirty (@see {@link CardState}).
@@ -96,6 +97,20 @@ public final class CardTable extends  Log2RegionToByteMapTable {
         unsafeSet(coveredAddress, DIRTY_CARD.value());
     }
 
+    /**
+     * Dirty the entries in the card table corresponding to all the cards overlapping a range of covered heap addresses.
+     * @param start first address of the range (inclusive)
+     * @param end last address of the range (exclusive)
+     */
+    @NO_SAFEPOINT_POLLS("the updated range must be recorded before the next safepoint")
+    void dirtyCovered(Address start, Address end) {
+        Address card = CardTableRSet.alignDownToCard(start);
+        while (card.lessThan(end)) {
+            unsafeSet(card, DIRTY_CARD.value());
+            card = card.plus(CardTableRSet.CARD_SIZE);
+        }
+    }
+
     /**
      * Find the first card set to the specified card state in the specified range of entries in the table .
      * @param start index of the first card in the range (inclusive)
@@ -24,6 +24,7 @@ import static com.sun.max.vm.heap.HeapSchemeAdaptor.*;
 
 import java.util.*;
 
+import com.oracle.max.cri.intrinsics.*;
 import com.sun.cri.ci.CiAddress.Scale;
 import com.sun.cri.ci.*;
 import com.sun.cri.xir.*;
@@ -281,6 +282,13 @@ public final class CardTableRSet extends DeadSpaceListener implements HeapManage
         cardTable.dirtyCovered(ref.toOrigin().plus(offset));
     }
 
+    /**
+     * Test whether an address is in the range of heap covered by the card table.
+     */
+    public boolean isCovered(Address address) {
+        return address.greaterEqual(cardTable.coveredAreaStart()) && address.lessThan(cardTable.coveredAreaEnd());
+    }
+
     /**
      * Record update to a reference slot of a cell.
      * @param ref the cell whose reference is updated
@@ -291,6 +299,18 @@ public final class CardTableRSet extends DeadSpaceListener implements HeapManage
         cardTable.dirtyCovered(ref.toOrigin().plus(Address.fromInt(index).shiftedLeft(Word.widthValue().log2numberOfBytes).plus(displacement)));
     }
 
+    /**
+     * Record update to a range of consecutive reference slots of a cell.
+     * @param ref the cell whose references are updated
+     * @param displacement a displacement from the origin of the cell
+     * @param index a word index to the first updated reference
+     * @param length the number of updated references
+     */
+    public void record(Reference ref,  int displacement, int index, int length) {
+        final Address first = ref.toOrigin().plus(Address.fromInt(index).shiftedLeft(Word.widthValue().log2numberOfBytes).plus(displacement));
+        cardTable.dirtyCovered(first, first.plus(Address.fromInt(length).shiftedLeft(Word.widthValue().log2numberOfBytes)));
+    }
+
     /**
      * Visit the cells that overlap a card.
      *
@@ -431,6 +451,53 @@ public final class CardTableRSet extends DeadSpaceListener implements HeapManage
         }
     }
 
+    /**
+     * Logic deciding whether a dirty card can be cleaned without losing information a minor collection needs.
+     * See {@link CardTableRSet#refineCards(Address, Address, CardRefiner)}.
+     */
+    public interface CardRefiner {
+        /**
+         * Scan the cells overlapping a card.
+         *
+         * @param firstCell the first cell overlapping the card, as recorded in the card first object table
+         * @param start start of the card
+         * @param end end of the card
+         * @return true if the card can be cleaned, false if it must be left dirty
+         */
+        boolean canClean(Pointer firstCell, Address start, Address end);
+    }
+
+    /**
+     * Clean the dirty cards of the specified range that a refiner finds of no interest, and leave the others dirty.
+     * A card is cleaned before its cells are scanned, so that a reference stored concurrently in one of them is either seen by the
+     * refiner, or dirties the card again. Refining can thus run concurrently with mutators, provided that the cells overlapping the
+     * range are neither allocated nor reclaimed in the meantime.
+     *
+     * @param start start of the range (inclusive)
+     * @param end end of the range (exclusive)
+     * @param refiner the logic deciding which dirty cards can be cleaned
+     * @return the number of cards cleaned
+     */
+    public int refineCards(Address start, Address end, CardRefiner refiner) {
+        final int endOfRange = cardTable.tableEntryIndex(end);
+        int numCleaned = 0;
+        int cardIndex = cardTable.first(cardTable.tableEntryIndex(start), endOfRange, CardState.DIRTY_CARD);
+        while (cardIndex < endOfRange) {
+            cardTable.clean(cardIndex);
+            MemoryBarriers.barrier(MemoryBarriers.STORE_LOAD);
+            if (refiner.canClean(cfoTable.cellStart(cardIndex).asPointer(), cardTable.rangeStart(cardIndex), cardTable.rangeStart(cardIndex + 1))) {
+                numCleaned++;
+            } else {
+                cardTable.dirty(cardIndex);
+            }
+            if (++cardIndex >= endOfRange) {
+                break;
+            }
+            cardIndex = cardTable.first(cardIndex, endOfRange, CardState.DIRTY_CARD);
+        }
+        return numCleaned;
+    }
+
     /**
      * Returns the amount of memory needed by the card table to cover a contiguous range of memory of the specified size.
      * @param maxCoveredAreaSize the size of the contiguous range of memory that the card table should cover
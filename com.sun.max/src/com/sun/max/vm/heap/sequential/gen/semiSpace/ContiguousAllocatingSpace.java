@@ -29,6 +29,7 @@ import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.heap.*;
 import com.sun.max.vm.heap.gcx.*;
+import com.sun.max.vm.layout.*;
 import com.sun.max.vm.runtime.*;
 
 
@@ -44,6 +45,11 @@ public class ContiguousAllocatingSpace<T extends BaseAtomicBumpPointerAllocator<
     @INSPECTED
     protected T allocator;
 
+    /**
+     * Cells of the space that must not move, or {@code null} if the space has none.
+     */
+    private PinnedCells pinnedCells;
+
     ContiguousAllocatingSpace(T allocator, String name) {
         this.allocator = allocator;
         this.space = new ContiguousHeapSpace(name);
@@ -53,6 +59,10 @@ public class ContiguousAllocatingSpace<T extends BaseAtomicBumpPointerAllocator<
         return allocator;
     }
 
+    public void setPinnedCells(PinnedCells pinnedCells) {
+        this.pinnedCells = pinnedCells;
+    }
+
     public void initialize(Address start, Size maxSize, Size initialSize) {
         space.setReserved(start, maxSize);
         space.growCommittedSpace(initialSize);
@@ -115,12 +125,35 @@ public class ContiguousAllocatingSpace<T extends BaseAtomicBumpPointerAllocator<
     }
 
     public void doAfterGC() {
+        if (pinnedCells != null && !pinnedCells.isEmpty()) {
+            resetAfterPinnedCells();
+            return;
+        }
         if (MaxineVM.isDebug()) {
             allocator.zap();
         }
         allocator.reset();
     }
 
+    /**
+     * Reset the allocator after the last pinned cell of the space. The space before and between the pinned cells is formatted as dark matter.
+     */
+    private void resetAfterPinnedCells() {
+        Address top = allocator.start();
+        for (int i = 0; i < pinnedCells.size(); i++) {
+            final Pointer origin = pinnedCells.origin(i);
+            if (allocator.inCurrentContiguousChunk(origin)) {
+                final Pointer cell = Layout.originToCell(origin);
+                if (cell.greaterThan(top)) {
+                    DarkMatter.format(top, cell);
+                }
+                top = cell.plus(Layout.size(origin));
+            }
+        }
+        allocator.reset();
+        allocator.unsafeSetTop(top);
+    }
+
     public Size freeSpace() {
         return allocator.freeSpace();
     }
@@ -46,6 +46,7 @@ import com.sun.max.vm.heap.gcx.EvacuationTimers.TIMED_OPERATION;
 import com.sun.max.vm.heap.gcx.rset.*;
 import com.sun.max.vm.heap.gcx.rset.ctbl.*;
 import com.sun.max.vm.log.VMLog.Record;
+import com.sun.max.vm.log.*;
 import com.sun.max.vm.log.hosted.*;
 import com.sun.max.vm.management.*;
 import com.sun.max.vm.reference.*;
@@ -327,6 +328,23 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
     @INSPECTED
     private final EvacuatorToCardSpace oldSpaceEvacuator;
 
+    /**
+     * Parallel implementation of young space evacuation. Used by minor collection operations when {@link ParallelEvacuator#ParallelScavenge}
+     * is enabled and the old space has enough space left to never overflow.
+     */
+    private final ParallelNurseryEvacuator parallelYoungSpaceEvacuator;
+
+    /**
+     * Cells of the young generation that are {@linkplain #pin(Object) pinned}. Minor collections leave them in the young generation,
+     * and full collections scan them as roots.
+     */
+    private final PinnedCells pinnedCells = new PinnedCells(PinnedCells.DEFAULT_CAPACITY);
+
+    /**
+     * Number of bytes evacuated by the last minor collection.
+     */
+    private Size lastMinorEvacuatedBytes = Size.zero();
+
     /**
      * Record the decision taken at the end of a minor collection.
      * This also simplifies the reference model of the inspector to identify whether the current
@@ -423,6 +441,7 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
 
     @HOSTED_ONLY
     public GenSSHeapScheme() {
+        pinningSupportFlags = PIN_SUPPORT_FLAG.makePinSupportFlags(true, true, true);
         cardTableRSet = new CardTableRSet();
         AtomicBumpPointerAllocator<YoungSpaceRefiller> nurseryAllocator =
             new AtomicBumpPointerAllocator<YoungSpaceRefiller>(new YoungSpaceRefiller());
@@ -433,9 +452,15 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         oldSpace = new ContiguousSemiSpace<CardSpaceAllocator<OldSpaceRefiller>>(tenuredAllocator, "Old Generation");
         youngSpaceEvacuator = new NoAgingNurseryEvacuator(youngSpace, oldSpace, this, cardTableRSet, "Young");
         oldSpaceEvacuator = new  EvacuatorToCardSpace(oldSpace.fromSpace, oldSpace, this, cardTableRSet, "Old");
+        parallelYoungSpaceEvacuator = new ParallelNurseryEvacuator(youngSpace, tenuredAllocator, cardTableRSet);
         noFromSpaceReferencesVerifiers = new NoEvacuatedSpaceReferenceVerifier(cardTableRSet, youngSpace);
         fotVerifier = new FOTVerifier(cardTableRSet);
         genCollection = new GenCollection();
+        youngSpace.setPinnedCells(pinnedCells);
+        youngSpaceEvacuator.setPinnedCells(pinnedCells);
+        oldSpaceEvacuator.setPinnedCells(pinnedCells);
+        parallelYoungSpaceEvacuator.setPinnedCells(pinnedCells);
+        noFromSpaceReferencesVerifiers.setPinnedCells(pinnedCells);
         youngSpaceEvacuator.setTimers(evacTimers);
         oldSpaceEvacuator.setTimers(evacTimers);
         youngSpaceEvacuator.setPhaseLogger(phaseLogger);
@@ -531,7 +556,9 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
     }
 
     private void verifyAfterMinorCollection() {
-        if (MaxineVM.isDebug()) {
+        // Pinned cells remain in the young space.
+        final MemoryRegion pinnedSpace = pinnedCells.isEmpty() ? null : youngSpace.space;
+        if (MaxineVM.isDebug() && pinnedSpace == null) {
             Memory.zapRegion(youngSpace.space);
         }
         final ContiguousHeapSpace oldToSpace = oldSpace.space;
@@ -540,9 +567,9 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         noFromSpaceReferencesVerifiers.setEvacuatedSpace(youngSpace);
         if (resizingPolicy.minorEvacuationOverflow()) {
             // Have to visit both the old gen's to space and the overflow in the old gen from space (i.e., the bound of the oldSpace's allocator.
-            refVerifier.setValidSpaces(oldToSpace, overflowedArea);
+            refVerifier.setValidSpaces(oldToSpace, overflowedArea, pinnedSpace);
         } else {
-            refVerifier.setValidHeapSpace(oldSpace.space);
+            refVerifier.setValidSpaces(oldSpace.space, pinnedSpace);
         }
         verifyCommon();
         if (resizingPolicy.minorEvacuationOverflow()) {
@@ -559,7 +586,8 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
             Memory.zapRegion(oldSpace.fromSpace);
         }
         noFromSpaceReferencesVerifiers.setEvacuatedSpace(oldSpace.fromSpace);
-        refVerifier.setValidHeapSpace(oldSpace.space);
+        // The old space may refer to the pinned cells left in the young space.
+        refVerifier.setValidSpaces(oldSpace.space, pinnedCells.isEmpty() ? null : youngSpace.space);
         verifyCommon();
         oldSpace.visit(noFromSpaceReferencesVerifiers);
     }
@@ -592,14 +620,18 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         oldSpaceEvacuator.setGCOperation(null);
         if (resizingPolicy.fullEvacuationOverflow()) {
             // Re-establish the allocators.
-            FatalError.check(oldSpace.allocator.start().equals(youngSpace.space.start()), "invariant violated for full evacuation overflow");
+            final Address overflowStart = youngSpace.allocator.unsafeTop();
+            FatalError.check(oldSpace.allocator.start().equals(overflowStart), "invariant violated for full evacuation overflow");
             final Address top = oldSpace.allocator.unsafeTop();
             youngSpace.allocator.unsafeSetTop(top);
             oldSpace.allocator.refill(oldSpace.space.start(), oldSpace.space.committedSize());
             oldSpace.allocator.unsafeSetTopToLimit();
-            resizingPolicy.notifyFullEvacuationOverflowRange(youngSpace.allocator.start(), top);
-        } else {
+            resizingPolicy.notifyFullEvacuationOverflowRange(overflowStart, top);
+        } else if (pinnedCells.isEmpty()) {
             cardTableRSet.setCards(oldSpace.space.start(), oldSpace.allocator().unsafeTop(), CardState.CLEAN_CARD);
+        } else {
+            // The old space may now hold references to pinned cells of the young space anywhere.
+            cardTableRSet.setCards(oldSpace.space.start(), oldSpace.allocator().unsafeTop(), CardState.DIRTY_CARD);
         }
     }
 
@@ -642,7 +674,7 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
                 return startOfSpaceLeft;
             }
             // Try growing the heap (mostly the old space)
-            if (resizingPolicy.canIncreaseSizeDuringFullGC(youngSpaceEvacuator.evacuatedBytes(), spaceLeft)) {
+            if (resizingPolicy.canIncreaseSizeDuringFullGC(lastMinorEvacuatedBytes, spaceLeft)) {
                 final ContiguousHeapSpace space = oldSpace.space;
                 resize(youngSpace, resizingPolicy.youngGenSize());
                 resize(oldSpace, resizingPolicy.oldGenSize());
@@ -661,13 +693,13 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
             if (endOfSpaceLeft.greaterThan(startOfSpaceLeft)) {
                 fillWithDeadObject(startOfSpaceLeft, endOfSpaceLeft);
             }
-            // Need to refill old gen allocator with the (now empty) young gen space.
+            // Need to refill old gen allocator with the (now empty) young gen space. Pinned cells remain at the start of the young gen space.
             resizingPolicy.notifyOutOfMemory();
             resizingPolicy.notifyFullEvacuationOverflow();
             oldOverflowEvacuationMark = startOfSpaceLeft;
             oldOverflowEvacuationOp = oldSpaceEvacuator.currentEvacuationOperation();
-            final Size refillSize = youngSpace.space.committedSize();
-            startOfSpaceLeft = youngSpace.space.start();
+            startOfSpaceLeft = youngSpace.allocator.unsafeTop();
+            final Size refillSize = youngSpace.space.committedEnd().minus(startOfSpaceLeft).asSize();
             allocator.refill(startOfSpaceLeft, refillSize);
             // Now format and return the whole young space to old gen evacuator.
             allocator.unsafeSetTopToLimit();
@@ -684,14 +716,52 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         oldSpace.allocator().retireTop(startOfSpaceLeft, endOfSpaceLeft.minus(startOfSpaceLeft).asSize());
     }
 
+    /**
+     * Indicate whether the young space can be evacuated in parallel. The parallel evacuator cannot handle an overflow of the old space,
+     * so it is only used if the old space allocator has room for the evacuation of the entire young space.
+     */
+    private boolean canEvacuateYoungSpaceInParallel() {
+        if (!ParallelEvacuator.ParallelScavenge) {
+            return false;
+        }
+        final CardSpaceAllocator<OldSpaceRefiller> allocator = oldSpace.allocator();
+        return oldSpace.space.contains(allocator.start()) &&
+            allocator.freeSpace().greaterEqual(parallelYoungSpaceEvacuator.worstCaseEvacuation(youngSpace.usedSpace()));
+    }
+
+    private void evacuateYoungSpaceInParallel() {
+        final boolean logPhases = Heap.logGCPhases();
+        if (logPhases) {
+            phaseLogger.logEvacuating(VMLogger.Interval.BEGIN);
+        }
+        evacTimers.start(COPY);
+        parallelYoungSpaceEvacuator.evacuate(oldSpace.space.start());
+        evacTimers.stop(COPY);
+        if (logPhases) {
+            phaseLogger.logEvacuating(VMLogger.Interval.END);
+            phaseLogger.logProcessingSpecialReferences(VMLogger.Interval.BEGIN);
+        }
+        evacTimers.start(WEAK_REF);
+        parallelYoungSpaceEvacuator.processSpecialReferences();
+        evacTimers.stop(WEAK_REF);
+        if (logPhases) {
+            phaseLogger.logProcessingSpecialReferences(VMLogger.Interval.END);
+        }
+        lastMinorEvacuatedBytes = parallelYoungSpaceEvacuator.evacuatedBytes();
+    }
+
     private Size estimatedNextEvac() {
         final Size min = youngSpace.totalSpace().dividedBy(100).times(minSurvivingPercent);
-        final Size lastSurvivorCount = youngSpaceEvacuator.evacuatedBytes();
+        final Size lastSurvivorCount = lastMinorEvacuatedBytes;
         return lastSurvivorCount.greaterThan(min) ? lastSurvivorCount : min;
     }
 
     private void resize(HeapSpace space, Size newSize) {
         if (newSize.lessThan(space.totalSpace())) {
+            if (space == youngSpace && !pinnedCells.isEmpty()) {
+                // Pinned cells may be in the part of the young space that would be uncommitted.
+                return;
+            }
             Size delta = space.totalSpace().minus(newSize);
             space.decreaseSize(delta);
         } else if (newSize.greaterThan(space.totalSpace())) {
@@ -739,7 +809,12 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         evacTimers.start(TOTAL);
         youngSpaceEvacuator.setGCOperation(genCollection);
         HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.ANALYZING);
-        youngSpaceEvacuator.evacuate(Heap.logGCPhases());
+        if (canEvacuateYoungSpaceInParallel()) {
+            evacuateYoungSpaceInParallel();
+        } else {
+            youngSpaceEvacuator.evacuate(Heap.logGCPhases());
+            lastMinorEvacuatedBytes = youngSpaceEvacuator.evacuatedBytes();
+        }
         if (resizingPolicy.minorEvacuationOverflow()) {
             overflowedArea.setStart(oldSpace.allocator.start());
             overflowedArea.setEnd(oldSpace.allocator.unsafeTop());
@@ -757,9 +832,10 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
             verifyAfterMinorCollection();
         }
 
-        if (ForceCleanCardsAfterMinorGC && !resizingPolicy.minorEvacuationOverflow()) {
+        if (ForceCleanCardsAfterMinorGC && !resizingPolicy.minorEvacuationOverflow() && pinnedCells.isEmpty()) {
             // Don't need to clean card if a minor evacuation overflow occurred as this will trigger a full GC.
             // Also, the boundary isn't correct in that case, as the allocator's is pointing to the other old semi-space in that case.
+            // Cards holding references to pinned cells of the young space must remain dirty.
             cardTableRSet.setCards(oldSpace.space.start(), oldSpace.allocator().unsafeTop(), CardState.CLEAN_CARD);
         }
         final Size estimatedEvac = estimatedNextEvac();
@@ -869,14 +945,49 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         return null;
     }
 
+    /**
+     * Pins an object of the young generation by recording its cell in the {@linkplain #pinnedCells pinned cells} table.
+     * Objects of the old generation cannot be pinned, as a full collection evacuates the whole old generation.
+     * Objects outside of the heap never move.
+     * Safepoints are disabled so that the object cannot move while it is being recorded.
+     *
+     * @return false if the object is in the old generation or if the table is full
+     */
     @Override
     public boolean pin(Object object) {
-        return false;
+        final boolean wasDisabled = SafepointPoll.disable();
+        final Pointer origin = Reference.fromJava(object).toOrigin();
+        final boolean pinned = youngSpace.contains(origin) ? pinnedCells.pin(origin) : !oldSpace.contains(origin);
+        if (!wasDisabled) {
+            SafepointPoll.enable();
+        }
+        return pinned;
     }
 
     @Override
     public void unpin(Object object) {
-        throw new UnsupportedOperationException();
+        final boolean wasDisabled = SafepointPoll.disable();
+        final Pointer origin = Reference.fromJava(object).toOrigin();
+        if (youngSpace.contains(origin)) {
+            pinnedCells.unpin(origin);
+        }
+        if (!wasDisabled) {
+            SafepointPoll.enable();
+        }
+    }
+
+    /**
+     * Objects outside of the heap never move, so they are always considered pinned.
+     */
+    @Override
+    public boolean isPinned(Object object) {
+        final boolean wasDisabled = SafepointPoll.disable();
+        final Pointer origin = Reference.fromJava(object).toOrigin();
+        final boolean pinned = youngSpace.contains(origin) ? pinnedCells.isPinned(origin) : !oldSpace.contains(origin);
+        if (!wasDisabled) {
+            SafepointPoll.enable();
+        }
+        return pinned;
     }
 
     @INLINE
@@ -897,6 +1008,11 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         cardTableRSet.record(ref, displacement, index);
     }
 
+    @Override
+    public void postWriteBarrierRange(Reference ref, int displacement, int index, int length) {
+        cardTableRSet.record(ref, displacement, index, length);
+    }
+
     @Override
     public long maxObjectInspectionAge() {
         return System.currentTimeMillis() - lastFullGCTime;
@@ -963,6 +1079,9 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
              */
             youngSpaceEvacuator.initialize(2, true, Size.zero(), true);
             oldSpaceEvacuator.initialize(2, true, Size.zero(), true);
+            if (ParallelEvacuator.ParallelScavenge) {
+                parallelYoungSpaceEvacuator.initialize();
+            }
 
             Address unusedReservedSpaceStart = cardTableRSet.memory().end().alignUp(pageSize);
             // Free reserved space we will not be using.
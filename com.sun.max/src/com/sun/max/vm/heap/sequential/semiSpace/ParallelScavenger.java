@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.sequential.semiSpace;
+
+import com.sun.max.annotate.*;
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.debug.*;
+import com.sun.max.vm.heap.gcx.*;
+import com.sun.max.vm.layout.*;
+
+/**
+ * Parallel evacuation of the live objects of a {@link SemiSpaceHeapScheme}, run by the {@link GCWorkGang}.
+ * <p>
+ * Workers copy objects into PLABs carved from 'to space' with a compare-and-swap of the allocation mark
+ * (see {@link ParallelEvacuator}). The boot heap region is scanned by chunks of its reference map, claimed by
+ * the workers the same way as the {@code ParallelHeapMarker}'s.
+ */
+final class ParallelScavenger extends ParallelEvacuator {
+
+    /**
+     * Number of words of the boot heap reference map claimed at once by a worker.
+     */
+    private static final int BOOT_HEAP_REFERENCE_MAP_CHUNK = 256;
+
+    final SemiSpaceHeapScheme heapScheme;
+
+    private volatile int nextBootHeapChunk;
+    private int bootHeapReferenceMapWords;
+
+    @FOLD
+    private static int nextBootHeapChunkOffset() {
+        return ClassActor.fromJava(ParallelScavenger.class).findLocalInstanceFieldActor("nextBootHeapChunk").offset();
+    }
+
+    ParallelScavenger(SemiSpaceHeapScheme heapScheme) {
+        this.heapScheme = heapScheme;
+    }
+
+    /**
+     * Copy all objects reachable from the roots from 'from space' to 'to space' and update all references to them.
+     * Must be called by the VM operation thread once the semi spaces are swapped.
+     * Special references discovered during the scavenge are left to the caller to process.
+     *
+     * @param fromSpace the space being evacuated
+     */
+    void scavenge(MemoryRegion fromSpace) {
+        reset(fromSpace.start(), fromSpace.end());
+        nextBootHeapChunk = 0;
+        bootHeapReferenceMapWords = Heap.bootHeapRegion.referenceMapWords();
+
+        GCWorkGang.theGang().run(this);
+    }
+
+    @Override
+    protected Pointer allocateSpace(Size size) {
+        return heapScheme.gcAllocateParallel(size);
+    }
+
+    /**
+     * Fill space of 'to space' that holds no object, so that 'to space' can be verified in debug mode, and so that
+     * walking its cells stops there as it does at the end of a thread's TLAB otherwise.
+     */
+    @Override
+    protected void retireSpace(Pointer start, Pointer end) {
+        if (end.greaterThan(start)) {
+            if (DebugHeap.isPadding()) {
+                DebugHeap.writeCellPadding(start, end);
+            } else {
+                Memory.clearWords(start, end.minus(start).unsignedShiftedRight(Word.widthValue().log2numberOfBytes).toInt());
+            }
+        }
+    }
+
+    @Override
+    protected void notifyEvacuated(Pointer fromCell, Pointer toCell, Size size) {
+        if (SemiSpaceHeapScheme.detailLogger.enabled()) {
+            final Hub hub = Layout.getHub(Layout.cellToOrigin(toCell));
+            SemiSpaceHeapScheme.detailLogger.logForward(hub.classActor.id, Pointer.zero(), fromCell, toCell, size.toInt());
+        }
+    }
+
+    @Override
+    protected void scanHeapRoots(Worker worker, int numWorkers) {
+        final int bootHeapReferenceMapWords = this.bootHeapReferenceMapWords;
+        int firstRefMapWord = fetchAndIncrement(nextBootHeapChunkOffset()) * BOOT_HEAP_REFERENCE_MAP_CHUNK;
+        while (firstRefMapWord < bootHeapReferenceMapWords) {
+            final int endRefMapWord = Math.min(firstRefMapWord + BOOT_HEAP_REFERENCE_MAP_CHUNK, bootHeapReferenceMapWords);
+            Heap.bootHeapRegion.visitReferences(firstRefMapWord, endRefMapWord, worker);
+            firstRefMapWord = fetchAndIncrement(nextBootHeapChunkOffset()) * BOOT_HEAP_REFERENCE_MAP_CHUNK;
+        }
+    }
+}
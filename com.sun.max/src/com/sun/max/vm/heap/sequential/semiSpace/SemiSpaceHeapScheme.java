@@ -41,6 +41,7 @@ import com.sun.max.vm.code.*;
 import com.sun.max.vm.heap.*;
 import com.sun.max.vm.heap.Heap.GCCallbackPhase;
 import com.sun.max.vm.heap.debug.*;
+import com.sun.max.vm.heap.gcx.*;
 import com.sun.max.vm.layout.*;
 import com.sun.max.vm.log.VMLog.Record;
 import com.sun.max.vm.log.*;
@@ -145,6 +146,12 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
      */
     private Address top;
 
+    /**
+     * End of the run of free space of 'toSpace' that the allocation mark is in. This is {@link #top}, unless a
+     * {@linkplain #pinnedCells pinned cell} above the allocation mark bounds the run.
+     */
+    private Address allocationLimit;
+
 
     private final ResetTLAB resetTLAB = new ResetTLAB(){
         @Override
@@ -191,10 +198,27 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             "Perform a garbage collection before every allocation from the global heap.", MaxineVM.Phase.PRISTINE);
     }
 
+    /**
+     * Evacuates live objects when {@link ParallelEvacuator#ParallelScavenge} is enabled.
+     */
+    private final ParallelScavenger parallelScavenger;
+
+    /**
+     * Cells of the semispaces that are {@linkplain #pin(Object) pinned}. A collection leaves them where they are.
+     */
+    private final PinnedCells pinnedCells = new PinnedCells(PinnedCells.DEFAULT_CAPACITY);
+
+    /**
+     * Set after a collection that left pinned cells in 'fromSpace'. These cells remain live until the next collection.
+     */
+    private boolean hasRetainedCells;
+
     public SemiSpaceHeapScheme() {
         super();
-        pinningSupportFlags = PIN_SUPPORT_FLAG.makePinSupportFlags(false, false, false);
+        pinningSupportFlags = PIN_SUPPORT_FLAG.makePinSupportFlags(true, true, true);
         collectHeap = new CollectHeap();
+        parallelScavenger = new ParallelScavenger(this);
+        parallelScavenger.setPinnedCells(pinnedCells);
     }
 
     @Override
@@ -207,6 +231,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             safetyZoneSize = Math.max(safetyZoneSizeOption.getValue(), initialTlabSize().toInt());
 
             top = toSpace.end().minus(safetyZoneSize);
+            allocationLimit = top;
 
             if (MaxineVM.isDebug()) {
                 zapRegion(toSpace, GCCallbackPhase.INIT);
@@ -217,6 +242,10 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
 
             lastGCTime = System.currentTimeMillis();
 
+            if (ParallelEvacuator.ParallelScavenge) {
+                parallelScavenger.initialize();
+            }
+
             // From now on we can allocate
 
             HeapScheme.Inspect.init(true);
@@ -235,6 +264,8 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 this.growPolicy = new DoubleGrowPolicy();
             }
             increaseGrowPolicy = new LinearGrowPolicy();
+        } else if (phase == MaxineVM.Phase.RUNNING) {
+            GCWorkGang.theGang().start();
         } else if (phase == MaxineVM.Phase.TERMINATING) {
             if (Heap.logGCTime()) {
                 timeLogger.logPhaseTimes(-1,
@@ -293,7 +324,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             if (fromSpace.contains(origin)) {
                 final Reference forwardRef = Layout.readForwardRef(origin);
                 if (forwardRef.isZero()) {
-                    return false;
+                    return pinnedCells.contains(origin);
                 }
             }
             return true;
@@ -360,54 +391,73 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 stopTimer(clearTimer);
 
                 refVerifier.setValidSpaces(fromSpace, toSpace);
-                if (Heap.logGCPhases()) {
-                    phaseLogger.logScanningRoots(VMLogger.Interval.BEGIN);
-                }
-                startTimer(rootScanTimer);
-                heapRootsScanner.run(); // Start scanning the reachable objects from my roots.
-                stopTimer(rootScanTimer);
-                if (Heap.logGCPhases()) {
-                    phaseLogger.logScanningRoots(VMLogger.Interval.END);
-                }
+                // Unpinned cells of 'fromSpace' that the previous collection retained can be evacuated.
+                pinnedCells.release(fromSpace.start(), fromSpace.end());
+                startAllocation();
+                final Pointer firstCopiedCell = allocationMark().asPointer();
+                if (ParallelEvacuator.ParallelScavenge) {
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logMovingReachable(VMLogger.Interval.BEGIN);
+                    }
+                    startTimer(copyTimer);
+                    parallelScavenger.scavenge(fromSpace);
+                    // The workers may have moved the allocation mark to another run of free space.
+                    allocationLimit = pinnedCellAbove(allocationMark());
+                    stopTimer(copyTimer);
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logMovingReachable(VMLogger.Interval.END);
+                    }
+                } else {
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logScanningRoots(VMLogger.Interval.BEGIN);
+                    }
+                    startTimer(rootScanTimer);
+                    heapRootsScanner.run(); // Start scanning the reachable objects from my roots.
+                    stopTimer(rootScanTimer);
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logScanningRoots(VMLogger.Interval.END);
+                    }
 
-                if (Heap.logGCPhases()) {
-                    phaseLogger.logScanningBootHeap(VMLogger.Interval.BEGIN);
-                }
-                startTimer(bootHeapScanTimer);
-                scanBootHeap();
-                stopTimer(bootHeapScanTimer);
-                if (Heap.logGCPhases()) {
-                    phaseLogger.logScanningBootHeap(VMLogger.Interval.END);
-                }
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logScanningBootHeap(VMLogger.Interval.BEGIN);
+                    }
+                    startTimer(bootHeapScanTimer);
+                    scanBootHeap();
+                    stopTimer(bootHeapScanTimer);
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logScanningBootHeap(VMLogger.Interval.END);
+                    }
 
-                if (Heap.logGCPhases()) {
-                    phaseLogger.logScanningCode(VMLogger.Interval.BEGIN);
-                }
-                startTimer(codeScanTimer);
-                scanCode();
-                stopTimer(codeScanTimer);
-                if (Heap.logGCPhases()) {
-                    phaseLogger.logScanningCode(VMLogger.Interval.END);
-                }
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logScanningCode(VMLogger.Interval.BEGIN);
+                    }
+                    startTimer(codeScanTimer);
+                    scanCode();
+                    stopTimer(codeScanTimer);
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logScanningCode(VMLogger.Interval.END);
+                    }
 
-                if (Heap.logGCPhases()) {
-                    phaseLogger.logScanningImmortalHeap(VMLogger.Interval.BEGIN);
-                }
-                startTimer(immortalSpaceScanTimer);
-                scanImmortalHeap();
-                stopTimer(immortalSpaceScanTimer);
-                if (Heap.logGCPhases()) {
-                    phaseLogger.logScanningImmortalHeap(VMLogger.Interval.END);
-                }
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logScanningImmortalHeap(VMLogger.Interval.BEGIN);
+                    }
+                    startTimer(immortalSpaceScanTimer);
+                    scanImmortalHeap();
+                    stopTimer(immortalSpaceScanTimer);
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logScanningImmortalHeap(VMLogger.Interval.END);
+                    }
 
-                if (Heap.logGCPhases()) {
-                    phaseLogger.logMovingReachable(VMLogger.Interval.BEGIN);
-                }
-                startTimer(copyTimer);
-                moveReachableObjects(toSpace.start().asPointer());
-                stopTimer(copyTimer);
-                if (Heap.logGCPhases()) {
-                    phaseLogger.logMovingReachable(VMLogger.Interval.END);
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logMovingReachable(VMLogger.Interval.BEGIN);
+                    }
+                    startTimer(copyTimer);
+                    pinnedCells.visitCells(SemiSpaceHeapScheme.this);
+                    moveReachableObjects(firstCopiedCell);
+                    stopTimer(copyTimer);
+                    if (Heap.logGCPhases()) {
+                        phaseLogger.logMovingReachable(VMLogger.Interval.END);
+                    }
                 }
 
                 if (Heap.logGCPhases()) {
@@ -424,6 +474,14 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 // Bring the To-Space marks up to date, mainly for debugging.
                 toSpace.mark.set(allocationMark()); // not otherwise updated during move.
 
+                // Pinned cells of To-Space below the allocation mark are now ordinary objects. Those above it must stay
+                // in the table so that mutators keep allocating around them, and those left in From-Space must remain
+                // live until the next collection.
+                pinnedCells.release(toSpace.start(), allocationMark());
+                pinnedCells.retain(allocationMark(), toSpace.end());
+                hasRetainedCells = pinnedCells.retain(fromSpace.start(), fromSpace.end()) > 0;
+                allocationLimit = pinnedCellAbove(allocationMark());
+
                 // The reclaiming phase doesn't do anything substantial in a semispace collector since all
                 // space of the from space is implicitly reclaimed once the liveness analysis (i.e.,
                 // the copying of all objects reachable from roots) is done.
@@ -446,7 +504,11 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 Heap.invokeGCCallbacks(GCCallbackPhase.AFTER);
 
                 // Post-verification of the heap.
-                refVerifier.setValidHeapSpace(toSpace);
+                if (hasRetainedCells) {
+                    refVerifier.setValidSpaces(toSpace, fromSpace);
+                } else {
+                    refVerifier.setValidHeapSpace(toSpace);
+                }
                 verifyObjectSpaces(GCCallbackPhase.AFTER);
 
                 if (Heap.logGCTime()) {
@@ -526,8 +588,121 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         }
     }
 
+    /**
+     * Starts allocating from the first run of free space of 'toSpace'. Pinned cells stay where they are and split
+     * 'toSpace' into runs of free space, which the collector and then the mutators allocate from in address order.
+     * Must be called after the semispaces are swapped and before any object is copied.
+     */
+    private void startAllocation() {
+        final Pointer runStart = nextAllocationRun(toSpace.start().asPointer());
+        toSpace.mark.set(runStart);
+        allocationLimit = pinnedCellAbove(runStart);
+    }
+
+    /**
+     * Size of the smallest run of free space that can be left unused below a pinned cell: it must hold a dead object
+     * so that 'toSpace' remains parsable.
+     */
+    @INLINE
+    private static Size minRunSize() {
+        return DebugHeap.adjustForDebugTag(Pointer.zero()).plus(minObjectSize()).asSize();
+    }
+
+    /**
+     * Gets the start, including its debug tag, of the first pinned cell of 'toSpace' above an address.
+     *
+     * @return the start of the pinned cell, or {@link #top} if there is no pinned cell between {@code address} and top
+     */
+    private Address pinnedCellAbove(Address address) {
+        final Pointer origin = pinnedCells.firstOriginAbove(address);
+        if (origin.isZero() || !toSpace.contains(origin)) {
+            return top;
+        }
+        final Address cellStart = Layout.originToCell(origin).minus(DebugHeap.adjustForDebugTag(Pointer.zero()).asSize());
+        return cellStart.lessThan(top) ? cellStart : top;
+    }
+
+    /**
+     * Gets the end of the pinned cell that starts, with its debug tag, at a given address.
+     */
+    private static Pointer endOfPinnedCell(Address cellStart) {
+        final Pointer cell = DebugHeap.adjustForDebugTag(cellStart.asPointer());
+        return cell.plus(Layout.size(Layout.cellToOrigin(cell)));
+    }
+
+    /**
+     * Finds the first run of free space of 'toSpace' at or above an address that is either bounded by {@link #top} or
+     * large enough to hold a dead object. The pinned cells and the runs too small to hold a dead object are skipped.
+     */
+    private Pointer nextAllocationRun(Pointer start) {
+        Pointer runStart = start;
+        Address runEnd = pinnedCellAbove(runStart);
+        while (runEnd.lessThan(top) && runEnd.minus(runStart).lessThan(minRunSize())) {
+            fillGap(runStart, runEnd.asPointer());
+            runStart = endOfPinnedCell(runEnd);
+            runEnd = pinnedCellAbove(runStart);
+        }
+        return runStart;
+    }
+
+    /**
+     * Determines if a cell ending at a given address can be allocated from the run of free space ending at a given limit.
+     * Unless the cell ends the run, it must leave enough space to fill the rest of the run with a dead object.
+     */
+    private boolean fitsInAllocationRun(Address end, Address limit) {
+        if (limit.greaterEqual(top)) {
+            return end.lessThan(top);
+        }
+        return end.equals(limit) || (end.lessThan(limit) && limit.minus(end).greaterEqual(minRunSize()));
+    }
+
+    /**
+     * Abandons the rest of the current run of free space and moves the allocation mark to the next run, past the pinned
+     * cell that bounds the current one. The abandoned space is filled with a dead object.
+     * Must be called by the GC thread, or by a mutator holding the heap lock.
+     */
+    private void skipAllocationRun() {
+        final Address limit = allocationLimit;
+        Pointer mark;
+        // Claim the rest of the run so that mutators stop allocating from it.
+        do {
+            mark = allocationMark().asPointer();
+        } while (!toSpace.mark.compareAndSwap(mark, limit).equals(mark));
+        fillGap(mark, limit.asPointer());
+        final Pointer runStart = nextAllocationRun(endOfPinnedCell(limit));
+        // The mark must move past the pinned cell before the limit is raised.
+        toSpace.mark.set(runStart);
+        allocationLimit = pinnedCellAbove(runStart);
+    }
+
+    /**
+     * Skips the runs of free space below pinned cells until one can satisfy an allocation request.
+     * Must be called with the heap lock held.
+     *
+     * @return true if the run the allocation mark is in has enough free space
+     */
+    private boolean skipToAllocationRun(Size requestedFreeSpace) {
+        while (immediateFreeSpace().lessThan(requestedFreeSpace) && allocationLimit.lessThan(top)) {
+            skipAllocationRun();
+        }
+        return immediateFreeSpace().greaterEqual(requestedFreeSpace);
+    }
+
+    private static void fillGap(Pointer start, Pointer end) {
+        if (end.greaterThan(start)) {
+            if (end.greaterEqual(DebugHeap.adjustForDebugTag(start).plus(minObjectSize()))) {
+                fillWithDeadObject(start, end);
+            } else if (DebugHeap.isPadding()) {
+                DebugHeap.writeCellPadding(start, end);
+            } else {
+                Memory.clearWords(start, end.minus(start).unsignedShiftedRight(Word.widthValue().log2numberOfBytes).toInt());
+            }
+        }
+    }
+
     private Size immediateFreeSpace() {
-        return top.minus(allocationMark()).asSize();
+        final Address mark = allocationMark();
+        return allocationLimit.greaterThan(mark) ? allocationLimit.minus(mark).asSize() : Size.zero();
     }
 
     /**
@@ -540,7 +715,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
      * destination object (i.e the one in 'toSpace') is returned.</li>
      * <li>Points to a object in 'fromSpace' for which a copy in 'toSpace' exists.
      * The reference of the 'toSpace' copy is derived from the forwarding pointer and returned.</li>
-     * <li>Points to a object in 'toSpace'. The value of {@code ref} is returned.</li>
+     * <li>Points to a object in 'toSpace', or to a pinned object in 'fromSpace'. The value of {@code ref} is returned.</li>
      * </ul>
      *
      * @param ref a pointer to an object either in 'fromSpace' or 'toSpace'
@@ -553,6 +728,9 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             if (!forwardRef.isZero()) {
                 return forwardRef;
             }
+            if (pinnedCells.contains(fromOrigin)) {
+                return ref;
+            }
             if (VerifyReferences) {
                 refVerifier.verifyRefAtIndex(Address.zero(), 0, ref);
             }
@@ -634,7 +812,14 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
 
     void moveReachableObjects(Pointer start) {
         Pointer cell = start;
+        Address pinnedCell = pinnedCellAbove(cell);
         while (cell.lessThan(allocationMark())) {
+            if (cell.equals(pinnedCell)) {
+                // Pinned cells are visited as roots. Skip them, and the runs between them too small to be allocated from.
+                cell = nextAllocationRun(endOfPinnedCell(pinnedCell));
+                pinnedCell = pinnedCellAbove(cell);
+                continue;
+            }
             cell = DebugHeap.checkDebugCellTag(start, cell);
             cell = visitCell(cell);
         }
@@ -674,8 +859,11 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         ImmortalHeap.visitCells(this);
     }
 
+    /**
+     * The semispaces cannot be reallocated while they hold pinned cells.
+     */
     private boolean cannotGrow() {
-        return fromSpace.size().isZero() || fromSpace.size().greaterEqual(Heap.maxSize().dividedBy(2));
+        return fromSpace.size().isZero() || fromSpace.size().greaterEqual(Heap.maxSize().dividedBy(2)) || !pinnedCells.isEmpty();
     }
 
     /**
@@ -776,14 +964,15 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
 
     private boolean collectGarbageImpl(SemiSpaceGCRequest gcRequest) {
         final Size requestedFreeSpace = gcRequest.requestedBytes;
-        if ((gcRequest.explicit && !DisableExplicitGC) || immediateFreeSpace().lessThan(requestedFreeSpace)) {
+        if ((gcRequest.explicit && !DisableExplicitGC) || !skipToAllocationRun(requestedFreeSpace)) {
             executeGC();
         }
-        if (immediateFreeSpace().greaterEqual(requestedFreeSpace)) {
+        if (immediateFreeSpace().greaterEqual(requestedFreeSpace) || skipToAllocationRun(requestedFreeSpace)) {
             // check to see if we can reset safety zone
             if (inSafetyZone) {
                 if (top.minus(allocationMark()).greaterThan(safetyZoneSize)) {
                     top = top.minus(safetyZoneSize);
+                    allocationLimit = pinnedCellAbove(allocationMark());
                     inSafetyZone = false;
                 }
             }
@@ -809,20 +998,53 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
      * Allocates space for a cell being copied to 'to space' during GC.
      * Note that this allocation is only ever performed by the GC thread and so there's no
      * need to use compare-and-swap when updating the allocation mark.
+     * Runs of free space below pinned cells that are too small for the cell are skipped.
      *
      * @param size the size of the cell being copied
      * @return the start of the allocated cell in 'to space'
      */
     public Pointer gcAllocate(Size size) {
-        Pointer cell = allocationMark().asPointer();
-        if (DebugHeap.isTagging()) {
-            cell = Platform.target().arch.is64bit() ? cell.plusWords(1) : cell.plusWords(2);
+        Pointer cell = DebugHeap.adjustForDebugTag(allocationMark().asPointer());
+        while (!fitsInAllocationRun(cell.plus(size), allocationLimit)) {
+            FatalError.check(allocationLimit.lessThan(top), "GC allocation overflow");
+            skipAllocationRun();
+            cell = DebugHeap.adjustForDebugTag(allocationMark().asPointer());
         }
         toSpace.mark.set(cell.plus(size));
-        FatalError.check(allocationMark().lessThan(top), "GC allocation overflow");
         return cell;
     }
 
+    /**
+     * Allocates space in 'to space' on behalf of a GC worker during a {@linkplain ParallelEvacuator#ParallelScavenge parallel scavenge}.
+     * Unlike {@link #gcAllocate(Size)}, compare-and-swap is used to update the allocation mark, and no space
+     * is reserved for a debug tag.
+     *
+     * @param size the size of the space to allocate
+     * @return the start of the allocated space in 'to space'
+     */
+    Pointer gcAllocateParallel(Size size) {
+        Pointer oldAllocationMark;
+        Address end;
+        while (true) {
+            oldAllocationMark = allocationMark().asPointer();
+            end = oldAllocationMark.plus(size);
+            // The limit is looked up rather than cached since another worker may move to the next run at any time.
+            final Address limit = pinnedCellAbove(oldAllocationMark);
+            if (fitsInAllocationRun(end, limit)) {
+                if (toSpace.mark.compareAndSwap(oldAllocationMark, end).equals(oldAllocationMark)) {
+                    return oldAllocationMark;
+                }
+            } else {
+                FatalError.check(limit.lessThan(top), "GC allocation overflow");
+                // Move to the next run. The worker that succeeds fills the rest of the current run.
+                final Pointer runStart = nextAllocationRun(endOfPinnedCell(limit));
+                if (toSpace.mark.compareAndSwap(oldAllocationMark, runStart).equals(oldAllocationMark)) {
+                    fillGap(oldAllocationMark, limit.asPointer());
+                }
+            }
+        }
+    }
+
     private boolean inSafetyZone; // set after we have thrown OutOfMemoryError and are using the safety zone
 
     @NO_SAFEPOINT_POLLS("heap up to allocation mark must be verifiable if debug tagging")
@@ -932,7 +1154,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             oldAllocationMark = allocationMark().asPointer();
             cell = adjustForDebugTag ? DebugHeap.adjustForDebugTag(oldAllocationMark) : oldAllocationMark;
             end = cell.plus(size);
-            while (end.greaterThan(top)) {
+            while (end.greaterThan(allocationLimit)) {
                 GCRequest.setGCRequest(size);
                 if (!Heap.collectGarbage()) {
                     /*
@@ -947,6 +1169,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                     } else {
                         // Use the safety region to do the throw
                         top = top.plus(safetyZoneSize);
+                        allocationLimit = pinnedCellAbove(allocationMark());
                         inSafetyZone = true;
                         // This new will now be ok
                         if (Heap.verbose()) {
@@ -982,7 +1205,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
     }
 
     public boolean contains(Address address) {
-        return toSpace.contains(address);
+        return toSpace.contains(address) || (hasRetainedCells && fromSpace.contains(address));
     }
 
     /**
@@ -996,7 +1219,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             return;
         }
 
-        if (MaxineVM.isDebug()) {
+        if (MaxineVM.isDebug() && !hasRetainedCells) {
             zapRegion(fromSpace, when);
         }
 
@@ -1103,7 +1326,8 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             final Size pageAlignedAmount = amount.asAddress().alignUp(Platform.platform().pageSize).asSize().dividedBy(2);
             logSpaces();
             executeGC();
-            if (immediateFreeSpace().greaterEqual(pageAlignedAmount)) {
+            // The end of the semispaces may hold pinned cells.
+            if (pinnedCells.isEmpty() && immediateFreeSpace().greaterEqual(pageAlignedAmount)) {
                 // give back part of the existing spaces
                 if (Heap.verbose()) {
                     logSpaces();
@@ -1112,6 +1336,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 fromSpace.setSize(fromSpace.size().minus(amountAsInt));
                 toSpace.setSize(toSpace.size().minus(amountAsInt));
                 top = top.minus(amountAsInt);
+                allocationLimit = top;
                 VirtualMemory.deallocate(fromSpace.end(), pageAlignedAmount, VirtualMemory.Type.HEAP);
                 VirtualMemory.deallocate(toSpace.end(), pageAlignedAmount, VirtualMemory.Type.HEAP);
                 logSpaces();
@@ -1172,6 +1397,14 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         ImmortalHeap.visitCells(visitor);
         Heap.bootHeapRegion.visitCells(visitor);
         visitCells(visitor);
+        // Visit the pinned cells that are above the allocation mark or in 'fromSpace'.
+        final Address mark = allocationMark();
+        for (int i = 0; i < pinnedCells.size(); i++) {
+            final Pointer origin = pinnedCells.origin(i);
+            if ((toSpace.contains(origin) && origin.greaterEqual(mark)) || (hasRetainedCells && fromSpace.contains(origin))) {
+                visitor.visitCell(Layout.originToCell(origin));
+            }
+        }
     }
 
     @Override
@@ -1179,12 +1412,45 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         return toSpace.start();
     }
 
+    /**
+     * Pins an object by recording its cell in the {@linkplain #pinnedCells pinned cells} table, which a collection
+     * doesn't evacuate. Objects outside of the semispaces never move.
+     * Safepoints are disabled so that the object cannot move while it is being recorded.
+     *
+     * @return false if the table is full
+     */
     public boolean pin(Object object) {
-        return false;
+        final boolean wasDisabled = SafepointPoll.disable();
+        final Pointer origin = Reference.fromJava(object).toOrigin();
+        final boolean pinned = !(toSpace.contains(origin) || fromSpace.contains(origin)) || pinnedCells.pin(origin);
+        if (!wasDisabled) {
+            SafepointPoll.enable();
+        }
+        return pinned;
     }
 
     public void unpin(Object object) {
-        throw new UnsupportedOperationException();
+        final boolean wasDisabled = SafepointPoll.disable();
+        final Pointer origin = Reference.fromJava(object).toOrigin();
+        if (toSpace.contains(origin) || fromSpace.contains(origin)) {
+            pinnedCells.unpin(origin);
+        }
+        if (!wasDisabled) {
+            SafepointPoll.enable();
+        }
+    }
+
+    /**
+     * Objects outside of the semispaces never move, so they are always considered pinned.
+     */
+    public boolean isPinned(Object object) {
+        final boolean wasDisabled = SafepointPoll.disable();
+        final Pointer origin = Reference.fromJava(object).toOrigin();
+        final boolean pinned = !(toSpace.contains(origin) || fromSpace.contains(origin)) || pinnedCells.isPinned(origin);
+        if (!wasDisabled) {
+            SafepointPoll.enable();
+        }
+        return pinned;
     }
 
     /**
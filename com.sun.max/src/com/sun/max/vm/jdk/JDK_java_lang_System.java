@@ -34,6 +34,7 @@ import com.sun.max.vm.MaxineVM.NativeProperty;
 import com.sun.max.vm.actor.holder.ClassActor;
 import com.sun.max.vm.actor.holder.Hub;
 import com.sun.max.vm.object.ArrayAccess;
+import com.sun.max.vm.object.BulkArrayAccess;
 import com.sun.max.vm.object.ObjectAccess;
 import com.sun.max.vm.runtime.FatalError;
 import com.sun.max.vm.type.BootClassLoader;
@@ -135,9 +136,10 @@ public final class JDK_java_lang_System {
     }
 
     /**
-     * Performs an array copy in the forward direction.
+     * Copies references one at a time, checking that each one can be stored in the destination array.
+     * This is only needed when the component type of the source array is not assignable to that of
+     * the destination array.
      *
-     * @param kind                  the element kind
      * @param fromArray             the source array
      * @param fromIndex             the start index in the source array
      * @param toArray               the destination array
@@ -145,153 +147,13 @@ public final class JDK_java_lang_System {
      * @param length                the number of elements to copy
      * @param toComponentClassActor the class actor representing the component type of the destination array
      */
-    private static void arrayCopyForward(final Kind kind, Object fromArray, int fromIndex, Object toArray, int toIndex, int length, ClassActor toComponentClassActor) {
-        switch (kind.asEnum) {
-            case BYTE: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setByte(toArray, toIndex + i, ArrayAccess.getByte(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case BOOLEAN: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setBoolean(toArray, toIndex + i, ArrayAccess.getBoolean(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case SHORT: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setShort(toArray, toIndex + i, ArrayAccess.getShort(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case CHAR: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setChar(toArray, toIndex + i, ArrayAccess.getChar(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case INT: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setInt(toArray, toIndex + i, ArrayAccess.getInt(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case FLOAT: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setFloat(toArray, toIndex + i, ArrayAccess.getFloat(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case LONG: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setLong(toArray, toIndex + i, ArrayAccess.getLong(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case DOUBLE: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setDouble(toArray, toIndex + i, ArrayAccess.getDouble(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case WORD: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setWord(toArray, toIndex + i, ArrayAccess.getWord(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case REFERENCE: {
-                for (int i = 0; i < length; i++) {
-                    final Object object = ArrayAccess.getObject(fromArray, fromIndex + i);
-                    if (toComponentClassActor != null && !toComponentClassActor.isNullOrInstance(object)) {
-                        throw new ArrayStoreException();
-                    }
-                    ArrayAccess.setObject(toArray, toIndex + i, object);
-                }
-                break;
-            }
-            default: {
-                throw ProgramError.unknownCase("arrayCopyForward");
-            }
-        }
-    }
-
-    /**
-     * Performs an array copy in the backward direction.
-     *
-     * @param kind      the element kind
-     * @param fromArray the source array
-     * @param fromIndex the start index in the source array
-     * @param toArray   the destination array
-     * @param toIndex   the start index in the destination array
-     * @param length    the number of elements to copy
-     */
-    private static void arrayCopyBackward(final Kind kind, Object fromArray, int fromIndex, Object toArray, int toIndex, int length) {
-        switch (kind.asEnum) {
-            case BYTE: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setByte(toArray, toIndex + i, ArrayAccess.getByte(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case BOOLEAN: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setBoolean(toArray, toIndex + i, ArrayAccess.getBoolean(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case SHORT: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setShort(toArray, toIndex + i, ArrayAccess.getShort(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case CHAR: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setChar(toArray, toIndex + i, ArrayAccess.getChar(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case INT: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setInt(toArray, toIndex + i, ArrayAccess.getInt(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case FLOAT: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setFloat(toArray, toIndex + i, ArrayAccess.getFloat(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case LONG: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setLong(toArray, toIndex + i, ArrayAccess.getLong(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case DOUBLE: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setDouble(toArray, toIndex + i, ArrayAccess.getDouble(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case WORD: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setWord(toArray, toIndex + i, ArrayAccess.getWord(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case REFERENCE: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setObject(toArray, toIndex + i, ArrayAccess.getObject(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            default: {
-                throw ProgramError.unknownCase("arrayCopyBackward");
+    private static void checkedArrayCopy(Object fromArray, int fromIndex, Object toArray, int toIndex, int length, ClassActor toComponentClassActor) {
+        for (int i = 0; i < length; i++) {
+            final Object object = ArrayAccess.getObject(fromArray, fromIndex + i);
+            if (!toComponentClassActor.isNullOrInstance(object)) {
+                throw new ArrayStoreException();
             }
+            ArrayAccess.setObject(toArray, toIndex + i, object);
         }
     }
 
@@ -315,29 +177,26 @@ public final class JDK_java_lang_System {
         if (!fromArrayClassActor.isArrayClass()) {
             throw new ArrayStoreException();
         }
-        final Kind kind = fromArrayClassActor.componentClassActor().kind;
+        final ClassActor fromComponentClassActor = fromArrayClassActor.componentClassActor();
+        final Kind kind = fromComponentClassActor.kind;
         if (fromArray == toArray) {
-            if (fromIndex < toIndex) {
-                if (fromIndex < 0 || length < 0 || toIndex + length > ArrayAccess.readArrayLength(fromArray)) {
-                    throw new IndexOutOfBoundsException();
-                }
-                arrayCopyBackward(kind, fromArray, fromIndex, fromArray, toIndex, length);
-            } else if (fromIndex != toIndex) {
-                if (toIndex < 0 || length < 0 || fromIndex + length > ArrayAccess.readArrayLength(fromArray)) {
-                    throw new IndexOutOfBoundsException();
-                }
-                arrayCopyForward(kind, fromArray, fromIndex, fromArray, toIndex, length, null);
+            if (fromIndex < 0 || toIndex < 0 || length < 0 ||
+                    Math.max(fromIndex, toIndex) > ArrayAccess.readArrayLength(fromArray) - length) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (fromIndex != toIndex) {
+                BulkArrayAccess.copy(kind, fromArray, fromIndex, fromArray, toIndex, length);
             }
             return;
         }
         final Hub toHub = ObjectAccess.readHub(toArray);
         if (toHub == fromHub) {
             if (fromIndex < 0 || toIndex < 0 || length < 0 ||
-                    fromIndex + length > ArrayAccess.readArrayLength(fromArray) ||
-                    toIndex + length > ArrayAccess.readArrayLength(toArray)) {
+                    fromIndex > ArrayAccess.readArrayLength(fromArray) - length ||
+                    toIndex > ArrayAccess.readArrayLength(toArray) - length) {
                 throw new IndexOutOfBoundsException();
             }
-            arrayCopyForward(kind, fromArray, fromIndex, toArray, toIndex, length, null);
+            BulkArrayAccess.copy(kind, fromArray, fromIndex, toArray, toIndex, length);
         } else {
             final ClassActor toArrayClassActor = toHub.classActor;
             if (!toArrayClassActor.isArrayClass()) {
@@ -348,11 +207,16 @@ public final class JDK_java_lang_System {
                 throw new ArrayStoreException();
             }
             if (fromIndex < 0 || toIndex < 0 || length < 0 ||
-                    fromIndex + length > ArrayAccess.readArrayLength(fromArray) ||
-                    toIndex + length > ArrayAccess.readArrayLength(toArray)) {
+                    fromIndex > ArrayAccess.readArrayLength(fromArray) - length ||
+                    toIndex > ArrayAccess.readArrayLength(toArray) - length) {
                 throw new IndexOutOfBoundsException();
             }
-            arrayCopyForward(kind, fromArray, fromIndex, toArray, toIndex, length, toComponentClassActor);
+            if (toComponentClassActor.isAssignableFrom(fromComponentClassActor)) {
+                // every element of the source array is known to be storable in the destination array
+                BulkArrayAccess.copyReferences(fromArray, fromIndex, toArray, toIndex, length);
+            } else {
+                checkedArrayCopy(fromArray, fromIndex, toArray, toIndex, length, toComponentClassActor);
+            }
         }
     }
 
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.jdk;
+
+import java.util.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.object.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Substitutions for the {@link Arrays} methods that fill or compare arrays of integral elements. These operate on
+ * whole words of the arrays by way of {@link BulkArrayAccess} instead of looping over the elements. The
+ * {@code float} and {@code double} variants are not substituted as they compare and store canonicalized NaNs.
+ */
+@METHOD_SUBSTITUTIONS(Arrays.class)
+final class JDK_java_util_Arrays {
+
+    private JDK_java_util_Arrays() {
+    }
+
+    @INLINE
+    private static long replicate8(int value) {
+        final long pattern = value & 0xffL;
+        return replicate16(pattern | (pattern << 8));
+    }
+
+    @INLINE
+    private static long replicate16(long value) {
+        final long pattern = value & 0xffffL;
+        return replicate32(pattern | (pattern << 16));
+    }
+
+    @INLINE
+    private static long replicate32(long value) {
+        final long pattern = value & 0xffffffffL;
+        return pattern | (pattern << 32);
+    }
+
+    /**
+     * Checks a range of array indexes, throwing the same exceptions as {@code Arrays.rangeCheck}.
+     */
+    private static void rangeCheck(int arrayLength, int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+        }
+        if (fromIndex < 0) {
+            throw new ArrayIndexOutOfBoundsException(fromIndex);
+        }
+        if (toIndex > arrayLength) {
+            throw new ArrayIndexOutOfBoundsException(toIndex);
+        }
+    }
+
+    @SUBSTITUTE
+    public static void fill(boolean[] a, boolean val) {
+        BulkArrayAccess.fill(Kind.BOOLEAN, a, 0, a.length, replicate8(val ? 1 : 0));
+    }
+
+    @SUBSTITUTE
+    public static void fill(boolean[] a, int fromIndex, int toIndex, boolean val) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        BulkArrayAccess.fill(Kind.BOOLEAN, a, fromIndex, toIndex, replicate8(val ? 1 : 0));
+    }
+
+    @SUBSTITUTE
+    public static void fill(byte[] a, byte val) {
+        BulkArrayAccess.fill(Kind.BYTE, a, 0, a.length, replicate8(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(byte[] a, int fromIndex, int toIndex, byte val) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        BulkArrayAccess.fill(Kind.BYTE, a, fromIndex, toIndex, replicate8(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(short[] a, short val) {
+        BulkArrayAccess.fill(Kind.SHORT, a, 0, a.length, replicate16(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(short[] a, int fromIndex, int toIndex, short val) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        BulkArrayAccess.fill(Kind.SHORT, a, fromIndex, toIndex, replicate16(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(char[] a, char val) {
+        BulkArrayAccess.fill(Kind.CHAR, a, 0, a.length, replicate16(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(char[] a, int fromIndex, int toIndex, char val) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        BulkArrayAccess.fill(Kind.CHAR, a, fromIndex, toIndex, replicate16(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(int[] a, int val) {
+        BulkArrayAccess.fill(Kind.INT, a, 0, a.length, replicate32(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(int[] a, int fromIndex, int toIndex, int val) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        BulkArrayAccess.fill(Kind.INT, a, fromIndex, toIndex, replicate32(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(long[] a, long val) {
+        BulkArrayAccess.fill(Kind.LONG, a, 0, a.length, val);
+    }
+
+    @SUBSTITUTE
+    public static void fill(long[] a, int fromIndex, int toIndex, long val) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        BulkArrayAccess.fill(Kind.LONG, a, fromIndex, toIndex, val);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(boolean[] a, boolean[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || a.length != a2.length) {
+            return false;
+        }
+        return BulkArrayAccess.equals(Kind.BOOLEAN, a, a2, a.length);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(byte[] a, byte[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || a.length != a2.length) {
+            return false;
+        }
+        return BulkArrayAccess.equals(Kind.BYTE, a, a2, a.length);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(short[] a, short[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || a.length != a2.length) {
+            return false;
+        }
+        return BulkArrayAccess.equals(Kind.SHORT, a, a2, a.length);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(char[] a, char[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || a.length != a2.length) {
+            return false;
+        }
+        return BulkArrayAccess.equals(Kind.CHAR, a, a2, a.length);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(int[] a, int[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || a.length != a2.length) {
+            return false;
+        }
+        return BulkArrayAccess.equals(Kind.INT, a, a2, a.length);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(long[] a, long[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || a.length != a2.length) {
+            return false;
+        }
+        return BulkArrayAccess.equals(Kind.LONG, a, a2, a.length);
+    }
+}
@@ -566,7 +566,20 @@ final class JDK_sun_misc_Unsafe {
      */
     @SUBSTITUTE
     public void setMemory(long address, long bytes, byte value) {
-        Memory.setBytes(Pointer.fromLong(address), Size.fromLong(bytes), value);
+        Memory.setBytes(null, address, bytes, value);
+    }
+
+    /**
+     * Initializes a range of memory to a known value.
+     * @see Unsafe#setMemory(Object, long, long, byte)
+     * @param o the object containing the range, or {@code null} if {@code offset} is an absolute address
+     * @param offset the offset of the range within {@code o}
+     * @param bytes the number of bytes to write
+     * @param value the value to fill the memory with
+     */
+    @SUBSTITUTE(optional = true)
+    public void setMemory(Object o, long offset, long bytes, byte value) {
+        Memory.setBytes(o, offset, bytes, value);
     }
 
     /**
@@ -578,7 +591,7 @@ final class JDK_sun_misc_Unsafe {
      */
     @SUBSTITUTE
     public void copyMemory(long srcAddress, long destAddress, long bytes) {
-        Memory.copyBytes(Pointer.fromLong(srcAddress), Pointer.fromLong(destAddress), Size.fromLong(bytes));
+        Memory.copyBytes(null, srcAddress, null, destAddress, bytes);
     }
 
     /**
@@ -602,19 +615,7 @@ final class JDK_sun_misc_Unsafe {
     public void copyMemory(Object srcBase, long srcOffset,
                                   Object destBase, long destOffset,
                                   long bytes) {
-        Pointer src;
-        if (srcBase == null) {
-            src = Pointer.fromLong(srcOffset);
-        } else {
-            src = Reference.fromJava(srcBase).toOrigin().plus(srcOffset);
-        }
-        Pointer dest;
-        if (destBase == null) {
-            dest = Pointer.fromLong(destOffset);
-        } else {
-            dest = Reference.fromJava(destBase).toOrigin().plus(destOffset);
-        }
-        Memory.copyBytes(src, dest, Size.fromLong(bytes));
+        Memory.copyBytes(srcBase, srcOffset, destBase, destOffset, bytes);
     }
 
     /**
@@ -293,6 +293,9 @@ public final class DynamicLinker {
 
     static {
         new CriticalNativeMethod(Memory.class, "memory_allocate");
+        new CriticalNativeMethod(Memory.class, "memory_setBytes");
+        new CriticalNativeMethod(Memory.class, "memory_copyBytes");
+        new CriticalNativeMethod(Memory.class, "memory_compareBytes");
     }
 
     /**
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.jni;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.reference.*;
+
+/**
+ * A pool of JNI global or weak global handles that threads allocate from and free to without taking a lock.
+ * <p>
+ * The objects are stored in fixed size chunks so the pool grows without copying the handles. The garbage collector
+ * sees each chunk as an ordinary object array, so the roots held in the pool can be scanned one chunk at a time.
+ * Each chunk has a parallel array of links that chains free handles into lists, which avoids any allocation when
+ * handles are freed.
+ * <p>
+ * Each thread keeps a {@link Cache} of free handles. Handles are moved between a cache and the shared free list
+ * {@value #BATCH_SIZE} at a time. The shared list is updated by compare-and-swap on a head word that includes a
+ * stamp, so an update made from a stale view of the list fails. Only growing the pool takes a lock.
+ */
+public final class GlobalHandleTable {
+
+    static final int CHUNK_SHIFT = 8;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * The number of handles moved between a thread's cache and the shared free list at a time.
+     */
+    static final int BATCH_SIZE = 16;
+
+    /**
+     * A thread's list of free handles. The list is linked through the pool's links and only accessed by its thread.
+     */
+    public static final class Cache {
+        /**
+         * The index of the first free handle plus one, or 0 if the cache is empty.
+         */
+        int head;
+
+        int size;
+    }
+
+    /**
+     * The chunks holding the objects, indexed by {@code index >> CHUNK_SHIFT}.
+     */
+    private volatile Object[][] chunks = new Object[8][];
+
+    /**
+     * The links of the free lists. The link of a free handle is the index of the next free handle plus one, or 0.
+     */
+    private volatile int[][] links = new int[8][];
+
+    private int numberOfChunks;
+
+    /**
+     * The head of the shared free list. The low 32 bits are the index of the first free handle plus one (0 denotes
+     * an empty list) and the high 32 bits are a stamp that is incremented by every update.
+     */
+    private volatile long freeList;
+
+    @FOLD
+    private static int freeListOffset() {
+        return ClassActor.fromJava(GlobalHandleTable.class).findLocalInstanceFieldActor("freeList").offset();
+    }
+
+    /**
+     * Atomically replaces the head of the shared free list if it still equals {@code head}, advancing the stamp.
+     *
+     * @param first the index of the new first free handle plus one, or 0
+     */
+    private boolean casFreeList(long head, int first) {
+        final long newHead = (((head >>> 32) + 1) << 32) | (first & 0xFFFFFFFFL);
+        return Reference.fromJava(this).compareAndSwapLong(freeListOffset(), head, newHead) == head;
+    }
+
+    Object get(int index) {
+        return chunks[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    private int link(int index) {
+        return links[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    private void setLink(int index, int next) {
+        links[index >> CHUNK_SHIFT][index & CHUNK_MASK] = next;
+    }
+
+    /**
+     * Stores an object in a free handle taken from a thread's cache.
+     *
+     * @return the index of the handle
+     */
+    int allocate(Object object, Cache cache) {
+        if (cache.head == 0) {
+            refill(cache);
+        }
+        final int index = cache.head - 1;
+        cache.head = link(index);
+        cache.size--;
+        chunks[index >> CHUNK_SHIFT][index & CHUNK_MASK] = object;
+        return index;
+    }
+
+    /**
+     * Clears a handle and adds it to a thread's cache, giving a batch back to the shared list if the cache is full.
+     */
+    void free(int index, Cache cache) {
+        chunks[index >> CHUNK_SHIFT][index & CHUNK_MASK] = null;
+        setLink(index, cache.head);
+        cache.head = index + 1;
+        if (++cache.size >= 2 * BATCH_SIZE) {
+            int last = index;
+            for (int i = 1; i < BATCH_SIZE; i++) {
+                last = link(last) - 1;
+            }
+            final int rest = link(last);
+            push(index, last);
+            cache.head = rest;
+            cache.size -= BATCH_SIZE;
+        }
+    }
+
+    /**
+     * Returns all the handles in a thread's cache to the shared list.
+     */
+    void release(Cache cache) {
+        if (cache.head != 0) {
+            final int first = cache.head - 1;
+            int last = first;
+            while (link(last) != 0) {
+                last = link(last) - 1;
+            }
+            push(first, last);
+            cache.head = 0;
+            cache.size = 0;
+        }
+    }
+
+    /**
+     * Pushes the chain of free handles from {@code first} to {@code last} onto the shared list.
+     */
+    private void push(int first, int last) {
+        long head;
+        do {
+            head = freeList;
+            setLink(last, (int) head);
+        } while (!casFreeList(head, first + 1));
+    }
+
+    /**
+     * Moves up to {@link #BATCH_SIZE} handles from the shared list to an empty thread cache.
+     */
+    private void refill(Cache cache) {
+        while (true) {
+            final long head = freeList;
+            final int first = (int) head;
+            if (first == 0) {
+                grow();
+                continue;
+            }
+            // The links read here may be changed by other threads but then the stamp changes too and the CAS fails
+            int last = first - 1;
+            int n = 1;
+            int next;
+            while (n < BATCH_SIZE && (next = link(last)) != 0) {
+                last = next - 1;
+                n++;
+            }
+            final int rest = link(last);
+            if (casFreeList(head, rest)) {
+                setLink(last, 0);
+                cache.head = first;
+                cache.size = n;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds a chunk of free handles to the shared list unless another thread already did.
+     */
+    private synchronized void grow() {
+        if ((int) freeList != 0) {
+            return;
+        }
+        final int chunkIndex = numberOfChunks;
+        Object[][] chunks = this.chunks;
+        int[][] links = this.links;
+        if (chunkIndex == chunks.length) {
+            // Can't use System.arraycopy - it's a native method which may require allocating JNI handles!
+            final Object[][] newChunks = new Object[chunkIndex * 2][];
+            final int[][] newLinks = new int[chunkIndex * 2][];
+            for (int i = 0; i != chunkIndex; ++i) {
+                newChunks[i] = chunks[i];
+                newLinks[i] = links[i];
+            }
+            chunks = newChunks;
+            links = newLinks;
+        }
+        final int base = chunkIndex << CHUNK_SHIFT;
+        final int[] chunkLinks = new int[CHUNK_SIZE];
+        for (int i = 0; i < CHUNK_SIZE - 1; i++) {
+            chunkLinks[i] = base + i + 2;
+        }
+        chunks[chunkIndex] = new Object[CHUNK_SIZE];
+        links[chunkIndex] = chunkLinks;
+        this.links = links;
+        this.chunks = chunks;
+        numberOfChunks = chunkIndex + 1;
+        push(base, base + CHUNK_SIZE - 1);
+    }
+}
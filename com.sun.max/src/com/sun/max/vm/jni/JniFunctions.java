@@ -23,6 +23,7 @@ package com.sun.max.vm.jni;
 import com.sun.max.Utils;
 import com.sun.max.annotate.INLINE;
 import com.sun.max.annotate.INTRINSIC;
+import com.sun.max.annotate.NO_SAFEPOINT_POLLS;
 import com.sun.max.annotate.VM_ENTRY_POINT;
 import com.sun.max.lang.Classes;
 import com.sun.max.memory.Memory;
@@ -3487,18 +3488,13 @@ public final class JniFunctions {
     }
 
     private static Pointer getBooleanArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final boolean[] a = (boolean[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setBoolean(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length, isCopy);
     }
 
     @VM_ENTRY_POINT
     private static Pointer GetByteArrayElements(Pointer env, JniHandle array, Pointer isCopy) {
-        // Source: JniFunctionsSource.java:1214
+        // Source: JniFunctionsSource.java:1209
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetByteArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, isCopy);
@@ -3519,18 +3515,13 @@ public final class JniFunctions {
     }
 
     private static Pointer getByteArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final byte[] a = (byte[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.BYTE.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setByte(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.BYTE.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
     private static Pointer GetCharArrayElements(Pointer env, JniHandle array, Pointer isCopy) {
-        // Source: JniFunctionsSource.java:1229
+        // Source: JniFunctionsSource.java:1219
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetCharArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, isCopy);
@@ -3551,18 +3542,13 @@ public final class JniFunctions {
     }
 
     private static Pointer getCharArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final char[] a = (char[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.CHAR.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setChar(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.CHAR.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
     private static Pointer GetShortArrayElements(Pointer env, JniHandle array, Pointer isCopy) {
-        // Source: JniFunctionsSource.java:1244
+        // Source: JniFunctionsSource.java:1229
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetShortArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, isCopy);
@@ -3583,18 +3569,13 @@ public final class JniFunctions {
     }
 
     private static Pointer getShortArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final short[] a = (short[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.SHORT.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setShort(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.SHORT.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
     private static Pointer GetIntArrayElements(Pointer env, JniHandle array, Pointer isCopy) {
-        // Source: JniFunctionsSource.java:1259
+        // Source: JniFunctionsSource.java:1239
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetIntArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, isCopy);
@@ -3615,18 +3596,13 @@ public final class JniFunctions {
     }
 
     private static Pointer getIntArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final int[] a = (int[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.INT.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setInt(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.INT.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
     private static Pointer GetLongArrayElements(Pointer env, JniHandle array, Pointer isCopy) {
-        // Source: JniFunctionsSource.java:1274
+        // Source: JniFunctionsSource.java:1249
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetLongArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, isCopy);
@@ -3647,18 +3623,13 @@ public final class JniFunctions {
     }
 
     private static Pointer getLongArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final long[] a = (long[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.LONG.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setLong(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.LONG.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
     private static Pointer GetFloatArrayElements(Pointer env, JniHandle array, Pointer isCopy) {
-        // Source: JniFunctionsSource.java:1289
+        // Source: JniFunctionsSource.java:1259
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetFloatArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, isCopy);
@@ -3679,18 +3650,13 @@ public final class JniFunctions {
     }
 
     private static Pointer getFloatArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final float[] a = (float[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.FLOAT.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setFloat(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.FLOAT.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
     private static Pointer GetDoubleArrayElements(Pointer env, JniHandle array, Pointer isCopy) {
-        // Source: JniFunctionsSource.java:1304
+        // Source: JniFunctionsSource.java:1269
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetDoubleArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, isCopy);
@@ -3711,18 +3677,13 @@ public final class JniFunctions {
     }
 
     private static Pointer getDoubleArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final double[] a = (double[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.DOUBLE.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setDouble(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.DOUBLE.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
     private static void ReleaseBooleanArrayElements(Pointer env, JniHandle array, Pointer elements, int mode) {
-        // Source: JniFunctionsSource.java:1319
+        // Source: JniFunctionsSource.java:1279
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleaseBooleanArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, elements, Address.fromInt(mode));
@@ -3743,17 +3704,12 @@ public final class JniFunctions {
 
     private static void releaseBooleanArrayElements(JniHandle array, Pointer elements, int mode) {
         final boolean[] a = (boolean[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getBoolean(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length, elements, mode);
     }
 
     @VM_ENTRY_POINT
     private static void ReleaseByteArrayElements(Pointer env, JniHandle array, Pointer elements, int mode) {
-        // Source: JniFunctionsSource.java:1334
+        // Source: JniFunctionsSource.java:1289
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleaseByteArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, elements, Address.fromInt(mode));
@@ -3774,17 +3730,12 @@ public final class JniFunctions {
 
     private static void releaseByteArrayElements(JniHandle array, Pointer elements, int mode) {
         final byte[] a = (byte[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getByte(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.BYTE.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
     private static void ReleaseCharArrayElements(Pointer env, JniHandle array, Pointer elements, int mode) {
-        // Source: JniFunctionsSource.java:1349
+        // Source: JniFunctionsSource.java:1299
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleaseCharArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, elements, Address.fromInt(mode));
@@ -3805,17 +3756,12 @@ public final class JniFunctions {
 
     private static void releaseCharArrayElements(JniHandle array, Pointer elements, int mode) {
         final char[] a = (char[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getChar(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.CHAR.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
     private static void ReleaseShortArrayElements(Pointer env, JniHandle array, Pointer elements, int mode) {
-        // Source: JniFunctionsSource.java:1364
+        // Source: JniFunctionsSource.java:1309
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleaseShortArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, elements, Address.fromInt(mode));
@@ -3836,17 +3782,12 @@ public final class JniFunctions {
 
     private static void releaseShortArrayElements(JniHandle array, Pointer elements, int mode) {
         final short[] a = (short[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getShort(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.SHORT.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
     private static void ReleaseIntArrayElements(Pointer env, JniHandle array, Pointer elements, int mode) {
-        // Source: JniFunctionsSource.java:1379
+        // Source: JniFunctionsSource.java:1319
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleaseIntArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, elements, Address.fromInt(mode));
@@ -3867,17 +3808,12 @@ public final class JniFunctions {
 
     private static void releaseIntArrayElements(JniHandle array, Pointer elements, int mode) {
         final int[] a = (int[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getInt(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.INT.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
     private static void ReleaseLongArrayElements(Pointer env, JniHandle array, Pointer elements, int mode) {
-        // Source: JniFunctionsSource.java:1394
+        // Source: JniFunctionsSource.java:1329
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleaseLongArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, elements, Address.fromInt(mode));
@@ -3898,17 +3834,12 @@ public final class JniFunctions {
 
     private static void releaseLongArrayElements(JniHandle array, Pointer elements, int mode) {
         final long[] a = (long[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getLong(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.LONG.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
     private static void ReleaseFloatArrayElements(Pointer env, JniHandle array, Pointer elements, int mode) {
-        // Source: JniFunctionsSource.java:1409
+        // Source: JniFunctionsSource.java:1339
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleaseFloatArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, elements, Address.fromInt(mode));
@@ -3929,17 +3860,12 @@ public final class JniFunctions {
 
     private static void releaseFloatArrayElements(JniHandle array, Pointer elements, int mode) {
         final float[] a = (float[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getFloat(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.FLOAT.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
     private static void ReleaseDoubleArrayElements(Pointer env, JniHandle array, Pointer elements, int mode) {
-        // Source: JniFunctionsSource.java:1424
+        // Source: JniFunctionsSource.java:1349
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleaseDoubleArrayElements.ordinal(), UPCALL_ENTRY, anchor, env, array, elements, Address.fromInt(mode));
@@ -3960,17 +3886,12 @@ public final class JniFunctions {
 
     private static void releaseDoubleArrayElements(JniHandle array, Pointer elements, int mode) {
         final double[] a = (double[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getDouble(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.DOUBLE.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
     private static void GetBooleanArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1439
+        // Source: JniFunctionsSource.java:1359
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetBooleanArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -3978,9 +3899,8 @@ public final class JniFunctions {
 
         try {
             final boolean[] a = (boolean[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                buffer.setBoolean(i, a[start + i]);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyFromArray(a, start, buffer, length);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -3994,7 +3914,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void GetByteArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1447
+        // Source: JniFunctionsSource.java:1366
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetByteArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4002,9 +3922,8 @@ public final class JniFunctions {
 
         try {
             final byte[] a = (byte[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                buffer.setByte(i, a[start + i]);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyFromArray(a, start * Kind.BYTE.width.numberOfBytes, buffer, length * Kind.BYTE.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4018,7 +3937,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void GetCharArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1455
+        // Source: JniFunctionsSource.java:1373
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetCharArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4026,9 +3945,8 @@ public final class JniFunctions {
 
         try {
             final char[] a = (char[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                buffer.setChar(i, a[start + i]);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyFromArray(a, start * Kind.CHAR.width.numberOfBytes, buffer, length * Kind.CHAR.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4042,7 +3960,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void GetShortArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1463
+        // Source: JniFunctionsSource.java:1380
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetShortArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4050,9 +3968,8 @@ public final class JniFunctions {
 
         try {
             final short[] a = (short[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                buffer.setShort(i, a[start + i]);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyFromArray(a, start * Kind.SHORT.width.numberOfBytes, buffer, length * Kind.SHORT.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4066,7 +3983,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void GetIntArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1471
+        // Source: JniFunctionsSource.java:1387
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetIntArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4074,9 +3991,8 @@ public final class JniFunctions {
 
         try {
             final int[] a = (int[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                buffer.setInt(i, a[start + i]);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyFromArray(a, start * Kind.INT.width.numberOfBytes, buffer, length * Kind.INT.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4090,7 +4006,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void GetLongArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1479
+        // Source: JniFunctionsSource.java:1394
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetLongArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4098,9 +4014,8 @@ public final class JniFunctions {
 
         try {
             final long[] a = (long[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                buffer.setLong(i, a[start + i]);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyFromArray(a, start * Kind.LONG.width.numberOfBytes, buffer, length * Kind.LONG.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4114,7 +4029,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void GetFloatArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1487
+        // Source: JniFunctionsSource.java:1401
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetFloatArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4122,9 +4037,8 @@ public final class JniFunctions {
 
         try {
             final float[] a = (float[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                buffer.setFloat(i, a[start + i]);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyFromArray(a, start * Kind.FLOAT.width.numberOfBytes, buffer, length * Kind.FLOAT.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4138,7 +4052,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void GetDoubleArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1495
+        // Source: JniFunctionsSource.java:1408
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetDoubleArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4146,9 +4060,8 @@ public final class JniFunctions {
 
         try {
             final double[] a = (double[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                buffer.setDouble(i, a[start + i]);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyFromArray(a, start * Kind.DOUBLE.width.numberOfBytes, buffer, length * Kind.DOUBLE.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4162,7 +4075,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void SetBooleanArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1503
+        // Source: JniFunctionsSource.java:1415
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.SetBooleanArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4170,9 +4083,8 @@ public final class JniFunctions {
 
         try {
             final boolean[] a = (boolean[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                a[start + i] = buffer.getBoolean(i);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyToArray(buffer, a, start, length);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4186,7 +4098,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void SetByteArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1511
+        // Source: JniFunctionsSource.java:1422
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.SetByteArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4194,9 +4106,8 @@ public final class JniFunctions {
 
         try {
             final byte[] a = (byte[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                a[start + i] = buffer.getByte(i);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyToArray(buffer, a, start * Kind.BYTE.width.numberOfBytes, length * Kind.BYTE.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4210,7 +4121,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void SetCharArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1519
+        // Source: JniFunctionsSource.java:1429
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.SetCharArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4218,9 +4129,8 @@ public final class JniFunctions {
 
         try {
             final char[] a = (char[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                a[start + i] = buffer.getChar(i);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyToArray(buffer, a, start * Kind.CHAR.width.numberOfBytes, length * Kind.CHAR.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4234,7 +4144,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void SetShortArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1527
+        // Source: JniFunctionsSource.java:1436
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.SetShortArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4242,9 +4152,8 @@ public final class JniFunctions {
 
         try {
             final short[] a = (short[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                a[start + i] = buffer.getShort(i);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyToArray(buffer, a, start * Kind.SHORT.width.numberOfBytes, length * Kind.SHORT.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4258,7 +4167,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void SetIntArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1535
+        // Source: JniFunctionsSource.java:1443
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.SetIntArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4266,9 +4175,8 @@ public final class JniFunctions {
 
         try {
             final int[] a = (int[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                a[start + i] = buffer.getInt(i);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyToArray(buffer, a, start * Kind.INT.width.numberOfBytes, length * Kind.INT.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4282,7 +4190,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void SetLongArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1543
+        // Source: JniFunctionsSource.java:1450
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.SetLongArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4290,9 +4198,8 @@ public final class JniFunctions {
 
         try {
             final long[] a = (long[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                a[start + i] = buffer.getLong(i);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyToArray(buffer, a, start * Kind.LONG.width.numberOfBytes, length * Kind.LONG.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4306,7 +4213,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void SetFloatArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1551
+        // Source: JniFunctionsSource.java:1457
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.SetFloatArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4314,9 +4221,8 @@ public final class JniFunctions {
 
         try {
             final float[] a = (float[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                a[start + i] = buffer.getFloat(i);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyToArray(buffer, a, start * Kind.FLOAT.width.numberOfBytes, length * Kind.FLOAT.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4330,7 +4236,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void SetDoubleArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1559
+        // Source: JniFunctionsSource.java:1464
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.SetDoubleArrayRegion.ordinal(), UPCALL_ENTRY, anchor, env, array, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4338,9 +4244,8 @@ public final class JniFunctions {
 
         try {
             final double[] a = (double[]) array.unhand();
-            for (int i = 0; i < length; i++) {
-                a[start + i] = buffer.getDouble(i);
-            }
+            checkArrayRegion(a.length, start, length);
+            copyToArray(buffer, a, start * Kind.DOUBLE.width.numberOfBytes, length * Kind.DOUBLE.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4362,7 +4267,7 @@ public final class JniFunctions {
      */
     @VM_ENTRY_POINT
     private static int RegisterNatives(Pointer env, JniHandle javaType, Pointer methods, int numberOfMethods) {
-        // Source: JniFunctionsSource.java:1575
+        // Source: JniFunctionsSource.java:1479
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.RegisterNatives.ordinal(), UPCALL_ENTRY, anchor, env, javaType, methods, Address.fromInt(numberOfMethods));
@@ -4417,7 +4322,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static int UnregisterNatives(Pointer env, JniHandle javaType) {
-        // Source: JniFunctionsSource.java:1613
+        // Source: JniFunctionsSource.java:1517
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.UnregisterNatives.ordinal(), UPCALL_ENTRY, anchor, env, javaType);
@@ -4449,7 +4354,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static int MonitorEnter(Pointer env, JniHandle object) {
-        // Source: JniFunctionsSource.java:1628
+        // Source: JniFunctionsSource.java:1532
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.MonitorEnter.ordinal(), UPCALL_ENTRY, anchor, env, object);
@@ -4472,7 +4377,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static int MonitorExit(Pointer env, JniHandle object) {
-        // Source: JniFunctionsSource.java:1634
+        // Source: JniFunctionsSource.java:1538
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.MonitorExit.ordinal(), UPCALL_ENTRY, anchor, env, object);
@@ -4495,11 +4400,11 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static native int GetJavaVM(Pointer env, Pointer vmPointerPointer);
-        // Source: JniFunctionsSource.java:1640
+        // Source: JniFunctionsSource.java:1544
 
     @VM_ENTRY_POINT
     private static void GetStringRegion(Pointer env, JniHandle string, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1643
+        // Source: JniFunctionsSource.java:1547
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetStringRegion.ordinal(), UPCALL_ENTRY, anchor, env, string, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4507,9 +4412,17 @@ public final class JniFunctions {
 
         try {
             final String s = (String) string.unhand();
-            for (int i = 0; i < length; i++) {
-                buffer.setChar(i, s.charAt(i + start));
+            final char[] value = stringChars(s);
+            if (value == null) {
+                for (int i = 0; i < length; i++) {
+                    buffer.setChar(i, s.charAt(i + start));
+                }
+                return;
+            }
+            if (start < 0 || length < 0 || start > value.length - length) {
+                throw new StringIndexOutOfBoundsException();
             }
+            copyFromArray(value, start * Kind.CHAR.width.numberOfBytes, buffer, length * Kind.CHAR.width.numberOfBytes);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
         } finally {
@@ -4523,7 +4436,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void GetStringUTFRegion(Pointer env, JniHandle string, int start, int length, Pointer buffer) {
-        // Source: JniFunctionsSource.java:1651
+        // Source: JniFunctionsSource.java:1563
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetStringUTFRegion.ordinal(), UPCALL_ENTRY, anchor, env, string, Address.fromInt(start), Address.fromInt(length), buffer);
@@ -4547,7 +4460,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static Pointer GetPrimitiveArrayCritical(Pointer env, JniHandle array, Pointer isCopy) {
-        // Source: JniFunctionsSource.java:1659
+        // Source: JniFunctionsSource.java:1571
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetPrimitiveArrayCritical.ordinal(), UPCALL_ENTRY, anchor, env, array, isCopy);
@@ -4557,7 +4470,7 @@ public final class JniFunctions {
             final Object arrayObject = array.unhand();
             if (Heap.useDirectPointer(arrayObject)) {
                 setCopyPointer(isCopy, false);
-                return Reference.fromJava(arrayObject).toOrigin().plus(Layout.byteArrayLayout().getElementOffsetFromOrigin(0));
+                return arrayElementPointer(arrayObject, 0);
             }
 
             if (arrayObject instanceof boolean[]) {
@@ -4592,7 +4505,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void ReleasePrimitiveArrayCritical(Pointer env, JniHandle array, Pointer elements, int mode) {
-        // Source: JniFunctionsSource.java:1687
+        // Source: JniFunctionsSource.java:1599
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleasePrimitiveArrayCritical.ordinal(), UPCALL_ENTRY, anchor, env, array, elements, Address.fromInt(mode));
@@ -4600,7 +4513,8 @@ public final class JniFunctions {
 
         try {
             final Object arrayObject = array.unhand();
-            if (Heap.releasedDirectPointer(arrayObject)) {
+            if (elements.equals(arrayElementPointer(arrayObject, 0))) {
+                Heap.releasedDirectPointer(arrayObject);
                 return;
             }
             if (arrayObject instanceof boolean[]) {
@@ -4633,16 +4547,21 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static Pointer GetStringCritical(Pointer env, JniHandle string, Pointer isCopy) {
-        // Source: JniFunctionsSource.java:1712
+        // Source: JniFunctionsSource.java:1624
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetStringCritical.ordinal(), UPCALL_ENTRY, anchor, env, string, isCopy);
         }
 
         try {
-            // TODO(cwi): Implement optimized version for OptimizeJNICritical if a benchmark uses it frequently
+            final String s = (String) string.unhand();
+            final char[] value = stringChars(s);
+            if (value != null && Heap.useDirectPointer(value)) {
+                setCopyPointer(isCopy, false);
+                return arrayElementPointer(value, 0);
+            }
             setCopyPointer(isCopy, true);
-            return copyString((String) string.unhand());
+            return copyString(s);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
             return asPointer(0L);
@@ -4656,22 +4575,43 @@ public final class JniFunctions {
     }
 
     private static Pointer copyString(String string) {
-        final Pointer pointer = Memory.mustAllocate(string.length() * Kind.CHAR.width.numberOfBytes);
-        for (int i = 0; i < string.length(); i++) {
-            pointer.setChar(i, string.charAt(i));
+        final int numberOfBytes = string.length() * Kind.CHAR.width.numberOfBytes;
+        final Pointer pointer = Memory.mustAllocate(numberOfBytes);
+        final char[] value = stringChars(string);
+        if (value != null) {
+            copyFromArray(value, 0, pointer, numberOfBytes);
+        } else {
+            for (int i = 0; i < string.length(); i++) {
+                pointer.setChar(i, string.charAt(i));
+            }
         }
         return pointer;
     }
 
+    /**
+     * Gets the character array holding the characters of a given string.
+     *
+     * @return {@code null} if {@code string} is a view of part of a larger array
+     */
+    private static char[] stringChars(String string) {
+        final char[] value = (char[]) ClassRegistry.String_value.getObject(string);
+        return value.length == string.length() ? value : null;
+    }
+
     @VM_ENTRY_POINT
     private static void ReleaseStringCritical(Pointer env, JniHandle string, Pointer chars) {
-        // Source: JniFunctionsSource.java:1727
+        // Source: JniFunctionsSource.java:1660
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleaseStringCritical.ordinal(), UPCALL_ENTRY, anchor, env, string, chars);
         }
 
         try {
+            final char[] value = stringChars((String) string.unhand());
+            if (value != null && chars.equals(arrayElementPointer(value, 0))) {
+                Heap.releasedDirectPointer(value);
+                return;
+            }
             Memory.deallocate(chars);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
@@ -4686,7 +4626,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static JniHandle NewWeakGlobalRef(Pointer env, JniHandle handle) {
-        // Source: JniFunctionsSource.java:1732
+        // Source: JniFunctionsSource.java:1670
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.NewWeakGlobalRef.ordinal(), UPCALL_ENTRY, anchor, env, handle);
@@ -4708,7 +4648,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void DeleteWeakGlobalRef(Pointer env, JniHandle handle) {
-        // Source: JniFunctionsSource.java:1737
+        // Source: JniFunctionsSource.java:1675
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.DeleteWeakGlobalRef.ordinal(), UPCALL_ENTRY, anchor, env, handle);
@@ -4729,7 +4669,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static boolean ExceptionCheck(Pointer env) {
-        // Source: JniFunctionsSource.java:1742
+        // Source: JniFunctionsSource.java:1680
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ExceptionCheck.ordinal(), UPCALL_ENTRY, anchor, env);
@@ -4754,7 +4694,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static JniHandle NewDirectByteBuffer(Pointer env, Pointer address, long capacity) throws Exception {
-        // Source: JniFunctionsSource.java:1750
+        // Source: JniFunctionsSource.java:1688
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.NewDirectByteBuffer.ordinal(), UPCALL_ENTRY, anchor, env, address, Address.fromLong(capacity));
@@ -4777,7 +4717,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static Pointer GetDirectBufferAddress(Pointer env, JniHandle buffer) throws Exception {
-        // Source: JniFunctionsSource.java:1756
+        // Source: JniFunctionsSource.java:1694
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetDirectBufferAddress.ordinal(), UPCALL_ENTRY, anchor, env, buffer);
@@ -4804,7 +4744,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static long GetDirectBufferCapacity(Pointer env, JniHandle buffer) {
-        // Source: JniFunctionsSource.java:1766
+        // Source: JniFunctionsSource.java:1704
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetDirectBufferCapacity.ordinal(), UPCALL_ENTRY, anchor, env, buffer);
@@ -4830,7 +4770,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static int GetObjectRefType(Pointer env, JniHandle obj) {
-        // Source: JniFunctionsSource.java:1775
+        // Source: JniFunctionsSource.java:1713
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetObjectRefType.ordinal(), UPCALL_ENTRY, anchor, env, obj);
@@ -4869,6 +4809,64 @@ public final class JniFunctions {
         assert mode == 0 || mode == JNI_COMMIT || mode == JNI_ABORT;
     }
 
+    /**
+     * Gets the elements of a primitive array for a {@code Get<Type>ArrayElements} function. The array is pinned and
+     * its elements are accessed in place if the heap scheme supports {@linkplain Heap#useLongLivedDirectPointer(Object)
+     * long-lived pinning}. Otherwise the elements are copied in bulk into a newly allocated buffer.
+     */
+    private static Pointer getArrayElements(Object array, int numberOfBytes, Pointer isCopy) throws OutOfMemoryError {
+        if (Heap.useLongLivedDirectPointer(array)) {
+            setCopyPointer(isCopy, false);
+            return arrayElementPointer(array, 0);
+        }
+        setCopyPointer(isCopy, true);
+        final Pointer pointer = Memory.mustAllocate(numberOfBytes);
+        copyFromArray(array, 0, pointer, numberOfBytes);
+        return pointer;
+    }
+
+    /**
+     * Releases the elements obtained by {@link #getArrayElements(Object, int, Pointer)}. A copy can never be at the
+     * address of the array's elements, so that address identifies the elements as having been accessed in place.
+     */
+    private static void releaseArrayElements(Object array, int numberOfBytes, Pointer elements, int mode) {
+        if (elements.equals(arrayElementPointer(array, 0))) {
+            if (mode != JNI_COMMIT) {
+                Heap.releaseLongLivedDirectPointer(array);
+            }
+            return;
+        }
+        if (mode == 0 || mode == JNI_COMMIT) {
+            copyToArray(elements, array, 0, numberOfBytes);
+        }
+        releaseElements(elements, mode);
+    }
+
+    private static void checkArrayRegion(int arrayLength, int start, int length) {
+        if (start < 0 || length < 0 || start > arrayLength - length) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * Gets the address of the byte at a given offset from the first element of a primitive array.
+     * The address is only valid until the next safepoint unless the array is pinned.
+     */
+    @INLINE
+    private static Pointer arrayElementPointer(Object array, int byteOffset) {
+        return Reference.fromJava(array).toOrigin().plus(Layout.byteArrayLayout().getElementOffsetFromOrigin(byteOffset));
+    }
+
+    @NO_SAFEPOINT_POLLS("array must not move while its elements are copied")
+    private static void copyFromArray(Object array, int byteOffset, Pointer buffer, int numberOfBytes) {
+        Memory.copyBytes(arrayElementPointer(array, byteOffset), buffer, Size.fromInt(numberOfBytes));
+    }
+
+    @NO_SAFEPOINT_POLLS("array must not move while its elements are copied")
+    private static void copyToArray(Pointer buffer, Object array, int byteOffset, int numberOfBytes) {
+        Memory.copyBytes(buffer, arrayElementPointer(array, byteOffset), Size.fromInt(numberOfBytes));
+    }
+
     public static enum LogOperations {
         /* 0 */ DefineClass,
         /* 1 */ FindClass,
@@ -1201,13 +1201,8 @@ public final class JniFunctionsSource {
     }
 
     private static Pointer getBooleanArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final boolean[] a = (boolean[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setBoolean(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length, isCopy);
     }
 
     @VM_ENTRY_POINT
@@ -1216,13 +1211,8 @@ public final class JniFunctionsSource {
     }
 
     private static Pointer getByteArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final byte[] a = (byte[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.BYTE.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setByte(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.BYTE.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
@@ -1231,13 +1221,8 @@ public final class JniFunctionsSource {
     }
 
     private static Pointer getCharArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final char[] a = (char[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.CHAR.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setChar(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.CHAR.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
@@ -1246,13 +1231,8 @@ public final class JniFunctionsSource {
     }
 
     private static Pointer getShortArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final short[] a = (short[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.SHORT.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setShort(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.SHORT.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
@@ -1261,13 +1241,8 @@ public final class JniFunctionsSource {
     }
 
     private static Pointer getIntArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final int[] a = (int[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.INT.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setInt(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.INT.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
@@ -1276,13 +1251,8 @@ public final class JniFunctionsSource {
     }
 
     private static Pointer getLongArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final long[] a = (long[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.LONG.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setLong(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.LONG.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
@@ -1291,13 +1261,8 @@ public final class JniFunctionsSource {
     }
 
     private static Pointer getFloatArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final float[] a = (float[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.FLOAT.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setFloat(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.FLOAT.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
@@ -1306,13 +1271,8 @@ public final class JniFunctionsSource {
     }
 
     private static Pointer getDoubleArrayElements(JniHandle array, Pointer isCopy) throws OutOfMemoryError {
-        setCopyPointer(isCopy, true);
         final double[] a = (double[]) array.unhand();
-        final Pointer pointer = Memory.mustAllocate(a.length * Kind.DOUBLE.width.numberOfBytes);
-        for (int i = 0; i < a.length; i++) {
-            pointer.setDouble(i, a[i]);
-        }
-        return pointer;
+        return getArrayElements(a, a.length * Kind.DOUBLE.width.numberOfBytes, isCopy);
     }
 
     @VM_ENTRY_POINT
@@ -1322,12 +1282,7 @@ public final class JniFunctionsSource {
 
     private static void releaseBooleanArrayElements(JniHandle array, Pointer elements, int mode) {
         final boolean[] a = (boolean[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getBoolean(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length, elements, mode);
     }
 
     @VM_ENTRY_POINT
@@ -1337,12 +1292,7 @@ public final class JniFunctionsSource {
 
     private static void releaseByteArrayElements(JniHandle array, Pointer elements, int mode) {
         final byte[] a = (byte[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getByte(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.BYTE.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
@@ -1352,12 +1302,7 @@ public final class JniFunctionsSource {
 
     private static void releaseCharArrayElements(JniHandle array, Pointer elements, int mode) {
         final char[] a = (char[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getChar(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.CHAR.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
@@ -1367,12 +1312,7 @@ public final class JniFunctionsSource {
 
     private static void releaseShortArrayElements(JniHandle array, Pointer elements, int mode) {
         final short[] a = (short[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getShort(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.SHORT.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
@@ -1382,12 +1322,7 @@ public final class JniFunctionsSource {
 
     private static void releaseIntArrayElements(JniHandle array, Pointer elements, int mode) {
         final int[] a = (int[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getInt(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.INT.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
@@ -1397,12 +1332,7 @@ public final class JniFunctionsSource {
 
     private static void releaseLongArrayElements(JniHandle array, Pointer elements, int mode) {
         final long[] a = (long[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getLong(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.LONG.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
@@ -1412,12 +1342,7 @@ public final class JniFunctionsSource {
 
     private static void releaseFloatArrayElements(JniHandle array, Pointer elements, int mode) {
         final float[] a = (float[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getFloat(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.FLOAT.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
@@ -1427,140 +1352,119 @@ public final class JniFunctionsSource {
 
     private static void releaseDoubleArrayElements(JniHandle array, Pointer elements, int mode) {
         final double[] a = (double[]) array.unhand();
-        if (mode == 0 || mode == JNI_COMMIT) {
-            for (int i = 0; i < a.length; i++) {
-                a[i] = elements.getDouble(i);
-            }
-        }
-        releaseElements(elements, mode);
+        releaseArrayElements(a, a.length * Kind.DOUBLE.width.numberOfBytes, elements, mode);
     }
 
     @VM_ENTRY_POINT
     private static void GetBooleanArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final boolean[] a = (boolean[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            buffer.setBoolean(i, a[start + i]);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyFromArray(a, start, buffer, length);
     }
 
     @VM_ENTRY_POINT
     private static void GetByteArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final byte[] a = (byte[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            buffer.setByte(i, a[start + i]);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyFromArray(a, start * Kind.BYTE.width.numberOfBytes, buffer, length * Kind.BYTE.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void GetCharArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final char[] a = (char[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            buffer.setChar(i, a[start + i]);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyFromArray(a, start * Kind.CHAR.width.numberOfBytes, buffer, length * Kind.CHAR.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void GetShortArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final short[] a = (short[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            buffer.setShort(i, a[start + i]);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyFromArray(a, start * Kind.SHORT.width.numberOfBytes, buffer, length * Kind.SHORT.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void GetIntArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final int[] a = (int[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            buffer.setInt(i, a[start + i]);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyFromArray(a, start * Kind.INT.width.numberOfBytes, buffer, length * Kind.INT.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void GetLongArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final long[] a = (long[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            buffer.setLong(i, a[start + i]);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyFromArray(a, start * Kind.LONG.width.numberOfBytes, buffer, length * Kind.LONG.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void GetFloatArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final float[] a = (float[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            buffer.setFloat(i, a[start + i]);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyFromArray(a, start * Kind.FLOAT.width.numberOfBytes, buffer, length * Kind.FLOAT.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void GetDoubleArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final double[] a = (double[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            buffer.setDouble(i, a[start + i]);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyFromArray(a, start * Kind.DOUBLE.width.numberOfBytes, buffer, length * Kind.DOUBLE.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void SetBooleanArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final boolean[] a = (boolean[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            a[start + i] = buffer.getBoolean(i);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyToArray(buffer, a, start, length);
     }
 
     @VM_ENTRY_POINT
     private static void SetByteArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final byte[] a = (byte[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            a[start + i] = buffer.getByte(i);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyToArray(buffer, a, start * Kind.BYTE.width.numberOfBytes, length * Kind.BYTE.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void SetCharArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final char[] a = (char[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            a[start + i] = buffer.getChar(i);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyToArray(buffer, a, start * Kind.CHAR.width.numberOfBytes, length * Kind.CHAR.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void SetShortArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final short[] a = (short[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            a[start + i] = buffer.getShort(i);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyToArray(buffer, a, start * Kind.SHORT.width.numberOfBytes, length * Kind.SHORT.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void SetIntArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final int[] a = (int[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            a[start + i] = buffer.getInt(i);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyToArray(buffer, a, start * Kind.INT.width.numberOfBytes, length * Kind.INT.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void SetLongArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final long[] a = (long[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            a[start + i] = buffer.getLong(i);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyToArray(buffer, a, start * Kind.LONG.width.numberOfBytes, length * Kind.LONG.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void SetFloatArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final float[] a = (float[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            a[start + i] = buffer.getFloat(i);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyToArray(buffer, a, start * Kind.FLOAT.width.numberOfBytes, length * Kind.FLOAT.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
     private static void SetDoubleArrayRegion(Pointer env, JniHandle array, int start, int length, Pointer buffer) {
         final double[] a = (double[]) array.unhand();
-        for (int i = 0; i < length; i++) {
-            a[start + i] = buffer.getDouble(i);
-        }
+        checkArrayRegion(a.length, start, length);
+        copyToArray(buffer, a, start * Kind.DOUBLE.width.numberOfBytes, length * Kind.DOUBLE.width.numberOfBytes);
     }
 
     /**
@@ -1642,9 +1546,17 @@ public final class JniFunctionsSource {
     @VM_ENTRY_POINT
     private static void GetStringRegion(Pointer env, JniHandle string, int start, int length, Pointer buffer) {
         final String s = (String) string.unhand();
-        for (int i = 0; i < length; i++) {
-            buffer.setChar(i, s.charAt(i + start));
+        final char[] value = stringChars(s);
+        if (value == null) {
+            for (int i = 0; i < length; i++) {
+                buffer.setChar(i, s.charAt(i + start));
+            }
+            return;
         }
+        if (start < 0 || length < 0 || start > value.length - length) {
+            throw new StringIndexOutOfBoundsException();
+        }
+        copyFromArray(value, start * Kind.CHAR.width.numberOfBytes, buffer, length * Kind.CHAR.width.numberOfBytes);
     }
 
     @VM_ENTRY_POINT
@@ -1660,7 +1572,7 @@ public final class JniFunctionsSource {
         final Object arrayObject = array.unhand();
         if (Heap.useDirectPointer(arrayObject)) {
             setCopyPointer(isCopy, false);
-            return Reference.fromJava(arrayObject).toOrigin().plus(Layout.byteArrayLayout().getElementOffsetFromOrigin(0));
+            return arrayElementPointer(arrayObject, 0);
         }
 
         if (arrayObject instanceof boolean[]) {
@@ -1686,7 +1598,8 @@ public final class JniFunctionsSource {
     @VM_ENTRY_POINT
     private static void ReleasePrimitiveArrayCritical(Pointer env, JniHandle array, Pointer elements, int mode) {
         final Object arrayObject = array.unhand();
-        if (Heap.releasedDirectPointer(arrayObject)) {
+        if (elements.equals(arrayElementPointer(arrayObject, 0))) {
+            Heap.releasedDirectPointer(arrayObject);
             return;
         }
         if (arrayObject instanceof boolean[]) {
@@ -1710,21 +1623,47 @@ public final class JniFunctionsSource {
 
     @VM_ENTRY_POINT
     private static Pointer GetStringCritical(Pointer env, JniHandle string, Pointer isCopy) {
-        // TODO(cwi): Implement optimized version for OptimizeJNICritical if a benchmark uses it frequently
+        final String s = (String) string.unhand();
+        final char[] value = stringChars(s);
+        if (value != null && Heap.useDirectPointer(value)) {
+            setCopyPointer(isCopy, false);
+            return arrayElementPointer(value, 0);
+        }
         setCopyPointer(isCopy, true);
-        return copyString((String) string.unhand());
+        return copyString(s);
     }
 
     private static Pointer copyString(String string) {
-        final Pointer pointer = Memory.mustAllocate(string.length() * Kind.CHAR.width.numberOfBytes);
-        for (int i = 0; i < string.length(); i++) {
-            pointer.setChar(i, string.charAt(i));
+        final int numberOfBytes = string.length() * Kind.CHAR.width.numberOfBytes;
+        final Pointer pointer = Memory.mustAllocate(numberOfBytes);
+        final char[] value = stringChars(string);
+        if (value != null) {
+            copyFromArray(value, 0, pointer, numberOfBytes);
+        } else {
+            for (int i = 0; i < string.length(); i++) {
+                pointer.setChar(i, string.charAt(i));
+            }
         }
         return pointer;
     }
 
+    /**
+     * Gets the character array holding the characters of a given string.
+     *
+     * @return {@code null} if {@code string} is a view of part of a larger array
+     */
+    private static char[] stringChars(String string) {
+        final char[] value = (char[]) ClassRegistry.String_value.getObject(string);
+        return value.length == string.length() ? value : null;
+    }
+
     @VM_ENTRY_POINT
     private static void ReleaseStringCritical(Pointer env, JniHandle string, Pointer chars) {
+        final char[] value = stringChars((String) string.unhand());
+        if (value != null && chars.equals(arrayElementPointer(value, 0))) {
+            Heap.releasedDirectPointer(value);
+            return;
+        }
         Memory.deallocate(chars);
     }
 
@@ -1795,4 +1734,62 @@ public final class JniFunctionsSource {
         assert mode == 0 || mode == JNI_COMMIT || mode == JNI_ABORT;
     }
 
+    /**
+     * Gets the elements of a primitive array for a {@code Get<Type>ArrayElements} function. The array is pinned and
+     * its elements are accessed in place if the heap scheme supports {@linkplain Heap#useLongLivedDirectPointer(Object)
+     * long-lived pinning}. Otherwise the elements are copied in bulk into a newly allocated buffer.
+     */
+    private static Pointer getArrayElements(Object array, int numberOfBytes, Pointer isCopy) throws OutOfMemoryError {
+        if (Heap.useLongLivedDirectPointer(array)) {
+            setCopyPointer(isCopy, false);
+            return arrayElementPointer(array, 0);
+        }
+        setCopyPointer(isCopy, true);
+        final Pointer pointer = Memory.mustAllocate(numberOfBytes);
+        copyFromArray(array, 0, pointer, numberOfBytes);
+        return pointer;
+    }
+
+    /**
+     * Releases the elements obtained by {@link #getArrayElements(Object, int, Pointer)}. A copy can never be at the
+     * address of the array's elements, so that address identifies the elements as having been accessed in place.
+     */
+    private static void releaseArrayElements(Object array, int numberOfBytes, Pointer elements, int mode) {
+        if (elements.equals(arrayElementPointer(array, 0))) {
+            if (mode != JNI_COMMIT) {
+                Heap.releaseLongLivedDirectPointer(array);
+            }
+            return;
+        }
+        if (mode == 0 || mode == JNI_COMMIT) {
+            copyToArray(elements, array, 0, numberOfBytes);
+        }
+        releaseElements(elements, mode);
+    }
+
+    private static void checkArrayRegion(int arrayLength, int start, int length) {
+        if (start < 0 || length < 0 || start > arrayLength - length) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * Gets the address of the byte at a given offset from the first element of a primitive array.
+     * The address is only valid until the next safepoint unless the array is pinned.
+     */
+    @INLINE
+    private static Pointer arrayElementPointer(Object array, int byteOffset) {
+        return Reference.fromJava(array).toOrigin().plus(Layout.byteArrayLayout().getElementOffsetFromOrigin(byteOffset));
+    }
+
+    @NO_SAFEPOINT_POLLS("array must not move while its elements are copied")
+    private static void copyFromArray(Object array, int byteOffset, Pointer buffer, int numberOfBytes) {
+        Memory.copyBytes(arrayElementPointer(array, byteOffset), buffer, Size.fromInt(numberOfBytes));
+    }
+
+    @NO_SAFEPOINT_POLLS("array must not move while its elements are copied")
+    private static void copyToArray(Pointer buffer, Object array, int byteOffset, int numberOfBytes) {
+        Memory.copyBytes(buffer, arrayElementPointer(array, byteOffset), Size.fromInt(numberOfBytes));
+    }
+
 }
@@ -44,7 +44,8 @@ import com.sun.max.vm.type.*;
  * global pool per VM (or isolate?) for global references and
  * another global pool for weak global references.
  *
- * This class implements a pool of JNI handles.
+ * This class implements a pool of JNI handles. The global pools are {@link GlobalHandleTable}s
+ * so that threads can create and delete global references without synchronizing.
  *
  * In the Maxine VM, we need to take into account that objects may be allocated
  * in a hardware object memory where one cannot take the address of an element or field within
@@ -100,8 +101,8 @@ public final class JniHandles {
 
     public static final int INITIAL_NUMBER_OF_HANDLES = 32;
 
-    private static final JniHandles globalHandles = new JniHandles();
-    private static final JniHandles weakGlobalHandles = new JniHandles();
+    private static final GlobalHandleTable globalHandles = new GlobalHandleTable();
+    private static final GlobalHandleTable weakGlobalHandles = new GlobalHandleTable();
 
     /**
      * The objects exposed to native code via handles.
@@ -341,18 +342,14 @@ public final class JniHandles {
         if (object == null) {
             return JniHandle.zero();
         }
-        synchronized (globalHandles) {
-            return globalHandles.allocateHandle(object, Tag.GLOBAL);
-        }
+        return indexToJniHandle(globalHandles.allocate(object, VmThread.current().jniGlobalHandleCache), Tag.GLOBAL);
     }
 
     public static JniHandle createWeakGlobalHandle(Object object) {
         if (object == null) {
             return JniHandle.zero();
         }
-        synchronized (weakGlobalHandles) {
-            return weakGlobalHandles.allocateHandle(new WeakReference<Object>(object), Tag.WEAK_GLOBAL);
-        }
+        return indexToJniHandle(weakGlobalHandles.allocate(new WeakReference<Object>(object), VmThread.current().jniWeakGlobalHandleCache), Tag.WEAK_GLOBAL);
     }
 
     public static void destroyLocalHandle(JniHandle jniHandle) {
@@ -375,21 +372,25 @@ public final class JniHandles {
     public static void destroyGlobalHandle(JniHandle jniHandle) {
         if (!jniHandle.isZero()) {
             assert tag(jniHandle) == Tag.GLOBAL;
-            synchronized (globalHandles) {
-                globalHandles.freeHandle(jniHandleToIndex(jniHandle));
-            }
+            globalHandles.free(jniHandleToIndex(jniHandle), VmThread.current().jniGlobalHandleCache);
         }
     }
 
     public static void destroyWeakGlobalHandle(JniHandle jniHandle) {
         if (!jniHandle.isZero()) {
             assert tag(jniHandle) == Tag.WEAK_GLOBAL;
-            synchronized (weakGlobalHandles) {
-                weakGlobalHandles.freeHandle(jniHandleToIndex(jniHandle));
-            }
+            weakGlobalHandles.free(jniHandleToIndex(jniHandle), VmThread.current().jniWeakGlobalHandleCache);
         }
     }
 
+    /**
+     * Returns the global and weak global handles cached by a terminating thread to the shared pools.
+     */
+    public static void releaseGlobalHandleCaches(VmThread thread) {
+        globalHandles.release(thread.jniGlobalHandleCache);
+        weakGlobalHandles.release(thread.jniWeakGlobalHandleCache);
+    }
+
     public static void ensureLocalHandleCapacity(int capacity) {
         VmThread.current().makeJniHandles().ensureCapacity(capacity);
     }
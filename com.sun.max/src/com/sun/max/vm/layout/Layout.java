@@ -482,6 +482,20 @@ public final class Layout {
         generalLayout().writeForwardRef(origin, forwardRef);
     }
 
+    /**
+     * Atomically installs a forwarding reference in an object if its hub word still holds a given value.
+     *
+     * @param origin location of an object
+     * @param suspectedRef the expected content of the hub word
+     * @param forwardRef the forwarding reference
+     * @return the content of the hub word before the update (i.e., {@code suspectedRef} if the update succeeded)
+     */
+    @ACCESSOR(Pointer.class)
+    @INLINE
+    public static Reference compareAndSwapForwardRef(Pointer origin, Reference suspectedRef, Reference forwardRef) {
+        return generalLayout().compareAndSwapForwardRef(origin, suspectedRef, forwardRef);
+    }
+
     /**
      * Access to <strong>byte array object</strong> layout information in the
      * context of the current {@linkplain VMConfiguration VM configuration}.
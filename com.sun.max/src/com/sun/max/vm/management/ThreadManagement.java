@@ -94,7 +94,7 @@ public class ThreadManagement {
                 try {
                     final Object obj = threadInfoConstructor.newInstance(new Object[] {
                         thread, thread.getState().ordinal(), null, null,
-                        0, 0,
+                        VmThread.fromJava(thread).blockedCount, 0,
                         0, 0,
                         maxDepth == 0 ? new StackTraceElement[0] : getStackTrace(thread, maxDepth),
                         null,
@@ -53,6 +53,8 @@ abstract class AbstractJavaMonitor implements ManagedMonitor {
     // Support for direct linked lists of JavaMonitors.
     private ManagedMonitor next;
 
+    private int bindableIndex = -1;
+
     protected AbstractJavaMonitor() {
         bindingProtection = BindingProtection.PRE_ACQUIRE;
     }
@@ -180,6 +182,15 @@ abstract class AbstractJavaMonitor implements ManagedMonitor {
         this.next = next;
     }
 
+    @INLINE(must = false)
+    public final int bindableIndex() {
+        return bindableIndex;
+    }
+
+    public final void setBindableIndex(int index) {
+        bindableIndex = index;
+    }
+
     public void log() {
         Log.print(ObjectAccess.readClassActor(this).name.string);
         Log.print(" boundTo=");
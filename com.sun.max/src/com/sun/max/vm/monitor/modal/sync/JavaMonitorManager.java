@@ -41,9 +41,10 @@ import com.sun.max.vm.thread.*;
  * <p>
  * Binding can be performed at bootstrapping or runtime. If binding is performed while bootstrapping then either a default
  * or specialized monitor can be used. If binding is performed at runtime then an unbound monitor is taken from
- * a free list.
+ * a per-thread cache, which is refilled in batches from a lock-free {@linkplain UnboundMonitorList global list}.
  * <p>
- * Unbinding is performed at global safepoints. All unowned, unbindable, bound monitors are unbound. Writing of unbound
+ * Unbinding is performed at global safepoints, either before a GC or by a {@linkplain MonitorDeflation deflation}
+ * operation that is requested when the global list runs low. All unowned, unbindable, bound monitors are unbound. Writing of unbound
  * lockwords is delegated to an {@link UnboundMiscWordWriter} object (most likely the inflated mode handler of the ModalMonitorScheme).
  * This allows unbinding to be a transition to any other locking mode.
  * <p>
@@ -82,9 +83,15 @@ public class JavaMonitorManager {
     private static int unboundListGrowQty = 50;
 
     /**
-     * The current number of unbound monitors available.
+     * The number of monitors a thread takes from the global list each time its {@linkplain VmThread#unboundMonitors
+     * cache} is empty.
      */
-    private static int numberOfUnboundMonitors = 0;
+    static int MonitorCacheBatchSize = 8;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "MonitorCacheBatchSize", JavaMonitorManager.class,
+            "Number of unbound monitors a thread takes from the global list when its local cache is empty.");
+    }
 
     /**
      * The unbound monitors high water mark.
@@ -94,14 +101,111 @@ public class JavaMonitorManager {
     private static int unboundMonitorsHwm;
 
     /**
-     * The head of the list of unbound monitors.
+     * The list of unbound monitors that are not cached by a thread.
+     */
+    private static final UnboundMonitorList unboundList = new UnboundMonitorList();
+
+    /**
+     * Number of monitors bound at runtime. This is updated without synchronization and may therefore undercount.
+     */
+    private static int inflations;
+
+    /**
+     * Number of monitors unbound at safepoints.
+     */
+    private static int deflations;
+
+    /**
+     * Number of safepoints at which monitors were unbound without a GC.
+     */
+    private static int deflationOperations;
+
+    /**
+     * The value of {@link #inflations} when the last {@linkplain MonitorDeflation deflation operation} completed.
+     * Another one is not requested until at least {@link #unboundListGrowQty} more monitors have been bound.
+     */
+    private static int inflationsAtLastDeflation;
+
+    /**
+     * Set while a {@linkplain MonitorDeflation deflation operation} has been submitted but not yet completed.
      */
-    private static ManagedMonitor unboundList;
+    private static volatile boolean deflationPending;
+
+    private static long startTime;
 
     /**
-     * The pool of monitors that can be bound to objects.
+     * Unbinds idle monitors at a safepoint without performing a GC.
      */
-    private static ManagedMonitor[] bindableMonitors = {};
+    private static final class MonitorDeflation extends VmOperation {
+        MonitorDeflation() {
+            super("MonitorDeflation", null, Mode.AsyncSafepoint, true);
+        }
+
+        @Override
+        protected void doIt() {
+            inGlobalSafepoint = true;
+            unbindUnownedMonitors(false);
+            inGlobalSafepoint = false;
+            deflationOperations++;
+            inflationsAtLastDeflation = inflations;
+            deflationPending = false;
+        }
+    }
+
+    private static final MonitorDeflation monitorDeflation = new MonitorDeflation();
+
+    public static final VMBooleanOption PrintMonitorStatsOption = VMOptions.register(new VMBooleanOption("-XX:-PrintMonitorStats",
+            "Report the number and rate of monitor inflations and deflations and how contended monitors were entered.") {
+        @Override
+        protected void beforeExit() {
+            if (getValue()) {
+                final long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+                Log.print("Monitor inflations: ");
+                Log.print(inflations);
+                Log.print(" (");
+                Log.print(inflations * 1000L / elapsed);
+                Log.println("/s)");
+                Log.print("Monitor deflations: ");
+                Log.print(deflations);
+                Log.print(" (");
+                Log.print(deflations * 1000L / elapsed);
+                Log.print("/s), ");
+                Log.print(deflationOperations);
+                Log.println(" without a GC");
+                long spun = StandardJavaMonitor.retiredSpinAcquisitions;
+                long blocked = StandardJavaMonitor.retiredBlockingAcquisitions;
+                for (int i = 0; i < numberOfBindableMonitors; i++) {
+                    if (bindableMonitors[i] instanceof StandardJavaMonitor) {
+                        final StandardJavaMonitor monitor = (StandardJavaMonitor) bindableMonitors[i];
+                        spun += monitor.spinAcquisitions;
+                        blocked += monitor.blockingAcquisitions;
+                    }
+                }
+                for (ManagedMonitor m : stickyMonitors) {
+                    if (m instanceof StandardJavaMonitor) {
+                        final StandardJavaMonitor monitor = (StandardJavaMonitor) m;
+                        spun += monitor.spinAcquisitions;
+                        blocked += monitor.blockingAcquisitions;
+                    }
+                }
+                Log.print("Contended monitor entries: ");
+                Log.print(spun);
+                Log.print(" acquired by spinning, ");
+                Log.print(blocked);
+                Log.println(" blocked");
+                Log.print("Bindable monitors: ");
+                Log.print(unboundMonitorsHwm);
+                Log.print(", unbound: ");
+                Log.println(unboundList.size());
+            }
+        }
+    }, MaxineVM.Phase.STARTING);
+
+    /**
+     * The pool of monitors that can be bound to objects. This is volatile as the {@linkplain UnboundMonitorList
+     * unbound list} looks up monitors in it without holding {@link #LOCK}.
+     */
+    private static volatile ManagedMonitor[] bindableMonitors = {};
 
     /**
      * The monitors that were created at boot image build time and are permanently
@@ -137,6 +241,8 @@ public class JavaMonitorManager {
     public static void initialize(MaxineVM.Phase phase) {
         if (MaxineVM.isHosted() && phase == MaxineVM.Phase.BOOTSTRAPPING) {
             LOCK = newVmLock("MONITOR_MANAGER_LOCK");
+            // Submitting the operation synchronizes on it, which must not require binding a monitor
+            bindStickyMonitor(monitorDeflation);
             int unboundListImageQty = UNBOUNDLIST_IMAGE_QTY;
             final String  unBoundListImageQtyProperty = System.getProperty(UNBOUNDLIST_IMAGE_QTY_PROPERTY);
             if (unBoundListImageQtyProperty != null) {
@@ -148,8 +254,8 @@ public class JavaMonitorManager {
             }
             for (int i = 0; i < unboundListImageQty; i++) {
                 final ManagedMonitor monitor = newManagedMonitor();
-                addToUnboundList(monitor);
                 addToBindableMonitors(monitor);
+                addToUnboundList(monitor);
             }
             unboundMonitorsHwm = unboundListImageQty;
         } else if (phase == MaxineVM.Phase.PRIMORDIAL) {
@@ -182,6 +288,7 @@ public class JavaMonitorManager {
             }
         } else if (phase == MaxineVM.Phase.STARTING) {
             assert numberOfBindableMonitors <= bindableMonitors.length;
+            startTime = System.currentTimeMillis();
             if (Monitor.TraceMonitors && stickyMonitors.length > 0) {
                 final boolean lockDisabledSafepoints = Log.lock();
                 Log.println("Sticky monitors:");
@@ -300,27 +407,26 @@ public class JavaMonitorManager {
     }
 
     private static void addToAllBindable(ManagedMonitor monitor) {
+        monitor.setBindableIndex(numberOfBindableMonitors);
         bindableMonitors[numberOfBindableMonitors++] = monitor;
     }
 
-    private static ManagedMonitor takeFromUnboundList() {
-        // No safe points in here, so safe to touch the free list.
-        final ManagedMonitor monitor = unboundList;
-        unboundList = unboundList.next();
-        monitor.setNext(null);
-        numberOfUnboundMonitors--;
-        return monitor;
+    /**
+     * Gets a bindable monitor by its {@linkplain ManagedMonitor#bindableIndex() index}. Monitors are never removed
+     * from the pool, so the index of a monitor doesn't change.
+     */
+    @INLINE
+    static ManagedMonitor bindableMonitor(int index) {
+        return bindableMonitors[index];
     }
 
     private static void addToUnboundList(ManagedMonitor monitor) {
-        // No safe points in here, so safe to touch the free list.
-        monitor.setNext(unboundList);
-        unboundList = monitor;
-        numberOfUnboundMonitors++;
+        unboundList.push(monitor, monitor, 1);
     }
 
     /**
-     * Lock used to synchronize access to the unbound monitor list.
+     * Lock used to serialize {@linkplain #expandUnboundList() expansion} of the unbound monitor list
+     * and requests for {@linkplain MonitorDeflation deflation}.
      */
     @CONSTANT_WHEN_NOT_ZERO
     private static Object LOCK;
@@ -337,22 +443,15 @@ public class JavaMonitorManager {
      * @return the monitor that was bound
      */
     public static ManagedMonitor bindMonitor(Object object) {
-        ManagedMonitor monitor;
-        if (inGlobalSafepoint) {
-            monitor = takeFromUnboundList();
+        final VmThread thread = VmThread.current();
+        ManagedMonitor monitor = (ManagedMonitor) thread.unboundMonitors;
+        if (monitor != null) {
+            thread.unboundMonitors = monitor.next();
+            monitor.setNext(null);
         } else {
-            synchronized (LOCK) {
-                if (numberOfUnboundMonitors < UNBOUNDLIST_MIN_QTY) {
-                    System.gc();
-                }
-
-                // If we didn't free up enough such that we are at least midway between min and hwm, expand
-                if (numberOfUnboundMonitors < (unboundMonitorsHwm + UNBOUNDLIST_MIN_QTY) >> 1) {
-                    expandUnboundList();
-                }
-                monitor = takeFromUnboundList();
-            }
+            monitor = refillMonitorCache(thread);
         }
+        inflations++;
         monitor.setBoundObject(object);
         if (Monitor.TraceMonitors) {
             final boolean lockDisabledSafepoints = Log.lock();
@@ -376,12 +475,81 @@ public class JavaMonitorManager {
     public static void unbindMonitor(JavaMonitor monitor) {
         final ManagedMonitor bindableMonitor = (ManagedMonitor) monitor;
         bindableMonitor.reset();
+        final VmThread thread = VmThread.current();
+        bindableMonitor.setNext((ManagedMonitor) thread.unboundMonitors);
+        thread.unboundMonitors = bindableMonitor;
+    }
+
+    /**
+     * Takes a batch of monitors from the global list, returning the first and caching the rest in {@code thread}.
+     * The lock is only taken if the global list is empty or running low, in which case the list is either
+     * {@linkplain #expandUnboundList() expanded} or {@linkplain #requestDeflation() deflation} is requested.
+     */
+    private static ManagedMonitor refillMonitorCache(VmThread thread) {
+        ManagedMonitor batch;
         if (inGlobalSafepoint) {
-            addToUnboundList(bindableMonitor);
+            // Only the VM operation thread is running so there is no one else to share the list with
+            batch = unboundList.take(1);
         } else {
-            synchronized (LOCK) {
-                addToUnboundList(bindableMonitor);
+            batch = unboundList.take(MonitorCacheBatchSize);
+            final int available = unboundList.size();
+            if (batch == null || available < UNBOUNDLIST_MIN_QTY || (available < (unboundMonitorsHwm + UNBOUNDLIST_MIN_QTY) >> 1 && !deflationPending)) {
+                synchronized (LOCK) {
+                    if (batch == null) {
+                        // Another thread may have expanded the list while this one waited for the lock
+                        batch = unboundList.take(MonitorCacheBatchSize);
+                    }
+                    if (unboundList.size() < (unboundMonitorsHwm + UNBOUNDLIST_MIN_QTY) >> 1) {
+                        requestDeflation();
+                    }
+                    // Deflation is asynchronous so expand now if we would otherwise run out before it completes
+                    if (batch == null || unboundList.size() < UNBOUNDLIST_MIN_QTY) {
+                        expandUnboundList();
+                        if (batch == null) {
+                            batch = unboundList.take(MonitorCacheBatchSize);
+                        }
+                    }
+                }
+            }
+        }
+        FatalError.check(batch != null, "no unbound monitors available");
+        thread.unboundMonitors = batch.next();
+        batch.setNext(null);
+        return batch;
+    }
+
+    /**
+     * Submits a {@linkplain MonitorDeflation deflation operation} unless one is pending, fewer than
+     * {@link #unboundListGrowQty} monitors have been bound since the last one or the current thread
+     * cannot submit a VM operation. Must be called with {@link #LOCK} held.
+     */
+    private static void requestDeflation() {
+        if (deflationPending || !MaxineVM.isRunning() || inflations - inflationsAtLastDeflation < unboundListGrowQty) {
+            return;
+        }
+        if (VmThread.current().isVmOperationThread() || Thread.holdsLock(VmThreadMap.THREAD_LOCK)) {
+            return;
+        }
+        deflationPending = true;
+        monitorDeflation.submit();
+    }
+
+    /**
+     * Returns the monitors cached by a terminating thread to the global list.
+     *
+     * @param thread a thread that has been removed from the list of active threads
+     */
+    public static void releaseMonitorCache(VmThread thread) {
+        final ManagedMonitor first = (ManagedMonitor) thread.unboundMonitors;
+        if (first != null) {
+            thread.unboundMonitors = null;
+            ManagedMonitor last = first;
+            int n = 1;
+            while (last.next() != null) {
+                last = last.next();
+                n++;
             }
+            unboundList.push(first, last, n);
         }
     }
 
@@ -408,6 +576,7 @@ public class JavaMonitorManager {
      */
     private static void expandUnboundList() {
         ManagedMonitor newUnboundList = null;
+        ManagedMonitor last = null;
         final ManagedMonitor[] newAllBindable = new ManagedMonitor[bindableMonitors.length + unboundListGrowQty];
 
         // Create the new monitors
@@ -415,6 +584,9 @@ public class JavaMonitorManager {
             final ManagedMonitor monitor = newManagedMonitor();
             monitor.setNext(newUnboundList);
             newUnboundList = monitor;
+            if (last == null) {
+                last = monitor;
+            }
         }
 
         // This is the only place where we need to synchronize monitor list access
@@ -425,16 +597,13 @@ public class JavaMonitorManager {
         }
         bindableMonitors = newAllBindable;
         unboundMonitorsHwm = newAllBindable.length;
-        ManagedMonitor monitor = newUnboundList;
-        while (monitor != null) {
-            newUnboundList = monitor.next();
-            addToUnboundList(monitor);
+        for (ManagedMonitor monitor = newUnboundList; monitor != null; monitor = monitor.next()) {
             addToAllBindable(monitor);
-            monitor = newUnboundList;
         }
         FatalError.check(bindableMonitors.length >= numberOfBindableMonitors, "corrupted bindableMonitors array");
         SafepointPoll.enable();
         FatalError.check(verifyBindableMonitors() == 0, "corrupted bindableMonitors array");
+        unboundList.push(newUnboundList, last, unboundListGrowQty);
     }
 
     /**
@@ -466,7 +635,7 @@ public class JavaMonitorManager {
      */
     public static void beforeGarbageCollection() {
         inGlobalSafepoint = true;
-        unbindUnownedMonitors();
+        unbindUnownedMonitors(true);
     }
 
     /**
@@ -495,8 +664,13 @@ public class JavaMonitorManager {
 
     /**
      * Must only be called on a global safepoint.
+     *
+     * @param beforeGC specifies if a GC follows, in which case the monitors that stay bound are prepared for it
      */
-    private static void unbindUnownedMonitors() {
+    private static void unbindUnownedMonitors(boolean beforeGC) {
+        ManagedMonitor unbound = null;
+        ManagedMonitor last = null;
+        int n = 0;
         // Mark all protected monitors
         VmThreadMap.ACTIVE.forAllThreadLocals(null, protectedMonitorGatherer);
         // Deflate all non-protected and non-sticky monitors with no owner
@@ -519,14 +693,23 @@ public class JavaMonitorManager {
                     unboundMiscWordWriter.writeUnboundHashWord(monitor.boundObject(), monitor.displacedHash());
                 }
                 monitor.reset();
-                // Put the monitor back on the unbound list.
-                // This is thread-safe as mutator thread access to the free-list is
-                // atomic with respect to safepointing.
-                addToUnboundList(monitor);
-            } else if (monitor.isBound()) {
+                monitor.setNext(unbound);
+                unbound = monitor;
+                if (last == null) {
+                    last = monitor;
+                }
+                n++;
+            } else if (beforeGC && monitor.isBound()) {
                 monitor.preGCPrepare();
             }
         }
+        if (unbound != null) {
+            // Put the monitors back on the unbound list.
+            // This is thread-safe as mutator thread access to the list is
+            // atomic with respect to safepointing.
+            unboundList.push(unbound, last, n);
+            deflations += n;
+        }
     }
 
     /**
@@ -661,6 +844,16 @@ public class JavaMonitorManager {
          */
         void setNext(ManagedMonitor monitor);
 
+        /**
+         * Gets the index of this monitor among the {@linkplain JavaMonitorManager#bindableMonitor(int) bindable
+         * monitors}.
+         *
+         * @return the index, or -1 if this monitor is not bindable
+         */
+        int bindableIndex();
+
+        void setBindableIndex(int index);
+
         void log();
     }
 
@@ -50,6 +50,13 @@ public abstract class Mutex {
       */
     public abstract boolean lock();
 
+    /**
+     * Attempts to lock the mutex without blocking.
+     *
+     * @return true if the current thread now holds the mutex; false if it is held by another thread
+     */
+    public abstract boolean tryLock();
+
      /**
       * Causes the current thread to perform an unlock on the mutex.
       *
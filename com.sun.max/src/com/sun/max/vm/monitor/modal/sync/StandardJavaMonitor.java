@@ -20,6 +20,9 @@
  */
 package com.sun.max.vm.monitor.modal.sync;
 
+import static com.sun.max.vm.runtime.VmOperation.*;
+import static com.sun.max.vm.thread.VmThreadLocal.*;
+
 import com.sun.cri.bytecode.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
@@ -55,6 +58,11 @@ import com.sun.max.vm.thread.*;
  * all threads can continue. With this implementation, the notify can hit thread A since it could not re-acquire the
  * lock between the timeout and the notify (remember that thread C holds the lock). So the notify does not wake up
  * thread B, and it sleeps forever - thread B remains blocked forever.
+ * <br>
+ * <br>
+ * A thread entering a monitor owned by another thread spins for a while before blocking on the mutex, as long as
+ * the owner is running Java code. The number of iterations is learned per monitor: it grows when spinning
+ * acquired the monitor and shrinks when it did not, bounded by {@link #MaxMonitorSpin}.
  */
 public class StandardJavaMonitor extends AbstractJavaMonitor {
 
@@ -72,6 +80,49 @@ public class StandardJavaMonitor extends AbstractJavaMonitor {
 
     private int notifiedThreads;
 
+    /**
+     * The maximum number of iterations a thread spins trying to enter a contended monitor before blocking.
+     */
+    static int MaxMonitorSpin = 1024;
+
+    private static final int MIN_SPIN = 16;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "MaxMonitorSpin", StandardJavaMonitor.class,
+            "Maximum number of iterations a thread spins on a contended monitor before blocking (0 disables spinning).");
+    }
+
+    /**
+     * The number of iterations the next contending thread spins for. Only updated by the owner of this monitor.
+     */
+    private int spinBudget = MIN_SPIN * 4;
+
+    /**
+     * The number of contended entries that acquired this monitor by spinning.
+     */
+    int spinAcquisitions;
+
+    /**
+     * The number of contended entries that blocked on the mutex.
+     */
+    int blockingAcquisitions;
+
+    /**
+     * Totals of {@link #spinAcquisitions} and {@link #blockingAcquisitions} for bindings that have since been
+     * {@linkplain #reset() released}.
+     */
+    static long retiredSpinAcquisitions;
+    static long retiredBlockingAcquisitions;
+
+    /**
+     * Set by {@link #spinToAcquire()} when it acquires the mutex, denoting if the mutex was not free on the first attempt.
+     */
+    private boolean contended;
+
+    private static final int SPIN_ACQUIRED = 0;
+    private static final int SPIN_EXHAUSTED = 1;
+    private static final int SPIN_OWNER_NOT_RUNNING = 2;
+
     public StandardJavaMonitor() {
         mutex = MutexFactory.create();
     }
@@ -95,15 +146,70 @@ public class StandardJavaMonitor extends AbstractJavaMonitor {
             traceEndMonitorEnter(currentThread);
             return;
         }
-        currentThread.setState(Thread.State.BLOCKED);
-        mutex.lock();
-        currentThread.setState(Thread.State.RUNNABLE);
+        final int spin = spinToAcquire();
+        if (spin != SPIN_ACQUIRED) {
+            currentThread.setState(Thread.State.BLOCKED);
+            mutex.lock();
+            currentThread.setState(Thread.State.RUNNABLE);
+        }
         ownerThread = currentThread;
         setBindingProtection(BindingProtection.PROTECTED);
         recursionCount = 1;
+        // The statistics and spin budget are only updated while holding the mutex
+        if (spin == SPIN_ACQUIRED) {
+            if (contended) {
+                spinAcquisitions++;
+                spinBudget = Math.min(spinBudget << 1, Math.max(MaxMonitorSpin, MIN_SPIN));
+            }
+        } else {
+            if (spin == SPIN_EXHAUSTED) {
+                spinBudget = Math.max(spinBudget >> 1, MIN_SPIN);
+            }
+            blockingAcquisitions++;
+            currentThread.blockedCount++;
+        }
         traceEndMonitorEnter(currentThread);
     }
 
+    /**
+     * Tries to acquire the mutex without blocking, retrying for up to {@link #spinBudget} iterations while the
+     * owner is running Java code.
+     *
+     * @return {@link #SPIN_ACQUIRED} if the mutex is now held by the current thread, otherwise
+     *         {@link #SPIN_EXHAUSTED} or {@link #SPIN_OWNER_NOT_RUNNING} denoting why spinning stopped
+     */
+    private int spinToAcquire() {
+        if (MaxineVM.isHosted()) {
+            return SPIN_EXHAUSTED;
+        }
+        if (mutex.tryLock()) {
+            contended = false;
+            return SPIN_ACQUIRED;
+        }
+        final int budget = Math.min(spinBudget, MaxMonitorSpin);
+        for (int i = 0; i < budget; i++) {
+            Intrinsics.pause();
+            final VmThread owner = ownerThread;
+            if (owner != null && !isRunningJava(owner)) {
+                return SPIN_OWNER_NOT_RUNNING;
+            }
+            if (owner == null && mutex.tryLock()) {
+                contended = true;
+                return SPIN_ACQUIRED;
+            }
+        }
+        return SPIN_EXHAUSTED;
+    }
+
+    /**
+     * Determines if a given thread is currently executing Java code, as opposed to being blocked, in native code
+     * or frozen by a VM operation.
+     */
+    private static boolean isRunningJava(VmThread thread) {
+        final Pointer tla = thread.tla();
+        return !tla.isZero() && MUTATOR_STATE.load(ETLA.load(tla)).equals(THREAD_IN_JAVA);
+    }
+
     @Override
     public void monitorExit() {
         final VmThread currentThread = VmThread.current();
@@ -256,11 +362,27 @@ public class StandardJavaMonitor extends AbstractJavaMonitor {
         mutex.init();
     }
 
+    @Override
+    public void reset() {
+        retiredSpinAcquisitions += spinAcquisitions;
+        retiredBlockingAcquisitions += blockingAcquisitions;
+        spinAcquisitions = 0;
+        blockingAcquisitions = 0;
+        spinBudget = MIN_SPIN * 4;
+        super.reset();
+    }
+
     @Override
     public void log() {
         super.log();
         Log.print(" mutex=");
         Log.print(Address.fromLong(mutex.logId()));
+        Log.print(" spun=");
+        Log.print(spinAcquisitions);
+        Log.print(" blocked=");
+        Log.print(blockingAcquisitions);
+        Log.print(" spinBudget=");
+        Log.print(spinBudget);
         Log.print(" waiters={");
         VmThread waiter = waitingThreads;
         while (waiter != null) {
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.monitor.modal.sync;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.monitor.modal.sync.JavaMonitorManager.ManagedMonitor;
+import com.sun.max.vm.reference.*;
+
+/**
+ * The global list of unbound monitors. Threads take monitors from this list {@linkplain #take(int) in batches}
+ * which they cache locally, and both taking and {@linkplain #push(ManagedMonitor, ManagedMonitor, int) pushing}
+ * use a compare-and-swap on the list head instead of a lock.
+ * <p>
+ * The head identifies the first monitor by its {@linkplain ManagedMonitor#bindableIndex() index} among the bindable
+ * monitors and includes a stamp that every update increments. A batch is popped from a snapshot of the head, so the
+ * links it walks may be changed by other threads in the meantime, but then the stamp changes too and the
+ * compare-and-swap fails. Other threads therefore never see the list empty while it isn't. Neither operation contains
+ * a safepoint poll so a safepoint operation, such as unbinding monitors for a GC, never runs while the list is being
+ * updated.
+ */
+final class UnboundMonitorList {
+
+    /**
+     * The head of the list. The low 32 bits are the bindable index of the first monitor plus one (0 denotes an empty
+     * list) and the high 32 bits are a stamp that is incremented by every update.
+     */
+    private volatile long head;
+
+    private volatile int size;
+
+    @FOLD
+    private static int headOffset() {
+        return ClassActor.fromJava(UnboundMonitorList.class).findLocalInstanceFieldActor("head").offset();
+    }
+
+    @FOLD
+    private static int sizeOffset() {
+        return ClassActor.fromJava(UnboundMonitorList.class).findLocalInstanceFieldActor("size").offset();
+    }
+
+    private static int encode(ManagedMonitor monitor) {
+        return monitor == null ? 0 : monitor.bindableIndex() + 1;
+    }
+
+    private static ManagedMonitor decode(long head) {
+        final int first = (int) head;
+        return first == 0 ? null : JavaMonitorManager.bindableMonitor(first - 1);
+    }
+
+    /**
+     * Atomically replaces the head of the list if it still equals {@code head}, advancing the stamp.
+     */
+    private boolean casHead(long head, ManagedMonitor first) {
+        final long newHead = (((head >>> 32) + 1) << 32) | (encode(first) & 0xFFFFFFFFL);
+        return Reference.fromJava(this).compareAndSwapLong(headOffset(), head, newHead) == head;
+    }
+
+    private void addToSize(int n) {
+        final Reference thisRef = Reference.fromJava(this);
+        int oldSize;
+        do {
+            oldSize = size;
+        } while (thisRef.compareAndSwapInt(sizeOffset(), oldSize, oldSize + n) != oldSize);
+    }
+
+    /**
+     * Gets the number of monitors on this list. The count is updated after the head, so it may briefly be off by
+     * the size of the batches being pushed or taken.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Pushes a chain of {@code n} monitors linked by {@link ManagedMonitor#next()} from {@code first} to {@code last}.
+     */
+    @NO_SAFEPOINT_POLLS("the unbound monitor list must not be updated across a safepoint")
+    void push(ManagedMonitor first, ManagedMonitor last, int n) {
+        if (MaxineVM.isHosted()) {
+            last.setNext(decode(head));
+            head = encode(first);
+            size += n;
+            return;
+        }
+        long oldHead;
+        do {
+            oldHead = head;
+            last.setNext(decode(oldHead));
+        } while (!casHead(oldHead, first));
+        addToSize(n);
+    }
+
+    /**
+     * Takes up to {@code max} monitors from this list.
+     *
+     * @return a chain of monitors linked by {@link ManagedMonitor#next()} and terminated by {@code null}, or
+     *         {@code null} if the list is empty
+     */
+    @NO_SAFEPOINT_POLLS("the unbound monitor list must not be updated across a safepoint")
+    ManagedMonitor take(int max) {
+        ManagedMonitor first;
+        ManagedMonitor last;
+        int n;
+        while (true) {
+            final long oldHead = head;
+            first = decode(oldHead);
+            if (first == null) {
+                return null;
+            }
+            // The links read here may be changed by other threads but then the stamp changes too and the CAS fails
+            last = first;
+            n = 1;
+            while (n < max && last.next() != null) {
+                last = last.next();
+                n++;
+            }
+            if (MaxineVM.isHosted()) {
+                head = encode(last.next());
+                size -= n;
+                break;
+            }
+            if (casHead(oldHead, last.next())) {
+                addToSize(-n);
+                break;
+            }
+        }
+        last.setNext(null);
+        return first;
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.object;
+
+import static com.sun.max.vm.VMConfiguration.*;
+import static com.sun.max.vm.heap.WriteBarrierSpecification.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Bulk operations on array elements that move, set or compare whole words of the underlying storage instead of
+ * one element at a time. They implement {@link System#arraycopy} and the {@link java.util.Arrays} fill and
+ * equals substitutions, as well as the arraycopy stubs called from compiled code.
+ * <p>
+ * The elements are addressed through raw pointers derived from the array references. Such a pointer is only
+ * valid until the next safepoint, so pointers are always derived in methods without safepoint polls, and long
+ * operations are split into chunks of at most {@link #CHUNK_SIZE} bytes with a safepoint poll between chunks.
+ * <p>
+ * None of these methods check their arguments: null, type and bounds checks are the caller's responsibility.
+ */
+public final class BulkArrayAccess {
+
+    private BulkArrayAccess() {
+    }
+
+    /**
+     * The maximum number of bytes processed between two safepoint polls.
+     */
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    @FOLD
+    private static HeapScheme heapScheme() {
+        return vmConfig().heapScheme();
+    }
+
+    @FOLD
+    private static boolean needsArrayPreBarrier() {
+        return heapScheme().needsBarrier(ARRAY_PRE_BARRIER);
+    }
+
+    @FOLD
+    private static boolean needsArrayPostBarrier() {
+        return heapScheme().needsBarrier(ARRAY_POST_BARRIER);
+    }
+
+    @INLINE
+    private static long elementOffset(Kind kind, int index) {
+        return kind.arrayLayout(Layout.layoutScheme()).getElementOffsetFromOrigin(index).toLong();
+    }
+
+    /**
+     * Copies elements between two arrays of the same element kind, as if the source elements were first copied
+     * to a temporary array. That is, overlapping ranges within the same array are handled correctly.
+     *
+     * @param kind the element kind of both arrays
+     * @param src the source array
+     * @param srcPos the index of the first element to copy in {@code src}
+     * @param dest the destination array
+     * @param destPos the index in {@code dest} of the first element written
+     * @param length the number of elements to copy
+     */
+    public static void copy(Kind kind, Object src, int srcPos, Object dest, int destPos, int length) {
+        if (kind.isReference) {
+            copyReferences(src, srcPos, dest, destPos, length);
+            return;
+        }
+        final long size = (long) length * kind.width.numberOfBytes;
+        final long srcOffset = elementOffset(kind, srcPos);
+        final long destOffset = elementOffset(kind, destPos);
+        if (src == dest && srcPos < destPos && srcPos + length > destPos) {
+            long remaining = size;
+            while (remaining > 0) {
+                final int chunk = (int) Math.min(remaining, CHUNK_SIZE);
+                remaining -= chunk;
+                copyBackward(src, srcOffset + remaining, dest, destOffset + remaining, chunk);
+            }
+        } else {
+            long done = 0;
+            while (done < size) {
+                final int chunk = (int) Math.min(size - done, CHUNK_SIZE);
+                copyForward(src, srcOffset + done, dest, destOffset + done, chunk);
+                done += chunk;
+            }
+        }
+    }
+
+    /**
+     * Copies references between two reference arrays without any store check. The caller must have established
+     * that every source element is assignable to the component type of the destination array.
+     * <p>
+     * Unless the heap scheme needs a pre write barrier, the references are moved as words and the post write
+     * barrier is applied once per chunk to the whole range of updated elements.
+     */
+    public static void copyReferences(Object src, int srcPos, Object dest, int destPos, int length) {
+        final boolean backward = src == dest && srcPos < destPos && srcPos + length > destPos;
+        if (needsArrayPreBarrier()) {
+            if (backward) {
+                for (int i = length - 1; i >= 0; i--) {
+                    ArrayAccess.setObject(dest, destPos + i, ArrayAccess.getObject(src, srcPos + i));
+                }
+            } else {
+                for (int i = 0; i < length; i++) {
+                    ArrayAccess.setObject(dest, destPos + i, ArrayAccess.getObject(src, srcPos + i));
+                }
+            }
+            return;
+        }
+        final int chunkLength = CHUNK_SIZE / Word.size();
+        if (backward) {
+            int remaining = length;
+            while (remaining > 0) {
+                final int chunk = Math.min(remaining, chunkLength);
+                remaining -= chunk;
+                copyReferenceChunk(src, srcPos + remaining, dest, destPos + remaining, chunk, true);
+            }
+        } else {
+            int done = 0;
+            while (done < length) {
+                final int chunk = Math.min(length - done, chunkLength);
+                copyReferenceChunk(src, srcPos + done, dest, destPos + done, chunk, false);
+                done += chunk;
+            }
+        }
+    }
+
+    /**
+     * Copies a chunk of references and records the update with the heap scheme before the next safepoint,
+     * so that a collection never observes updated elements that are not yet covered by the barrier.
+     */
+    @NO_SAFEPOINT_POLLS("references are moved as raw words and must be recorded before the next safepoint")
+    private static void copyReferenceChunk(Object src, int srcPos, Object dest, int destPos, int length, boolean backward) {
+        final int size = length * Word.size();
+        final long srcOffset = elementOffset(Kind.REFERENCE, srcPos);
+        final long destOffset = elementOffset(Kind.REFERENCE, destPos);
+        if (backward) {
+            copyBackward(src, srcOffset, dest, destOffset, size);
+        } else {
+            copyForward(src, srcOffset, dest, destOffset, size);
+        }
+        if (needsArrayPostBarrier()) {
+            heapScheme().postWriteBarrierRange(Reference.fromJava(dest), (int) elementOffset(Kind.REFERENCE, 0), destPos, length);
+        }
+    }
+
+    /**
+     * Copies {@code size} bytes in ascending address order. The trailing bytes that do not fill a word are moved
+     * with the widest accesses that fit, so that no element of at most 4 bytes is split across two accesses.
+     */
+    @NO_SAFEPOINT_POLLS("array element pointers would be invalidated by a moving garbage collector")
+    private static void copyForward(Object src, long srcOffset, Object dest, long destOffset, int size) {
+        final Pointer from = Reference.fromJava(src).toOrigin().plus(srcOffset);
+        final Pointer to = Reference.fromJava(dest).toOrigin().plus(destOffset);
+        final int tail = size & (Word.size() - 1);
+        final int words = size - tail;
+        int i = 0;
+        while (i < words) {
+            to.writeWord(i, from.readWord(i));
+            i += Word.size();
+        }
+        if ((tail & 4) != 0) {
+            to.writeInt(i, from.readInt(i));
+            i += 4;
+        }
+        if ((tail & 2) != 0) {
+            to.writeShort(i, from.readShort(i));
+            i += 2;
+        }
+        if ((tail & 1) != 0) {
+            to.writeByte(i, from.readByte(i));
+        }
+    }
+
+    /**
+     * Copies {@code size} bytes in descending address order, which is required when the destination range
+     * overlaps the source range at a higher address. The accesses are the same as for {@link #copyForward}.
+     */
+    @NO_SAFEPOINT_POLLS("array element pointers would be invalidated by a moving garbage collector")
+    private static void copyBackward(Object src, long srcOffset, Object dest, long destOffset, int size) {
+        final Pointer from = Reference.fromJava(src).toOrigin().plus(srcOffset);
+        final Pointer to = Reference.fromJava(dest).toOrigin().plus(destOffset);
+        final int tail = size & (Word.size() - 1);
+        int i = size;
+        if ((tail & 1) != 0) {
+            i -= 1;
+            to.writeByte(i, from.readByte(i));
+        }
+        if ((tail & 2) != 0) {
+            i -= 2;
+            to.writeShort(i, from.readShort(i));
+        }
+        if ((tail & 4) != 0) {
+            i -= 4;
+            to.writeInt(i, from.readInt(i));
+        }
+        while (i > 0) {
+            i -= Word.size();
+            to.writeWord(i, from.readWord(i));
+        }
+    }
+
+    /**
+     * Sets a range of elements of a primitive array to the same value.
+     *
+     * @param kind the element kind of the array
+     * @param array the array
+     * @param fromIndex the index of the first element to set
+     * @param toIndex the index after the last element to set
+     * @param pattern the bits of the value replicated to fill a long, e.g. {@code 0x0001000100010001L} for the
+     *            {@code short} value {@code 1}
+     */
+    public static void fill(Kind kind, Object array, int fromIndex, int toIndex, long pattern) {
+        final long size = (long) (toIndex - fromIndex) * kind.width.numberOfBytes;
+        final long offset = elementOffset(kind, fromIndex);
+        long done = 0;
+        while (done < size) {
+            final int chunk = (int) Math.min(size - done, CHUNK_SIZE);
+            fillChunk(array, offset + done, chunk, pattern);
+            done += chunk;
+        }
+    }
+
+    @NO_SAFEPOINT_POLLS("array element pointers would be invalidated by a moving garbage collector")
+    private static void fillChunk(Object array, long offset, int size, long pattern) {
+        final Pointer to = Reference.fromJava(array).toOrigin().plus(offset);
+        final int tail = size & 7;
+        final int longs = size - tail;
+        int i = 0;
+        while (i < longs) {
+            to.writeLong(i, pattern);
+            i += 8;
+        }
+        if ((tail & 4) != 0) {
+            to.writeInt(i, (int) pattern);
+            i += 4;
+        }
+        if ((tail & 2) != 0) {
+            to.writeShort(i, (short) pattern);
+            i += 2;
+        }
+        if ((tail & 1) != 0) {
+            to.writeByte(i, (byte) pattern);
+        }
+    }
+
+    /**
+     * Compares the first {@code length} elements of two primitive arrays bitwise. This is not a substitute for
+     * comparing {@code float} or {@code double} arrays, whose elements are compared after NaN canonicalization.
+     *
+     * @param kind the element kind of both arrays
+     * @return {@code true} if all the compared elements are equal
+     */
+    public static boolean equals(Kind kind, Object a, Object b, int length) {
+        final long size = (long) length * kind.width.numberOfBytes;
+        final long offset = elementOffset(kind, 0);
+        long done = 0;
+        while (done < size) {
+            final int chunk = (int) Math.min(size - done, CHUNK_SIZE);
+            if (!equalsChunk(a, b, offset + done, chunk)) {
+                return false;
+            }
+            done += chunk;
+        }
+        return true;
+    }
+
+    @NO_SAFEPOINT_POLLS("array element pointers would be invalidated by a moving garbage collector")
+    private static boolean equalsChunk(Object a, Object b, long offset, int size) {
+        final Pointer pa = Reference.fromJava(a).toOrigin().plus(offset);
+        final Pointer pb = Reference.fromJava(b).toOrigin().plus(offset);
+        final int tail = size & 7;
+        final int longs = size - tail;
+        int i = 0;
+        while (i < longs) {
+            if (pa.readLong(i) != pb.readLong(i)) {
+                return false;
+            }
+            i += 8;
+        }
+        if ((tail & 4) != 0) {
+            if (pa.readInt(i) != pb.readInt(i)) {
+                return false;
+            }
+            i += 4;
+        }
+        if ((tail & 2) != 0) {
+            if (pa.readShort(i) != pb.readShort(i)) {
+                return false;
+            }
+            i += 2;
+        }
+        if ((tail & 1) != 0) {
+            return pa.readByte(i) == pb.readByte(i);
+        }
+        return true;
+    }
+}
@@ -88,8 +88,10 @@ public class MethodInstrumentation {
     }
 
     @INLINE
-    public static void recordBackwardBranch(MethodProfile mpo) {
-        mpo.entryBackedgeCount--;
+    public static void recordBackwardBranch(MethodProfile mpo, int targetBCI) {
+        if (--mpo.entryBackedgeCount <= 0 && CompilationBroker.UseOSR) {
+            CompilationBroker.backEdgeCounterOverflow(mpo, targetBCI);
+        }
     }
 
     @INLINE
@@ -137,7 +139,7 @@ public class MethodInstrumentation {
             Integer[] typeProfile = mpo.getTypeProfile(bci);
             if (typeProfile != null) {
                 int total = 0;
-                for (int i = 0; i < typeProfile.length; i++) {
+                for (int i = 0; i < typeProfile.length; i += 2) {
                     // count up the total of all non anonymous entries
                     Integer typeId = typeProfile[i];
                     Integer count = typeProfile[i + 1];
@@ -150,7 +152,7 @@ public class MethodInstrumentation {
                     int thresh = (int) (ratio * total);
                     int mostFrequentTypeId = MethodProfile.UNDEFINED_TYPE_ID;
                     int mostFrequentTypeCount = thresh;
-                    for (int i = 0; i < typeProfile.length; i++) {
+                    for (int i = 0; i < typeProfile.length; i += 2) {
                         Integer typeId = typeProfile[i];
                         Integer count = typeProfile[i + 1];
                         if (typeId != MethodProfile.UNDEFINED_TYPE_ID && count >= mostFrequentTypeCount) {
@@ -25,9 +25,10 @@ package com.sun.max.vm.profile;
 
 import java.util.*;
 
+import com.sun.cri.ri.*;
 import com.sun.max.annotate.*;
 import com.sun.max.program.*;
-import com.sun.max.vm.actor.holder.ClassIDManager;
+import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.compiler.target.*;
 
 /**
@@ -112,9 +113,109 @@ public class MethodProfile {
      */
     public boolean compilationDisabled;
 
+    /**
+     * The methods compiled for {@linkplain com.sun.max.vm.compiler.OnStackReplacement on-stack replacement} of
+     * {@link #method}, keyed by the bytecode index of the loop header at which they are entered.
+     * A {@code null} value records a failed OSR compilation.
+     */
+    private HashMap<Integer, TargetMethod> osrMethods;
+
+    /**
+     * The bytecode indexes of the loop headers for which an OSR compilation is queued or in progress.
+     */
+    private HashSet<Integer> osrRequests;
+
+    /**
+     * The bytecode indexes of call sites at which a receiver type speculation derived from this profile
+     * failed in optimized code. The type profile of such a call site is not offered to the optimizing compiler again.
+     */
+    private HashSet<Integer> failedSpeculations;
+
     protected MethodProfile() {
     }
 
+    /**
+     * Gets the OSR method entered at a given loop header.
+     *
+     * @param bci the bytecode index of the loop header
+     * @return the OSR method or {@code null} if there is none or it has been invalidated
+     */
+    public synchronized TargetMethod osrMethod(int bci) {
+        TargetMethod osrMethod = osrMethods == null ? null : osrMethods.get(bci);
+        if (osrMethod != null && osrMethod.invalidated() != null) {
+            return null;
+        }
+        return osrMethod;
+    }
+
+    /**
+     * Determines if an OSR compilation for a given loop header failed.
+     */
+    public synchronized boolean osrFailed(int bci) {
+        return osrMethods != null && osrMethods.containsKey(bci) && osrMethods.get(bci) == null;
+    }
+
+    /**
+     * Records the result of an OSR compilation for a given loop header.
+     *
+     * @param bci the bytecode index of the loop header
+     * @param osrMethod the OSR method or {@code null} if the compilation failed
+     */
+    public synchronized void setOSRMethod(int bci, TargetMethod osrMethod) {
+        if (osrMethods == null) {
+            osrMethods = new HashMap<Integer, TargetMethod>();
+        }
+        osrMethods.put(bci, osrMethod);
+        cancelOSRRequest(bci);
+    }
+
+    /**
+     * Marks an OSR compilation for a given loop header as requested. A request is only granted if there is
+     * no valid OSR method for the loop header, no previous OSR compilation for it failed and no other request
+     * for it is pending. A granted request is completed by {@link #setOSRMethod(int, TargetMethod)} or
+     * withdrawn by {@link #cancelOSRRequest(int)}.
+     *
+     * @param bci the bytecode index of the loop header
+     * @return {@code true} if the caller must arrange for the OSR compilation
+     */
+    public synchronized boolean requestOSRMethod(int bci) {
+        if (osrMethod(bci) != null || osrFailed(bci)) {
+            return false;
+        }
+        if (osrRequests == null) {
+            osrRequests = new HashSet<Integer>();
+        }
+        return osrRequests.add(bci);
+    }
+
+    /**
+     * Withdraws a pending OSR compilation request for a given loop header.
+     */
+    public synchronized void cancelOSRRequest(int bci) {
+        if (osrRequests != null) {
+            osrRequests.remove(bci);
+        }
+    }
+
+    /**
+     * Records that a receiver type speculation at a given call site failed.
+     *
+     * @param bci the bytecode index of the call site
+     */
+    public synchronized void speculationFailed(int bci) {
+        if (failedSpeculations == null) {
+            failedSpeculations = new HashSet<Integer>();
+        }
+        failedSpeculations.add(bci);
+    }
+
+    /**
+     * Determines if a receiver type speculation at a given call site has previously failed.
+     */
+    public synchronized boolean hasSpeculationFailed(int bci) {
+        return failedSpeculations != null && failedSpeculations.contains(bci);
+    }
+
     /**
      * Increments deoptimization profiling counter for a gived deoptimization reason.
      * @param deoptReasonId deoptimization reason identificator
@@ -139,6 +240,26 @@ public class MethodProfile {
         return get(search(0, METHOD_ENTRY_COUNT));
     }
 
+    /**
+     * Gets an estimate of how hot the profiled method is, computed as the sum of the method entry count
+     * and all branch taken counts. The branch taken counts include the loop back-edges, so that a method
+     * with a few invocations of a long running loop is ranked alongside a method that is invoked often.
+     *
+     * @return the hotness of the profiled method, {@code 0} if no counts have been recorded
+     */
+    public long hotness() {
+        long hotness = 0;
+        if (data != null) {
+            for (int i = 0; i < dataLength(); i++) {
+                byte type = typeAt(i);
+                if (type == METHOD_ENTRY_COUNT || type == BR_TAKEN_COUNT) {
+                    hotness += dataAt(i) & 0xFFFFFFFFL;
+                }
+            }
+        }
+        return hotness;
+    }
+
     /**
      * Returns execution count for a given bci.
      */
@@ -309,6 +430,49 @@ public class MethodProfile {
         return typeProfile;
     }
 
+    /**
+     * Gets the type profile of the specified bytecode index in the form consumed by the optimizing compiler.
+     * Only types that are still loaded are reported and the anonymous entry only contributes to the total count.
+     *
+     * @param bci the bytecode index for which to get the information
+     * @return the type profile or {@code null} if there is no such profile or a speculation based on it has failed
+     */
+    public RiTypeProfile typeProfile(int bci) {
+        if (hasSpeculationFailed(bci)) {
+            return null;
+        }
+        Integer[] typeProfile = getTypeProfile(bci);
+        if (typeProfile == null) {
+            return null;
+        }
+        int pairs = typeProfile.length / 2;
+        long total = 0;
+        for (int i = 0; i < pairs; i++) {
+            total += typeProfile[i * 2 + 1];
+        }
+        if (total <= 0) {
+            return null;
+        }
+        ArrayList<RiResolvedType> types = new ArrayList<RiResolvedType>(pairs);
+        float[] probabilities = new float[pairs];
+        for (int i = 0; i < pairs; i++) {
+            int typeId = typeProfile[i * 2];
+            if (typeId != UNDEFINED_TYPE_ID) {
+                ClassActor classActor = ClassIDManager.toClassActor(typeId);
+                if (classActor != null) {
+                    probabilities[types.size()] = (float) typeProfile[i * 2 + 1] / total;
+                    types.add(classActor);
+                }
+            }
+        }
+        RiTypeProfile result = new RiTypeProfile();
+        result.count = (int) Math.min(total, Integer.MAX_VALUE);
+        result.morphism = pairs;
+        result.types = types.toArray(new RiResolvedType[types.size()]);
+        result.probabilities = Arrays.copyOf(probabilities, types.size());
+        return result;
+    }
+
     /**
      * Gets the receiver method profile of the specified bytecode index, if it is available.
      * The data is formatted as an array of integers, in pairs. The first integer in
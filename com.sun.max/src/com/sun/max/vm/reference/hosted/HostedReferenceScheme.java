@@ -37,7 +37,7 @@ import com.sun.max.vm.value.*;
 /**
  * A reference scheme for use when executing in {@linkplain MaxineVM#isHosted() hosted} mode.
  */
-public final class HostedReferenceScheme extends AbstractVMScheme implements ReferenceScheme {
+public class HostedReferenceScheme extends AbstractVMScheme implements ReferenceScheme {
 
     public boolean isConstant() {
         return false;
@@ -109,6 +109,14 @@ public abstract class GCOperation extends VmOperation {
         }
     }
 
+    /**
+     * GC worker threads execute parts of the collection on behalf of the VM operation thread and must therefore keep running.
+     */
+    @Override
+    protected boolean operateOnThread(VmThread thread) {
+        return !thread.isGCWorkerThread();
+    }
+
     @Override
     protected void doBeforeThawingThread(VmThread thread) {
         // Indicates that the stack reference map for the thread is once-again unprepared.
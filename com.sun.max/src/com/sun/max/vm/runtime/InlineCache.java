@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.runtime;
+
+import static com.sun.max.vm.VMOptions.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.object.*;
+
+/**
+ * An inline cache for a virtual or interface call site. The cache records, for the receiver hubs seen at the call
+ * site, the {@linkplain #slot(Hub) slot} of the hub that holds the entry point of the selected method.
+ * <p>
+ * A cache starts empty, becomes monomorphic on its first miss and polymorphic on subsequent misses with a new hub.
+ * Once it has seen more than {@link #PolymorphicInlineCacheSize} hubs it becomes megamorphic and dispatch reverts
+ * to the uncached lookup. The cached slots are indexes into the hub, not code addresses, so they remain valid when
+ * the target methods are recompiled or moved.
+ * <p>
+ * Each transition installs a new immutable {@link State} with a single reference store, so compiled code that loads
+ * the state once always sees a consistent hub and slot. Concurrent misses may race to install a state, in which case
+ * one of the new hubs is dropped and will simply miss again.
+ *
+ * @see InterfaceInlineCache
+ * @see VirtualInlineCache
+ */
+public abstract class InlineCache {
+
+    /**
+     * Use inline caches at virtual and interface call sites compiled at runtime.
+     */
+    public static boolean UseInlineCaches = true;
+
+    /**
+     * Maximum number of hubs recorded in a polymorphic inline cache.
+     */
+    public static int PolymorphicInlineCacheSize = 4;
+
+    static {
+        addFieldOption("-XX:", "UseInlineCaches", InlineCache.class, "Use inline caches at virtual and interface call sites (default: true)");
+        addFieldOption("-XX:", "PolymorphicInlineCacheSize", InlineCache.class, "Number of receiver types recorded by a polymorphic inline cache (default: 4)");
+    }
+
+    /**
+     * An immutable state of an inline cache.
+     */
+    public static final class State {
+        /**
+         * The first hub recorded in the cache, checked by compiled code before anything else.
+         * This is {@code null} if the cache is empty or megamorphic.
+         */
+        public final Hub hub;
+
+        /**
+         * The slot for {@link #hub}.
+         */
+        public final int index;
+
+        /**
+         * All hubs recorded in the cache or {@code null} if the cache is megamorphic.
+         */
+        public final Hub[] hubs;
+
+        /**
+         * The slots for {@link #hubs}.
+         */
+        public final int[] indexes;
+
+        State(Hub[] hubs, int[] indexes) {
+            this.hub = hubs == null || hubs.length == 0 ? null : hubs[0];
+            this.index = hub == null ? 0 : indexes[0];
+            this.hubs = hubs;
+            this.indexes = indexes;
+        }
+
+        public boolean isMegamorphic() {
+            return hubs == null;
+        }
+    }
+
+    private static final State EMPTY = new State(new Hub[0], new int[0]);
+
+    private static final State MEGAMORPHIC = new State(null, null);
+
+    /**
+     * The method invoked at the call site.
+     */
+    public final MethodActor methodActor;
+
+    /**
+     * The current state of this cache, replaced on every transition.
+     */
+    public volatile State state = EMPTY;
+
+    protected InlineCache(MethodActor methodActor) {
+        this.methodActor = methodActor;
+    }
+
+    /**
+     * Gets the index of the word in a given hub that holds the entry point of the method selected for receivers
+     * of that hub.
+     */
+    protected abstract int slot(Hub hub);
+
+    /**
+     * Selects the implementation of the cached method for a given receiver, updating the cache on a miss.
+     *
+     * @return the {@link com.sun.max.vm.compiler.CallEntryPoint#VTABLE_ENTRY_POINT} of the selected method
+     */
+    @INLINE
+    public final Address select(Object receiver) {
+        final Hub hub = ObjectAccess.readHub(receiver);
+        final State s = state;
+        if (s.hub == hub) {
+            return hub.getWord(s.index).asAddress();
+        }
+        return selectSlow(hub, s);
+    }
+
+    @NEVER_INLINE
+    @SNIPPET_SLOWPATH
+    private Address selectSlow(Hub hub, State s) {
+        if (!s.isMegamorphic()) {
+            for (int i = 0; i < s.hubs.length; i++) {
+                if (s.hubs[i] == hub) {
+                    return hub.getWord(s.indexes[i]).asAddress();
+                }
+            }
+        }
+        final int index = slot(hub);
+        if (!s.isMegamorphic() && state == s && !SafepointPoll.isDisabled() && !Heap.isAllocationDisabledForCurrentThread()) {
+            state = add(s, hub, index);
+        }
+        return hub.getWord(index).asAddress();
+    }
+
+    private static State add(State s, Hub hub, int index) {
+        final int length = s.hubs.length;
+        if (length >= PolymorphicInlineCacheSize) {
+            return MEGAMORPHIC;
+        }
+        final Hub[] hubs = new Hub[length + 1];
+        final int[] indexes = new int[length + 1];
+        System.arraycopy(s.hubs, 0, hubs, 0, length);
+        System.arraycopy(s.indexes, 0, indexes, 0, length);
+        hubs[length] = hub;
+        indexes[length] = index;
+        return new State(hubs, indexes);
+    }
+
+    @Override
+    public String toString() {
+        final State s = state;
+        return getClass().getSimpleName() + "[" + methodActor + ", " + (s.isMegamorphic() ? "megamorphic" : s.hubs.length + " hubs") + "]";
+    }
+}
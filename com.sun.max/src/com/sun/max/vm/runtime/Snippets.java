@@ -136,6 +136,22 @@ public class Snippets {
         return hub.getWord(vTableIndex).asAddress();
     }
 
+    /**
+     * Selects the implementation of a virtual method through the {@linkplain VirtualInlineCache inline cache}
+     * of the call site.
+     */
+    @INLINE
+    public static Address selectNonPrivateVirtualMethod(Object receiver, VirtualInlineCache cache) {
+        return cache.select(receiver);
+    }
+
+    @INLINE
+    public static Address selectNonPrivateVirtualMethod(Object receiver, VirtualInlineCache cache, MethodProfile mpo, int mpoIndex) {
+        Address entryPoint = selectNonPrivateVirtualMethod(receiver, cache);
+        MethodInstrumentation.recordType(mpo, receiver, mpoIndex, MethodInstrumentation.DEFAULT_RECEIVER_METHOD_PROFILE_ENTRIES);
+        return entryPoint;
+    }
+
     @INLINE
     public static Address selectInterfaceMethod(Object receiver, InterfaceMethodActor interfaceMethod) {
         final Hub hub = ObjectAccess.readHub(receiver);
@@ -151,6 +167,22 @@ public class Snippets {
         return entryPoint;
     }
 
+    /**
+     * Selects the implementation of an interface method through the {@linkplain InterfaceInlineCache inline cache}
+     * of the call site.
+     */
+    @INLINE
+    public static Address selectInterfaceMethod(Object receiver, InterfaceInlineCache cache) {
+        return cache.select(receiver);
+    }
+
+    @INLINE
+    public static Address selectInterfaceMethod(Object receiver, InterfaceInlineCache cache, MethodProfile mpo, int mpoIndex) {
+        Address entryPoint = selectInterfaceMethod(receiver, cache);
+        MethodInstrumentation.recordType(mpo, receiver, mpoIndex, MethodInstrumentation.DEFAULT_RECEIVER_METHOD_PROFILE_ENTRIES);
+        return entryPoint;
+    }
+
     @NEVER_INLINE
     @SNIPPET_SLOWPATH
     private static void resolveStaticFieldForReading0(ResolutionGuard.InPool guard) {
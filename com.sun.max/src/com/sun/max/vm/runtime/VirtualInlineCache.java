@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.runtime;
+
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+
+/**
+ * An {@linkplain InlineCache inline cache} for an INVOKEVIRTUAL call site. The slot of a virtual method is its
+ * {@linkplain VirtualMethodActor#vTableIndex() vtable index} for every receiver hub, so a hit costs the same loads as
+ * a plain vtable dispatch. The cache keeps track of the receiver hubs seen at the call site, which lets compiled code
+ * tell monomorphic and polymorphic sites from megamorphic ones, the latter skipping the cache altogether.
+ */
+public final class VirtualInlineCache extends InlineCache {
+
+    public final VirtualMethodActor virtualMethod;
+
+    public VirtualInlineCache(VirtualMethodActor virtualMethod) {
+        super(virtualMethod);
+        this.virtualMethod = virtualMethod;
+    }
+
+    @Override
+    protected int slot(Hub hub) {
+        return virtualMethod.vTableIndex();
+    }
+}
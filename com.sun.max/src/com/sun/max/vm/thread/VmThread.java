@@ -31,6 +31,7 @@ import static com.sun.max.vm.type.ClassRegistry.*;
 
 import java.lang.Thread.*;
 import java.security.*;
+import java.util.*;
 
 import com.sun.max.annotate.*;
 import com.sun.max.atomic.*;
@@ -280,6 +281,29 @@ public class VmThread {
 
     public JavaMonitor protectedMonitor;
 
+    /**
+     * The unbound monitors cached by this thread, linked through their {@code next} field.
+     * Only accessed by this thread, see {@link JavaMonitorManager#bindMonitor(Object)}.
+     */
+    public JavaMonitor unboundMonitors;
+
+    /**
+     * The number of times this thread blocked entering a contended monitor.
+     *
+     * @see java.lang.management.ThreadInfo#getBlockedCount()
+     */
+    public long blockedCount;
+
+    /**
+     * The free JNI global handles cached by this thread.
+     */
+    public final GlobalHandleTable.Cache jniGlobalHandleCache = new GlobalHandleTable.Cache();
+
+    /**
+     * The free JNI weak global handles cached by this thread.
+     */
+    public final GlobalHandleTable.Cache jniWeakGlobalHandleCache = new GlobalHandleTable.Cache();
+
     private ConditionVariable waitingCondition = ConditionVariableFactory.create();
 
     public final HeapScheme.GCRequest gcRequest = VMConfiguration.vmConfig().heapScheme().createThreadLocalGCRequest(this);
@@ -294,6 +318,12 @@ public class VmThread {
      */
     private boolean jvmtiAgent;
 
+    /**
+     * Marks this as a GC worker thread. These threads run garbage collection work on behalf of the
+     * {@link VmOperationThread} and are therefore neither frozen by {@link GCOperation}s nor scanned for roots.
+     */
+    private boolean gcWorker;
+
     /**
      * Holds the exception object for the exception currently being raised. This value will only be
      * non-null during the unwinding process between calls to {@link #storeExceptionForHandler(Throwable, TargetMethod, int)}
@@ -303,6 +333,14 @@ public class VmThread {
 
     private boolean yellowZoneUnprotected;
 
+    /**
+     * The objects materialized for the scalar-replaced allocations of the optimized frames on this thread's stack
+     * that have been inspected, keyed by the stack pointer of the frame.
+     *
+     * @see #materializedObjects(Pointer, boolean)
+     */
+    private HashMap<Long, HashMap<Integer, Object>> materializedObjects;
+
     /**
      * Number of shadow zone pages for overflow checking.
      */
@@ -403,6 +441,50 @@ public class VmThread {
         return exception;
     }
 
+    /**
+     * Gets the objects materialized for the virtual objects of the optimized frame whose stack pointer is {@code sp}.
+     * Passing the result as {@link TargetMethod.FrameAccess#materializedObjects} when decoding the debug info of the
+     * frame preserves the identity of the materialized objects across decodings, e.g. between a debugger reading a
+     * local variable and the frame subsequently being deoptimized.
+     * <p>
+     * Only this thread or a thread that has suspended it may call this method. The cache for a frame must be
+     * {@linkplain #clearMaterializedObjects(Pointer) cleared} before the frame is popped.
+     *
+     * @param sp the stack pointer of an optimized frame
+     * @param create specifies if an empty cache should be created for the frame if it does not have one
+     * @return the cache for the frame or {@code null} if it has none and {@code create == false}
+     */
+    public final HashMap<Integer, Object> materializedObjects(Pointer sp, boolean create) {
+        if (materializedObjects == null) {
+            if (!create) {
+                return null;
+            }
+            materializedObjects = new HashMap<Long, HashMap<Integer, Object>>();
+        }
+        HashMap<Integer, Object> objects = materializedObjects.get(sp.toLong());
+        if (objects == null && create) {
+            objects = new HashMap<Integer, Object>();
+            materializedObjects.put(sp.toLong(), objects);
+        }
+        return objects;
+    }
+
+    /**
+     * Discards the objects materialized for the optimized frame whose stack pointer is {@code sp}.
+     */
+    public final void clearMaterializedObjects(Pointer sp) {
+        if (materializedObjects != null) {
+            materializedObjects.remove(sp.toLong());
+        }
+    }
+
+    /**
+     * Discards the objects materialized for all optimized frames of this thread.
+     */
+    public final void clearMaterializedObjects() {
+        materializedObjects = null;
+    }
+
     /**
      * Exception thrown by a {@linkplain JniFunctions JNI function}.
      */
@@ -813,6 +895,8 @@ public class VmThread {
             // reset to RUNNABLE if it blocks here.
             VmThreadMap.ACTIVE.removeThreadLocals(thread);
         }
+        JavaMonitorManager.releaseMonitorCache(thread);
+        JniHandles.releaseGlobalHandleCaches(thread);
         if (MaxineVM.isDebug()) {
             detached();
         }
@@ -1130,6 +1214,17 @@ public class VmThread {
         jvmtiAgent = true;
     }
 
+    /**
+     * Determines if this is a thread of the GC work gang.
+     */
+    public final boolean isGCWorkerThread() {
+        return gcWorker;
+    }
+
+    public final void setAsGCWorkerThread() {
+        gcWorker = true;
+    }
+
     /**
      * Bind the given {@code Thread} to this VmThread.
      * @param javaThread thread to be bound
@@ -118,6 +118,7 @@ public final class ClassRegistry {
 
     public static final FieldActor ClassActor_javaClass = findField(ClassActor.class, "javaClass");
     public static final FieldActor Buffer_address = findField(Buffer.class, "address");
+    public static final FieldActor String_value = findField(String.class, "value");
     public static final FieldActor JLRReference_referent = findField(java.lang.ref.Reference.class, "referent");
 
     public static final FieldActor SYSTEM_IN = findField(System.class, "in");
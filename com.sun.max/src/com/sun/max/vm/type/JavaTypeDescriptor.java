@@ -59,6 +59,7 @@ public final class JavaTypeDescriptor {
             super(String.valueOf(kind.character));
             this.kind = kind;
             this.javaClass = kind.javaClass;
+            register();
         }
 
         @Override
@@ -36,7 +36,6 @@ import com.sun.cri.ci.*;
 import com.sun.cri.ri.*;
 import com.sun.max.annotate.*;
 import com.sun.max.collect.*;
-import com.sun.max.collect.ChainedHashMapping.Entry;
 import com.sun.max.vm.classfile.constant.*;
 import com.sun.max.vm.compiler.*;
 
@@ -47,42 +46,22 @@ public abstract class SignatureDescriptor extends Descriptor implements RiSignat
 
     /**
      * The only concrete subclass of {@link TypeDescriptor}.
-     * Using a subclass hides the details of storing TypeDescriptors in a {@link ChainedHashMapping}.
+     * Using a subclass ensures that SignatureDescriptors are only created by
+     * {@link SignatureDescriptor#createSignatureDescriptor(String, TypeDescriptor[])}.
      */
-    private static final class SignatureDescriptorEntry extends SignatureDescriptor implements ChainedHashMapping.Entry<String, SignatureDescriptorEntry> {
+    private static final class SignatureDescriptorEntry extends SignatureDescriptor {
 
         SignatureDescriptorEntry(String value, TypeDescriptor[] typeDescriptors) {
             super(value, typeDescriptors);
         }
-
-        public String key() {
-            return toString();
-        }
-
-        private Entry<String, SignatureDescriptorEntry> next;
-
-        public Entry<String, SignatureDescriptorEntry> next() {
-            return next;
-        }
-
-        public void setNext(Entry<String, SignatureDescriptorEntry> next) {
-            this.next = next;
-        }
-
-        public void setValue(SignatureDescriptorEntry value) {
-            assert value == this;
-        }
-
-        public SignatureDescriptorEntry value() {
-            return this;
-        }
     }
 
     /**
-     * Searching and adding entries to this map is only performed by
-     * {@linkplain #createSignatureDescriptor(String, TypeDescriptor[]) one method} which is synchronized.
+     * Lookups in this table do not take a lock. Two threads creating the same new signature may both create an entry
+     * but only the one that is {@linkplain ConcurrentCanonicalTable#intern(Object, Object) interned} first is returned
+     * to either.
      */
-    private static final Mapping<String, SignatureDescriptorEntry> canonicalSignatureDescriptors = new ChainingValueChainedHashMapping<String, SignatureDescriptorEntry>();
+    private static final ConcurrentCanonicalTable<String, SignatureDescriptorEntry> canonicalSignatureDescriptors = new ConcurrentCanonicalTable<String, SignatureDescriptorEntry>(1024);
 
     static {
         // Ensures Kind is initialized
@@ -107,7 +86,7 @@ public abstract class SignatureDescriptor extends Descriptor implements RiSignat
 
     public final int numberOfSlots;
 
-    private static synchronized SignatureDescriptor createSignatureDescriptor(String value, TypeDescriptor[] typeDescriptors) {
+    private static SignatureDescriptor createSignatureDescriptor(String value, TypeDescriptor[] typeDescriptors) {
         SignatureDescriptorEntry signatureDescriptorEntry = canonicalSignatureDescriptors.get(value);
         if (signatureDescriptorEntry == null) {
             final TypeDescriptor[] verifiedTypes;
@@ -118,15 +97,18 @@ public abstract class SignatureDescriptor extends Descriptor implements RiSignat
             }
             assert verifiedTypes.length >= 1;
 
-            signatureDescriptorEntry = new SignatureDescriptorEntry(value, verifiedTypes);
-            canonicalSignatureDescriptors.put(value, signatureDescriptorEntry);
+            signatureDescriptorEntry = canonicalSignatureDescriptors.intern(value, new SignatureDescriptorEntry(value, verifiedTypes));
         }
         return signatureDescriptorEntry;
     }
 
     @HOSTED_ONLY
     public static int totalNumberOfDescriptors() {
-        return canonicalSignatureDescriptors.length();
+        return canonicalSignatureDescriptors.size();
+    }
+
+    public static void printStatistics() {
+        SymbolTable.printStatistics("Signature descriptors", canonicalSignatureDescriptors);
     }
 
     /**
@@ -169,7 +151,7 @@ public abstract class SignatureDescriptor extends Descriptor implements RiSignat
         return typeDescriptors;
     }
 
-    public static synchronized SignatureDescriptor lookup(String string) throws ClassFormatError {
+    public static SignatureDescriptor lookup(String string) throws ClassFormatError {
         return canonicalSignatureDescriptors.get(string);
     }
 
@@ -22,13 +22,13 @@ package com.sun.max.vm.type;
 
 import com.sun.max.annotate.*;
 import com.sun.max.collect.*;
-import com.sun.max.collect.ChainedHashMapping.Entry;
 import com.sun.max.lang.*;
 import com.sun.max.program.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.MaxineVM.Phase;
 import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.classfile.constant.*;
 import com.sun.max.vm.hosted.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.type.JavaTypeDescriptor.WordTypeDescriptor;
@@ -47,50 +47,36 @@ public abstract class TypeDescriptor extends Descriptor {
 
     /**
      * The only concrete subclass of {@link TypeDescriptor}.
-     * Using a subclass hides the details of storing TypeDescriptors in a {@link ChainedHashMapping}.
+     * Using a subclass ensures that TypeDescriptors are only created by {@link TypeDescriptor#makeTypeDescriptor(String)}
+     * or for the predefined {@linkplain JavaTypeDescriptor primitive and word types}.
      */
-    static class TypeDescriptorEntry extends TypeDescriptor implements ChainedHashMapping.Entry<String, TypeDescriptorEntry> {
+    static class TypeDescriptorEntry extends TypeDescriptor {
         TypeDescriptorEntry(String value) {
             super(value);
             ProgramError.check(value.length() > 0);
-            assert !canonicalTypeDescriptors.containsKey(value);
-            canonicalTypeDescriptors.put(value, this);
         }
 
-        public String key() {
-            return toString();
-        }
-
-        private Entry<String, TypeDescriptorEntry> next;
-
-        public Entry<String, TypeDescriptorEntry> next() {
-            return next;
-        }
-
-        public void setNext(Entry<String, TypeDescriptorEntry> next) {
-            this.next = next;
-        }
-
-        public void setValue(TypeDescriptorEntry value) {
-            assert value == this;
-        }
-
-        public TypeDescriptorEntry value() {
-            return this;
+        /**
+         * Adds a predefined descriptor to the canonical mapping.
+         */
+        @HOSTED_ONLY
+        final void register() {
+            final TypeDescriptorEntry entry = canonicalTypeDescriptors.intern(toString(), this);
+            assert entry == this : "duplicate type descriptor " + this;
         }
     }
 
     /**
-     * Searching and adding entries to this map is only performed by
-     * {@linkplain #makeTypeDescriptor(String) one method} which synchronizes on the map before using it.
+     * Lookups in this table do not take a lock. Two threads making the same new descriptor may both create an entry
+     * but only the one that is {@linkplain ConcurrentCanonicalTable#intern(Object, Object) interned} first is returned
+     * to either.
      */
-    private static final Mapping<String, TypeDescriptorEntry> canonicalTypeDescriptors = new ChainingValueChainedHashMapping<String, TypeDescriptorEntry>();
+    private static final ConcurrentCanonicalTable<String, TypeDescriptorEntry> canonicalTypeDescriptors = new ConcurrentCanonicalTable<String, TypeDescriptorEntry>(1024);
 
     static {
         for (Class c : Word.getSubclasses()) {
             String s = JavaTypeDescriptor.mangleClassName(c.getName(), '/');
-            WordTypeDescriptor wordTypeDescriptor = new WordTypeDescriptor(s, c);
-            canonicalTypeDescriptors.put(s, wordTypeDescriptor);
+            new WordTypeDescriptor(s, c).register();
         }
 
         Classes.initialize(JavaTypeDescriptor.class);
@@ -101,24 +87,23 @@ public abstract class TypeDescriptor extends Descriptor {
     }
 
     public static TypeDescriptor lookup(String string) {
-        synchronized (canonicalTypeDescriptors) {
-            return canonicalTypeDescriptors.get(string);
-        }
+        return canonicalTypeDescriptors.get(string);
     }
 
     static TypeDescriptor makeTypeDescriptor(String string) {
-        synchronized (canonicalTypeDescriptors) {
-            TypeDescriptorEntry typeDescriptorEntry = canonicalTypeDescriptors.get(string);
-            if (typeDescriptorEntry == null) {
-                // creating the type descriptor entry will add it to the canonical mapping.
-                typeDescriptorEntry = new TypeDescriptorEntry(string);
-            }
-            return typeDescriptorEntry;
+        TypeDescriptorEntry typeDescriptorEntry = canonicalTypeDescriptors.get(string);
+        if (typeDescriptorEntry == null) {
+            typeDescriptorEntry = canonicalTypeDescriptors.intern(string, new TypeDescriptorEntry(string));
         }
+        return typeDescriptorEntry;
     }
 
     public static int numberOfDescriptors() {
-        return canonicalTypeDescriptors.length();
+        return canonicalTypeDescriptors.size();
+    }
+
+    public static void printStatistics() {
+        SymbolTable.printStatistics("Type descriptors", canonicalTypeDescriptors);
     }
 
     /**
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.collect;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.sun.max.ide.*;
+
+/**
+ * Tests for {@link ConcurrentCanonicalTable}.
+ */
+public class ConcurrentCanonicalTableTest extends MaxTestCase {
+
+    public ConcurrentCanonicalTableTest(String name) {
+        super(name);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ConcurrentCanonicalTableTest.class);
+    }
+
+    private static final int N = 20000;
+
+    private static final int THREADS = 8;
+
+    private static String key(int i) {
+        // a new string each time, so that keys are only ever equal, never identical
+        return new String("key" + i);
+    }
+
+    /**
+     * Runs {@code task} in {@link #THREADS} threads that are released at the same time.
+     */
+    private static void runConcurrently(final Callable<Void> task) throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        barrier.await();
+                        return task.call();
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void test_serialIntern() {
+        final ConcurrentCanonicalTable<String, Object> table = new ConcurrentCanonicalTable<String, Object>(1);
+        final Object[] values = new Object[N];
+        for (int i = 0; i < N; i++) {
+            assertNull(table.get(key(i)));
+            values[i] = new Object();
+            assertSame(values[i], table.intern(key(i), values[i]));
+            assertSame(values[i], table.intern(key(i), new Object()));
+        }
+        assertEquals(N, table.size());
+        assertTrue(table.resizes() > 0);
+        for (int i = 0; i < N; i++) {
+            assertSame(values[i], table.get(key(i)));
+        }
+    }
+
+    /**
+     * All the threads intern the same keys, each in a different order and with its own values. Every thread must see
+     * the same canonical value for a key, and it must be the one the table returns afterwards.
+     */
+    public void test_concurrentInternIdentity() throws Exception {
+        final ConcurrentCanonicalTable<String, Object> table = new ConcurrentCanonicalTable<String, Object>(1);
+        final AtomicReferenceArray<Object> canonical = new AtomicReferenceArray<Object>(N);
+        final AtomicInteger seed = new AtomicInteger();
+        runConcurrently(new Callable<Void>() {
+            public Void call() {
+                final int[] order = new int[N];
+                for (int i = 0; i < N; i++) {
+                    order[i] = i;
+                }
+                final Random random = new Random(seed.incrementAndGet());
+                for (int i = N - 1; i > 0; i--) {
+                    final int j = random.nextInt(i + 1);
+                    final int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                }
+                for (int i : order) {
+                    final Object value = table.intern(key(i), new Object());
+                    if (!canonical.compareAndSet(i, null, value)) {
+                        assertSame(canonical.get(i), value);
+                    }
+                }
+                return null;
+            }
+        });
+        assertEquals(N, table.size());
+        assertTrue(table.resizes() > 0);
+        for (int i = 0; i < N; i++) {
+            assertSame(canonical.get(i), table.get(key(i)));
+        }
+    }
+
+    /**
+     * Half of the threads add new keys, growing the table many times, while the other half look up keys that were
+     * added before. The lookups must find these keys in every stage of a resize.
+     */
+    public void test_lookupDuringResize() throws Exception {
+        final ConcurrentCanonicalTable<String, Object> table = new ConcurrentCanonicalTable<String, Object>(1);
+        final int present = 500;
+        final Object[] values = new Object[present];
+        for (int i = 0; i < present; i++) {
+            values[i] = new Object();
+            table.intern(key(i), values[i]);
+        }
+        final int resizesBefore = table.resizes();
+        final AtomicInteger writers = new AtomicInteger(THREADS / 2);
+        final AtomicInteger threadIndex = new AtomicInteger();
+        runConcurrently(new Callable<Void>() {
+            public Void call() {
+                final int t = threadIndex.getAndIncrement();
+                if (t < THREADS / 2) {
+                    for (int i = present + t; i < N; i += THREADS / 2) {
+                        table.intern(key(i), new Object());
+                    }
+                    writers.decrementAndGet();
+                } else {
+                    do {
+                        for (int i = 0; i < present; i++) {
+                            assertSame(values[i], table.get(key(i)));
+                        }
+                    } while (writers.get() != 0);
+                }
+                return null;
+            }
+        });
+        assertEquals(N, table.size());
+        assertTrue(table.resizes() > resizesBefore);
+        for (int i = 0; i < present; i++) {
+            assertSame(values[i], table.get(key(i)));
+        }
+        for (int i = present; i < N; i++) {
+            assertNotNull(table.get(key(i)));
+        }
+    }
+}
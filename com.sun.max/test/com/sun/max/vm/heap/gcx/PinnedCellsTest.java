@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2011, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.hosted.*;
+import com.sun.max.vm.runtime.*;
+
+/**
+ * Tests for {@link PinnedCells}.
+ */
+public class PinnedCellsTest extends HostedVMTestCase {
+
+    public PinnedCellsTest(String name) {
+        super(name);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(PinnedCellsTest.class);
+    }
+
+    private static Pointer origin(int n) {
+        return Pointer.fromInt(n * 64);
+    }
+
+    public void test_nestedPins() {
+        final PinnedCells pinnedCells = new PinnedCells(4);
+        assertTrue(pinnedCells.isEmpty());
+        assertFalse(pinnedCells.contains(origin(1)));
+        assertTrue(pinnedCells.pin(origin(1)));
+        assertTrue(pinnedCells.pin(origin(1)));
+        assertEquals(1, pinnedCells.size());
+        assertEquals(2, pinnedCells.pinCount(0));
+        pinnedCells.unpin(origin(1));
+        assertTrue(pinnedCells.contains(origin(1)));
+        pinnedCells.unpin(origin(1));
+        assertFalse(pinnedCells.contains(origin(1)));
+        assertTrue(pinnedCells.isEmpty());
+    }
+
+    public void test_sortedByOrigin() {
+        final PinnedCells pinnedCells = new PinnedCells(8);
+        final int[] order = {5, 2, 7, 1, 3};
+        for (int n : order) {
+            assertTrue(pinnedCells.pin(origin(n)));
+        }
+        assertEquals(order.length, pinnedCells.size());
+        for (int i = 1; i < pinnedCells.size(); i++) {
+            assertTrue(pinnedCells.origin(i - 1).lessThan(pinnedCells.origin(i)));
+        }
+        for (int n : order) {
+            assertTrue(pinnedCells.contains(origin(n)));
+        }
+        assertFalse(pinnedCells.contains(origin(4)));
+        pinnedCells.unpin(origin(2));
+        assertTrue(pinnedCells.origin(1).equals(origin(3)));
+    }
+
+    public void test_isPinned() {
+        final PinnedCells pinnedCells = new PinnedCells(4);
+        assertFalse(pinnedCells.isPinned(origin(1)));
+        pinnedCells.pin(origin(1));
+        pinnedCells.pin(origin(1));
+        assertTrue(pinnedCells.isPinned(origin(1)));
+        assertFalse(pinnedCells.isPinned(origin(2)));
+        pinnedCells.retain(origin(0), origin(4));
+        pinnedCells.unpin(origin(1));
+        assertTrue(pinnedCells.isPinned(origin(1)));
+        // A retained cell whose last pin was released is in the table but no longer pinned.
+        pinnedCells.unpin(origin(1));
+        assertTrue(pinnedCells.contains(origin(1)));
+        assertFalse(pinnedCells.isPinned(origin(1)));
+    }
+
+    public void test_firstOriginAbove() {
+        final PinnedCells pinnedCells = new PinnedCells(4);
+        assertTrue(pinnedCells.firstOriginAbove(origin(0)).isZero());
+        pinnedCells.pin(origin(2));
+        pinnedCells.pin(origin(5));
+        assertTrue(pinnedCells.firstOriginAbove(origin(0)).equals(origin(2)));
+        // The origin must be strictly above the address.
+        assertTrue(pinnedCells.firstOriginAbove(origin(2)).equals(origin(5)));
+        assertTrue(pinnedCells.firstOriginAbove(origin(3)).equals(origin(5)));
+        assertTrue(pinnedCells.firstOriginAbove(origin(5)).isZero());
+    }
+
+    public void test_full() {
+        final PinnedCells pinnedCells = new PinnedCells(2);
+        assertTrue(pinnedCells.pin(origin(1)));
+        assertTrue(pinnedCells.pin(origin(2)));
+        assertFalse(pinnedCells.pin(origin(3)));
+        // Nesting a pin doesn't need a new entry.
+        assertTrue(pinnedCells.pin(origin(2)));
+        pinnedCells.unpin(origin(1));
+        assertTrue(pinnedCells.pin(origin(3)));
+    }
+
+    public void test_unbalancedUnpin() {
+        final PinnedCells pinnedCells = new PinnedCells(2);
+        pinnedCells.pin(origin(1));
+        try {
+            pinnedCells.unpin(origin(2));
+            fail("unpinning a cell that isn't pinned must fail");
+        } catch (FatalError fatalError) {
+        }
+    }
+
+    public void test_retainAndRelease() {
+        final PinnedCells pinnedCells = new PinnedCells(4);
+        pinnedCells.pin(origin(1));
+        pinnedCells.pin(origin(2));
+        pinnedCells.pin(origin(8));
+        assertEquals(2, pinnedCells.retain(origin(0), origin(4)));
+        // A retained cell stays in the table after its last unpin, until the collector releases it.
+        pinnedCells.unpin(origin(1));
+        pinnedCells.unpin(origin(8));
+        assertTrue(pinnedCells.contains(origin(1)));
+        assertFalse(pinnedCells.contains(origin(8)));
+        assertEquals(0, pinnedCells.pinCount(0));
+        pinnedCells.release(origin(0), origin(4));
+        assertFalse(pinnedCells.contains(origin(1)));
+        assertTrue(pinnedCells.contains(origin(2)));
+        pinnedCells.unpin(origin(2));
+        assertTrue(pinnedCells.isEmpty());
+    }
+}
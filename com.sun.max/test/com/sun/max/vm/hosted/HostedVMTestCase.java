@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.hosted;
+
+import com.sun.max.ide.*;
+import com.sun.max.program.option.*;
+import com.sun.max.vm.reference.test.*;
+
+/**
+ * A test case for VM code that needs a VM configuration and a {@linkplain JavaPrototype Java prototype} in hosted
+ * mode, e.g. data structures that get the offsets of their fields from class actors and update them with
+ * atomic operations. The {@linkplain AtomicHostedReferenceScheme atomic hosted reference scheme} is used, so that
+ * references denote objects of the host VM and compare-and-swap operations are atomic.
+ */
+public abstract class HostedVMTestCase extends MaxTestCase {
+
+    private static boolean initialized;
+
+    protected HostedVMTestCase(String name) {
+        super(name);
+        initialize();
+    }
+
+    private static synchronized void initialize() {
+        if (!initialized) {
+            final VMConfigurator configurator = new VMConfigurator(new OptionSet(false));
+            configurator.referenceScheme.setValue(new com.sun.max.vm.reference.test.Package().name());
+            configurator.create();
+            JavaPrototype.initialize(false);
+            initialized = true;
+        }
+    }
+}
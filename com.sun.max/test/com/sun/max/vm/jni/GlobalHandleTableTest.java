@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.jni;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.sun.max.vm.hosted.*;
+
+/**
+ * Tests for {@link GlobalHandleTable}.
+ */
+public class GlobalHandleTableTest extends HostedVMTestCase {
+
+    public GlobalHandleTableTest(String name) {
+        super(name);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(GlobalHandleTableTest.class);
+    }
+
+    public void test_slotReuse() {
+        final GlobalHandleTable table = new GlobalHandleTable();
+        final GlobalHandleTable.Cache cache = new GlobalHandleTable.Cache();
+        final int n = GlobalHandleTable.CHUNK_SIZE;
+        final int[] indices = new int[n];
+        final Set<Integer> allocated = new HashSet<Integer>();
+        for (int i = 0; i < n; i++) {
+            indices[i] = table.allocate("h" + i, cache);
+            assertTrue(allocated.add(indices[i]));
+        }
+        // The first chunk is enough for these handles
+        for (int index : indices) {
+            assertTrue(index >= 0 && index < GlobalHandleTable.CHUNK_SIZE);
+        }
+        for (int i = 0; i < n; i++) {
+            assertEquals("h" + i, table.get(indices[i]));
+            table.free(indices[i], cache);
+            assertNull(table.get(indices[i]));
+        }
+        table.release(cache);
+        assertEquals(0, cache.size);
+
+        // Freed handles are reused by the same thread and by another thread, so the pool doesn't grow
+        final GlobalHandleTable.Cache other = new GlobalHandleTable.Cache();
+        final Set<Integer> reused = new HashSet<Integer>();
+        for (int i = 0; i < n; i++) {
+            final int index = table.allocate(i, (i & 1) == 0 ? cache : other);
+            assertTrue(allocated.contains(index));
+            assertTrue(reused.add(index));
+            assertEquals(i, table.get(index));
+        }
+        // The pool is exhausted now, the next allocation grows it by a chunk
+        final int index = table.allocate("next", cache);
+        assertFalse(allocated.contains(index));
+        assertEquals(1, index >> GlobalHandleTable.CHUNK_SHIFT);
+    }
+
+    public void test_weakHandleClearing() {
+        final GlobalHandleTable table = new GlobalHandleTable();
+        final GlobalHandleTable.Cache cache = new GlobalHandleTable.Cache();
+        final Object strong = new Object();
+        Object referent = new Object[1000];
+        final int weakIndex = table.allocate(new WeakReference<Object>(referent), cache);
+        final int strongIndex = table.allocate(new WeakReference<Object>(strong), cache);
+        final int globalIndex = table.allocate(new Object[1000], cache);
+        assertSame(referent, ((WeakReference<?>) table.get(weakIndex)).get());
+        referent = null;
+
+        // A weak handle doesn't keep its referent alive but a global handle does
+        for (int i = 0; i < 100 && ((WeakReference<?>) table.get(weakIndex)).get() != null; i++) {
+            System.gc();
+            Thread.yield();
+        }
+        assertNull(((WeakReference<?>) table.get(weakIndex)).get());
+        assertSame(strong, ((WeakReference<?>) table.get(strongIndex)).get());
+        assertNotNull(table.get(globalIndex));
+
+        // The slot of a cleared weak handle is freed like any other
+        table.free(weakIndex, cache);
+        assertNull(table.get(weakIndex));
+        assertEquals(weakIndex, table.allocate("reused", cache));
+        assertEquals("reused", table.get(weakIndex));
+    }
+
+    public void test_concurrentAllocateFree() throws Exception {
+        final GlobalHandleTable table = new GlobalHandleTable();
+        final int threads = 8;
+        final int rounds = 2000;
+        final int live = 3 * GlobalHandleTable.BATCH_SIZE;
+        final ConcurrentHashMap<Integer, Integer> owners = new ConcurrentHashMap<Integer, Integer>();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    final GlobalHandleTable.Cache cache = new GlobalHandleTable.Cache();
+                    final Random random = new Random(id);
+                    final int[] held = new int[live];
+                    final Object[] objects = new Object[live];
+                    try {
+                        barrier.await();
+                        for (int round = 0; round < rounds && failure.get() == null; round++) {
+                            for (int i = 0; i < live; i++) {
+                                objects[i] = new Object();
+                                held[i] = table.allocate(objects[i], cache);
+                                if (owners.putIfAbsent(held[i], id) != null) {
+                                    failure.compareAndSet(null, "handle " + held[i] + " allocated twice");
+                                }
+                            }
+                            for (int i = 0; i < live; i++) {
+                                if (table.get(held[i]) != objects[i]) {
+                                    failure.compareAndSet(null, "handle " + held[i] + " doesn't hold its object");
+                                }
+                            }
+                            // Free in a random order so the free lists get shuffled between threads
+                            for (int i = live - 1; i > 0; i--) {
+                                final int j = random.nextInt(i + 1);
+                                final int tmp = held[i];
+                                held[i] = held[j];
+                                held[j] = tmp;
+                            }
+                            for (int i = 0; i < live; i++) {
+                                owners.remove(held[i]);
+                                table.free(held[i], cache);
+                            }
+                            if ((round & 7) == 0) {
+                                table.release(cache);
+                            }
+                        }
+                        table.release(cache);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e.toString());
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(failure.get(), failure.get());
+        assertTrue(owners.isEmpty());
+
+        // Every handle is back on the shared list: allocating them all again finds each one exactly once
+        final GlobalHandleTable.Cache cache = new GlobalHandleTable.Cache();
+        final Set<Integer> all = new HashSet<Integer>();
+        int maxIndex = 0;
+        for (int i = 0; i < threads * live; i++) {
+            final int index = table.allocate(i, cache);
+            assertTrue(all.add(index));
+            assertEquals(i, table.get(index));
+            maxIndex = Math.max(maxIndex, index);
+        }
+        // Handles were reused rather than the pool growing without bound
+        assertTrue(maxIndex < threads * (live + 2 * GlobalHandleTable.BATCH_SIZE) + GlobalHandleTable.CHUNK_SIZE);
+    }
+}
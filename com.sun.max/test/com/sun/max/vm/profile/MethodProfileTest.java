@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.profile;
+
+import com.sun.cri.ri.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.hosted.*;
+
+/**
+ * Tests for the receiver type profiles that {@link MethodProfile} offers to the optimizing compiler.
+ */
+public class MethodProfileTest extends HostedVMTestCase {
+
+    public MethodProfileTest(String name) {
+        super(name);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(MethodProfileTest.class);
+    }
+
+    private static final int ENTRIES = MethodInstrumentation.DEFAULT_RECEIVER_METHOD_PROFILE_ENTRIES;
+
+    private MethodProfile profile;
+    private int site1;
+    private int site2;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final MethodProfile.Builder builder = new MethodProfile.Builder();
+        site1 = builder.addTypeProfile(5, ENTRIES);
+        site2 = builder.addTypeProfile(9, ENTRIES);
+        profile = builder.finish(null);
+    }
+
+    private void record(int index, Object receiver, int times) {
+        for (int i = 0; i < times; i++) {
+            MethodInstrumentation.recordType(profile, receiver, index, ENTRIES);
+        }
+    }
+
+    public void test_typeProfile() {
+        assertNull(profile.typeProfile(5));
+        record(site1, "receiver", 8);
+        record(site1, Integer.valueOf(1), 2);
+        final RiTypeProfile typeProfile = profile.typeProfile(5);
+        assertNotNull(typeProfile);
+        assertEquals(10, typeProfile.count);
+        assertEquals(2, typeProfile.types.length);
+        assertSame(ClassActor.fromJava(String.class), typeProfile.types[0]);
+        assertEquals(0.8f, typeProfile.probabilities[0], 0.001f);
+        assertSame(ClassActor.fromJava(Integer.class), typeProfile.types[1]);
+        assertEquals(0.2f, typeProfile.probabilities[1], 0.001f);
+        assertNull(profile.typeProfile(9));
+    }
+
+    /**
+     * Once a speculation at a call site failed, recompilations must not be offered the type profile of the site
+     * again, while other sites of the method remain speculated on.
+     */
+    public void test_failedSpeculation() {
+        record(site1, "receiver", 100);
+        record(site2, "receiver", 100);
+        assertFalse(profile.hasSpeculationFailed(5));
+        assertNotNull(profile.typeProfile(5));
+
+        profile.speculationFailed(5);
+        assertTrue(profile.hasSpeculationFailed(5));
+        assertFalse(profile.hasSpeculationFailed(9));
+        assertNull(profile.typeProfile(5));
+        assertNotNull(profile.typeProfile(9));
+
+        // further profiling at the site does not revive the speculation
+        record(site1, "receiver", 1000);
+        assertNull(profile.typeProfile(5));
+    }
+}
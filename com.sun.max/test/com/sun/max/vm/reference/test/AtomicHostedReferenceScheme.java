@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.reference.test;
+
+import com.sun.max.annotate.*;
+import com.sun.max.program.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.hosted.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.reference.hosted.*;
+
+/**
+ * A {@linkplain HostedReferenceScheme hosted reference scheme} whose compare-and-swap operations are atomic, so that
+ * unit tests can exercise lock-free VM data structures from several host threads. The operations use the host VM's
+ * {@code sun.misc.Unsafe} on the host field that matches the Maxine field offset.
+ */
+@HOSTED_ONLY
+public class AtomicHostedReferenceScheme extends HostedReferenceScheme {
+
+    /**
+     * Gets the offset, as understood by the host VM's {@code sun.misc.Unsafe}, of the instance field at a given
+     * offset in {@code object}.
+     */
+    private static long hostFieldOffset(Object object, int offset) {
+        final FieldActor fieldActor = ClassActor.fromJava(object.getClass()).findInstanceFieldActor(offset);
+        ProgramError.check(fieldActor != null, "no instance field at offset " + offset + " in " + object.getClass().getName());
+        return WithoutAccessCheck.unsafe.objectFieldOffset(fieldActor.toJava());
+    }
+
+    @Override
+    public long compareAndSwapLong(Reference ref, Offset offset, long expectedValue, long newValue) {
+        return compareAndSwapLong(ref, offset.toInt(), expectedValue, newValue);
+    }
+
+    @Override
+    public long compareAndSwapLong(Reference ref, int offset, long expectedValue, long newValue) {
+        final Object object = ref.toJava();
+        final long hostOffset = hostFieldOffset(object, offset);
+        while (true) {
+            final long value = WithoutAccessCheck.unsafe.getLongVolatile(object, hostOffset);
+            if (value != expectedValue || WithoutAccessCheck.unsafe.compareAndSwapLong(object, hostOffset, value, newValue)) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public int compareAndSwapInt(Reference ref, Offset offset, int expectedValue, int newValue) {
+        return compareAndSwapInt(ref, offset.toInt(), expectedValue, newValue);
+    }
+
+    @Override
+    public int compareAndSwapInt(Reference ref, int offset, int expectedValue, int newValue) {
+        final Object object = ref.toJava();
+        final long hostOffset = hostFieldOffset(object, offset);
+        while (true) {
+            final int value = WithoutAccessCheck.unsafe.getIntVolatile(object, hostOffset);
+            if (value != expectedValue || WithoutAccessCheck.unsafe.compareAndSwapInt(object, hostOffset, value, newValue)) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public Word compareAndSwapWord(Reference ref, Offset offset, Word expectedValue, Word newValue) {
+        return compareAndSwapWord(ref, offset.toInt(), expectedValue, newValue);
+    }
+
+    @Override
+    public Word compareAndSwapWord(Reference ref, int offset, Word expectedValue, Word newValue) {
+        final Object object = ref.toJava();
+        final long hostOffset = hostFieldOffset(object, offset);
+        while (true) {
+            // Words are boxed in hosted mode: compare by value, swap by identity
+            final Object box = WithoutAccessCheck.unsafe.getObjectVolatile(object, hostOffset);
+            final Word value = box == null ? Word.zero() : (Word) box;
+            if (!value.equals(expectedValue) || WithoutAccessCheck.unsafe.compareAndSwapObject(object, hostOffset, box, newValue)) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public Reference compareAndSwapReference(Reference ref, Offset offset, Reference expectedValue, Reference newValue) {
+        return compareAndSwapReference(ref, offset.toInt(), expectedValue, newValue);
+    }
+
+    @Override
+    public Reference compareAndSwapReference(Reference ref, int offset, Reference expectedValue, Reference newValue) {
+        final Object object = ref.toJava();
+        final long hostOffset = hostFieldOffset(object, offset);
+        final Object expected = expectedValue.toJava();
+        while (true) {
+            final Object value = WithoutAccessCheck.unsafe.getObjectVolatile(object, hostOffset);
+            if (value != expected || WithoutAccessCheck.unsafe.compareAndSwapObject(object, hostOffset, value, newValue.toJava())) {
+                return fromJava(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.jdk;
+
+import java.lang.reflect.*;
+
+import sun.misc.*;
+
+/*
+ * Tests Unsafe.copyMemory on overlapping ranges, both on the heap and off the heap. The ranges overlap forwards
+ * (the destination is below the source) or backwards, by a few bytes or by more than the chunk size of the bulk
+ * copy, and their lengths are on either side of the 256 byte native threshold and of the 1 MB chunk size.
+ * @Harness: java
+ * @Runs: 0=true; 1=true; 2=true; 3=true; 4=true; 5=true; 6=true; 7=true; 8=true; 9=true; 10=true; 11=true; 12=true; 13=true; 14=true; 15=true
+ */
+public class Unsafe_copyMemory01 {
+
+    private static final int CHUNK = 1024 * 1024;
+    private static final int GUARD = 64;
+
+    /**
+     * The length, the distance from the source to the destination and whether the memory is off the heap.
+     */
+    private static final int[][] CASES = {
+        {CHUNK + 1, -1, 0},
+        {CHUNK + 1, 1, 0},
+        {2 * CHUNK + 13, -8, 0},
+        {2 * CHUNK + 13, 8, 0},
+        {2 * CHUNK + 13, 3, 0},
+        {2 * CHUNK + 13, -(CHUNK + 5), 0},
+        {2 * CHUNK + 13, CHUNK + 5, 0},
+        {CHUNK, CHUNK - 1, 0},
+        {CHUNK - 1, -(CHUNK - 3), 0},
+        {2 * CHUNK + 13, -3, 1},
+        {2 * CHUNK + 13, 3, 1},
+        {2 * CHUNK + 13, CHUNK + 5, 1},
+        {2 * CHUNK + 13, -(CHUNK + 5), 1},
+        {256, 1, 0},
+        {255, -1, 0},
+        {255, 5, 1},
+    };
+
+    public static boolean test(int arg) throws NoSuchFieldException, IllegalAccessException {
+        final Unsafe unsafe = getUnsafe();
+        final int length = CASES[arg][0];
+        final int shift = CASES[arg][1];
+        final boolean offHeap = CASES[arg][2] != 0;
+        final int size = length + Math.abs(shift) + 2 * GUARD;
+        final int src = GUARD + Math.max(-shift, 0);
+        final int dst = src + shift;
+        if (offHeap) {
+            final long address = unsafe.allocateMemory(size);
+            try {
+                for (int i = 0; i < size; i++) {
+                    unsafe.putByte(address + i, pattern(i));
+                }
+                unsafe.copyMemory(address + src, address + dst, length);
+                for (int i = 0; i < size; i++) {
+                    if (unsafe.getByte(address + i) != expected(i, src, dst, length)) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                unsafe.freeMemory(address);
+            }
+        }
+        final byte[] array = new byte[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = pattern(i);
+        }
+        final long base = unsafe.arrayBaseOffset(byte[].class);
+        unsafe.copyMemory(array, base + src, array, base + dst, length);
+        for (int i = 0; i < size; i++) {
+            if (array[i] != expected(i, src, dst, length)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A pattern that doesn't repeat with a period that divides the lengths or distances above, so that a byte
+     * copied from the wrong place is detected.
+     */
+    private static byte pattern(int i) {
+        return (byte) ((i * 0x9E3779B1) >>> 24);
+    }
+
+    private static byte expected(int i, int src, int dst, int length) {
+        if (i >= dst && i < dst + length) {
+            return pattern(i - dst + src);
+        }
+        return pattern(i);
+    }
+
+    private static Unsafe getUnsafe() throws NoSuchFieldException, IllegalAccessException {
+        final Field unsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+        unsafeField.setAccessible(true);
+        return (Unsafe) unsafeField.get(null);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.jdk;
+
+import java.lang.reflect.*;
+
+import sun.misc.*;
+
+/*
+ * Tests Unsafe.setMemory on and off the heap, with lengths on either side of the 256 byte native threshold and of
+ * the 1 MB chunk size of the bulk fill, starting at aligned and unaligned addresses. The bytes around the range
+ * must not be written.
+ * @Harness: java
+ * @Runs: 0=true; 1=true; 2=true; 3=true; 4=true; 5=true; 6=true; 7=true; 8=true; 9=true
+ */
+public class Unsafe_setMemory01 {
+
+    private static final int CHUNK = 1024 * 1024;
+    private static final int GUARD = 64;
+
+    /**
+     * The length, the offset of the range from the start of the memory and whether the memory is off the heap.
+     */
+    private static final int[][] CASES = {
+        {CHUNK - 1, 8, 0},
+        {CHUNK, 8, 0},
+        {CHUNK + 1, 3, 0},
+        {2 * CHUNK + 7, 3, 0},
+        {3 * CHUNK, 0, 0},
+        {CHUNK + 1, 8, 1},
+        {2 * CHUNK + 7, 5, 1},
+        {255, 1, 0},
+        {256, 1, 1},
+        {0, 8, 0},
+    };
+
+    private static final byte FILL = (byte) 0xA5;
+    private static final byte BACKGROUND = 0x3C;
+
+    public static boolean test(int arg) throws NoSuchFieldException, IllegalAccessException {
+        final Unsafe unsafe = getUnsafe();
+        final int length = CASES[arg][0];
+        final int start = GUARD + CASES[arg][1];
+        final boolean offHeap = CASES[arg][2] != 0;
+        final int size = start + length + GUARD;
+        if (offHeap) {
+            final long address = unsafe.allocateMemory(size);
+            try {
+                for (int i = 0; i < size; i++) {
+                    unsafe.putByte(address + i, BACKGROUND);
+                }
+                unsafe.setMemory(address + start, length, FILL);
+                for (int i = 0; i < size; i++) {
+                    if (unsafe.getByte(address + i) != expected(i, start, length)) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                unsafe.freeMemory(address);
+            }
+        }
+        final byte[] array = new byte[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = BACKGROUND;
+        }
+        unsafe.setMemory(array, unsafe.arrayBaseOffset(byte[].class) + start, length, FILL);
+        for (int i = 0; i < size; i++) {
+            if (array[i] != expected(i, start, length)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte expected(int i, int start, int length) {
+        return i >= start && i < start + length ? FILL : BACKGROUND;
+    }
+
+    private static Unsafe getUnsafe() throws NoSuchFieldException, IllegalAccessException {
+        final Field unsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+        unsafeField.setAccessible(true);
+        return (Unsafe) unsafeField.get(null);
+    }
+}
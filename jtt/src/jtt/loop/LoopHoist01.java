@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.loop;
+
+/*
+ * Tests hoisting of loop-invariant field loads, array lengths and arithmetic out of a loop. The loads of
+ * a field that is stored in the loop must stay in the loop.
+ * @Harness: java
+ * @Runs: 0 = 0; 1 = 40; 2 = 82; 10 = 490
+ */
+public class LoopHoist01 {
+
+    static final class Holder {
+        int factor;
+        int offset;
+        final int[] values;
+
+        Holder(int factor, int offset, int[] values) {
+            this.factor = factor;
+            this.offset = offset;
+            this.values = values;
+        }
+    }
+
+    private static final Holder holder = new Holder(7, 3, new int[5]);
+
+    public static int test(int n) {
+        Holder h = holder;
+        h.offset = 3;
+        int[] values = h.values;
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += h.factor * values.length + h.offset + i;
+            h.offset++;
+        }
+        return sum + n * 2;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.loop;
+
+/*
+ * Tests that an invariant field load is not executed before a loop that does not iterate when the object
+ * may be null, and that the null check of the load stays in the loop when it does iterate.
+ * @Harness: java
+ * @Runs: 0 = 0; 1 = !java.lang.NullPointerException; 2 = 0; 3 = 12
+ */
+public class LoopHoist02 {
+
+    static final class Holder {
+        final int value;
+
+        Holder(int value) {
+            this.value = value;
+        }
+    }
+
+    private static final Holder holder = new Holder(4);
+
+    public static int test(int arg) {
+        return sum(arg < 2 ? null : holder, arg == 2 ? 0 : arg);
+    }
+
+    private static int sum(Holder h, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += h.value;
+        }
+        return sum;
+    }
+}
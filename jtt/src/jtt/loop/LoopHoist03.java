@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.loop;
+
+/*
+ * Tests the guard that replaces the bounds checks in a loop whose limit is invariant. When the limit exceeds
+ * the length of the array, the guard deoptimizes and the loop must still perform the iterations that are
+ * in bounds before throwing the exception.
+ * @Harness: java
+ * @Runs: 0 = 0; 3 = 15; 5 = 40; 6 = -35; 100 = -35
+ */
+public class LoopHoist03 {
+
+    private static final int[] array = {3, 5, 7, 11, 14};
+
+    private static int count;
+
+    public static int test(int n) {
+        count = 0;
+        try {
+            return sum(array, n);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return -count;
+        }
+    }
+
+    private static int sum(int[] a, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i];
+            count += a[i] - 1;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.loop;
+
+/*
+ * Tests a short loop with an early exit. The value computed before the exit must be the one
+ * of the iteration that leaves the loop.
+ * @Harness: java
+ * @Runs: 0 = -1; 1 = -1; 5 = 20; 6 = 20; 7 = 42; 20 = 42
+ */
+public class LoopUnroll02 {
+
+    private static final int[] values = {3, 9, 4, 1, 20, 8, 42, 7};
+
+    public static int test(int n) {
+        int result = -1;
+        for (int i = 0; i < n && i < values.length; i++) {
+            int v = values[i];
+            if (v > 10 + result) {
+                result = v;
+                if (result > 30) {
+                    break;
+                }
+            }
+        }
+        return result < 10 ? -1 : result;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.loop;
+
+/*
+ * Tests unrolled loops that iterate zero times, an odd number of times and an even number of times. The
+ * values of the loop used after it must be those of the last iteration executed, or the initial values.
+ * @Harness: java
+ * @Runs: -5 = 1005; 0 = 1000; 1 = 2001; 2 = 3004; 7 = 8049
+ */
+public class LoopUnroll03 {
+
+    public static int test(int n) {
+        int i = 0;
+        int sum = 1000;
+        for (; i < n; i++) {
+            sum += 1000 + 2 * i;
+        }
+        return sum + i - (n < 0 ? n : 0);
+    }
+}
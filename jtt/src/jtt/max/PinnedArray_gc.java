@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ *
+ * @Runs: (256)=true; (4096)=true;
+ */
+/**
+ * Pins an array allocated near the end of the heap and forces collections that must evacuate the live objects
+ * around it.
+ */
+package jtt.max;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.reference.*;
+
+public final class PinnedArray_gc {
+
+    private static final int CHUNK_LENGTH = 8192;
+
+    private static Object[] survivors;
+    private static byte[] garbage;
+
+    private PinnedArray_gc() {
+    }
+
+    public static boolean test(int numSurvivors) {
+        // Use up the free space, so that the pinned array ends up near the end of the heap.
+        final long threshold = 2L * CHUNK_LENGTH + 1024 * 8;
+        final long maxChunks = Heap.maxSize().toLong() / CHUNK_LENGTH;
+        for (long i = 0; i < maxChunks && Heap.reportFreeSpace() > threshold; i++) {
+            garbage = new byte[CHUNK_LENGTH];
+        }
+        garbage = null;
+        final long[] pinned = new long[1024];
+        for (int i = 0; i < pinned.length; i++) {
+            pinned[i] = i;
+        }
+        if (!Heap.useLongLivedDirectPointer(pinned)) {
+            // The heap scheme doesn't pin objects.
+            return true;
+        }
+        final Pointer origin = Reference.fromJava(pinned).toOrigin();
+        try {
+            survivors = new Object[numSurvivors];
+            for (int i = 0; i < numSurvivors; i++) {
+                survivors[i] = new long[] {i, i + 1, i + 2, i + 3};
+            }
+            // The second collection finds the pinned array in the space it evacuates the survivors to.
+            System.gc();
+            System.gc();
+            System.gc();
+            if (!Reference.fromJava(pinned).toOrigin().equals(origin)) {
+                return false;
+            }
+            if (!check(pinned, numSurvivors)) {
+                return false;
+            }
+        } finally {
+            Heap.releaseLongLivedDirectPointer(pinned);
+        }
+        System.gc();
+        System.gc();
+        final boolean result = check(pinned, numSurvivors);
+        survivors = null;
+        return result;
+    }
+
+    private static boolean check(long[] pinned, int numSurvivors) {
+        for (int i = 0; i < pinned.length; i++) {
+            if (pinned[i] != i) {
+                return false;
+            }
+        }
+        for (int i = 0; i < numSurvivors; i++) {
+            final long[] survivor = (long[]) survivors[i];
+            if (survivor[0] != i || survivor[3] != i + 3) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
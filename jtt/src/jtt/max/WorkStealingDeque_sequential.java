@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ *
+ * @Runs: (5)=true; (8)=true; (64)=true;
+ */
+/**
+ * Pushes, pops and steals words on a single thread and checks the order they come out in, and that a full deque
+ * refuses pushes until a steal makes room again.
+ */
+package jtt.max;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.heap.gcx.*;
+
+public final class WorkStealingDeque_sequential {
+
+    private WorkStealingDeque_sequential() {
+    }
+
+    public static boolean test(int requestedCapacity) {
+        final WorkStealingDeque deque = new WorkStealingDeque();
+        deque.initialize(requestedCapacity);
+        final int capacity = deque.capacity();
+        if (capacity < requestedCapacity || Integer.bitCount(capacity) != 1) {
+            return false;
+        }
+        if (!deque.isEmpty() || !deque.pop().isZero() || !deque.steal().isZero()) {
+            return false;
+        }
+
+        // The owner pops the most recently pushed word, thieves steal the oldest one.
+        for (int i = 1; i <= 4; i++) {
+            deque.push(Address.fromInt(i));
+        }
+        if (deque.pop().toInt() != 4 || deque.steal().toInt() != 1 || deque.steal().toInt() != 2 || deque.pop().toInt() != 3) {
+            return false;
+        }
+        if (!deque.isEmpty() || !deque.pop().isZero() || !deque.steal().isZero()) {
+            return false;
+        }
+
+        int pushed = 0;
+        while (deque.push(Address.fromInt(pushed + 1))) {
+            pushed++;
+        }
+        if (pushed != capacity - 1) {
+            return false;
+        }
+        // Stealing makes room again, and indices wrap around the storage.
+        for (int round = 0; round < 3 * capacity; round++) {
+            if (deque.steal().toInt() != round + 1 || !deque.push(Address.fromInt(pushed + 1))) {
+                return false;
+            }
+            pushed++;
+            if (deque.push(Address.fromInt(-1))) {
+                return false;
+            }
+        }
+        for (int expected = pushed; expected > 3 * capacity; expected--) {
+            if (deque.pop().toInt() != expected) {
+                return false;
+            }
+        }
+        return deque.isEmpty() && deque.pop().isZero();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ *
+ * @Runs: (1)=true; (3)=true;
+ */
+/**
+ * The owner of a deque pushes and pops words while several thieves steal from it: every word must be taken exactly
+ * once.
+ */
+package jtt.max;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.heap.gcx.*;
+
+public final class WorkStealingDeque_steal {
+
+    private static final int NUMBER_OF_WORDS = 50000;
+
+    private WorkStealingDeque_steal() {
+    }
+
+    public static boolean test(int numberOfThieves) throws InterruptedException {
+        final WorkStealingDeque deque = new WorkStealingDeque();
+        deque.initialize(1024);
+        final AtomicIntegerArray taken = new AtomicIntegerArray(NUMBER_OF_WORDS + 1);
+        final AtomicBoolean ownerDone = new AtomicBoolean();
+        final Thread[] thieves = new Thread[numberOfThieves];
+        for (int i = 0; i < numberOfThieves; i++) {
+            thieves[i] = new Thread() {
+                @Override
+                public void run() {
+                    while (!ownerDone.get() || !deque.isEmpty()) {
+                        final Pointer word = deque.steal();
+                        if (!word.isZero()) {
+                            taken.incrementAndGet(word.toInt());
+                        }
+                    }
+                }
+            };
+            thieves[i].start();
+        }
+        final Random random = new Random(42);
+        int next = 1;
+        while (next <= NUMBER_OF_WORDS) {
+            if (random.nextInt(3) != 0 && deque.push(Address.fromInt(next))) {
+                next++;
+            } else {
+                final Pointer word = deque.pop();
+                if (!word.isZero()) {
+                    taken.incrementAndGet(word.toInt());
+                }
+            }
+        }
+        for (Pointer word = deque.pop(); !word.isZero(); word = deque.pop()) {
+            taken.incrementAndGet(word.toInt());
+        }
+        ownerDone.set(true);
+        for (Thread thief : thieves) {
+            thief.join();
+        }
+        for (int i = 1; i <= NUMBER_OF_WORDS; i++) {
+            if (taken.get(i) != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ *
+ * @Runs: (2)=true; (4)=true;
+ */
+/**
+ * Workers process a binary tree of tasks, each task spawning its children in the worker's own deque, and balance
+ * the load by stealing. All tasks must be processed exactly once, and all workers must agree on termination.
+ */
+package jtt.max;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.heap.gcx.*;
+
+public final class WorkStealingDeque_termination {
+
+    private static final int DEPTH = 14;
+    private static final int NUMBER_OF_TASKS = (1 << DEPTH) - 1;
+
+    private WorkStealingDeque_termination() {
+    }
+
+    public static boolean test(int numberOfWorkers) throws InterruptedException {
+        final WorkStealingDeque[] deques = new WorkStealingDeque[numberOfWorkers];
+        for (int i = 0; i < numberOfWorkers; i++) {
+            deques[i] = new WorkStealingDeque();
+            // Deliberately small, so that some tasks overflow
+            deques[i].initialize(64);
+        }
+        final ParallelTaskTerminator terminator = new ParallelTaskTerminator();
+        terminator.reset(numberOfWorkers);
+        // Task n has children 2n and 2n + 1; the root is 1.
+        deques[0].push(Address.fromInt(1));
+        final AtomicIntegerArray processed = new AtomicIntegerArray(NUMBER_OF_TASKS + 1);
+        final Thread[] workers = new Thread[numberOfWorkers];
+        for (int i = 0; i < numberOfWorkers; i++) {
+            final int workerId = i;
+            workers[i] = new Thread() {
+                @Override
+                public void run() {
+                    final WorkStealingDeque deque = deques[workerId];
+                    final ArrayDeque<Integer> overflow = new ArrayDeque<Integer>();
+                    do {
+                        while (true) {
+                            int task = overflow.isEmpty() ? deque.pop().toInt() : overflow.pop();
+                            if (task == 0) {
+                                task = steal(deques, workerId);
+                                if (task == 0) {
+                                    break;
+                                }
+                            }
+                            processed.incrementAndGet(task);
+                            for (int child = 2 * task; child <= 2 * task + 1; child++) {
+                                if (child <= NUMBER_OF_TASKS && !deque.push(Address.fromInt(child))) {
+                                    overflow.push(child);
+                                }
+                            }
+                        }
+                    } while (!terminator.offerTermination(deques));
+                }
+            };
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join(60000);
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        for (int i = 1; i <= NUMBER_OF_TASKS; i++) {
+            if (processed.get(i) != 1) {
+                return false;
+            }
+        }
+        for (WorkStealingDeque deque : deques) {
+            if (!deque.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int steal(WorkStealingDeque[] deques, int workerId) {
+        for (int i = 1; i < deques.length; i++) {
+            final Pointer word = deques[(workerId + i) % deques.length].steal();
+            if (!word.isZero()) {
+                return word.toInt();
+            }
+        }
+        return 0;
+    }
+}
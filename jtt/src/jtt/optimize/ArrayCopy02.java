@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests copies within a single array whose source and destination ranges overlap, in both directions
+ * and for element sizes from a byte to a word. The copy must behave as if the source range was first
+ * copied to a temporary array.
+ * @Harness: java
+ * @Runs: (0,0,1,30) = -4878374416493779403L; (0,1,0,30) = -4163577243662736843L; (0,3,11,25) = -6350854959035320547L;
+ * @Runs: (0,11,3,25) = -8030802432161079027L; (0,5,5,10) = 908570518191425557L; (0,0,0,0) = 908570518191425557L;
+ * @Runs: (0,0,8,33) = 4991698399543777293L; (0,8,0,33) = -2768348062821339107L; (0,1,2,39) = -5823724871048354188L;
+ * @Runs: (1,0,1,30) = -4878374416493779403L; (1,1,0,30) = -4163577243662736843L; (1,3,11,25) = -6350854959035320547L;
+ * @Runs: (1,11,3,25) = -8030802432161079027L; (1,5,5,10) = 908570518191425557L; (1,0,0,0) = 908570518191425557L;
+ * @Runs: (1,0,8,33) = 4991698399543777293L; (1,8,0,33) = -2768348062821339107L; (1,1,2,39) = -5823724871048354188L;
+ * @Runs: (2,0,1,30) = -4878374416493779403L; (2,1,0,30) = -4163577243662736843L; (2,3,11,25) = -6350854959035320547L;
+ * @Runs: (2,11,3,25) = -8030802432161079027L; (2,5,5,10) = 908570518191425557L; (2,0,0,0) = 908570518191425557L;
+ * @Runs: (2,0,8,33) = 4991698399543777293L; (2,8,0,33) = -2768348062821339107L; (2,1,2,39) = -5823724871048354188L;
+ * @Runs: (3,0,1,30) = -4878374416493779403L; (3,1,0,30) = -4163577243662736843L; (3,3,11,25) = -6350854959035320547L;
+ * @Runs: (3,11,3,25) = -8030802432161079027L; (3,5,5,10) = 908570518191425557L; (3,0,0,0) = 908570518191425557L;
+ * @Runs: (3,0,8,33) = 4991698399543777293L; (3,8,0,33) = -2768348062821339107L; (3,1,2,39) = -5823724871048354188L;
+ * @Runs: (4,0,1,30) = -4878374416493779403L; (4,1,0,30) = -4163577243662736843L; (4,3,11,25) = -6350854959035320547L;
+ * @Runs: (4,11,3,25) = -8030802432161079027L; (4,5,5,10) = 908570518191425557L; (4,0,0,0) = 908570518191425557L;
+ * @Runs: (4,0,8,33) = 4991698399543777293L; (4,8,0,33) = -2768348062821339107L; (4,1,2,39) = -5823724871048354188L;
+ */
+public class ArrayCopy02 {
+
+    private static final int LENGTH = 41;
+
+    public static long test(int kind, int srcPos, int destPos, int length) {
+        switch (kind) {
+            case 0: {
+                byte[] a = new byte[LENGTH];
+                for (int i = 0; i < LENGTH; i++) {
+                    a[i] = (byte) (i + 1);
+                }
+                System.arraycopy(a, srcPos, a, destPos, length);
+                long hash = 0;
+                for (int i = 0; i < LENGTH; i++) {
+                    hash = hash * 31 + a[i];
+                }
+                return hash;
+            }
+            case 1: {
+                char[] a = new char[LENGTH];
+                for (int i = 0; i < LENGTH; i++) {
+                    a[i] = (char) (i + 1);
+                }
+                System.arraycopy(a, srcPos, a, destPos, length);
+                long hash = 0;
+                for (int i = 0; i < LENGTH; i++) {
+                    hash = hash * 31 + a[i];
+                }
+                return hash;
+            }
+            case 2: {
+                int[] a = new int[LENGTH];
+                for (int i = 0; i < LENGTH; i++) {
+                    a[i] = i + 1;
+                }
+                System.arraycopy(a, srcPos, a, destPos, length);
+                long hash = 0;
+                for (int i = 0; i < LENGTH; i++) {
+                    hash = hash * 31 + a[i];
+                }
+                return hash;
+            }
+            case 3: {
+                long[] a = new long[LENGTH];
+                for (int i = 0; i < LENGTH; i++) {
+                    a[i] = i + 1;
+                }
+                System.arraycopy(a, srcPos, a, destPos, length);
+                long hash = 0;
+                for (int i = 0; i < LENGTH; i++) {
+                    hash = hash * 31 + a[i];
+                }
+                return hash;
+            }
+            default: {
+                Object[] a = new Object[LENGTH];
+                for (int i = 0; i < LENGTH; i++) {
+                    a[i] = Integer.valueOf(i + 1);
+                }
+                System.arraycopy(a, srcPos, a, destPos, length);
+                long hash = 0;
+                for (int i = 0; i < LENGTH; i++) {
+                    hash = hash * 31 + ((Integer) a[i]).intValue();
+                }
+                return hash;
+            }
+        }
+    }
+}
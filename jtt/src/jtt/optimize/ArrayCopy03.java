@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests the bounds checks of array copies, including negative positions and lengths and end positions
+ * that overflow. The destination must not be modified when a check fails.
+ * @Harness: java
+ * @Runs: (0,0,8) = 1120932L; (2,1,5) = 82789730L; (8,8,0) = 96240132L;
+ * @Runs: (9,0,0) = -5764704759868L; (0,9,0) = -5764704759868L; (-1,0,1) = -5764704759868L;
+ * @Runs: (0,-1,1) = -5764704759868L; (0,0,-1) = -5764704759868L; (2147483647,0,1) = -5764704759868L;
+ * @Runs: (0,2147483647,1) = -5764704759868L; (1,0,2147483647) = -5764704759868L; (2147483646,0,2) = -5764704759868L;
+ * @Runs: (0,2147483646,2) = -5764704759868L; (7,0,2) = -5764704759868L; (0,7,2) = -5764704759868L;
+ * @Runs: (-2147483648,0,1) = -5764704759868L; (0,0,-2147483648) = -5764704759868L;
+ */
+public class ArrayCopy03 {
+
+    private static final int LENGTH = 8;
+
+    public static long test(int srcPos, int destPos, int length) {
+        int[] src = new int[LENGTH];
+        int[] dest = new int[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            src[i] = i + 1;
+            dest[i] = 100 + i;
+        }
+        long result;
+        try {
+            System.arraycopy(src, srcPos, dest, destPos, length);
+            result = 0;
+        } catch (IndexOutOfBoundsException e) {
+            result = -1000000;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            result = result * 7 + dest[i];
+        }
+        return result;
+    }
+}
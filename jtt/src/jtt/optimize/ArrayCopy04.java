@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests the array store checks of array copies. Copying references stops at the first element that is not
+ * assignable to the component type of the destination, after the preceding elements have been copied.
+ * Copying between arrays of different primitive types or between primitive and reference arrays, or
+ * from or to an object that is not an array, copies nothing.
+ * @Harness: java
+ * @Runs: 0 = -1003; 1 = 2; 2 = 2; 3 = -1000; 4 = -1000; 5 = -1000; 6 = -1000; 7 = 60; 8 = -1000;
+ */
+public class ArrayCopy04 {
+
+    private static final Object[] mixed = {1, 2, 3, "four", 5, 6};
+
+    public static int test(int arg) {
+        Integer[] integers = new Integer[6];
+        Object[] objects = new Object[6];
+        int[] ints = {1, 2, 3, 4, 5, 6};
+        long[] longs = new long[6];
+        try {
+            switch (arg) {
+                case 0:
+                    System.arraycopy(mixed, 0, integers, 0, 6);
+                    break;
+                case 1:
+                    System.arraycopy(mixed, 1, integers, 2, 2);
+                    break;
+                case 2:
+                    System.arraycopy(mixed, 4, integers, 0, 2);
+                    break;
+                case 3:
+                    System.arraycopy(ints, 0, longs, 0, 6);
+                    break;
+                case 4:
+                    System.arraycopy(ints, 0, objects, 0, 6);
+                    break;
+                case 5:
+                    System.arraycopy(objects, 0, ints, 0, 0);
+                    break;
+                case 6:
+                    System.arraycopy("abcdef", 0, objects, 0, 1);
+                    break;
+                case 7:
+                    System.arraycopy(mixed, 0, objects, 0, 6);
+                    break;
+                default:
+                    System.arraycopy(mixed, 0, new String[6], 0, 6);
+                    break;
+            }
+        } catch (ArrayStoreException e) {
+            return -1000 - (count(integers) + count(objects) * 10 + count(longs) * 100);
+        }
+        return count(integers) + count(objects) * 10 + count(longs) * 100;
+    }
+
+    private static int count(Object[] array) {
+        int n = 0;
+        for (Object o : array) {
+            if (o != null) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static int count(long[] array) {
+        int n = 0;
+        for (long l : array) {
+            if (l != 0) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
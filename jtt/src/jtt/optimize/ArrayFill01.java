@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+import java.util.*;
+
+/*
+ * Tests the range variants of Arrays.fill for each primitive element type: only the elements in the range are
+ * filled, and invalid ranges throw before anything is written. Cases 0 to 7 fill 27 elements of an array of 37;
+ * case 11 fills every range of a boolean array with up to 20 elements.
+ * @Harness: java
+ * @Runs: 0 = 27; 1 = 27; 2 = 27; 3 = 27; 4 = 27; 5 = 27; 6 = 27; 7 = 27; 8 = -2; 9 = -3; 10 = 0; 11 = 1;
+ */
+public class ArrayFill01 {
+
+    private static final int LENGTH = 37;
+    private static final int FROM = 3;
+    private static final int TO = 30;
+
+    public static int test(int arg) {
+        try {
+            switch (arg) {
+                case 0: {
+                    final boolean[] a = new boolean[LENGTH];
+                    Arrays.fill(a, FROM, TO, true);
+                    int n = 0;
+                    for (int i = 0; i < LENGTH; i++) {
+                        if (a[i] != (i >= FROM && i < TO)) {
+                            return -1;
+                        }
+                        n += a[i] ? 1 : 0;
+                    }
+                    return n;
+                }
+                case 1: {
+                    final byte[] a = new byte[LENGTH];
+                    Arrays.fill(a, FROM, TO, (byte) -7);
+                    int n = 0;
+                    for (int i = 0; i < LENGTH; i++) {
+                        if (a[i] != (i >= FROM && i < TO ? -7 : 0)) {
+                            return -1;
+                        }
+                        n += a[i] != 0 ? 1 : 0;
+                    }
+                    return n;
+                }
+                case 2: {
+                    final short[] a = new short[LENGTH];
+                    Arrays.fill(a, FROM, TO, (short) -1234);
+                    int n = 0;
+                    for (int i = 0; i < LENGTH; i++) {
+                        if (a[i] != (i >= FROM && i < TO ? -1234 : 0)) {
+                            return -1;
+                        }
+                        n += a[i] != 0 ? 1 : 0;
+                    }
+                    return n;
+                }
+                case 3: {
+                    final char[] a = new char[LENGTH];
+                    Arrays.fill(a, FROM, TO, '\uabcd');
+                    int n = 0;
+                    for (int i = 0; i < LENGTH; i++) {
+                        if (a[i] != (i >= FROM && i < TO ? '\uabcd' : 0)) {
+                            return -1;
+                        }
+                        n += a[i] != 0 ? 1 : 0;
+                    }
+                    return n;
+                }
+                case 4: {
+                    final int[] a = new int[LENGTH];
+                    Arrays.fill(a, FROM, TO, 0x80000001);
+                    int n = 0;
+                    for (int i = 0; i < LENGTH; i++) {
+                        if (a[i] != (i >= FROM && i < TO ? 0x80000001 : 0)) {
+                            return -1;
+                        }
+                        n += a[i] != 0 ? 1 : 0;
+                    }
+                    return n;
+                }
+                case 5: {
+                    final long[] a = new long[LENGTH];
+                    Arrays.fill(a, FROM, TO, 0x8000000000000001L);
+                    int n = 0;
+                    for (int i = 0; i < LENGTH; i++) {
+                        if (a[i] != (i >= FROM && i < TO ? 0x8000000000000001L : 0)) {
+                            return -1;
+                        }
+                        n += a[i] != 0 ? 1 : 0;
+                    }
+                    return n;
+                }
+                case 6: {
+                    final float[] a = new float[LENGTH];
+                    Arrays.fill(a, FROM, TO, -1.5f);
+                    int n = 0;
+                    for (int i = 0; i < LENGTH; i++) {
+                        if (a[i] != (i >= FROM && i < TO ? -1.5f : 0f)) {
+                            return -1;
+                        }
+                        n += a[i] != 0f ? 1 : 0;
+                    }
+                    return n;
+                }
+                case 7: {
+                    final double[] a = new double[LENGTH];
+                    Arrays.fill(a, FROM, TO, -1.5d);
+                    int n = 0;
+                    for (int i = 0; i < LENGTH; i++) {
+                        if (a[i] != (i >= FROM && i < TO ? -1.5d : 0d)) {
+                            return -1;
+                        }
+                        n += a[i] != 0d ? 1 : 0;
+                    }
+                    return n;
+                }
+                case 8: {
+                    final boolean[] a = new boolean[LENGTH];
+                    try {
+                        Arrays.fill(a, TO, FROM, true);
+                    } catch (IllegalArgumentException e) {
+                        return count(a) == 0 ? -2 : -1;
+                    }
+                    return -1;
+                }
+                case 9: {
+                    final boolean[] a = new boolean[LENGTH];
+                    try {
+                        Arrays.fill(a, FROM, LENGTH + 1, true);
+                    } catch (ArrayIndexOutOfBoundsException e) {
+                        return count(a) == 0 ? -3 : -1;
+                    }
+                    return -1;
+                }
+                case 10: {
+                    final boolean[] a = new boolean[LENGTH];
+                    Arrays.fill(a, FROM, FROM, true);
+                    return count(a);
+                }
+                default: {
+                    for (int length = 0; length <= 20; length++) {
+                        for (int from = 0; from <= length; from++) {
+                            for (int to = from; to <= length; to++) {
+                                final boolean[] a = new boolean[length];
+                                Arrays.fill(a, true);
+                                Arrays.fill(a, from, to, false);
+                                for (int i = 0; i < length; i++) {
+                                    if (a[i] == (i >= from && i < to)) {
+                                        return -1;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    return 1;
+                }
+            }
+        } catch (RuntimeException e) {
+            return -4;
+        }
+    }
+
+    private static int count(boolean[] array) {
+        int n = 0;
+        for (boolean b : array) {
+            if (b) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
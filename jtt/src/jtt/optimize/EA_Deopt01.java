@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests scalar replacement of an allocation that is live across a call whose receiver type speculation
+ * fails. The optimized code must deoptimize and materialize the object with the field values it had at
+ * the call, and the deoptimized code must see the same object through both of the locals referring to it.
+ * @Harness: java
+ * @Runs: 0 = 2042180000L; 1 = 2148170000L; 2 = 1827170000L
+ */
+public class EA_Deopt01 {
+
+    static class A {
+        int f(int x) {
+            return x + 1;
+        }
+    }
+
+    static class B extends A {
+        @Override
+        int f(int x) {
+            return x * 2;
+        }
+    }
+
+    static class C extends B {
+        @Override
+        int f(int x) {
+            return -x;
+        }
+    }
+
+    static final class Box {
+        int x;
+        long y;
+
+        Box(int x, long y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static final A[] receivers = {new A(), new B(), new C()};
+
+    public static long test(int arg) {
+        final A a = receivers[0];
+        final A other = receivers[arg];
+        long sum = 0;
+        for (int i = 0; i < 20000; i++) {
+            sum += site(a, i);
+        }
+        sum += site(other, 7) * 1000000L;
+        for (int i = 0; i < 20000; i++) {
+            sum += site((i & 1) == 0 ? a : other, i);
+        }
+        return sum;
+    }
+
+    private static long site(A receiver, int x) {
+        Box box = new Box(x * 3, x + 5L);
+        Box alias = box;
+        box.x++;
+        int v = receiver.f(x);
+        alias.y += v;
+        return box == alias ? box.x + box.y : -1L;
+    }
+}
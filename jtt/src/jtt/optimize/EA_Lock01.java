@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests lock elision for a scalar-replaced object whose monitor is held across a call whose receiver type
+ * speculation fails. The optimized code never locks the object, so deoptimization must lock the
+ * materialized object before the deoptimized code continues, or the unlocking at the end of the
+ * synchronized method would throw an {@link IllegalMonitorStateException}.
+ * @Harness: java
+ * @Runs: 0 = 1630000000L; 1 = 1841980000L; 2 = 1199980000L
+ */
+public class EA_Lock01 {
+
+    static class A {
+        int f(int x) {
+            return x + 1;
+        }
+    }
+
+    static class B extends A {
+        @Override
+        int f(int x) {
+            return x * 2;
+        }
+    }
+
+    static class C extends B {
+        @Override
+        int f(int x) {
+            return -x;
+        }
+    }
+
+    static final class Counter {
+        int count;
+
+        Counter(int count) {
+            this.count = count;
+        }
+
+        synchronized int add(A receiver, int x) {
+            count += receiver.f(x);
+            return count;
+        }
+    }
+
+    private static final A[] receivers = {new A(), new B(), new C()};
+
+    public static long test(int arg) {
+        final A a = receivers[0];
+        final A other = receivers[arg];
+        long sum = 0;
+        for (int i = 0; i < 20000; i++) {
+            sum += site(a, i);
+        }
+        sum += site(other, 7) * 1000000L;
+        for (int i = 0; i < 20000; i++) {
+            sum += site((i & 1) == 0 ? a : other, i);
+        }
+        return sum;
+    }
+
+    private static int site(A receiver, int x) {
+        Counter counter = new Counter(x);
+        return counter.add(receiver, x) + counter.count;
+    }
+}
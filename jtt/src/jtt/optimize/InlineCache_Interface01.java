@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests an INVOKEINTERFACE call site going through the monomorphic, polymorphic and megamorphic inline cache states,
+ * with receivers that implement the interface at different itable positions.
+ * @Harness: java
+ * @Runs: 1 = 100; 2 = 300; 4 = 1000; 6 = 2100; 7 = 2700
+ */
+public class InlineCache_Interface01 {
+
+    interface I {
+        int value();
+    }
+
+    interface J {
+        int other();
+    }
+
+    interface K extends I, J {
+    }
+
+    static class A implements I {
+        public int value() {
+            return 1;
+        }
+    }
+
+    static class B implements J, I {
+        public int other() {
+            return -1;
+        }
+        public int value() {
+            return 2;
+        }
+    }
+
+    static class C implements K {
+        public int other() {
+            return -1;
+        }
+        public int value() {
+            return 3;
+        }
+    }
+
+    static class D extends A implements J {
+        public int other() {
+            return -1;
+        }
+        @Override
+        public int value() {
+            return 4;
+        }
+    }
+
+    static class E extends C {
+        @Override
+        public int value() {
+            return 5;
+        }
+    }
+
+    static class F implements Comparable<F>, I {
+        public int compareTo(F o) {
+            return 0;
+        }
+        public int value() {
+            return 6;
+        }
+    }
+
+    static class G extends F {
+        // inherits F.value()
+    }
+
+    private static final I[] receivers = {new A(), new B(), new C(), new D(), new E(), new F(), new G()};
+
+    public static int test(int types) {
+        int sum = 0;
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < types; j++) {
+                sum += call(receivers[j]);
+            }
+        }
+        return sum;
+    }
+
+    private static int call(I i) {
+        return i.value();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests that locals of all kinds survive on-stack replacement of a long running loop.
+ * @Harness: java
+ * @Runs: 0 = "0 0 0.0 0.0 x"; 10 = "45 285 22.5 10.0 x0123456789"; 200000 = "19999900000 2666646666700000 9.99995E9 200000.0 x0123456789"
+ */
+public class OSR_Locals01 {
+
+    public static String test(int n) {
+        int i = 0;
+        long sum = 0;
+        long squares = 0;
+        double half = 0;
+        float count = 0;
+        StringBuilder sb = new StringBuilder("x");
+        while (i < n) {
+            sum += i;
+            squares += (long) i * i;
+            half += i * 0.5;
+            count += 1.0f;
+            if (i < 10) {
+                sb.append(i);
+            }
+            i++;
+        }
+        return sum + " " + squares + " " + half + " " + count + " " + sb;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests loops that are hot enough for on-stack replacement while the frame holds monitors:
+ * the monitors must stay locked for the whole loop and be released exactly once afterwards.
+ * @Harness: java
+ * @Runs: 0 = 0L; 1 = 0L; 2 = 0L; 10 = 135L; 200000 = 59999700000L
+ */
+public class OSR_Monitor01 {
+
+    private static final Object lock = new Object();
+
+    public static long test(int arg) {
+        long result;
+        if (arg == 1) {
+            result = new OSR_Monitor01().syncMethod(0);
+        } else if (arg == 2) {
+            result = nested(0);
+        } else {
+            result = syncBlock(arg) + new OSR_Monitor01().syncMethod(arg) - nested(arg);
+        }
+        if (Thread.holdsLock(lock) || Thread.holdsLock(OSR_Monitor01.class)) {
+            return -1;
+        }
+        return result;
+    }
+
+    static long syncBlock(int n) {
+        long sum = 0;
+        synchronized (lock) {
+            for (int i = 0; i < n; i++) {
+                sum += i;
+                if (!Thread.holdsLock(lock)) {
+                    return -1000;
+                }
+            }
+        }
+        return sum;
+    }
+
+    synchronized long syncMethod(int n) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += i;
+            if (!Thread.holdsLock(this)) {
+                return -2000;
+            }
+        }
+        return sum;
+    }
+
+    static long nested(int n) {
+        long sum = 0;
+        synchronized (OSR_Monitor01.class) {
+            synchronized (lock) {
+                for (int i = 0; i < n; i++) {
+                    sum -= i;
+                }
+                if (!Thread.holdsLock(lock)) {
+                    return -3000;
+                }
+            }
+            if (Thread.holdsLock(lock) || !Thread.holdsLock(OSR_Monitor01.class)) {
+                return -4000;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests that on-stack replacement of a loop preserves the operand stack and locals of the callers of the loop.
+ * @Harness: java
+ * @Runs: 0 = 1007L; 10 = 1157L; 200000 = 3001007L
+ */
+public class OSR_Stack01 {
+
+    public static long test(int n) {
+        long a = 1000;
+        int[] b = {7};
+        // a and b[0] are on the operand stack of this frame while loop() runs
+        return a + b[0] + 3L * loop(n, 5);
+    }
+
+    private static long loop(int n, int step) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += step;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests speculative inlining of the profiled receiver type at an interface call site, where the type that
+ * breaks the speculation throws an exception out of the call. The exception must reach the handler of the
+ * deoptimized frame.
+ * @Harness: java
+ * @Runs: 0 = 800000000L; 1 = 499990000L; 2 = 799990000L
+ */
+public class Speculation_Interface01 {
+
+    interface I {
+        int f(int x);
+    }
+
+    static class A implements I {
+        public int f(int x) {
+            return x + 1;
+        }
+    }
+
+    static class B implements I {
+        public int f(int x) {
+            if (x % 2 == 1) {
+                throw new IllegalStateException();
+            }
+            return 2 * x;
+        }
+    }
+
+    static class C extends A {
+        @Override
+        public int f(int x) {
+            return x;
+        }
+    }
+
+    private static final I[] receivers = {new A(), new B(), new C()};
+
+    public static long test(int arg) {
+        final I a = receivers[0];
+        final I other = receivers[arg];
+        long sum = 0;
+        for (int i = 0; i < 20000; i++) {
+            sum += site(a, i);
+        }
+        for (int i = 0; i < 20000; i++) {
+            sum += site((i & 1) == 0 ? a : other, i);
+        }
+        return sum;
+    }
+
+    private static int site(I receiver, int x) {
+        int y = x;
+        try {
+            y += receiver.f(x);
+        } catch (IllegalStateException e) {
+            y = -y;
+        }
+        return y;
+    }
+}
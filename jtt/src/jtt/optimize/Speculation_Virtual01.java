@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests speculative inlining of the profiled receiver type at a virtual call site. The site only sees one type
+ * until it is hot enough to be optimized, then another type breaks the speculation. The optimized code must
+ * deoptimize and re-execute the call, keeping the values that are live across it, and the code compiled after
+ * the failed speculation must compute the same results.
+ * @Harness: java
+ * @Runs: 0 = 2855100000L; 1 = 2961090000L; 2 = 2640090000L
+ */
+public class Speculation_Virtual01 {
+
+    static class A {
+        int f(int x) {
+            return x + 1;
+        }
+    }
+
+    static class B extends A {
+        @Override
+        int f(int x) {
+            return x * 2;
+        }
+    }
+
+    static class C extends B {
+        @Override
+        int f(int x) {
+            return -x;
+        }
+    }
+
+    private static final A[] receivers = {new A(), new B(), new C()};
+
+    public static long test(int arg) {
+        final A a = receivers[0];
+        final A other = receivers[arg];
+        long sum = 0;
+        for (int i = 0; i < 20000; i++) {
+            sum += site(a, i);
+        }
+        sum += site(other, 7) * 1000000L;
+        for (int i = 0; i < 20000; i++) {
+            sum += site((i & 1) == 0 ? a : other, i);
+        }
+        return sum;
+    }
+
+    private static int site(A receiver, int x) {
+        int y = x * 3;
+        long z = y + 5L;
+        int v = receiver.f(x);
+        return v + y + (int) z;
+    }
+}
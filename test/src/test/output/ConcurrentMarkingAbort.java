@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package test.output;
+
+/**
+ * Builds an old generation of large reference arrays and linked lists, then churns the young generation while mutating it.
+ * Run on the generational mark-sweep heap with {@code -XX:+UseConcurrentMarking -XX:ConcurrentMarkingAbortInterval=n} (see the
+ * {@code cmabort} maxvm configuration), concurrent marking cycles are aborted by full GCs while the marking thread is in the middle
+ * of scanning a cell. The retained graph must be intact afterwards.
+ */
+public class ConcurrentMarkingAbort {
+
+    static final int ARRAYS = 64;
+    static final int ARRAY_LENGTH = 16 * 1024;
+    static final int ROUNDS = 40;
+
+    static final class Node {
+        final int value;
+        Node next;
+
+        Node(int value, Node next) {
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    public static void main(String[] args) {
+        final Object[][] arrays = new Object[ARRAYS][];
+        for (int i = 0; i < ARRAYS; i++) {
+            final Object[] array = new Object[ARRAY_LENGTH];
+            for (int j = 0; j < ARRAY_LENGTH; j++) {
+                array[j] = new Node(j, null);
+            }
+            arrays[i] = array;
+        }
+        Node list = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            // Update references of old arrays behind the marking, and allocate enough garbage to promote and start marking cycles.
+            for (int i = round % ARRAYS; i < ARRAYS; i += 7) {
+                final Object[] array = arrays[i];
+                for (int j = round; j < ARRAY_LENGTH; j += 13) {
+                    array[j] = new Node(j, (Node) array[j]);
+                }
+            }
+            for (int k = 0; k < 50000; k++) {
+                final Object[] garbage = new Object[8];
+                garbage[k & 7] = new Node(k, null);
+                if ((k & 1023) == 0) {
+                    list = new Node(round, list);
+                }
+            }
+        }
+        long sum = 0;
+        for (Object[] array : arrays) {
+            for (int j = 0; j < ARRAY_LENGTH; j++) {
+                for (Node n = (Node) array[j]; n != null; n = n.next) {
+                    if (n.value != j) {
+                        System.out.println("corrupted node at index " + j);
+                        return;
+                    }
+                    sum++;
+                }
+            }
+        }
+        int length = 0;
+        for (Node n = list; n != null; n = n.next) {
+            length++;
+        }
+        System.out.println("nodes: " + sum);
+        System.out.println("list: " + length);
+        System.out.println(ConcurrentMarkingAbort.class.getSimpleName() + " done");
+    }
+}